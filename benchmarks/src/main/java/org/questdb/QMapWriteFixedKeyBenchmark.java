@@ -0,0 +1,146 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.questdb;
+
+import io.questdb.cairo.ArrayColumnTypes;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.SingleColumnType;
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.map.FixedSizeKeyMap;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.std.Rnd;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FastMap} and {@link FixedSizeKeyMap} on keyed aggregation access pattern,
+ * i.e. most of the calls update existing entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QMapWriteFixedKeyBenchmark {
+
+    private static final double loadFactor = 0.5;
+    private final Rnd rnd = new Rnd();
+    @Param({"LONG", "SHORT", "BYTE", "SYMBOL_SYMBOL", "LONG_INT_SHORT_BYTE"})
+    public String keys;
+    @Param({"1000", "1000000"})
+    public int cardinality;
+    private Map fastMap;
+    private Map fixedMap;
+    private int shape;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(QMapWriteFixedKeyBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public long baseline() {
+        return rnd.nextPositiveLong() % cardinality;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        fastMap.clear();
+        fixedMap.clear();
+        rnd.reset();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ArrayColumnTypes keyTypes = new ArrayColumnTypes();
+        for (String key : keys.split("_")) {
+            keyTypes.add(ColumnType.typeOf(key));
+        }
+        SingleColumnType valueTypes = new SingleColumnType(ColumnType.LONG);
+        shape = keyTypes.getColumnCount() == 1 ? ColumnType.tagOf(keyTypes.getColumnType(0)) : -keyTypes.getColumnCount();
+        fastMap = new FastMap(1024 * 1024, keyTypes, valueTypes, 64, loadFactor, Integer.MAX_VALUE);
+        fixedMap = new FixedSizeKeyMap(1024 * 1024, keyTypes, valueTypes, 64, loadFactor, Integer.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fastMap.close();
+        fixedMap.close();
+    }
+
+    @Benchmark
+    public void testFastMap() {
+        update(fastMap);
+    }
+
+    @Benchmark
+    public void testFixedSizeKeyMap() {
+        update(fixedMap);
+    }
+
+    private void update(Map map) {
+        final long v = rnd.nextPositiveLong() % cardinality;
+        final MapKey key = map.withKey();
+        switch (shape) {
+            case ColumnType.LONG:
+                key.putLong(v);
+                break;
+            case ColumnType.SHORT:
+                key.putShort((short) v);
+                break;
+            case ColumnType.BYTE:
+                key.putByte((byte) v);
+                break;
+            case -2:
+                // two symbol keys
+                key.putInt((int) (v % 1000));
+                key.putInt((int) (v / 1000));
+                break;
+            default:
+                key.putLong(v);
+                key.putInt((int) v);
+                key.putShort((short) v);
+                key.putByte((byte) v);
+                break;
+        }
+        final MapValue value = key.createValue();
+        if (value.isNew()) {
+            value.putLong(0, 1);
+        } else {
+            value.addLong(0, 1);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.questdb;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.sql.OperationFuture;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.griffin.CompiledQuery;
+import io.questdb.griffin.SqlCompiler;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContextImpl;
+import io.questdb.griffin.engine.ops.UpdateOperation;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SCSequence;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reader reload after UPDATE of single column in single partition. UPDATE runs outside of the
+ * measurement. Reload re-opens files of the updated column only, its cost is expected to stay
+ * flat as the number of columns grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TableReaderColumnVersionReloadBenchmark {
+
+    private static final int PARTITION_COUNT = 30;
+    private static final long DAY_MICROS = 24 * 60 * 60 * 1000000L;
+    private static final CairoConfiguration configuration = new DefaultCairoConfiguration(System.getProperty("java.io.tmpdir"));
+    private final SCSequence eventSubSequence = new SCSequence();
+    @Param({"10", "50", "200"})
+    public int columnCount;
+    private CairoEngine engine;
+    private SqlCompiler compiler;
+    private SqlExecutionContextImpl sqlExecutionContext;
+    private TableReader reader;
+    private int updateCount;
+    private long sum;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TableReaderColumnVersionReloadBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .measurementIterations(2)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+
+        LogFactory.INSTANCE.haltThread();
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws SqlException {
+        engine = new CairoEngine(configuration);
+        compiler = new SqlCompiler(engine);
+        sqlExecutionContext = new SqlExecutionContextImpl(engine, 1);
+
+        StringBuilder ddl = new StringBuilder("create table test as (select timestamp_sequence(0, ")
+                .append(DAY_MICROS / 24)
+                .append(") ts");
+        for (int i = 0; i < columnCount; i++) {
+            ddl.append(", x c").append(i);
+        }
+        ddl.append(" from long_sequence(").append(PARTITION_COUNT * 24).append(")) timestamp(ts) partition by DAY");
+        compiler.compile("drop table if exists test", sqlExecutionContext);
+        compiler.compile(ddl, sqlExecutionContext);
+
+        reader = new TableReader(configuration, "test");
+        // ensure reader opens all partitions and maps all data
+        RecordCursor cursor = reader.getCursor();
+        Record record = cursor.getRecord();
+        while (cursor.hasNext()) {
+            sum += record.getLong(1);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.out.println("sum = " + sum);
+        reader.close();
+        compiler.close();
+        engine.close();
+    }
+
+    @Benchmark
+    public void testReload() {
+        reader.reload();
+    }
+
+    @Setup(Level.Invocation)
+    public void update() throws SqlException {
+        final int partitionIndex = updateCount++ % PARTITION_COUNT;
+        final CompiledQuery cq = compiler.compile(
+                "update test set c0 = " + updateCount + " where ts = cast(" + partitionIndex * DAY_MICROS + " as timestamp)",
+                sqlExecutionContext
+        );
+        try (
+                UpdateOperation op = cq.getUpdateOperation();
+                OperationFuture fut = cq.getDispatcher().execute(op, sqlExecutionContext, eventSubSequence)
+        ) {
+            fut.await();
+        }
+    }
+}
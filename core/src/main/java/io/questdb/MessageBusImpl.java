@@ -74,6 +74,10 @@ public class MessageBusImpl implements MessageBus {
     private final MPSequence queryCacheEventPubSeq;
     private final FanOut queryCacheEventSubSeq;
 
+    private final RingQueue<TextImportTask> textImportQueue;
+    private final MPSequence textImportPubSeq;
+    private final MCSequence textImportSubSeq;
+
     private final int pageFrameReduceShardCount;
     private final MPSequence[] pageFrameReducePubSeq;
     private final MCSequence[] pageFrameReduceSubSeq;
@@ -95,6 +99,11 @@ public class MessageBusImpl implements MessageBus {
         this.vectorAggregateSubSeq = new MCSequence(vectorAggregateQueue.getCycle());
         vectorAggregatePubSeq.then(vectorAggregateSubSeq).then(vectorAggregatePubSeq);
 
+        this.textImportQueue = new RingQueue<>(TextImportTask::new, configuration.getSqlCopyQueueCapacity());
+        this.textImportPubSeq = new MPSequence(textImportQueue.getCycle());
+        this.textImportSubSeq = new MCSequence(textImportQueue.getCycle());
+        textImportPubSeq.then(textImportSubSeq).then(textImportPubSeq);
+
         this.o3CallbackQueue = new RingQueue<>(O3CallbackTask::new, configuration.getO3CallbackQueueCapacity());
         this.o3CallbackPubSeq = new MPSequence(this.o3CallbackQueue.getCycle());
         this.o3CallbackSubSeq = new MCSequence(this.o3CallbackQueue.getCycle());
@@ -367,4 +376,19 @@ public class MessageBusImpl implements MessageBus {
     public FanOut getQueryCacheEventFanOut() {
         return queryCacheEventSubSeq;
     }
+
+    @Override
+    public Sequence getTextImportPubSeq() {
+        return textImportPubSeq;
+    }
+
+    @Override
+    public RingQueue<TextImportTask> getTextImportQueue() {
+        return textImportQueue;
+    }
+
+    @Override
+    public Sequence getTextImportSubSeq() {
+        return textImportSubSeq;
+    }
 }
@@ -61,6 +61,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     public static final String CONFIG_DIRECTORY = "conf";
     public static final String DB_DIRECTORY = "db";
     public static final String SNAPSHOT_DIRECTORY = "snapshot";
+    public static final String IMPORT_WORK_DIRECTORY = "import";
     public static final long COMMIT_INTERVAL_DEFAULT = 2000;
     private static final LowerCaseCharSequenceIntHashMap WRITE_FO_OPTS = new LowerCaseCharSequenceIntHashMap();
     private static final Map<String, String> OBSOLETE_SETTINGS = new HashMap<>();
@@ -89,6 +90,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final int mkdirMode;
     private final int parallelIndexThreshold;
     private final int readerPoolMaxSegments;
+    private final boolean readerSharedMmapEnabled;
     private final long spinLockTimeoutUs;
     private final boolean httpSqlCacheEnabled;
     private final int httpSqlCacheBlockCount;
@@ -123,6 +125,18 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final int sqlSortValueMaxPages;
     private final long workStealTimeoutNanos;
     private final boolean parallelIndexingEnabled;
+    private final boolean walEnabled;
+    private final long walSegmentRolloverRowCount;
+    private final boolean matViewEnabled;
+    private final long matViewRefreshInterval;
+    private final boolean sqlResultCacheEnabled;
+    private final long sqlResultCacheSize;
+    private final long sqlResultCacheEntrySize;
+    private final int sqlFactoryCacheCapacity;
+    private final int sqlCopyQueueCapacity;
+    private final String sqlCopyWorkRoot;
+    private final int parquetRowGroupSize;
+    private final int zoneMapBlockSize;
     private final int sqlJoinMetadataPageSize;
     private final int sqlJoinMetadataMaxResizes;
     private final int lineUdpCommitRate;
@@ -255,7 +269,15 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final String systemTableNamePrefix;
     private final int columnPurgeRetryLimitDays;
     private final long columnPurgeRetryDelay;
+    private final boolean sqlParallelAsOfJoinEnabled;
     private final boolean sqlParallelFilterEnabled;
+    private final boolean sqlParallelGroupByEnabled;
+    private final boolean sqlParallelHashJoinEnabled;
+    private final boolean sqlParallelLatestByEnabled;
+    private final boolean sqlParallelSampleByEnabled;
+    private final boolean sqlSpillEnabled;
+    private final String sqlSpillRoot;
+    private final long sqlSpillMemoryBudget;
     private final int cairoPageFrameReduceShardCount;
     private int lineUdpDefaultPartitionBy;
     private int httpMinNetConnectionLimit;
@@ -304,6 +326,8 @@ public class PropServerConfiguration implements ServerConfiguration {
     private int lineUdpPort;
     private int jsonQueryFloatScale;
     private int jsonQueryDoubleScale;
+    private int arrowBatchRowCount;
+    private long jsonQueryParallelBufferSize;
     private int jsonQueryConnectionCheckFrequency;
     private boolean httpFrozenClock;
     private boolean httpReadOnlySecurityContext;
@@ -375,6 +399,8 @@ public class PropServerConfiguration implements ServerConfiguration {
     private String lineTcpAuthDbPath;
     private int lineTcpDefaultPartitionBy;
     private long minIdleMsBeforeWriterRelease;
+    private long lineTcpWriterRebalanceInterval;
+    private double lineTcpMaxLoadRatio;
     private boolean lineTcpDisconnectOnError;
     private String httpVersion;
     private int httpMinWorkerCount;
@@ -567,6 +593,8 @@ public class PropServerConfiguration implements ServerConfiguration {
                 this.jsonQueryConnectionCheckFrequency = getInt(properties, env, PropertyKey.HTTP_JSON_QUERY_CONNECTION_CHECK_FREQUENCY, 1_000_000);
                 this.jsonQueryFloatScale = getInt(properties, env, PropertyKey.HTTP_JSON_QUERY_FLOAT_SCALE, 4);
                 this.jsonQueryDoubleScale = getInt(properties, env, PropertyKey.HTTP_JSON_QUERY_DOUBLE_SCALE, 12);
+                this.arrowBatchRowCount = getInt(properties, env, PropertyKey.HTTP_QUERY_ARROW_BATCH_ROWS, 65536);
+                this.jsonQueryParallelBufferSize = getLongSize(properties, env, PropertyKey.HTTP_JSON_QUERY_PARALLEL_BUFFER_SIZE, 16 * 1024 * 1024);
                 this.httpReadOnlySecurityContext = getBoolean(properties, env, PropertyKey.HTTP_SECURITY_READONLY, false);
                 this.maxHttpQueryResponseRowLimit = getLong(properties, env, PropertyKey.HTTP_SECURITY_MAX_RESPONSE_ROWS, Long.MAX_VALUE);
                 this.interruptOnClosedConnection = getBoolean(properties, env, PropertyKey.HTTP_SECURITY_INTERRUPT_ON_CLOSED_CONNECTION, true);
@@ -665,6 +693,7 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.maxSwapFileCount = getInt(properties, env, PropertyKey.CAIRO_MAX_SWAP_FILE_COUNT, 30);
             this.parallelIndexThreshold = getInt(properties, env, PropertyKey.CAIRO_PARALLEL_INDEX_THRESHOLD, 100000);
             this.readerPoolMaxSegments = getInt(properties, env, PropertyKey.CAIRO_READER_POOL_MAX_SEGMENTS, 5);
+            this.readerSharedMmapEnabled = getBoolean(properties, env, PropertyKey.CAIRO_READER_SHARED_MMAP_ENABLED, true);
             this.spinLockTimeoutUs = getLong(properties, env, PropertyKey.CAIRO_SPIN_LOCK_TIMEOUT, 1_000_000);
             this.httpSqlCacheEnabled = getBoolean(properties, env, PropertyKey.HTTP_QUERY_CACHE_ENABLED, true);
             this.httpSqlCacheBlockCount = getInt(properties, env, PropertyKey.HTTP_QUERY_CACHE_BLOCK_COUNT, 4);
@@ -696,6 +725,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.sqlSortValueMaxPages = getIntSize(properties, env, PropertyKey.CAIRO_SQL_SORT_VALUE_MAX_PAGES, Integer.MAX_VALUE);
             this.workStealTimeoutNanos = getLong(properties, env, PropertyKey.CAIRO_WORK_STEAL_TIMEOUT_NANOS, 10_000);
             this.parallelIndexingEnabled = getBoolean(properties, env, PropertyKey.CAIRO_PARALLEL_INDEXING_ENABLED, true);
+            this.walEnabled = getBoolean(properties, env, PropertyKey.CAIRO_WAL_ENABLED, false);
+            this.walSegmentRolloverRowCount = getLong(properties, env, PropertyKey.CAIRO_WAL_SEGMENT_ROLLOVER_ROW_COUNT, 200_000);
+            this.matViewEnabled = getBoolean(properties, env, PropertyKey.CAIRO_MAT_VIEW_ENABLED, true);
+            this.matViewRefreshInterval = getLong(properties, env, PropertyKey.CAIRO_MAT_VIEW_REFRESH_INTERVAL, 100_000);
+            this.sqlResultCacheEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_RESULT_CACHE_ENABLED, false);
+            this.sqlResultCacheSize = getLongSize(properties, env, PropertyKey.CAIRO_SQL_RESULT_CACHE_SIZE, 64 * 1024 * 1024);
+            this.sqlResultCacheEntrySize = getLongSize(properties, env, PropertyKey.CAIRO_SQL_RESULT_CACHE_ENTRY_SIZE, 1024 * 1024);
+            this.sqlFactoryCacheCapacity = getInt(properties, env, PropertyKey.CAIRO_SQL_FACTORY_CACHE_CAPACITY, 256);
+            this.parquetRowGroupSize = getInt(properties, env, PropertyKey.CAIRO_PARQUET_ROW_GROUP_SIZE, 100_000);
+            this.zoneMapBlockSize = getInt(properties, env, PropertyKey.CAIRO_ZONE_MAP_BLOCK_SIZE, 100_000);
             this.sqlJoinMetadataPageSize = getIntSize(properties, env, PropertyKey.CAIRO_SQL_JOIN_METADATA_PAGE_SIZE, 16384);
             this.sqlJoinMetadataMaxResizes = getIntSize(properties, env, PropertyKey.CAIRO_SQL_JOIN_METADATA_MAX_RESIZES, Integer.MAX_VALUE);
             this.sqlAnalyticColumnPoolCapacity = getInt(properties, env, PropertyKey.CAIRO_SQL_ANALYTIC_COLUMN_POOL_CAPACITY, 64);
@@ -717,7 +756,14 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.cairoPageFrameReduceQueueCapacity = Numbers.ceilPow2(getInt(properties, env, PropertyKey.CAIRO_PAGE_FRAME_REDUCE_QUEUE_CAPACITY, 64));
             this.cairoPageFrameReduceRowIdListCapacity = Numbers.ceilPow2(getInt(properties, env, PropertyKey.CAIRO_PAGE_FRAME_ROWID_LIST_CAPACITY, 256));
             this.cairoPageFrameReduceColumnListCapacity = Numbers.ceilPow2(getInt(properties, env, PropertyKey.CAIRO_PAGE_FRAME_COLUMN_LIST_CAPACITY, 16));
+            this.sqlParallelAsOfJoinEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_PARALLEL_ASOF_JOIN_ENABLED, true);
             this.sqlParallelFilterEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_PARALLEL_FILTER_ENABLED, true);
+            this.sqlParallelGroupByEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_PARALLEL_GROUPBY_ENABLED, true);
+            this.sqlParallelHashJoinEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_PARALLEL_HASH_JOIN_ENABLED, true);
+            this.sqlParallelLatestByEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_PARALLEL_LATEST_BY_ENABLED, true);
+            this.sqlParallelSampleByEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_PARALLEL_SAMPLEBY_ENABLED, true);
+            this.sqlSpillEnabled = getBoolean(properties, env, PropertyKey.CAIRO_SQL_SPILL_ENABLED, false);
+            this.sqlSpillMemoryBudget = getLongSize(properties, env, PropertyKey.CAIRO_SQL_SPILL_MEMORY_BUDGET, 256 * 1024 * 1024);
             this.cairoPageFrameReduceShardCount = getInt(properties, env, PropertyKey.CAIRO_PAGE_FRAME_SHARD_COUNT, 4);
             this.cairoPageFrameReduceTaskPoolCapacity = getInt(properties, env, PropertyKey.CAIRO_PAGE_FRAME_TASK_POOL_CAPACITY, 4);
 
@@ -776,6 +822,10 @@ public class PropServerConfiguration implements ServerConfiguration {
             }
 
             this.inputRoot = getString(properties, env, PropertyKey.CAIRO_SQL_COPY_ROOT, null);
+            this.sqlCopyWorkRoot = getString(properties, env, PropertyKey.CAIRO_SQL_COPY_WORK_ROOT, rootSubdir(this.root, IMPORT_WORK_DIRECTORY)); // ../import
+            // COPY work root is the scratch directory, spill files go there too unless configured otherwise
+            this.sqlSpillRoot = getString(properties, env, PropertyKey.CAIRO_SQL_SPILL_ROOT, this.sqlCopyWorkRoot);
+            this.sqlCopyQueueCapacity = Numbers.ceilPow2(getInt(properties, env, PropertyKey.CAIRO_SQL_COPY_QUEUE_CAPACITY, 32));
             this.backupRoot = getString(properties, env, PropertyKey.CAIRO_SQL_BACKUP_ROOT, null);
             this.backupDirTimestampFormat = getTimestampFormat(properties, env);
             this.backupTempDirName = getString(properties, env, PropertyKey.CAIRO_SQL_BACKUP_DIR_TMP_NAME, "tmp");
@@ -905,6 +955,8 @@ public class PropServerConfiguration implements ServerConfiguration {
                     this.lineTcpAuthDbPath = new File(root, this.lineTcpAuthDbPath).getAbsolutePath();
                 }
                 this.minIdleMsBeforeWriterRelease = getLong(properties, env, PropertyKey.LINE_TCP_MIN_IDLE_MS_BEFORE_WRITER_RELEASE, 10_000);
+                this.lineTcpWriterRebalanceInterval = getLong(properties, env, PropertyKey.LINE_TCP_WRITER_REBALANCE_INTERVAL, 5_000);
+                this.lineTcpMaxLoadRatio = getDouble(properties, env, PropertyKey.LINE_TCP_MAX_LOAD_RATIO, 1.9);
                 this.lineTcpDisconnectOnError = getBoolean(properties, env, PropertyKey.LINE_TCP_DISCONNECT_ON_ERROR, true);
                 this.stringToCharCastAllowed = getBoolean(properties, env, PropertyKey.LINE_TCP_UNDOCUMENTED_STRING_TO_CHAR_CAST_ALLOWED, false);
                 this.symbolAsFieldSupported = getBoolean(properties, env, PropertyKey.LINE_TCP_UNDOCUMENTED_SYMBOL_AS_FIELD_SUPPORTED, false);
@@ -2108,6 +2160,46 @@ public class PropServerConfiguration implements ServerConfiguration {
             return sqlParallelFilterEnabled;
         }
 
+        @Override
+        public boolean isSqlParallelGroupByEnabled() {
+            return sqlParallelGroupByEnabled;
+        }
+
+        @Override
+        public boolean isSqlParallelAsOfJoinEnabled() {
+            return sqlParallelAsOfJoinEnabled;
+        }
+
+        @Override
+        public boolean isSqlParallelHashJoinEnabled() {
+            return sqlParallelHashJoinEnabled;
+        }
+
+        @Override
+        public boolean isSqlParallelLatestByEnabled() {
+            return sqlParallelLatestByEnabled;
+        }
+
+        @Override
+        public boolean isSqlSpillEnabled() {
+            return sqlSpillEnabled;
+        }
+
+        @Override
+        public CharSequence getSqlSpillRoot() {
+            return sqlSpillRoot;
+        }
+
+        @Override
+        public long getSqlSpillMemoryBudget() {
+            return sqlSpillMemoryBudget;
+        }
+
+        @Override
+        public boolean isSqlParallelSampleByEnabled() {
+            return sqlParallelSampleByEnabled;
+        }
+
         @Override
         public int getPageFrameReduceShardCount() {
             return cairoPageFrameReduceShardCount;
@@ -2118,6 +2210,11 @@ public class PropServerConfiguration implements ServerConfiguration {
             return parallelIndexThreshold;
         }
 
+        @Override
+        public int getParquetRowGroupSize() {
+            return parquetRowGroupSize;
+        }
+
         @Override
         public int getPartitionPurgeListCapacity() {
             return o3PartitionPurgeListCapacity;
@@ -2407,6 +2504,41 @@ public class PropServerConfiguration implements ServerConfiguration {
             return sqlWithClauseModelPoolCapacity;
         }
 
+        @Override
+        public long getWalSegmentRolloverRowCount() {
+            return walSegmentRolloverRowCount;
+        }
+
+        @Override
+        public long getMatViewRefreshInterval() {
+            return matViewRefreshInterval;
+        }
+
+        @Override
+        public long getSqlResultCacheSize() {
+            return sqlResultCacheSize;
+        }
+
+        @Override
+        public long getSqlResultCacheEntrySize() {
+            return sqlResultCacheEntrySize;
+        }
+
+        @Override
+        public int getSqlFactoryCacheCapacity() {
+            return sqlFactoryCacheCapacity;
+        }
+
+        @Override
+        public int getSqlCopyQueueCapacity() {
+            return sqlCopyQueueCapacity;
+        }
+
+        @Override
+        public CharSequence getSqlCopyWorkRoot() {
+            return sqlCopyWorkRoot;
+        }
+
         @Override
         public long getWorkStealTimeoutNanos() {
             return workStealTimeoutNanos;
@@ -2442,6 +2574,11 @@ public class PropServerConfiguration implements ServerConfiguration {
             return writerTickRowsCountMod;
         }
 
+        @Override
+        public int getZoneMapBlockSize() {
+            return zoneMapBlockSize;
+        }
+
         @Override
         public boolean isO3QuickSortEnabled() {
             return o3QuickSortEnabled;
@@ -2452,6 +2589,26 @@ public class PropServerConfiguration implements ServerConfiguration {
             return parallelIndexingEnabled;
         }
 
+        @Override
+        public boolean isReaderSharedMmapEnabled() {
+            return readerSharedMmapEnabled;
+        }
+
+        @Override
+        public boolean isWalEnabled() {
+            return walEnabled;
+        }
+
+        @Override
+        public boolean isMatViewEnabled() {
+            return matViewEnabled;
+        }
+
+        @Override
+        public boolean isSqlResultCacheEnabled() {
+            return sqlResultCacheEnabled;
+        }
+
         @Override
         public boolean isSqlJitDebugEnabled() {
             return sqlJitDebugEnabled;
@@ -2783,6 +2940,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             return minIdleMsBeforeWriterRelease;
         }
 
+        @Override
+        public long getWriterRebalanceInterval() {
+            return lineTcpWriterRebalanceInterval;
+        }
+
+        @Override
+        public double getMaxLoadRatio() {
+            return lineTcpMaxLoadRatio;
+        }
+
         @Override
         public IODispatcherConfiguration getDispatcherConfiguration() {
             return lineTcpReceiverDispatcherConfiguration;
@@ -2856,6 +3023,11 @@ public class PropServerConfiguration implements ServerConfiguration {
 
     private class PropJsonQueryProcessorConfiguration implements JsonQueryProcessorConfiguration {
 
+        @Override
+        public int getArrowBatchRowCount() {
+            return arrowBatchRowCount;
+        }
+
         @Override
         public MillisecondClock getClock() {
             return httpFrozenClock ? StationaryMillisClock.INSTANCE : MillisecondClockImpl.INSTANCE;
@@ -2890,6 +3062,11 @@ public class PropServerConfiguration implements ServerConfiguration {
         public long getMaxQueryResponseRowLimit() {
             return maxHttpQueryResponseRowLimit;
         }
+
+        @Override
+        public long getParallelBufferSize() {
+            return jsonQueryParallelBufferSize;
+        }
     }
 
     private class PropWorkerPoolConfiguration implements WorkerPoolConfiguration {
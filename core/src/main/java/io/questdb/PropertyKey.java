@@ -55,6 +55,7 @@ public enum PropertyKey {
     CAIRO_MAX_SWAP_FILE_COUNT("cairo.max.swap.file.count"),
     CAIRO_PARALLEL_INDEX_THRESHOLD("cairo.parallel.index.threshold"),
     CAIRO_READER_POOL_MAX_SEGMENTS("cairo.reader.pool.max.segments"),
+    CAIRO_READER_SHARED_MMAP_ENABLED("cairo.reader.shared.mmap.enabled"),
     CAIRO_SPIN_LOCK_TIMEOUT("cairo.spin.lock.timeout"),
     CAIRO_CHARACTER_STORE_CAPACITY("cairo.character.store.capacity"),
     CAIRO_CHARACTER_STORE_SEQUENCE_POOL_CAPACITY("cairo.character.store.sequence.pool.capacity"),
@@ -87,7 +88,25 @@ public enum PropertyKey {
     CAIRO_PAGE_FRAME_REDUCE_QUEUE_CAPACITY("cairo.page.frame.reduce.queue.capacity"),
     CAIRO_PAGE_FRAME_ROWID_LIST_CAPACITY("cairo.page.frame.rowid.list.capacity"),
     CAIRO_PAGE_FRAME_COLUMN_LIST_CAPACITY("cairo.page.frame.column.list.capacity"),
+    CAIRO_SQL_PARALLEL_ASOF_JOIN_ENABLED("cairo.sql.parallel.asof.join.enabled"),
     CAIRO_SQL_PARALLEL_FILTER_ENABLED("cairo.sql.parallel.filter.enabled"),
+    CAIRO_SQL_PARALLEL_GROUPBY_ENABLED("cairo.sql.parallel.groupby.enabled"),
+    CAIRO_SQL_PARALLEL_HASH_JOIN_ENABLED("cairo.sql.parallel.hash.join.enabled"),
+    CAIRO_SQL_PARALLEL_LATEST_BY_ENABLED("cairo.sql.parallel.latest.by.enabled"),
+    CAIRO_SQL_PARALLEL_SAMPLEBY_ENABLED("cairo.sql.parallel.sampleby.enabled"),
+    CAIRO_SQL_SPILL_ENABLED("cairo.sql.spill.enabled"),
+    CAIRO_SQL_SPILL_ROOT("cairo.sql.spill.root"),
+    CAIRO_SQL_SPILL_MEMORY_BUDGET("cairo.sql.spill.memory.budget"),
+    CAIRO_WAL_ENABLED("cairo.wal.enabled"),
+    CAIRO_WAL_SEGMENT_ROLLOVER_ROW_COUNT("cairo.wal.segment.rollover.row.count"),
+    CAIRO_MAT_VIEW_ENABLED("cairo.mat.view.enabled"),
+    CAIRO_MAT_VIEW_REFRESH_INTERVAL("cairo.mat.view.refresh.interval.micro"),
+    CAIRO_SQL_RESULT_CACHE_ENABLED("cairo.sql.result.cache.enabled"),
+    CAIRO_SQL_RESULT_CACHE_SIZE("cairo.sql.result.cache.size"),
+    CAIRO_SQL_RESULT_CACHE_ENTRY_SIZE("cairo.sql.result.cache.entry.size"),
+    CAIRO_SQL_FACTORY_CACHE_CAPACITY("cairo.sql.factory.cache.capacity"),
+    CAIRO_PARQUET_ROW_GROUP_SIZE("cairo.parquet.row.group.size"),
+    CAIRO_ZONE_MAP_BLOCK_SIZE("cairo.zone.map.block.size"),
     CAIRO_PAGE_FRAME_SHARD_COUNT("cairo.page.frame.shard.count"),
     CAIRO_PAGE_FRAME_TASK_POOL_CAPACITY("cairo.page.frame.task.pool.capacity"),
     CAIRO_SQL_JOIN_METADATA_PAGE_SIZE("cairo.sql.join.metadata.page.size"),
@@ -127,6 +146,8 @@ public enum PropertyKey {
     CAIRO_SQL_JIT_DEBUG_ENABLED("cairo.sql.jit.debug.enabled"),
     CAIRO_WRITER_FO_OPTS("cairo.writer.fo_opts"),
     CAIRO_SQL_COPY_ROOT("cairo.sql.copy.root"),
+    CAIRO_SQL_COPY_WORK_ROOT("cairo.sql.copy.work.root"),
+    CAIRO_SQL_COPY_QUEUE_CAPACITY("cairo.sql.copy.queue.capacity"),
     CAIRO_SQL_BACKUP_ROOT("cairo.sql.backup.root"),
     CAIRO_SQL_BACKUP_DIR_TMP_NAME("cairo.sql.backup.dir.tmp.name"),
     CAIRO_SQL_BACKUP_MKDIR_MODE("cairo.sql.backup.mkdir.mode"),
@@ -232,6 +253,8 @@ public enum PropertyKey {
     HTTP_JSON_QUERY_CONNECTION_CHECK_FREQUENCY("http.json.query.connection.check.frequency"),
     HTTP_JSON_QUERY_FLOAT_SCALE("http.json.query.float.scale"),
     HTTP_JSON_QUERY_DOUBLE_SCALE("http.json.query.double.scale"),
+    HTTP_QUERY_ARROW_BATCH_ROWS("http.query.arrow.batch.rows"),
+    HTTP_JSON_QUERY_PARALLEL_BUFFER_SIZE("http.json.query.parallel.buffer.size"),
     HTTP_TEXT_ADAPTER_SET_CONFIG("http.text.adapter.set.config"),
     HTTP_QUERY_CACHE_ENABLED("http.query.cache.enabled"),
     HTTP_QUERY_CACHE_BLOCK_COUNT("http.query.cache.block.count"),
@@ -283,6 +306,8 @@ public enum PropertyKey {
     LINE_TCP_DEFAULT_PARTITION_BY("line.tcp.default.partition.by"),
     LINE_DEFAULT_PARTITION_BY("line.default.partition.by"),
     LINE_TCP_MIN_IDLE_MS_BEFORE_WRITER_RELEASE("line.tcp.min.idle.ms.before.writer.release"),
+    LINE_TCP_WRITER_REBALANCE_INTERVAL("line.tcp.writer.rebalance.interval"),
+    LINE_TCP_MAX_LOAD_RATIO("line.tcp.max.load.ratio"),
     LINE_TCP_DISCONNECT_ON_ERROR("line.tcp.disconnect.on.error"),
     LINE_TCP_UNDOCUMENTED_STRING_TO_CHAR_CAST_ALLOWED("line.tcp.undocumented.string.to.char.cast.allowed"),
     LINE_TCP_UNDOCUMENTED_SYMBOL_AS_FIELD_SUPPORTED("line.tcp.undocumented.symbol.as.field.supported"),
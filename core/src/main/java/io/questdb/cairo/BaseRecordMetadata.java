@@ -69,6 +69,10 @@ public abstract class BaseRecordMetadata implements RecordMetadata {
         return -1;
     }
 
+    public int getColumnCodec(int columnIndex) {
+        return getColumnQuick(columnIndex).getCodec();
+    }
+
     @Override
     public long getColumnHash(int columnIndex) {
         return getColumnQuick(columnIndex).getHash();
@@ -198,8 +198,29 @@ public interface CairoConfiguration {
 
     int getO3PurgeDiscoveryQueueCapacity();
 
+    boolean isSqlParallelAsOfJoinEnabled();
+
     boolean isSqlParallelFilterEnabled();
 
+    boolean isSqlParallelGroupByEnabled();
+
+    boolean isSqlParallelHashJoinEnabled();
+
+    boolean isSqlParallelLatestByEnabled();
+
+    boolean isSqlParallelSampleByEnabled();
+
+    /**
+     * When enabled, SQL operator memory that outgrows {@link #getSqlSpillMemoryBudget()} or
+     * its page limit is moved to temporary memory-mapped files under {@link #getSqlSpillRoot()}
+     * instead of failing the query.
+     */
+    boolean isSqlSpillEnabled();
+
+    CharSequence getSqlSpillRoot(); // same as getSqlCopyWorkRoot() unless set
+
+    long getSqlSpillMemoryBudget();
+
     int getPageFrameReduceQueueCapacity();
 
     int getPageFrameReduceShardCount();
@@ -212,6 +233,13 @@ public interface CairoConfiguration {
 
     int getParallelIndexThreshold();
 
+    /**
+     * Maximum number of rows in a row group of partition converted to Parquet format.
+     *
+     * @return number of rows
+     */
+    int getParquetRowGroupSize();
+
     int getPartitionPurgeListCapacity();
 
     default Rnd getRandom() {
@@ -344,6 +372,61 @@ public interface CairoConfiguration {
 
     int getWithClauseModelPoolCapacity();
 
+    /**
+     * Number of rows after which a WAL writer starts a new segment. Segments are
+     * rolled over only on commit, so a segment may exceed this number of rows.
+     *
+     * @return row count threshold
+     */
+    long getWalSegmentRolloverRowCount();
+
+    /**
+     * Minimum interval between two checks of materialized views for base table changes.
+     *
+     * @return interval in microseconds
+     */
+    long getMatViewRefreshInterval();
+
+    /**
+     * Memory budget of the server-wide SELECT result cache. Least recently used results
+     * are evicted once cached results outgrow the budget.
+     *
+     * @return cache size in bytes
+     */
+    long getSqlResultCacheSize();
+
+    /**
+     * Results larger than this are not cached.
+     *
+     * @return max size of a single cached result in bytes
+     */
+    long getSqlResultCacheEntrySize();
+
+    /**
+     * Number of idle compiled SELECT factories kept in the server-wide factory cache, which
+     * is shared by HTTP and PostgreSQL wire protocol connections.
+     *
+     * @return max number of cached factories across all queries
+     */
+    int getSqlFactoryCacheCapacity();
+
+    /**
+     * Capacity of the queue, which dispatches chunks and partitions of parallel COPY
+     * to the shared worker pool.
+     *
+     * @return queue capacity, power of 2
+     */
+    int getSqlCopyQueueCapacity();
+
+    /**
+     * Directory for temporary per-partition index files of parallel COPY. Defaults to
+     * the "import" directory next to the database root. It is also the default directory
+     * of SQL spill files, see {@link #getSqlSpillRoot()}.
+     *
+     * @return path to work directory
+     */
+    CharSequence getSqlCopyWorkRoot();
+
     long getWorkStealTimeoutNanos();
 
     long getWriterAsyncCommandBusyWaitTimeout();
@@ -358,12 +441,54 @@ public interface CairoConfiguration {
 
     int getWriterTickRowsCountMod();
 
+    /**
+     * Number of rows in a block of zone map, which keeps min/max statistics of numeric columns
+     * in read-only partitions.
+     *
+     * @return number of rows, 0 when zone maps are disabled
+     */
+    int getZoneMapBlockSize();
+
     boolean isO3QuickSortEnabled();
 
     boolean isParallelIndexingEnabled();
 
+    /**
+     * When enabled, table readers share read-only mappings of column files instead of mapping
+     * files each on its own. Mappings are shared between readers of the same version of the file.
+     *
+     * @return true when column file mappings are shared between table readers
+     */
+    boolean isReaderSharedMmapEnabled();
+
     boolean isSqlJitDebugEnabled();
 
+    /**
+     * When enabled, INSERT statements that cannot obtain the table writer append
+     * rows to the table's write-ahead log instead of failing. The log is applied
+     * to the table by a background job. ILP does not write to the log, it keeps
+     * the table writer on its writer thread.
+     *
+     * @return true when write-ahead log is enabled
+     */
+    boolean isWalEnabled();
+
+    /**
+     * When enabled, materialized views are refreshed by a background job after their
+     * base tables are committed to. Otherwise views are refreshed on REFRESH MATERIALIZED VIEW only.
+     *
+     * @return true when background refresh of materialized views is enabled
+     */
+    boolean isMatViewEnabled();
+
+    /**
+     * When enabled, results of SELECT queries received over HTTP and PostgreSQL wire protocol
+     * are shared between connections until tables they read from are committed to.
+     *
+     * @return true when SELECT result cache is enabled
+     */
+    boolean isSqlResultCacheEnabled();
+
     SqlExecutionCircuitBreakerConfiguration getCircuitBreakerConfiguration();
 
     int getQueryCacheEventQueueCapacity();
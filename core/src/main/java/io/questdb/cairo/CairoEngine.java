@@ -28,15 +28,20 @@ import io.questdb.MessageBus;
 import io.questdb.MessageBusImpl;
 import io.questdb.Metrics;
 import io.questdb.cairo.mig.EngineMigration;
+import io.questdb.cairo.mv.MatViewRegistry;
 import io.questdb.cairo.pool.PoolListener;
 import io.questdb.cairo.pool.ReaderPool;
 import io.questdb.cairo.pool.WriterPool;
 import io.questdb.cairo.pool.WriterSource;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
 import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.cairo.wal.WalWriter;
+import io.questdb.cairo.wal.WalWriterPool;
 import io.questdb.cairo.sql.AsyncWriterCommand;
 import io.questdb.griffin.DatabaseSnapshotAgent;
 import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.cache.QueryFactoryCache;
+import io.questdb.griffin.engine.cache.QueryResultCache;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.mp.*;
@@ -58,6 +63,10 @@ public class CairoEngine implements Closeable, WriterSource {
     private static final Log LOG = LogFactory.getLog(CairoEngine.class);
     private final WriterPool writerPool;
     private final ReaderPool readerPool;
+    private final WalWriterPool walWriterPool;
+    private final MatViewRegistry matViewRegistry;
+    private final QueryResultCache queryResultCache;
+    private final QueryFactoryCache queryFactoryCache;
     private final CairoConfiguration configuration;
     private final Metrics metrics;
     private final EngineMaintenanceJob engineMaintenanceJob;
@@ -82,6 +91,10 @@ public class CairoEngine implements Closeable, WriterSource {
         this.messageBus = new MessageBusImpl(configuration);
         this.writerPool = new WriterPool(configuration, messageBus, metrics);
         this.readerPool = new ReaderPool(configuration, messageBus);
+        this.walWriterPool = new WalWriterPool(configuration);
+        this.matViewRegistry = new MatViewRegistry(configuration);
+        this.queryResultCache = new QueryResultCache(configuration);
+        this.queryFactoryCache = new QueryFactoryCache(configuration);
         this.engineMaintenanceJob = new EngineMaintenanceJob(configuration);
         if (configuration.getTelemetryConfiguration().getEnabled()) {
             this.telemetryQueue = new RingQueue<>(TelemetryTask::new, configuration.getTelemetryConfiguration().getQueueCapacity());
@@ -110,19 +123,35 @@ public class CairoEngine implements Closeable, WriterSource {
             close();
             throw e;
         }
+        if (configuration.isWalEnabled()) {
+            // transactions committed to WAL before restart are applied by the apply job
+            try {
+                walWriterPool.openPendingSequencers();
+            } catch (Throwable e) {
+                close();
+                throw e;
+            }
+        }
     }
 
     @TestOnly
     public boolean clear() {
         boolean b1 = readerPool.releaseAll();
         boolean b2 = writerPool.releaseAll();
+        walWriterPool.releaseAll();
+        matViewRegistry.clear();
+        queryResultCache.clear();
+        queryFactoryCache.clear();
         return b1 & b2;
     }
 
     @Override
     public void close() {
+        Misc.free(queryFactoryCache);
         Misc.free(writerPool);
         Misc.free(readerPool);
+        Misc.free(walWriterPool);
+        Misc.free(queryResultCache);
         freeTableId();
         Misc.free(messageBus);
     }
@@ -317,6 +346,31 @@ public class CairoEngine implements Closeable, WriterSource {
         return telemetrySubSeq;
     }
 
+    /**
+     * Returns writer that appends to the table's write-ahead log. It can be obtained
+     * while the table writer is held by someone else.
+     */
+    public WalWriter getWalWriter(CairoSecurityContext securityContext, CharSequence tableName) {
+        securityContext.checkWritePermission();
+        return walWriterPool.getWriter(tableName);
+    }
+
+    public WalWriterPool getWalWriterPool() {
+        return walWriterPool;
+    }
+
+    public MatViewRegistry getMatViewRegistry() {
+        return matViewRegistry;
+    }
+
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    public QueryFactoryCache getQueryFactoryCache() {
+        return queryFactoryCache;
+    }
+
     @Override
     public TableWriter getWriter(
             CairoSecurityContext securityContext,
@@ -324,7 +378,7 @@ public class CairoEngine implements Closeable, WriterSource {
             CharSequence lockReason
     ) {
         securityContext.checkWritePermission();
-        return writerPool.get(tableName, lockReason);
+        return applyPendingWal(writerPool.get(tableName, lockReason));
     }
 
     public CharSequence lock(
@@ -375,7 +429,8 @@ public class CairoEngine implements Closeable, WriterSource {
             @NotNull AsyncWriterCommand asyncWriterCommand
     ) {
         securityContext.checkWritePermission();
-        return writerPool.getWriterOrPublishCommand(tableName, asyncWriterCommand.getCommandName(), asyncWriterCommand);
+        final TableWriter writer = writerPool.getWriterOrPublishCommand(tableName, asyncWriterCommand.getCommandName(), asyncWriterCommand);
+        return writer != null ? applyPendingWal(writer) : null;
     }
 
     @TestOnly
@@ -403,6 +458,8 @@ public class CairoEngine implements Closeable, WriterSource {
         CharSequence lockedReason = lock(securityContext, tableName, "removeTable");
         if (null == lockedReason) {
             try {
+                walWriterPool.releaseTable(tableName);
+                matViewRegistry.removeView(tableName);
                 path.of(configuration.getRoot()).concat(tableName).$();
                 int errno;
                 if ((errno = configuration.getFilesFacade().rmdir(path)) != 0) {
@@ -434,7 +491,9 @@ public class CairoEngine implements Closeable, WriterSource {
         CharSequence lockedReason = lock(securityContext, tableName, "renameTable");
         if (null == lockedReason) {
             try {
+                walWriterPool.releaseTable(tableName);
                 rename0(path, tableName, otherPath, newName);
+                matViewRegistry.renameView(tableName, newName);
             } finally {
                 unlock(securityContext, tableName, null, false);
             }
@@ -469,6 +528,17 @@ public class CairoEngine implements Closeable, WriterSource {
         writerPool.unlock(tableName);
     }
 
+    private TableWriter applyPendingWal(TableWriter writer) {
+        // WAL transactions committed before the writer was taken go into the table first
+        try {
+            walWriterPool.applyPending(writer);
+            return writer;
+        } catch (Throwable e) {
+            writer.close();
+            throw e;
+        }
+    }
+
     private void rename0(Path path, CharSequence tableName, Path otherPath, CharSequence to) {
         final FilesFacade ff = configuration.getFilesFacade();
         final CharSequence root = configuration.getRoot();
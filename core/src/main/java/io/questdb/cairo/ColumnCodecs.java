@@ -0,0 +1,389 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+
+/**
+ * Lightweight codecs for fixed-size column files of read-only partitions. When partition
+ * is no longer the last one, column files of codec-enabled columns are re-written from
+ * raw ".d" files into compressed ".z" files of the new column version. Readers decode ".z" files
+ * back into native memory, which then looks exactly like mapped ".d" file to page frames and
+ * record cursors.
+ * <p>
+ * Compressed file layout is a 16-byte header, (int) codec, (int) reserved, (long) value count,
+ * followed by encoded values.
+ */
+public final class ColumnCodecs {
+    public static final int NONE = 0;
+    // delta-of-delta, zig-zag encoded into variable length integers
+    public static final int DELTA = 1;
+    // XOR with previous value, leading and trailing zero bytes are omitted
+    public static final int XOR = 2;
+    public static final int HEADER_SIZE = 16;
+    private static final Log LOG = LogFactory.getLog(ColumnCodecs.class);
+    private static final int XOR_ZERO = 0xff;
+    private final static LowerCaseCharSequenceIntHashMap nameToCodecMap = new LowerCaseCharSequenceIntHashMap();
+    private final static IntObjHashMap<String> codecToNameMap = new IntObjHashMap<>();
+
+    private ColumnCodecs() {
+    }
+
+    public static int codecOf(CharSequence name) {
+        return nameToCodecMap.get(name);
+    }
+
+    /**
+     * Compresses data file of the column into ".z" file of the new column version. Data file of the source
+     * version is left intact, it remains visible to readers until the new version is committed and the old
+     * one is purged. Partition path is expected to be pre-populated, the path is trimmed back to partition
+     * on exit. Compression is skipped when data file does not exist or when compressed file would not be
+     * smaller than the data file.
+     *
+     * @return true when compressed file of the new column version was written
+     */
+    public static boolean compressColumnFile(
+            FilesFacade ff,
+            Path path,
+            CharSequence columnName,
+            long srcColumnNameTxn,
+            long dstColumnNameTxn,
+            int codec,
+            long valueCount,
+            long opts
+    ) {
+        final int plen = path.length();
+        final Path other = Path.getThreadLocal2(path);
+        final long srcSize = valueCount * Long.BYTES;
+        long srcFd = -1;
+        long srcAddr = 0;
+        long dstFd = -1;
+        long dstAddr = 0;
+        final long dstMaxSize = HEADER_SIZE + maxEncodedSize(codec, valueCount);
+        try {
+            TableUtils.dFile(path.trimTo(plen), columnName, srcColumnNameTxn);
+            if (valueCount < 1 || !ff.exists(path)) {
+                return false;
+            }
+            srcFd = TableUtils.openRO(ff, path, LOG);
+            if (ff.length(srcFd) < srcSize) {
+                throw CairoException.instance(0).put("column file is too small [file=").put(path)
+                        .put(", expectedSize=").put(srcSize)
+                        .put(", actual=").put(ff.length(srcFd))
+                        .put(']');
+            }
+            srcAddr = TableUtils.mapRO(ff, srcFd, srcSize, MemoryTag.MMAP_TABLE_WRITER);
+
+            TableUtils.zFile(other.trimTo(plen), columnName, dstColumnNameTxn);
+            dstFd = TableUtils.openRW(ff, other, LOG, opts);
+            dstAddr = TableUtils.mapRW(ff, dstFd, dstMaxSize, MemoryTag.MMAP_TABLE_WRITER);
+            final long dstSize = HEADER_SIZE + encode(codec, srcAddr, valueCount, dstAddr);
+            ff.munmap(dstAddr, dstMaxSize, MemoryTag.MMAP_TABLE_WRITER);
+            dstAddr = 0;
+
+            if (dstSize >= srcSize) {
+                LOG.info().$("column does not compress [file=").$(path).$(", codec=").$(nameOf(codec)).I$();
+                return false;
+            }
+
+            if (!ff.truncate(dstFd, dstSize)) {
+                throw CairoException.instance(ff.errno()).put("could not truncate [file=").put(other).put(']');
+            }
+            ff.close(dstFd);
+            dstFd = -1;
+
+            LOG.info().$("compressed [file=").$(other)
+                    .$(", codec=").$(nameOf(codec))
+                    .$(", size=").$(srcSize)
+                    .$(", compressedSize=").$(dstSize)
+                    .I$();
+            return true;
+        } finally {
+            if (srcAddr != 0) {
+                ff.munmap(srcAddr, srcSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+            if (srcFd != -1) {
+                ff.close(srcFd);
+            }
+            if (dstAddr != 0) {
+                ff.munmap(dstAddr, dstMaxSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+            if (dstFd != -1) {
+                ff.close(dstFd);
+                ff.remove(other);
+            }
+            path.trimTo(plen);
+        }
+    }
+
+    /**
+     * Decodes compressed file into native memory.
+     *
+     * @param srcAddr address of compressed file contents, including header
+     * @param srcSize size of compressed file
+     * @param dstAddr target memory, it must be at least {@link #getDecodedSize(long)} bytes
+     */
+    public static void decode(long srcAddr, long srcSize, long dstAddr) {
+        final int codec = Unsafe.getUnsafe().getInt(srcAddr);
+        final long valueCount = Unsafe.getUnsafe().getLong(srcAddr + 8);
+        final long srcHi = srcAddr + srcSize;
+        long p = srcAddr + HEADER_SIZE;
+        switch (codec) {
+            case DELTA:
+                decodeDelta(p, srcHi, dstAddr, valueCount);
+                break;
+            case XOR:
+                decodeXor(p, srcHi, dstAddr, valueCount);
+                break;
+            default:
+                throw CairoException.instance(0).put("unsupported column codec [codec=").put(codec).put(']');
+        }
+    }
+
+    /**
+     * Decodes compressed file of the column into data file of the new column version. Compressed file of
+     * the source version is left intact for the readers. Partition path is expected to be pre-populated,
+     * the path is trimmed back to partition on exit.
+     *
+     * @return true when compressed file existed and was decompressed
+     */
+    public static boolean decompressColumnFile(
+            FilesFacade ff,
+            Path path,
+            CharSequence columnName,
+            long srcColumnNameTxn,
+            long dstColumnNameTxn,
+            long opts
+    ) {
+        final int plen = path.length();
+        final Path other = Path.getThreadLocal2(path);
+        long srcFd = -1;
+        long srcAddr = 0;
+        long srcSize = 0;
+        long dstFd = -1;
+        long dstAddr = 0;
+        long dstSize = 0;
+        boolean success = false;
+        try {
+            TableUtils.zFile(path.trimTo(plen), columnName, srcColumnNameTxn);
+            if (!ff.exists(path)) {
+                return false;
+            }
+            srcFd = TableUtils.openRO(ff, path, LOG);
+            srcSize = ff.length(srcFd);
+            srcAddr = TableUtils.mapRO(ff, srcFd, srcSize, MemoryTag.MMAP_TABLE_WRITER);
+            dstSize = getDecodedSize(srcAddr);
+
+            TableUtils.dFile(other.trimTo(plen), columnName, dstColumnNameTxn);
+            dstFd = TableUtils.openRW(ff, other, LOG, opts);
+            if (dstSize > 0) {
+                dstAddr = TableUtils.mapRW(ff, dstFd, dstSize, MemoryTag.MMAP_TABLE_WRITER);
+                decode(srcAddr, srcSize, dstAddr);
+                ff.munmap(dstAddr, dstSize, MemoryTag.MMAP_TABLE_WRITER);
+                dstAddr = 0;
+            }
+            success = true;
+            LOG.info().$("decompressed [file=").$(other).$(", size=").$(dstSize).I$();
+            return true;
+        } finally {
+            if (srcAddr != 0) {
+                ff.munmap(srcAddr, srcSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+            if (srcFd != -1) {
+                ff.close(srcFd);
+            }
+            if (dstAddr != 0) {
+                ff.munmap(dstAddr, dstSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+            if (dstFd != -1) {
+                ff.close(dstFd);
+                if (!success) {
+                    ff.remove(other);
+                }
+            }
+            path.trimTo(plen);
+        }
+    }
+
+    /**
+     * Encodes 64-bit values.
+     *
+     * @return number of bytes written to dstAddr, which has to have at least {@link #maxEncodedSize(int, long)} bytes
+     * plus header.
+     */
+    public static long encode(int codec, long srcAddr, long valueCount, long dstAddr) {
+        Unsafe.getUnsafe().putInt(dstAddr, codec);
+        Unsafe.getUnsafe().putInt(dstAddr + 4, 0);
+        Unsafe.getUnsafe().putLong(dstAddr + 8, valueCount);
+        final long p = dstAddr + HEADER_SIZE;
+        switch (codec) {
+            case DELTA:
+                return encodeDelta(srcAddr, valueCount, p) - p;
+            case XOR:
+                return encodeXor(srcAddr, valueCount, p) - p;
+            default:
+                throw CairoException.instance(0).put("unsupported column codec [codec=").put(codec).put(']');
+        }
+    }
+
+    public static long getDecodedSize(long srcAddr) {
+        return Unsafe.getUnsafe().getLong(srcAddr + 8) * Long.BYTES;
+    }
+
+    public static boolean isSupported(int codec, int columnType) {
+        switch (codec) {
+            case NONE:
+                return true;
+            case DELTA:
+                switch (ColumnType.tagOf(columnType)) {
+                    case ColumnType.LONG:
+                    case ColumnType.DATE:
+                    case ColumnType.TIMESTAMP:
+                        return true;
+                    default:
+                        return false;
+                }
+            case XOR:
+                return ColumnType.tagOf(columnType) == ColumnType.DOUBLE;
+            default:
+                return false;
+        }
+    }
+
+    public static long maxEncodedSize(int codec, long valueCount) {
+        // worst case is 10 bytes per varint and 9 bytes per XOR value
+        return codec == DELTA ? valueCount * 10 : valueCount * 9;
+    }
+
+    public static String nameOf(int codec) {
+        final String name = codecToNameMap.get(codec);
+        return name != null ? name : "UNKNOWN";
+    }
+
+    private static void decodeDelta(long p, long hi, long dstAddr, long valueCount) {
+        if (valueCount < 1) {
+            return;
+        }
+        long value = Unsafe.getUnsafe().getLong(p);
+        p += Long.BYTES;
+        Unsafe.getUnsafe().putLong(dstAddr, value);
+        long delta = 0;
+        for (long i = 1; i < valueCount; i++) {
+            long zz = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (p >= hi) {
+                    throw CairoException.instance(0).put("corrupt compressed column [valueCount=").put(valueCount).put(", at=").put(i).put(']');
+                }
+                b = Unsafe.getUnsafe().getByte(p++);
+                zz |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            delta += (zz >>> 1) ^ -(zz & 1);
+            value += delta;
+            Unsafe.getUnsafe().putLong(dstAddr + i * Long.BYTES, value);
+        }
+    }
+
+    private static void decodeXor(long p, long hi, long dstAddr, long valueCount) {
+        long prev = 0;
+        for (long i = 0; i < valueCount; i++) {
+            if (p >= hi) {
+                throw CairoException.instance(0).put("corrupt compressed column [valueCount=").put(valueCount).put(", at=").put(i).put(']');
+            }
+            final int h = Unsafe.getUnsafe().getByte(p++) & 0xff;
+            if (h != XOR_ZERO) {
+                final int tz = h & 0x0f;
+                final int n = 8 - (h >>> 4) - tz;
+                long x = 0;
+                for (int k = 0; k < n; k++) {
+                    x |= (Unsafe.getUnsafe().getByte(p++) & 0xffL) << (k << 3);
+                }
+                prev ^= x << (tz << 3);
+            }
+            Unsafe.getUnsafe().putLong(dstAddr + i * Long.BYTES, prev);
+        }
+    }
+
+    private static long encodeDelta(long srcAddr, long valueCount, long p) {
+        if (valueCount < 1) {
+            return p;
+        }
+        long prev = Unsafe.getUnsafe().getLong(srcAddr);
+        Unsafe.getUnsafe().putLong(p, prev);
+        p += Long.BYTES;
+        long prevDelta = 0;
+        for (long i = 1; i < valueCount; i++) {
+            final long value = Unsafe.getUnsafe().getLong(srcAddr + i * Long.BYTES);
+            final long delta = value - prev;
+            final long dod = delta - prevDelta;
+            long zz = (dod << 1) ^ (dod >> 63);
+            while ((zz & ~0x7fL) != 0) {
+                Unsafe.getUnsafe().putByte(p++, (byte) ((zz & 0x7f) | 0x80));
+                zz >>>= 7;
+            }
+            Unsafe.getUnsafe().putByte(p++, (byte) zz);
+            prev = value;
+            prevDelta = delta;
+        }
+        return p;
+    }
+
+    private static long encodeXor(long srcAddr, long valueCount, long p) {
+        long prev = 0;
+        for (long i = 0; i < valueCount; i++) {
+            final long value = Unsafe.getUnsafe().getLong(srcAddr + i * Long.BYTES);
+            final long x = value ^ prev;
+            if (x == 0) {
+                Unsafe.getUnsafe().putByte(p++, (byte) XOR_ZERO);
+            } else {
+                final int lz = Long.numberOfLeadingZeros(x) >>> 3;
+                final int tz = Long.numberOfTrailingZeros(x) >>> 3;
+                Unsafe.getUnsafe().putByte(p++, (byte) ((lz << 4) | tz));
+                long v = x >>> (tz << 3);
+                for (int k = 0, n = 8 - lz - tz; k < n; k++) {
+                    Unsafe.getUnsafe().putByte(p++, (byte) v);
+                    v >>>= 8;
+                }
+            }
+            prev = value;
+        }
+        return p;
+    }
+
+    static {
+        nameToCodecMap.put("none", NONE);
+        nameToCodecMap.put("delta", DELTA);
+        nameToCodecMap.put("xor", XOR);
+        codecToNameMap.put(NONE, "NONE");
+        codecToNameMap.put(DELTA, "DELTA");
+        codecToNameMap.put(XOR, "XOR");
+    }
+}
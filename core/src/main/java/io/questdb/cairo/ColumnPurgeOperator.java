@@ -209,9 +209,14 @@ public class ColumnPurgeOperator implements Closeable {
                             continue;
                         }
                     } else {
-                        // Files already deleted, move to the next partition
-                        completedRecordIds.add(updateRecordId);
-                        continue;
+                        // codec compressed column version is stored in ".z" file
+                        path.trimTo(pathTrimToPartition);
+                        TableUtils.zFile(path, task.getColumnName(), columnVersion);
+                        if (!ff.exists(path)) {
+                            // Files already deleted, move to the next partition
+                            completedRecordIds.add(updateRecordId);
+                            continue;
+                        }
                     }
                 }
 
@@ -255,6 +260,23 @@ public class ColumnPurgeOperator implements Closeable {
                     path.trimTo(pathTrimToPartition);
                     TableUtils.iFile(path, task.getColumnName(), columnVersion);
 
+                    if (couldNotRemove(ff, path)) {
+                        allDone = false;
+                        continue;
+                    }
+                } else {
+                    path.trimTo(pathTrimToPartition);
+                    TableUtils.zFile(path, task.getColumnName(), columnVersion);
+
+                    if (couldNotRemove(ff, path)) {
+                        allDone = false;
+                        continue;
+                    }
+                }
+
+                if (ZoneMaps.isSupported(task.getColumnType())) {
+                    path.trimTo(pathTrimToPartition);
+                    TableUtils.zmFile(path, task.getColumnName(), columnVersion);
                     if (couldNotRemove(ff, path)) {
                         allDone = false;
                         continue;
@@ -43,6 +43,7 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
     private final CharSequence root;
     private final CharSequence confRoot;
     private final CharSequence snapshotRoot;
+    private final CharSequence sqlCopyWorkRoot;
 
     private final TextConfiguration textConfiguration;
     private final DefaultTelemetryConfiguration telemetryConfiguration = new DefaultTelemetryConfiguration();
@@ -58,6 +59,7 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         this.confRoot = PropServerConfiguration.rootSubdir(root, PropServerConfiguration.CONFIG_DIRECTORY);
         this.textConfiguration = new DefaultTextConfiguration(Chars.toString(confRoot));
         this.snapshotRoot = PropServerConfiguration.rootSubdir(root, PropServerConfiguration.SNAPSHOT_DIRECTORY);
+        this.sqlCopyWorkRoot = PropServerConfiguration.rootSubdir(root, PropServerConfiguration.IMPORT_WORK_DIRECTORY);
         Rnd rnd = new Rnd(NanosecondClockImpl.INSTANCE.getTicks(), MicrosecondClockImpl.INSTANCE.getTicks());
         this.databaseIdLo = rnd.nextLong();
         this.databaseIdHi = rnd.nextLong();
@@ -383,11 +385,51 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return 1024;
     }
 
+    @Override
+    public boolean isSqlParallelAsOfJoinEnabled() {
+        return true;
+    }
+
     @Override
     public boolean isSqlParallelFilterEnabled() {
         return true;
     }
 
+    @Override
+    public boolean isSqlParallelGroupByEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSqlParallelHashJoinEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSqlParallelLatestByEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSqlSpillEnabled() {
+        return false;
+    }
+
+    @Override
+    public CharSequence getSqlSpillRoot() {
+        return getSqlCopyWorkRoot();
+    }
+
+    @Override
+    public long getSqlSpillMemoryBudget() {
+        return 256 * 1024 * 1024;
+    }
+
+    @Override
+    public boolean isSqlParallelSampleByEnabled() {
+        return true;
+    }
+
     @Override
     public int getPageFrameReduceQueueCapacity() {
         return 32;
@@ -408,6 +450,11 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return 100000;
     }
 
+    @Override
+    public int getParquetRowGroupSize() {
+        return 100_000;
+    }
+
     @Override
     public int getPartitionPurgeListCapacity() {
         return 64;
@@ -700,6 +747,41 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return 128;
     }
 
+    @Override
+    public long getWalSegmentRolloverRowCount() {
+        return 200_000;
+    }
+
+    @Override
+    public long getMatViewRefreshInterval() {
+        return 100_000;
+    }
+
+    @Override
+    public long getSqlResultCacheSize() {
+        return 64 * 1024 * 1024;
+    }
+
+    @Override
+    public long getSqlResultCacheEntrySize() {
+        return 1024 * 1024;
+    }
+
+    @Override
+    public int getSqlFactoryCacheCapacity() {
+        return 256;
+    }
+
+    @Override
+    public int getSqlCopyQueueCapacity() {
+        return 32;
+    }
+
+    @Override
+    public CharSequence getSqlCopyWorkRoot() {
+        return sqlCopyWorkRoot;
+    }
+
     @Override
     public long getWorkStealTimeoutNanos() {
         return 10000;
@@ -739,6 +821,11 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return 1024 - 1;
     }
 
+    @Override
+    public int getZoneMapBlockSize() {
+        return 100_000;
+    }
+
     @Override
     public boolean isO3QuickSortEnabled() {
         return false;
@@ -749,6 +836,26 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return true;
     }
 
+    @Override
+    public boolean isReaderSharedMmapEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isWalEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isMatViewEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSqlResultCacheEnabled() {
+        return false;
+    }
+
     @Override
     public boolean isSqlJitDebugEnabled() {
         return false;
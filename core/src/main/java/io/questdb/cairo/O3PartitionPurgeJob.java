@@ -136,6 +136,10 @@ public class O3PartitionPurgeJob extends AbstractQueueConsumerJob<O3PartitionPur
         long lastTxn = txReader.getTxn();
         for (int i = hi - 2, n = lo - 1; i > n; i -= 2) {
             long nameTxn = partitionList.get(i);
+            if (nameTxn > lastTxn) {
+                // partition version is written by transaction that is not committed yet
+                continue;
+            }
             boolean rangeUnlocked = txnScoreboard.isRangeAvailable(nameTxn, lastTxn);
             if (rangeUnlocked) {
                 // nameTxn can be deleted
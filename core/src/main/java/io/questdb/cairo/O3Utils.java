@@ -27,6 +27,8 @@ package io.questdb.cairo;
 import io.questdb.MessageBus;
 import io.questdb.cairo.sql.SqlExecutionCircuitBreakerConfiguration;
 import io.questdb.cairo.sql.async.PageFrameReduceJob;
+import io.questdb.cairo.mv.MatViewRefreshJob;
+import io.questdb.cairo.wal.ApplyWal2TableJob;
 import io.questdb.griffin.FunctionFactoryCache;
 import io.questdb.griffin.SqlException;
 import io.questdb.log.Log;
@@ -61,6 +63,18 @@ public class O3Utils {
         workerPool.freeOnHalt(purgeDiscoveryJob);
         workerPool.freeOnHalt(columnPurgeJob);
 
+        if (cairoEngine.getConfiguration().isWalEnabled()) {
+            final ApplyWal2TableJob applyWal2TableJob = new ApplyWal2TableJob(cairoEngine);
+            workerPool.assign(applyWal2TableJob);
+            workerPool.freeOnHalt(applyWal2TableJob);
+        }
+
+        if (cairoEngine.getConfiguration().isMatViewEnabled()) {
+            final MatViewRefreshJob matViewRefreshJob = new MatViewRefreshJob(cairoEngine, functionFactoryCache);
+            workerPool.assign(matViewRefreshJob);
+            workerPool.freeOnHalt(matViewRefreshJob);
+        }
+
         final MicrosecondClock microsecondClock = messageBus.getConfiguration().getMicrosecondClock();
         final NanosecondClock nanosecondClock = messageBus.getConfiguration().getNanosecondClock();
 
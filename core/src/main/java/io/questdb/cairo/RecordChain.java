@@ -49,7 +49,15 @@ public class RecordChain implements Closeable, RecordCursor, Mutable, RecordSink
     private RecordCursor symbolTableResolver;
 
     public RecordChain(@Transient ColumnTypes columnTypes, RecordSink recordSink, long pageSize, int maxPages) {
-        this.mem = Vm.getARWInstance(pageSize, maxPages, MemoryTag.NATIVE_RECORD_CHAIN);
+        this(columnTypes, recordSink, Vm.getARWInstance(pageSize, maxPages, MemoryTag.NATIVE_RECORD_CHAIN));
+    }
+
+    public RecordChain(CairoConfiguration configuration, @Transient ColumnTypes columnTypes, RecordSink recordSink, long pageSize, int maxPages) {
+        this(columnTypes, recordSink, Vm.getSpillableCARWInstance(configuration, pageSize, maxPages, MemoryTag.NATIVE_RECORD_CHAIN));
+    }
+
+    private RecordChain(@Transient ColumnTypes columnTypes, RecordSink recordSink, MemoryARW mem) {
+        this.mem = mem;
         this.recordSink = recordSink;
         int count = columnTypes.getColumnCount();
         long varOffset = 0L;
@@ -224,6 +224,16 @@ public class RecordSinkFactory {
                     asm.iconst(Long.BYTES);
                     asm.invokeInterface(wSkip, 1);
                     break;
+                case -ColumnType.FLOAT:
+                    asm.aload(2);
+                    asm.iconst(Float.BYTES);
+                    asm.invokeInterface(wSkip, 1);
+                    break;
+                case -ColumnType.DOUBLE:
+                    asm.aload(2);
+                    asm.iconst(Double.BYTES);
+                    asm.invokeInterface(wSkip, 1);
+                    break;
                 case ColumnType.GEOBYTE:
                     asm.aload(2);
                     asm.aload(1);
@@ -37,6 +37,7 @@ public class TableColumnMetadata {
     private String name;
     private int indexValueBlockCapacity;
     private boolean indexed;
+    private int codec;
 
     public TableColumnMetadata(String name, long hash, int type) {
         this(name, hash, type, null);
@@ -70,6 +71,20 @@ public class TableColumnMetadata {
             boolean symbolTableStatic,
             @Nullable RecordMetadata metadata,
             int writerIndex
+    ) {
+        this(name, hash, type, indexFlag, indexValueBlockCapacity, symbolTableStatic, metadata, writerIndex, ColumnCodecs.NONE);
+    }
+
+    public TableColumnMetadata(
+            String name,
+            long hash,
+            int type,
+            boolean indexFlag,
+            int indexValueBlockCapacity,
+            boolean symbolTableStatic,
+            @Nullable RecordMetadata metadata,
+            int writerIndex,
+            int codec
     ) {
         this.name = name;
         this.hash = hash;
@@ -79,6 +94,15 @@ public class TableColumnMetadata {
         this.symbolTableStatic = symbolTableStatic;
         this.metadata = GenericRecordMetadata.copyOf(metadata);
         this.writerIndex = writerIndex;
+        this.codec = codec;
+    }
+
+    public int getCodec() {
+        return codec;
+    }
+
+    public void setCodec(int codec) {
+        this.codec = codec;
     }
 
     public long getHash() {
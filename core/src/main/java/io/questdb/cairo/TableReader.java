@@ -25,10 +25,17 @@
 package io.questdb.cairo;
 
 import io.questdb.MessageBus;
+import io.questdb.cairo.parquet.PartitionDecoder;
 import io.questdb.cairo.sql.StaticSymbolTable;
 import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.cairo.vm.MemoryCMRCodecImpl;
+import io.questdb.cairo.vm.MemoryCMRDecodedImpl;
+import io.questdb.cairo.vm.MemoryCMRSharedImpl;
+import io.questdb.cairo.vm.MmapCache;
 import io.questdb.cairo.vm.NullMemoryMR;
 import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.cairo.vm.api.MemoryCMR;
 import io.questdb.cairo.vm.api.MemoryMR;
 import io.questdb.cairo.vm.api.MemoryR;
 import io.questdb.log.Log;
@@ -36,6 +43,7 @@ import io.questdb.log.LogFactory;
 import io.questdb.std.*;
 import io.questdb.std.datetime.DateFormat;
 import io.questdb.std.str.CharSink;
+import io.questdb.std.str.LPSZ;
 import io.questdb.std.str.Path;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -66,8 +74,11 @@ public class TableReader implements Closeable, SymbolTableSource {
     private final MemoryMR todoMem = Vm.getMRInstance();
     private final TxnScoreboard txnScoreboard;
     private final ColumnVersionReader columnVersionReader;
+    private final boolean sharedMmapEnabled;
     private int partitionCount;
     private LongList columnTops;
+    // name txn of open column files, tells which columns have to be re-opened when column versions change
+    private LongList columnNameTxns;
     private ObjList<MemoryMR> columns;
     private ObjList<BitmapIndexReader> bitmapIndexes;
     private int columnCount;
@@ -75,6 +86,12 @@ public class TableReader implements Closeable, SymbolTableSource {
     private long rowCount;
     private long txn = TableUtils.INITIAL_TXN;
     private long tempMem8b = Unsafe.malloc(8, MemoryTag.NATIVE_TABLE_READER);
+    // created on first access to partition in Parquet format
+    private PartitionDecoder parquetDecoder;
+    private MemoryCARW parquetDataMem;
+    private MemoryCARW parquetAuxMem;
+    // Parquet file is rewritten when partition is updated, column version tells when mapping is stale
+    private long parquetColumnVersion = -1;
     private boolean txnAcquired = false;
 
     public TableReader(CairoConfiguration configuration, CharSequence tableName) {
@@ -84,6 +101,7 @@ public class TableReader implements Closeable, SymbolTableSource {
     public TableReader(CairoConfiguration configuration, CharSequence tableName, @Nullable MessageBus messageBus) {
         this.configuration = configuration;
         this.ff = configuration.getFilesFacade();
+        this.sharedMmapEnabled = configuration.isReaderSharedMmapEnabled();
         this.tableName = Chars.toString(tableName);
         this.messageBus = messageBus;
         this.path = new Path();
@@ -129,6 +147,8 @@ public class TableReader implements Closeable, SymbolTableSource {
             }
             this.columnTops = new LongList(capacity / 2);
             this.columnTops.setPos(capacity / 2);
+            this.columnNameTxns = new LongList(capacity / 2);
+            this.columnNameTxns.setPos(capacity / 2);
             this.recordCursor.of(this);
         } catch (Throwable e) {
             close();
@@ -151,6 +171,9 @@ public class TableReader implements Closeable, SymbolTableSource {
             Misc.free(todoMem);
             freeColumns();
             freeTempMem();
+            parquetDecoder = Misc.free(parquetDecoder);
+            parquetDataMem = Misc.free(parquetDataMem);
+            parquetAuxMem = Misc.free(parquetAuxMem);
             Misc.free(txnScoreboard);
             Misc.free(path);
             Misc.free(columnVersionReader);
@@ -327,6 +350,45 @@ public class TableReader implements Closeable, SymbolTableSource {
         return tempMem8b != 0;
     }
 
+    /**
+     * Maps zone map of the column in the given partition. Partition must be open. Zone map is not
+     * mapped when partition does not have one or when it describes different number of rows than
+     * reader sees in the partition.
+     *
+     * @param partitionIndex index of open partition
+     * @param columnIndex    reader column index
+     * @param mem            memory to map zone map file to, it is closed when zone map is not available
+     * @return true when zone map is mapped
+     */
+    public boolean openZoneMap(int partitionIndex, int columnIndex, MemoryCMR mem) {
+        mem.close();
+        final long partitionRowCount = getPartitionRowCount(partitionIndex);
+        if (partitionRowCount < 1 || !PartitionBy.isPartitioned(partitionBy)) {
+            return false;
+        }
+        try {
+            final int offset = partitionIndex * PARTITIONS_SLOT_SIZE;
+            final long partitionTimestamp = openPartitionInfo.getQuick(offset);
+            final long partitionNameTxn = openPartitionInfo.getQuick(offset + PARTITIONS_SLOT_OFFSET_NAME_TXN);
+            final long columnNameTxn = columnVersionReader.getColumnNameTxn(partitionTimestamp, metadata.getWriterIndex(columnIndex));
+            Path path = pathGenPartitioned(partitionIndex);
+            TableUtils.txnPartitionConditionally(path, partitionNameTxn);
+            TableUtils.zmFile(path, metadata.getColumnName(columnIndex), columnNameTxn);
+            final long fileSize = ff.length(path);
+            if (fileSize < ZoneMaps.HEADER_SIZE) {
+                return false;
+            }
+            mem.of(ff, path, fileSize, fileSize, MemoryTag.MMAP_TABLE_READER);
+            if (ZoneMaps.isValid(mem.getPageAddress(0), mem.size(), partitionRowCount)) {
+                return true;
+            }
+            mem.close();
+            return false;
+        } finally {
+            path.trimTo(rootLen);
+        }
+    }
+
     public long openPartition(int partitionIndex) {
         final long size = getPartitionRowCount(partitionIndex);
         if (size != -1) {
@@ -365,10 +427,19 @@ public class TableReader implements Closeable, SymbolTableSource {
                 final long openPartitionColumnVersion = openPartitionInfo.getQuick(offset + PARTITIONS_SLOT_OFFSET_COLUMN_VERSION);
 
                 if (!forceTruncate) {
-                    if (openPartitionNameTxn == txPartitionNameTxn && openPartitionColumnVersion == txPartitionColumnVersion) {
-                        if (openPartitionSize != newPartitionSize) {
+                    if (openPartitionNameTxn == txPartitionNameTxn) {
+                        if (openPartitionColumnVersion != txPartitionColumnVersion) {
                             if (openPartitionSize > -1L) {
-                                reloadPartition(partitionIndex, newPartitionSize, txPartitionNameTxn);
+                                // only columns that have new files are re-opened, the rest is extended to the new size
+                                reloadPartition(partitionIndex, newPartitionSize, txPartitionNameTxn, true);
+                                this.openPartitionInfo.setQuick(offset + PARTITIONS_SLOT_OFFSET_SIZE, newPartitionSize);
+                                LOG.debug().$("updated partition columns [partition=").$(openPartitionTimestamp).I$();
+                            }
+                            this.openPartitionInfo.setQuick(offset + PARTITIONS_SLOT_OFFSET_COLUMN_VERSION, txPartitionColumnVersion);
+                            changed = true;
+                        } else if (openPartitionSize != newPartitionSize) {
+                            if (openPartitionSize > -1L) {
+                                reloadPartition(partitionIndex, newPartitionSize, txPartitionNameTxn, false);
                                 this.openPartitionInfo.setQuick(offset + PARTITIONS_SLOT_OFFSET_SIZE, newPartitionSize);
                                 LOG.debug().$("updated partition size [partition=").$(openPartitionTimestamp).I$();
                             }
@@ -513,6 +584,7 @@ public class TableReader implements Closeable, SymbolTableSource {
             int fromColumnIndex,
             ObjList<MemoryMR> toColumns,
             LongList toColumnTops,
+            LongList toColumnNameTxns,
             ObjList<BitmapIndexReader> toIndexReaders,
             int toBase,
             int toColumnIndex
@@ -523,6 +595,7 @@ public class TableReader implements Closeable, SymbolTableSource {
         toColumns.getAndSetQuick(toIndex, columns.getAndSetQuick(fromIndex, null));
         toColumns.getAndSetQuick(toIndex + 1, columns.getAndSetQuick(fromIndex + 1, null));
         toColumnTops.getAndSetQuick(toBase / 2 + toColumnIndex, columnTops.getQuick(fromBase / 2 + fromColumnIndex));
+        toColumnNameTxns.getAndSetQuick(toBase / 2 + toColumnIndex, columnNameTxns.getQuick(fromBase / 2 + fromColumnIndex));
         toIndexReaders.getAndSetQuick(toIndex, bitmapIndexes.getAndSetQuick(fromIndex, null));
         toIndexReaders.getAndSetQuick(toIndex + 1, bitmapIndexes.getAndSetQuick(fromIndex + 1, null));
     }
@@ -585,11 +658,13 @@ public class TableReader implements Closeable, SymbolTableSource {
         int capacity = partitionCount << columnCountShl;
         final ObjList<MemoryMR> columns = new ObjList<>(capacity + 2);
         final LongList columnTops = new LongList(capacity / 2);
+        final LongList columnNameTxns = new LongList(capacity / 2);
         final ObjList<BitmapIndexReader> indexReaders = new ObjList<>(capacity);
         columns.setPos(capacity + 2);
         columns.setQuick(0, NullMemoryMR.INSTANCE);
         columns.setQuick(1, NullMemoryMR.INSTANCE);
         columnTops.setPos(capacity / 2);
+        columnNameTxns.setPos(capacity / 2);
         indexReaders.setPos(capacity + 2);
         final long pIndexBase = pTransitionIndex + 8;
         int iterateCount = Math.max(columnCount, this.columnCount);
@@ -600,7 +675,7 @@ public class TableReader implements Closeable, SymbolTableSource {
 
             try {
                 long partitionRowCount = openPartitionInfo.getQuick(partitionIndex * PARTITIONS_SLOT_SIZE + PARTITIONS_SLOT_OFFSET_SIZE);
-                if (partitionRowCount > -1L && (partitionRowCount = closeRewrittenPartitionFiles(partitionIndex, base, path)) > -1L) {
+                if (partitionRowCount > -1L && (partitionRowCount = closeRewrittenPartitionFiles(partitionIndex, oldBase, path)) > -1L) {
                     for (int i = 0; i < iterateCount; i++) {
                         final int action = Unsafe.getUnsafe().getInt(pIndexBase + i * 8L);
                         final int copyFrom = Unsafe.getUnsafe().getInt(pIndexBase + i * 8L + 4);
@@ -610,10 +685,10 @@ public class TableReader implements Closeable, SymbolTableSource {
                         }
 
                         if (copyFrom > -1) {
-                            copyColumns(oldBase, copyFrom, columns, columnTops, indexReaders, base, i);
+                            copyColumns(oldBase, copyFrom, columns, columnTops, columnNameTxns, indexReaders, base, i);
                         } else if (copyFrom != Integer.MIN_VALUE) {
                             // new instance
-                            reloadColumnAt(partitionIndex, path, columns, columnTops, indexReaders, base, i, partitionRowCount);
+                            reloadColumnAt(partitionIndex, path, columns, columnTops, columnNameTxns, indexReaders, base, i, partitionRowCount);
                         }
                     }
                 }
@@ -623,6 +698,7 @@ public class TableReader implements Closeable, SymbolTableSource {
         }
         this.columns = columns;
         this.columnTops = columnTops;
+        this.columnNameTxns = columnNameTxns;
         this.columnCountShl = columnCountShl;
         this.bitmapIndexes = indexReaders;
     }
@@ -640,6 +716,12 @@ public class TableReader implements Closeable, SymbolTableSource {
         int baseIndex = getPrimaryColumnIndex(columnBase, 0);
         int newBaseIndex = getPrimaryColumnIndex(getColumnBase(partitionIndex + 1), 0);
         columns.remove(baseIndex, newBaseIndex - 1);
+        bitmapIndexes.remove(baseIndex, newBaseIndex - 1);
+        // column tops and name txns of the following partitions must stay aligned with their columns
+        final int topBase = columnBase / 2;
+        final int topSlotSize = getColumnBase(1) / 2;
+        columnTops.removeIndexBlock(topBase, topSlotSize);
+        columnNameTxns.removeIndexBlock(topBase, topSlotSize);
         openPartitionInfo.removeIndexBlock(offset, PARTITIONS_SLOT_SIZE);
 
         LOG.info().$("deleted partition [path=").$(path).$(",timestamp=").$ts(partitionTimestamp).I$();
@@ -689,7 +771,7 @@ public class TableReader implements Closeable, SymbolTableSource {
         return openPartitionInfo.getQuick(partitionIndex * PARTITIONS_SLOT_SIZE + PARTITIONS_SLOT_OFFSET_SIZE);
     }
 
-    long getTxn() {
+    public long getTxn() {
         return txn;
     }
 
@@ -726,6 +808,8 @@ public class TableReader implements Closeable, SymbolTableSource {
         bitmapIndexes.set(idx, columnBase + columnSlotSize, null);
         columnTops.insert(topBase, topSlotSize);
         columnTops.seed(topBase, topSlotSize, 0);
+        columnNameTxns.insert(topBase, topSlotSize);
+        columnNameTxns.seed(topBase, topSlotSize, -1);
 
         final int offset = partitionIndex * PARTITIONS_SLOT_SIZE;
         openPartitionInfo.insert(offset, PARTITIONS_SLOT_SIZE);
@@ -741,6 +825,18 @@ public class TableReader implements Closeable, SymbolTableSource {
         return symbolMapReaders.getQuick(columnIndex).isCached();
     }
 
+    private boolean isColumnFileChanged(long partitionTimestamp, int columnBase, int columnIndex) {
+        final int writerIndex = metadata.getWriterIndex(columnIndex);
+        final int versionRecordIndex = columnVersionReader.getRecordIndex(partitionTimestamp, writerIndex);
+        final long columnTop = versionRecordIndex > -1L ? columnVersionReader.getColumnTopByIndex(versionRecordIndex) : 0L;
+        long columnTxn = versionRecordIndex > -1L ? columnVersionReader.getColumnNameTxnByIndex(versionRecordIndex) : -1L;
+        if (columnTxn == -1L) {
+            columnTxn = columnVersionReader.getDefaultColumnNameTxn(writerIndex);
+        }
+        final int slot = columnBase / 2 + columnIndex;
+        return columnTops.getQuick(slot) != columnTop || columnNameTxns.getQuick(slot) != columnTxn;
+    }
+
     private boolean isMetaFileMissingFileSystemError(CairoException ex) {
         int errno = ex.getErrno();
         return errno == CairoException.ERRNO_FILE_DOES_NOT_EXIST || errno == CairoException.METADATA_VALIDATION;
@@ -778,6 +874,58 @@ public class TableReader implements Closeable, SymbolTableSource {
         }
     }
 
+    private void openCompressedMemory(
+            LPSZ path,
+            ObjList<MemoryMR> columns,
+            int primaryIndex,
+            MemoryMR mem,
+            long columnSize
+    ) {
+        if (!(mem instanceof MemoryCMRCodecImpl)) {
+            if (mem != NullMemoryMR.INSTANCE) {
+                Misc.free(mem);
+            }
+            mem = new MemoryCMRCodecImpl();
+            columns.setQuick(primaryIndex, mem);
+        }
+        mem.of(ff, path, columnSize, columnSize, MemoryTag.MMAP_TABLE_READER);
+    }
+
+    /**
+     * Opens fixed size column, which can be stored either as data file or as compressed file.
+     * Writer never converts files of committed column version, it writes new column version instead.
+     */
+    private void openFixedColumn(
+            Path path,
+            int plen,
+            CharSequence name,
+            long columnTxn,
+            int codec,
+            ObjList<MemoryMR> columns,
+            int primaryIndex,
+            MemoryMR mem,
+            long columnSize
+    ) {
+        if (codec != ColumnCodecs.NONE && ff.exists(TableUtils.zFile(path.trimTo(plen), name, columnTxn))) {
+            openCompressedMemory(path, columns, primaryIndex, mem, columnSize);
+        } else {
+            TableUtils.dFile(path.trimTo(plen), name, columnTxn);
+            openOrCreateMemory(path, columns, primaryIndex, mem, columnSize);
+        }
+    }
+
+    private void openDecodedMemory(ObjList<MemoryMR> columns, int index, MemoryCARW decoded) {
+        MemoryMR mem = columns.getQuick(index);
+        if (!(mem instanceof MemoryCMRDecodedImpl)) {
+            if (mem != NullMemoryMR.INSTANCE) {
+                Misc.free(mem);
+            }
+            mem = new MemoryCMRDecodedImpl();
+            columns.setQuick(index, mem);
+        }
+        ((MemoryCMRDecodedImpl) mem).of(ff, decoded.addressOf(0), decoded.getAppendOffset());
+    }
+
     @NotNull
     private MemoryMR openOrCreateMemory(
             Path path,
@@ -786,7 +934,17 @@ public class TableReader implements Closeable, SymbolTableSource {
             MemoryMR mem,
             long columnSize
     ) {
-        if (mem != null && mem != NullMemoryMR.INSTANCE) {
+        if (mem instanceof MemoryCMRCodecImpl || mem instanceof MemoryCMRDecodedImpl) {
+            Misc.free(mem);
+            mem = null;
+        }
+        if (sharedMmapEnabled) {
+            if (!(mem instanceof MemoryCMRSharedImpl)) {
+                mem = new MemoryCMRSharedImpl(MmapCache.INSTANCE);
+                columns.setQuick(primaryIndex, mem);
+            }
+            ((MemoryCMRSharedImpl) mem).of(ff, path, columnSize, MemoryTag.MMAP_TABLE_READER, metadata.getId(), txFile.getTruncateVersion());
+        } else if (mem != null && mem != NullMemoryMR.INSTANCE) {
             mem.of(ff, path, columnSize, columnSize, MemoryTag.MMAP_TABLE_READER);
         } else {
             mem = Vm.getMRInstance(ff, path, columnSize, MemoryTag.MMAP_TABLE_READER);
@@ -795,6 +953,58 @@ public class TableReader implements Closeable, SymbolTableSource {
         return mem;
     }
 
+    private void openParquetColumn(
+            Path path,
+            int columnIndex,
+            int writerIndex,
+            int columnType,
+            long columnTop,
+            long partitionRowCount,
+            ObjList<MemoryMR> columns,
+            int primaryIndex
+    ) {
+        if (parquetDecoder == null) {
+            parquetDecoder = new PartitionDecoder(MemoryTag.MMAP_TABLE_READER);
+            parquetDataMem = Vm.getCARWInstance(configuration.getDataAppendPageSize(), Integer.MAX_VALUE, MemoryTag.NATIVE_TABLE_READER);
+            parquetAuxMem = Vm.getCARWInstance(configuration.getDataAppendPageSize(), Integer.MAX_VALUE, MemoryTag.NATIVE_TABLE_READER);
+        }
+        if (parquetColumnVersion != txFile.getColumnVersion()) {
+            parquetDecoder.clear();
+            parquetColumnVersion = txFile.getColumnVersion();
+        }
+        parquetDecoder.of(ff, path);
+        final int fileColumnIndex = parquetDecoder.findColumn(writerIndex);
+        if (fileColumnIndex < 0 || parquetDecoder.getRowCount() < partitionRowCount) {
+            throw CairoException.instance(0).put("partition parquet file does not match table [path=").put(path)
+                    .put(", column=").put(metadata.getColumnName(columnIndex))
+                    .put(", fileRowCount=").put(parquetDecoder.getRowCount())
+                    .put(", partitionRowCount=").put(partitionRowCount)
+                    .put(']');
+        }
+        final boolean varSize = ColumnType.isVariableLength(columnType);
+        if (ColumnType.isSymbol(columnType)) {
+            // partitions are reloaded ahead of symbol counts, file may have values
+            // added by the same transaction
+            reloadSymbolMapCounts();
+        }
+        parquetDataMem.jumpTo(0);
+        parquetAuxMem.jumpTo(0);
+        parquetDecoder.decodeColumn(
+                fileColumnIndex,
+                columnType,
+                columnTop,
+                ColumnType.isSymbol(columnType) ? symbolMapReaders.getQuick(columnIndex) : null,
+                parquetDataMem,
+                varSize ? parquetAuxMem : null
+        );
+        openDecodedMemory(columns, primaryIndex, parquetDataMem);
+        if (varSize) {
+            openDecodedMemory(columns, primaryIndex + 1, parquetAuxMem);
+        } else {
+            Misc.free(columns.getAndSetQuick(primaryIndex + 1, null));
+        }
+    }
+
     private long openPartition0(int partitionIndex) {
         if (txFile.getPartitionCount() < 2 && txFile.getTransientRowCount() == 0) {
             // Empty single partition. Don't check that directory exists on the disk
@@ -862,6 +1072,7 @@ public class TableReader implements Closeable, SymbolTableSource {
                     path,
                     this.columns,
                     this.columnTops,
+                    this.columnNameTxns,
                     this.bitmapIndexes,
                     columnBase,
                     i,
@@ -946,7 +1157,7 @@ public class TableReader implements Closeable, SymbolTableSource {
 
                         if (openPartitionNameTxn == txPartitionNameTxn) {
                             if (openPartitionSize != txPartitionSize) {
-                                reloadPartition(partitionIndex, txPartitionSize, txPartitionNameTxn);
+                                reloadPartition(partitionIndex, txPartitionSize, txPartitionNameTxn, false);
                                 this.openPartitionInfo.setQuick(offset + PARTITIONS_SLOT_OFFSET_SIZE, txPartitionSize);
                                 LOG.debug().$("updated partition size [partition=").$(openPartitionInfo.getQuick(offset)).I$();
                             }
@@ -995,6 +1206,7 @@ public class TableReader implements Closeable, SymbolTableSource {
             Path path,
             ObjList<MemoryMR> columns,
             LongList columnTops,
+            LongList columnNameTxns,
             ObjList<BitmapIndexReader> indexReaders,
             int columnBase,
             int columnIndex,
@@ -1029,21 +1241,30 @@ public class TableReader implements Closeable, SymbolTableSource {
             if (partitionRowCount > 0 && (versionRecordIndex > -1L || columnVersionReader.getColumnTopPartitionTimestamp(writerIndex) <= partitionTimestamp)) {
                 final int columnType = metadata.getColumnType(columnIndex);
 
-                if (ColumnType.isVariableLength(columnType)) {
-                    long columnSize = columnRowCount * 8L + 8L;
-                    TableUtils.iFile(path.trimTo(plen), name, columnTxn);
-                    mem2 = openOrCreateMemory(path, columns, secondaryIndex, mem2, columnSize);
-                    columnSize = mem2.getLong(columnRowCount * 8L);
-                    TableUtils.dFile(path.trimTo(plen), name, columnTxn);
-                    openOrCreateMemory(path, columns, primaryIndex, mem1, columnSize);
-                } else {
-                    long columnSize = columnRowCount << ColumnType.pow2SizeOf(columnType);
-                    TableUtils.dFile(path.trimTo(plen), name, columnTxn);
-                    openOrCreateMemory(path, columns, primaryIndex, mem1, columnSize);
-                    Misc.free(columns.getAndSetQuick(secondaryIndex, null));
+                // partition converted to Parquet has no native files apart from designated timestamp,
+                // native files take precedence, writer may be converting partition back to native format
+                try {
+                    if (ColumnType.isVariableLength(columnType)) {
+                        long columnSize = columnRowCount * 8L + 8L;
+                        TableUtils.iFile(path.trimTo(plen), name, columnTxn);
+                        mem2 = openOrCreateMemory(path, columns, secondaryIndex, mem2, columnSize);
+                        columnSize = mem2.getLong(columnRowCount * 8L);
+                        TableUtils.dFile(path.trimTo(plen), name, columnTxn);
+                        openOrCreateMemory(path, columns, primaryIndex, columns.getQuick(primaryIndex), columnSize);
+                    } else {
+                        long columnSize = columnRowCount << ColumnType.pow2SizeOf(columnType);
+                        openFixedColumn(path, plen, name, columnTxn, metadata.getColumnCodec(columnIndex), columns, primaryIndex, mem1, columnSize);
+                        Misc.free(columns.getAndSetQuick(secondaryIndex, null));
+                    }
+                } catch (CairoException e) {
+                    if (!PartitionDecoder.exists(ff, path.trimTo(plen))) {
+                        throw e;
+                    }
+                    openParquetColumn(path, columnIndex, writerIndex, columnType, columnTop, partitionRowCount, columns, primaryIndex);
                 }
 
                 columnTops.setQuick(columnBase / 2 + columnIndex, columnTop);
+                columnNameTxns.setQuick(columnBase / 2 + columnIndex, columnTxn);
 
                 if (metadata.isColumnIndexed(columnIndex)) {
                     BitmapIndexReader indexReader = indexReaders.getQuick(primaryIndex);
@@ -1132,12 +1353,16 @@ public class TableReader implements Closeable, SymbolTableSource {
     }
 
     /**
-     * Updates boundaries of all columns in partition.
+     * Updates boundaries of all columns in partition. Column files are re-opened only when they
+     * cannot grow or, when partition column version changed, when column version record of the
+     * partition points to different file or column top. Other columns keep their mappings.
      *
-     * @param partitionIndex index of partition
-     * @param rowCount       number of rows in partition
+     * @param partitionIndex       index of partition
+     * @param rowCount             number of rows in partition
+     * @param columnVersionChanged true when column version of the partition is different to the open one
      */
-    private void reloadPartition(int partitionIndex, long rowCount, long openPartitionNameTxn) {
+    private void reloadPartition(int partitionIndex, long rowCount, long openPartitionNameTxn, boolean columnVersionChanged) {
+        final long partitionTimestamp = openPartitionInfo.getQuick(partitionIndex * PARTITIONS_SLOT_SIZE);
         Path path = pathGenPartitioned(partitionIndex);
         TableUtils.txnPartitionConditionally(path, openPartitionNameTxn);
         try {
@@ -1146,12 +1371,19 @@ public class TableReader implements Closeable, SymbolTableSource {
             for (int i = 0; i < columnCount; i++) {
                 final int index = getPrimaryColumnIndex(columnBase, i);
                 final MemoryMR mem1 = columns.getQuick(index);
-                if (mem1 instanceof NullMemoryMR) {
+                // decoded Parquet column cannot grow, it has to be re-read; compressed column
+                // file is never changed by writer, it is re-read only when column version changes
+                if (
+                        mem1 instanceof NullMemoryMR
+                                || mem1 instanceof MemoryCMRDecodedImpl
+                                || (columnVersionChanged && isColumnFileChanged(partitionTimestamp, columnBase, i))
+                ) {
                     reloadColumnAt(
                             partitionIndex,
                             path,
                             columns,
                             columnTops,
+                            columnNameTxns,
                             bitmapIndexes,
                             columnBase,
                             i,
@@ -1249,6 +1481,7 @@ public class TableReader implements Closeable, SymbolTableSource {
                                         path,
                                         columns,
                                         columnTops,
+                                        columnNameTxns,
                                         bitmapIndexes,
                                         base,
                                         i,
@@ -1256,7 +1489,7 @@ public class TableReader implements Closeable, SymbolTableSource {
                                 );
                             }
                         } else if (copyFrom > -1) {
-                            copyColumns(base, copyFrom, columns, columnTops, bitmapIndexes, base, i);
+                            copyColumns(base, copyFrom, columns, columnTops, columnNameTxns, bitmapIndexes, base, i);
                         } else if (copyFrom != Integer.MIN_VALUE) {
                             // new instance
                             reloadColumnAt(
@@ -1264,6 +1497,7 @@ public class TableReader implements Closeable, SymbolTableSource {
                                     path,
                                     columns,
                                     columnTops,
+                                    columnNameTxns,
                                     bitmapIndexes,
                                     base,
                                     i,
@@ -85,6 +85,7 @@ public class TableReaderMetadata extends BaseRecordMetadata implements Closeable
             int columnType = TableUtils.getColumnType(metaMem, metaIndex);
             boolean isIndexed = TableUtils.isColumnIndexed(metaMem, metaIndex);
             int indexBlockCapacity = TableUtils.getIndexBlockCapacity(metaMem, metaIndex);
+            int codec = TableUtils.getColumnCodec(metaMem, metaIndex);
             TableColumnMetadata existing = null;
             String newName;
 
@@ -109,6 +110,7 @@ public class TableReaderMetadata extends BaseRecordMetadata implements Closeable
                         || existing == null
                         || existing.isIndexed() != isIndexed
                         || existing.getIndexValueBlockCapacity() != indexBlockCapacity
+                        || existing.getCodec() != codec
                 ) {
                     columnMetadata.setQuick(existingIndex - shiftLeft,
                             new TableColumnMetadata(
@@ -119,7 +121,8 @@ public class TableReaderMetadata extends BaseRecordMetadata implements Closeable
                                     indexBlockCapacity,
                                     true,
                                     null,
-                                    metaIndex
+                                    metaIndex,
+                                    codec
                             )
                     );
                 } else if (shiftLeft > 0) {
@@ -237,7 +240,8 @@ public class TableReaderMetadata extends BaseRecordMetadata implements Closeable
                                     TableUtils.getIndexBlockCapacity(metaMem, i),
                                     true,
                                     null,
-                                    i
+                                    i,
+                                    TableUtils.getColumnCodec(metaMem, i)
                             )
                     );
                     if (i == timestampIndex) {
@@ -31,6 +31,10 @@ public interface TableStructure {
 
     int getColumnType(int columnIndex);
 
+    default int getColumnCodec(int columnIndex) {
+        return ColumnCodecs.NONE;
+    }
+
     long getColumnHash(int columnIndex);
 
     int getIndexBlockCapacity(int columnIndex);
@@ -54,6 +54,8 @@ public final class TableUtils {
     public static final String DETACHED_DIR_MARKER = ".detached";
     public static final String TAB_INDEX_FILE_NAME = "_tab_index.d";
     public static final String SNAPSHOT_META_FILE_NAME = "_snapshot";
+    public static final String WAL_NAME_BASE = "wal";
+    public static final String SEQ_DIR = "txn_seq";
     public static final int INITIAL_TXN = 0;
     public static final int NULL_LEN = -1;
     public static final int ANY_TABLE_ID = -1;
@@ -67,6 +69,8 @@ public final class TableUtils {
     public static final long META_OFFSET_STRUCTURE_VERSION = 32; // LONG
     public static final String FILE_SUFFIX_I = ".i";
     public static final String FILE_SUFFIX_D = ".d";
+    public static final String FILE_SUFFIX_Z = ".z";
+    public static final String FILE_SUFFIX_ZM = ".zm";
     public static final int LONGS_PER_TX_ATTACHED_PARTITION = 4;
     public static final int LONGS_PER_TX_ATTACHED_PARTITION_MSB = Numbers.msb(LONGS_PER_TX_ATTACHED_PARTITION);
     public static final String DEFAULT_PARTITION_NAME = "default";
@@ -101,6 +105,8 @@ public final class TableUtils {
     public static final long TX_OFFSET_PARTITION_TABLE_VERSION_64 = TX_OFFSET_DATA_VERSION_64 + 8;
     public static final long TX_OFFSET_COLUMN_VERSION_64 = TX_OFFSET_PARTITION_TABLE_VERSION_64 + 8;
     public static final long TX_OFFSET_TRUNCATE_VERSION_64 = TX_OFFSET_COLUMN_VERSION_64 + 8;
+    // last write-ahead log transaction applied to the table
+    public static final long TX_OFFSET_SEQ_TXN_64 = TX_OFFSET_TRUNCATE_VERSION_64 + 8;
     public static final long TX_OFFSET_MAP_WRITER_COUNT_32 = 128;
     public static final int TX_RECORD_HEADER_SIZE = (int) TX_OFFSET_MAP_WRITER_COUNT_32 + Integer.BYTES;
 
@@ -130,6 +136,9 @@ public final class TableUtils {
     static final long META_OFFSET_PARTITION_BY = 4;
     static final int META_FLAG_BIT_INDEXED = 1;
     static final int META_FLAG_BIT_SEQUENTIAL = 1 << 1;
+    // column codec id is stored in the second byte of column flags
+    static final int META_FLAG_CODEC_SHIFT = 8;
+    static final long META_FLAG_CODEC_MASK = 0xffL << META_FLAG_CODEC_SHIFT;
     static final String TODO_FILE_NAME = "_todo_";
     private static final int MIN_SYMBOL_CAPACITY = 2;
     private static final int MAX_SYMBOL_CAPACITY = Numbers.ceilPow2(Integer.MAX_VALUE);
@@ -219,7 +228,7 @@ public final class TableUtils {
                     flags |= META_FLAG_BIT_SEQUENTIAL;
                 }
 
-                mem.putLong(flags);
+                mem.putLong(setColumnCodec(flags, structure.getColumnCodec(i)));
                 mem.putInt(structure.getIndexBlockCapacity(i));
                 mem.putLong(structure.getColumnHash(i));
                 // reserved
@@ -347,7 +356,7 @@ public final class TableUtils {
         txMem.putInt(TX_BASE_OFFSET_A_32, TX_BASE_HEADER_SIZE);
         txMem.putInt(TX_BASE_OFFSET_SYMBOLS_SIZE_A_32, symbolMapCount * 8);
         txMem.putInt(TX_BASE_OFFSET_PARTITIONS_SIZE_A_32, 0);
-        resetTxn(txMem, TX_BASE_HEADER_SIZE, symbolMapCount, txn, dataVersion, partitionTableVersion, structureVersion, columnVersion, truncateVersion);
+        resetTxn(txMem, TX_BASE_HEADER_SIZE, symbolMapCount, txn, dataVersion, partitionTableVersion, structureVersion, columnVersion, truncateVersion, 0);
         txMem.setTruncateSize(TX_BASE_HEADER_SIZE + TX_RECORD_HEADER_SIZE);
     }
 
@@ -424,6 +433,22 @@ public final class TableUtils {
         return getSymbolWriterIndexOffset(index) + Integer.BYTES;
     }
 
+    public static LPSZ zFile(Path path, CharSequence columnName, long columnTxn) {
+        path.concat(columnName).put(FILE_SUFFIX_Z);
+        if (columnTxn > COLUMN_NAME_TXN_NONE) {
+            path.put('.').put(columnTxn);
+        }
+        return path.$();
+    }
+
+    public static LPSZ zmFile(Path path, CharSequence columnName, long columnTxn) {
+        path.concat(columnName).put(FILE_SUFFIX_ZM);
+        if (columnTxn > COLUMN_NAME_TXN_NONE) {
+            path.put('.').put(columnTxn);
+        }
+        return path.$();
+    }
+
     public static LPSZ iFile(Path path, CharSequence columnName, long columnTxn) {
         path.concat(columnName).put(FILE_SUFFIX_I);
         if (columnTxn > COLUMN_NAME_TXN_NONE) {
@@ -571,6 +596,13 @@ public final class TableUtils {
         path.put("-x-").put(txn);
     }
 
+    /**
+     * @return true when directory of the table holds write-ahead log rather than a partition
+     */
+    public static boolean isWalDir(CharSequence dirName) {
+        return Chars.startsWith(dirName, WAL_NAME_BASE) || Chars.equals(dirName, SEQ_DIR);
+    }
+
     public static long openFileRWOrFail(FilesFacade ff, LPSZ path, long opts) {
         return openRW(ff, path, LOG, opts);
     }
@@ -638,7 +670,7 @@ public final class TableUtils {
         mem.jumpTo(40);
     }
 
-    public static void resetTxn(MemoryMW txMem, long baseOffset, int symbolMapCount, long txn, long dataVersion, long partitionTableVersion, long structureVersion, long columnVersion, long truncateVersion) {
+    public static void resetTxn(MemoryMW txMem, long baseOffset, int symbolMapCount, long txn, long dataVersion, long partitionTableVersion, long structureVersion, long columnVersion, long truncateVersion, long seqTxn) {
         // txn to let readers know table is being reset
         txMem.putLong(baseOffset + TX_OFFSET_TXN_64, txn);
 
@@ -660,6 +692,8 @@ public final class TableUtils {
         txMem.putLong(baseOffset + TX_OFFSET_COLUMN_VERSION_64, columnVersion);
         // truncate version
         txMem.putLong(baseOffset + TX_OFFSET_TRUNCATE_VERSION_64, truncateVersion);
+        // last applied WAL transaction
+        txMem.putLong(baseOffset + TX_OFFSET_SEQ_TXN_64, seqTxn);
 
         txMem.putInt(baseOffset + TX_OFFSET_MAP_WRITER_COUNT_32, symbolMapCount);
         for (int i = 0; i < symbolMapCount; i++) {
@@ -881,6 +915,14 @@ public final class TableUtils {
         }
     }
 
+    static int getColumnCodec(MemoryR metaMem, int columnIndex) {
+        return (int) ((getColumnFlags(metaMem, columnIndex) & META_FLAG_CODEC_MASK) >>> META_FLAG_CODEC_SHIFT);
+    }
+
+    static long setColumnCodec(long flags, int codec) {
+        return (flags & ~META_FLAG_CODEC_MASK) | ((long) codec << META_FLAG_CODEC_SHIFT);
+    }
+
     static long getColumnFlags(MemoryR metaMem, int columnIndex) {
         return metaMem.getLong(META_OFFSET_COLUMN_TYPES + columnIndex * META_COLUMN_DATA_SIZE + 4);
     }
@@ -27,6 +27,9 @@ package io.questdb.cairo;
 import io.questdb.MessageBus;
 import io.questdb.MessageBusImpl;
 import io.questdb.Metrics;
+import io.questdb.cairo.parquet.PartitionDecoder;
+import io.questdb.cairo.parquet.PartitionEncoder;
+import io.questdb.cairo.parquet.ParquetFormat;
 import io.questdb.cairo.sql.AsyncWriterCommand;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
 import io.questdb.cairo.sql.RecordMetadata;
@@ -64,7 +67,7 @@ import static io.questdb.cairo.TableUtils.*;
 import static io.questdb.cairo.sql.AsyncWriterCommand.Error.*;
 import static io.questdb.tasks.TableWriterTask.*;
 
-public class TableWriter implements Closeable {
+public class TableWriter implements TableWriterAPI, Closeable {
     public static final int TIMESTAMP_MERGE_ENTRY_BYTES = Long.BYTES * 2;
     public static final int O3_BLOCK_NONE = -1;
     public static final int O3_BLOCK_O3 = 1;
@@ -76,6 +79,7 @@ public class TableWriter implements Closeable {
     private static final int ROW_ACTION_O3 = 3;
     private static final int ROW_ACTION_SWITCH_PARTITION = 4;
     private static final Log LOG = LogFactory.getLog(TableWriter.class);
+    private static final String TMP_FILE_SUFFIX = ".tmp";
     private static final CharSequenceHashSet IGNORED_FILES = new CharSequenceHashSet();
     private static final Runnable NOOP = () -> {
     };
@@ -118,6 +122,7 @@ public class TableWriter implements Closeable {
     private final PartitionBy.PartitionCeilMethod partitionCeilMethod;
     private final int defaultCommitMode;
     private final int o3ColumnMemorySize;
+    private final int zoneMapBlockSize;
     private final ObjList<Runnable> nullSetters;
     private final ObjList<Runnable> o3NullSetters;
     private final ObjList<MemoryCARW> o3Columns;
@@ -131,6 +136,16 @@ public class TableWriter implements Closeable {
     private final MemoryMARW todoMem = Vm.getMARWInstance();
     private final TxWriter txWriter;
     private final LongList o3PartitionRemoveCandidates = new LongList();
+    // timestamps of partitions to be compressed once current transaction is committed
+    private final LongList codecPartitions = new LongList();
+    // column versions replaced by codec in current transaction, quads of column index, column name txn,
+    // partition timestamp and partition name txn; files are purged once new versions are committed
+    private final LongList codecColumnVersions = new LongList();
+    private final LongList codecPurgeColumnVersions = new LongList();
+    // timestamps of Parquet partitions converted to native format to be modified, they are converted back after commit
+    private final LongList parquetPartitions = new LongList();
+    // timestamps of partitions to have zone maps built once current transaction is committed
+    private final LongList zoneMapPartitions = new LongList();
     private final ObjectPool<O3MutableAtomicInteger> o3ColumnCounters = new ObjectPool<>(O3MutableAtomicInteger::new, 64);
     private final ObjectPool<O3Basket> o3BasketPool = new ObjectPool<>(O3Basket::new, 64);
     private final TxnScoreboard txnScoreboard;
@@ -165,10 +180,15 @@ public class TableWriter implements Closeable {
     private int columnCount;
     private boolean avoidIndexOnCommit = false;
     private long partitionTimestampHi;
+    // partitions were removed together with the active partition, their directories may still be
+    // open by readers, partitions created from now on are versioned to avoid clashing with them
+    private boolean partitionsRemoved;
     private long masterRef = 0;
     private long o3MasterRef = -1;
     private boolean removeDirOnCancelRow = true;
     private long tempMem16b = Unsafe.malloc(16, MemoryTag.NATIVE_TABLE_WRITER);
+    private PartitionEncoder parquetEncoder;
+    private PartitionDecoder parquetDecoder;
     private int metaSwapIndex;
     private int metaPrevIndex;
     private final FragileCode RECOVER_FROM_TODO_WRITE_FAILURE = this::recoverFromTodoWriteFailure;
@@ -246,6 +266,7 @@ public class TableWriter implements Closeable {
         this.o3PartitionUpdateSubSeq = new SCSequence();
         o3PartitionUpdatePubSeq.then(o3PartitionUpdateSubSeq).then(o3PartitionUpdatePubSeq);
         this.o3ColumnMemorySize = configuration.getO3ColumnMemorySize();
+        this.zoneMapBlockSize = configuration.getZoneMapBlockSize();
         this.path = new Path();
         this.path.of(root).concat(tableName);
         this.other = new Path().of(root).concat(tableName);
@@ -628,6 +649,8 @@ public class TableWriter implements Closeable {
                         commit();
                     }
 
+                    // partition detached in Parquet format is attached in native format
+                    convertParquetToNative(timestamp, false);
                     attachPartitionCheckFilesMatchMetadata(ff, path, getMetadata(), partitionSize);
                     long minPartitionTimestamp = Unsafe.getUnsafe().getLong(tempMem16b);
                     long maxPartitionTimestamp = Unsafe.getUnsafe().getLong(tempMem16b + 8);
@@ -650,6 +673,14 @@ public class TableWriter implements Closeable {
 
                     LOG.info().$("partition attached [path=").$(path).$(']').$();
                     rollbackRename = false;
+                    if (!appendPartitionAttached && zoneMapBlockSize > 0) {
+                        zoneMapPartitions.add(timestamp);
+                        buildPendingZoneMaps();
+                    }
+                    if (!appendPartitionAttached && hasCodecColumns()) {
+                        codecPartitions.add(timestamp);
+                        compressPendingPartitions();
+                    }
                 } else {
                     LOG.error().$("cannot detect partition size [path=").$(path).$(",timestampColumn=").$(timestampCol).$(']').$();
                     return PARTITION_EMPTY;
@@ -716,6 +747,7 @@ public class TableWriter implements Closeable {
         }
     }
 
+    @Override
     public void commit() {
         commit(defaultCommitMode);
     }
@@ -724,6 +756,17 @@ public class TableWriter implements Closeable {
         commit(commitMode, 0);
     }
 
+    /**
+     * Commits pending rows along with the sequence number of the last write-ahead log
+     * transaction they came from, so that the log is not applied twice.
+     *
+     * @param seqTxn WAL transaction number
+     */
+    public void commitSeqTxn(long seqTxn) {
+        txWriter.setSeqTxn(seqTxn);
+        commit();
+    }
+
     public void commitWithLag() {
         commit(defaultCommitMode, metadata.getCommitLag());
     }
@@ -736,6 +779,43 @@ public class TableWriter implements Closeable {
         commit(commitMode, metadata.getCommitLag());
     }
 
+    /**
+     * Converts Parquet partition back to native column files.
+     *
+     * @param partitionTimestamp timestamp of the partition
+     */
+    public void convertPartitionToNative(long partitionTimestamp) {
+        checkParquetPartition(partitionTimestamp);
+        commit();
+        convertParquetToNative(partitionTimestamp, true);
+    }
+
+    /**
+     * Converts column files of historic partition to single Parquet file. Designated timestamp is
+     * kept in native format as well, partition remains searchable by timestamp interval without decoding.
+     * Last partition cannot be converted because it is still being appended to.
+     *
+     * @param partitionTimestamp timestamp of the partition
+     */
+    public void convertPartitionToParquet(long partitionTimestamp) {
+        checkParquetPartition(partitionTimestamp);
+        commit();
+        convertNativeToParquet(partitionTimestamp);
+    }
+
+    /**
+     * Converts Parquet partition to native format ahead of in-place modification. Partition
+     * is converted to Parquet again after the next commit.
+     */
+    public void ensureNativePartition(long partitionTimestamp) {
+        if (PartitionBy.isPartitioned(partitionBy)
+                && partitionTimestamp < txWriter.getLastPartitionTimestamp()
+                && txWriter.attachedPartitionsContains(partitionTimestamp)
+                && convertParquetToNative(partitionTimestamp, true)) {
+            parquetPartitions.add(partitionTimestamp);
+        }
+    }
+
     public int getColumnIndex(CharSequence name) {
         int index = metadata.getColumnIndexQuiet(name);
         if (index > -1) {
@@ -831,6 +911,11 @@ public class TableWriter implements Closeable {
         return txWriter.unsafeGetRawMemorySize();
     }
 
+    public long getSeqTxn() {
+        return txWriter.getSeqTxn();
+    }
+
+    @Override
     public long getStructureVersion() {
         return txWriter.getStructureVersion();
     }
@@ -839,6 +924,7 @@ public class TableWriter implements Closeable {
         return symbolMapWriters.getQuick(columnIndex).put(symValue, SymbolValueCountCollector.NOOP);
     }
 
+    @Override
     public String getTableName() {
         return tableName;
     }
@@ -863,6 +949,7 @@ public class TableWriter implements Closeable {
         return (masterRef - committedMasterRef) >> 1;
     }
 
+    @Override
     public UpdateOperator getUpdateOperator() {
         if (updateOperator == null) {
             updateOperator = new UpdateOperator(configuration, messageBus, this);
@@ -878,6 +965,7 @@ public class TableWriter implements Closeable {
         return tempMem16b != 0;
     }
 
+    @Override
     public Row newRow(long timestamp) {
 
         switch (rowAction) {
@@ -933,6 +1021,7 @@ public class TableWriter implements Closeable {
         return row;
     }
 
+    @Override
     public Row newRow() {
         return newRow(0L);
     }
@@ -961,6 +1050,7 @@ public class TableWriter implements Closeable {
                     processAsyncWriterCommand(alterTableStatement, cmd, cursor, commandSubSeq, contextAllowsAnyStructureChanges);
                     break;
                 case CMD_UPDATE_TABLE:
+                case CMD_APPLY_WAL:
                     processAsyncWriterCommand(cmd.getAsyncWriterCommand(), cmd, cursor, commandSubSeq, false);
                     break;
                 default:
@@ -1121,6 +1211,74 @@ public class TableWriter implements Closeable {
         }
     }
 
+    /**
+     * Removes partition the timestamp falls into and all partitions after it. Unlike
+     * {@link #removePartition(long)} this method also removes the active partition, the last of
+     * remaining partitions becomes active and rows can be appended from its max timestamp onwards.
+     * Partitions that are created afterwards are written as new partition versions, so that
+     * directories of removed partitions are left to readers until they are purged.
+     *
+     * @param timestamp timestamp within the first partition to remove
+     * @return false when there is no partition to remove
+     */
+    public boolean removePartitionsFrom(long timestamp) {
+        checkDistressed();
+        if (!PartitionBy.isPartitioned(partitionBy) || txWriter.getMaxTimestamp() == Long.MIN_VALUE) {
+            return false;
+        }
+        if (inTransaction()) {
+            throw CairoException.instance(0).put("cannot remove partitions, table has uncommitted rows [table=").put(tableName).put(']');
+        }
+
+        timestamp = getPartitionLo(timestamp);
+        final long maxTimestamp = txWriter.getMaxTimestamp();
+        if (timestamp > maxTimestamp) {
+            return false;
+        }
+        if (timestamp <= txWriter.getPartitionTimestamp(0)) {
+            truncate();
+            return true;
+        }
+
+        try {
+            freeColumns(false);
+            freeIndexers();
+            o3PartitionRemoveCandidates.clear();
+            txWriter.beginPartitionSizeUpdate();
+            for (int i = txWriter.getPartitionCount() - 1; i > -1; i--) {
+                final long partitionTimestamp = txWriter.getPartitionTimestamp(i);
+                if (partitionTimestamp < timestamp) {
+                    break;
+                }
+                o3PartitionRemoveCandidates.add(partitionTimestamp, txWriter.getPartitionNameTxn(i));
+                txWriter.removeAttachedPartitions(partitionTimestamp);
+            }
+            final int activePartitionIndex = txWriter.getPartitionCount() - 1;
+            final long activePartitionTimestamp = txWriter.getPartitionTimestamp(activePartitionIndex);
+            final long nextMaxTimestamp = readMaxTimestamp(activePartitionTimestamp, txWriter.getPartitionSize(activePartitionIndex));
+            txWriter.finishPartitionSizeUpdate(txWriter.getMinTimestamp(), nextMaxTimestamp);
+            txWriter.bumpTruncateVersion();
+            txWriter.commit(defaultCommitMode, denseSymbolMapWriters);
+            partitionsRemoved = true;
+
+            o3ProcessPartitionRemoveCandidates();
+
+            openPartition(activePartitionTimestamp);
+            populateDenseIndexerList();
+            setAppendPosition(txWriter.getTransientRowCount(), false);
+            rowAction = ROW_ACTION_OPEN_PARTITION;
+            LOG.info().$("removed partitions [table=").$(tableName)
+                    .$(", from=").$ts(timestamp)
+                    .$(", maxTimestamp=").$ts(nextMaxTimestamp)
+                    .I$();
+            return true;
+        } catch (Throwable e) {
+            LOG.critical().$("could not remove partitions [table=").$(tableName).$(", from=").$ts(timestamp).$(", e=").$(e).I$();
+            throwDistressException(e);
+            return false;
+        }
+    }
+
     public void renameColumn(CharSequence currentName, CharSequence newName) {
 
         checkDistressed();
@@ -1308,6 +1466,7 @@ public class TableWriter implements Closeable {
         return model;
     }
 
+    @Override
     public void rollback() {
         checkDistressed();
         if (o3InError || inTransaction()) {
@@ -1321,6 +1480,7 @@ public class TableWriter implements Closeable {
                 rollbackIndexes();
                 rollbackSymbolTables();
                 columnVersionWriter.readUnsafe();
+                rollbackCodecColumnVersions();
                 purgeUnusedPartitions();
                 configureAppendPosition();
                 o3InError = false;
@@ -1340,6 +1500,68 @@ public class TableWriter implements Closeable {
         columnVersionWriter.readUnsafe();
     }
 
+    public void setColumnCodec(CharSequence columnName, int codec) {
+        checkDistressed();
+        final int columnIndex = metadata.getColumnIndexQuiet(columnName);
+        if (columnIndex == -1) {
+            throw CairoException.instance(0).put("column '").put(columnName).put("' does not exist");
+        }
+        if (columnIndex == metadata.getTimestampIndex()) {
+            throw CairoException.instance(0).put("codec is not supported on designated timestamp");
+        }
+        final int columnType = metadata.getColumnType(columnIndex);
+        if (!ColumnCodecs.isSupported(codec, columnType)) {
+            throw CairoException.instance(0)
+                    .put("codec ").put(ColumnCodecs.nameOf(codec))
+                    .put(" is not supported for ").put(ColumnType.nameOf(columnType)).put(" column");
+        }
+
+        commit();
+
+        if (metadata.getColumnCodec(columnIndex) == codec) {
+            return;
+        }
+
+        if (codec == ColumnCodecs.NONE) {
+            // decompressed column versions are committed together with the codec change
+            for (int i = 0, n = txWriter.getPartitionCount(); i < n; i++) {
+                decompressColumn(txWriter.getPartitionTimestamp(i), columnIndex);
+            }
+            codecPartitions.clear();
+        }
+
+        try {
+            long metaSize = copyMetadataAndUpdateVersion();
+            openMetaSwapFileByIndex(ff, ddlMem, path, rootLen, this.metaSwapIndex);
+            try {
+                final long flagsOffset = META_OFFSET_COLUMN_TYPES + (long) columnIndex * META_COLUMN_DATA_SIZE + 4;
+                ddlMem.jumpTo(flagsOffset);
+                ddlMem.putLong(TableUtils.setColumnCodec(getColumnFlags(metaMem, columnIndex), codec));
+                ddlMem.jumpTo(metaSize);
+            } finally {
+                ddlMem.close();
+            }
+
+            finishMetaSwapUpdate();
+            metadata.getColumnQuick(columnIndex).setCodec(codec);
+            clearTodoLog();
+        } finally {
+            ddlMem.close();
+        }
+        purgeCodecColumnVersions();
+
+        if (codec != ColumnCodecs.NONE) {
+            for (int i = 0, n = txWriter.getPartitionCount(); i < n; i++) {
+                codecPartitions.add(txWriter.getPartitionTimestamp(i));
+            }
+            compressPendingPartitions();
+        }
+        LOG.info().$("column codec changed [table=").$(tableName)
+                .$(", column=").$(columnName)
+                .$(", codec=").$(ColumnCodecs.nameOf(codec))
+                .I$();
+    }
+
     public void setExtensionListener(ExtensionListener listener) {
         txWriter.setExtensionListener(listener);
     }
@@ -1501,6 +1723,13 @@ public class TableWriter implements Closeable {
     public void upsertColumnVersion(long partitionTimestamp, int columnIndex, long columnTop) {
         columnVersionWriter.upsert(partitionTimestamp, columnIndex, txWriter.txn, columnTop);
         txWriter.updatePartitionColumnVersion(partitionTimestamp);
+        if (zoneMapBlockSize > 0) {
+            // updated column is written to new file, it gets zone map after commit
+            zoneMapPartitions.add(partitionTimestamp);
+        }
+        if (metadata.getColumnCodec(columnIndex) != ColumnCodecs.NONE) {
+            codecPartitions.add(partitionTimestamp);
+        }
     }
 
     /**
@@ -1700,9 +1929,14 @@ public class TableWriter implements Closeable {
     }
 
     private void attachPartitionCheckFilesMatchFixedColumn(FilesFacade ff, Path path, int columnType, long partitionSize, String columnName, long columnNameTxn) {
+        final int plen = path.length();
         TableUtils.dFile(path, columnName, columnNameTxn);
+        final boolean compressed = !ff.exists(path.$()) && ff.exists(TableUtils.zFile(path.trimTo(plen), columnName, columnNameTxn));
         if (ff.exists(path.$())) {
-            long fileSize = ff.length(path);
+            final long fileSize = compressed
+                    // compressed file header holds number of values
+                    ? TableUtils.readLongAtOffset(ff, path, tempMem16b, 8) << ColumnType.pow2SizeOf(columnType)
+                    : ff.length(path);
             if (fileSize < partitionSize << ColumnType.pow2SizeOf(columnType)) {
                 throw CairoException.instance(0)
                         .put("Column file is too small. ")
@@ -1998,6 +2232,9 @@ public class TableWriter implements Closeable {
             if (o3 && o3Commit(commitLag)) {
                 // Bookmark masterRef to track how many rows is in uncommitted state
                 this.committedMasterRef = masterRef;
+                buildPendingZoneMaps();
+                compressPendingPartitions();
+                convertPendingPartitions();
                 return;
             }
 
@@ -2016,6 +2253,10 @@ public class TableWriter implements Closeable {
             // Bookmark masterRef to track how many rows is in uncommitted state
             this.committedMasterRef = masterRef;
             o3ProcessPartitionRemoveCandidates();
+            purgeCodecColumnVersions();
+            buildPendingZoneMaps();
+            compressPendingPartitions();
+            convertPendingPartitions();
 
             metrics.tableWriter().incrementCommits();
             metrics.tableWriter().addCommittedRows(rowsAdded);
@@ -2026,6 +2267,298 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private void compressPartition(long partitionTimestamp) {
+        // last partition is never compressed, it is still being appended to
+        if (partitionTimestamp >= txWriter.getLastPartitionTimestamp() || !txWriter.attachedPartitionsContains(partitionTimestamp)) {
+            return;
+        }
+        try {
+            setPathForPartition(path, partitionBy, partitionTimestamp, false);
+            txnPartitionConditionally(path, txWriter.getPartitionNameTxnByPartitionTimestamp(partitionTimestamp));
+            if (PartitionDecoder.exists(ff, path)) {
+                // Parquet partition has no native column files to compress
+                return;
+            }
+            final int plen = path.length();
+            final long partitionSize = txWriter.getPartitionSizeByPartitionTimestamp(partitionTimestamp);
+            final long partitionNameTxn = txWriter.getPartitionNameTxnByPartitionTimestamp(partitionTimestamp);
+            setPathForPartition(other, partitionBy, partitionTimestamp, false);
+            txnPartitionConditionally(other, partitionNameTxn);
+            for (int i = 0; i < columnCount; i++) {
+                final int codec = metadata.getColumnCodec(i);
+                if (codec != ColumnCodecs.NONE && metadata.getColumnType(i) > 0) {
+                    final long columnTop = getColumnTop(partitionTimestamp, i, -1);
+                    if (columnTop > -1) {
+                        final CharSequence columnName = metadata.getColumnName(i);
+                        final long columnNameTxn = columnVersionWriter.getColumnNameTxn(partitionTimestamp, i);
+                        final boolean compressed = ColumnCodecs.compressColumnFile(
+                                ff,
+                                path,
+                                columnName,
+                                columnNameTxn,
+                                txWriter.txn,
+                                codec,
+                                partitionSize - columnTop,
+                                configuration.getWriterFileOpenOpts()
+                        );
+                        if (compressed) {
+                            // values did not change, neither did the zone map
+                            if (ff.exists(zmFile(path.trimTo(plen), columnName, columnNameTxn))) {
+                                ff.copy(path, zmFile(other.trimTo(plen), columnName, txWriter.txn));
+                            }
+                            path.trimTo(plen);
+                            upsertCodecColumnVersion(partitionTimestamp, i, columnNameTxn, partitionNameTxn);
+                        }
+                    }
+                }
+            }
+        } finally {
+            path.trimTo(rootLen);
+            other.trimTo(rootLen);
+        }
+    }
+
+    private void compressPendingPartitions() {
+        if (codecPartitions.size() > 0) {
+            if (PartitionBy.isPartitioned(partitionBy)) {
+                for (int i = 0, n = codecPartitions.size(); i < n; i++) {
+                    final long partitionTimestamp = codecPartitions.getQuick(i);
+                    try {
+                        compressPartition(partitionTimestamp);
+                    } catch (CairoException e) {
+                        // data is committed uncompressed, compression will be attempted again
+                        // next time partition is modified
+                        LOG.error().$("could not compress partition [table=").$(tableName)
+                                .$(", partition=").$ts(partitionTimestamp)
+                                .$(", errno=").$(e.getErrno())
+                                .$(", error=").$(e.getFlyweightMessage())
+                                .I$();
+                    }
+                }
+            }
+            codecPartitions.clear();
+            if (codecColumnVersions.size() > 0) {
+                columnVersionWriter.commit();
+                txWriter.setColumnVersion(columnVersionWriter.getVersion());
+                txWriter.commit(defaultCommitMode, denseSymbolMapWriters);
+                purgeCodecColumnVersions();
+            }
+        }
+    }
+
+    private void buildPendingZoneMaps() {
+        if (zoneMapPartitions.size() > 0) {
+            if (PartitionBy.isPartitioned(partitionBy)) {
+                zoneMapPartitions.sort();
+                long prevPartitionTimestamp = Long.MIN_VALUE;
+                for (int i = 0, n = zoneMapPartitions.size(); i < n; i++) {
+                    final long partitionTimestamp = zoneMapPartitions.getQuick(i);
+                    if (partitionTimestamp == prevPartitionTimestamp) {
+                        continue;
+                    }
+                    prevPartitionTimestamp = partitionTimestamp;
+                    try {
+                        buildZoneMaps(partitionTimestamp);
+                    } catch (CairoException e) {
+                        // zone maps are optional, queries scan partition without them
+                        LOG.error().$("could not build zone maps [table=").$(tableName)
+                                .$(", partition=").$ts(partitionTimestamp)
+                                .$(", errno=").$(e.getErrno())
+                                .$(", error=").$(e.getFlyweightMessage())
+                                .I$();
+                    }
+                }
+            }
+            zoneMapPartitions.clear();
+        }
+    }
+
+    private void buildZoneMaps(long partitionTimestamp) {
+        // last partition is still being appended to
+        if (partitionTimestamp >= txWriter.getLastPartitionTimestamp() || !txWriter.attachedPartitionsContains(partitionTimestamp)) {
+            return;
+        }
+        try {
+            setPathForPartition(path, partitionBy, partitionTimestamp, false);
+            txnPartitionConditionally(path, txWriter.getPartitionNameTxnByPartitionTimestamp(partitionTimestamp));
+            final long partitionSize = txWriter.getPartitionSizeByPartitionTimestamp(partitionTimestamp);
+            for (int i = 0; i < columnCount; i++) {
+                final int columnType = metadata.getColumnType(i);
+                if (columnType > 0 && i != metadata.getTimestampIndex() && ZoneMaps.isSupported(columnType)) {
+                    final long columnTop = getColumnTop(partitionTimestamp, i, -1);
+                    if (columnTop > -1) {
+                        ZoneMaps.buildZoneMap(
+                                ff,
+                                path,
+                                other,
+                                metadata.getColumnName(i),
+                                columnVersionWriter.getColumnNameTxn(partitionTimestamp, i),
+                                columnType,
+                                columnTop,
+                                partitionSize,
+                                zoneMapBlockSize,
+                                configuration.getWriterFileOpenOpts()
+                        );
+                    }
+                }
+            }
+        } finally {
+            path.trimTo(rootLen);
+            other.trimTo(rootLen);
+        }
+    }
+
+    private void checkParquetPartition(long partitionTimestamp) {
+        checkDistressed();
+        if (!PartitionBy.isPartitioned(partitionBy)) {
+            throw CairoException.instance(0).put("table is not partitioned [table=").put(tableName).put(']');
+        }
+        if (!txWriter.attachedPartitionsContains(partitionTimestamp)) {
+            throw CairoException.instance(0).put("partition does not exist [table=").put(tableName)
+                    .put(", partition=").put(partitionTimestamp)
+                    .put(']');
+        }
+        if (partitionTimestamp == txWriter.getLastPartitionTimestamp()) {
+            throw CairoException.instance(0).put("cannot convert last partition [table=").put(tableName)
+                    .put(", partition=").put(partitionTimestamp)
+                    .put(']');
+        }
+    }
+
+    private void convertNativeToParquet(long partitionTimestamp) {
+        // codec compressed files are read by encoder from data files
+        decompressPartition(partitionTimestamp);
+        final ObjList<SymbolMapReaderImpl> symbolReaders = openParquetSymbolReaders();
+        try {
+            setPathForPartition(path, partitionBy, partitionTimestamp, false);
+            txnPartitionConditionally(path, txWriter.getPartitionNameTxnByPartitionTimestamp(partitionTimestamp));
+            final int plen = path.length();
+            if (PartitionDecoder.exists(ff, path)) {
+                return;
+            }
+            if (parquetEncoder == null) {
+                parquetEncoder = new PartitionEncoder(configuration);
+            }
+            final long partitionSize = txWriter.getPartitionSizeByPartitionTimestamp(partitionTimestamp);
+            parquetEncoder.of(path, partitionSize, configuration.getParquetRowGroupSize());
+            for (int i = 0; i < columnCount; i++) {
+                final int columnType = metadata.getColumnType(i);
+                final long columnTop = getColumnTop(partitionTimestamp, i, -1);
+                if (columnType > 0 && columnTop > -1) {
+                    parquetEncoder.addColumn(
+                            metadata.getColumnName(i),
+                            i,
+                            columnType,
+                            columnVersionWriter.getColumnNameTxn(partitionTimestamp, i),
+                            columnTop,
+                            symbolReaders.getQuick(i)
+                    );
+                }
+            }
+            parquetEncoder.encode();
+
+            // readers that have column files mapped continue to use them,
+            // readers opening partition from now on decode Parquet file
+            for (int i = 0; i < columnCount; i++) {
+                final int columnType = metadata.getColumnType(i);
+                if (columnType > 0 && i != metadata.getTimestampIndex()) {
+                    final CharSequence name = metadata.getColumnName(i);
+                    final long columnNameTxn = columnVersionWriter.getColumnNameTxn(partitionTimestamp, i);
+                    removeFileAndOrLog(ff, dFile(path.trimTo(plen), name, columnNameTxn));
+                    if (ColumnType.isVariableLength(columnType)) {
+                        removeFileAndOrLog(ff, iFile(path.trimTo(plen), name, columnNameTxn));
+                    }
+                }
+            }
+            LOG.info().$("partition converted to parquet [table=").$(tableName)
+                    .$(", partition=").$ts(partitionTimestamp)
+                    .I$();
+        } finally {
+            Misc.freeObjList(symbolReaders);
+            path.trimTo(rootLen);
+        }
+    }
+
+    /**
+     * Converts Parquet file of partition to native column files. Column files are written under
+     * temporary names and renamed when complete, readers fall back to Parquet file until then.
+     *
+     * @param partitionTimestamp timestamp of the partition
+     * @param attached           true when partition is attached to the table, otherwise path is
+     *                           expected to point to partition being attached
+     * @return true when partition was in Parquet format
+     */
+    private boolean convertParquetToNative(long partitionTimestamp, boolean attached) {
+        if (attached) {
+            setPathForPartition(path, partitionBy, partitionTimestamp, false);
+            txnPartitionConditionally(path, txWriter.getPartitionNameTxnByPartitionTimestamp(partitionTimestamp));
+        }
+        final int plen = path.length();
+        if (!PartitionDecoder.exists(ff, path)) {
+            if (attached) {
+                path.trimTo(rootLen);
+            }
+            return false;
+        }
+        final ObjList<SymbolMapReaderImpl> symbolReaders = openParquetSymbolReaders();
+        try {
+            if (parquetDecoder == null) {
+                parquetDecoder = new PartitionDecoder(MemoryTag.MMAP_TABLE_WRITER);
+            }
+            parquetDecoder.of(ff, path);
+            for (int i = 0; i < columnCount; i++) {
+                final int columnType = metadata.getColumnType(i);
+                if (columnType < 0) {
+                    continue;
+                }
+                // attached partition has no column versions yet, its columns are written in full
+                final long columnTop = attached ? getColumnTop(partitionTimestamp, i, -1) : 0;
+                final long columnNameTxn = attached ? columnVersionWriter.getColumnNameTxn(partitionTimestamp, i) : columnVersionWriter.getDefaultColumnNameTxn(i);
+                if (columnTop < 0 || (i == metadata.getTimestampIndex() && ff.exists(dFile(path.trimTo(plen), metadata.getColumnName(i), columnNameTxn)))) {
+                    continue;
+                }
+                final int fileColumnIndex = parquetDecoder.findColumn(i);
+                if (fileColumnIndex < 0) {
+                    throw CairoException.instance(0).put("column is not found in parquet file [path=").put(path.trimTo(plen))
+                            .put(", column=").put(metadata.getColumnName(i))
+                            .put(']');
+                }
+                decodeParquetColumn(plen, i, columnType, columnNameTxn, columnTop, fileColumnIndex, symbolReaders.getQuick(i));
+            }
+            parquetDecoder.close();
+            parquetDecoder = null;
+            removeFileAndOrLog(ff, path.trimTo(plen).concat(ParquetFormat.FILE_NAME).$());
+            LOG.info().$("partition converted to native [table=").$(tableName)
+                    .$(", path=").$(path.trimTo(plen))
+                    .I$();
+            return true;
+        } finally {
+            Misc.freeObjList(symbolReaders);
+            path.trimTo(attached ? rootLen : plen);
+        }
+    }
+
+    private void convertPendingPartitions() {
+        if (parquetPartitions.size() > 0) {
+            for (int i = 0, n = parquetPartitions.size(); i < n; i++) {
+                final long partitionTimestamp = parquetPartitions.getQuick(i);
+                if (partitionTimestamp < txWriter.getLastPartitionTimestamp() && txWriter.attachedPartitionsContains(partitionTimestamp)) {
+                    try {
+                        convertNativeToParquet(partitionTimestamp);
+                    } catch (CairoException e) {
+                        // data is committed in native format, which is readable as well
+                        LOG.error().$("could not convert partition to parquet [table=").$(tableName)
+                                .$(", partition=").$ts(partitionTimestamp)
+                                .$(", errno=").$(e.getErrno())
+                                .$(", error=").$(e.getFlyweightMessage())
+                                .I$();
+                    }
+                }
+            }
+            parquetPartitions.clear();
+        }
+    }
+
     private void configureAppendPosition() {
         final boolean partitioned = PartitionBy.isPartitioned(partitionBy);
         if (this.txWriter.getMaxTimestamp() > Long.MIN_VALUE || !partitioned) {
@@ -2159,6 +2692,7 @@ public class TableWriter implements Closeable {
                     if (isSequential(metaMem, i)) {
                         flags |= META_FLAG_BIT_SEQUENTIAL;
                     }
+                    flags = TableUtils.setColumnCodec(flags, getColumnCodec(metaMem, i));
                     ddlMem.putLong(flags);
                     ddlMem.putInt(indexValueBlockSize);
                     ddlMem.putLong(getColumnHash(metaMem, i));
@@ -2275,6 +2809,82 @@ public class TableWriter implements Closeable {
         symbolMapWriters.extendAndSet(columnCount, w);
     }
 
+    private void decodeParquetColumn(
+            int plen,
+            int columnIndex,
+            int columnType,
+            long columnNameTxn,
+            long columnTop,
+            int fileColumnIndex,
+            @Nullable SymbolMapReader symbolReader
+    ) {
+        final CharSequence name = metadata.getColumnName(columnIndex);
+        final boolean varSize = ColumnType.isVariableLength(columnType);
+        final long opts = configuration.getWriterFileOpenOpts();
+        final long pageSize = configuration.getDataAppendPageSize();
+        try (
+                MemoryMA dataMem = Vm.getMAInstance();
+                MemoryMA auxMem = Vm.getMAInstance()
+        ) {
+            dFile(path.trimTo(plen), name, columnNameTxn);
+            dataMem.of(ff, Path.getThreadLocal(path).put(TMP_FILE_SUFFIX).$(), pageSize, MemoryTag.MMAP_TABLE_WRITER, opts);
+            if (varSize) {
+                iFile(path.trimTo(plen), name, columnNameTxn);
+                auxMem.of(ff, Path.getThreadLocal(path).put(TMP_FILE_SUFFIX).$(), pageSize, MemoryTag.MMAP_TABLE_WRITER, opts);
+            }
+            parquetDecoder.decodeColumn(fileColumnIndex, columnType, columnTop, symbolReader, dataMem, varSize ? auxMem : null);
+            dataMem.close(true);
+            auxMem.close(true);
+        }
+        // index file goes first, readers open it before data file
+        if (varSize) {
+            iFile(path.trimTo(plen), name, columnNameTxn);
+            renameTempFile();
+        }
+        dFile(path.trimTo(plen), name, columnNameTxn);
+        renameTempFile();
+    }
+
+    /**
+     * Decompresses column data of historic partition into data file of the new column version, so that
+     * it can be modified. Compressed file stays in place for readers until the new version is committed.
+     * Column is compressed again after the next commit.
+     */
+    private void decompressColumn(long partitionTimestamp, int columnIndex) {
+        if (metadata.getColumnCodec(columnIndex) != ColumnCodecs.NONE && metadata.getColumnType(columnIndex) > 0) {
+            final long columnNameTxn = columnVersionWriter.getColumnNameTxn(partitionTimestamp, columnIndex);
+            final long partitionNameTxn = txWriter.getPartitionNameTxnByPartitionTimestamp(partitionTimestamp);
+            try {
+                setPathForPartition(path, partitionBy, partitionTimestamp, false);
+                txnPartitionConditionally(path, partitionNameTxn);
+                if (
+                        ColumnCodecs.decompressColumnFile(
+                                ff,
+                                path,
+                                metadata.getColumnName(columnIndex),
+                                columnNameTxn,
+                                txWriter.txn,
+                                configuration.getWriterFileOpenOpts()
+                        )
+                ) {
+                    upsertCodecColumnVersion(partitionTimestamp, columnIndex, columnNameTxn, partitionNameTxn);
+                    codecPartitions.add(partitionTimestamp);
+                    if (zoneMapBlockSize > 0) {
+                        zoneMapPartitions.add(partitionTimestamp);
+                    }
+                }
+            } finally {
+                path.trimTo(rootLen);
+            }
+        }
+    }
+
+    private void decompressPartition(long partitionTimestamp) {
+        for (int i = 0; i < columnCount; i++) {
+            decompressColumn(partitionTimestamp, i);
+        }
+    }
+
     private void doClose(boolean truncate) {
         boolean tx = inTransaction();
         freeSymbolMapWriters();
@@ -2289,6 +2899,8 @@ public class TableWriter implements Closeable {
         Misc.free(o3ColumnTopSink);
         Misc.free(commandQueue);
         updateOperator = Misc.free(updateOperator);
+        parquetEncoder = Misc.free(parquetEncoder);
+        parquetDecoder = Misc.free(parquetDecoder);
         freeColumns(truncate & !distressed);
         try {
             releaseLock(!truncate | tx | performRecovery | distressed);
@@ -2454,6 +3066,37 @@ public class TableWriter implements Closeable {
         return symbolMapWriters.getQuick(columnIndex);
     }
 
+    private ObjList<SymbolMapReaderImpl> openParquetSymbolReaders() {
+        final ObjList<SymbolMapReaderImpl> readers = new ObjList<>(columnCount);
+        readers.setPos(columnCount);
+        try {
+            for (int i = 0; i < columnCount; i++) {
+                if (ColumnType.isSymbol(metadata.getColumnType(i))) {
+                    readers.setQuick(i, new SymbolMapReaderImpl(
+                            configuration,
+                            Path.getThreadLocal2(configuration.getRoot()).concat(tableName),
+                            metadata.getColumnName(i),
+                            columnVersionWriter.getDefaultColumnNameTxn(i),
+                            symbolMapWriters.getQuick(i).getSymbolCount()
+                    ));
+                }
+            }
+            return readers;
+        } catch (Throwable e) {
+            Misc.freeObjList(readers);
+            throw e;
+        }
+    }
+
+    private boolean hasCodecColumns() {
+        for (int i = 0; i < columnCount; i++) {
+            if (metadata.getColumnCodec(i) != ColumnCodecs.NONE && metadata.getColumnType(i) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean hasO3() {
         return o3MasterRef > -1;
     }
@@ -2733,6 +3376,20 @@ public class TableWriter implements Closeable {
                         final long srcDataMax;
                         final long srcNameTxn;
                         final int partitionIndex = txWriter.findAttachedPartitionIndexByLoTimestamp(partitionTimestamp);
+                        if (partitionIndex > -1 && !last) {
+                            ensureNativePartition(partitionTimestamp);
+                        }
+                        if (zoneMapBlockSize > 0) {
+                            zoneMapPartitions.add(partitionTimestamp);
+                            zoneMapPartitions.add(lastPartitionTimestamp);
+                        }
+                        if (hasCodecColumns()) {
+                            if (partitionIndex > -1 && !last) {
+                                decompressPartition(partitionTimestamp);
+                            }
+                            codecPartitions.add(partitionTimestamp);
+                            codecPartitions.add(lastPartitionTimestamp);
+                        }
                         if (partitionIndex > -1) {
                             if (last) {
                                 srcDataMax = transientRowCount;
@@ -3919,6 +4576,10 @@ public class TableWriter implements Closeable {
 
     private void openPartition(long timestamp) {
         try {
+            if (hasCodecColumns()) {
+                // partition used to be historic, e.g. the last one was dropped
+                decompressPartition(txWriter.getPartitionTimestampLo(timestamp));
+            }
             setStateForTimestamp(path, timestamp, true);
             int plen = path.length();
             if (ff.mkdirs(path.slash$(), mkDirMode) != 0) {
@@ -4173,6 +4834,65 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private void purgeCodecColumnVersions() {
+        final int n = codecColumnVersions.size();
+        if (n > 0) {
+            final boolean anyReadersBeforeCommittedTxn = checkScoreboardHasReadersBeforeLastCommittedTxn();
+            try {
+                for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                    final CharSequence columnName = metadata.getColumnName(columnIndex);
+                    codecPurgeColumnVersions.clear();
+                    for (int i = 0; i < n; i += 4) {
+                        if (codecColumnVersions.getQuick(i) == columnIndex) {
+                            final long columnNameTxn = codecColumnVersions.getQuick(i + 1);
+                            final long partitionTimestamp = codecColumnVersions.getQuick(i + 2);
+                            final long partitionNameTxn = codecColumnVersions.getQuick(i + 3);
+                            if (anyReadersBeforeCommittedTxn || !removeCodecColumnVersion(columnName, partitionTimestamp, partitionNameTxn, columnNameTxn)) {
+                                codecPurgeColumnVersions.add(columnNameTxn, partitionTimestamp, partitionNameTxn, 0L);
+                            }
+                        }
+                    }
+
+                    // readers may still use old column versions, purge job removes them once readers are gone
+                    if (codecPurgeColumnVersions.size() > 0) {
+                        final Sequence pubSeq = messageBus.getColumnPurgePubSeq();
+                        while (true) {
+                            long cursor = pubSeq.next();
+                            if (cursor > -1L) {
+                                ColumnPurgeTask task = messageBus.getColumnPurgeQueue().get(cursor);
+                                task.of(
+                                        tableName,
+                                        columnName,
+                                        metadata.getId(),
+                                        (int) txWriter.getTruncateVersion(),
+                                        metadata.getColumnType(columnIndex),
+                                        partitionBy,
+                                        txWriter.getTxn(),
+                                        codecPurgeColumnVersions
+                                );
+                                pubSeq.done(cursor);
+                                LOG.info().$("column purge scheduled [table=").$(tableName)
+                                        .$(", column=").$(columnName)
+                                        .$(", txn=").$(txWriter.getTxn())
+                                        .I$();
+                                break;
+                            } else if (cursor == -1L) {
+                                LOG.error().$("cannot schedule column purge, purge queue is full. Please run 'VACUUM TABLE \"").$(tableName)
+                                        .$("\"' [columnName=").$(columnName)
+                                        .$(", txn=").$(txWriter.getTxn())
+                                        .I$();
+                                break;
+                            }
+                            Os.pause();
+                        }
+                    }
+                }
+            } finally {
+                codecColumnVersions.clear();
+            }
+        }
+    }
+
     void purgeUnusedPartitions() {
         if (PartitionBy.isPartitioned(partitionBy)) {
             removeNonAttachedPartitions();
@@ -4205,6 +4925,28 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private long readMaxTimestamp(long partitionTimestamp, long partitionSize) {
+        setStateForTimestamp(other, partitionTimestamp, false);
+        try {
+            final int timestampIndex = metadata.getTimestampIndex();
+            dFile(other, metadata.getColumnName(timestampIndex), columnVersionWriter.getColumnNameTxn(partitionTimestamp, timestampIndex));
+            final long fd = TableUtils.openRO(ff, other, LOG);
+            try {
+                return TableUtils.readLongOrFail(
+                        ff,
+                        fd,
+                        (partitionSize - 1) * Long.BYTES,
+                        tempMem16b,
+                        other
+                );
+            } finally {
+                ff.close(fd);
+            }
+        } finally {
+            other.trimTo(rootLen);
+        }
+    }
+
     private void recoverFromMetaRenameFailure(CharSequence columnName) {
         openMetaFile(ff, path, rootLen, metaMem);
     }
@@ -4250,6 +4992,20 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private boolean removeCodecColumnVersion(CharSequence columnName, long partitionTimestamp, long partitionNameTxn, long columnNameTxn) {
+        try {
+            setPathForPartition(other, partitionBy, partitionTimestamp, false);
+            txnPartitionConditionally(other, partitionNameTxn);
+            final int plen = other.length();
+            boolean removed = ff.remove(dFile(other, columnName, columnNameTxn)) || !ff.exists(other);
+            removed &= ff.remove(zFile(other.trimTo(plen), columnName, columnNameTxn)) || !ff.exists(other);
+            removed &= ff.remove(zmFile(other.trimTo(plen), columnName, columnNameTxn)) || !ff.exists(other);
+            return removed;
+        } finally {
+            other.trimTo(rootLen);
+        }
+    }
+
     private void removeColumn(int columnIndex) {
         final int pi = getPrimaryColumnIndex(columnIndex);
         final int si = getSecondaryColumnIndex(columnIndex);
@@ -4293,6 +5049,8 @@ public class TableWriter implements Closeable {
         int plen = path.length();
         long columnNameTxn = columnVersionWriter.getColumnNameTxn(partitionTimestamp, columnIndex);
         removeFileAndOrLog(ff, dFile(path, columnName, columnNameTxn));
+        removeFileAndOrLog(ff, zFile(path.trimTo(plen), columnName, columnNameTxn));
+        removeFileAndOrLog(ff, zmFile(path.trimTo(plen), columnName, columnNameTxn));
         removeFileAndOrLog(ff, iFile(path.trimTo(plen), columnName, columnNameTxn));
         removeFileAndOrLog(ff, BitmapIndexUtils.keyFileName(path.trimTo(plen), columnName, columnNameTxn));
         removeFileAndOrLog(ff, BitmapIndexUtils.valueFileName(path.trimTo(plen), columnName, columnNameTxn));
@@ -4389,7 +5147,7 @@ public class TableWriter implements Closeable {
     }
 
     private void removePartitionDirectories0(long pUtf8NameZ, int type) {
-        if (Files.isDir(pUtf8NameZ, type)) {
+        if (Files.isDir(pUtf8NameZ, type, fileNameSink) && !isWalDir(fileNameSink)) {
             path.trimTo(rootLen);
             path.concat(pUtf8NameZ).$();
             int errno;
@@ -4407,6 +5165,10 @@ public class TableWriter implements Closeable {
                 // They are probably about to be attached.
                 return;
             }
+            if (isWalDir(fileNameSink)) {
+                // write-ahead log is owned by WAL writers and the table sequencer
+                return;
+            }
             try {
                 long txn = 0;
                 int txnSep = Chars.indexOf(fileNameSink, '.');
@@ -4522,6 +5284,14 @@ public class TableWriter implements Closeable {
         }
     }
 
+    // renames temporary version of the file, which current path points to
+    private void renameTempFile() {
+        final Path tmp = Path.getThreadLocal(path).put(TMP_FILE_SUFFIX).$();
+        if (!ff.rename(tmp, path)) {
+            throw CairoException.instance(ff.errno()).put("could not rename [from=").put(tmp).put(", to=").put(path).put(']');
+        }
+    }
+
     private void renameColumnFiles(CharSequence columnName, int columnIndex, CharSequence newName, long partitionTimestamp, long partitionNameTxn) {
         setPathForPartition(path, partitionBy, partitionTimestamp, false);
         setPathForPartition(other, partitionBy, partitionTimestamp, false);
@@ -4530,6 +5300,8 @@ public class TableWriter implements Closeable {
         int plen = path.length();
         long columnNameTxn = columnVersionWriter.getColumnNameTxn(partitionTimestamp, columnIndex);
         renameFileOrLog(ff, dFile(path.trimTo(plen), columnName, columnNameTxn), dFile(other.trimTo(plen), newName, columnNameTxn));
+        renameFileOrLog(ff, zFile(path.trimTo(plen), columnName, columnNameTxn), zFile(other.trimTo(plen), newName, columnNameTxn));
+        renameFileOrLog(ff, zmFile(path.trimTo(plen), columnName, columnNameTxn), zmFile(other.trimTo(plen), newName, columnNameTxn));
         renameFileOrLog(ff, iFile(path.trimTo(plen), columnName, columnNameTxn), iFile(other.trimTo(plen), newName, columnNameTxn));
         renameFileOrLog(ff, BitmapIndexUtils.keyFileName(path.trimTo(plen), columnName, columnNameTxn), BitmapIndexUtils.keyFileName(other.trimTo(plen), newName, columnNameTxn));
         renameFileOrLog(ff, BitmapIndexUtils.valueFileName(path.trimTo(plen), columnName, columnNameTxn), BitmapIndexUtils.valueFileName(other.trimTo(plen), newName, columnNameTxn));
@@ -4753,6 +5525,17 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private void rollbackCodecColumnVersions() {
+        // new column versions were never committed, no reader could have seen them
+        for (int i = 0, n = codecColumnVersions.size(); i < n; i += 4) {
+            final int columnIndex = (int) codecColumnVersions.getQuick(i);
+            final long partitionTimestamp = codecColumnVersions.getQuick(i + 2);
+            final long partitionNameTxn = codecColumnVersions.getQuick(i + 3);
+            removeCodecColumnVersion(metadata.getColumnName(columnIndex), partitionTimestamp, partitionNameTxn, txWriter.txn);
+        }
+        codecColumnVersions.clear();
+    }
+
     private void rollbackIndexes() {
         final long maxRow = txWriter.getTransientRowCount() - 1;
         for (int i = 0, n = denseIndexers.size(); i < n; i++) {
@@ -4980,7 +5763,17 @@ public class TableWriter implements Closeable {
         // added so far. Index writers will start point to different
         // files after switch.
         updateIndexes();
+        if (zoneMapBlockSize > 0) {
+            zoneMapPartitions.add(txWriter.getLastPartitionTimestamp());
+        }
+        if (hasCodecColumns()) {
+            codecPartitions.add(txWriter.getLastPartitionTimestamp());
+        }
         txWriter.switchPartitions(timestamp);
+        if (partitionsRemoved) {
+            // directory of the removed partition with the same timestamp may still be in use
+            txWriter.updatePartitionSizeAndTxnByIndex((txWriter.getPartitionCount() - 1) * LONGS_PER_TX_ATTACHED_PARTITION, 0);
+        }
         openPartition(timestamp);
         setAppendPosition(0, false);
     }
@@ -5154,6 +5947,12 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private void upsertCodecColumnVersion(long partitionTimestamp, int columnIndex, long columnNameTxn, long partitionNameTxn) {
+        columnVersionWriter.upsert(partitionTimestamp, columnIndex, txWriter.txn, getColumnTop(partitionTimestamp, columnIndex, -1));
+        txWriter.updatePartitionColumnVersion(partitionTimestamp);
+        codecColumnVersions.add(columnIndex, columnNameTxn, partitionTimestamp, partitionNameTxn);
+    }
+
     private void validateSwapMeta(CharSequence columnName) {
         try {
             try {
@@ -5189,6 +5988,7 @@ public class TableWriter implements Closeable {
         if (isSequential(metaMem, i)) {
             flags |= META_FLAG_BIT_SEQUENTIAL;
         }
+        flags = TableUtils.setColumnCodec(flags, getColumnCodec(metaMem, i));
         ddlMem.putLong(flags);
         ddlMem.putInt(getIndexBlockCapacity(metaMem, i));
         ddlMem.putLong(getColumnHash(metaMem, i));
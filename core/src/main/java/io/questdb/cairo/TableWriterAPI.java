@@ -0,0 +1,56 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.griffin.UpdateOperator;
+
+import java.io.Closeable;
+
+/**
+ * Row level write access to a table. Implemented by {@link TableWriter}, which holds
+ * exclusive lock on the table, and by {@link io.questdb.cairo.wal.WalWriter}, which
+ * appends rows to the table's write-ahead log and can be used concurrently with other
+ * writers of the same table.
+ */
+public interface TableWriterAPI extends Closeable {
+
+    @Override
+    void close();
+
+    void commit();
+
+    long getStructureVersion();
+
+    String getTableName();
+
+    UpdateOperator getUpdateOperator();
+
+    TableWriter.Row newRow();
+
+    TableWriter.Row newRow(long timestamp);
+
+    void rollback();
+}
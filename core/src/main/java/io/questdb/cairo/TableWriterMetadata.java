@@ -69,7 +69,8 @@ public class TableWriterMetadata extends BaseRecordMetadata {
                             TableUtils.getIndexBlockCapacity(metaMem, i),
                             true,
                             null,
-                            i
+                            i,
+                            TableUtils.getColumnCodec(metaMem, i)
                     )
             );
             columnNameIndexMap.put(nameStr, i);
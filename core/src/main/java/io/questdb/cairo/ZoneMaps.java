@@ -0,0 +1,296 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Numbers;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.Path;
+
+/**
+ * Zone maps are min/max statistics of numeric columns in read-only partitions, kept for fixed-size
+ * blocks of rows. Writer builds ".zm" file next to column data file once partition is no longer the
+ * last one and again when partition is modified by O3 or UPDATE. Page frame cursors consult zone maps
+ * to skip blocks of rows which cannot match the filter.
+ * <p>
+ * File layout is a 16-byte header, (long) partition row count, (int) rows per block, (int) reserved,
+ * followed by 24-byte entry per block, (long) min, (long) max, (long) null count. Min and max exclude
+ * nulls, integer values are stored as longs and float values as double bits. Rows above column top
+ * count as nulls.
+ */
+public final class ZoneMaps {
+    public static final int HEADER_SIZE = 16;
+    public static final int BLOCK_ENTRY_SIZE = 24;
+    private static final Log LOG = LogFactory.getLog(ZoneMaps.class);
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private ZoneMaps() {
+    }
+
+    /**
+     * Builds zone map of the column in the partition. Partition path is expected to be pre-populated,
+     * the path is trimmed back to partition on exit. Other path is scratch space owned by the caller,
+     * its content is overwritten. Zone map is not re-built when existing file covers the same number
+     * of rows, it is skipped as well when column data file does not exist.
+     *
+     * @return true when zone map file was written
+     */
+    public static boolean buildZoneMap(
+            FilesFacade ff,
+            Path path,
+            Path other,
+            CharSequence columnName,
+            long columnNameTxn,
+            int columnType,
+            long columnTop,
+            long rowCount,
+            int blockRows,
+            long opts
+    ) {
+        final int plen = path.length();
+        final int shl = ColumnType.pow2SizeOf(columnType);
+        final long valueCount = rowCount - columnTop;
+        final long srcSize = valueCount << shl;
+        final long dstSize = getFileSize(rowCount, blockRows);
+        long srcFd = -1;
+        long srcAddr = 0;
+        long dstFd = -1;
+        long dstAddr = 0;
+        try {
+            if (rowCount < 1 || valueCount < 0 || isValid(ff, TableUtils.zmFile(path.trimTo(plen), columnName, columnNameTxn), rowCount)) {
+                return false;
+            }
+
+            if (valueCount > 0) {
+                // compressed and Parquet partitions have no data file to read from
+                TableUtils.dFile(path.trimTo(plen), columnName, columnNameTxn);
+                if (!ff.exists(path)) {
+                    return false;
+                }
+                srcFd = TableUtils.openRO(ff, path, LOG);
+                if (ff.length(srcFd) < srcSize) {
+                    throw CairoException.instance(0).put("column file is too small [file=").put(path)
+                            .put(", expectedSize=").put(srcSize)
+                            .put(", actual=").put(ff.length(srcFd))
+                            .put(']');
+                }
+                srcAddr = TableUtils.mapRO(ff, srcFd, srcSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+
+            TableUtils.zmFile(other.of(path.trimTo(plen)), columnName, columnNameTxn);
+            other.chop$().put(TMP_SUFFIX).$();
+            dstFd = TableUtils.openRW(ff, other, LOG, opts);
+            dstAddr = TableUtils.mapRW(ff, dstFd, dstSize, MemoryTag.MMAP_TABLE_WRITER);
+
+            Unsafe.getUnsafe().putLong(dstAddr, rowCount);
+            Unsafe.getUnsafe().putInt(dstAddr + 8, blockRows);
+            Unsafe.getUnsafe().putInt(dstAddr + 12, 0);
+            final long blockCount = getBlockCount(rowCount, blockRows);
+            for (long block = 0; block < blockCount; block++) {
+                final long lo = block * blockRows;
+                final long hi = Math.min(lo + blockRows, rowCount);
+                final long entry = dstAddr + HEADER_SIZE + block * BLOCK_ENTRY_SIZE;
+                final long topNulls = Math.max(0, Math.min(hi, columnTop) - lo);
+                final long valueLo = Math.max(lo, columnTop) - columnTop;
+                final long valueHi = Math.max(hi, columnTop) - columnTop;
+                putBlockStats(columnType, srcAddr + (valueLo << shl), srcAddr + (valueHi << shl), topNulls, entry);
+            }
+
+            ff.munmap(dstAddr, dstSize, MemoryTag.MMAP_TABLE_WRITER);
+            dstAddr = 0;
+            ff.close(dstFd);
+            dstFd = -1;
+
+            TableUtils.zmFile(path.trimTo(plen), columnName, columnNameTxn);
+            if (!ff.rename(other, path)) {
+                throw CairoException.instance(ff.errno()).put("could not rename [from=").put(other).put(", to=").put(path).put(']');
+            }
+            LOG.debug().$("zone map [file=").$(path).$(", rowCount=").$(rowCount).$(", blockCount=").$(blockCount).I$();
+            return true;
+        } finally {
+            if (srcAddr != 0) {
+                ff.munmap(srcAddr, srcSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+            if (srcFd != -1) {
+                ff.close(srcFd);
+            }
+            if (dstAddr != 0) {
+                ff.munmap(dstAddr, dstSize, MemoryTag.MMAP_TABLE_WRITER);
+            }
+            if (dstFd != -1) {
+                ff.close(dstFd);
+                ff.remove(other);
+            }
+            path.trimTo(plen);
+        }
+    }
+
+    public static long getBlockCount(long rowCount, int blockRows) {
+        return (rowCount + blockRows - 1) / blockRows;
+    }
+
+    public static int getBlockRows(long address) {
+        return Unsafe.getUnsafe().getInt(address + 8);
+    }
+
+    public static long getFileSize(long rowCount, int blockRows) {
+        return HEADER_SIZE + getBlockCount(rowCount, blockRows) * BLOCK_ENTRY_SIZE;
+    }
+
+    public static long getMax(long address, long block) {
+        return Unsafe.getUnsafe().getLong(address + HEADER_SIZE + block * BLOCK_ENTRY_SIZE + 8);
+    }
+
+    public static long getMin(long address, long block) {
+        return Unsafe.getUnsafe().getLong(address + HEADER_SIZE + block * BLOCK_ENTRY_SIZE);
+    }
+
+    public static long getNullCount(long address, long block) {
+        return Unsafe.getUnsafe().getLong(address + HEADER_SIZE + block * BLOCK_ENTRY_SIZE + 16);
+    }
+
+    public static long getRowCount(long address) {
+        return Unsafe.getUnsafe().getLong(address);
+    }
+
+    public static boolean isFloatingPoint(int columnType) {
+        final short tag = ColumnType.tagOf(columnType);
+        return tag == ColumnType.FLOAT || tag == ColumnType.DOUBLE;
+    }
+
+    public static boolean isSupported(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.INT:
+            case ColumnType.LONG:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.FLOAT:
+            case ColumnType.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks that mapped zone map is complete and describes exactly the given number of rows.
+     */
+    public static boolean isValid(long address, long size, long rowCount) {
+        if (size < HEADER_SIZE) {
+            return false;
+        }
+        final int blockRows = getBlockRows(address);
+        return blockRows > 0 && getRowCount(address) == rowCount && size >= getFileSize(rowCount, blockRows);
+    }
+
+    private static boolean isValid(FilesFacade ff, LPSZ path, long rowCount) {
+        final long fd = ff.openRO(path);
+        if (fd < 0) {
+            return false;
+        }
+        try {
+            final long blockRows = ff.readULong(fd, 8);
+            return blockRows > 0
+                    && ff.readULong(fd, 0) == rowCount
+                    && ff.length(fd) >= getFileSize(rowCount, (int) blockRows);
+        } finally {
+            ff.close(fd);
+        }
+    }
+
+    private static void putBlockStats(int columnType, long lo, long hi, long nullCount, long entry) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BYTE:
+                for (long p = lo; p < hi; p++) {
+                    final byte v = Unsafe.getUnsafe().getByte(p);
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                break;
+            case ColumnType.SHORT:
+                for (long p = lo; p < hi; p += Short.BYTES) {
+                    final short v = Unsafe.getUnsafe().getShort(p);
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                break;
+            case ColumnType.INT:
+                for (long p = lo; p < hi; p += Integer.BYTES) {
+                    final int v = Unsafe.getUnsafe().getInt(p);
+                    if (v != Numbers.INT_NaN) {
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                    } else {
+                        nullCount++;
+                    }
+                }
+                break;
+            case ColumnType.LONG:
+            case ColumnType.TIMESTAMP:
+                for (long p = lo; p < hi; p += Long.BYTES) {
+                    final long v = Unsafe.getUnsafe().getLong(p);
+                    if (v != Numbers.LONG_NaN) {
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                    } else {
+                        nullCount++;
+                    }
+                }
+                break;
+            case ColumnType.FLOAT:
+            case ColumnType.DOUBLE: {
+                final boolean isFloat = ColumnType.tagOf(columnType) == ColumnType.FLOAT;
+                final int size = isFloat ? Float.BYTES : Double.BYTES;
+                double dMin = Double.POSITIVE_INFINITY;
+                double dMax = Double.NEGATIVE_INFINITY;
+                for (long p = lo; p < hi; p += size) {
+                    final double v = isFloat ? Unsafe.getUnsafe().getFloat(p) : Unsafe.getUnsafe().getDouble(p);
+                    if (v == v) {
+                        dMin = Math.min(dMin, v);
+                        dMax = Math.max(dMax, v);
+                    } else {
+                        nullCount++;
+                    }
+                }
+                min = Double.doubleToRawLongBits(dMin);
+                max = Double.doubleToRawLongBits(dMax);
+                break;
+            }
+            default:
+                throw CairoException.instance(0).put("zone map is not supported [type=").put(ColumnType.nameOf(columnType)).put(']');
+        }
+        Unsafe.getUnsafe().putLong(entry, min);
+        Unsafe.getUnsafe().putLong(entry + 8, max);
+        Unsafe.getUnsafe().putLong(entry + 16, nullCount);
+    }
+}
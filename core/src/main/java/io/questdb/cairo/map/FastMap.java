@@ -27,15 +27,19 @@ package io.questdb.cairo.map;
 import io.questdb.cairo.*;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.vm.SpillFile;
 import io.questdb.griffin.engine.LimitOverflowException;
 import io.questdb.std.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.Closeable;
+
 public class FastMap implements Map {
 
     private static final HashFunction DEFAULT_HASH = Hash::hashMem;
     private static final int MIN_INITIAL_CAPACITY = 128;
+    private static final int MIN_LOOKUP_KEY_SIZE = 64;
     private final double loadFactor;
     private final Key key = new Key();
     private final FastMapValue value;
@@ -48,8 +52,10 @@ public class FastMap implements Map {
     private final int keyBlockOffset;
     private final int keyDataOffset;
     private final int maxResizes;
+    private final SpillFile spillFile;
     private final int initialKeyCapacity;
     private final int initialPageSize;
+    private final int[] valueOffsets;
     private long capacity;
     private DirectLongList offsets;
     private long kStart;
@@ -79,7 +85,23 @@ public class FastMap implements Map {
             double loadFactor,
             int maxResizes
     ) {
-        this(pageSize, keyTypes, valueTypes, keyCapacity, loadFactor, DEFAULT_HASH, maxResizes);
+        this(pageSize, keyTypes, valueTypes, keyCapacity, loadFactor, DEFAULT_HASH, maxResizes, null);
+    }
+
+    /**
+     * Creates map that spills its heap to disk, instead of failing, once the heap outgrows
+     * the memory budget or the number of resizes.
+     */
+    public FastMap(
+            int pageSize,
+            @Transient @NotNull ColumnTypes keyTypes,
+            @Transient @Nullable ColumnTypes valueTypes,
+            int keyCapacity,
+            double loadFactor,
+            int maxResizes,
+            @Nullable SpillFile spillFile
+    ) {
+        this(pageSize, keyTypes, valueTypes, keyCapacity, loadFactor, DEFAULT_HASH, maxResizes, spillFile);
     }
 
     FastMap(
@@ -90,13 +112,27 @@ public class FastMap implements Map {
             double loadFactor,
             HashFunction hashFunction,
             int maxResizes
+    ) {
+        this(pageSize, keyTypes, valueTypes, keyCapacity, loadFactor, hashFunction, maxResizes, null);
+    }
+
+    private FastMap(
+            int pageSize,
+            @Transient ColumnTypes keyTypes,
+            @Transient ColumnTypes valueTypes,
+            int keyCapacity,
+            double loadFactor,
+            HashFunction hashFunction,
+            int maxResizes,
+            SpillFile spillFile
     ) {
         assert pageSize > 3;
         assert loadFactor > 0 && loadFactor < 1d;
         this.initialKeyCapacity = keyCapacity;
         this.initialPageSize = pageSize;
         this.loadFactor = loadFactor;
-        this.kStart = kPos = Unsafe.malloc(this.capacity = pageSize, MemoryTag.NATIVE_FAST_MAP);
+        this.spillFile = spillFile;
+        this.kStart = kPos = reallocHeap(0, 0, this.capacity = pageSize);
         this.kLimit = kStart + pageSize;
         this.keyCapacity = (int) (keyCapacity / loadFactor);
         this.keyCapacity = this.keyCapacity < MIN_INITIAL_CAPACITY ? MIN_INITIAL_CAPACITY : Numbers.ceilPow2(this.keyCapacity);
@@ -151,6 +187,7 @@ public class FastMap implements Map {
                         throw CairoException.instance(0).put("value type is not supported: ").put(ColumnType.nameOf(columnType));
                 }
             }
+            this.valueOffsets = valueOffsets;
             this.value = new FastMapValue(valueOffsets);
             this.value2 = new FastMapValue(valueOffsets);
             this.value3 = new FastMapValue(valueOffsets);
@@ -159,6 +196,7 @@ public class FastMap implements Map {
             this.record = new FastMapRecord(valueOffsets, columnSplit, keyDataOffset, keyBlockOffset, value, keyTypes);
         } else {
             this.valueColumnCount = 0;
+            this.valueOffsets = null;
             this.value = new FastMapValue(null);
             this.value2 = new FastMapValue(null);
             this.value3 = new FastMapValue(null);
@@ -172,6 +210,12 @@ public class FastMap implements Map {
 
     @Override
     public void clear() {
+        if (spillFile != null && spillFile.isSpilled()) {
+            // heap is allocated again, spill file does not outlive the query
+            spillFile.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            kStart = kLimit = 0;
+            restoreInitialCapacity();
+        }
         kPos = kStart;
         free = (int) (keyCapacity * loadFactor);
         size = 0;
@@ -182,9 +226,14 @@ public class FastMap implements Map {
     public final void close() {
         offsets = Misc.free(offsets);
         if (kStart != 0) {
-            Unsafe.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            if (spillFile != null) {
+                spillFile.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            } else {
+                Unsafe.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            }
             kStart = 0;
         }
+        Misc.free(spillFile);
     }
 
     @Override
@@ -212,8 +261,19 @@ public class FastMap implements Map {
         return key.init();
     }
 
+    /**
+     * Creates key to find values without writing to the map memory. Each lookup key has memory of its own,
+     * so that once the map is no longer modified, it can be looked up by multiple threads, one key per thread.
+     * Lookup key must be closed by the caller.
+     *
+     * @return new lookup key
+     */
+    public LookupKey newLookupKey() {
+        return new LookupKey();
+    }
+
     public void restoreInitialCapacity() {
-        this.kStart = kPos = Unsafe.realloc(this.kStart, this.kLimit - this.kStart, this.capacity = initialPageSize, MemoryTag.NATIVE_FAST_MAP);
+        this.kStart = kPos = reallocHeap(this.kStart, this.kLimit - this.kStart, this.capacity = initialPageSize);
         this.kLimit = kStart + this.initialPageSize;
         this.keyCapacity = (int) (this.initialKeyCapacity / loadFactor);
         this.keyCapacity = this.keyCapacity < MIN_INITIAL_CAPACITY ? MIN_INITIAL_CAPACITY : Numbers.ceilPow2(this.keyCapacity);
@@ -317,8 +377,8 @@ public class FastMap implements Map {
         return valueColumnCount;
     }
 
-    private int keyIndex() {
-        return hashFunction.hash(key.startAddress + keyDataOffset, key.len - keyDataOffset) & mask;
+    private int keyIndex(Key keyWriter) {
+        return hashFunction.hash(keyWriter.startAddress + keyDataOffset, keyWriter.len - keyDataOffset) & mask;
     }
 
     private FastMapValue probe0(Key keyWriter, int index, FastMapValue value) {
@@ -366,14 +426,14 @@ public class FastMap implements Map {
     }
 
     private void resize(int size) {
-        if (nResizes < maxResizes) {
+        if (nResizes < maxResizes || spillFile != null) {
             nResizes++;
             long kCapacity = (kLimit - kStart) << 1;
             long target = key.appendAddress + size - kStart;
             if (kCapacity < target) {
                 kCapacity = Numbers.ceilPow2(target);
             }
-            long kAddress = Unsafe.realloc(this.kStart, this.capacity, kCapacity, MemoryTag.NATIVE_FAST_MAP);
+            long kAddress = reallocHeap(this.kStart, this.capacity, kCapacity);
 
             this.capacity = kCapacity;
             long d = kAddress - this.kStart;
@@ -395,6 +455,13 @@ public class FastMap implements Map {
         }
     }
 
+    private long reallocHeap(long address, long size, long newSize) {
+        if (spillFile != null) {
+            return spillFile.realloc(address, size, newSize, MemoryTag.NATIVE_FAST_MAP);
+        }
+        return address == 0 ? Unsafe.malloc(newSize, MemoryTag.NATIVE_FAST_MAP) : Unsafe.realloc(address, size, newSize, MemoryTag.NATIVE_FAST_MAP);
+    }
+
     private FastMapValue valueOf(long address, boolean _new, FastMapValue value) {
         return value.of(address, _new);
     }
@@ -405,10 +472,10 @@ public class FastMap implements Map {
     }
 
     public class Key implements MapKey {
-        private long startAddress;
-        private long appendAddress;
-        private int len;
-        private long nextColOffset;
+        long startAddress;
+        long appendAddress;
+        int len;
+        long nextColOffset;
 
         @Override
         public MapValue createValue() {
@@ -631,7 +698,7 @@ public class FastMap implements Map {
             writeOffset();
         }
 
-        private void checkSize(int size) {
+        void checkSize(int size) {
             if (appendAddress + size > kLimit) {
                 resize(size);
             }
@@ -645,7 +712,7 @@ public class FastMap implements Map {
             commit();
             // calculate hash remembering "key" structure
             // [ len | value block | key offset block | key data block ]
-            int index = keyIndex();
+            int index = keyIndex(this);
             long offset = offsets.get(index);
 
             if (offset == -1) {
@@ -657,9 +724,9 @@ public class FastMap implements Map {
             }
         }
 
-        private MapValue findValue(FastMapValue value) {
+        MapValue findValue(FastMapValue value) {
             commit();
-            int index = keyIndex();
+            int index = keyIndex(this);
             long offset = offsets.get(index);
 
             if (offset == -1) {
@@ -687,4 +754,80 @@ public class FastMap implements Map {
             nextColOffset += 4;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Read-only key backed by its own memory, see {@link #newLookupKey()}.
+     */
+    public class LookupKey extends Key implements Closeable {
+        private final FastMapValue lookupValue = new FastMapValue(valueOffsets);
+        private long lo;
+        private long hi;
+
+        private LookupKey() {
+            final long size = Math.max(keyDataOffset, MIN_LOOKUP_KEY_SIZE);
+            this.lo = Unsafe.malloc(size, MemoryTag.NATIVE_FAST_MAP);
+            this.hi = lo + size;
+        }
+
+        @Override
+        public void close() {
+            if (lo != 0) {
+                Unsafe.free(lo, hi - lo, MemoryTag.NATIVE_FAST_MAP);
+                lo = hi = 0;
+            }
+        }
+
+        @Override
+        public MapValue createValue() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MapValue createValue2() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MapValue createValue3() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MapValue findValue() {
+            return findValue(lookupValue);
+        }
+
+        @Override
+        public MapValue findValue2() {
+            return findValue(lookupValue);
+        }
+
+        @Override
+        public MapValue findValue3() {
+            return findValue(lookupValue);
+        }
+
+        @Override
+        public LookupKey init() {
+            startAddress = lo;
+            appendAddress = lo + keyDataOffset;
+            nextColOffset = lo + keyBlockOffset;
+            return this;
+        }
+
+        @Override
+        void checkSize(int size) {
+            if (appendAddress + size > hi) {
+                final long oldSize = hi - lo;
+                final long newSize = Numbers.ceilPow2(appendAddress + size - lo);
+                final long address = Unsafe.realloc(lo, oldSize, newSize, MemoryTag.NATIVE_FAST_MAP);
+                final long d = address - lo;
+                startAddress += d;
+                appendAddress += d;
+                nextColOffset += d;
+                lo = address;
+                hi = address + newSize;
+            }
+        }
+    }
+}
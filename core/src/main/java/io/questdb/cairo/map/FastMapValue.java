@@ -27,11 +27,13 @@ package io.questdb.cairo.map;
 import io.questdb.std.Long256;
 import io.questdb.std.Unsafe;
 
+import java.util.function.LongConsumer;
+
 final class FastMapValue implements MapValue {
     private final int[] valueOffsets;
     private long address;
     private boolean _new;
-    private FastMapRecord record; // double-linked
+    private LongConsumer recordPositioner; // double-linked, positions map record at the given address
 
     public FastMapValue(int[] valueOffsets) {
         this.valueOffsets = valueOffsets;
@@ -205,7 +207,7 @@ final class FastMapValue implements MapValue {
 
     @Override
     public void setMapRecordHere() {
-        this.record.of(address);
+        this.recordPositioner.accept(address);
     }
 
     @Override
@@ -222,8 +224,8 @@ final class FastMapValue implements MapValue {
         return address + valueOffsets[index];
     }
 
-    void linkRecord(FastMapRecord record) {
-        this.record = record;
+    void linkRecord(LongConsumer recordPositioner) {
+        this.recordPositioner = recordPositioner;
     }
 
     FastMapValue of(long address, boolean _new) {
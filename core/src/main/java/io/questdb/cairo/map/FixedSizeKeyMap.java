@@ -0,0 +1,563 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.map;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.vm.SpillFile;
+import io.questdb.griffin.engine.LimitOverflowException;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Insertion-ordered hash map specialised for keys made of up to {@link #MAX_KEY_COLUMNS}
+ * fixed-size columns, such as LONG, SHORT, BYTE, GEOHASH or SYMBOL keys and their combinations.
+ * <p>
+ * Unlike {@link FastMap} entries have the same size, so there is no per-entry length
+ * and key offset block. Keys are zero-padded to whole longs, which lets the map hash
+ * and compare them a long at a time. Hash index slots keep the key hash next to the
+ * entry number, so that collisions are resolved without touching entry memory and
+ * rehash does not need to recalculate hashes.
+ * <pre>
+ * entry: [ value block | key block (padded to 8 bytes) ]
+ * slot:  [ hash (32 bits) | entry number + 1 (32 bits) ], 0 means empty slot
+ * </pre>
+ */
+public class FixedSizeKeyMap implements Map {
+
+    public static final int MAX_KEY_COLUMNS = 4;
+    private static final int MIN_INITIAL_CAPACITY = 128;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private final double loadFactor;
+    private final Key key = new Key();
+    private final FastMapValue value;
+    private final FastMapValue value2;
+    private final FastMapValue value3;
+    private final FixedSizeKeyMapCursor cursor;
+    private final FixedSizeKeyMapRecord record;
+    private final int valueColumnCount;
+    private final int keyOffset;
+    private final int keyLongs;
+    private final int entrySize;
+    private final int maxResizes;
+    private final SpillFile spillFile;
+    private final int initialKeyCapacity;
+    private final int initialPageSize;
+    private long capacity;
+    private DirectLongList offsets;
+    private long kStart;
+    private long kLimit;
+    private long kPos;
+    private int free;
+    private int keyCapacity;
+    private int size = 0;
+    private int mask;
+    private int nResizes;
+
+    public FixedSizeKeyMap(
+            int pageSize,
+            @Transient @NotNull ColumnTypes keyTypes,
+            int keyCapacity,
+            double loadFactor,
+            int maxResizes
+    ) {
+        this(pageSize, keyTypes, null, keyCapacity, loadFactor, maxResizes);
+    }
+
+    public FixedSizeKeyMap(
+            int pageSize,
+            @Transient @NotNull ColumnTypes keyTypes,
+            @Transient @Nullable ColumnTypes valueTypes,
+            int keyCapacity,
+            double loadFactor,
+            int maxResizes
+    ) {
+        this(pageSize, keyTypes, valueTypes, keyCapacity, loadFactor, maxResizes, null);
+    }
+
+    /**
+     * Creates map that spills its heap to disk, instead of failing, once the heap outgrows
+     * the memory budget or the number of resizes.
+     */
+    public FixedSizeKeyMap(
+            int pageSize,
+            @Transient @NotNull ColumnTypes keyTypes,
+            @Transient @Nullable ColumnTypes valueTypes,
+            int keyCapacity,
+            double loadFactor,
+            int maxResizes,
+            @Nullable SpillFile spillFile
+    ) {
+        assert loadFactor > 0 && loadFactor < 1d;
+        final int keyColumnCount = keyTypes.getColumnCount();
+        if (keyColumnCount == 0 || keyColumnCount > MAX_KEY_COLUMNS) {
+            throw CairoException.instance(0).put("unsupported number of key columns: ").put(keyColumnCount);
+        }
+
+        int offset = 0;
+        final int[] valueOffsets;
+        if (valueTypes != null) {
+            this.valueColumnCount = valueTypes.getColumnCount();
+            valueOffsets = new int[valueColumnCount];
+            for (int i = 0; i < valueColumnCount; i++) {
+                valueOffsets[i] = offset;
+                final int columnType = valueTypes.getColumnType(i);
+                final int size = ColumnType.tagOf(columnType) == ColumnType.LONG256 ? Long256.BYTES : keySizeOf(columnType);
+                if (size < 0) {
+                    throw CairoException.instance(0).put("value type is not supported: ").put(ColumnType.nameOf(columnType));
+                }
+                offset += size;
+            }
+        } else {
+            this.valueColumnCount = 0;
+            valueOffsets = null;
+        }
+        this.keyOffset = (offset + Long.BYTES - 1) & ~(Long.BYTES - 1);
+
+        final int[] keyOffsets = new int[keyColumnCount];
+        offset = 0;
+        for (int i = 0; i < keyColumnCount; i++) {
+            keyOffsets[i] = keyOffset + offset;
+            final int columnType = keyTypes.getColumnType(i);
+            final int size = keySizeOf(columnType);
+            if (size < 0) {
+                throw CairoException.instance(0).put("key type is not supported: ").put(ColumnType.nameOf(columnType));
+            }
+            offset += size;
+        }
+        this.keyLongs = (offset + Long.BYTES - 1) / Long.BYTES;
+        this.entrySize = keyOffset + keyLongs * Long.BYTES;
+
+        this.initialKeyCapacity = keyCapacity;
+        this.initialPageSize = Math.max(pageSize, entrySize);
+        this.loadFactor = loadFactor;
+        this.spillFile = spillFile;
+        this.kStart = kPos = reallocHeap(0, 0, this.capacity = initialPageSize);
+        this.kLimit = kStart + initialPageSize;
+        this.keyCapacity = (int) (keyCapacity / loadFactor);
+        this.keyCapacity = this.keyCapacity < MIN_INITIAL_CAPACITY ? MIN_INITIAL_CAPACITY : Numbers.ceilPow2(this.keyCapacity);
+        this.mask = this.keyCapacity - 1;
+        this.free = (int) (this.keyCapacity * loadFactor);
+        this.offsets = new DirectLongList(this.keyCapacity, MemoryTag.NATIVE_FAST_MAP_LONG_LIST);
+        this.offsets.setPos(this.keyCapacity);
+        this.offsets.zero(0);
+        this.nResizes = 0;
+        this.maxResizes = maxResizes;
+
+        this.value = new FastMapValue(valueOffsets);
+        this.value2 = new FastMapValue(valueOffsets);
+        this.value3 = new FastMapValue(valueOffsets);
+        this.record = new FixedSizeKeyMapRecord(valueOffsets, valueColumnCount, keyOffsets, value);
+        this.cursor = new FixedSizeKeyMapCursor(record, this, entrySize);
+    }
+
+    /**
+     * @param keyTypes key column types
+     * @return true when every key column has fixed size and there are no more than {@link #MAX_KEY_COLUMNS} of them
+     */
+    public static boolean isSupported(@Transient ColumnTypes keyTypes) {
+        final int n = keyTypes.getColumnCount();
+        if (n == 0 || n > MAX_KEY_COLUMNS) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (keySizeOf(keyTypes.getColumnType(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (spillFile != null && spillFile.isSpilled()) {
+            // heap is allocated again, spill file does not outlive the query
+            spillFile.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            kStart = 0;
+            restoreInitialCapacity();
+        }
+        kPos = kStart;
+        free = (int) (keyCapacity * loadFactor);
+        size = 0;
+        offsets.zero(0);
+    }
+
+    @Override
+    public final void close() {
+        offsets = Misc.free(offsets);
+        if (kStart != 0) {
+            if (spillFile != null) {
+                spillFile.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            } else {
+                Unsafe.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
+            }
+            kStart = 0;
+        }
+        Misc.free(spillFile);
+    }
+
+    @Override
+    public RecordCursor getCursor() {
+        return cursor.init(kStart, size);
+    }
+
+    @Override
+    public MapRecord getRecord() {
+        return record;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public MapValue valueAt(long address) {
+        return value.of(address, false);
+    }
+
+    @Override
+    public MapKey withKey() {
+        return key.init();
+    }
+
+    @Override
+    public void restoreInitialCapacity() {
+        this.kStart = kPos = reallocHeap(this.kStart, this.capacity, this.capacity = initialPageSize);
+        this.kLimit = kStart + this.initialPageSize;
+        this.keyCapacity = (int) (this.initialKeyCapacity / loadFactor);
+        this.keyCapacity = this.keyCapacity < MIN_INITIAL_CAPACITY ? MIN_INITIAL_CAPACITY : Numbers.ceilPow2(this.keyCapacity);
+        this.mask = this.keyCapacity - 1;
+        this.free = (int) (this.keyCapacity * loadFactor);
+        this.offsets.setCapacity(this.keyCapacity);
+        this.offsets.setPos(this.keyCapacity);
+        this.offsets.zero(0);
+        this.size = 0;
+        this.nResizes = 0;
+    }
+
+    public long getAreaSize() {
+        return kLimit - kStart;
+    }
+
+    public int getKeyCapacity() {
+        return keyCapacity;
+    }
+
+    private static int keySizeOf(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BYTE:
+            case ColumnType.BOOLEAN:
+            case ColumnType.GEOBYTE:
+                return Byte.BYTES;
+            case ColumnType.SHORT:
+            case ColumnType.CHAR:
+            case ColumnType.GEOSHORT:
+                return Short.BYTES;
+            case ColumnType.INT:
+            case ColumnType.FLOAT:
+            case ColumnType.SYMBOL:
+            case ColumnType.GEOINT:
+                return Integer.BYTES;
+            case ColumnType.LONG:
+            case ColumnType.DOUBLE:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.GEOLONG:
+                return Long.BYTES;
+            default:
+                return -1;
+        }
+    }
+
+    private static int slotHash(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    private static int slotEntry(long slot) {
+        return (int) slot - 1;
+    }
+
+    private FastMapValue asNew(int index, int hash, FastMapValue value) {
+        final long address = kPos;
+        offsets.set(index, ((long) hash << 32) | (size + 1));
+        kPos += entrySize;
+        size++;
+        if (--free == 0) {
+            rehash();
+        }
+        return value.of(address, true);
+    }
+
+    private boolean eq(long slot) {
+        long a = kStart + (long) slotEntry(slot) * entrySize + keyOffset;
+        long b = kPos + keyOffset;
+        if (keyLongs == 1) {
+            return Unsafe.getUnsafe().getLong(a) == Unsafe.getUnsafe().getLong(b);
+        }
+        for (int i = 0; i < keyLongs; i++) {
+            if (Unsafe.getUnsafe().getLong(a) != Unsafe.getUnsafe().getLong(b)) {
+                return false;
+            }
+            a += Long.BYTES;
+            b += Long.BYTES;
+        }
+        return true;
+    }
+
+    int getValueColumnCount() {
+        return valueColumnCount;
+    }
+
+    private int hashKey() {
+        long p = kPos + keyOffset;
+        long h = Unsafe.getUnsafe().getLong(p) * HASH_MULTIPLIER;
+        for (int i = 1; i < keyLongs; i++) {
+            p += Long.BYTES;
+            h = (h ^ Unsafe.getUnsafe().getLong(p)) * HASH_MULTIPLIER;
+        }
+        // high bits of the product are the best mixed ones, hash has to be positive
+        return (int) (h >>> 33);
+    }
+
+    private void rehash() {
+        final int capacity = keyCapacity << 1;
+        mask = capacity - 1;
+        DirectLongList pointers = new DirectLongList(capacity, MemoryTag.NATIVE_FAST_MAP_LONG_LIST);
+        pointers.setPos(capacity);
+        pointers.zero(0);
+
+        for (long i = 0, k = this.offsets.size(); i < k; i++) {
+            final long slot = this.offsets.get(i);
+            if (slot == 0) {
+                continue;
+            }
+            int index = slotHash(slot) & mask;
+            while (pointers.get(index) != 0) {
+                index = (index + 1) & mask;
+            }
+            pointers.set(index, slot);
+        }
+        this.offsets.close();
+        this.offsets = pointers;
+        this.free += (capacity - keyCapacity) * loadFactor;
+        this.keyCapacity = capacity;
+    }
+
+    private long reallocHeap(long address, long size, long newSize) {
+        if (spillFile != null) {
+            return spillFile.realloc(address, size, newSize, MemoryTag.NATIVE_FAST_MAP);
+        }
+        return address == 0 ? Unsafe.malloc(newSize, MemoryTag.NATIVE_FAST_MAP) : Unsafe.realloc(address, size, newSize, MemoryTag.NATIVE_FAST_MAP);
+    }
+
+    private void resize() {
+        if (nResizes < maxResizes || spillFile != null) {
+            nResizes++;
+            final long kCapacity = (kLimit - kStart) << 1;
+            final long kAddress = reallocHeap(this.kStart, this.capacity, kCapacity);
+            this.capacity = kCapacity;
+            this.kPos += kAddress - this.kStart;
+            this.kStart = kAddress;
+            this.kLimit = kAddress + kCapacity;
+        } else {
+            throw LimitOverflowException.instance().put("limit of ").put(maxResizes).put(" resizes exceeded in FixedSizeKeyMap");
+        }
+    }
+
+    public class Key implements MapKey {
+        private long appendAddress;
+
+        @Override
+        public MapValue createValue() {
+            return createValue(value);
+        }
+
+        @Override
+        public MapValue createValue2() {
+            return createValue(value2);
+        }
+
+        @Override
+        public MapValue createValue3() {
+            return createValue(value3);
+        }
+
+        @Override
+        public MapValue findValue() {
+            return findValue(value);
+        }
+
+        @Override
+        public MapValue findValue2() {
+            return findValue(value2);
+        }
+
+        @Override
+        public MapValue findValue3() {
+            return findValue(value3);
+        }
+
+        @Override
+        public void put(Record record, RecordSink sink) {
+            sink.copy(record, this);
+        }
+
+        public Key init() {
+            // key is assembled in place of the next entry, make sure it fits
+            if (kPos + entrySize > kLimit) {
+                resize();
+            }
+            appendAddress = kPos + keyOffset;
+            // padding must be zero, keys are compared a long at a time
+            for (int i = 0; i < keyLongs; i++) {
+                Unsafe.getUnsafe().putLong(appendAddress + (long) i * Long.BYTES, 0);
+            }
+            return this;
+        }
+
+        @Override
+        public void putBin(BinarySequence value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putBool(boolean value) {
+            Unsafe.getUnsafe().putByte(appendAddress, (byte) (value ? 1 : 0));
+            appendAddress += 1;
+        }
+
+        @Override
+        public void putByte(byte value) {
+            Unsafe.getUnsafe().putByte(appendAddress, value);
+            appendAddress += 1;
+        }
+
+        @Override
+        public void putDate(long value) {
+            putLong(value);
+        }
+
+        @Override
+        public void putDouble(double value) {
+            Unsafe.getUnsafe().putDouble(appendAddress, value);
+            appendAddress += Double.BYTES;
+        }
+
+        @Override
+        public void putFloat(float value) {
+            Unsafe.getUnsafe().putFloat(appendAddress, value);
+            appendAddress += Float.BYTES;
+        }
+
+        @Override
+        public void putInt(int value) {
+            Unsafe.getUnsafe().putInt(appendAddress, value);
+            appendAddress += Integer.BYTES;
+        }
+
+        @Override
+        public void putLong(long value) {
+            Unsafe.getUnsafe().putLong(appendAddress, value);
+            appendAddress += Long.BYTES;
+        }
+
+        @Override
+        public void putLong256(Long256 value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putShort(short value) {
+            Unsafe.getUnsafe().putShort(appendAddress, value);
+            appendAddress += Short.BYTES;
+        }
+
+        @Override
+        public void putChar(char value) {
+            Unsafe.getUnsafe().putChar(appendAddress, value);
+            appendAddress += Character.BYTES;
+        }
+
+        @Override
+        public void putStr(CharSequence value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putStr(CharSequence value, int lo, int hi) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putRecord(Record value) {
+            // noop
+        }
+
+        @Override
+        public void putTimestamp(long value) {
+            putLong(value);
+        }
+
+        @Override
+        public void skip(int bytes) {
+            appendAddress += bytes;
+        }
+
+        private MapValue createValue(FastMapValue value) {
+            assert appendAddress <= kPos + entrySize;
+            final int hash = hashKey();
+            int index = hash & mask;
+            long slot;
+            while ((slot = offsets.get(index)) != 0) {
+                if (slotHash(slot) == hash && eq(slot)) {
+                    return value.of(kStart + (long) slotEntry(slot) * entrySize, false);
+                }
+                index = (index + 1) & mask;
+            }
+            return asNew(index, hash, value);
+        }
+
+        private MapValue findValue(FastMapValue value) {
+            assert appendAddress <= kPos + entrySize;
+            final int hash = hashKey();
+            int index = hash & mask;
+            long slot;
+            while ((slot = offsets.get(index)) != 0) {
+                if (slotHash(slot) == hash && eq(slot)) {
+                    return value.of(kStart + (long) slotEntry(slot) * entrySize, false);
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.map;
+
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.std.IntList;
+import io.questdb.std.Unsafe;
+
+final class FixedSizeKeyMapRecord implements MapRecord {
+    private final int split;
+    private final int[] valueOffsets;
+    private final int[] keyOffsets;
+    private final FastMapValue value;
+    private long address;
+    private RecordCursor symbolTableResolver;
+    private IntList symbolTableIndex;
+
+    FixedSizeKeyMapRecord(int[] valueOffsets, int split, int[] keyOffsets, FastMapValue value) {
+        this.valueOffsets = valueOffsets;
+        this.split = split;
+        this.keyOffsets = keyOffsets;
+        this.value = value;
+        this.value.linkRecord(this::of); // provides feature to position this record at location of map value
+    }
+
+    @Override
+    public boolean getBool(int columnIndex) {
+        return Unsafe.getBool(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public byte getByte(int columnIndex) {
+        return Unsafe.getUnsafe().getByte(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public char getChar(int columnIndex) {
+        return Unsafe.getUnsafe().getChar(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        return Unsafe.getUnsafe().getDouble(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return Unsafe.getUnsafe().getFloat(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return Unsafe.getUnsafe().getInt(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        return Unsafe.getUnsafe().getLong(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public long getRowId() {
+        return address;
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        return Unsafe.getUnsafe().getShort(addressOfColumn(columnIndex));
+    }
+
+    @Override
+    public CharSequence getSym(int col) {
+        return symbolTableResolver.getSymbolTable(symbolTableIndex.getQuick(col)).valueOf(getInt(col));
+    }
+
+    @Override
+    public CharSequence getSymB(int col) {
+        return symbolTableResolver.getSymbolTable(symbolTableIndex.getQuick(col)).valueBOf(getInt(col));
+    }
+
+    @Override
+    public byte getGeoByte(int col) {
+        return getByte(col);
+    }
+
+    @Override
+    public short getGeoShort(int col) {
+        return getShort(col);
+    }
+
+    @Override
+    public int getGeoInt(int col) {
+        return getInt(col);
+    }
+
+    @Override
+    public long getGeoLong(int col) {
+        return getLong(col);
+    }
+
+    @Override
+    public MapValue getValue() {
+        return value.of(address, false);
+    }
+
+    @Override
+    public void setSymbolTableResolver(RecordCursor resolver, IntList symbolTableIndex) {
+        this.symbolTableResolver = resolver;
+        this.symbolTableIndex = symbolTableIndex;
+    }
+
+    private long addressOfColumn(int index) {
+        if (index < split) {
+            return address + valueOffsets[index];
+        }
+        return address + keyOffsets[index - split];
+    }
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    protected MapRecord clone() {
+        return new FixedSizeKeyMapRecord(valueOffsets, split, keyOffsets, new FastMapValue(valueOffsets));
+    }
+
+    void of(long address) {
+        this.address = address;
+    }
+}
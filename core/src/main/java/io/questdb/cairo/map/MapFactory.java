@@ -28,9 +28,11 @@ import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.CairoException;
 import io.questdb.cairo.ColumnTypes;
 import io.questdb.cairo.GenericRecordMetadata;
+import io.questdb.cairo.vm.SpillFile;
 import io.questdb.std.Chars;
 import io.questdb.std.Transient;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class MapFactory {
     public static Map createMap(
@@ -40,13 +42,24 @@ public class MapFactory {
     ) {
         CharSequence mapType = configuration.getDefaultMapType();
         if (Chars.equalsLowerCaseAscii(mapType, "fast")) {
+            if (FixedSizeKeyMap.isSupported(keyTypes)) {
+                return new FixedSizeKeyMap(
+                        configuration.getSqlMapPageSize(),
+                        keyTypes,
+                        valueTypes,
+                        configuration.getSqlMapKeyCapacity(),
+                        configuration.getSqlFastMapLoadFactor(),
+                        configuration.getSqlMapMaxResizes(),
+                        createSpillFile(configuration));
+            }
             return new FastMap(
                     configuration.getSqlMapPageSize(),
                     keyTypes,
                     valueTypes,
                     configuration.getSqlMapKeyCapacity(),
                     configuration.getSqlFastMapLoadFactor(),
-                    configuration.getSqlMapMaxResizes());
+                    configuration.getSqlMapMaxResizes(),
+                    createSpillFile(configuration));
         }
 
         if (Chars.equalsLowerCaseAscii(mapType, "compact")) {
@@ -68,12 +81,15 @@ public class MapFactory {
             @Transient @NotNull ColumnTypes keyTypes) {
         CharSequence mapType = configuration.getDefaultMapType();
         if (Chars.equalsLowerCaseAscii(mapType, "fast")) {
+            // key sets, e.g. distinct, do not aggregate, FixedSizeKeyMap is reserved for maps with values
             return new FastMap(
                     configuration.getSqlMapPageSize(),
                     keyTypes,
+                    null,
                     configuration.getSqlMapKeyCapacity(),
                     configuration.getSqlFastMapLoadFactor(),
-                    configuration.getSqlMapMaxResizes());
+                    configuration.getSqlMapMaxResizes(),
+                    createSpillFile(configuration));
         }
 
         if (Chars.equalsLowerCaseAscii(mapType, "compact")) {
@@ -90,4 +106,17 @@ public class MapFactory {
         throw CairoException.instance(0).put("unknown map type: ").put(mapType);
     }
 
+    /**
+     * Creates spill file for the map heap, or null when spilling is disabled. Heap doubles on every
+     * resize, so that the memory limit of a map is its page size times 2^maxResizes.
+     */
+    @Nullable
+    public static SpillFile createSpillFile(CairoConfiguration configuration) {
+        if (configuration.isSqlSpillEnabled()) {
+            final int maxResizes = configuration.getSqlMapMaxResizes();
+            final long limit = maxResizes < 32 ? (long) configuration.getSqlMapPageSize() << maxResizes : Long.MAX_VALUE;
+            return new SpillFile(configuration, limit);
+        }
+        return null;
+    }
 }
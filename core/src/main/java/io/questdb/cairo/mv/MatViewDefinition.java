@@ -0,0 +1,145 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.str.Path;
+
+/**
+ * Materialized view is a table that holds SAMPLE BY result of a query over its base table.
+ * Definition is stored in the view table directory and is immutable, except for the txn of
+ * the base table the view has been last refreshed to, which is kept in memory only.
+ * <p>
+ * Refresh query is the view query with base table replaced by a sub-query that reads base
+ * rows from timestamp bound to the first bind variable.
+ */
+public class MatViewDefinition {
+    public static final String DEFINITION_FILE_NAME = "_mv";
+    private final String viewName;
+    private final String baseTableName;
+    private final int basePartitionBy;
+    private final String query;
+    private final String refreshQuery;
+    private volatile long refreshedTxn = -1;
+
+    public MatViewDefinition(String viewName, String baseTableName, int basePartitionBy, String query, String refreshQuery) {
+        this.viewName = viewName;
+        this.baseTableName = baseTableName;
+        this.basePartitionBy = basePartitionBy;
+        this.query = query;
+        this.refreshQuery = refreshQuery;
+    }
+
+    /**
+     * Reads view definition from the table directory.
+     *
+     * @param path path to the view table directory, it is restored on exit
+     * @return view definition or null when the table is not a materialized view
+     */
+    public static MatViewDefinition load(FilesFacade ff, Path path, CharSequence viewName) {
+        final int rootLen = path.length();
+        try (MemoryCMR mem = Vm.getCMRInstance()) {
+            if (!ff.exists(path.concat(DEFINITION_FILE_NAME).$())) {
+                return null;
+            }
+            mem.smallFile(ff, path, MemoryTag.MMAP_DEFAULT);
+            long offset = 0;
+            final String baseTableName = Chars.toString(mem.getStr(offset));
+            offset += Vm.getStorageLength(baseTableName);
+            final int basePartitionBy = mem.getInt(offset);
+            offset += Integer.BYTES;
+            final String query = Chars.toString(mem.getStr(offset));
+            offset += Vm.getStorageLength(query);
+            final String refreshQuery = Chars.toString(mem.getStr(offset));
+            return new MatViewDefinition(Chars.toString(viewName), baseTableName, basePartitionBy, query, refreshQuery);
+        } catch (CairoException e) {
+            throw CairoException.instance(e.getErrno()).put("could not read materialized view definition [path=").put(path).put(", error=").put(e.getFlyweightMessage()).put(']');
+        } finally {
+            path.trimTo(rootLen);
+        }
+    }
+
+    public String getBaseTableName() {
+        return baseTableName;
+    }
+
+    public int getBasePartitionBy() {
+        return basePartitionBy;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getRefreshQuery() {
+        return refreshQuery;
+    }
+
+    /**
+     * @return txn of the base table the view has been last refreshed to by this process, or -1
+     */
+    public long getRefreshedTxn() {
+        return refreshedTxn;
+    }
+
+    public String getViewName() {
+        return viewName;
+    }
+
+    /**
+     * Writes view definition to the table directory.
+     *
+     * @param path path to the view table directory, it is restored on exit
+     */
+    public void save(FilesFacade ff, Path path, MemoryMARW mem) {
+        final int rootLen = path.length();
+        try {
+            mem.smallFile(ff, path.concat(DEFINITION_FILE_NAME).$(), MemoryTag.MMAP_DEFAULT);
+            mem.jumpTo(0);
+            mem.putStr(baseTableName);
+            mem.putInt(basePartitionBy);
+            mem.putStr(query);
+            mem.putStr(refreshQuery);
+        } finally {
+            mem.close();
+            path.trimTo(rootLen);
+        }
+    }
+
+    public void setRefreshedTxn(long refreshedTxn) {
+        this.refreshedTxn = refreshedTxn;
+    }
+
+    MatViewDefinition rename(CharSequence viewName) {
+        return new MatViewDefinition(Chars.toString(viewName), baseTableName, basePartitionBy, query, refreshQuery);
+    }
+}
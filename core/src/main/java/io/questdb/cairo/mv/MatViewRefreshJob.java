@@ -0,0 +1,94 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.EntryUnavailableException;
+import io.questdb.griffin.FunctionFactoryCache;
+import io.questdb.griffin.SqlException;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SynchronizedJob;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.datetime.microtime.MicrosecondClock;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Refreshes materialized views after their base tables are committed to. Views are checked
+ * at most once per refresh interval; view that is locked by another writer is skipped
+ * until the next run.
+ */
+public class MatViewRefreshJob extends SynchronizedJob implements Closeable {
+    private static final Log LOG = LogFactory.getLog(MatViewRefreshJob.class);
+    private final CairoEngine engine;
+    private final MicrosecondClock clock;
+    private final long refreshInterval;
+    private final ObjList<MatViewDefinition> views = new ObjList<>();
+    private final MatViewRefresher refresher;
+    private long nextRefreshTime;
+
+    public MatViewRefreshJob(CairoEngine engine, @Nullable FunctionFactoryCache functionFactoryCache) {
+        this.engine = engine;
+        this.clock = engine.getConfiguration().getMicrosecondClock();
+        this.refreshInterval = engine.getConfiguration().getMatViewRefreshInterval();
+        this.refresher = new MatViewRefresher(engine, functionFactoryCache);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(refresher);
+    }
+
+    @Override
+    protected boolean runSerially() {
+        final long now = clock.getTicks();
+        if (now < nextRefreshTime) {
+            return false;
+        }
+        nextRefreshTime = now + refreshInterval;
+
+        views.clear();
+        engine.getMatViewRegistry().getViews(views);
+        boolean useful = false;
+        for (int i = 0, n = views.size(); i < n; i++) {
+            final MatViewDefinition view = views.getQuick(i);
+            try {
+                useful |= refresher.refresh(view);
+            } catch (EntryUnavailableException e) {
+                // view is busy, try again next time
+            } catch (CairoException | SqlException e) {
+                LOG.error().$("could not refresh materialized view [view=").$(view.getViewName())
+                        .$(", error=").$((Throwable) e).I$();
+            }
+        }
+        views.clear();
+        return useful;
+    }
+}
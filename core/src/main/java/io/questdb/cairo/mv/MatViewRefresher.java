@@ -0,0 +1,247 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.griffin.FunctionFactoryCache;
+import io.questdb.griffin.SqlCompiler.RecordToRowCopier;
+import io.questdb.griffin.SqlCompiler;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContextImpl;
+import io.questdb.griffin.engine.functions.bind.BindVariableServiceImpl;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.BytecodeAssembler;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Misc;
+import io.questdb.std.Numbers;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.std.datetime.microtime.Timestamps;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Brings materialized view up to date with its base table.
+ * <p>
+ * The base table _txn file is compared to the snapshot taken at the previous refresh to find the
+ * lowest base timestamp that may have changed. View rows from the last SAMPLE BY bucket starting
+ * at or before that timestamp onwards are stale. The view is partitioned, so the partitions
+ * holding stale rows are removed, rows of the same partitions that precede the stale bucket are
+ * written back and the view query is re-run over base rows from the stale bucket onwards. View
+ * buckets are aligned to calendar, so re-running the query over the tail of the base table
+ * produces the same buckets as running it over the whole table.
+ * <p>
+ * Refresh is idempotent: when it fails, the snapshot is not updated and the next refresh
+ * starts over from the same base timestamp.
+ */
+public class MatViewRefresher implements Closeable {
+    private static final Log LOG = LogFactory.getLog(MatViewRefresher.class);
+    private static final String LOCK_REASON = "materialized view refresh";
+    private final CairoEngine engine;
+    private final CairoConfiguration configuration;
+    private final SqlCompiler compiler;
+    private final BindVariableServiceImpl bindVariableService;
+    private final SqlExecutionContextImpl executionContext;
+    private final TxReader txReader;
+    private final MatViewState state = new MatViewState();
+    private final MemoryCMR stateReadMem = Vm.getCMRInstance();
+    private final MemoryMARW stateWriteMem = Vm.getMARWInstance();
+    private final BytecodeAssembler asm = new BytecodeAssembler();
+    private final EntityColumnFilter entityColumnFilter = new EntityColumnFilter();
+    private final StringSink sqlSink = new StringSink();
+    private final Path path = new Path();
+    private final Path other = new Path();
+
+    public MatViewRefresher(CairoEngine engine, @Nullable FunctionFactoryCache functionFactoryCache) {
+        this.engine = engine;
+        this.configuration = engine.getConfiguration();
+        this.compiler = new SqlCompiler(engine, functionFactoryCache, null);
+        this.bindVariableService = new BindVariableServiceImpl(configuration);
+        this.executionContext = new SqlExecutionContextImpl(engine, 1).with(AllowAllCairoSecurityContext.INSTANCE, bindVariableService, null);
+        this.txReader = new TxReader(configuration.getFilesFacade());
+    }
+
+    @Override
+    public void close() {
+        Misc.free(compiler);
+        Misc.free(executionContext);
+        Misc.free(txReader);
+        Misc.free(stateReadMem);
+        Misc.free(stateWriteMem);
+        Misc.free(path);
+        Misc.free(other);
+    }
+
+    /**
+     * Refreshes the view unless it is already up to date with the base table.
+     *
+     * @return true when the view has been written to
+     * @throws EntryUnavailableException when the view is locked by another writer
+     */
+    public boolean refresh(MatViewDefinition view) throws SqlException {
+        final FilesFacade ff = configuration.getFilesFacade();
+        try {
+            path.of(configuration.getRoot()).concat(view.getBaseTableName());
+            final int baseTableLen = path.length();
+            if (!ff.exists(path.$())) {
+                throw CairoException.instance(0).put("base table of materialized view does not exist [view=").put(view.getViewName())
+                        .put(", table=").put(view.getBaseTableName()).put(']');
+            }
+            txReader.ofRO(path.trimTo(baseTableLen), view.getBasePartitionBy());
+            TableUtils.safeReadTxn(txReader, configuration.getMicrosecondClock(), configuration.getSpinLockTimeoutUs());
+            if (view.getRefreshedTxn() == txReader.getTxn()) {
+                return false;
+            }
+
+            boolean written = false;
+            try (TableWriter writer = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, view.getViewName(), LOCK_REASON)) {
+                path.of(configuration.getRoot()).concat(view.getViewName());
+                state.load(ff, path, stateReadMem);
+                if (state.getTxn() != txReader.getTxn()) {
+                    final long lo = state.findChangedLo(txReader);
+                    if (lo != Long.MAX_VALUE) {
+                        try {
+                            refresh0(view, writer, lo);
+                        } catch (CairoError e) {
+                            // writer is distressed, it cannot be rolled back and is discarded when returned to pool
+                            throw e;
+                        } catch (Throwable th) {
+                            writer.rollback();
+                            throw th;
+                        }
+                        written = true;
+                    }
+                    state.of(txReader);
+                    state.save(ff, path, other, stateWriteMem);
+                }
+            }
+            view.setRefreshedTxn(txReader.getTxn());
+            return written;
+        } finally {
+            txReader.clear();
+        }
+    }
+
+    private long copy(TableWriter writer, RecordCursor cursor, RecordToRowCopier copier, int timestampIndex) {
+        long rowCount = 0;
+        final Record record = cursor.getRecord();
+        while (cursor.hasNext()) {
+            TableWriter.Row row = writer.newRow(record.getTimestamp(timestampIndex));
+            copier.copy(record, row);
+            row.append();
+            rowCount++;
+        }
+        return rowCount;
+    }
+
+    private RecordCursorFactory compile(CharSequence sql) throws SqlException {
+        return compiler.compile(sql, executionContext).getRecordCursorFactory();
+    }
+
+    private long findBucketLo(CharSequence viewName, CharSequence timestampName, long lo) throws SqlException {
+        sqlSink.clear();
+        sqlSink.put("select \"").put(timestampName).put("\" from \"").put(viewName)
+                .put("\" where \"").put(timestampName).put("\" <= $1 order by \"").put(timestampName).put("\" desc limit 1");
+        bindVariableService.clear();
+        bindVariableService.setTimestamp(0, lo);
+        try (
+                RecordCursorFactory factory = compile(sqlSink);
+                RecordCursor cursor = factory.getCursor(executionContext)
+        ) {
+            return cursor.hasNext() ? cursor.getRecord().getTimestamp(0) : Numbers.LONG_NaN;
+        }
+    }
+
+    private void refresh0(MatViewDefinition view, TableWriter writer, long lo) throws SqlException {
+        final RecordMetadata writerMetadata = writer.getMetadata();
+        final int timestampIndex = writerMetadata.getTimestampIndex();
+        final CharSequence timestampName = writerMetadata.getColumnName(timestampIndex);
+        entityColumnFilter.of(writerMetadata.getColumnCount());
+
+        long refreshLo = Timestamps.O3_MIN_TS;
+        RecordCursorFactory retainedFactory = null;
+        RecordCursor retainedCursor = null;
+        try {
+            final long bucketLo = lo != Long.MIN_VALUE ? findBucketLo(view.getViewName(), timestampName, lo) : Numbers.LONG_NaN;
+            final long partitionLo = bucketLo != Numbers.LONG_NaN ? PartitionBy.getPartitionFloorMethod(writer.getPartitionBy()).floor(bucketLo) : Numbers.LONG_NaN;
+            if (partitionLo == bucketLo) {
+                // stale bucket starts the partition, or there is no view row before the change
+                if (bucketLo == Numbers.LONG_NaN || !writer.removePartitionsFrom(partitionLo)) {
+                    writer.truncate();
+                } else {
+                    refreshLo = bucketLo;
+                }
+            } else if (partitionLo > writer.getPartitionTimestamp(0)) {
+                // rows preceding the stale bucket in the same partition are written back after the partition is removed,
+                // table reader keeps the removed partition available until the cursor is closed
+                sqlSink.clear();
+                sqlSink.put("select * from \"").put(view.getViewName())
+                        .put("\" where \"").put(timestampName).put("\" >= $1 and \"").put(timestampName).put("\" < $2");
+                bindVariableService.clear();
+                bindVariableService.setTimestamp(0, partitionLo);
+                bindVariableService.setTimestamp(1, bucketLo);
+                retainedFactory = compile(sqlSink);
+                retainedCursor = retainedFactory.getCursor(executionContext);
+                writer.removePartitionsFrom(partitionLo);
+                copy(writer, retainedCursor, SqlCompiler.assembleRecordToRowCopier(asm, retainedFactory.getMetadata(), writerMetadata, entityColumnFilter), timestampIndex);
+                refreshLo = bucketLo;
+            } else {
+                // truncate would discard symbol tables retained rows are read with, rebuild instead
+                writer.truncate();
+            }
+
+            bindVariableService.clear();
+            bindVariableService.setTimestamp(0, refreshLo);
+            long rowCount;
+            try (
+                    RecordCursorFactory factory = compile(view.getRefreshQuery());
+                    RecordCursor cursor = factory.getCursor(executionContext)
+            ) {
+                final RecordToRowCopier copier = SqlCompiler.assembleRecordToRowCopier(asm, factory.getMetadata(), writerMetadata, entityColumnFilter);
+                rowCount = copy(writer, cursor, copier, timestampIndex);
+            }
+            writer.commit();
+            LOG.info().$("refreshed materialized view [view=").$(view.getViewName())
+                    .$(", from=").$ts(refreshLo)
+                    .$(", rows=").$(rowCount)
+                    .I$();
+        } finally {
+            // retained rows are read from removed partitions, cursor keeps them open until rows are committed
+            Misc.free(retainedCursor);
+            Misc.free(retainedFactory);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+
+/**
+ * Materialized views known to the engine. Views are discovered lazily, on first
+ * access, by scanning database root for table directories that contain view definition.
+ */
+public class MatViewRegistry {
+    private static final Log LOG = LogFactory.getLog(MatViewRegistry.class);
+    private final CairoConfiguration configuration;
+    private final LowerCaseCharSequenceObjHashMap<MatViewDefinition> views = new LowerCaseCharSequenceObjHashMap<>();
+    private boolean loaded;
+
+    public MatViewRegistry(CairoConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public synchronized void addView(MatViewDefinition view) {
+        load();
+        views.put(view.getViewName(), view);
+    }
+
+    /**
+     * Forgets known views, they are discovered again on next access.
+     */
+    public synchronized void clear() {
+        views.clear();
+        loaded = false;
+    }
+
+    public synchronized MatViewDefinition getView(CharSequence viewName) {
+        load();
+        return views.get(viewName);
+    }
+
+    public synchronized void getViews(ObjList<MatViewDefinition> sink) {
+        load();
+        final ObjList<CharSequence> names = views.keys();
+        for (int i = 0, n = names.size(); i < n; i++) {
+            sink.add(views.get(names.getQuick(i)));
+        }
+    }
+
+    public synchronized void removeView(CharSequence viewName) {
+        if (loaded) {
+            views.remove(viewName);
+        }
+    }
+
+    public synchronized void renameView(CharSequence viewName, CharSequence newName) {
+        if (loaded) {
+            final int index = views.keyIndex(viewName);
+            if (index < 0) {
+                final MatViewDefinition view = views.valueAtQuick(index);
+                views.removeAt(index);
+                views.put(Chars.toString(newName), view.rename(newName));
+            }
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        final FilesFacade ff = configuration.getFilesFacade();
+        final StringSink nameSink = new StringSink();
+        try (Path path = new Path()) {
+            path.of(configuration.getRoot());
+            final int rootLen = path.length();
+            ff.iterateDir(path.$(), (pUtf8NameZ, type) -> {
+                if (Files.isDir(pUtf8NameZ, type, nameSink)) {
+                    path.trimTo(rootLen).concat(pUtf8NameZ);
+                    try {
+                        final MatViewDefinition view = MatViewDefinition.load(ff, path, nameSink);
+                        if (view != null) {
+                            views.put(view.getViewName(), view);
+                        }
+                    } catch (CairoException e) {
+                        LOG.error().$("skipping materialized view [name=").$(nameSink).$(", error=").$(e.getFlyweightMessage()).I$();
+                    }
+                }
+            });
+        }
+        loaded = true;
+    }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TxReader;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.LongList;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.str.Path;
+
+/**
+ * Snapshot of base table partitions a materialized view has been refreshed from.
+ * Comparing the snapshot with current base table _txn file tells the earliest base
+ * timestamp that may have changed since the last refresh, which is where the
+ * refresh has to start from.
+ */
+public class MatViewState {
+    public static final String STATE_FILE_NAME = "_mv.s";
+    private static final String STATE_TEMP_FILE_NAME = "_mv.s.tmp";
+    private static final int PARTITION_ENTRY_SIZE = 4;
+    // partition timestamp, size, name txn, column version
+    private final LongList partitions = new LongList();
+    private long txn = -1;
+    private long truncateVersion;
+    private long maxTimestamp;
+
+    public void clear() {
+        txn = -1;
+        truncateVersion = 0;
+        maxTimestamp = Long.MIN_VALUE;
+        partitions.clear();
+    }
+
+    /**
+     * Compares the snapshot with the base table transaction.
+     *
+     * @return lowest base table timestamp rows could have been added from or modified at,
+     * Long.MIN_VALUE when the view has to be rebuilt from scratch and Long.MAX_VALUE
+     * when nothing changed
+     */
+    public long findChangedLo(TxReader txReader) {
+        if (txn == -1 || truncateVersion != txReader.getTruncateVersion()) {
+            return Long.MIN_VALUE;
+        }
+
+        final int partitionCount = txReader.getPartitionCount();
+        final int snapshotCount = partitions.size() / PARTITION_ENTRY_SIZE;
+        long lo = Long.MAX_VALUE;
+        int j = 0;
+        for (int i = 0; i < partitionCount; i++) {
+            final long ts = txReader.getPartitionTimestamp(i);
+            while (j < snapshotCount && partitions.getQuick(j * PARTITION_ENTRY_SIZE) < ts) {
+                // partition has been dropped
+                return Long.MIN_VALUE;
+            }
+            if (j == snapshotCount || partitions.getQuick(j * PARTITION_ENTRY_SIZE) > ts) {
+                // new partition
+                return Math.min(lo, ts);
+            }
+
+            final int offset = j * PARTITION_ENTRY_SIZE;
+            final long size = txReader.getPartitionSize(i);
+            final long snapshotSize = partitions.getQuick(offset + 1);
+            if (size < snapshotSize) {
+                return Long.MIN_VALUE;
+            }
+            if (txReader.getPartitionNameTxn(i) != partitions.getQuick(offset + 2)
+                    || txReader.getPartitionColumnVersion(i) != partitions.getQuick(offset + 3)) {
+                // partition has been rewritten by out-of-order commit or update
+                return Math.min(lo, ts);
+            }
+            if (size > snapshotSize) {
+                // rows appended in order start from the previous max timestamp,
+                // other partitions do not grow without being rewritten
+                return Math.min(lo, j == snapshotCount - 1 ? maxTimestamp : ts);
+            }
+            j++;
+        }
+        return j < snapshotCount ? Long.MIN_VALUE : lo;
+    }
+
+    public long getTxn() {
+        return txn;
+    }
+
+    /**
+     * Reads the snapshot from view table directory, the state is cleared when the file does not exist.
+     *
+     * @param path path to the view table directory, it is restored on exit
+     */
+    public void load(FilesFacade ff, Path path, MemoryCMR mem) {
+        clear();
+        final int rootLen = path.length();
+        try {
+            if (!ff.exists(path.concat(STATE_FILE_NAME).$())) {
+                return;
+            }
+            mem.smallFile(ff, path, MemoryTag.MMAP_DEFAULT);
+            final long txn = mem.getLong(0);
+            truncateVersion = mem.getLong(Long.BYTES);
+            maxTimestamp = mem.getLong(2 * Long.BYTES);
+            final int count = mem.getInt(3 * Long.BYTES);
+            if (mem.size() < 3 * Long.BYTES + Integer.BYTES + (long) count * Long.BYTES) {
+                throw CairoException.instance(0).put("materialized view state is corrupt [path=").put(path).put(']');
+            }
+            long offset = 3 * Long.BYTES + Integer.BYTES;
+            for (int i = 0; i < count; i++) {
+                partitions.add(mem.getLong(offset));
+                offset += Long.BYTES;
+            }
+            this.txn = txn;
+        } finally {
+            mem.close();
+            path.trimTo(rootLen);
+        }
+    }
+
+    public void of(TxReader txReader) {
+        txn = txReader.getTxn();
+        truncateVersion = txReader.getTruncateVersion();
+        maxTimestamp = txReader.getMaxTimestamp();
+        partitions.clear();
+        for (int i = 0, n = txReader.getPartitionCount(); i < n; i++) {
+            partitions.add(txReader.getPartitionTimestamp(i));
+            partitions.add(txReader.getPartitionSize(i));
+            partitions.add(txReader.getPartitionNameTxn(i));
+            partitions.add(txReader.getPartitionColumnVersion(i));
+        }
+    }
+
+    /**
+     * Writes the snapshot to view table directory. The file is written aside and renamed
+     * so that the previous snapshot survives failed write.
+     *
+     * @param path path to the view table directory, it is restored on exit
+     */
+    public void save(FilesFacade ff, Path path, Path other, MemoryMARW mem) {
+        final int rootLen = path.length();
+        try {
+            other.of(path).concat(STATE_TEMP_FILE_NAME).$();
+            try {
+                mem.smallFile(ff, other, MemoryTag.MMAP_DEFAULT);
+                mem.jumpTo(0);
+                mem.putLong(txn);
+                mem.putLong(truncateVersion);
+                mem.putLong(maxTimestamp);
+                mem.putInt(partitions.size());
+                for (int i = 0, n = partitions.size(); i < n; i++) {
+                    mem.putLong(partitions.getQuick(i));
+                }
+            } finally {
+                mem.close();
+            }
+            if (!ff.rename(other, path.concat(STATE_FILE_NAME).$())) {
+                throw CairoException.instance(ff.errno()).put("could not save materialized view state [path=").put(path).put(']');
+            }
+        } finally {
+            path.trimTo(rootLen);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.parquet;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.vm.api.MemoryA;
+
+/**
+ * Subset of Apache Parquet format constants used to store table partitions. Partitions
+ * are written with PLAIN encoding, without compression and with one data page per column chunk.
+ */
+public final class ParquetFormat {
+    public static final String FILE_NAME = "data.parquet";
+    public static final int MAGIC = 0x31524150; // "PAR1" in little endian
+    public static final int VERSION = 1;
+    public static final String CREATED_BY = "QuestDB";
+
+    // physical types
+    public static final int TYPE_BOOLEAN = 0;
+    public static final int TYPE_INT32 = 1;
+    public static final int TYPE_INT64 = 2;
+    public static final int TYPE_FLOAT = 4;
+    public static final int TYPE_DOUBLE = 5;
+    public static final int TYPE_BYTE_ARRAY = 6;
+    public static final int TYPE_FIXED_LEN_BYTE_ARRAY = 7;
+
+    // converted types
+    public static final int CONVERTED_NONE = -1;
+    public static final int CONVERTED_UTF8 = 0;
+    public static final int CONVERTED_TIMESTAMP_MILLIS = 9;
+    public static final int CONVERTED_TIMESTAMP_MICROS = 10;
+    public static final int CONVERTED_UINT_16 = 12;
+    public static final int CONVERTED_INT_8 = 15;
+    public static final int CONVERTED_INT_16 = 16;
+
+    // repetition
+    public static final int REPETITION_REQUIRED = 0;
+    public static final int REPETITION_OPTIONAL = 1;
+
+    public static final int ENCODING_PLAIN = 0;
+    public static final int ENCODING_RLE = 3;
+    public static final int CODEC_UNCOMPRESSED = 0;
+    public static final int PAGE_TYPE_DATA = 0;
+
+    private ParquetFormat() {
+    }
+
+    public static int getConvertedType(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BYTE:
+                return CONVERTED_INT_8;
+            case ColumnType.SHORT:
+                return CONVERTED_INT_16;
+            case ColumnType.CHAR:
+                return CONVERTED_UINT_16;
+            case ColumnType.DATE:
+                return CONVERTED_TIMESTAMP_MILLIS;
+            case ColumnType.TIMESTAMP:
+                return CONVERTED_TIMESTAMP_MICROS;
+            case ColumnType.STRING:
+            case ColumnType.SYMBOL:
+                return CONVERTED_UTF8;
+            default:
+                return CONVERTED_NONE;
+        }
+    }
+
+    public static int getPhysicalType(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BOOLEAN:
+                return TYPE_BOOLEAN;
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.CHAR:
+            case ColumnType.INT:
+            case ColumnType.GEOBYTE:
+            case ColumnType.GEOSHORT:
+            case ColumnType.GEOINT:
+                return TYPE_INT32;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.GEOLONG:
+                return TYPE_INT64;
+            case ColumnType.FLOAT:
+                return TYPE_FLOAT;
+            case ColumnType.DOUBLE:
+                return TYPE_DOUBLE;
+            case ColumnType.STRING:
+            case ColumnType.SYMBOL:
+            case ColumnType.BINARY:
+                return TYPE_BYTE_ARRAY;
+            case ColumnType.LONG256:
+                return TYPE_FIXED_LEN_BYTE_ARRAY;
+            default:
+                throw CairoException.instance(0).put("unsupported column type [type=").put(ColumnType.nameOf(columnType)).put(']');
+        }
+    }
+
+    /**
+     * Types that do not have null value in QuestDB are stored as required fields,
+     * the rest use definition levels to mark nulls.
+     */
+    public static int getRepetition(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BOOLEAN:
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.CHAR:
+            case ColumnType.GEOBYTE:
+            case ColumnType.GEOSHORT:
+            case ColumnType.GEOINT:
+            case ColumnType.GEOLONG:
+            case ColumnType.LONG256:
+                return REPETITION_REQUIRED;
+            default:
+                return REPETITION_OPTIONAL;
+        }
+    }
+
+    public static int getTypeLength(int columnType) {
+        return ColumnType.tagOf(columnType) == ColumnType.LONG256 ? Long.BYTES * 4 : 0;
+    }
+
+    static void putUtf8(MemoryA mem, CharSequence value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                mem.putByte((byte) c);
+            } else if (c < 0x800) {
+                mem.putByte((byte) (0xc0 | c >> 6));
+                mem.putByte((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                mem.putByte((byte) (0xf0 | cp >> 18));
+                mem.putByte((byte) (0x80 | cp >> 12 & 0x3f));
+                mem.putByte((byte) (0x80 | cp >> 6 & 0x3f));
+                mem.putByte((byte) (0x80 | cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                mem.putByte((byte) '?');
+            } else {
+                mem.putByte((byte) (0xe0 | c >> 12));
+                mem.putByte((byte) (0x80 | c >> 6 & 0x3f));
+                mem.putByte((byte) (0x80 | c & 0x3f));
+            }
+        }
+    }
+
+    static int utf8Length(CharSequence value) {
+        int len = 0;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                len++;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                i++;
+                len += 4;
+            } else if (Character.isSurrogate(c)) {
+                len++;
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+}
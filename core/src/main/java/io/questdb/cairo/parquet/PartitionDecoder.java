@@ -0,0 +1,676 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.parquet;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.sql.SymbolLookup;
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.cairo.vm.api.MemoryA;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+import static io.questdb.cairo.parquet.ParquetFormat.*;
+import static io.questdb.cairo.parquet.ThriftCompactWriter.*;
+
+/**
+ * Reads partition Parquet file back into column layout of native partition. Decoder supports
+ * the subset of format written by {@link PartitionEncoder}: uncompressed data pages v1 with
+ * PLAIN encoded values and RLE/bit-packed definition levels.
+ * <p>
+ * File stays mapped until decoder is pointed at another file, cleared or closed. Mapping is
+ * reused when the same file is requested again, callers clear the decoder when file could have
+ * been replaced since.
+ */
+public class PartitionDecoder implements Mutable, Closeable {
+    private static final Log LOG = LogFactory.getLog(PartitionDecoder.class);
+    private static final int PAGE_TYPE_INDEX = 1;
+    private final ThriftCompactReader thrift = new ThriftCompactReader();
+    private final Path path = new Path();
+    private final StringSink sink = new StringSink();
+    private final ObjList<String> columnNames = new ObjList<>();
+    private final IntList fieldIds = new IntList();
+    private final IntList physicalTypes = new IntList();
+    private final IntList repetitions = new IntList();
+    private final LongList rowGroupRowCounts = new LongList();
+    // chunk level values are stored by rowGroupIndex * columnCount + columnIndex
+    private final LongList chunkOffsets = new LongList();
+    private final LongList chunkSizes = new LongList();
+    private final int memoryTag;
+    private FilesFacade ff;
+    private long fd = -1;
+    private long addr;
+    private long fileSize;
+    private long rowCount;
+    private int columnCount;
+    // last row of the most recently decoded page
+    private long pageRowHi;
+    // definition level decoder state
+    private long levelsPtr;
+    private long levelsHi;
+    private long runRemaining;
+    private boolean runPacked;
+    private int runValue;
+    private int packedBit;
+    // plain boolean decoder state
+    private int booleanBit;
+
+    public PartitionDecoder(int memoryTag) {
+        this.memoryTag = memoryTag;
+    }
+
+    public static boolean exists(FilesFacade ff, Path partitionPath) {
+        final int plen = partitionPath.length();
+        try {
+            return ff.exists(partitionPath.concat(FILE_NAME).$());
+        } finally {
+            partitionPath.trimTo(plen);
+        }
+    }
+
+    @Override
+    public void clear() {
+        release();
+    }
+
+    @Override
+    public void close() {
+        release();
+        Misc.free(path);
+    }
+
+    /**
+     * Decodes column values and appends them to memory in the layout of native column files.
+     * First columnTop rows of the file are skipped, they are stored as nulls.
+     *
+     * @param columnIndex  index of column in the file, see {@link #findColumn(int)}
+     * @param columnType   QuestDB column type
+     * @param columnTop    number of rows at the start of partition, which are not stored in native column
+     * @param symbolLookup symbol table to map symbol values back to keys, only used for symbol columns
+     * @param dataMem      memory for fixed size values or for data of variable size values
+     * @param auxMem       memory for offsets of variable size values
+     */
+    public void decodeColumn(
+            int columnIndex,
+            int columnType,
+            long columnTop,
+            @Nullable SymbolLookup symbolLookup,
+            MemoryA dataMem,
+            @Nullable MemoryA auxMem
+    ) {
+        final int physicalType = physicalTypes.getQuick(columnIndex);
+        if (physicalType != getPhysicalType(columnType)) {
+            throw CairoException.instance(0).put("parquet column type mismatch [file=").put(path)
+                    .put(", column=").put(columnNames.getQuick(columnIndex))
+                    .put(", physicalType=").put(physicalType)
+                    .put(", columnType=").put(ColumnType.nameOf(columnType))
+                    .put(']');
+        }
+        final boolean optional = repetitions.getQuick(columnIndex) == REPETITION_OPTIONAL;
+        long row = 0;
+        for (int g = 0, n = rowGroupRowCounts.size(); g < n; g++) {
+            final int chunkIndex = g * columnCount + columnIndex;
+            long p = chunkOffsets.getQuick(chunkIndex);
+            final long chunkHi = p + chunkSizes.getQuick(chunkIndex);
+            checkRange(p, chunkHi);
+            final long rowGroupHi = row + rowGroupRowCounts.getQuick(g);
+            while (row < rowGroupHi) {
+                if (p >= chunkHi) {
+                    throw corrupt("column chunk is truncated");
+                }
+                p = decodePage(p, chunkHi, row, columnType, columnTop, optional, symbolLookup, dataMem, auxMem);
+                row = pageRowHi;
+            }
+        }
+        if (auxMem != null) {
+            auxMem.putLong(dataMem.getAppendOffset());
+        }
+    }
+
+    /**
+     * @param fieldId field id of column, which is column writer index
+     * @return index of column in the file or -1 when column is not present
+     */
+    public int findColumn(int fieldId) {
+        for (int i = 0; i < columnCount; i++) {
+            if (fieldIds.getQuick(i) == fieldId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public CharSequence getColumnName(int columnIndex) {
+        return columnNames.getQuick(columnIndex);
+    }
+
+    public int getRowGroupCount() {
+        return rowGroupRowCounts.size();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Maps Parquet file of partition and reads its metadata.
+     *
+     * @param ff            files facade
+     * @param partitionPath path to partition directory
+     */
+    public PartitionDecoder of(FilesFacade ff, Path partitionPath) {
+        final int plen = partitionPath.length();
+        try {
+            partitionPath.concat(FILE_NAME).$();
+            if (fd != -1 && this.ff == ff && Chars.equals(path, partitionPath)) {
+                return this;
+            }
+            release();
+            this.ff = ff;
+            path.of(partitionPath).$();
+            fd = TableUtils.openRO(ff, path, LOG);
+            fileSize = ff.length(fd);
+            if (fileSize < 3 * Integer.BYTES) {
+                throw corrupt("file is too small");
+            }
+            addr = TableUtils.mapRO(ff, fd, fileSize, memoryTag);
+            readFooter();
+            return this;
+        } catch (Throwable e) {
+            release();
+            throw e;
+        } finally {
+            partitionPath.trimTo(plen);
+        }
+    }
+
+    private void checkRange(long lo, long hi) {
+        if (lo < addr || hi > addr + fileSize || lo > hi) {
+            throw corrupt("offset is out of range");
+        }
+    }
+
+    private CairoException corrupt(CharSequence message) {
+        return CairoException.instance(0).put("corrupt parquet file [file=").put(path).put(", message=").put(message).put(']');
+    }
+
+    private long decodePage(
+            long p,
+            long chunkHi,
+            long row,
+            int columnType,
+            long columnTop,
+            boolean optional,
+            @Nullable SymbolLookup symbolLookup,
+            MemoryA dataMem,
+            @Nullable MemoryA auxMem
+    ) {
+        int pageType = -1;
+        int compressedSize = -1;
+        int valueCount = -1;
+        thrift.of(p, chunkHi);
+        thrift.structBegin();
+        int id;
+        while ((id = thrift.nextField()) != -1) {
+            switch (id) {
+                case 1:
+                    pageType = thrift.readI32();
+                    break;
+                case 3:
+                    compressedSize = thrift.readI32();
+                    break;
+                case 5:
+                    thrift.structBegin();
+                    int dataPageId;
+                    while ((dataPageId = thrift.nextField()) != -1) {
+                        switch (dataPageId) {
+                            case 1:
+                                valueCount = thrift.readI32();
+                                break;
+                            case 2:
+                                checkEncoding(thrift.readI32());
+                                break;
+                            case 3:
+                                if (thrift.readI32() != ENCODING_RLE) {
+                                    throw corrupt("unsupported definition level encoding");
+                                }
+                                break;
+                            default:
+                                thrift.skipField();
+                                break;
+                        }
+                    }
+                    break;
+                default:
+                    thrift.skipField();
+                    break;
+            }
+        }
+        final long pageLo = thrift.getPosition();
+        final long pageHi = pageLo + compressedSize;
+        if (compressedSize < 0 || pageHi > chunkHi) {
+            throw corrupt("invalid page size");
+        }
+        if (pageType == PAGE_TYPE_INDEX) {
+            pageRowHi = row;
+            return pageHi;
+        }
+        if (pageType != PAGE_TYPE_DATA || valueCount < 0) {
+            throw corrupt("unsupported page type");
+        }
+
+        long valuesPtr = pageLo;
+        if (optional) {
+            if (pageLo + Integer.BYTES > pageHi) {
+                throw corrupt("definition levels are truncated");
+            }
+            final int levelsSize = Unsafe.getUnsafe().getInt(pageLo);
+            levelsPtr = pageLo + Integer.BYTES;
+            levelsHi = levelsPtr + levelsSize;
+            if (levelsSize < 0 || levelsHi > pageHi) {
+                throw corrupt("definition levels are truncated");
+            }
+            runRemaining = 0;
+            valuesPtr = levelsHi;
+        }
+        booleanBit = 0;
+
+        final int tag = ColumnType.tagOf(columnType);
+        final long hi = row + valueCount;
+        for (long r = row; r < hi; r++) {
+            final boolean defined = !optional || nextLevel() != 0;
+            final boolean emit = r >= columnTop;
+            if (valuesPtr > pageHi || (defined && valuesPtr == pageHi && tag != ColumnType.BOOLEAN)) {
+                throw corrupt("page values are truncated");
+            }
+            switch (tag) {
+                case ColumnType.BOOLEAN:
+                    final boolean bool = (Unsafe.getUnsafe().getByte(valuesPtr) & (1 << booleanBit)) != 0;
+                    if (++booleanBit == 8) {
+                        booleanBit = 0;
+                        valuesPtr++;
+                    }
+                    if (emit) {
+                        dataMem.putBool(bool);
+                    }
+                    break;
+                case ColumnType.BYTE:
+                case ColumnType.GEOBYTE:
+                    if (emit) {
+                        dataMem.putByte(defined ? (byte) Unsafe.getUnsafe().getInt(valuesPtr) : 0);
+                    }
+                    valuesPtr += defined ? Integer.BYTES : 0;
+                    break;
+                case ColumnType.SHORT:
+                case ColumnType.GEOSHORT:
+                    if (emit) {
+                        dataMem.putShort(defined ? (short) Unsafe.getUnsafe().getInt(valuesPtr) : 0);
+                    }
+                    valuesPtr += defined ? Integer.BYTES : 0;
+                    break;
+                case ColumnType.CHAR:
+                    if (emit) {
+                        dataMem.putChar(defined ? (char) Unsafe.getUnsafe().getInt(valuesPtr) : 0);
+                    }
+                    valuesPtr += defined ? Integer.BYTES : 0;
+                    break;
+                case ColumnType.INT:
+                case ColumnType.GEOINT:
+                    if (emit) {
+                        dataMem.putInt(defined ? Unsafe.getUnsafe().getInt(valuesPtr) : Numbers.INT_NaN);
+                    }
+                    valuesPtr += defined ? Integer.BYTES : 0;
+                    break;
+                case ColumnType.LONG:
+                case ColumnType.DATE:
+                case ColumnType.TIMESTAMP:
+                case ColumnType.GEOLONG:
+                    if (emit) {
+                        dataMem.putLong(defined ? Unsafe.getUnsafe().getLong(valuesPtr) : Numbers.LONG_NaN);
+                    }
+                    valuesPtr += defined ? Long.BYTES : 0;
+                    break;
+                case ColumnType.FLOAT:
+                    if (emit) {
+                        dataMem.putFloat(defined ? Unsafe.getUnsafe().getFloat(valuesPtr) : Float.NaN);
+                    }
+                    valuesPtr += defined ? Float.BYTES : 0;
+                    break;
+                case ColumnType.DOUBLE:
+                    if (emit) {
+                        dataMem.putDouble(defined ? Unsafe.getUnsafe().getDouble(valuesPtr) : Double.NaN);
+                    }
+                    valuesPtr += defined ? Double.BYTES : 0;
+                    break;
+                case ColumnType.LONG256:
+                    if (valuesPtr + Long256.BYTES > pageHi) {
+                        throw corrupt("page values are truncated");
+                    }
+                    if (emit) {
+                        dataMem.putBlockOfBytes(valuesPtr, Long256.BYTES);
+                    }
+                    valuesPtr += Long256.BYTES;
+                    break;
+                case ColumnType.SYMBOL:
+                case ColumnType.STRING:
+                case ColumnType.BINARY:
+                    long lo = 0;
+                    int len = -1;
+                    if (defined) {
+                        len = Unsafe.getUnsafe().getInt(valuesPtr);
+                        lo = valuesPtr + Integer.BYTES;
+                        valuesPtr = lo + len;
+                        if (len < 0 || valuesPtr > pageHi) {
+                            throw corrupt("page values are truncated");
+                        }
+                    }
+                    if (emit) {
+                        putVarValue(tag, lo, len, symbolLookup, dataMem, auxMem);
+                    }
+                    break;
+                default:
+                    throw CairoException.instance(0).put("unsupported column type [type=").put(ColumnType.nameOf(columnType)).put(']');
+            }
+        }
+        pageRowHi = hi;
+        return pageHi;
+    }
+
+    private void checkEncoding(int encoding) {
+        if (encoding != ENCODING_PLAIN) {
+            throw corrupt("unsupported value encoding");
+        }
+    }
+
+    private int nextLevel() {
+        if (runRemaining == 0) {
+            long header = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (levelsPtr >= levelsHi) {
+                    throw corrupt("definition levels are truncated");
+                }
+                b = Unsafe.getUnsafe().getByte(levelsPtr++);
+                header |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            runPacked = (header & 1) == 1;
+            if (runPacked) {
+                runRemaining = (header >>> 1) * 8;
+                packedBit = 0;
+            } else {
+                runRemaining = header >>> 1;
+                if (levelsPtr >= levelsHi) {
+                    throw corrupt("definition levels are truncated");
+                }
+                runValue = Unsafe.getUnsafe().getByte(levelsPtr++);
+            }
+            if (runRemaining == 0) {
+                throw corrupt("empty definition level run");
+            }
+        }
+        runRemaining--;
+        if (runPacked) {
+            if (levelsPtr >= levelsHi) {
+                throw corrupt("definition levels are truncated");
+            }
+            final int value = (Unsafe.getUnsafe().getByte(levelsPtr) >> packedBit) & 1;
+            if (++packedBit == 8) {
+                packedBit = 0;
+                levelsPtr++;
+            }
+            return value;
+        }
+        return runValue;
+    }
+
+    private void putVarValue(int tag, long lo, int len, @Nullable SymbolLookup symbolLookup, MemoryA dataMem, @Nullable MemoryA auxMem) {
+        switch (tag) {
+            case ColumnType.SYMBOL:
+                if (len < 0) {
+                    dataMem.putInt(SymbolTable.VALUE_IS_NULL);
+                } else {
+                    assert symbolLookup != null;
+                    sink.clear();
+                    Chars.utf8Decode(lo, lo + len, sink);
+                    final int key = symbolLookup.keyOf(sink);
+                    if (key == SymbolTable.VALUE_NOT_FOUND) {
+                        throw CairoException.instance(0).put("symbol value is not found [file=").put(path)
+                                .put(", value=").put(sink)
+                                .put(']');
+                    }
+                    dataMem.putInt(key);
+                }
+                break;
+            case ColumnType.STRING:
+                assert auxMem != null;
+                auxMem.putLong(dataMem.getAppendOffset());
+                if (len < 0) {
+                    dataMem.putNullStr();
+                } else {
+                    sink.clear();
+                    Chars.utf8Decode(lo, lo + len, sink);
+                    dataMem.putStr(sink);
+                }
+                break;
+            default:
+                assert auxMem != null;
+                auxMem.putLong(dataMem.getAppendOffset());
+                if (len < 0) {
+                    dataMem.putNullBin();
+                } else {
+                    dataMem.putBin(lo, len);
+                }
+                break;
+        }
+    }
+
+    private void readColumnChunk(int chunkIndex) {
+        long dataPageOffset = -1;
+        long size = -1;
+        thrift.structBegin();
+        int id;
+        while ((id = thrift.nextField()) != -1) {
+            if (id == 3) {
+                thrift.structBegin();
+                int metaId;
+                while ((metaId = thrift.nextField()) != -1) {
+                    switch (metaId) {
+                        case 4:
+                            if (thrift.readI32() != CODEC_UNCOMPRESSED) {
+                                throw corrupt("compressed column chunks are not supported");
+                            }
+                            break;
+                        case 7:
+                            size = thrift.readI64();
+                            break;
+                        case 9:
+                            dataPageOffset = thrift.readI64();
+                            break;
+                        default:
+                            thrift.skipField();
+                            break;
+                    }
+                }
+            } else {
+                thrift.skipField();
+            }
+        }
+        if (dataPageOffset < 0 || size < 0) {
+            throw corrupt("column chunk metadata is missing");
+        }
+        chunkOffsets.extendAndSet(chunkIndex, addr + dataPageOffset);
+        chunkSizes.extendAndSet(chunkIndex, size);
+    }
+
+    private void readFooter() {
+        if (Unsafe.getUnsafe().getInt(addr) != MAGIC || Unsafe.getUnsafe().getInt(addr + fileSize - Integer.BYTES) != MAGIC) {
+            throw corrupt("invalid magic");
+        }
+        final int footerSize = Unsafe.getUnsafe().getInt(addr + fileSize - 2 * Integer.BYTES);
+        final long footerHi = addr + fileSize - 2 * Integer.BYTES;
+        final long footerLo = footerHi - footerSize;
+        if (footerSize < 0 || footerLo < addr + Integer.BYTES) {
+            throw corrupt("invalid footer size");
+        }
+
+        columnCount = 0;
+        rowCount = 0;
+        thrift.of(footerLo, footerHi);
+        thrift.structBegin();
+        int id;
+        while ((id = thrift.nextField()) != -1) {
+            switch (id) {
+                case 2:
+                    readSchema();
+                    break;
+                case 3:
+                    rowCount = thrift.readI64();
+                    break;
+                case 4:
+                    thrift.readListBegin();
+                    for (int g = 0, n = thrift.getListSize(); g < n; g++) {
+                        readRowGroup(g);
+                    }
+                    break;
+                default:
+                    thrift.skipField();
+                    break;
+            }
+        }
+    }
+
+    private void readRowGroup(int rowGroupIndex) {
+        long groupRowCount = -1;
+        thrift.structBegin();
+        int id;
+        while ((id = thrift.nextField()) != -1) {
+            switch (id) {
+                case 1:
+                    thrift.readListBegin();
+                    final int n = thrift.getListSize();
+                    if (n != columnCount) {
+                        throw corrupt("row group column count mismatch");
+                    }
+                    for (int i = 0; i < n; i++) {
+                        readColumnChunk(rowGroupIndex * columnCount + i);
+                    }
+                    break;
+                case 3:
+                    groupRowCount = thrift.readI64();
+                    break;
+                default:
+                    thrift.skipField();
+                    break;
+            }
+        }
+        if (groupRowCount < 0) {
+            throw corrupt("row group row count is missing");
+        }
+        rowGroupRowCounts.add(groupRowCount);
+    }
+
+    private void readSchema() {
+        thrift.readListBegin();
+        final int n = thrift.getListSize();
+        // first element is the root of schema tree, columns follow
+        for (int i = 0; i < n; i++) {
+            int physicalType = -1;
+            int repetition = REPETITION_REQUIRED;
+            int fieldId = -1;
+            int childCount = 0;
+            String name = null;
+            thrift.structBegin();
+            int id;
+            while ((id = thrift.nextField()) != -1) {
+                switch (id) {
+                    case 1:
+                        physicalType = thrift.readI32();
+                        break;
+                    case 3:
+                        repetition = thrift.readI32();
+                        break;
+                    case 4:
+                        name = thrift.readString();
+                        break;
+                    case 5:
+                        childCount = thrift.readI32();
+                        break;
+                    case 9:
+                        fieldId = thrift.readI32();
+                        break;
+                    default:
+                        thrift.skipField();
+                        break;
+                }
+            }
+            if (i == 0) {
+                continue;
+            }
+            if (childCount > 0 || physicalType < 0) {
+                throw corrupt("nested schema is not supported");
+            }
+            columnNames.add(name);
+            physicalTypes.add(physicalType);
+            repetitions.add(repetition);
+            fieldIds.add(fieldId);
+            columnCount++;
+        }
+    }
+
+    private void release() {
+        if (addr != 0) {
+            ff.munmap(addr, fileSize, memoryTag);
+            addr = 0;
+        }
+        if (fd != -1) {
+            ff.close(fd);
+            fd = -1;
+        }
+        fileSize = 0;
+        rowCount = 0;
+        columnCount = 0;
+        columnNames.clear();
+        fieldIds.clear();
+        physicalTypes.clear();
+        repetitions.clear();
+        rowGroupRowCounts.clear();
+        chunkOffsets.clear();
+        chunkSizes.clear();
+    }
+}
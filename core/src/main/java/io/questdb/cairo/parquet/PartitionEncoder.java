@@ -0,0 +1,648 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.parquet;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryMA;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.DirectCharSequence;
+import io.questdb.std.str.Path;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+import static io.questdb.cairo.parquet.ParquetFormat.*;
+import static io.questdb.cairo.parquet.ThriftCompactWriter.*;
+
+/**
+ * Writes partition column files into single Parquet file, which is placed in partition directory.
+ * Columns are split into row groups of configured size, each column chunk is a single
+ * PLAIN encoded data page. Min/max statistics are written for numeric columns.
+ * <p>
+ * Column field ids are set to column writer index, this is how the file is mapped back
+ * to table metadata when columns are renamed after the conversion.
+ */
+public class PartitionEncoder implements Closeable {
+    private static final Log LOG = LogFactory.getLog(PartitionEncoder.class);
+    private static final String TMP_SUFFIX = ".tmp";
+    private final FilesFacade ff;
+    private final CairoConfiguration configuration;
+    private final ThriftCompactWriter thrift = new ThriftCompactWriter();
+    private final MemoryMA mem = Vm.getMAInstance();
+    private final ObjList<ColumnSource> columns = new ObjList<>();
+    private final DirectCharSequence charSequence = new DirectCharSequence();
+    // chunk level values are stored by rowGroupIndex * columnCount + columnIndex
+    private final LongList chunkOffsets = new LongList();
+    private final LongList chunkSizes = new LongList();
+    private final LongList chunkNullCounts = new LongList();
+    private final LongList chunkMins = new LongList();
+    private final LongList chunkMaxs = new LongList();
+    private final IntList chunkHasStats = new IntList();
+    private final LongList rowGroupSizes = new LongList();
+    private final Path other = new Path();
+    private int columnCount;
+    private long partitionSize;
+    private int rowGroupSize;
+    private Path path;
+    private long tempMem8b;
+    // scan results for current column chunk
+    private long nullCount;
+    private long valuesSize;
+    private long min;
+    private long max;
+    private boolean hasStats;
+
+    public PartitionEncoder(CairoConfiguration configuration) {
+        this.configuration = configuration;
+        this.ff = configuration.getFilesFacade();
+    }
+
+    public void addColumn(CharSequence name, int fieldId, int columnType, long columnNameTxn, long columnTop, @Nullable SymbolTable symbolTable) {
+        ColumnSource column = columns.getQuiet(columnCount);
+        if (column == null) {
+            columns.extendAndSet(columnCount, column = new ColumnSource());
+        }
+        column.name = Chars.toString(name);
+        column.fieldId = fieldId;
+        column.type = columnType;
+        column.columnNameTxn = columnNameTxn;
+        column.top = Math.min(columnTop, partitionSize);
+        column.symbolTable = symbolTable;
+        columnCount++;
+        // fail early on unsupported types
+        ParquetFormat.getPhysicalType(columnType);
+    }
+
+    @Override
+    public void close() {
+        clear();
+        Misc.free(mem);
+        Misc.free(other);
+        if (tempMem8b != 0) {
+            Unsafe.free(tempMem8b, Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            tempMem8b = 0;
+        }
+    }
+
+    /**
+     * Writes parquet file into partition directory. File is written under temporary name first
+     * and renamed once complete, so that readers never see partially written file.
+     *
+     * @return size of the file
+     */
+    public long encode() {
+        final int plen = path.length();
+        boolean success = false;
+        try {
+            mapColumns();
+            other.of(path).concat(FILE_NAME).put(TMP_SUFFIX).$();
+            mem.of(ff, other, configuration.getDataAppendPageSize(), MemoryTag.MMAP_TABLE_WRITER, configuration.getWriterFileOpenOpts());
+            mem.putInt(MAGIC);
+            rowGroupSizes.clear();
+            for (long lo = 0; lo < partitionSize; lo += rowGroupSize) {
+                final long hi = Math.min(lo + rowGroupSize, partitionSize);
+                final int rowGroupIndex = rowGroupSizes.size() / 2;
+                final long rowGroupOffset = mem.getAppendOffset();
+                for (int i = 0; i < columnCount; i++) {
+                    writeColumnChunk(columns.getQuick(i), lo, hi, rowGroupIndex * columnCount + i);
+                }
+                rowGroupSizes.add(hi - lo, mem.getAppendOffset() - rowGroupOffset);
+            }
+            final long footerOffset = mem.getAppendOffset();
+            writeFooter();
+            mem.putInt((int) (mem.getAppendOffset() - footerOffset));
+            mem.putInt(MAGIC);
+            final long fileSize = mem.getAppendOffset();
+            mem.close(true);
+            // memory truncates file to page boundary, footer has to be at the very end of file
+            final long fd = TableUtils.openRW(ff, other, LOG, configuration.getWriterFileOpenOpts());
+            try {
+                if (!ff.truncate(fd, fileSize)) {
+                    throw CairoException.instance(ff.errno()).put("could not truncate [file=").put(other).put(']');
+                }
+            } finally {
+                ff.close(fd);
+            }
+
+            path.concat(FILE_NAME).$();
+            if (!ff.rename(other, path)) {
+                throw CairoException.instance(ff.errno()).put("could not rename [from=").put(other).put(", to=").put(path).put(']');
+            }
+            LOG.info().$("converted to parquet [path=").$(path)
+                    .$(", rows=").$(partitionSize)
+                    .$(", rowGroups=").$(rowGroupSizes.size() / 2)
+                    .$(", size=").$(fileSize)
+                    .I$();
+            success = true;
+            return fileSize;
+        } finally {
+            mem.close(false);
+            if (!success) {
+                ff.remove(other);
+            }
+            unmapColumns();
+            path.trimTo(plen);
+        }
+    }
+
+    /**
+     * @param path          partition directory, it is used for column files as well as for output file
+     * @param partitionSize number of rows in partition
+     * @param rowGroupSize  max number of rows in parquet row group
+     */
+    public PartitionEncoder of(Path path, long partitionSize, int rowGroupSize) {
+        clear();
+        this.path = path;
+        this.partitionSize = partitionSize;
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+        if (tempMem8b == 0) {
+            tempMem8b = Unsafe.malloc(Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+        }
+        return this;
+    }
+
+    private static long getInt32(ColumnSource c, long row) {
+        if (row < c.top) {
+            switch (ColumnType.tagOf(c.type)) {
+                case ColumnType.INT:
+                    return Numbers.INT_NaN;
+                case ColumnType.SYMBOL:
+                    return SymbolTable.VALUE_IS_NULL;
+                case ColumnType.GEOBYTE:
+                case ColumnType.GEOSHORT:
+                case ColumnType.GEOINT:
+                    return -1;
+                default:
+                    return 0;
+            }
+        }
+        final long i = row - c.top;
+        switch (ColumnType.tagOf(c.type)) {
+            case ColumnType.BYTE:
+            case ColumnType.GEOBYTE:
+                return Unsafe.getUnsafe().getByte(c.fixAddr + i);
+            case ColumnType.SHORT:
+            case ColumnType.GEOSHORT:
+                return Unsafe.getUnsafe().getShort(c.fixAddr + i * Short.BYTES);
+            case ColumnType.CHAR:
+                return Unsafe.getUnsafe().getChar(c.fixAddr + i * Character.BYTES);
+            default:
+                return Unsafe.getUnsafe().getInt(c.fixAddr + i * Integer.BYTES);
+        }
+    }
+
+    private static long getInt64(ColumnSource c, long row) {
+        if (row < c.top) {
+            return ColumnType.tagOf(c.type) == ColumnType.GEOLONG ? -1L : Numbers.LONG_NaN;
+        }
+        return Unsafe.getUnsafe().getLong(c.fixAddr + (row - c.top) * Long.BYTES);
+    }
+
+    private static int getVarLength(ColumnSource c, long row) {
+        if (row < c.top) {
+            return -1;
+        }
+        final long offset = Unsafe.getUnsafe().getLong(c.varAddr + (row - c.top) * Long.BYTES);
+        if (ColumnType.tagOf(c.type) == ColumnType.STRING) {
+            return Unsafe.getUnsafe().getInt(c.fixAddr + offset);
+        }
+        return (int) Unsafe.getUnsafe().getLong(c.fixAddr + offset);
+    }
+
+    private static long getVarAddress(ColumnSource c, long row) {
+        final long offset = Unsafe.getUnsafe().getLong(c.varAddr + (row - c.top) * Long.BYTES);
+        return c.fixAddr + offset + (ColumnType.tagOf(c.type) == ColumnType.STRING ? Integer.BYTES : Long.BYTES);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7fL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private void clear() {
+        unmapColumns();
+        for (int i = 0; i < columnCount; i++) {
+            columns.getQuick(i).symbolTable = null;
+        }
+        columnCount = 0;
+        chunkOffsets.clear();
+        chunkSizes.clear();
+        chunkNullCounts.clear();
+        chunkMins.clear();
+        chunkMaxs.clear();
+        chunkHasStats.clear();
+        rowGroupSizes.clear();
+    }
+
+    private boolean isNull(ColumnSource c, long row) {
+        switch (ColumnType.tagOf(c.type)) {
+            case ColumnType.INT:
+                return getInt32(c, row) == Numbers.INT_NaN;
+            case ColumnType.SYMBOL:
+                return getInt32(c, row) == SymbolTable.VALUE_IS_NULL;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                return getInt64(c, row) == Numbers.LONG_NaN;
+            case ColumnType.FLOAT:
+                return row < c.top || Float.isNaN(Unsafe.getUnsafe().getFloat(c.fixAddr + (row - c.top) * Float.BYTES));
+            case ColumnType.DOUBLE:
+                return row < c.top || Double.isNaN(Unsafe.getUnsafe().getDouble(c.fixAddr + (row - c.top) * Double.BYTES));
+            case ColumnType.STRING:
+            case ColumnType.BINARY:
+                return getVarLength(c, row) < 0;
+            default:
+                return false;
+        }
+    }
+
+    private void mapColumns() {
+        final int plen = path.length();
+        try {
+            for (int i = 0; i < columnCount; i++) {
+                final ColumnSource c = columns.getQuick(i);
+                final long rowCount = partitionSize - c.top;
+                if (rowCount < 1) {
+                    continue;
+                }
+                if (ColumnType.isVariableLength(c.type)) {
+                    c.varSize = (rowCount + 1) * Long.BYTES;
+                    c.varFd = TableUtils.openRO(ff, TableUtils.iFile(path.trimTo(plen), c.name, c.columnNameTxn), LOG);
+                    c.varAddr = TableUtils.mapRO(ff, c.varFd, c.varSize, MemoryTag.MMAP_TABLE_WRITER);
+                    c.fixSize = Unsafe.getUnsafe().getLong(c.varAddr + rowCount * Long.BYTES);
+                } else {
+                    c.fixSize = rowCount << ColumnType.pow2SizeOf(c.type);
+                }
+                c.fixFd = TableUtils.openRO(ff, TableUtils.dFile(path.trimTo(plen), c.name, c.columnNameTxn), LOG);
+                if (c.fixSize > 0) {
+                    c.fixAddr = TableUtils.mapRO(ff, c.fixFd, c.fixSize, MemoryTag.MMAP_TABLE_WRITER);
+                }
+            }
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    private void putValue(ColumnSource c, long row) {
+        switch (ColumnType.tagOf(c.type)) {
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.CHAR:
+            case ColumnType.INT:
+            case ColumnType.GEOBYTE:
+            case ColumnType.GEOSHORT:
+            case ColumnType.GEOINT:
+                mem.putInt((int) getInt32(c, row));
+                break;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.GEOLONG:
+                mem.putLong(getInt64(c, row));
+                break;
+            case ColumnType.FLOAT:
+                mem.putFloat(Unsafe.getUnsafe().getFloat(c.fixAddr + (row - c.top) * Float.BYTES));
+                break;
+            case ColumnType.DOUBLE:
+                mem.putDouble(Unsafe.getUnsafe().getDouble(c.fixAddr + (row - c.top) * Double.BYTES));
+                break;
+            case ColumnType.SYMBOL:
+                final CharSequence symbol = c.symbolTable.valueOf((int) getInt32(c, row));
+                mem.putInt(utf8Length(symbol));
+                putUtf8(mem, symbol);
+                break;
+            case ColumnType.STRING:
+                final long lo = getVarAddress(c, row);
+                charSequence.of(lo, lo + (long) getVarLength(c, row) * Character.BYTES);
+                mem.putInt(utf8Length(charSequence));
+                putUtf8(mem, charSequence);
+                break;
+            case ColumnType.BINARY:
+                final int len = getVarLength(c, row);
+                mem.putInt(len);
+                mem.putBlockOfBytes(getVarAddress(c, row), len);
+                break;
+            case ColumnType.LONG256:
+                if (row < c.top) {
+                    mem.putLong256(Long256Impl.NULL_LONG256);
+                } else {
+                    mem.putBlockOfBytes(c.fixAddr + (row - c.top) * Long256.BYTES, Long256.BYTES);
+                }
+                break;
+            default:
+                assert false;
+        }
+    }
+
+    private void putStatistic(int id, int physicalType, long value) {
+        if (physicalType == TYPE_INT32 || physicalType == TYPE_FLOAT) {
+            Unsafe.getUnsafe().putInt(tempMem8b, (int) value);
+            thrift.binaryField(id, tempMem8b, Integer.BYTES);
+        } else {
+            Unsafe.getUnsafe().putLong(tempMem8b, value);
+            thrift.binaryField(id, tempMem8b, Long.BYTES);
+        }
+    }
+
+    private void scan(ColumnSource c, long lo, long hi) {
+        nullCount = 0;
+        valuesSize = 0;
+        hasStats = false;
+        final int tag = ColumnType.tagOf(c.type);
+        switch (tag) {
+            case ColumnType.BOOLEAN:
+                valuesSize = (hi - lo + 7) / 8;
+                return;
+            case ColumnType.LONG256:
+                valuesSize = (hi - lo) * Long256.BYTES;
+                return;
+            default:
+                break;
+        }
+        final int physicalType = getPhysicalType(c.type);
+        for (long row = lo; row < hi; row++) {
+            if (isNull(c, row)) {
+                nullCount++;
+                continue;
+            }
+            switch (physicalType) {
+                case TYPE_INT32:
+                case TYPE_INT64:
+                    final long v = physicalType == TYPE_INT32 ? getInt32(c, row) : getInt64(c, row);
+                    if (tag != ColumnType.SYMBOL) {
+                        updateStats(v, v, Long.compare(v, min), Long.compare(v, max));
+                    }
+                    valuesSize += physicalType == TYPE_INT32 ? Integer.BYTES : Long.BYTES;
+                    break;
+                case TYPE_FLOAT:
+                    final float f = Unsafe.getUnsafe().getFloat(c.fixAddr + (row - c.top) * Float.BYTES);
+                    updateStats(Float.floatToIntBits(f), Float.floatToIntBits(f), Float.compare(f, Float.intBitsToFloat((int) min)), Float.compare(f, Float.intBitsToFloat((int) max)));
+                    valuesSize += Float.BYTES;
+                    break;
+                case TYPE_DOUBLE:
+                    final double d = Unsafe.getUnsafe().getDouble(c.fixAddr + (row - c.top) * Double.BYTES);
+                    updateStats(Double.doubleToLongBits(d), Double.doubleToLongBits(d), Double.compare(d, Double.longBitsToDouble(min)), Double.compare(d, Double.longBitsToDouble(max)));
+                    valuesSize += Double.BYTES;
+                    break;
+                default:
+                    // byte arrays
+                    if (tag == ColumnType.SYMBOL) {
+                        valuesSize += Integer.BYTES + utf8Length(c.symbolTable.valueOf((int) getInt32(c, row)));
+                    } else if (tag == ColumnType.STRING) {
+                        final long p = getVarAddress(c, row);
+                        valuesSize += Integer.BYTES + utf8Length(charSequence.of(p, p + (long) getVarLength(c, row) * Character.BYTES));
+                    } else {
+                        valuesSize += Integer.BYTES + getVarLength(c, row);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void unmapColumns() {
+        for (int i = 0; i < columnCount; i++) {
+            final ColumnSource c = columns.getQuick(i);
+            if (c.fixAddr != 0) {
+                ff.munmap(c.fixAddr, c.fixSize, MemoryTag.MMAP_TABLE_WRITER);
+                c.fixAddr = 0;
+            }
+            if (c.varAddr != 0) {
+                ff.munmap(c.varAddr, c.varSize, MemoryTag.MMAP_TABLE_WRITER);
+                c.varAddr = 0;
+            }
+            if (c.fixFd != -1) {
+                ff.close(c.fixFd);
+                c.fixFd = -1;
+            }
+            if (c.varFd != -1) {
+                ff.close(c.varFd);
+                c.varFd = -1;
+            }
+            c.fixSize = c.varSize = 0;
+        }
+    }
+
+    private void updateStats(long minCandidate, long maxCandidate, int cmpMin, int cmpMax) {
+        if (!hasStats) {
+            min = minCandidate;
+            max = maxCandidate;
+            hasStats = true;
+        } else {
+            if (cmpMin < 0) {
+                min = minCandidate;
+            }
+            if (cmpMax > 0) {
+                max = maxCandidate;
+            }
+        }
+    }
+
+    private void writeColumnChunk(ColumnSource c, long lo, long hi, int chunkIndex) {
+        final long chunkOffset = mem.getAppendOffset();
+        final long rowCount = hi - lo;
+        final boolean optional = getRepetition(c.type) == REPETITION_OPTIONAL;
+        scan(c, lo, hi);
+
+        final long groupCount = (rowCount + 7) / 8;
+        final long levelsSize = optional ? varintSize(groupCount << 1 | 1) + groupCount : 0;
+        final long pageSize = (optional ? Integer.BYTES + levelsSize : 0) + valuesSize;
+        if (pageSize > Integer.MAX_VALUE) {
+            throw CairoException.instance(0).put("parquet page is too large, reduce row group size [column=").put(c.name)
+                    .put(", size=").put(pageSize)
+                    .put(']');
+        }
+
+        // page header
+        thrift.of(mem);
+        thrift.structBegin();
+        thrift.i32Field(1, PAGE_TYPE_DATA);
+        thrift.i32Field(2, (int) pageSize);
+        thrift.i32Field(3, (int) pageSize);
+        thrift.structField(5);
+        thrift.i32Field(1, (int) rowCount);
+        thrift.i32Field(2, ENCODING_PLAIN);
+        thrift.i32Field(3, ENCODING_RLE);
+        thrift.i32Field(4, ENCODING_RLE);
+        thrift.structEnd();
+        thrift.structEnd();
+
+        final long pageOffset = mem.getAppendOffset();
+        if (optional) {
+            // definition levels as single bit-packed run of RLE hybrid encoding
+            mem.putInt((int) levelsSize);
+            long header = groupCount << 1 | 1;
+            while ((header & ~0x7fL) != 0) {
+                mem.putByte((byte) ((header & 0x7f) | 0x80));
+                header >>>= 7;
+            }
+            mem.putByte((byte) header);
+            for (long row = lo; row < hi; row += 8) {
+                int b = 0;
+                for (int j = 0, n = (int) Math.min(8, hi - row); j < n; j++) {
+                    if (!isNull(c, row + j)) {
+                        b |= 1 << j;
+                    }
+                }
+                mem.putByte((byte) b);
+            }
+        }
+
+        if (ColumnType.tagOf(c.type) == ColumnType.BOOLEAN) {
+            for (long row = lo; row < hi; row += 8) {
+                int b = 0;
+                for (int j = 0, n = (int) Math.min(8, hi - row); j < n; j++) {
+                    if (row + j >= c.top && Unsafe.getUnsafe().getByte(c.fixAddr + row + j - c.top) != 0) {
+                        b |= 1 << j;
+                    }
+                }
+                mem.putByte((byte) b);
+            }
+        } else {
+            for (long row = lo; row < hi; row++) {
+                if (!optional || !isNull(c, row)) {
+                    putValue(c, row);
+                }
+            }
+        }
+        assert mem.getAppendOffset() - pageOffset == pageSize;
+
+        chunkOffsets.extendAndSet(chunkIndex, chunkOffset);
+        chunkSizes.extendAndSet(chunkIndex, mem.getAppendOffset() - chunkOffset);
+        // required columns have no nulls to count
+        chunkNullCounts.extendAndSet(chunkIndex, optional ? nullCount : -1);
+        chunkMins.extendAndSet(chunkIndex, min);
+        chunkMaxs.extendAndSet(chunkIndex, max);
+        chunkHasStats.extendAndSet(chunkIndex, hasStats ? 1 : 0);
+    }
+
+    private void writeFooter() {
+        thrift.of(mem);
+        thrift.structBegin();
+        thrift.i32Field(1, VERSION);
+
+        // schema, root element followed by column elements
+        thrift.listField(2, CT_STRUCT, columnCount + 1);
+        thrift.structBegin();
+        thrift.stringField(4, "schema");
+        thrift.i32Field(5, columnCount);
+        thrift.structEnd();
+        for (int i = 0; i < columnCount; i++) {
+            final ColumnSource c = columns.getQuick(i);
+            thrift.structBegin();
+            thrift.i32Field(1, getPhysicalType(c.type));
+            final int typeLength = getTypeLength(c.type);
+            if (typeLength > 0) {
+                thrift.i32Field(2, typeLength);
+            }
+            thrift.i32Field(3, getRepetition(c.type));
+            thrift.stringField(4, c.name);
+            final int convertedType = getConvertedType(c.type);
+            if (convertedType != CONVERTED_NONE) {
+                thrift.i32Field(6, convertedType);
+            }
+            thrift.i32Field(9, c.fieldId);
+            thrift.structEnd();
+        }
+
+        thrift.i64Field(3, partitionSize);
+
+        final int rowGroupCount = rowGroupSizes.size() / 2;
+        thrift.listField(4, CT_STRUCT, rowGroupCount);
+        for (int g = 0; g < rowGroupCount; g++) {
+            final long rowCount = rowGroupSizes.getQuick(g * 2);
+            thrift.structBegin();
+            thrift.listField(1, CT_STRUCT, columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                final ColumnSource c = columns.getQuick(i);
+                final int chunkIndex = g * columnCount + i;
+                final long chunkOffset = chunkOffsets.getQuick(chunkIndex);
+                final long chunkSize = chunkSizes.getQuick(chunkIndex);
+                final int physicalType = getPhysicalType(c.type);
+                // column chunk
+                thrift.structBegin();
+                thrift.i64Field(2, chunkOffset);
+                thrift.structField(3);
+                thrift.i32Field(1, physicalType);
+                thrift.listField(2, CT_I32, 2);
+                thrift.i32ListElement(ENCODING_PLAIN);
+                thrift.i32ListElement(ENCODING_RLE);
+                thrift.listField(3, CT_BINARY, 1);
+                thrift.stringListElement(c.name);
+                thrift.i32Field(4, CODEC_UNCOMPRESSED);
+                thrift.i64Field(5, rowCount);
+                thrift.i64Field(6, chunkSize);
+                thrift.i64Field(7, chunkSize);
+                thrift.i64Field(9, chunkOffset);
+                final long nullCount = chunkNullCounts.getQuick(chunkIndex);
+                final boolean hasStats = chunkHasStats.getQuick(chunkIndex) == 1;
+                if (nullCount > -1 || hasStats) {
+                    thrift.structField(12);
+                    if (nullCount > -1) {
+                        thrift.i64Field(3, nullCount);
+                    }
+                    if (hasStats) {
+                        putStatistic(5, physicalType, chunkMaxs.getQuick(chunkIndex));
+                        putStatistic(6, physicalType, chunkMins.getQuick(chunkIndex));
+                    }
+                    thrift.structEnd();
+                }
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            thrift.i64Field(2, rowGroupSizes.getQuick(g * 2 + 1));
+            thrift.i64Field(3, rowCount);
+            thrift.structEnd();
+        }
+        thrift.stringField(6, CREATED_BY);
+        thrift.structEnd();
+    }
+
+    private static class ColumnSource {
+        private String name;
+        private int fieldId;
+        private int type;
+        private long columnNameTxn;
+        private long top;
+        private SymbolTable symbolTable;
+        private long fixFd = -1;
+        private long fixAddr;
+        private long fixSize;
+        private long varFd = -1;
+        private long varAddr;
+        private long varSize;
+    }
+}
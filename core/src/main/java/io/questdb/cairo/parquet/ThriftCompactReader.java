@@ -0,0 +1,228 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.parquet;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.std.Chars;
+import io.questdb.std.IntList;
+import io.questdb.std.Unsafe;
+
+import static io.questdb.cairo.parquet.ThriftCompactWriter.*;
+
+/**
+ * Reads Thrift compact protocol from native memory. Callers iterate struct fields with
+ * {@link #nextField()} and either read the value or {@link #skip(int)} it.
+ */
+class ThriftCompactReader {
+    private final IntList lastFieldIdStack = new IntList();
+    private long p;
+    private long hi;
+    private int lastFieldId;
+    private int fieldType;
+    private int listSize;
+    private int listElementType;
+
+    int getFieldType() {
+        return fieldType;
+    }
+
+    int getListElementType() {
+        return listElementType;
+    }
+
+    int getListSize() {
+        return listSize;
+    }
+
+    long getPosition() {
+        return p;
+    }
+
+    boolean readBool() {
+        return fieldType == CT_BOOLEAN_TRUE;
+    }
+
+    int readI32() {
+        final int v = (int) varint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    long readI64() {
+        final long v = varint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Reads binary field header.
+     *
+     * @return address of binary value, its length is available via {@link #getListSize()}
+     */
+    long readBinary() {
+        listSize = (int) varint();
+        final long lo = p;
+        p += listSize;
+        checkBounds();
+        return lo;
+    }
+
+    void readListBegin() {
+        final int b = readByte();
+        listElementType = b & 0x0f;
+        listSize = (b >> 4) & 0x0f;
+        if (listSize == 15) {
+            listSize = (int) varint();
+        }
+    }
+
+    String readString() {
+        final long lo = readBinary();
+        return Chars.stringFromUtf8Bytes(lo, lo + listSize);
+    }
+
+    /**
+     * Advances to next field of current struct.
+     *
+     * @return field id or -1 when struct has ended
+     */
+    int nextField() {
+        final int b = readByte();
+        fieldType = b & 0x0f;
+        if (fieldType == CT_STOP) {
+            lastFieldId = lastFieldIdStack.getLast();
+            lastFieldIdStack.removeIndex(lastFieldIdStack.size() - 1);
+            return -1;
+        }
+        final int delta = (b >> 4) & 0x0f;
+        if (delta != 0) {
+            lastFieldId += delta;
+        } else {
+            lastFieldId = readI32();
+        }
+        return lastFieldId;
+    }
+
+    ThriftCompactReader of(long lo, long hi) {
+        this.p = lo;
+        this.hi = hi;
+        this.lastFieldId = 0;
+        this.lastFieldIdStack.clear();
+        return this;
+    }
+
+    void skip(int type) {
+        switch (type) {
+            case CT_BOOLEAN_TRUE:
+            case CT_BOOLEAN_FALSE:
+                break;
+            case CT_BYTE:
+                p++;
+                break;
+            case CT_I16:
+            case CT_I32:
+            case CT_I64:
+                varint();
+                break;
+            case CT_DOUBLE:
+                p += Double.BYTES;
+                break;
+            case CT_BINARY:
+                readBinary();
+                break;
+            case CT_LIST:
+            case CT_SET:
+                readListBegin();
+                final int elementType = listElementType;
+                for (int i = 0, n = listSize; i < n; i++) {
+                    // booleans in collections take a byte each
+                    if (elementType == CT_BOOLEAN_TRUE || elementType == CT_BOOLEAN_FALSE) {
+                        p++;
+                    } else {
+                        skip(elementType);
+                    }
+                }
+                break;
+            case CT_MAP:
+                final int size = (int) varint();
+                if (size > 0) {
+                    final int types = readByte();
+                    for (int i = 0; i < size; i++) {
+                        skip((types >> 4) & 0x0f);
+                        skip(types & 0x0f);
+                    }
+                }
+                break;
+            case CT_STRUCT:
+                structBegin();
+                int id;
+                while ((id = nextField()) != -1) {
+                    assert id > -1;
+                    skip(fieldType);
+                }
+                break;
+            default:
+                throw CairoException.instance(0).put("corrupt parquet metadata [type=").put(type).put(']');
+        }
+        checkBounds();
+    }
+
+    void skipField() {
+        skip(fieldType);
+    }
+
+    void structBegin() {
+        lastFieldIdStack.add(lastFieldId);
+        lastFieldId = 0;
+    }
+
+    private void checkBounds() {
+        if (p > hi) {
+            throw CairoException.instance(0).put("corrupt parquet metadata, read past the end");
+        }
+    }
+
+    private int readByte() {
+        if (p >= hi) {
+            throw CairoException.instance(0).put("corrupt parquet metadata, read past the end");
+        }
+        return Unsafe.getUnsafe().getByte(p++) & 0xff;
+    }
+
+    private long varint() {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            final int b = readByte();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw CairoException.instance(0).put("corrupt parquet metadata, varint is too long");
+            }
+        }
+    }
+}
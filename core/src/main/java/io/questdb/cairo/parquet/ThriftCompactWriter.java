@@ -0,0 +1,147 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.parquet;
+
+import io.questdb.cairo.vm.api.MemoryA;
+import io.questdb.std.IntList;
+
+/**
+ * Writes Thrift structures using compact protocol, which is how Parquet
+ * serializes its page headers and file footer.
+ */
+class ThriftCompactWriter {
+    static final int CT_STOP = 0;
+    static final int CT_BOOLEAN_TRUE = 1;
+    static final int CT_BOOLEAN_FALSE = 2;
+    static final int CT_BYTE = 3;
+    static final int CT_I16 = 4;
+    static final int CT_I32 = 5;
+    static final int CT_I64 = 6;
+    static final int CT_DOUBLE = 7;
+    static final int CT_BINARY = 8;
+    static final int CT_LIST = 9;
+    static final int CT_SET = 10;
+    static final int CT_MAP = 11;
+    static final int CT_STRUCT = 12;
+
+    private final IntList lastFieldIdStack = new IntList();
+    private int lastFieldId;
+    private MemoryA mem;
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    void binaryField(int id, long lo, int len) {
+        fieldBegin(id, CT_BINARY);
+        varint(len);
+        mem.putBlockOfBytes(lo, len);
+    }
+
+    void i32Field(int id, int value) {
+        fieldBegin(id, CT_I32);
+        varint(zigzag(value));
+    }
+
+    void i64Field(int id, long value) {
+        fieldBegin(id, CT_I64);
+        varint(zigzag(value));
+    }
+
+    void i32ListElement(int value) {
+        varint(zigzag(value));
+    }
+
+    void listField(int id, int elementType, int size) {
+        fieldBegin(id, CT_LIST);
+        if (size < 15) {
+            mem.putByte((byte) (size << 4 | elementType));
+        } else {
+            mem.putByte((byte) (0xf0 | elementType));
+            varint(size);
+        }
+    }
+
+    ThriftCompactWriter of(MemoryA mem) {
+        this.mem = mem;
+        this.lastFieldId = 0;
+        this.lastFieldIdStack.clear();
+        return this;
+    }
+
+    void stringField(int id, CharSequence value) {
+        fieldBegin(id, CT_BINARY);
+        stringListElement(value);
+    }
+
+    void stringListElement(CharSequence value) {
+        varint(ParquetFormat.utf8Length(value));
+        ParquetFormat.putUtf8(mem, value);
+    }
+
+    void structBegin() {
+        lastFieldIdStack.add(lastFieldId);
+        lastFieldId = 0;
+    }
+
+    void structEnd() {
+        mem.putByte((byte) CT_STOP);
+        lastFieldId = lastFieldIdStack.getLast();
+        lastFieldIdStack.removeIndex(lastFieldIdStack.size() - 1);
+    }
+
+    void structField(int id) {
+        fieldBegin(id, CT_STRUCT);
+        structBegin();
+    }
+
+    private void fieldBegin(int id, int type) {
+        final int delta = id - lastFieldId;
+        if (delta > 0 && delta < 16) {
+            mem.putByte((byte) (delta << 4 | type));
+        } else {
+            mem.putByte((byte) type);
+            varint(zigzag(id));
+        }
+        lastFieldId = id;
+    }
+
+    private void varint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            mem.putByte((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        mem.putByte((byte) value);
+    }
+
+    private void varint(int value) {
+        varint(value & 0xffffffffL);
+    }
+}
@@ -25,9 +25,13 @@
 package io.questdb.cairo.sql;
 
 import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.cairo.vm.api.MemoryCARW;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.table.ZoneMapFilter;
+import io.questdb.jit.CompiledFilter;
 import io.questdb.mp.Sequence;
+import io.questdb.std.ObjList;
 import io.questdb.std.Sinkable;
 import io.questdb.std.str.CharSink;
 
@@ -123,6 +127,18 @@ public interface RecordCursorFactory extends Closeable, Sinkable {
         return null;
     }
 
+    /**
+     * Attaches zone map filter to the page frames of this factory, the filter is then used to
+     * skip blocks of rows, which cannot match. Factory takes ownership of the filter when it
+     * accepts it.
+     *
+     * @param filter zone map filter compiled against metadata of this factory
+     * @return true when filter is accepted
+     */
+    default boolean setZoneMapFilter(ZoneMapFilter filter) {
+        return false;
+    }
+
     /* Returns true if this factory handles limit M , N clause already and false otherwise .
      *  If true then separate limit cursor factory is not needed (and could actually cause problem by re-applying limit logic).   */
     default boolean implementsLimit() {
@@ -133,6 +149,49 @@ public interface RecordCursorFactory extends Closeable, Sinkable {
         return false;
     }
 
+    /**
+     * Filter stealing lets a parent factory, such as parallel group-by, evaluate the filter
+     * as part of its own page frame reduction instead of consuming filtered rows through a cursor.
+     * The parent takes ownership of the base factory and the filter components, and then calls
+     * {@link #halfClose()} on this factory.
+     *
+     * @return true when base factory and filter can be taken over by the parent factory
+     */
+    default boolean supportsFilterStealing() {
+        return false;
+    }
+
+    default RecordCursorFactory getBaseFactory() {
+        return null;
+    }
+
+    default Function getFilter() {
+        return null;
+    }
+
+    default ObjList<Function> getPerWorkerFilters() {
+        return null;
+    }
+
+    default CompiledFilter getCompiledFilter() {
+        return null;
+    }
+
+    default MemoryCARW getBindVarMemory() {
+        return null;
+    }
+
+    default ObjList<Function> getBindVarFunctions() {
+        return null;
+    }
+
+    /**
+     * Releases resources of this factory except for the base factory and the filter
+     * components, which have been stolen by the parent factory.
+     */
+    default void halfClose() {
+    }
+
     // Factories, such as union all do not conform to the assumption
     // that key read from symbol column map to symbol values unambiguously.
     // In that if you read key 1 at row 10, it might map to 'AAA' and if you read
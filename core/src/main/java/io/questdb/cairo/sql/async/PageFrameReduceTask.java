@@ -30,6 +30,7 @@ import io.questdb.cairo.sql.StatefulAtom;
 import io.questdb.std.DirectLongList;
 import io.questdb.std.MemoryTag;
 import io.questdb.std.Misc;
+import io.questdb.std.str.DirectByteCharSink;
 
 import java.io.Closeable;
 
@@ -38,6 +39,10 @@ public class PageFrameReduceTask implements Closeable {
     private final DirectLongList rows;
     // Used to pass the list of column page frame addresses to a JIT-compiled filter.
     private final DirectLongList columns;
+    // Used to pass rows formatted as text, e.g. JSON, to the query owner.
+    private final DirectByteCharSink output = new DirectByteCharSink(0, MemoryTag.NATIVE_OFFLOAD);
+    // End offsets of the values written to output, output is sent to the client in whole values.
+    private final DirectLongList outputOffsets;
     private final long pageFrameQueueCapacity;
     private int frameIndex = Integer.MAX_VALUE;
     private PageFrameSequence<?> frameSequence;
@@ -45,6 +50,7 @@ public class PageFrameReduceTask implements Closeable {
     public PageFrameReduceTask(CairoConfiguration configuration) {
         this.rows = new DirectLongList(configuration.getPageFrameReduceRowIdListCapacity(), MemoryTag.NATIVE_OFFLOAD);
         this.columns = new DirectLongList(configuration.getPageFrameReduceColumnListCapacity(), MemoryTag.NATIVE_OFFLOAD);
+        this.outputOffsets = new DirectLongList(configuration.getPageFrameReduceRowIdListCapacity(), MemoryTag.NATIVE_OFFLOAD);
         this.pageFrameQueueCapacity = configuration.getPageFrameReduceQueueCapacity();
     }
 
@@ -52,6 +58,8 @@ public class PageFrameReduceTask implements Closeable {
     public void close() {
         Misc.free(rows);
         Misc.free(columns);
+        Misc.free(output);
+        Misc.free(outputOffsets);
     }
 
     void collected() {
@@ -80,6 +88,8 @@ public class PageFrameReduceTask implements Closeable {
     public void resetCapacities() {
         rows.resetCapacity();
         columns.resetCapacity();
+        output.resetCapacity();
+        outputOffsets.resetCapacity();
     }
 
     public DirectLongList getColumns() {
@@ -103,6 +113,14 @@ public class PageFrameReduceTask implements Closeable {
         return (PageFrameSequence<T>) frameSequence;
     }
 
+    public DirectByteCharSink getOutput() {
+        return output;
+    }
+
+    public DirectLongList getOutputOffsets() {
+        return outputOffsets;
+    }
+
     public PageAddressCache getPageAddressCache() {
         return frameSequence.getPageAddressCache();
     }
@@ -115,5 +133,7 @@ public class PageFrameReduceTask implements Closeable {
         this.frameSequence = frameSequence;
         this.frameIndex = frameIndex;
         rows.clear();
+        output.clear();
+        outputOffsets.clear();
     }
 }
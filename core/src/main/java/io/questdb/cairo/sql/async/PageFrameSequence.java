@@ -54,6 +54,7 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
     private final PageAddressCache pageAddressCache;
     private final MessageBus messageBus;
     private final MicrosecondClock microsecondClock;
+    private final CairoConfiguration configuration;
     private long id;
     private int shard;
     private int dispatchStartFrameIndex;
@@ -66,23 +67,25 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
     private PageAddressCacheRecord record;
     private SqlExecutionCircuitBreaker circuitBreaker;
     // Local reduce task used when there is no slots in the queue to dispatch tasks.
+    // It is owned by the sequence, factories may be executed by threads other than
+    // the one that compiled them, so the task can't come from a per-compiler pool.
     private PageFrameReduceTask localTask;
-    private final WeakClosableObjectPool<PageFrameReduceTask> localTaskPool;
     private long startTimeUs;
     private long circuitBreakerFd;
     private SqlExecutionContext sqlExecutionContext;
+    // set when frames are set up one partition at a time, see nextPartition()
+    private PageFrameCursor pageFrameCursor;
 
     public PageFrameSequence(
             CairoConfiguration configuration,
             MessageBus messageBus,
-            PageFrameReducer reducer,
-            WeakClosableObjectPool<PageFrameReduceTask> localTaskPool
+            PageFrameReducer reducer
     ) {
+        this.configuration = configuration;
         this.pageAddressCache = new PageAddressCache(configuration);
         this.messageBus = messageBus;
         this.reducer = reducer;
         this.microsecondClock = configuration.getMicrosecondClock();
-        this.localTaskPool = localTaskPool;
     }
 
     /**
@@ -136,6 +139,7 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
         dispatchStartFrameIndex = 0;
         collectedFrameIndex = -1;
         pageAddressCache.clear();
+        pageFrameCursor = null;
         symbolTableSource = Misc.free(symbolTableSource);
         // collect sequence may not be set here when
         // factory is closed without using cursor
@@ -146,8 +150,6 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
         }
         if (localTask != null) {
             localTask.resetCapacities();
-            localTaskPool.push(localTask);
-            localTask = null;
         }
     }
 
@@ -155,6 +157,7 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
     public void close() {
         Misc.free(circuitBreaker);
         Misc.free(record);
+        localTask = Misc.free(localTask);
     }
 
     public PageFrameSequence<T> of(
@@ -164,6 +167,25 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
             T atom,
             int order
     ) throws SqlException {
+        return of(base, executionContext, collectSubSeq, atom, order, false);
+    }
+
+    /**
+     * Prepares the sequence for dispatch.
+     *
+     * @param partitionAtATime when true, only frames of the first partition are set up, further
+     *                         partitions are set up by {@link #nextPartition()}, so that the query
+     *                         owner can stop before older partitions are opened. Frames should be
+     *                         in descending order, a partition ends with the frame at its row 0.
+     */
+    public PageFrameSequence<T> of(
+            RecordCursorFactory base,
+            SqlExecutionContext executionContext,
+            Sequence collectSubSeq,
+            T atom,
+            int order,
+            boolean partitionAtATime
+    ) throws SqlException {
 
         this.sqlExecutionContext = executionContext;
         this.startTimeUs = microsecondClock.getTicks();
@@ -174,7 +196,15 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
         final Rnd rnd = executionContext.getAsyncRandom();
         try {
             final PageFrameCursor pageFrameCursor = base.getPageFrameCursor(executionContext, order);
-            final int frameCount = setupAddressCache(base, pageFrameCursor);
+            final int frameCount;
+            try {
+                this.pageAddressCache.of(base.getMetadata());
+                frameCount = setupAddressCache(pageFrameCursor, 0, partitionAtATime);
+            } catch (Throwable e) {
+                Misc.free(pageFrameCursor);
+                throw e;
+            }
+            this.pageFrameCursor = partitionAtATime ? pageFrameCursor : null;
 
             // this method sets a lot of state of the page sequence
             prepareForDispatch(rnd, frameCount, pageFrameCursor, atom, collectSubSeq);
@@ -398,7 +428,7 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
         assert dispatchStartFrameIndex < frameCount;
 
         if (localTask == null) {
-            localTask = localTaskPool.pop();
+            localTask = new PageFrameReduceTask(configuration);
         }
         localTask.of(this, dispatchStartFrameIndex++);
 
@@ -458,6 +488,28 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
         }
     }
 
+    /**
+     * Sets up frames of the next partition when the sequence was prepared to go a partition
+     * at a time. Must be called once all the frames dispatched so far are collected, so that
+     * workers do not read page address cache while it grows. The method is not thread-safe.
+     *
+     * @return false when there are no more frames to dispatch
+     */
+    public boolean nextPartition() {
+        assert collectedFrameIndex == frameCount - 1;
+        if (pageFrameCursor == null || !isActive()) {
+            return false;
+        }
+        final int frameCount = setupAddressCache(pageFrameCursor, this.frameCount, true);
+        if (frameCount == 0) {
+            return false;
+        }
+        // done latch was counted down once the last frame of the previous partition got collected
+        doneLatch.reset();
+        this.frameCount += frameCount;
+        return true;
+    }
+
     private void initRecord(SqlExecutionCircuitBreaker executionContextCircuitBreaker) {
         if (record == null) {
             final SqlExecutionCircuitBreakerConfiguration sqlExecutionCircuitBreakerConfiguration = executionContextCircuitBreaker.getConfiguration();
@@ -492,18 +544,19 @@ public class PageFrameSequence<T extends StatefulAtom> implements Closeable {
         this.collectSubSeq = collectSubSeq;
     }
 
-    private int setupAddressCache(RecordCursorFactory base, PageFrameCursor pageFrameCursor) {
+    private int setupAddressCache(PageFrameCursor pageFrameCursor, int frameIndex, boolean partitionAtATime) {
         // pass one to cache page addresses
         // this has to be separate pass to ensure there no cache reads
         // while cache might be resizing
-        this.pageAddressCache.of(base.getMetadata());
-
         PageFrame frame;
-        int frameIndex = 0;
+        final int frameLo = frameIndex;
         while ((frame = pageFrameCursor.next()) != null) {
-            this.pageAddressCache.add(frameIndex++, frame);
-            frameRowCounts.add(frame.getPartitionHi() - frame.getPartitionLo());
+            this.pageAddressCache.add(frameIndex, frame);
+            frameRowCounts.extendAndSet(frameIndex++, frame.getPartitionHi() - frame.getPartitionLo());
+            if (partitionAtATime && frame.getPartitionLo() == 0) {
+                break;
+            }
         }
-        return frameIndex;
+        return frameIndex - frameLo;
     }
 }
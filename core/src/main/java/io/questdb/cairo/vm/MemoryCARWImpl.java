@@ -29,10 +29,12 @@ import io.questdb.griffin.engine.LimitOverflowException;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.std.Long256Acceptor;
+import io.questdb.std.Misc;
 import io.questdb.std.Mutable;
 import io.questdb.std.Numbers;
 import io.questdb.std.Unsafe;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A version of {@link MemoryPARWImpl} that uses a single contiguous memory region instead of pages. 
@@ -47,10 +49,17 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
     private long sizeMsb;
     private long appendAddress = 0;
     private final int memoryTag;
+    // when set, memory over the page limit is spilled to disk instead of failing
+    private final SpillFile spillFile;
 
     public MemoryCARWImpl(long pageSize, int maxPages, int memoryTag) {
+        this(pageSize, maxPages, memoryTag, null);
+    }
+
+    public MemoryCARWImpl(long pageSize, int maxPages, int memoryTag, @Nullable SpillFile spillFile) {
         this.memoryTag = memoryTag;
         this.maxPages = maxPages;
+        this.spillFile = spillFile;
         setPageSize(pageSize);
     }
 
@@ -129,7 +138,11 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
     public void clear() {
         if (pageAddress != 0) {
             long baseLength = lim - pageAddress;
-            Unsafe.free(pageAddress, baseLength, memoryTag);
+            if (spillFile != null) {
+                spillFile.free(pageAddress, baseLength, memoryTag);
+            } else {
+                Unsafe.free(pageAddress, baseLength, memoryTag);
+            }
             handleMemoryReleased();
             size = 0;
         }
@@ -141,6 +154,7 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
         pageAddress = 0;
         lim = 0;
         appendAddress = 0;
+        Misc.free(spillFile);
     }
 
     public void extend(long size) {
@@ -174,7 +188,7 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
         long nPages = (size >>> sizeMsb) + 1;
         size = nPages << sizeMsb;
         final long oldSize = size();
-        if (nPages > maxPages) {
+        if (nPages > maxPages && spillFile == null) {
             throw LimitOverflowException.instance().put("Maximum number of pages (").put(maxPages).put(") breached in VirtualMemory");
         }
         final long newBaseAddress = reallocateMemory(pageAddress, size(), size);
@@ -204,6 +218,9 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
     }
 
     protected long reallocateMemory(long currentBaseAddress, long currentSize, long newSize) {
+        if (spillFile != null) {
+            return spillFile.realloc(currentBaseAddress, currentSize, newSize, memoryTag);
+        }
         if (currentBaseAddress != 0) {
             return Unsafe.realloc(currentBaseAddress, currentSize, newSize, memoryTag);
         }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnCodecs;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.LPSZ;
+
+//contiguous readable, decoded from compressed column file into native memory
+public class MemoryCMRCodecImpl extends AbstractMemoryCR implements MemoryCMR {
+    private static final Log LOG = LogFactory.getLog(MemoryCMRCodecImpl.class);
+
+    @Override
+    public void close() {
+        if (pageAddress != 0) {
+            Unsafe.free(pageAddress, size, MemoryTag.NATIVE_TABLE_READER);
+            this.size = 0;
+            this.pageAddress = 0;
+        }
+        if (fd != -1) {
+            ff.close(fd);
+            LOG.debug().$("closed [fd=").$(fd).$(']').$();
+            fd = -1;
+        }
+        grownLength = 0;
+    }
+
+    @Override
+    public void extend(long newSize) {
+        if (newSize > size) {
+            // compressed partitions are read-only, writer decompresses partition before it changes it
+            throw CairoException.instance(0).put("cannot extend compressed column [fd=").put(fd)
+                    .put(", size=").put(size)
+                    .put(", newSize=").put(newSize)
+                    .put(']');
+        }
+        grownLength = Math.max(newSize, grownLength);
+    }
+
+    @Override
+    public boolean isMapped(long offset, long len) {
+        return offset + len <= size();
+    }
+
+    @Override
+    public void of(FilesFacade ff, LPSZ name, long extendSegmentSize, long size, int memoryTag, long opts) {
+        close();
+        this.ff = ff;
+        fd = TableUtils.openRO(ff, name, LOG);
+        final long fileSize = ff.length(fd);
+        if (fileSize < ColumnCodecs.HEADER_SIZE) {
+            close();
+            throw CairoException.instance(0).put("compressed column file is too small [file=").put(name).put(", size=").put(fileSize).put(']');
+        }
+        final long addr = TableUtils.mapRO(ff, fd, fileSize, memoryTag);
+        try {
+            final long decodedSize = ColumnCodecs.getDecodedSize(addr);
+            if (decodedSize < size) {
+                throw CairoException.instance(0).put("compressed column file is too small [file=").put(name)
+                        .put(", expectedSize=").put(size)
+                        .put(", actual=").put(decodedSize)
+                        .put(']');
+            }
+            if (decodedSize > 0) {
+                this.pageAddress = Unsafe.malloc(decodedSize, MemoryTag.NATIVE_TABLE_READER);
+                this.size = decodedSize;
+                ColumnCodecs.decode(addr, fileSize, pageAddress);
+            }
+        } catch (Throwable e) {
+            close();
+            throw e;
+        } finally {
+            ff.munmap(addr, fileSize, memoryTag);
+        }
+        // ---------------V leave a space here for alignment with open log message
+        LOG.debug().$("decoded [file=").$(name).$(", fd=").$(fd).$(", fileSize=").$(fileSize).$(", size=").$(this.size).$(']').$();
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.std.Files;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Unsafe;
+import io.questdb.std.Vect;
+import io.questdb.std.str.LPSZ;
+
+//contiguous readable, holds copy of column values decoded from non-native partition format
+public class MemoryCMRDecodedImpl extends AbstractMemoryCR implements MemoryCMR {
+    private long allocatedSize;
+
+    @Override
+    public void close() {
+        if (pageAddress != 0) {
+            Unsafe.free(pageAddress, allocatedSize, MemoryTag.NATIVE_TABLE_READER);
+            this.size = 0;
+            this.allocatedSize = 0;
+            this.pageAddress = 0;
+        }
+        grownLength = 0;
+    }
+
+    @Override
+    public void extend(long newSize) {
+        if (newSize > size) {
+            // decoded partitions are read-only, writer converts partition to native format before it changes it
+            throw CairoException.instance(0).put("cannot extend decoded column [size=").put(size)
+                    .put(", newSize=").put(newSize)
+                    .put(']');
+        }
+        grownLength = Math.max(newSize, grownLength);
+    }
+
+    @Override
+    public boolean isMapped(long offset, long len) {
+        return offset + len <= size();
+    }
+
+    @Override
+    public void of(FilesFacade ff, LPSZ name, long extendSegmentSize, long size, int memoryTag, long opts) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Copies decoded values into memory owned by this instance. Memory is rounded up to the page
+     * size and the tail is zeroed, same as with mapped column file: vectorised aggregate functions
+     * read whole SIMD blocks and may go past the last value.
+     *
+     * @param ff   files facade of the table
+     * @param lo   address of decoded values
+     * @param size size of decoded values in bytes
+     */
+    public void of(FilesFacade ff, long lo, long size) {
+        close();
+        this.ff = ff;
+        if (size > 0) {
+            this.allocatedSize = Files.ceilPageSize(size);
+            this.pageAddress = Unsafe.malloc(allocatedSize, MemoryTag.NATIVE_TABLE_READER);
+            this.size = size;
+            Vect.memcpy(pageAddress, lo, size);
+            Vect.memset(pageAddress + size, allocatedSize - size, 0);
+        }
+    }
+}
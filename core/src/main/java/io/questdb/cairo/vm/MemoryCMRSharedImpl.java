@@ -0,0 +1,140 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.StringSink;
+
+//contiguous mapped readable, mapping is shared with other readers of the same file via MmapCache
+public class MemoryCMRSharedImpl extends AbstractMemoryCR implements MemoryCMR {
+    private static final Log LOG = LogFactory.getLog(MemoryCMRSharedImpl.class);
+    private final MmapCache cache;
+    private final StringSink name = new StringSink();
+    private MmapCache.Mapping mapping;
+    private int memoryTag = MemoryTag.MMAP_DEFAULT;
+    private int tableId;
+    private long truncateVersion;
+
+    public MemoryCMRSharedImpl(MmapCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void close() {
+        releaseMapping();
+        this.size = 0;
+        if (fd != -1) {
+            ff.close(fd);
+            LOG.debug().$("closed [fd=").$(fd).$(']').$();
+            fd = -1;
+        }
+        grownLength = 0;
+    }
+
+    @Override
+    public void extend(long newSize) {
+        grownLength = Math.max(newSize, grownLength);
+        if (newSize > size) {
+            if (mapping != null && newSize <= mapping.getSize()) {
+                size = newSize;
+            } else {
+                setSize0(newSize);
+            }
+        }
+    }
+
+    @Override
+    public boolean isMapped(long offset, long len) {
+        return offset + len <= size();
+    }
+
+    @Override
+    public void of(FilesFacade ff, LPSZ name, long extendSegmentSize, long size, int memoryTag, long opts) {
+        of(ff, name, size, memoryTag, tableId, truncateVersion);
+    }
+
+    /**
+     * Opens file and maps it, mapping of the file is shared with other readers of the same
+     * version of the table.
+     *
+     * @param ff              files facade
+     * @param name            file name
+     * @param size            size to map, file length is used when negative
+     * @param memoryTag       memory tag for diagnostics
+     * @param tableId         id of the table the file belongs to
+     * @param truncateVersion truncate version of the table
+     */
+    public void of(FilesFacade ff, LPSZ name, long size, int memoryTag, int tableId, long truncateVersion) {
+        close();
+        this.ff = ff;
+        this.memoryTag = memoryTag;
+        this.tableId = tableId;
+        this.truncateVersion = truncateVersion;
+        this.name.clear();
+        this.name.put(name);
+        fd = TableUtils.openRO(ff, name, LOG);
+        if (size < 0) {
+            size = ff.length(fd);
+            if (size < 0) {
+                close();
+                throw CairoException.instance(ff.errno()).put("Could not get length: ").put(name);
+            }
+        }
+        if (size > 0) {
+            setSize0(size);
+        }
+
+        // ---------------V leave a space here for alignment with open log message
+        LOG.debug().$("map  [file=").$(name).$(", fd=").$(fd).$(", size=").$(this.size).$(']').$();
+    }
+
+    private void releaseMapping() {
+        if (mapping != null) {
+            cache.release(mapping);
+            mapping = null;
+            pageAddress = 0;
+        }
+    }
+
+    private void setSize0(long newSize) {
+        try {
+            final MmapCache.Mapping m = cache.acquire(ff, name, fd, newSize, memoryTag, tableId, truncateVersion);
+            releaseMapping();
+            mapping = m;
+            pageAddress = m.getAddress();
+            size = newSize;
+        } catch (Throwable e) {
+            close();
+            throw e;
+        }
+    }
+}
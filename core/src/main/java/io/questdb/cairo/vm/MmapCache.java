@@ -0,0 +1,161 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.TableUtils;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.Chars;
+import io.questdb.std.ConcurrentHashMap;
+import io.questdb.std.FilesFacade;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide cache of read-only file mappings. Readers of the same file share single mapping,
+ * which is reference counted and unmapped when the last reader releases it.
+ * <p>
+ * Mappings are never remapped, other readers hold addresses of them. When reader needs more
+ * of the file than cached mapping covers, larger mapping replaces it in the cache and readers
+ * of the smaller one carry on until they release it.
+ * <p>
+ * File path alone does not identify file contents, partition directory can be removed and
+ * created again under the same name. Table id and truncate version of the table are matched
+ * too, file mapped under different versions is not shared.
+ * <p>
+ * Cache is lock-free. Mapping that lost the race to be cached is used by its reader alone.
+ */
+public class MmapCache {
+    public static final MmapCache INSTANCE = new MmapCache();
+    private static final Log LOG = LogFactory.getLog(MmapCache.class);
+    private final ConcurrentHashMap<Mapping> mappings = new ConcurrentHashMap<>();
+
+    /**
+     * Acquires mapping of at least given size of the file.
+     *
+     * @param ff              files facade, mappings are shared between users of the same facade only
+     * @param name            file name, used as cache key
+     * @param fd              descriptor of the file opened for reading, used when file is not mapped yet
+     * @param size            minimum size of the mapping, must be positive
+     * @param memoryTag       memory tag for diagnostics
+     * @param tableId         id of the table the file belongs to
+     * @param truncateVersion truncate version of the table
+     * @return mapping, which must be released via {@link #release(Mapping)}
+     */
+    public Mapping acquire(
+            FilesFacade ff,
+            CharSequence name,
+            long fd,
+            long size,
+            int memoryTag,
+            int tableId,
+            long truncateVersion
+    ) {
+        assert size > 0;
+        final Mapping cached = mappings.get(name);
+        if (cached != null
+                && cached.ff == ff
+                && cached.memoryTag == memoryTag
+                && cached.tableId == tableId
+                && cached.truncateVersion == truncateVersion
+                && cached.size >= size
+                && cached.tryRetain()) {
+            return cached;
+        }
+
+        final long address = TableUtils.mapRO(ff, fd, size, memoryTag);
+        final Mapping mapping = new Mapping(
+                cached != null ? cached.name : Chars.toString(name),
+                ff,
+                address,
+                size,
+                memoryTag,
+                tableId,
+                truncateVersion
+        );
+        // replaced mapping, if any, is unmapped when its last user releases it
+        if (cached != null) {
+            mappings.replace(mapping.name, cached, mapping);
+        } else {
+            mappings.putIfAbsent(mapping.name, mapping);
+        }
+        LOG.debug().$("mapped [file=").$(name).$(", size=").$(size).$(']').$();
+        return mapping;
+    }
+
+    public int getMappingCount() {
+        return mappings.size();
+    }
+
+    public void release(Mapping mapping) {
+        final int refCount = mapping.refCount.decrementAndGet();
+        assert refCount >= 0;
+        if (refCount == 0) {
+            mappings.remove(mapping.name, mapping);
+            mapping.ff.munmap(mapping.address, mapping.size, mapping.memoryTag);
+        }
+    }
+
+    public static class Mapping {
+        private final String name;
+        private final FilesFacade ff;
+        private final long address;
+        private final long size;
+        private final int memoryTag;
+        private final int tableId;
+        private final long truncateVersion;
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        private Mapping(String name, FilesFacade ff, long address, long size, int memoryTag, int tableId, long truncateVersion) {
+            this.name = name;
+            this.ff = ff;
+            this.address = address;
+            this.size = size;
+            this.memoryTag = memoryTag;
+            this.tableId = tableId;
+            this.truncateVersion = truncateVersion;
+        }
+
+        public long getAddress() {
+            return address;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        // mapping released by its last user is being unmapped and cannot be retained again
+        private boolean tryRetain() {
+            int count;
+            do {
+                count = refCount.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!refCount.compareAndSet(count, count + 1));
+            return true;
+        }
+    }
+}
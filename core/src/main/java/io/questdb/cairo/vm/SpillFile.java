@@ -0,0 +1,235 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableUtils;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of SQL operator memory, such as a map heap, a record chain or pages of tree nodes.
+ * Memory is allocated on the native heap until it outgrows the memory budget. After that it is
+ * taken from a temporary memory-mapped file under the spill root, so that the OS pages it out
+ * to that file rather than to swap.
+ * <p>
+ * An instance serves either a single contiguous region, see {@link #realloc(long, long, long, int)},
+ * or a set of fixed-size pages that never move, see {@link #allocatePage(long, int)}. A region moves
+ * back to the heap once it shrinks to the budget, pages stay where they are until they are freed.
+ * The first allocation, i.e. initial capacity of the container, is always on the heap, so that the
+ * spill file is not held open by an idle container.
+ * <p>
+ * Spill files are removed as soon as they are created, where the OS allows that, and otherwise
+ * when the memory is freed.
+ */
+public class SpillFile implements Closeable {
+    private static final Log LOG = LogFactory.getLog(SpillFile.class);
+    private static final AtomicLong NEXT_ID = new AtomicLong(Os.currentTimeMicros());
+    private final FilesFacade ff;
+    private final CharSequence root;
+    private final int mkDirMode;
+    private final long memoryBudget;
+    // address and size pairs of mapped extents pages are carved out from
+    private final LongList extents = new LongList();
+    private Path path;
+    private long fd = -1;
+    private boolean removed;
+    private int heapPageCount;
+    private long extentAddress;
+    private long extentRemaining;
+    private long fileSize;
+
+    /**
+     * @param configuration provides spill root and the configured memory budget
+     * @param memoryLimit   the limit the caller would otherwise fail on, the budget is the smaller of the two
+     */
+    public SpillFile(CairoConfiguration configuration, long memoryLimit) {
+        this.ff = configuration.getFilesFacade();
+        this.root = configuration.getSqlSpillRoot();
+        this.mkDirMode = configuration.getMkDirMode();
+        this.memoryBudget = Math.min(configuration.getSqlSpillMemoryBudget(), memoryLimit);
+    }
+
+    /**
+     * Allocates a page, which keeps its address until {@link #freePages(LongList, long, int)} is called.
+     *
+     * @param pageSize  size of the page, must be power of 2 and the same for all pages
+     * @param memoryTag tag of heap memory
+     * @return address of the page
+     */
+    public long allocatePage(long pageSize, int memoryTag) {
+        if (fd == -1 && (heapPageCount == 0 || (heapPageCount + 1) * pageSize <= memoryBudget)) {
+            heapPageCount++;
+            return Unsafe.malloc(pageSize, memoryTag);
+        }
+
+        if (extentRemaining < pageSize) {
+            final long extentSize = Math.max(pageSize, ff.getPageSize());
+            if (fd == -1) {
+                open(extentSize);
+            }
+            extentAddress = TableUtils.mapRW(ff, fd, extentSize, fileSize, MemoryTag.MMAP_SQL_SPILL);
+            extentRemaining = extentSize;
+            extents.add(extentAddress, extentSize);
+            fileSize += extentSize;
+        }
+        final long address = extentAddress;
+        extentAddress += pageSize;
+        extentRemaining -= pageSize;
+        return address;
+    }
+
+    @Override
+    public void close() {
+        assert fd == -1 : "spilled memory has not been freed";
+        path = Misc.free(path);
+    }
+
+    /**
+     * Releases the region, unmaps and removes the spill file if the region is spilled.
+     */
+    public void free(long address, long size, int memoryTag) {
+        if (fd == -1) {
+            Unsafe.free(address, size, memoryTag);
+        } else {
+            ff.munmap(address, size, MemoryTag.MMAP_SQL_SPILL);
+            closeFile();
+        }
+    }
+
+    /**
+     * Releases all pages allocated by {@link #allocatePage(long, int)}, unmaps and removes the spill file
+     * if some of them are spilled.
+     *
+     * @param pages     page addresses in the order of allocation
+     * @param pageSize  size of the page
+     * @param memoryTag tag of heap memory
+     */
+    public void freePages(LongList pages, long pageSize, int memoryTag) {
+        for (int i = 0; i < heapPageCount; i++) {
+            Unsafe.free(pages.getQuick(i), pageSize, memoryTag);
+        }
+        heapPageCount = 0;
+
+        if (fd != -1) {
+            for (int i = 0, n = extents.size(); i < n; i += 2) {
+                ff.munmap(extents.getQuick(i), extents.getQuick(i + 1), MemoryTag.MMAP_SQL_SPILL);
+            }
+            extents.clear();
+            extentAddress = 0;
+            extentRemaining = 0;
+            fileSize = 0;
+            closeFile();
+        }
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public boolean isSpilled() {
+        return fd != -1;
+    }
+
+    /**
+     * Resizes the region preserving its content, same as {@link Unsafe#realloc(long, long, long, int)}.
+     *
+     * @param address   address of the region or 0 when region is to be allocated
+     * @param size      current size of the region
+     * @param newSize   requested size of the region
+     * @param memoryTag tag of heap memory
+     * @return address of the resized region
+     */
+    public long realloc(long address, long size, long newSize, int memoryTag) {
+        assert heapPageCount == 0 && extents.size() == 0 : "spill file serves pages";
+        if (fd == -1) {
+            if (newSize <= memoryBudget || address == 0) {
+                return address == 0 ? Unsafe.malloc(newSize, memoryTag) : Unsafe.realloc(address, size, newSize, memoryTag);
+            }
+            return spill(address, size, newSize, memoryTag);
+        }
+
+        if (newSize <= memoryBudget) {
+            final long heapAddress = Unsafe.malloc(newSize, memoryTag);
+            Vect.memcpy(heapAddress, address, Math.min(size, newSize));
+            free(address, size, memoryTag);
+            return heapAddress;
+        }
+
+        TableUtils.allocateDiskSpace(ff, fd, newSize);
+        return TableUtils.mremap(ff, fd, address, size, newSize, Files.MAP_RW, MemoryTag.MMAP_SQL_SPILL);
+    }
+
+    private void closeFile() {
+        ff.close(fd);
+        fd = -1;
+        if (!removed && !ff.remove(path)) {
+            LOG.error().$("could not remove spill file [path=").$(path).$(", errno=").$(ff.errno()).$(']').$();
+        }
+    }
+
+    private void open(long size) {
+        if (path == null) {
+            path = new Path();
+        }
+        path.of(root).slash$();
+        if (!ff.exists(path) && ff.mkdirs(path, mkDirMode) != 0) {
+            throw CairoException.instance(ff.errno()).put("could not create spill directory [path=").put(path).put(']');
+        }
+        path.of(root).concat("spill-").put(NEXT_ID.incrementAndGet()).put(".d").$();
+        final long fd = ff.openCleanRW(path, size);
+        if (fd < 0) {
+            throw CairoException.instance(ff.errno()).put("could not create spill file [path=").put(path).put(']');
+        }
+        this.fd = fd;
+        // unlinked file stays accessible while it is open, it is also not left behind should the process die
+        this.removed = ff.remove(path);
+        LOG.info().$("spilled to disk [path=").$(path).$(", budget=").$(memoryBudget).$(']').$();
+    }
+
+    private long spill(long address, long size, long newSize, int memoryTag) {
+        open(newSize);
+        final long mapped;
+        try {
+            mapped = TableUtils.mapRW(ff, fd, newSize, MemoryTag.MMAP_SQL_SPILL);
+        } catch (Throwable e) {
+            closeFile();
+            throw e;
+        }
+
+        if (address != 0) {
+            Vect.memcpy(mapped, address, Math.min(size, newSize));
+            Unsafe.free(address, size, memoryTag);
+        }
+        return mapped;
+    }
+}
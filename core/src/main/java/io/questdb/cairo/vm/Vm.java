@@ -24,11 +24,14 @@
 
 package io.questdb.cairo.vm;
 
+import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.vm.api.*;
 import io.questdb.log.Log;
 import io.questdb.std.Files;
 import io.questdb.std.FilesFacade;
+import io.questdb.std.Numbers;
 import io.questdb.std.str.LPSZ;
+import org.jetbrains.annotations.Nullable;
 
 public class Vm {
     public static final int STRING_LENGTH_BYTES = 4;
@@ -72,6 +75,30 @@ public class Vm {
         return new MemoryCARWImpl(pageSize, maxPages, memoryTag);
     }
 
+    /**
+     * Same as {@link #getCARWInstance(long, int, int)} when spilling is disabled. Otherwise, memory
+     * is spilled to disk once it outgrows either the configured budget or max pages.
+     */
+    public static MemoryCARW getSpillableCARWInstance(CairoConfiguration configuration, long pageSize, int maxPages, int memoryTag) {
+        final SpillFile spillFile = getSpillFile(configuration, pageSize, maxPages);
+        if (spillFile != null) {
+            return new MemoryCARWImpl(pageSize, maxPages, memoryTag, spillFile);
+        }
+        return new MemoryCARWImpl(pageSize, maxPages, memoryTag);
+    }
+
+    /**
+     * @return spill file with the budget capped by max pages, or null when spilling is disabled
+     */
+    @Nullable
+    public static SpillFile getSpillFile(CairoConfiguration configuration, long pageSize, int maxPages) {
+        if (configuration.isSqlSpillEnabled()) {
+            final long limit = Numbers.ceilPow2(pageSize) * maxPages;
+            return new SpillFile(configuration, limit < 0 ? Long.MAX_VALUE : limit);
+        }
+        return null;
+    }
+
     public static MemoryCMARW getCMARWInstance(FilesFacade ff, LPSZ name, long pageSize, long size, int memoryTag, long opts) {
         return new MemoryCMARWImpl(ff, name, pageSize, size, memoryTag, opts);
     }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.EntryUnavailableException;
+import io.questdb.cairo.TableWriter;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SynchronizedJob;
+import io.questdb.std.ObjList;
+
+import java.io.Closeable;
+
+/**
+ * Makes sure committed WAL transactions get into their tables. Pending transactions are
+ * applied by the engine when it hands out the table writer, so the job only has to take
+ * the writer. When the writer is busy, the job asks its owner to apply transactions via
+ * the writer's command queue rather than waiting for the writer to be released.
+ */
+public class ApplyWal2TableJob extends SynchronizedJob implements Closeable {
+    private static final Log LOG = LogFactory.getLog(ApplyWal2TableJob.class);
+    private final CairoEngine engine;
+    private final ObjList<TableSequencer> sequencers = new ObjList<>();
+    private int sequencersVersion = -1;
+
+    public ApplyWal2TableJob(CairoEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public void close() {
+        sequencers.clear();
+    }
+
+    private boolean applyTable(TableSequencer sequencer) {
+        final String tableName = sequencer.getTableName();
+        final ApplyWalCommand command = engine.getWalWriterPool().getApplyCommand(tableName);
+        if (command == null) {
+            // table has been released from the pool since the sequencer list was copied
+            return false;
+        }
+        final long appliedTxn = sequencer.getAppliedTxn();
+        final TableWriter writer;
+        try {
+            if (command.tryQueue()) {
+                writer = engine.getWriterOrPublishCommand(AllowAllCairoSecurityContext.INSTANCE, tableName, command);
+                if (writer == null) {
+                    LOG.info().$("writer is busy, asked owner to apply WAL [table=").$(tableName).I$();
+                    return true;
+                }
+            } else {
+                // command is still queued, the writer could have been closed without processing it
+                writer = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, tableName, ApplyWalCommand.COMMAND_NAME);
+            }
+        } catch (EntryUnavailableException e) {
+            return false;
+        } catch (CairoException e) {
+            command.done();
+            LOG.error().$("could not apply WAL [table=").$(tableName).$(", error=").$(e.getFlyweightMessage()).I$();
+            return false;
+        }
+        // pending transactions have been applied by the engine before it returned the writer
+        writer.close();
+        return sequencer.getAppliedTxn() != appliedTxn;
+    }
+
+    @Override
+    protected boolean runSerially() {
+        final WalWriterPool walWriterPool = engine.getWalWriterPool();
+        if (walWriterPool.getVersion() != sequencersVersion) {
+            sequencersVersion = walWriterPool.getSequencers(sequencers);
+        }
+        boolean useful = false;
+        for (int i = 0, n = sequencers.size(); i < n; i++) {
+            final TableSequencer sequencer = sequencers.getQuick(i);
+            if (!sequencer.isSuspended() && sequencer.getLastTxn() != sequencer.getAppliedTxn()) {
+                useful |= applyTable(sequencer);
+            }
+        }
+        return useful;
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.TableWriter;
+import io.questdb.cairo.sql.AsyncWriterCommand;
+import io.questdb.tasks.TableWriterTask;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Asks the current owner of a busy table writer to apply pending WAL transactions.
+ * The owner processes it from the writer's command queue, on {@link TableWriter#tick()}
+ * or when the writer is returned to the pool. There is one command per table, it is
+ * queued at most once at a time.
+ */
+class ApplyWalCommand implements AsyncWriterCommand {
+    static final String COMMAND_NAME = "applyWal";
+    private final WalWriterPool walWriterPool;
+    private final String tableName;
+    private final int tableId;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private long correlationId;
+
+    ApplyWalCommand(WalWriterPool walWriterPool, String tableName, int tableId) {
+        this.walWriterPool = walWriterPool;
+        this.tableName = tableName;
+        this.tableId = tableId;
+    }
+
+    @Override
+    public long apply(TableWriter tableWriter, boolean contextAllowsAnyStructureChanges) {
+        return walWriterPool.applyPending(tableWriter);
+    }
+
+    @Override
+    public AsyncWriterCommand deserialize(TableWriterTask task) {
+        return task.getAsyncWriterCommand();
+    }
+
+    @Override
+    public String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    @Override
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    @Override
+    public int getTableId() {
+        return tableId;
+    }
+
+    @Override
+    public String getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public int getTableNamePosition() {
+        return 0;
+    }
+
+    @Override
+    public long getTableVersion() {
+        return 0;
+    }
+
+    @Override
+    public void serialize(TableWriterTask task) {
+        task.of(TableWriterTask.CMD_APPLY_WAL, tableId, tableName);
+        task.setInstance(correlationId);
+        task.setAsyncWriterCommand(this);
+    }
+
+    @Override
+    public void setCommandCorrelationId(long correlationId) {
+        this.correlationId = correlationId;
+    }
+
+    @Override
+    public void startAsync() {
+    }
+
+    void done() {
+        queued.set(false);
+    }
+
+    boolean isQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return true when the caller should publish the command, false when it is already queued
+     */
+    boolean tryQueue() {
+        return queued.compareAndSet(false, true);
+    }
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableUtils;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+/**
+ * Hands out WAL ids to writers and orders their commits into a single, table-wide
+ * sequence of transactions. The sequence is persisted in {@code txn_seq/_txnlog}
+ * under the table directory and is also kept in memory for the apply job.
+ * <p>
+ * Transaction numbers start from 1. Each transaction refers to a range of rows in
+ * one segment of one WAL.
+ * <p>
+ * The sequencer also tracks the segment each WAL writer appends to. Segments that the writer
+ * has moved on from and whose transactions have all been applied can be removed, see
+ * {@link #getPurgeRanges(IntList)}.
+ */
+public class TableSequencer implements Closeable {
+    public static final String TXNLOG_FILE_NAME = "_txnlog";
+    static final int TXN_FIELD_WAL_ID = 0;
+    static final int TXN_FIELD_SEGMENT_ID = 1;
+    static final int TXN_FIELD_ROW_LO = 2;
+    static final int TXN_FIELD_ROW_HI = 3;
+    static final int TXN_FIELD_MIN_TIMESTAMP = 4;
+    static final int TXN_FIELD_MAX_TIMESTAMP = 5;
+    static final int TXN_FIELD_COUNT = 6;
+    private static final Log LOG = LogFactory.getLog(TableSequencer.class);
+    private static final long HEADER_OFFSET_TXN_COUNT = 0;
+    private static final long HEADER_OFFSET_NEXT_WAL_ID = HEADER_OFFSET_TXN_COUNT + Long.BYTES;
+    private static final long HEADER_SIZE = HEADER_OFFSET_NEXT_WAL_ID + Long.BYTES;
+    private static final long TXN_RECORD_SIZE = TXN_FIELD_COUNT * Long.BYTES;
+    private final FilesFacade ff;
+    private final String tableName;
+    private final Path path;
+    private final LongList txns = new LongList();
+    // segment each WAL writer appends to by WAL id, -1 when the writer is closed
+    private final IntList walSegments = new IntList();
+    // segments below this one have been removed, by WAL id
+    private final IntList walPurgedSegments = new IntList();
+    private final IntList walUnappliedSegments = new IntList();
+    private boolean purgePending;
+    private long fd = -1;
+    private long tempMem8b;
+    private long nextWalId;
+    private volatile long lastTxn;
+    private volatile long appliedTxn = -1;
+    private volatile boolean suspended;
+
+    public TableSequencer(CairoConfiguration configuration, CharSequence tableName) {
+        this.ff = configuration.getFilesFacade();
+        this.tableName = Chars.toString(tableName);
+        this.path = new Path().of(configuration.getRoot()).concat(tableName).concat(TableUtils.SEQ_DIR);
+        try {
+            final int seqDirLen = path.length();
+            if (ff.mkdirs(path.slash$(), configuration.getMkDirMode()) != 0) {
+                throw CairoException.instance(ff.errno()).put("could not create directories [file=").put(path).put(']');
+            }
+            path.trimTo(seqDirLen).concat(TXNLOG_FILE_NAME).$();
+            this.tempMem8b = Unsafe.malloc(Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            this.fd = TableUtils.openRW(ff, path, LOG, configuration.getWriterFileOpenOpts());
+            load();
+        } catch (Throwable e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (fd != -1) {
+            ff.close(fd);
+            fd = -1;
+        }
+        if (tempMem8b != 0) {
+            Unsafe.free(tempMem8b, Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            tempMem8b = 0;
+        }
+        Misc.free(path);
+    }
+
+    /**
+     * @return last transaction known to be applied to the table or -1 when not known yet
+     */
+    public long getAppliedTxn() {
+        return appliedTxn;
+    }
+
+    public long getLastTxn() {
+        return lastTxn;
+    }
+
+    /**
+     * Finds WAL segments that are no longer needed: their writer has moved on to another segment
+     * or has been closed, and all transactions referring to them have been applied. Found segments
+     * are considered removed once returned.
+     *
+     * @param sink receives triplets of WAL id, first and last (exclusive) segment id, the last
+     *             segment id is Integer.MAX_VALUE when the whole WAL directory can be removed
+     * @return false when there is nothing to remove
+     */
+    public synchronized boolean getPurgeRanges(IntList sink) {
+        final long appliedTxn = this.appliedTxn;
+        if (!purgePending || appliedTxn < 0) {
+            return false;
+        }
+        purgePending = false;
+
+        // segments of transactions that are not in the table yet have to stay, WAL writer
+        // registers transactions with ascending segment ids, so the first one is the lowest
+        walUnappliedSegments.setAll(walSegments.size(), -1);
+        for (long txn = appliedTxn + 1; txn <= lastTxn; txn++) {
+            final int walId = (int) getTxnField(txn, TXN_FIELD_WAL_ID);
+            if (walUnappliedSegments.getQuick(walId) == -1) {
+                walUnappliedSegments.setQuick(walId, (int) getTxnField(txn, TXN_FIELD_SEGMENT_ID));
+            }
+        }
+
+        sink.clear();
+        for (int walId = 0, n = walSegments.size(); walId < n; walId++) {
+            final int lo = walPurgedSegments.getQuick(walId);
+            final int openSegment = walSegments.getQuick(walId);
+            final int unappliedSegment = walUnappliedSegments.getQuick(walId);
+            int hi = openSegment == -1 ? Integer.MAX_VALUE : openSegment;
+            if (unappliedSegment != -1) {
+                hi = Math.min(hi, unappliedSegment);
+            }
+            if (hi > lo) {
+                sink.add(walId);
+                sink.add(lo);
+                sink.add(hi);
+                walPurgedSegments.setQuick(walId, hi);
+            }
+        }
+        return sink.size() > 0;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Reads one field of a registered transaction.
+     *
+     * @param txn   transaction number, 1-based
+     * @param field one of the TXN_FIELD_* constants
+     * @return field value
+     */
+    public synchronized long getTxnField(long txn, int field) {
+        assert txn > 0 && txn <= lastTxn;
+        return txns.getQuick((int) ((txn - 1) * TXN_FIELD_COUNT + field));
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    public synchronized int nextWalId() {
+        final int walId = (int) nextWalId++;
+        TableUtils.writeLongOrFail(ff, fd, HEADER_OFFSET_NEXT_WAL_ID, nextWalId, tempMem8b, path);
+        walSegments.extendAndSet(walId, 0);
+        walPurgedSegments.extendAndSet(walId, 0);
+        return walId;
+    }
+
+    /**
+     * Registers committed rows of a WAL segment as the next table transaction.
+     *
+     * @return transaction number assigned to the rows
+     */
+    public synchronized long nextTxn(int walId, int segmentId, long rowLo, long rowHi, long minTimestamp, long maxTimestamp) {
+        final long txn = lastTxn + 1;
+        final long offset = HEADER_SIZE + lastTxn * TXN_RECORD_SIZE;
+        writeTxnField(offset, TXN_FIELD_WAL_ID, walId);
+        writeTxnField(offset, TXN_FIELD_SEGMENT_ID, segmentId);
+        writeTxnField(offset, TXN_FIELD_ROW_LO, rowLo);
+        writeTxnField(offset, TXN_FIELD_ROW_HI, rowHi);
+        writeTxnField(offset, TXN_FIELD_MIN_TIMESTAMP, minTimestamp);
+        writeTxnField(offset, TXN_FIELD_MAX_TIMESTAMP, maxTimestamp);
+        // transaction becomes visible once the count is updated
+        TableUtils.writeLongOrFail(ff, fd, HEADER_OFFSET_TXN_COUNT, txn, tempMem8b, path);
+        lastTxn = txn;
+        return txn;
+    }
+
+    /**
+     * Reads number of registered transactions without opening the sequencer.
+     *
+     * @param path path to the table directory, it is not preserved
+     * @return number of transactions or -1 when the table has no sequencer
+     */
+    static long readLastTxn(FilesFacade ff, Path path, long tempMem8b) {
+        path.concat(TableUtils.SEQ_DIR).concat(TXNLOG_FILE_NAME).$();
+        if (!ff.exists(path) || ff.length(path) < HEADER_SIZE) {
+            return -1;
+        }
+        return TableUtils.readLongAtOffset(ff, path, tempMem8b, HEADER_OFFSET_TXN_COUNT);
+    }
+
+    /**
+     * Called by WAL writer when it starts a new segment, segments below are not written to anymore.
+     */
+    public synchronized void onSegmentOpened(int walId, int segmentId) {
+        walSegments.setQuick(walId, segmentId);
+        purgePending = true;
+    }
+
+    /**
+     * Called by WAL writer when it is closed, none of its segments are written to anymore.
+     */
+    public synchronized void onWalClosed(int walId) {
+        walSegments.setQuick(walId, -1);
+        purgePending = true;
+    }
+
+    public synchronized void setAppliedTxn(long appliedTxn) {
+        if (this.appliedTxn != appliedTxn) {
+            this.appliedTxn = appliedTxn;
+            purgePending = true;
+        }
+    }
+
+    /**
+     * Stops the apply job from retrying a transaction that cannot be applied to the table.
+     */
+    public void suspend() {
+        suspended = true;
+    }
+
+    private void load() {
+        if (ff.length(fd) < HEADER_SIZE) {
+            TableUtils.writeLongOrFail(ff, fd, HEADER_OFFSET_TXN_COUNT, 0, tempMem8b, path);
+            TableUtils.writeLongOrFail(ff, fd, HEADER_OFFSET_NEXT_WAL_ID, 0, tempMem8b, path);
+            return;
+        }
+        final long txnCount = TableUtils.readLongOrFail(ff, fd, HEADER_OFFSET_TXN_COUNT, tempMem8b, path);
+        nextWalId = TableUtils.readLongOrFail(ff, fd, HEADER_OFFSET_NEXT_WAL_ID, tempMem8b, path);
+        for (long i = 0, n = txnCount * TXN_FIELD_COUNT; i < n; i++) {
+            txns.add(TableUtils.readLongOrFail(ff, fd, HEADER_SIZE + i * Long.BYTES, tempMem8b, path));
+        }
+        lastTxn = txnCount;
+        // WAL writers of the previous run are gone, their segments are removed once applied
+        walSegments.setAll((int) nextWalId, -1);
+        walPurgedSegments.setAll((int) nextWalId, 0);
+        LOG.info().$("opened [table=").$(tableName).$(", lastTxn=").$(lastTxn).$(", nextWalId=").$(nextWalId).$(']').$();
+    }
+
+    private void writeTxnField(long recordOffset, int field, long value) {
+        TableUtils.writeLongOrFail(ff, fd, recordOffset + (long) field * Long.BYTES, value, tempMem8b, path);
+        txns.add(value);
+    }
+}
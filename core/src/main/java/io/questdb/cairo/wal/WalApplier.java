@@ -0,0 +1,291 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+/**
+ * Copies committed WAL transactions into their table. Rows of all pending transactions
+ * are appended through a single {@link TableWriter} transaction, out-of-order rows are
+ * merged by the writer's O3 path. The last applied sequencer transaction is committed
+ * along with the rows, so that the log is not applied twice. WAL segments are removed
+ * once their rows are in the table.
+ * <p>
+ * Instances are not thread-safe, they are guarded by the owning {@link WalWriterPool} entry.
+ */
+class WalApplier implements Closeable {
+    private static final Log LOG = LogFactory.getLog(WalApplier.class);
+    private final CairoConfiguration configuration;
+    private final FilesFacade ff;
+    private final ObjList<MemoryCMR> primaryColumns = new ObjList<>();
+    private final ObjList<MemoryCMR> secondaryColumns = new ObjList<>();
+    private final IntList segmentColumnTypes = new IntList();
+    private final IntList writerColumnIndexes = new IntList();
+    private final IntList purgeRanges = new IntList();
+    private final MemoryCMR metaMem = Vm.getCMRInstance();
+    private final Path path = new Path();
+    private int segmentTimestampIndex;
+
+    WalApplier(CairoConfiguration configuration) {
+        this.configuration = configuration;
+        this.ff = configuration.getFilesFacade();
+    }
+
+    @Override
+    public void close() {
+        closeSegment();
+        Misc.freeObjList(primaryColumns);
+        Misc.freeObjList(secondaryColumns);
+        Misc.free(metaMem);
+        Misc.free(path);
+    }
+
+    /**
+     * Applies transactions registered with the sequencer after the last one committed to
+     * the table. Rows are committed to the table when this method returns normally.
+     *
+     * @param writer    table writer owned by the caller, it must not have uncommitted rows
+     * @param sequencer sequencer of the writer's table
+     * @return number of applied transactions
+     */
+    long apply(TableWriter writer, TableSequencer sequencer) {
+        final String tableName = sequencer.getTableName();
+        final long appliedTxn = writer.getSeqTxn();
+        final long lastTxn = sequencer.getLastTxn();
+        try {
+            long txn = appliedTxn + 1;
+            while (txn <= lastTxn) {
+                final int walId = (int) sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_WAL_ID);
+                final int segmentId = (int) sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_SEGMENT_ID);
+                final long rowLo = sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_ROW_LO);
+                long rowHi = sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_ROW_HI);
+                // merge consecutive transactions of the same segment into one row range
+                while (++txn <= lastTxn
+                        && sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_WAL_ID) == walId
+                        && sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_SEGMENT_ID) == segmentId
+                        && sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_ROW_LO) == rowHi) {
+                    rowHi = sequencer.getTxnField(txn, TableSequencer.TXN_FIELD_ROW_HI);
+                }
+                openSegment(writer, tableName, walId, segmentId, rowHi);
+                applyRows(writer, rowLo, rowHi);
+            }
+            if (lastTxn > appliedTxn) {
+                writer.commitSeqTxn(lastTxn);
+                LOG.info().$("applied WAL [table=").$(tableName).$(", fromTxn=").$(appliedTxn + 1).$(", toTxn=").$(lastTxn).I$();
+            }
+        } finally {
+            closeSegment();
+        }
+        sequencer.setAppliedTxn(Math.max(appliedTxn, lastTxn));
+        return Math.max(0, lastTxn - appliedTxn);
+    }
+
+    /**
+     * Removes WAL segments that are not written to anymore and whose rows have been applied.
+     * Failure to remove a segment is logged, the segment is left behind.
+     */
+    void purge(TableSequencer sequencer) {
+        if (!sequencer.getPurgeRanges(purgeRanges)) {
+            return;
+        }
+        final String tableName = sequencer.getTableName();
+        path.of(configuration.getRoot()).concat(tableName);
+        final int tableLen = path.length();
+        for (int i = 0, n = purgeRanges.size(); i < n; i += 3) {
+            final int walId = purgeRanges.getQuick(i);
+            final int segmentLo = purgeRanges.getQuick(i + 1);
+            final int segmentHi = purgeRanges.getQuick(i + 2);
+            path.trimTo(tableLen).concat(TableUtils.WAL_NAME_BASE).put(walId);
+            if (segmentHi == Integer.MAX_VALUE) {
+                removeDir(tableName, walId, -1);
+            } else {
+                final int walLen = path.length();
+                for (int segmentId = segmentLo; segmentId < segmentHi; segmentId++) {
+                    path.trimTo(walLen).slash().put(segmentId);
+                    removeDir(tableName, walId, segmentId);
+                }
+            }
+        }
+    }
+
+    private void removeDir(CharSequence tableName, int walId, int segmentId) {
+        if (!ff.exists(path.slash$())) {
+            return;
+        }
+        final int errno = ff.rmdir(path);
+        if (errno != 0) {
+            LOG.error().$("could not purge WAL [table=").$(tableName)
+                    .$(", walId=").$(walId)
+                    .$(", segmentId=").$(segmentId)
+                    .$(", errno=").$(errno)
+                    .I$();
+        } else {
+            LOG.debug().$("purged WAL [table=").$(tableName).$(", walId=").$(walId).$(", segmentId=").$(segmentId).I$();
+        }
+    }
+
+    private void applyRows(TableWriter writer, long rowLo, long rowHi) {
+        final MemoryCMR timestampColumn = segmentTimestampIndex > -1 ? primaryColumns.getQuick(segmentTimestampIndex) : null;
+        for (long r = rowLo; r < rowHi; r++) {
+            final TableWriter.Row row = timestampColumn != null ? writer.newRow(timestampColumn.getLong(r << 3)) : writer.newRow();
+            for (int i = 0, n = segmentColumnTypes.size(); i < n; i++) {
+                final int writerIndex = writerColumnIndexes.getQuick(i);
+                if (writerIndex < 0) {
+                    continue;
+                }
+                final MemoryCMR primary = primaryColumns.getQuick(i);
+                final int type = segmentColumnTypes.getQuick(i);
+                switch (ColumnType.tagOf(type)) {
+                    case ColumnType.BOOLEAN:
+                        row.putBool(writerIndex, primary.getBool(r));
+                        break;
+                    case ColumnType.BYTE:
+                        row.putByte(writerIndex, primary.getByte(r));
+                        break;
+                    case ColumnType.GEOBYTE:
+                        row.putGeoHash(writerIndex, primary.getByte(r));
+                        break;
+                    case ColumnType.SHORT:
+                        row.putShort(writerIndex, primary.getShort(r << 1));
+                        break;
+                    case ColumnType.GEOSHORT:
+                        row.putGeoHash(writerIndex, primary.getShort(r << 1));
+                        break;
+                    case ColumnType.CHAR:
+                        row.putChar(writerIndex, primary.getChar(r << 1));
+                        break;
+                    case ColumnType.INT:
+                        row.putInt(writerIndex, primary.getInt(r << 2));
+                        break;
+                    case ColumnType.GEOINT:
+                        row.putGeoHash(writerIndex, primary.getInt(r << 2));
+                        break;
+                    case ColumnType.FLOAT:
+                        row.putFloat(writerIndex, primary.getFloat(r << 2));
+                        break;
+                    case ColumnType.LONG:
+                    case ColumnType.DATE:
+                    case ColumnType.TIMESTAMP:
+                        row.putLong(writerIndex, primary.getLong(r << 3));
+                        break;
+                    case ColumnType.GEOLONG:
+                        row.putGeoHash(writerIndex, primary.getLong(r << 3));
+                        break;
+                    case ColumnType.DOUBLE:
+                        row.putDouble(writerIndex, primary.getDouble(r << 3));
+                        break;
+                    case ColumnType.LONG256:
+                        row.putLong256(writerIndex, primary.getLong256A(r << 5));
+                        break;
+                    case ColumnType.STRING:
+                        row.putStr(writerIndex, primary.getStr(secondaryColumns.getQuick(i).getLong(r << 3)));
+                        break;
+                    case ColumnType.SYMBOL:
+                        row.putSym(writerIndex, primary.getStr(secondaryColumns.getQuick(i).getLong(r << 3)));
+                        break;
+                    case ColumnType.BINARY:
+                        row.putBin(writerIndex, primary.getBin(secondaryColumns.getQuick(i).getLong(r << 3)));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            row.append();
+        }
+    }
+
+    private void closeSegment() {
+        for (int i = 0, n = primaryColumns.size(); i < n; i++) {
+            Misc.free(primaryColumns.getQuick(i));
+            Misc.free(secondaryColumns.getQuick(i));
+        }
+        metaMem.close();
+    }
+
+    private MemoryCMR getColumn(ObjList<MemoryCMR> columns, int index) {
+        MemoryCMR mem = columns.getQuiet(index);
+        if (mem == null) {
+            mem = Vm.getCMRInstance();
+            columns.extendAndSet(index, mem);
+        }
+        return mem;
+    }
+
+    private void openSegment(TableWriter writer, CharSequence tableName, int walId, int segmentId, long rowCount) {
+        closeSegment();
+        path.of(configuration.getRoot()).concat(tableName).concat(TableUtils.WAL_NAME_BASE).put(walId).slash().put(segmentId);
+        final int segmentLen = path.length();
+        metaMem.smallFile(ff, path.concat(TableUtils.META_FILE_NAME).$(), MemoryTag.MMAP_TABLE_READER);
+        final int columnCount = metaMem.getInt(0);
+        segmentTimestampIndex = metaMem.getInt(Integer.BYTES);
+        segmentColumnTypes.setPos(columnCount);
+        writerColumnIndexes.setPos(columnCount);
+        final TableWriterMetadata writerMetadata = writer.getMetadata();
+        long offset = 2 * Integer.BYTES;
+        for (int i = 0; i < columnCount; i++) {
+            final int type = metaMem.getInt(offset);
+            offset += Integer.BYTES;
+            final CharSequence name = metaMem.getStr(offset);
+            offset += Vm.getStorageLength(name);
+            segmentColumnTypes.setQuick(i, type);
+            writerColumnIndexes.setQuick(i, -1);
+            if (type < 0) {
+                continue;
+            }
+            final MemoryCMR primary = getColumn(primaryColumns, i);
+            final MemoryCMR secondary = getColumn(secondaryColumns, i);
+            if (WalWriter.isVarSize(type)) {
+                secondary.of(ff, path.trimTo(segmentLen).concat(name).put(TableUtils.FILE_SUFFIX_I).$(), 0, (rowCount + 1) << 3, MemoryTag.MMAP_TABLE_READER);
+                primary.of(ff, path.trimTo(segmentLen).concat(name).put(TableUtils.FILE_SUFFIX_D).$(), 0, secondary.getLong(rowCount << 3), MemoryTag.MMAP_TABLE_READER);
+            } else {
+                primary.of(ff, path.trimTo(segmentLen).concat(name).put(TableUtils.FILE_SUFFIX_D).$(), 0, rowCount * ColumnType.sizeOf(type), MemoryTag.MMAP_TABLE_READER);
+            }
+            if (i == segmentTimestampIndex) {
+                // designated timestamp is passed to newRow()
+                continue;
+            }
+            final int writerIndex = writerMetadata.getColumnIndexQuiet(name);
+            if (writerIndex > -1 && writerMetadata.getColumnType(writerIndex) == type) {
+                writerColumnIndexes.setQuick(i, writerIndex);
+            } else {
+                LOG.info().$("skipping WAL column missing from table [table=").$(tableName)
+                        .$(", column=").$(name)
+                        .$(", walId=").$(walId)
+                        .$(", segmentId=").$(segmentId)
+                        .I$();
+            }
+        }
+        path.trimTo(segmentLen);
+    }
+}
@@ -0,0 +1,593 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryA;
+import io.questdb.cairo.vm.api.MemoryMA;
+import io.questdb.griffin.UpdateOperator;
+import io.questdb.griffin.model.IntervalUtils;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.Timestamps;
+import io.questdb.std.str.Path;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Appends rows to a write-ahead log of a table. Unlike {@link TableWriter} it does not
+ * take the table lock, any number of WAL writers can be open against the same table.
+ * Each writer owns a WAL directory, {@code wal<id>}, split into numbered segments. Commit
+ * registers committed rows with the table's {@link TableSequencer}, which orders them
+ * with commits of other writers. {@link ApplyWal2TableJob} later copies the rows into the
+ * table.
+ * <p>
+ * Column files of a segment use the layout of table partitions, except symbols, which
+ * are stored as strings. Column indexes are those of the table writer. Segments are removed
+ * once the writer has moved on from them and their rows have been applied to the table.
+ * <p>
+ * ILP does not use WAL writers. ILP adds columns as new fields arrive and writes symbol
+ * keys resolved against the table's symbol maps, while a WAL segment has the columns the
+ * table had when the writer was opened and stores symbols as strings. Each ILP table is
+ * written by a single writer thread, which keeps the table writer between batches.
+ */
+public class WalWriter implements TableWriterAPI {
+    private static final Log LOG = LogFactory.getLog(WalWriter.class);
+    private final CairoConfiguration configuration;
+    private final FilesFacade ff;
+    private final String tableName;
+    private final TableSequencer sequencer;
+    private final Path path;
+    private final int rootLen;
+    private final int walId;
+    private final long segmentRolloverRowCount;
+    private final ObjList<String> columnNames = new ObjList<>();
+    private final IntList columnTypes = new IntList();
+    // primary memory at 2 * columnIndex, secondary at 2 * columnIndex + 1
+    private final ObjList<MemoryMA> columns = new ObjList<>();
+    private final LongList rowValueStamps = new LongList();
+    private final LongList rowStartOffsets = new LongList();
+    private final LongList committedOffsets = new LongList();
+    private final MemoryMA metaMem = Vm.getMAInstance();
+    private final RowImpl row = new RowImpl();
+    private final int timestampIndex;
+    private final long structureVersion;
+    private LifecycleManager lifecycleManager = DefaultLifecycleManager.INSTANCE;
+    private int segmentId = -1;
+    private long segmentRowCount;
+    private long committedRowCount;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long rowStamp;
+    private boolean rowOpen;
+    private boolean open;
+
+    public WalWriter(CairoConfiguration configuration, CharSequence tableName, TableSequencer sequencer) {
+        this.configuration = configuration;
+        this.ff = configuration.getFilesFacade();
+        this.tableName = Chars.toString(tableName);
+        this.sequencer = sequencer;
+        this.segmentRolloverRowCount = configuration.getWalSegmentRolloverRowCount();
+        this.path = new Path().of(configuration.getRoot()).concat(tableName);
+        try (TableReaderMetadata metadata = new TableReaderMetadata(ff)) {
+            final int tableRootLen = path.length();
+            metadata.of(path.concat(TableUtils.META_FILE_NAME).$(), ColumnType.VERSION);
+            path.trimTo(tableRootLen);
+            this.structureVersion = metadata.getStructureVersion();
+            this.timestampIndex = metadata.getTimestampIndex() > -1 ? metadata.getWriterIndex(metadata.getTimestampIndex()) : -1;
+            for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+                final int writerIndex = metadata.getWriterIndex(i);
+                columnNames.extendAndSet(writerIndex, metadata.getColumnName(i));
+                columnTypes.extendAndSet(writerIndex, metadata.getColumnType(i));
+            }
+            // deleted columns keep their slots to preserve writer column indexes
+            for (int i = 0, n = columnTypes.size(); i < n; i++) {
+                if (columnNames.getQuick(i) == null) {
+                    columnTypes.setQuick(i, -1);
+                }
+                columns.add(null);
+                columns.add(null);
+                rowValueStamps.add(-1);
+            }
+            this.walId = sequencer.nextWalId();
+            path.concat(TableUtils.WAL_NAME_BASE).put(walId);
+            this.rootLen = path.length();
+            openNewSegment();
+            this.open = true;
+            LOG.info().$("open [table=").$(tableName).$(", walId=").$(walId).$(']').$();
+        } catch (Throwable e) {
+            doClose(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (open && lifecycleManager.close()) {
+            doClose(true);
+        }
+    }
+
+    @Override
+    public void commit() {
+        if (rowOpen) {
+            row.cancel();
+        }
+        if (segmentRowCount > committedRowCount) {
+            final long txn = sequencer.nextTxn(walId, segmentId, committedRowCount, segmentRowCount, minTimestamp, maxTimestamp);
+            LOG.debug().$("committed [table=").$(tableName)
+                    .$(", walId=").$(walId)
+                    .$(", segmentId=").$(segmentId)
+                    .$(", rows=").$(segmentRowCount - committedRowCount)
+                    .$(", txn=").$(txn)
+                    .I$();
+            committedRowCount = segmentRowCount;
+            minTimestamp = Long.MAX_VALUE;
+            maxTimestamp = Long.MIN_VALUE;
+            if (segmentRowCount >= segmentRolloverRowCount) {
+                openNewSegment();
+            } else {
+                saveOffsets(committedOffsets);
+            }
+        }
+    }
+
+    @Override
+    public long getStructureVersion() {
+        return structureVersion;
+    }
+
+    @Override
+    public String getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public UpdateOperator getUpdateOperator() {
+        throw CairoException.instance(0).put("UPDATE is not supported by WAL writer [table=").put(tableName).put(']');
+    }
+
+    public int getWalId() {
+        return walId;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public TableWriter.Row newRow() {
+        return newRow(0L);
+    }
+
+    @Override
+    public TableWriter.Row newRow(long timestamp) {
+        if (rowOpen) {
+            row.cancel();
+        }
+        saveOffsets(rowStartOffsets);
+        rowStamp++;
+        rowOpen = true;
+        if (timestampIndex > -1) {
+            if (timestamp < Timestamps.O3_MIN_TS) {
+                row.cancel();
+                throw CairoException.instance(0).put("timestamp before 1970-01-01 is not allowed");
+            }
+            row.putLong(timestampIndex, timestamp);
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+        return row;
+    }
+
+    @Override
+    public void rollback() {
+        rowOpen = false;
+        restoreOffsets(committedOffsets);
+        segmentRowCount = committedRowCount;
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+    }
+
+    public void setLifecycleManager(LifecycleManager lifecycleManager) {
+        this.lifecycleManager = lifecycleManager;
+    }
+
+    private static void putNull(MemoryA primary, MemoryA secondary, int type) {
+        switch (ColumnType.tagOf(type)) {
+            case ColumnType.BOOLEAN:
+            case ColumnType.BYTE:
+                primary.putByte((byte) 0);
+                break;
+            case ColumnType.SHORT:
+                primary.putShort((short) 0);
+                break;
+            case ColumnType.CHAR:
+                primary.putChar((char) 0);
+                break;
+            case ColumnType.INT:
+                primary.putInt(Numbers.INT_NaN);
+                break;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                primary.putLong(Numbers.LONG_NaN);
+                break;
+            case ColumnType.FLOAT:
+                primary.putFloat(Float.NaN);
+                break;
+            case ColumnType.DOUBLE:
+                primary.putDouble(Double.NaN);
+                break;
+            case ColumnType.LONG256:
+                primary.putLong256(Numbers.LONG_NaN, Numbers.LONG_NaN, Numbers.LONG_NaN, Numbers.LONG_NaN);
+                break;
+            case ColumnType.STRING:
+            case ColumnType.SYMBOL:
+                secondary.putLong(primary.putNullStr());
+                break;
+            case ColumnType.BINARY:
+                secondary.putLong(primary.putNullBin());
+                break;
+            case ColumnType.GEOBYTE:
+                primary.putByte(GeoHashes.BYTE_NULL);
+                break;
+            case ColumnType.GEOSHORT:
+                primary.putShort(GeoHashes.SHORT_NULL);
+                break;
+            case ColumnType.GEOINT:
+                primary.putInt(GeoHashes.INT_NULL);
+                break;
+            case ColumnType.GEOLONG:
+                primary.putLong(GeoHashes.NULL);
+                break;
+            default:
+                break;
+        }
+    }
+
+    static boolean isVarSize(int type) {
+        final int tag = ColumnType.tagOf(type);
+        return tag == ColumnType.STRING || tag == ColumnType.SYMBOL || tag == ColumnType.BINARY;
+    }
+
+    private void closeSegment() {
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final MemoryMA mem = columns.getQuick(i);
+            if (mem != null) {
+                mem.close(true);
+            }
+        }
+    }
+
+    private void doClose(boolean truncate) {
+        if (open) {
+            rollback();
+        }
+        open = false;
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final MemoryMA mem = columns.getQuick(i);
+            if (mem != null) {
+                mem.close(truncate);
+            }
+        }
+        columns.clear();
+        Misc.free(metaMem);
+        Misc.free(path);
+        if (segmentId > -1) {
+            // segment files are closed, they can be purged once applied
+            sequencer.onWalClosed(walId);
+        }
+        LOG.info().$("closed [table=").$(tableName).$(", walId=").$(walId).$(']').$();
+    }
+
+    private MemoryA getPrimaryColumn(int columnIndex) {
+        return columns.getQuick(2 * columnIndex);
+    }
+
+    private MemoryA getSecondaryColumn(int columnIndex) {
+        return columns.getQuick(2 * columnIndex + 1);
+    }
+
+    private void openNewSegment() {
+        closeSegment();
+        segmentId++;
+        sequencer.onSegmentOpened(walId, segmentId);
+        path.trimTo(rootLen).slash().put(segmentId);
+        final int segmentLen = path.length();
+        if (ff.mkdirs(path.slash$(), configuration.getMkDirMode()) != 0) {
+            throw CairoException.instance(ff.errno()).put("could not create WAL segment [path=").put(path).put(']');
+        }
+        final long appendPageSize = configuration.getDataAppendPageSize();
+        final long opts = configuration.getWriterFileOpenOpts();
+
+        metaMem.of(ff, path.trimTo(segmentLen).concat(TableUtils.META_FILE_NAME).$(), ff.getPageSize(), MemoryTag.MMAP_TABLE_WRITER, opts);
+        metaMem.putInt(columnTypes.size());
+        metaMem.putInt(timestampIndex);
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            final int type = columnTypes.getQuick(i);
+            metaMem.putInt(type);
+            metaMem.putStr(type > 0 ? columnNames.getQuick(i) : "");
+        }
+        metaMem.close(true);
+
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            final int type = columnTypes.getQuick(i);
+            if (type > 0) {
+                final CharSequence name = columnNames.getQuick(i);
+                columns.setQuick(2 * i, openColumnFile(segmentLen, name, TableUtils.FILE_SUFFIX_D, appendPageSize, opts, columns.getQuick(2 * i)));
+                if (isVarSize(type)) {
+                    final MemoryMA index = openColumnFile(segmentLen, name, TableUtils.FILE_SUFFIX_I, appendPageSize, opts, columns.getQuick(2 * i + 1));
+                    index.putLong(0);
+                    columns.setQuick(2 * i + 1, index);
+                }
+            }
+        }
+        path.trimTo(segmentLen);
+        segmentRowCount = 0;
+        committedRowCount = 0;
+        saveOffsets(committedOffsets);
+        LOG.debug().$("opened segment [path=").$(path).$(']').$();
+    }
+
+    private MemoryMA openColumnFile(int segmentLen, CharSequence name, CharSequence suffix, long appendPageSize, long opts, MemoryMA mem) {
+        if (mem == null) {
+            mem = Vm.getMAInstance();
+        }
+        mem.of(ff, path.trimTo(segmentLen).concat(name).put(suffix).$(), appendPageSize, MemoryTag.MMAP_TABLE_WRITER, opts);
+        return mem;
+    }
+
+    private void restoreOffsets(LongList offsets) {
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final MemoryMA mem = columns.getQuick(i);
+            if (mem != null) {
+                mem.jumpTo(offsets.getQuick(i));
+            }
+        }
+    }
+
+    private void saveOffsets(LongList offsets) {
+        offsets.setPos(columns.size());
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final MemoryMA mem = columns.getQuick(i);
+            offsets.setQuick(i, mem != null ? mem.getAppendOffset() : 0);
+        }
+    }
+
+    private void setRowValueNotNull(int columnIndex) {
+        rowValueStamps.setQuick(columnIndex, rowStamp);
+    }
+
+    private class RowImpl implements TableWriter.Row {
+        @Override
+        public void append() {
+            for (int i = 0, n = columnTypes.size(); i < n; i++) {
+                final int type = columnTypes.getQuick(i);
+                if (type > 0 && rowValueStamps.getQuick(i) != rowStamp) {
+                    putNull(getPrimaryColumn(i), getSecondaryColumn(i), type);
+                }
+            }
+            segmentRowCount++;
+            rowOpen = false;
+        }
+
+        @Override
+        public void cancel() {
+            restoreOffsets(rowStartOffsets);
+            rowOpen = false;
+        }
+
+        @Override
+        public void putBin(int columnIndex, long address, long len) {
+            getSecondaryColumn(columnIndex).putLong(getPrimaryColumn(columnIndex).putBin(address, len));
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putBin(int columnIndex, BinarySequence sequence) {
+            getSecondaryColumn(columnIndex).putLong(getPrimaryColumn(columnIndex).putBin(sequence));
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putBool(int columnIndex, boolean value) {
+            getPrimaryColumn(columnIndex).putBool(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putByte(int columnIndex, byte value) {
+            getPrimaryColumn(columnIndex).putByte(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putChar(int columnIndex, char value) {
+            getPrimaryColumn(columnIndex).putChar(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putDate(int columnIndex, long value) {
+            putLong(columnIndex, value);
+        }
+
+        @Override
+        public void putDouble(int columnIndex, double value) {
+            getPrimaryColumn(columnIndex).putDouble(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putFloat(int columnIndex, float value) {
+            getPrimaryColumn(columnIndex).putFloat(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putGeoHash(int columnIndex, long value) {
+            putGeoHash0(columnIndex, value, columnTypes.getQuick(columnIndex));
+        }
+
+        @Override
+        public void putGeoHashDeg(int columnIndex, double lat, double lon) {
+            final int type = columnTypes.getQuick(columnIndex);
+            putGeoHash0(columnIndex, GeoHashes.fromCoordinatesDegUnsafe(lat, lon, ColumnType.getGeoHashBits(type)), type);
+        }
+
+        @Override
+        public void putGeoStr(int columnIndex, CharSequence hash) {
+            final int type = columnTypes.getQuick(columnIndex);
+            long val = GeoHashes.NULL;
+            if (hash != null) {
+                final int typeBits = ColumnType.getGeoHashBits(type);
+                final int charsRequired = (typeBits - 1) / 5 + 1;
+                if (hash.length() >= charsRequired) {
+                    try {
+                        val = ColumnType.truncateGeoHashBits(
+                                GeoHashes.fromString(hash, 0, charsRequired),
+                                charsRequired * 5,
+                                typeBits
+                        );
+                    } catch (NumericException ignore) {
+                    }
+                }
+            }
+            putGeoHash0(columnIndex, val, type);
+        }
+
+        @Override
+        public void putInt(int columnIndex, int value) {
+            getPrimaryColumn(columnIndex).putInt(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putLong(int columnIndex, long value) {
+            getPrimaryColumn(columnIndex).putLong(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putLong256(int columnIndex, long l0, long l1, long l2, long l3) {
+            getPrimaryColumn(columnIndex).putLong256(l0, l1, l2, l3);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putLong256(int columnIndex, Long256 value) {
+            getPrimaryColumn(columnIndex).putLong256(value.getLong0(), value.getLong1(), value.getLong2(), value.getLong3());
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putLong256(int columnIndex, CharSequence hexString) {
+            getPrimaryColumn(columnIndex).putLong256(hexString);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putLong256(int columnIndex, @NotNull CharSequence hexString, int start, int end) {
+            getPrimaryColumn(columnIndex).putLong256(hexString, start, end);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putShort(int columnIndex, short value) {
+            getPrimaryColumn(columnIndex).putShort(value);
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putStr(int columnIndex, CharSequence value) {
+            getSecondaryColumn(columnIndex).putLong(getPrimaryColumn(columnIndex).putStr(value));
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putStr(int columnIndex, char value) {
+            getSecondaryColumn(columnIndex).putLong(getPrimaryColumn(columnIndex).putStr(value));
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putStr(int columnIndex, CharSequence value, int pos, int len) {
+            getSecondaryColumn(columnIndex).putLong(getPrimaryColumn(columnIndex).putStr(value, pos, len));
+            setRowValueNotNull(columnIndex);
+        }
+
+        @Override
+        public void putSym(int columnIndex, CharSequence value) {
+            putStr(columnIndex, value);
+        }
+
+        @Override
+        public void putSym(int columnIndex, char value) {
+            putStr(columnIndex, value);
+        }
+
+        @Override
+        public void putSymIndex(int columnIndex, int symIndex) {
+            throw CairoException.instance(0).put("symbol keys are not supported by WAL writer [table=").put(tableName).put(']');
+        }
+
+        @Override
+        public void putTimestamp(int columnIndex, long value) {
+            putLong(columnIndex, value);
+        }
+
+        @Override
+        public void putTimestamp(int columnIndex, CharSequence value) {
+            long l;
+            try {
+                l = value != null ? IntervalUtils.parseFloorPartialDate(value) : Numbers.LONG_NaN;
+            } catch (NumericException e) {
+                throw CairoException.instance(0).put("Invalid timestamp: ").put(value);
+            }
+            putTimestamp(columnIndex, l);
+        }
+
+        private void putGeoHash0(int columnIndex, long value, int type) {
+            final MemoryA primaryColumn = getPrimaryColumn(columnIndex);
+            switch (ColumnType.tagOf(type)) {
+                case ColumnType.GEOBYTE:
+                    primaryColumn.putByte((byte) value);
+                    break;
+                case ColumnType.GEOSHORT:
+                    primaryColumn.putShort((short) value);
+                    break;
+                case ColumnType.GEOINT:
+                    primaryColumn.putInt((int) value);
+                    break;
+                default:
+                    primaryColumn.putLong(value);
+                    break;
+            }
+            setRowValueNotNull(columnIndex);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+
+import java.io.Closeable;
+
+/**
+ * Keeps table sequencers and idle WAL writers. Writer returned to the pool on close is
+ * rolled back and reused by the next caller unless table structure has changed since
+ * it was opened.
+ * <p>
+ * Pending WAL transactions are applied by whoever owns the table writer: by the engine
+ * before it hands the writer out, by {@link ApplyWal2TableJob} or, when the writer is
+ * busy, by its current owner via the writer's command queue.
+ */
+public class WalWriterPool implements Closeable {
+    private static final Log LOG = LogFactory.getLog(WalWriterPool.class);
+    private static final int MAX_IDLE_WRITERS_PER_TABLE = 4;
+    private final ConcurrentHashMap<Entry> entries = new ConcurrentHashMap<>();
+    private final ObjList<TableSequencer> sequencers = new ObjList<>();
+    private final CairoConfiguration configuration;
+    private volatile int version;
+    private volatile boolean closed;
+
+    public WalWriterPool(CairoConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Applies WAL transactions of the writer's table that are not in the table yet. Rows the
+     * writer holds uncommitted are committed first. When transactions cannot be applied,
+     * they are rolled back and the table's sequencer is suspended.
+     *
+     * @param writer writer owned by the calling thread
+     * @return number of applied transactions
+     */
+    public long applyPending(TableWriter writer) {
+        final Entry e = entries.get(writer.getTableName());
+        return e != null ? e.apply(writer) : 0;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Entry e : entries.values()) {
+            e.close();
+        }
+        entries.clear();
+        synchronized (sequencers) {
+            sequencers.clear();
+            version++;
+        }
+    }
+
+    /**
+     * Copies open sequencers into the sink.
+     *
+     * @return version of the sequencer list, which changes each time a table is added or removed
+     */
+    public int getSequencers(ObjList<TableSequencer> sink) {
+        synchronized (sequencers) {
+            sink.clear();
+            sink.addAll(sequencers);
+            return version;
+        }
+    }
+
+    public TableSequencer getSequencer(CharSequence tableName) {
+        return getEntry(tableName).sequencer;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public WalWriter getWriter(CharSequence tableName) {
+        return getEntry(tableName).get();
+    }
+
+    /**
+     * Opens sequencers of tables that have WAL transactions not applied yet, so that they
+     * are found by the apply job without waiting for the next WAL write to the table.
+     */
+    public void openPendingSequencers() {
+        final FilesFacade ff = configuration.getFilesFacade();
+        final StringSink nameSink = new StringSink();
+        final ObjList<String> tableNames = new ObjList<>();
+        try (Path path = new Path()) {
+            ff.iterateDir(path.of(configuration.getRoot()).$(), (pUtf8NameZ, type) -> {
+                if (Files.isDir(pUtf8NameZ, type, nameSink)) {
+                    tableNames.add(nameSink.toString());
+                }
+            });
+            final long tempMem8b = Unsafe.malloc(Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            try {
+                for (int i = 0, n = tableNames.size(); i < n; i++) {
+                    final String tableName = tableNames.getQuick(i);
+                    final long lastTxn = TableSequencer.readLastTxn(ff, path.of(configuration.getRoot()).concat(tableName), tempMem8b);
+                    if (lastTxn > 0 && readAppliedTxn(path, tableName) < lastTxn) {
+                        LOG.info().$("found pending WAL transactions [table=").$(tableName).$(", lastTxn=").$(lastTxn).I$();
+                        getEntry(tableName);
+                    }
+                }
+            } finally {
+                Unsafe.free(tempMem8b, Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            }
+        }
+    }
+
+    /**
+     * Closes all idle writers and sequencers. Writers that are in use are closed
+     * when they are returned to the pool. Sequencers with transactions not applied
+     * yet are re-opened.
+     */
+    public void releaseAll() {
+        final ObjList<String> pendingTables = new ObjList<>();
+        try (Path path = new Path()) {
+            for (Entry e : entries.values()) {
+                final long lastTxn = e.sequencer.getLastTxn();
+                if (lastTxn != e.sequencer.getAppliedTxn() && readAppliedTxn(path, e.tableName) < lastTxn) {
+                    pendingTables.add(e.tableName);
+                }
+                releaseTable(e.tableName);
+            }
+        }
+        for (int i = 0, n = pendingTables.size(); i < n && !closed; i++) {
+            getEntry(pendingTables.getQuick(i));
+        }
+    }
+
+    /**
+     * Closes idle writers and sequencer of dropped or renamed table.
+     */
+    public void releaseTable(CharSequence tableName) {
+        final Entry e = entries.remove(tableName);
+        if (e != null) {
+            synchronized (sequencers) {
+                sequencers.remove(e.sequencer);
+                version++;
+            }
+            e.close();
+        }
+    }
+
+    ApplyWalCommand getApplyCommand(CharSequence tableName) {
+        final Entry e = entries.get(tableName);
+        return e != null ? e.applyCommand : null;
+    }
+
+    private long readAppliedTxn(Path path, CharSequence tableName) {
+        final FilesFacade ff = configuration.getFilesFacade();
+        if (!ff.exists(path.of(configuration.getRoot()).concat(tableName).concat(TableUtils.TXN_FILE_NAME).$())) {
+            return Long.MAX_VALUE;
+        }
+        try (TxReader txReader = new TxReader(ff).ofRO(path.of(configuration.getRoot()).concat(tableName), PartitionBy.NONE)) {
+            TableUtils.safeReadTxn(txReader, configuration.getMicrosecondClock(), configuration.getSpinLockTimeoutUs());
+            return txReader.getSeqTxn();
+        }
+    }
+
+    private Entry getEntry(CharSequence tableName) {
+        if (closed) {
+            throw CairoException.instance(0).put("WAL writer pool is closed");
+        }
+        Entry e = entries.get(tableName);
+        if (e == null) {
+            synchronized (sequencers) {
+                e = entries.get(tableName);
+                if (e == null) {
+                    final Path path = Path.getThreadLocal(configuration.getRoot());
+                    if (TableUtils.exists(configuration.getFilesFacade(), path, configuration.getRoot(), tableName) != TableUtils.TABLE_EXISTS) {
+                        throw CairoException.instance(0).put("table does not exist [table=").put(tableName).put(']');
+                    }
+                    e = new Entry(Chars.toString(tableName));
+                    entries.put(tableName, e);
+                    sequencers.add(e.sequencer);
+                    version++;
+                }
+            }
+        }
+        return e;
+    }
+
+    private class Entry implements Closeable {
+        private final String tableName;
+        private final TableSequencer sequencer;
+        private final ObjList<WalWriter> idleWriters = new ObjList<>();
+        private final Path path;
+        private final WalApplier applier;
+        private final ApplyWalCommand applyCommand;
+        private long tempMem8b;
+        private volatile boolean closed;
+
+        private Entry(String tableName) {
+            this.tableName = tableName;
+            this.path = new Path().of(configuration.getRoot()).concat(tableName).concat(TableUtils.META_FILE_NAME).$();
+            this.tempMem8b = Unsafe.malloc(Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            this.applier = new WalApplier(configuration);
+            try {
+                this.applyCommand = new ApplyWalCommand(WalWriterPool.this, tableName, readTableId());
+                this.sequencer = new TableSequencer(configuration, tableName);
+            } catch (Throwable e) {
+                Misc.free(path);
+                Misc.free(applier);
+                Unsafe.free(tempMem8b, Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+                throw e;
+            }
+        }
+
+        private long apply(TableWriter writer) {
+            synchronized (applier) {
+                applyCommand.done();
+                if (closed || sequencer.isSuspended()) {
+                    return 0;
+                }
+                long applied = 0;
+                if (sequencer.getLastTxn() <= writer.getSeqTxn()) {
+                    sequencer.setAppliedTxn(writer.getSeqTxn());
+                } else {
+                    if (writer.inTransaction()) {
+                        // rows of the writer's owner were appended before WAL transactions are applied
+                        writer.commit();
+                    }
+                    try {
+                        applied = applier.apply(writer, sequencer);
+                    } catch (CairoException e) {
+                        LOG.critical().$("could not apply WAL, table is suspended [table=").$(tableName)
+                                .$(", error=").$(e.getFlyweightMessage())
+                                .$(", errno=").$(e.getErrno())
+                                .I$();
+                        writer.rollback();
+                        sequencer.suspend();
+                        return 0;
+                    }
+                }
+                applier.purge(sequencer);
+                return applied;
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            synchronized (applier) {
+                applier.close();
+            }
+            for (int i = 0, n = idleWriters.size(); i < n; i++) {
+                final WalWriter writer = idleWriters.getQuick(i);
+                writer.setLifecycleManager(DefaultLifecycleManager.INSTANCE);
+                writer.close();
+            }
+            idleWriters.clear();
+            Misc.free(sequencer);
+            Misc.free(path);
+            if (tempMem8b != 0) {
+                Unsafe.free(tempMem8b, Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+                tempMem8b = 0;
+            }
+        }
+
+        private synchronized WalWriter get() {
+            if (closed) {
+                throw CairoException.instance(0).put("table is being dropped or renamed [table=").put(tableName).put(']');
+            }
+            for (int n = idleWriters.size(); n > 0; n--) {
+                final WalWriter writer = idleWriters.getQuick(n - 1);
+                idleWriters.setPos(n - 1);
+                if (writer.getStructureVersion() == readStructureVersion()) {
+                    return writer;
+                }
+                LOG.info().$("closing stale WAL writer [table=").$(tableName).$(", walId=").$(writer.getWalId()).$(']').$();
+                writer.setLifecycleManager(DefaultLifecycleManager.INSTANCE);
+                writer.close();
+            }
+            final WalWriter writer = new WalWriter(configuration, tableName, sequencer);
+            writer.setLifecycleManager(() -> release(writer));
+            return writer;
+        }
+
+        private int readTableId() {
+            final FilesFacade ff = configuration.getFilesFacade();
+            final long fd = TableUtils.openRO(ff, path, LOG);
+            try {
+                return TableUtils.readIntOrFail(ff, fd, TableUtils.META_OFFSET_TABLE_ID, tempMem8b, path);
+            } finally {
+                ff.close(fd);
+            }
+        }
+
+        private long readStructureVersion() {
+            return TableUtils.readLongAtOffset(configuration.getFilesFacade(), path, tempMem8b, TableUtils.META_OFFSET_STRUCTURE_VERSION);
+        }
+
+        private synchronized boolean release(WalWriter writer) {
+            if (closed || idleWriters.size() >= MAX_IDLE_WRITERS_PER_TABLE) {
+                return true;
+            }
+            writer.rollback();
+            idleWriters.add(writer);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,886 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.arrow;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.GeoHashes;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.cutlass.http.HttpChunkedResponseSocket;
+import io.questdb.network.PeerDisconnectedException;
+import io.questdb.network.PeerIsSlowToReadException;
+import io.questdb.std.*;
+import io.questdb.std.str.AbstractCharSink;
+import io.questdb.std.str.CharSink;
+import io.questdb.std.str.DirectCharSequence;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Streams query result in Arrow IPC streaming format: schema message, followed by record
+ * batches and end-of-stream marker. Values are sent in binary, column by column, so that
+ * clients do not have to parse text.
+ * <p>
+ * When result is produced by {@link PageFrameCursor}, record batches are cut from page frames
+ * and fixed size columns are sent straight from frame memory, only validity bitmaps are
+ * computed from null sentinels. Other results, as well as booleans and variable length
+ * columns of page frames, are copied into native buffers of the writer first. Strings,
+ * symbols and chars are sent as UTF-8.
+ * <p>
+ * Writer is resumable, {@link #resume(HttpChunkedResponseSocket)} can be called again after
+ * peer was slow to read.
+ */
+public class ArrowStreamWriter implements Closeable, Mutable {
+    // metadata version V5
+    private static final short METADATA_VERSION = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_NULL = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_BINARY = 4;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_BOOL = 6;
+    private static final byte TYPE_DATE = 8;
+    private static final byte TYPE_TIMESTAMP = 10;
+    private static final byte TYPE_FIXED_SIZE_BINARY = 15;
+    private static final short PRECISION_SINGLE = 1;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short DATE_UNIT_MILLISECOND = 1;
+    private static final short TIME_UNIT_MICROSECOND = 2;
+    // variable length values are addressed by int offsets, record batch is cut well before they overflow
+    private static final long MAX_BATCH_VAR_SIZE = 256 * 1024 * 1024;
+    private static final long PAGE_SIZE = 64 * 1024;
+    private static final int STATE_SEND = 0;
+    private static final int STATE_BATCH = 1;
+    private static final int STATE_END_OF_STREAM = 2;
+    private static final int STATE_DONE = 3;
+    private final int batchRowCount;
+    private final MemoryCARW metadataMem;
+    private final FlatBufferWriter flatBuffer;
+    private final IntList columnIndexes = new IntList();
+    private final IntList columnTypes = new IntList();
+    private final ObjList<MemoryCARW> validityMems = new ObjList<>();
+    private final ObjList<MemoryCARW> valueMems = new ObjList<>();
+    private final ObjList<MemoryCARW> offsetMems = new ObjList<>();
+    // pairs of (length, null count) per column
+    private final LongList nodes = new LongList();
+    // pairs of (address, length) per Arrow buffer
+    private final LongList buffers = new LongList();
+    // pairs of (address, length) of bytes to be sent
+    private final LongList segments = new LongList();
+    private final Utf8Sink utf8Sink = new Utf8Sink();
+    private final DirectCharSequence charView = new DirectCharSequence();
+    private long padding;
+    private RecordMetadata metadata;
+    private RecordCursor cursor;
+    private PageFrameCursor frameCursor;
+    private PageFrame frame;
+    private long frameRowLo;
+    private long frameRowHi;
+    private long skip;
+    private long remaining;
+    private int state = STATE_DONE;
+    private int segmentIndex;
+    private long segmentOffset;
+
+    public ArrowStreamWriter(int batchRowCount) {
+        this.batchRowCount = batchRowCount;
+        this.metadataMem = Vm.getCARWInstance(PAGE_SIZE, Integer.MAX_VALUE, MemoryTag.NATIVE_HTTP_CONN);
+        this.flatBuffer = new FlatBufferWriter(metadataMem);
+        this.padding = Unsafe.calloc(Long.BYTES, MemoryTag.NATIVE_HTTP_CONN);
+    }
+
+    /**
+     * Page frames of the factory can be streamed when they cover all rows of the result in
+     * the order of the record cursor.
+     */
+    public static boolean canStreamPageFrames(RecordCursorFactory factory) {
+        return factory.supportPageFrameCursor() && !factory.hasDescendingOrder();
+    }
+
+    @Override
+    public void clear() {
+        metadata = null;
+        cursor = null;
+        frameCursor = null;
+        frame = null;
+        nodes.clear();
+        buffers.clear();
+        segments.clear();
+        state = STATE_DONE;
+        // buffers can be large, they are not kept between requests
+        metadataMem.close();
+        freeMems(validityMems);
+        freeMems(valueMems);
+        freeMems(offsetMems);
+    }
+
+    @Override
+    public void close() {
+        clear();
+        if (padding != 0) {
+            Unsafe.free(padding, Long.BYTES, MemoryTag.NATIVE_HTTP_CONN);
+            padding = 0;
+        }
+    }
+
+    /**
+     * Prepares streaming of record cursor. Cursor remains owned by the caller.
+     *
+     * @param metadata      metadata of the cursor
+     * @param columnIndexes indexes of columns to be streamed, null or empty to stream all columns
+     * @param skip          number of rows to skip
+     * @param limit         max number of rows to stream
+     */
+    public void of(RecordMetadata metadata, @Nullable IntList columnIndexes, RecordCursor cursor, long skip, long limit) {
+        this.cursor = cursor;
+        this.frameCursor = null;
+        this.skip = skip;
+        this.remaining = limit;
+        of0(metadata, columnIndexes);
+    }
+
+    /**
+     * Prepares streaming of page frames. Cursor remains owned by the caller.
+     *
+     * @param metadata      metadata of the factory, which produced page frame cursor
+     * @param columnIndexes indexes of columns to be streamed, null or empty to stream all columns
+     */
+    public void of(RecordMetadata metadata, @Nullable IntList columnIndexes, PageFrameCursor frameCursor) {
+        this.cursor = null;
+        this.frameCursor = frameCursor;
+        this.frame = null;
+        this.frameRowLo = 0;
+        this.frameRowHi = 0;
+        of0(metadata, columnIndexes);
+    }
+
+    /**
+     * Sends the remainder of the stream, final chunk included.
+     */
+    public void resume(HttpChunkedResponseSocket socket) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        while (true) {
+            switch (state) {
+                case STATE_SEND:
+                    send(socket);
+                    state = STATE_BATCH;
+                    break;
+                case STATE_BATCH:
+                    final long rowCount = frameCursor != null ? nextFrameBatch() : nextRecordBatch();
+                    if (rowCount > 0) {
+                        putRecordBatch(rowCount);
+                        state = STATE_SEND;
+                    } else {
+                        putEndOfStream();
+                        state = STATE_END_OF_STREAM;
+                    }
+                    break;
+                case STATE_END_OF_STREAM:
+                    send(socket);
+                    state = STATE_DONE;
+                    socket.sendChunk(true);
+                    return;
+                default:
+                    socket.done();
+                    return;
+            }
+        }
+    }
+
+    private static byte arrowTypeOf(int type) {
+        switch (ColumnType.tagOf(type)) {
+            case ColumnType.BOOLEAN:
+                return TYPE_BOOL;
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.INT:
+            case ColumnType.LONG:
+            case ColumnType.GEOBYTE:
+            case ColumnType.GEOSHORT:
+            case ColumnType.GEOINT:
+            case ColumnType.GEOLONG:
+                return TYPE_INT;
+            case ColumnType.FLOAT:
+            case ColumnType.DOUBLE:
+                return TYPE_FLOATING_POINT;
+            case ColumnType.DATE:
+                return TYPE_DATE;
+            case ColumnType.TIMESTAMP:
+                return TYPE_TIMESTAMP;
+            case ColumnType.LONG256:
+                return TYPE_FIXED_SIZE_BINARY;
+            case ColumnType.CHAR:
+            case ColumnType.STRING:
+            case ColumnType.SYMBOL:
+                return TYPE_UTF8;
+            case ColumnType.BINARY:
+                return TYPE_BINARY;
+            case ColumnType.NULL:
+                return TYPE_NULL;
+            default:
+                return -1;
+        }
+    }
+
+    private static void freeMems(ObjList<MemoryCARW> mems) {
+        for (int i = 0, n = mems.size(); i < n; i++) {
+            mems.getQuick(i).close();
+        }
+    }
+
+    private static boolean isNull(int tag, long address) {
+        switch (tag) {
+            case ColumnType.INT:
+                return Unsafe.getUnsafe().getInt(address) == Numbers.INT_NaN;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                return Unsafe.getUnsafe().getLong(address) == Numbers.LONG_NaN;
+            case ColumnType.FLOAT:
+                return Float.isNaN(Unsafe.getUnsafe().getFloat(address));
+            case ColumnType.DOUBLE:
+                return Double.isNaN(Unsafe.getUnsafe().getDouble(address));
+            case ColumnType.GEOBYTE:
+                return Unsafe.getUnsafe().getByte(address) == GeoHashes.BYTE_NULL;
+            case ColumnType.GEOSHORT:
+                return Unsafe.getUnsafe().getShort(address) == GeoHashes.SHORT_NULL;
+            case ColumnType.GEOINT:
+                return Unsafe.getUnsafe().getInt(address) == GeoHashes.INT_NULL;
+            case ColumnType.GEOLONG:
+                return Unsafe.getUnsafe().getLong(address) == GeoHashes.NULL;
+            case ColumnType.LONG256:
+                return Unsafe.getUnsafe().getLong(address) == Numbers.LONG_NaN
+                        && Unsafe.getUnsafe().getLong(address + 8) == Numbers.LONG_NaN
+                        && Unsafe.getUnsafe().getLong(address + 16) == Numbers.LONG_NaN
+                        && Unsafe.getUnsafe().getLong(address + 24) == Numbers.LONG_NaN;
+            default:
+                // byte and short do not have nulls
+                return false;
+        }
+    }
+
+    private static boolean isNullable(int tag) {
+        return tag != ColumnType.BYTE && tag != ColumnType.SHORT && tag != ColumnType.BOOLEAN;
+    }
+
+    private static boolean isVar(int tag) {
+        return tag == ColumnType.CHAR || tag == ColumnType.STRING || tag == ColumnType.SYMBOL || tag == ColumnType.BINARY;
+    }
+
+    /**
+     * Packs bytes into bits, least significant bit first. Packing can be done in place.
+     *
+     * @return number of non-zero bytes
+     */
+    private static long packBits(long src, long count, long dst) {
+        long set = 0;
+        for (long i = 0; i < count; i += 8) {
+            int bits = 0;
+            for (int j = 0, n = (int) Math.min(8, count - i); j < n; j++) {
+                if (Unsafe.getUnsafe().getByte(src + i + j) != 0) {
+                    bits |= 1 << j;
+                    set++;
+                }
+            }
+            Unsafe.getUnsafe().putByte(dst + (i >>> 3), (byte) bits);
+        }
+        return set;
+    }
+
+    private static void putNulls(int tag, long address, long count) {
+        switch (tag) {
+            case ColumnType.INT:
+                Vect.setMemoryInt(address, Numbers.INT_NaN, count);
+                break;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                Vect.setMemoryLong(address, Numbers.LONG_NaN, count);
+                break;
+            case ColumnType.LONG256:
+                Vect.setMemoryLong(address, Numbers.LONG_NaN, count * 4);
+                break;
+            case ColumnType.FLOAT:
+                Vect.setMemoryFloat(address, Float.NaN, count);
+                break;
+            case ColumnType.DOUBLE:
+                Vect.setMemoryDouble(address, Double.NaN, count);
+                break;
+            case ColumnType.GEOBYTE:
+                Vect.memset(address, count, GeoHashes.BYTE_NULL);
+                break;
+            case ColumnType.GEOSHORT:
+                Vect.setMemoryShort(address, GeoHashes.SHORT_NULL, count);
+                break;
+            case ColumnType.GEOINT:
+                Vect.setMemoryInt(address, GeoHashes.INT_NULL, count);
+                break;
+            case ColumnType.GEOLONG:
+                Vect.setMemoryLong(address, GeoHashes.NULL, count);
+                break;
+            default:
+                // byte and short do not have nulls
+                Vect.memset(address, count << ColumnType.pow2SizeOf(tag), 0);
+                break;
+        }
+    }
+
+    private void addBuffer(long address, long length) {
+        buffers.add(address);
+        buffers.add(length);
+    }
+
+    private void addNode(long length, long nullCount) {
+        nodes.add(length);
+        nodes.add(nullCount);
+    }
+
+    private void appendRecord(Record record) {
+        for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+            final int col = columnIndexes.getQuick(i);
+            final MemoryCARW values = valueMems.getQuick(i);
+            switch (ColumnType.tagOf(columnTypes.getQuick(i))) {
+                case ColumnType.BOOLEAN:
+                    values.putBool(record.getBool(col));
+                    break;
+                case ColumnType.BYTE:
+                    values.putByte(record.getByte(col));
+                    break;
+                case ColumnType.GEOBYTE:
+                    values.putByte(record.getGeoByte(col));
+                    break;
+                case ColumnType.SHORT:
+                    values.putShort(record.getShort(col));
+                    break;
+                case ColumnType.GEOSHORT:
+                    values.putShort(record.getGeoShort(col));
+                    break;
+                case ColumnType.INT:
+                    values.putInt(record.getInt(col));
+                    break;
+                case ColumnType.GEOINT:
+                    values.putInt(record.getGeoInt(col));
+                    break;
+                case ColumnType.LONG:
+                    values.putLong(record.getLong(col));
+                    break;
+                case ColumnType.GEOLONG:
+                    values.putLong(record.getGeoLong(col));
+                    break;
+                case ColumnType.DATE:
+                    values.putLong(record.getDate(col));
+                    break;
+                case ColumnType.TIMESTAMP:
+                    values.putLong(record.getTimestamp(col));
+                    break;
+                case ColumnType.FLOAT:
+                    values.putFloat(record.getFloat(col));
+                    break;
+                case ColumnType.DOUBLE:
+                    values.putDouble(record.getDouble(col));
+                    break;
+                case ColumnType.LONG256:
+                    final Long256 long256 = record.getLong256A(col);
+                    values.putLong256(long256.getLong0(), long256.getLong1(), long256.getLong2(), long256.getLong3());
+                    break;
+                case ColumnType.CHAR:
+                    final char c = record.getChar(col);
+                    if (c > 0) {
+                        utf8Sink.of(values).putUtf8(c);
+                        appendVarEnd(i);
+                    } else {
+                        appendVarNull(i);
+                    }
+                    break;
+                case ColumnType.STRING:
+                    appendUtf8(i, record.getStr(col));
+                    break;
+                case ColumnType.SYMBOL:
+                    appendUtf8(i, record.getSym(col));
+                    break;
+                case ColumnType.BINARY:
+                    final BinarySequence bin = record.getBin(col);
+                    if (bin != null) {
+                        final long len = bin.length();
+                        bin.copyTo(values.appendAddressFor(len), 0, len);
+                        appendVarEnd(i);
+                    } else {
+                        appendVarNull(i);
+                    }
+                    break;
+                default:
+                    // null column has no buffers
+                    break;
+            }
+        }
+    }
+
+    private void appendUtf8(int columnIndex, CharSequence value) {
+        if (value != null) {
+            utf8Sink.of(valueMems.getQuick(columnIndex)).encodeUtf8(value);
+            appendVarEnd(columnIndex);
+        } else {
+            appendVarNull(columnIndex);
+        }
+    }
+
+    private void appendVarEnd(int columnIndex) {
+        final long size = valueMems.getQuick(columnIndex).getAppendOffset();
+        if (size > Integer.MAX_VALUE) {
+            throw CairoException.instance(0).put("arrow record batch is too large [column=").put(metadata.getColumnName(columnIndexes.getQuick(columnIndex))).put(']');
+        }
+        validityMems.getQuick(columnIndex).putByte((byte) 1);
+        offsetMems.getQuick(columnIndex).putInt((int) size);
+    }
+
+    private void appendVarNull(int columnIndex) {
+        validityMems.getQuick(columnIndex).putByte((byte) 0);
+        offsetMems.getQuick(columnIndex).putInt((int) valueMems.getQuick(columnIndex).getAppendOffset());
+    }
+
+    private void finishBoolColumn(int columnIndex, long address, long rowCount) {
+        final MemoryCARW values = valueMems.getQuick(columnIndex);
+        final long size = (rowCount + 7) >>> 3;
+        // record batch values are one byte per row and are packed in place
+        final long bits = values.getAppendOffset() == 0 ? values.appendAddressFor(size) : values.getPageAddress(0);
+        if (address != 0) {
+            packBits(address, rowCount, bits);
+        } else {
+            // column top
+            Vect.memset(bits, size, 0);
+        }
+        addNode(rowCount, 0);
+        addBuffer(0, 0);
+        addBuffer(bits, size);
+    }
+
+    private void finishFixedColumn(int columnIndex, long address, long rowCount) {
+        final int type = columnTypes.getQuick(columnIndex);
+        final int tag = ColumnType.tagOf(type);
+        final int shift = ColumnType.pow2SizeOf(type);
+        final MemoryCARW validity = validityMems.getQuick(columnIndex);
+        validity.jumpTo(0);
+        long nullCount = 0;
+        if (address == 0) {
+            // column top reads as nulls, same values record cursor would return
+            final MemoryCARW values = valueMems.getQuick(columnIndex);
+            values.jumpTo(0);
+            address = values.appendAddressFor(rowCount << shift);
+            putNulls(tag, address, rowCount);
+        }
+        if (isNullable(tag)) {
+            final long bits = validity.appendAddressFor((rowCount + 7) >>> 3);
+            for (long i = 0; i < rowCount; i += 8) {
+                int b = 0;
+                for (int j = 0, n = (int) Math.min(8, rowCount - i); j < n; j++) {
+                    if (isNull(tag, address + ((i + j) << shift))) {
+                        nullCount++;
+                    } else {
+                        b |= 1 << j;
+                    }
+                }
+                Unsafe.getUnsafe().putByte(bits + (i >>> 3), (byte) b);
+            }
+        }
+        addNode(rowCount, nullCount);
+        // validity bitmap can be omitted when there are no nulls
+        addBuffer(validity.getPageAddress(0), nullCount > 0 ? (rowCount + 7) >>> 3 : 0);
+        addBuffer(address, rowCount << shift);
+    }
+
+    private void finishVarColumn(int columnIndex, long rowCount) {
+        final MemoryCARW validity = validityMems.getQuick(columnIndex);
+        final long bits = validity.getPageAddress(0);
+        final long nullCount = rowCount - packBits(bits, rowCount, bits);
+        final MemoryCARW offsets = offsetMems.getQuick(columnIndex);
+        final MemoryCARW values = valueMems.getQuick(columnIndex);
+        addNode(rowCount, nullCount);
+        addBuffer(bits, nullCount > 0 ? (rowCount + 7) >>> 3 : 0);
+        addBuffer(offsets.getPageAddress(0), offsets.getAppendOffset());
+        addBuffer(values.getPageAddress(0), values.getAppendOffset());
+    }
+
+    private long nextFrameBatch() {
+        while (frame == null || frameRowLo == frameRowHi) {
+            frame = frameCursor.next();
+            if (frame == null) {
+                return 0;
+            }
+            frameRowLo = 0;
+            frameRowHi = frame.getPartitionHi() - frame.getPartitionLo();
+        }
+        final long lo = frameRowLo;
+        final long rowCount = Math.min(batchRowCount, frameRowHi - lo);
+        resetColumns();
+        for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+            final int col = columnIndexes.getQuick(i);
+            final int type = columnTypes.getQuick(i);
+            final int tag = ColumnType.tagOf(type);
+            final long address = frame.getPageAddress(col);
+            if (isVar(tag)) {
+                putFrameVarColumn(i, col, tag, address, lo, rowCount);
+                finishVarColumn(i, rowCount);
+            } else if (tag == ColumnType.BOOLEAN) {
+                finishBoolColumn(i, address != 0 ? address + lo : 0, rowCount);
+            } else {
+                finishFixedColumn(i, address != 0 ? address + (lo << ColumnType.pow2SizeOf(type)) : 0, rowCount);
+            }
+        }
+        frameRowLo += rowCount;
+        return rowCount;
+    }
+
+    private long nextRecordBatch() {
+        if (remaining < 1) {
+            return 0;
+        }
+        while (skip > 0 && cursor.hasNext()) {
+            skip--;
+        }
+        if (skip > 0) {
+            remaining = 0;
+            return 0;
+        }
+        resetColumns();
+        final Record record = cursor.getRecord();
+        long rowCount = 0;
+        while (rowCount < batchRowCount && remaining > 0 && !isVarSizeExceeded() && cursor.hasNext()) {
+            appendRecord(record);
+            rowCount++;
+            remaining--;
+        }
+        if (rowCount == 0) {
+            remaining = 0;
+            return 0;
+        }
+        for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+            final int tag = ColumnType.tagOf(columnTypes.getQuick(i));
+            if (isVar(tag)) {
+                finishVarColumn(i, rowCount);
+            } else if (tag == ColumnType.BOOLEAN) {
+                finishBoolColumn(i, valueMems.getQuick(i).getPageAddress(0), rowCount);
+            } else if (tag == ColumnType.NULL) {
+                addNode(rowCount, rowCount);
+            } else {
+                finishFixedColumn(i, valueMems.getQuick(i).getPageAddress(0), rowCount);
+            }
+        }
+        return rowCount;
+    }
+
+    private boolean isVarSizeExceeded() {
+        for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+            if (isVar(ColumnType.tagOf(columnTypes.getQuick(i))) && valueMems.getQuick(i).getAppendOffset() > MAX_BATCH_VAR_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void of0(RecordMetadata metadata, @Nullable IntList columnIndexes) {
+        this.metadata = metadata;
+        this.columnIndexes.clear();
+        this.columnTypes.clear();
+        if (columnIndexes != null && columnIndexes.size() > 0) {
+            this.columnIndexes.addAll(columnIndexes);
+        } else {
+            for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+                this.columnIndexes.add(i);
+            }
+        }
+        for (int i = 0, n = this.columnIndexes.size(); i < n; i++) {
+            final int columnIndex = this.columnIndexes.getQuick(i);
+            final int type = metadata.getColumnType(columnIndex);
+            if (arrowTypeOf(type) == -1) {
+                throw CairoException.instance(0)
+                        .put("unsupported column type [column=").put(metadata.getColumnName(columnIndex))
+                        .put(", type=").put(ColumnType.nameOf(type))
+                        .put(']');
+            }
+            columnTypes.add(type);
+        }
+        for (int i = validityMems.size(), n = this.columnIndexes.size(); i < n; i++) {
+            validityMems.add(Vm.getCARWInstance(PAGE_SIZE, Integer.MAX_VALUE, MemoryTag.NATIVE_HTTP_CONN));
+            valueMems.add(Vm.getCARWInstance(PAGE_SIZE, Integer.MAX_VALUE, MemoryTag.NATIVE_HTTP_CONN));
+            offsetMems.add(Vm.getCARWInstance(PAGE_SIZE, Integer.MAX_VALUE, MemoryTag.NATIVE_HTTP_CONN));
+        }
+        putSchema();
+        state = STATE_SEND;
+    }
+
+    private void putEndOfStream() {
+        metadataMem.jumpTo(0);
+        metadataMem.putInt(-1);
+        metadataMem.putInt(0);
+        segments.clear();
+        segments.add(metadataMem.getPageAddress(0));
+        segments.add(metadataMem.getAppendOffset());
+        segmentIndex = 0;
+        segmentOffset = 0;
+    }
+
+    private void putFrameVarColumn(int columnIndex, int col, int tag, long address, long lo, long rowCount) {
+        final MemoryCARW values = valueMems.getQuick(columnIndex);
+        if (address == 0) {
+            // column top
+            for (long r = 0; r < rowCount; r++) {
+                appendVarNull(columnIndex);
+            }
+            return;
+        }
+        switch (tag) {
+            case ColumnType.CHAR:
+                for (long r = lo, hi = lo + rowCount; r < hi; r++) {
+                    final char c = Unsafe.getUnsafe().getChar(address + (r << 1));
+                    if (c > 0) {
+                        utf8Sink.of(values).putUtf8(c);
+                        appendVarEnd(columnIndex);
+                    } else {
+                        appendVarNull(columnIndex);
+                    }
+                }
+                break;
+            case ColumnType.SYMBOL:
+                final SymbolTable symbolTable = frameCursor.getSymbolTable(col);
+                for (long r = lo, hi = lo + rowCount; r < hi; r++) {
+                    final int key = Unsafe.getUnsafe().getInt(address + (r << 2));
+                    appendUtf8(columnIndex, key != SymbolTable.VALUE_IS_NULL ? symbolTable.valueOf(key) : null);
+                }
+                break;
+            case ColumnType.STRING:
+                final long stringIndex = frame.getIndexPageAddress(col);
+                for (long r = lo, hi = lo + rowCount; r < hi; r++) {
+                    final long offset = Unsafe.getUnsafe().getLong(stringIndex + (r << 3));
+                    final int len = Unsafe.getUnsafe().getInt(address + offset);
+                    if (len > -1) {
+                        final long chars = address + offset + Integer.BYTES;
+                        utf8Sink.of(values).encodeUtf8(charView.of(chars, chars + ((long) len << 1)));
+                        appendVarEnd(columnIndex);
+                    } else {
+                        appendVarNull(columnIndex);
+                    }
+                }
+                break;
+            default:
+                final long binIndex = frame.getIndexPageAddress(col);
+                for (long r = lo, hi = lo + rowCount; r < hi; r++) {
+                    final long offset = Unsafe.getUnsafe().getLong(binIndex + (r << 3));
+                    final long len = Unsafe.getUnsafe().getLong(address + offset);
+                    if (len > -1) {
+                        Vect.memcpy(values.appendAddressFor(len), address + offset + Long.BYTES, len);
+                        appendVarEnd(columnIndex);
+                    } else {
+                        appendVarNull(columnIndex);
+                    }
+                }
+                break;
+        }
+    }
+
+    private void putRecordBatch(long rowCount) {
+        long bodyLength = 0;
+        for (int i = 1, n = buffers.size(); i < n; i += 2) {
+            bodyLength += (buffers.getQuick(i) + 7) & ~7L;
+        }
+
+        startMessage();
+        final int root = flatBuffer.startBuffer();
+        flatBuffer.startTable();
+        flatBuffer.addShort(0, METADATA_VERSION);
+        flatBuffer.addByte(1, HEADER_RECORD_BATCH);
+        final int header = flatBuffer.addOffset(2);
+        flatBuffer.addLong(3, bodyLength);
+        flatBuffer.patch(root, flatBuffer.endTable());
+
+        flatBuffer.startTable();
+        flatBuffer.addLong(0, rowCount);
+        final int nodesSlot = flatBuffer.addOffset(1);
+        final int buffersSlot = flatBuffer.addOffset(2);
+        flatBuffer.patch(header, flatBuffer.endTable());
+
+        flatBuffer.patch(nodesSlot, flatBuffer.putStructVector(nodes.size() / 2));
+        for (int i = 0, n = nodes.size(); i < n; i++) {
+            flatBuffer.putLong(nodes.getQuick(i));
+        }
+        flatBuffer.patch(buffersSlot, flatBuffer.putStructVector(buffers.size() / 2));
+        long offset = 0;
+        for (int i = 1, n = buffers.size(); i < n; i += 2) {
+            final long length = buffers.getQuick(i);
+            flatBuffer.putLong(offset);
+            flatBuffer.putLong(length);
+            offset += (length + 7) & ~7L;
+        }
+        endMessage();
+
+        for (int i = 0, n = buffers.size(); i < n; i += 2) {
+            final long length = buffers.getQuick(i + 1);
+            if (length > 0) {
+                segments.add(buffers.getQuick(i));
+                segments.add(length);
+                if ((length & 7) != 0) {
+                    segments.add(padding);
+                    segments.add(8 - (length & 7));
+                }
+            }
+        }
+    }
+
+    private void putSchema() {
+        startMessage();
+        final int root = flatBuffer.startBuffer();
+        flatBuffer.startTable();
+        flatBuffer.addShort(0, METADATA_VERSION);
+        flatBuffer.addByte(1, HEADER_SCHEMA);
+        final int header = flatBuffer.addOffset(2);
+        flatBuffer.addLong(3, 0);
+        flatBuffer.patch(root, flatBuffer.endTable());
+
+        flatBuffer.startTable();
+        final int fieldsSlot = flatBuffer.addOffset(1);
+        flatBuffer.patch(header, flatBuffer.endTable());
+
+        final int columnCount = columnIndexes.size();
+        final int firstFieldSlot = flatBuffer.getSlotCount();
+        flatBuffer.patch(fieldsSlot, flatBuffer.putOffsetVector(columnCount));
+        for (int i = 0; i < columnCount; i++) {
+            final int type = columnTypes.getQuick(i);
+            flatBuffer.startTable();
+            final int nameSlot = flatBuffer.addOffset(0);
+            flatBuffer.addBool(1, true);
+            flatBuffer.addByte(2, arrowTypeOf(type));
+            final int typeSlot = flatBuffer.addOffset(3);
+            final int childrenSlot = flatBuffer.addOffset(5);
+            flatBuffer.patch(firstFieldSlot + i, flatBuffer.endTable());
+
+            flatBuffer.patch(nameSlot, flatBuffer.putString(metadata.getColumnName(columnIndexes.getQuick(i))));
+            flatBuffer.startTable();
+            switch (ColumnType.tagOf(type)) {
+                case ColumnType.BYTE:
+                case ColumnType.GEOBYTE:
+                case ColumnType.SHORT:
+                case ColumnType.GEOSHORT:
+                case ColumnType.INT:
+                case ColumnType.GEOINT:
+                case ColumnType.LONG:
+                case ColumnType.GEOLONG:
+                    // bit width
+                    flatBuffer.addInt(0, 8 << ColumnType.pow2SizeOf(type));
+                    // is signed
+                    flatBuffer.addBool(1, true);
+                    break;
+                case ColumnType.FLOAT:
+                    flatBuffer.addShort(0, PRECISION_SINGLE);
+                    break;
+                case ColumnType.DOUBLE:
+                    flatBuffer.addShort(0, PRECISION_DOUBLE);
+                    break;
+                case ColumnType.DATE:
+                    flatBuffer.addShort(0, DATE_UNIT_MILLISECOND);
+                    break;
+                case ColumnType.TIMESTAMP:
+                    flatBuffer.addShort(0, TIME_UNIT_MICROSECOND);
+                    break;
+                case ColumnType.LONG256:
+                    // byte width
+                    flatBuffer.addInt(0, 1 << ColumnType.pow2SizeOf(type));
+                    break;
+                default:
+                    // bool, utf8, binary and null types have no properties
+                    break;
+            }
+            flatBuffer.patch(typeSlot, flatBuffer.endTable());
+            flatBuffer.patch(childrenSlot, flatBuffer.putOffsetVector(0));
+        }
+        endMessage();
+    }
+
+    private void resetColumns() {
+        nodes.clear();
+        buffers.clear();
+        for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+            validityMems.getQuick(i).jumpTo(0);
+            valueMems.getQuick(i).jumpTo(0);
+            final MemoryCARW offsets = offsetMems.getQuick(i);
+            offsets.jumpTo(0);
+            if (isVar(ColumnType.tagOf(columnTypes.getQuick(i)))) {
+                offsets.putInt(0);
+            }
+        }
+    }
+
+    private void send(HttpChunkedResponseSocket socket) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        for (int n = segments.size() / 2; segmentIndex < n; ) {
+            final long address = segments.getQuick(2 * segmentIndex);
+            final long lo = address + segmentOffset;
+            final long hi = address + segments.getQuick(2 * segmentIndex + 1);
+            final long next = socket.writeBytes(lo, hi);
+            segmentOffset += next - lo;
+            if (next < hi) {
+                // position is saved, sending can be resumed should peer be slow to read
+                socket.sendChunk(false);
+            } else {
+                segmentIndex++;
+                segmentOffset = 0;
+            }
+        }
+    }
+
+    private void startMessage() {
+        metadataMem.jumpTo(0);
+        // continuation marker and metadata length
+        metadataMem.putInt(-1);
+        metadataMem.putInt(0);
+    }
+
+    private void endMessage() {
+        flatBuffer.align(8);
+        metadataMem.putInt(Integer.BYTES, (int) (metadataMem.getAppendOffset() - 2 * Integer.BYTES));
+        segments.clear();
+        segments.add(metadataMem.getPageAddress(0));
+        segments.add(metadataMem.getAppendOffset());
+        segmentIndex = 0;
+        segmentOffset = 0;
+    }
+
+    private static class Utf8Sink extends AbstractCharSink {
+        private MemoryCARW mem;
+
+        @Override
+        public CharSink put(char c) {
+            mem.putByte((byte) c);
+            return this;
+        }
+
+        Utf8Sink of(MemoryCARW mem) {
+            this.mem = mem;
+            return this;
+        }
+    }
+}
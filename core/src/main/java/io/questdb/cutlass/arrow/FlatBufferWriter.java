@@ -0,0 +1,264 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.arrow;
+
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.std.IntList;
+import io.questdb.std.LongList;
+import io.questdb.std.str.AbstractCharSink;
+import io.questdb.std.str.CharSink;
+
+/**
+ * Minimal FlatBuffers encoder, which writes buffer front to back into native memory. The
+ * reference builder writes back to front so that offsets to child objects are known when
+ * parent is written. Here parent is written first: vtable precedes its table and table fields
+ * referencing child objects are reserved as slots, which are patched once children are written
+ * further into the buffer. FlatBuffers offsets point forward, so the result is a valid buffer.
+ * <p>
+ * Buffer must start at 8-byte aligned offset of the memory, all alignments are computed
+ * relative to the start of the memory.
+ */
+class FlatBufferWriter {
+    private final MemoryCARW mem;
+    private final LongList slots = new LongList();
+    private final IntList fieldIds = new IntList();
+    private final IntList fieldSizes = new IntList();
+    private final LongList fieldValues = new LongList();
+    private final IntList slotFields = new IntList();
+    private final Utf8Sink utf8Sink = new Utf8Sink();
+
+    FlatBufferWriter(MemoryCARW mem) {
+        this.mem = mem;
+    }
+
+    void addBool(int id, boolean value) {
+        addField(id, Byte.BYTES, value ? 1 : 0);
+    }
+
+    void addByte(int id, int value) {
+        addField(id, Byte.BYTES, value);
+    }
+
+    void addInt(int id, int value) {
+        addField(id, Integer.BYTES, value);
+    }
+
+    void addLong(int id, long value) {
+        addField(id, Long.BYTES, value);
+    }
+
+    /**
+     * Reserves offset field of the current table.
+     *
+     * @return slot to be patched with position of child object
+     */
+    int addOffset(int id) {
+        addField(id, Integer.BYTES, 0);
+        slotFields.add(fieldIds.size() - 1);
+        slots.add(-1);
+        return slots.size() - 1;
+    }
+
+    void addShort(int id, int value) {
+        addField(id, Short.BYTES, value);
+    }
+
+    void align(int alignment) {
+        while ((mem.getAppendOffset() & (alignment - 1)) != 0) {
+            mem.putByte((byte) 0);
+        }
+    }
+
+    /**
+     * Writes current table, fields are laid out from the largest to the smallest so that they
+     * are naturally aligned.
+     *
+     * @return position of the table
+     */
+    long endTable() {
+        int maxId = -1;
+        for (int i = 0, n = fieldIds.size(); i < n; i++) {
+            maxId = Math.max(maxId, fieldIds.getQuick(i));
+        }
+        final int vtableSize = 4 + 2 * (maxId + 1);
+
+        // table starts at 4 mod 8, so that 8-byte fields following soffset are aligned
+        long table = mem.getAppendOffset() + vtableSize;
+        table += (12 - (table & 7)) & 7;
+        final long vtable = table - vtableSize;
+        long tableEnd = table + Integer.BYTES;
+        for (int size = Long.BYTES; size > 0; size >>= 1) {
+            for (int i = 0, n = fieldIds.size(); i < n; i++) {
+                if (fieldSizes.getQuick(i) == size) {
+                    tableEnd += (size - (tableEnd & (size - 1))) & (size - 1);
+                    tableEnd += size;
+                }
+            }
+        }
+
+        while (mem.getAppendOffset() < vtable) {
+            mem.putByte((byte) 0);
+        }
+        mem.putShort((short) vtableSize);
+        mem.putShort((short) (tableEnd - table));
+        for (int id = 0; id <= maxId; id++) {
+            mem.putShort((short) 0);
+        }
+        mem.putInt((int) (table - vtable));
+
+        for (int size = Long.BYTES; size > 0; size >>= 1) {
+            for (int i = 0, n = fieldIds.size(); i < n; i++) {
+                if (fieldSizes.getQuick(i) == size) {
+                    align(size);
+                    final long offset = mem.getAppendOffset();
+                    mem.putShort(vtable + 4 + 2L * fieldIds.getQuick(i), (short) (offset - table));
+                    final long value = fieldValues.getQuick(i);
+                    switch (size) {
+                        case Long.BYTES:
+                            mem.putLong(value);
+                            break;
+                        case Integer.BYTES:
+                            mem.putInt((int) value);
+                            break;
+                        case Short.BYTES:
+                            mem.putShort((short) value);
+                            break;
+                        default:
+                            mem.putByte((byte) value);
+                            break;
+                    }
+                    // slots of this table are resolved to positions of their fields
+                    for (int s = 0, m = slotFields.size(); s < m; s++) {
+                        if (slotFields.getQuick(s) == i) {
+                            slots.setQuick(slots.size() - m + s, offset);
+                        }
+                    }
+                }
+            }
+        }
+        assert mem.getAppendOffset() == tableEnd;
+        slotFields.clear();
+        return table;
+    }
+
+    long getPosition() {
+        return mem.getAppendOffset();
+    }
+
+    void patch(int slot, long target) {
+        final long slotPosition = slots.getQuick(slot);
+        assert target > slotPosition;
+        mem.putInt(slotPosition, (int) (target - slotPosition));
+    }
+
+    void putLong(long value) {
+        mem.putLong(value);
+    }
+
+    /**
+     * Writes vector of offsets, each element is a slot.
+     *
+     * @return position of the vector, elements are slots firstSlot .. firstSlot + count - 1,
+     * where firstSlot is the value of {@link #getSlotCount()} before this call
+     */
+    long putOffsetVector(int count) {
+        align(Integer.BYTES);
+        final long vector = mem.getAppendOffset();
+        mem.putInt(count);
+        for (int i = 0; i < count; i++) {
+            slots.add(mem.getAppendOffset());
+            mem.putInt(0);
+        }
+        return vector;
+    }
+
+    /**
+     * Writes UTF-8 encoded, zero terminated string.
+     *
+     * @return position of the string
+     */
+    long putString(CharSequence value) {
+        align(Integer.BYTES);
+        final long string = mem.getAppendOffset();
+        mem.putInt(0);
+        utf8Sink.encodeUtf8(value);
+        mem.putInt(string, (int) (mem.getAppendOffset() - string - Integer.BYTES));
+        mem.putByte((byte) 0);
+        return string;
+    }
+
+    /**
+     * Writes length of vector of structs aligned to 8 bytes, struct fields are to be
+     * written by the caller.
+     *
+     * @return position of the vector
+     */
+    long putStructVector(int count) {
+        while ((mem.getAppendOffset() & 7) != 4) {
+            mem.putByte((byte) 0);
+        }
+        final long vector = mem.getAppendOffset();
+        mem.putInt(count);
+        return vector;
+    }
+
+    int getSlotCount() {
+        return slots.size();
+    }
+
+    /**
+     * Starts buffer at current position of the memory, which must be 8-byte aligned.
+     *
+     * @return slot of root table offset
+     */
+    int startBuffer() {
+        assert (mem.getAppendOffset() & 7) == 0;
+        slots.clear();
+        slots.add(mem.getAppendOffset());
+        mem.putInt(0);
+        return 0;
+    }
+
+    void startTable() {
+        fieldIds.clear();
+        fieldSizes.clear();
+        fieldValues.clear();
+        slotFields.clear();
+    }
+
+    private void addField(int id, int size, long value) {
+        fieldIds.add(id);
+        fieldSizes.add(size);
+        fieldValues.add(value);
+    }
+
+    private class Utf8Sink extends AbstractCharSink {
+        @Override
+        public CharSink put(char c) {
+            mem.putByte((byte) c);
+            return this;
+        }
+    }
+}
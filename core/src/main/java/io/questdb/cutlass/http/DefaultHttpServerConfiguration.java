@@ -68,6 +68,11 @@ public class DefaultHttpServerConfiguration implements HttpServerConfiguration {
         }
     };
     private final JsonQueryProcessorConfiguration jsonQueryProcessorConfiguration = new JsonQueryProcessorConfiguration() {
+        @Override
+        public int getArrowBatchRowCount() {
+            return 65536;
+        }
+
         @Override
         public MillisecondClock getClock() {
             return httpContextConfiguration.getClock();
@@ -102,6 +107,11 @@ public class DefaultHttpServerConfiguration implements HttpServerConfiguration {
         public long getMaxQueryResponseRowLimit() {
             return Long.MAX_VALUE;
         }
+
+        @Override
+        public long getParallelBufferSize() {
+            return 16 * 1024 * 1024;
+        }
     };
 
     public DefaultHttpServerConfiguration() {
@@ -44,4 +44,13 @@ public interface HttpChunkedResponseSocket extends CharSink {
     void status(int status, CharSequence contentType);
 
     void shutdownWrite();
+
+    /**
+     * Copies bytes to the response buffer as is, as many as the buffer can take.
+     *
+     * @param lo address of the first byte
+     * @param hi address of the byte after the last one
+     * @return address of the first byte, which did not fit into the buffer, hi when all bytes were copied
+     */
+    long writeBytes(long lo, long hi);
 }
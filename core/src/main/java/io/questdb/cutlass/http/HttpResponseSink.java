@@ -576,6 +576,16 @@ public class HttpResponseSink implements Closeable, Mutable {
         public void shutdownWrite() {
             nf.shutdown(fd, Net.SHUT_WR);
         }
+
+        @Override
+        public long writeBytes(long lo, long hi) {
+            final long len = Math.min(hi - lo, buffer.getWriteNAvailable());
+            if (len > 0) {
+                Vect.memcpy(buffer.getWriteAddress((int) len), lo, len);
+                buffer.onWrite((int) len);
+            }
+            return lo + len;
+        }
     }
 
     private class ChunkBuffer extends AbstractCharSink implements Closeable {
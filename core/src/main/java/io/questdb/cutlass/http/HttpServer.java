@@ -30,6 +30,7 @@ import io.questdb.WorkerPoolAwareConfiguration;
 import io.questdb.cairo.CairoEngine;
 import io.questdb.cairo.ColumnIndexerJob;
 import io.questdb.cutlass.http.processors.*;
+import io.questdb.cutlass.text.TextImportJob;
 import io.questdb.griffin.DatabaseSnapshotAgent;
 import io.questdb.griffin.FunctionFactoryCache;
 import io.questdb.griffin.engine.groupby.vect.GroupByJob;
@@ -85,10 +86,6 @@ public class HttpServer implements Closeable {
         for (int i = 0; i < workerCount; i++) {
             final int index = i;
 
-            final SCSequence queryCacheEventSubSeq = new SCSequence();
-            final FanOut queryCacheEventFanOut = messageBus.getQueryCacheEventFanOut();
-            queryCacheEventFanOut.and(queryCacheEventSubSeq);
-
             pool.assign(i, new Job() {
                 private final HttpRequestProcessorSelector selector = selectors.getQuick(index);
                 private final IORequestProcessor<HttpConnectionContext> processor =
@@ -96,14 +93,7 @@ public class HttpServer implements Closeable {
 
                 @Override
                 public boolean run(int workerId) {
-                    long seq = queryCacheEventSubSeq.next();
-                    if (seq > -1) {
-                        // Queue is not empty, so flush query cache.
-                        LOG.info().$("flushing HTTP server query cache [worker=").$(workerId).$(']').$();
-                        QueryCache.getInstance().clear();
-                        queryCacheEventSubSeq.done(seq);
-                    }
-
+                    // query factories are cached server-wide, flush_query_cache() clears them directly
                     boolean useful = dispatcher.processIOQueue(processor);
                     useful |= rescheduleContext.runReruns(selector);
 
@@ -116,9 +106,6 @@ public class HttpServer implements Closeable {
             pool.assign(i, () -> {
                 Misc.free(selectors.getQuick(index));
                 httpContextFactory.closeContextPool();
-                Misc.free(QueryCache.getInstance());
-                messageBus.getQueryCacheEventFanOut().remove(queryCacheEventSubSeq);
-                queryCacheEventSubSeq.clear();
             });
         }
     }
@@ -202,6 +189,7 @@ public class HttpServer implements Closeable {
         workerPool.assign(new ColumnIndexerJob(cairoEngine.getMessageBus()));
         workerPool.assign(new GroupByJob(cairoEngine.getMessageBus()));
         workerPool.assign(new LatestByAllIndexedJob(cairoEngine.getMessageBus()));
+        workerPool.assign(new TextImportJob(cairoEngine.getMessageBus()));
     }
 
     @Nullable
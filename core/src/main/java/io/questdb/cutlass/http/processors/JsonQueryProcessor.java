@@ -68,6 +68,7 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
     private final Metrics metrics;
     private final long asyncWriterStartTimeout;
     private final long asyncWriterFullTimeoutNs;
+    private final QueryCache queryCache;
 
     @TestOnly
     public JsonQueryProcessor(
@@ -117,12 +118,15 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         this.queryExecutors.extendAndSet(CompiledQuery.CREATE_TABLE_AS_SELECT, sendConfirmation);
         this.queryExecutors.extendAndSet(CompiledQuery.SNAPSHOT_DB_PREPARE, sendConfirmation);
         this.queryExecutors.extendAndSet(CompiledQuery.SNAPSHOT_DB_COMPLETE, sendConfirmation);
+        this.queryExecutors.extendAndSet(CompiledQuery.REFRESH_MAT_VIEW, sendConfirmation);
         this.sqlExecutionContext = sqlExecutionContext;
+        this.sqlExecutionContext.setResultCacheEnabled(engine.getConfiguration().isSqlResultCacheEnabled());
         this.nanosecondClock = engine.getConfiguration().getNanosecondClock();
         this.circuitBreaker = new NetworkSqlExecutionCircuitBreaker(engine.getConfiguration().getCircuitBreakerConfiguration());
         this.metrics = engine.getMetrics();
         this.asyncWriterStartTimeout = engine.getConfiguration().getWriterAsyncCommandBusyWaitTimeout();
         this.asyncWriterFullTimeoutNs = engine.getConfiguration().getWriterAsyncCommandMaxTimeout() * 1000;
+        this.queryCache = new QueryCache(engine, sqlExecutionContext.getWorkerCount());
     }
 
     @Override
@@ -157,7 +161,7 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
                 return;
             }
 
-            final RecordCursorFactory factory = QueryCache.getInstance().poll(state.getQuery());
+            final RecordCursorFactory factory = queryCache.poll(state.getQuery());
             if (factory != null) {
                 try {
                     sqlExecutionContext.storeTelemetry(CompiledQuery.SELECT, Telemetry.ORIGIN_HTTP_JSON);
@@ -168,6 +172,8 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
                 } catch (ReaderOutOfDateException e) {
                     LOG.info().$(e.getFlyweightMessage()).$();
                     Misc.free(factory);
+                    // idle instances of the query are as stale as this one
+                    queryCache.remove(state.getQuery());
                     compileQuery(state);
                 }
             } else {
@@ -209,9 +215,12 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         if (state == null) {
             LV.set(context, state = new JsonQueryProcessorState(
                     context,
+                    queryCache,
                     nanosecondClock,
                     configuration.getFloatScale(),
-                    configuration.getDoubleScale()
+                    configuration.getDoubleScale(),
+                    configuration.getArrowBatchRowCount(),
+                    configuration.getParallelBufferSize()
             ));
         }
 
@@ -286,6 +295,15 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         throw SqlException.$(0, "copy from STDIN is not supported over REST");
     }
 
+    private static void arrowHeader(
+            HttpChunkedResponseSocket socket,
+            CharSequence keepAliveHeader
+    ) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        socket.status(200, TextQueryProcessor.ARROW_CONTENT_TYPE);
+        socket.headers().setKeepAlive(keepAliveHeader);
+        socket.sendHeader();
+    }
+
     protected static void header(
             HttpChunkedResponseSocket socket,
             CharSequence keepAliveHeader,
@@ -516,7 +534,11 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         final HttpConnectionContext context = state.getHttpConnectionContext();
         try {
             if (state.of(factory, sqlExecutionContext)) {
-                header(context.getChunkedResponseSocket(), keepAliveHeader, 200);
+                if (state.isArrow()) {
+                    arrowHeader(context.getChunkedResponseSocket(), keepAliveHeader);
+                } else {
+                    header(context.getChunkedResponseSocket(), keepAliveHeader, 200);
+                }
                 doResumeSend(state, context);
                 metrics.jsonQuery().markComplete();
             } else {
@@ -29,6 +29,12 @@ import io.questdb.std.datetime.millitime.MillisecondClock;
 
 public interface JsonQueryProcessorConfiguration {
 
+    /**
+     * @return max number of rows in record batch of Arrow IPC stream, which is sent when query
+     * result is requested with fmt=arrow URL parameter
+     */
+    int getArrowBatchRowCount();
+
     MillisecondClock getClock();
 
     int getConnectionCheckFrequency();
@@ -42,4 +48,10 @@ public interface JsonQueryProcessorConfiguration {
     CharSequence getKeepAliveHeader();
 
     long getMaxQueryResponseRowLimit();
+
+    /**
+     * @return max number of bytes of JSON text, which page frame reduce jobs format ahead of
+     * the connection owning worker; 0 disables parallel serialization of query results
+     */
+    long getParallelBufferSize();
 }
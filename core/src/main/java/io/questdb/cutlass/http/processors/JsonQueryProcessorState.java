@@ -24,12 +24,22 @@
 
 package io.questdb.cutlass.http.processors;
 
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.CairoException;
 import io.questdb.cairo.ColumnType;
 import io.questdb.cairo.GeoHashes;
+import io.questdb.cairo.sql.DataFrameCursorFactory;
+import io.questdb.cairo.sql.PageAddressCacheRecord;
+import io.questdb.cairo.sql.PageFrameCursor;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
 import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.sql.StatefulAtom;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.cutlass.arrow.ArrowStreamWriter;
 import io.questdb.cutlass.http.HttpChunkedResponseSocket;
 import io.questdb.cutlass.http.HttpConnectionContext;
 import io.questdb.cutlass.http.HttpRequestHeader;
@@ -42,16 +52,22 @@ import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.log.LogRecord;
 import io.questdb.mp.SCSequence;
+import io.questdb.network.NoSpaceLeftInResponseBufferException;
 import io.questdb.network.PeerDisconnectedException;
 import io.questdb.network.PeerIsSlowToReadException;
 import io.questdb.std.*;
+import io.questdb.std.ThreadLocal;
+import io.questdb.std.str.AbstractCharSink;
 import io.questdb.std.str.CharSink;
 import io.questdb.std.str.DirectByteCharSequence;
+import io.questdb.std.str.DirectByteCharSink;
 import io.questdb.std.str.StringSink;
 
 import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class JsonQueryProcessorState implements Mutable, Closeable {
+    static final int QUERY_FRAMES = 10;
     static final int QUERY_RECORD_PREFIX = 9;
     static final int QUERY_SETUP_FIRST_RECORD = 8;
     static final int QUERY_SUFFIX = 7;
@@ -62,22 +78,40 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
     static final int QUERY_METADATA = 2;
     static final int QUERY_PREFIX = 1;
     private static final Log LOG = LogFactory.getLog(JsonQueryProcessorState.class);
+    private static final ThreadLocal<FrameSink> tlFrameSink = new ThreadLocal<>(FrameSink::new);
     private final StringSink query = new StringSink();
     private final StringSink columnsQueryParameter = new StringSink();
     private final ObjList<StateResumeAction> resumeActions = new ObjList<>();
     private final IntList columnTypesAndFlags = new IntList();
     private final ObjList<String> columnNames = new ObjList<>();
     private final HttpConnectionContext httpConnectionContext;
+    private final QueryCache queryCache;
     private final IntList columnSkewList = new IntList();
     private final NanosecondClock nanosecondClock;
     private final int floatScale;
     private final int doubleScale;
     private final SCSequence eventSubSequence = new SCSequence();
     private final long statementTimeoutNs;
+    private final int arrowBatchRowCount;
+    private final long parallelBufferSize;
+    private final SCSequence collectSubSeq = new SCSequence();
+    private final FrameAtom frameAtom = new FrameAtom();
+    private PageFrameSequence<FrameAtom> frameSequence;
+    private PageAddressCacheRecord frameRecord;
+    // true when records are formatted from page frames by reduce jobs
+    private boolean frames = false;
+    private long frameCursor = -1;
+    private int frameIndex;
+    private long frameRowCount;
+    private long frameSendLo;
+    private long frameSendHi;
     private OperationFuture operationFuture;
     private Rnd rnd;
     private RecordCursorFactory recordCursorFactory;
     private RecordCursor cursor;
+    private PageFrameCursor pageFrameCursor;
+    private ArrowStreamWriter arrowWriter;
+    private boolean arrow = false;
     private boolean noMeta = false;
     private Record record;
     private int queryState = QUERY_PREFIX;
@@ -100,11 +134,15 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
 
     public JsonQueryProcessorState(
             HttpConnectionContext httpConnectionContext,
+            QueryCache queryCache,
             NanosecondClock nanosecondClock,
             int floatScale,
-            int doubleScale
+            int doubleScale,
+            int arrowBatchRowCount,
+            long parallelBufferSize
     ) {
         this.httpConnectionContext = httpConnectionContext;
+        this.queryCache = queryCache;
         resumeActions.extendAndSet(QUERY_PREFIX, this::onQueryPrefix);
         resumeActions.extendAndSet(QUERY_METADATA, this::onQueryMetadata);
         resumeActions.extendAndSet(QUERY_METADATA_SUFFIX, this::onQueryMetadataSuffix);
@@ -113,10 +151,13 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         resumeActions.extendAndSet(QUERY_RECORD, this::onQueryRecord);
         resumeActions.extendAndSet(QUERY_RECORD_SUFFIX, this::onQueryRecordSuffix);
         resumeActions.extendAndSet(QUERY_SUFFIX, this::doQuerySuffix);
+        resumeActions.extendAndSet(QUERY_FRAMES, this::doFrameLoop);
 
         this.nanosecondClock = nanosecondClock;
         this.floatScale = floatScale;
         this.doubleScale = doubleScale;
+        this.arrowBatchRowCount = arrowBatchRowCount;
+        this.parallelBufferSize = parallelBufferSize;
         this.statementTimeoutNs =
                 httpConnectionContext.getRequestHeader().getStatementTimeout() < (Long.MAX_VALUE >>> 6) ? // Overflow protection
                         httpConnectionContext.getRequestHeader().getStatementTimeout() * 1_000_000L :
@@ -129,11 +170,17 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         columnSkewList.clear();
         columnTypesAndFlags.clear();
         columnNames.clear();
+        if (arrowWriter != null) {
+            arrowWriter.clear();
+        }
         cursor = Misc.free(cursor);
+        pageFrameCursor = Misc.free(pageFrameCursor);
         record = null;
+        // frame sequence uses page frame cursor of the factory
+        closeFrameSequence();
         if (null != recordCursorFactory) {
             if (queryCacheable) {
-                QueryCache.getInstance().push(query, recordCursorFactory);
+                queryCache.push(query, recordCursorFactory);
             } else {
                 recordCursorFactory.close();
             }
@@ -151,7 +198,12 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
 
     @Override
     public void close() {
+        arrowWriter = Misc.free(arrowWriter);
         cursor = Misc.free(cursor);
+        pageFrameCursor = Misc.free(pageFrameCursor);
+        closeFrameSequence();
+        frameSequence = Misc.free(frameSequence);
+        frameRecord = Misc.free(frameRecord);
         recordCursorFactory = Misc.free(recordCursorFactory);
         freeAsyncOperation();
     }
@@ -169,6 +221,7 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.stop = stop;
         this.noMeta = Chars.equalsNc("true", request.getUrlParam("nm"));
         this.countRows = Chars.equalsNc("true", request.getUrlParam("count"));
+        this.arrow = Chars.equalsNc("arrow", request.getUrlParam("fmt"));
         this.timings = Chars.equalsNc("true", request.getUrlParam("timings"));
         this.explain = Chars.equalsNc("true", request.getUrlParam("explain"));
         this.quoteLargeNum = Chars.equalsNc("true", request.getUrlParam("quoteLargeNum"))
@@ -282,6 +335,10 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         socket.sendChunk(true);
     }
 
+    private static void reduce(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        task.getFrameSequence(FrameAtom.class).getAtom().reduce(record, task);
+    }
+
     private static void putStringOrNull(CharSink r, CharSequence str) {
         if (str == null) {
             r.put("null");
@@ -290,15 +347,15 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         }
     }
 
-    private static void putBooleanValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putBooleanValue(CharSink socket, Record rec, int col) {
         socket.put(rec.getBool(col));
     }
 
-    private static void putByteValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putByteValue(CharSink socket, Record rec, int col) {
         socket.put(rec.getByte(col));
     }
 
-    private static void putCharValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putCharValue(CharSink socket, Record rec, int col) {
         char c = rec.getChar(col);
         if (c == 0) {
             socket.put("\"\"");
@@ -307,7 +364,7 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         }
     }
 
-    private static void putDateValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putDateValue(CharSink socket, Record rec, int col) {
         final long d = rec.getDate(col);
         if (d == Long.MIN_VALUE) {
             socket.put("null");
@@ -316,7 +373,7 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         socket.put('"').putISODateMillis(d).put('"');
     }
 
-    private static void putIntValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putIntValue(CharSink socket, Record rec, int col) {
         final int i = rec.getInt(col);
         if (i == Integer.MIN_VALUE) {
             socket.put("null");
@@ -325,13 +382,13 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         }
     }
 
-    private static void putLong256Value(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putLong256Value(CharSink socket, Record rec, int col) {
         socket.put('"');
         rec.getLong256(col, socket);
         socket.put('"');
     }
 
-    private static void putLongValue(HttpChunkedResponseSocket socket, Record rec, int col, boolean quoteLargeNum) {
+    private static void putLongValue(CharSink socket, Record rec, int col, boolean quoteLargeNum) {
         final long l = rec.getLong(col);
         if (l == Long.MIN_VALUE) {
             socket.put("null");
@@ -342,23 +399,23 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         }
     }
 
-    private static void putShortValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putShortValue(CharSink socket, Record rec, int col) {
         socket.put(rec.getShort(col));
     }
 
-    private static void putStrValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putStrValue(CharSink socket, Record rec, int col) {
         putStringOrNull(socket, rec.getStr(col));
     }
 
-    private static void putRecValue(HttpChunkedResponseSocket socket) {
+    private static void putRecValue(CharSink socket) {
         putStringOrNull(socket, null);
     }
 
-    private static void putSymValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putSymValue(CharSink socket, Record rec, int col) {
         putStringOrNull(socket, rec.getSym(col));
     }
 
-    private static void putTimestampValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private static void putTimestampValue(CharSink socket, Record rec, int col) {
         final long t = rec.getTimestamp(col);
         if (t == Long.MIN_VALUE) {
             socket.put("null");
@@ -367,27 +424,27 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         socket.put('"').putISODate(t).put('"');
     }
 
-    private static void putGeoHashStringByteValue(HttpChunkedResponseSocket socket, Record rec, int col, int bitFlags) {
+    private static void putGeoHashStringByteValue(CharSink socket, Record rec, int col, int bitFlags) {
         byte l = rec.getGeoByte(col);
         putGeoHashStringValue(socket, l, bitFlags);
     }
 
-    private static void putGeoHashStringShortValue(HttpChunkedResponseSocket socket, Record rec, int col, int bitFlags) {
+    private static void putGeoHashStringShortValue(CharSink socket, Record rec, int col, int bitFlags) {
         short l = rec.getGeoShort(col);
         putGeoHashStringValue(socket, l, bitFlags);
     }
 
-    private static void putGeoHashStringIntValue(HttpChunkedResponseSocket socket, Record rec, int col, int bitFlags) {
+    private static void putGeoHashStringIntValue(CharSink socket, Record rec, int col, int bitFlags) {
         int l = rec.getGeoInt(col);
         putGeoHashStringValue(socket, l, bitFlags);
     }
 
-    private static void putGeoHashStringLongValue(HttpChunkedResponseSocket socket, Record rec, int col, int bitFlags) {
+    private static void putGeoHashStringLongValue(CharSink socket, Record rec, int col, int bitFlags) {
         long l = rec.getGeoLong(col);
         putGeoHashStringValue(socket, l, bitFlags);
     }
 
-    private static void putGeoHashStringValue(HttpChunkedResponseSocket socket, long value, int bitFlags) {
+    private static void putGeoHashStringValue(CharSink socket, long value, int bitFlags) {
         if (value == GeoHashes.NULL) {
             socket.put("null");
         } else {
@@ -441,17 +498,75 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.columnNames.add(metadata.getColumnName(i));
     }
 
+    private void closeFrameSequence() {
+        if (frames) {
+            if (frameCursor > -1) {
+                frameSequence.collect(frameCursor, true);
+                frameCursor = -1;
+            }
+            if (frameSequence.getFrameCount() > 0) {
+                // frames that were not sent yet are not worth formatting
+                frameSequence.cancel();
+                frameSequence.await();
+            }
+            frameSequence.clear();
+            frames = false;
+        }
+    }
+
     private void doFirstRecordLoop(
             HttpChunkedResponseSocket socket,
             int columnCount
     ) throws PeerDisconnectedException, PeerIsSlowToReadException {
-        if (onQuerySetupFirstRecord()) {
+        if (frames) {
+            doFrameLoop(socket, columnCount);
+        } else if (onQuerySetupFirstRecord()) {
             doRecordFetchLoop(socket, columnCount);
         } else {
             doQuerySuffix(socket, columnCount);
         }
     }
 
+    private void doFrameLoop(
+            HttpChunkedResponseSocket socket,
+            int columnCount
+    ) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        queryState = QUERY_FRAMES;
+        while (true) {
+            if (frameCursor == -1) {
+                if (frameIndex + 1 == frameSequence.getFrameCount() || frameAtom.getFrameRowLo(frameIndex + 1) >= stop) {
+                    break;
+                }
+                fetchNextFrame();
+            }
+            if (frameSendLo < frameSendHi) {
+                final PageFrameReduceTask task = frameSequence.getTask(frameCursor);
+                final long address = task.getOutput().getAddress();
+                // bytes copied so far are not rolled back should the socket buffer be full
+                socket.bookmark();
+                final long sendLo = socket.writeBytes(address + frameSendLo, address + frameSendHi) - address;
+                if (sendLo < frameSendHi) {
+                    // values are not split between chunks, rewind to the end of the last whole value,
+                    // so that the chunks are the same as if the records were written one by one
+                    final long valueHi = findValueHi(task.getOutputOffsets(), sendLo);
+                    socket.resetToBookmark();
+                    if (valueHi > frameSendLo) {
+                        socket.writeBytes(address + frameSendLo, address + valueHi);
+                        frameSendLo = valueHi;
+                        socket.bookmark();
+                    }
+                    throw NoSpaceLeftInResponseBufferException.INSTANCE;
+                }
+                frameSendLo = frameSendHi;
+            }
+            count += frameRowCount;
+            frameSequence.collect(frameCursor, false);
+            frameCursor = -1;
+        }
+        onNoMoreFrames();
+        doQuerySuffix(socket, columnCount);
+    }
+
     private void doNextRecordLoop(
             HttpChunkedResponseSocket socket,
             int columnCount
@@ -516,75 +631,7 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
             if (columnIndex > 0) {
                 socket.put(',');
             }
-
-            int columnIdx = columnSkewList.size() > 0 ? columnSkewList.getQuick(columnIndex) : columnIndex;
-            int columnType = columnTypesAndFlags.getQuick(2 * columnIndex);
-            switch (ColumnType.tagOf(columnType)) {
-                case ColumnType.BOOLEAN:
-                    putBooleanValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.BYTE:
-                    putByteValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.DOUBLE:
-                    putDoubleValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.FLOAT:
-                    putFloatValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.INT:
-                    putIntValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.LONG:
-                    putLongValue(socket, record, columnIdx, quoteLargeNum);
-                    break;
-                case ColumnType.DATE:
-                    putDateValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.TIMESTAMP:
-                    putTimestampValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.SHORT:
-                    putShortValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.CHAR:
-                    putCharValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.STRING:
-                    putStrValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.SYMBOL:
-                    putSymValue(socket, record, columnIdx);
-                    break;
-                case ColumnType.BINARY:
-                    putBinValue(socket);
-                    break;
-                case ColumnType.LONG256:
-                    putLong256Value(socket, record, columnIdx);
-                    break;
-                case ColumnType.GEOBYTE:
-                    putGeoHashStringByteValue(socket, record, columnIdx, columnTypesAndFlags.getQuick(2 * columnIndex + 1));
-                    break;
-                case ColumnType.GEOSHORT:
-                    putGeoHashStringShortValue(socket, record, columnIdx, columnTypesAndFlags.getQuick(2 * columnIndex + 1));
-                    break;
-                case ColumnType.GEOINT:
-                    putGeoHashStringIntValue(socket, record, columnIdx, columnTypesAndFlags.getQuick(2 * columnIndex + 1));
-                    break;
-                case ColumnType.GEOLONG:
-                    putGeoHashStringLongValue(socket, record, columnIdx, columnTypesAndFlags.getQuick(2 * columnIndex + 1));
-                    break;
-                case ColumnType.RECORD:
-                    putRecValue(socket);
-                    break;
-                case ColumnType.NULL:
-                    socket.put("null");
-                    break;
-                default:
-                    assert false : "Not supported type in output " + ColumnType.nameOf(columnType);
-                    socket.put("null"); // To make JSON valid
-                    break;
-            }
+            putValue(socket, record, columnIndex);
         }
     }
 
@@ -600,9 +647,10 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
 
     private void doQueryRecordSuffix(HttpChunkedResponseSocket socket) {
         queryState = QUERY_RECORD_SUFFIX;
-        count++;
         socket.bookmark();
         socket.put(']');
+        // record is counted once it is written, this method is re-entered when socket buffer is full
+        count++;
     }
 
     private void doQuerySuffix(
@@ -647,12 +695,69 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         doQuerySuffix(socket, columnCount);
     }
 
+    private void fetchNextFrame() {
+        do {
+            frameCursor = frameSequence.next();
+            if (frameCursor > -1) {
+                break;
+            }
+            Os.pause();
+        } while (true);
+
+        if (!frameSequence.isActive()) {
+            throw CairoException.instance(0).put("json page frame reduction failed [id=").put(frameSequence.getId()).put(']');
+        }
+
+        final PageFrameReduceTask task = frameSequence.getTask(frameCursor);
+        final DirectByteCharSink output = task.getOutput();
+        frameIndex = task.getFrameIndex();
+        frameRowCount = frameAtom.getFormattedRowCount(frameIndex);
+        frameSendLo = 0;
+        if (frameRowCount > 0) {
+            final long size = output.size();
+            if (size > 0) {
+                frameAtom.release(size);
+            } else {
+                // reduce jobs skip frames once enough bytes are buffered
+                frameRecord.setFrameIndex(frameIndex);
+                frameAtom.format(frameRecord, task);
+            }
+            // every record is prefixed with comma, except the first one
+            if (count == skip) {
+                frameSendLo = 1;
+            }
+        }
+        frameSendHi = output.size();
+    }
+
+    private long findValueHi(DirectLongList outputOffsets, long sendHi) {
+        // the largest value end offset, which does not exceed sendHi
+        long lo = 0;
+        long hi = outputOffsets.size() - 1;
+        long valueHi = frameSendLo;
+        while (lo <= hi) {
+            final long mid = (lo + hi) >>> 1;
+            final long offset = outputOffsets.get(mid);
+            if (offset <= sendHi) {
+                valueHi = offset;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return Math.max(valueHi, frameSendLo);
+    }
+
     private long getFd() {
         return httpConnectionContext.getFd();
     }
 
+    boolean isArrow() {
+        return arrow;
+    }
+
     boolean noCursor() {
-        return cursor == null;
+        return cursor == null && pageFrameCursor == null && !frames;
     }
 
     boolean of(RecordCursorFactory factory, SqlExecutionContextImpl sqlExecutionContext)
@@ -660,7 +765,20 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.recordCursorFactory = factory;
         this.queryCacheable = true;
         this.queryJitCompiled = factory.usesCompiledFilter();
-        this.cursor = factory.getCursor(sqlExecutionContext);
+        // page frames of full table scans are formatted to JSON by reduce jobs
+        final boolean parallel = !arrow
+                && parallelBufferSize > 0
+                && skip < stop
+                && factory.supportPageFrameCursor()
+                && !factory.hasDescendingOrder();
+        if (arrow && skip == 0 && stop == Long.MAX_VALUE && ArrowStreamWriter.canStreamPageFrames(factory)) {
+            this.pageFrameCursor = factory.getPageFrameCursor(sqlExecutionContext, DataFrameCursorFactory.ORDER_ASC);
+        } else if (parallel) {
+            // stale factory throws before any state is changed, same as getCursor()
+            ofFrames(factory, sqlExecutionContext);
+        } else {
+            this.cursor = factory.getCursor(sqlExecutionContext);
+        }
         final RecordMetadata metadata = factory.getMetadata();
         HttpRequestHeader header = httpConnectionContext.getRequestHeader();
         DirectByteCharSequence columnNames = header.getUrlParam("cols");
@@ -706,6 +824,16 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
             }
         }
         this.columnCount = columnCount;
+        if (arrow) {
+            if (arrowWriter == null) {
+                arrowWriter = new ArrowStreamWriter(arrowBatchRowCount);
+            }
+            if (pageFrameCursor != null) {
+                arrowWriter.of(metadata, columnSkewList, pageFrameCursor);
+            } else {
+                arrowWriter.of(metadata, columnSkewList, cursor, skip, stop - skip);
+            }
+        }
         return true;
     }
 
@@ -730,6 +858,34 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         recordCountNanos = nanosecondClock.getTicks() - nanos;
     }
 
+    private void ofFrames(RecordCursorFactory factory, SqlExecutionContextImpl sqlExecutionContext) throws SqlException {
+        if (frameSequence == null) {
+            final CairoEngine engine = sqlExecutionContext.getCairoEngine();
+            final CairoConfiguration configuration = engine.getConfiguration();
+            frameSequence = new PageFrameSequence<>(configuration, engine.getMessageBus(), JsonQueryProcessorState::reduce);
+            frameRecord = new PageAddressCacheRecord();
+        }
+        frameSequence.of(factory, sqlExecutionContext, collectSubSeq, frameAtom, DataFrameCursorFactory.ORDER_ASC);
+        frames = true;
+        // reduce jobs are not started until the first frame is fetched
+        frameAtom.of(frameSequence, factory.getMetadata().getColumnCount());
+        frameRecord.of(frameSequence.getSymbolTableSource(), frameSequence.getPageAddressCache());
+        frameCursor = -1;
+        frameIndex = -1;
+        if (frameAtom.getRowCount() > skip) {
+            count = skip;
+        }
+    }
+
+    private void onNoMoreFrames() {
+        long nanos = nanosecondClock.getTicks();
+        if (countRows && count == stop) {
+            // frame row counts are known up front
+            count = frameAtom.getRowCount();
+        }
+        recordCountNanos = nanosecondClock.getTicks() - nanos;
+    }
+
     private void onQueryMetadata(
             HttpChunkedResponseSocket socket,
             int columnCount
@@ -797,20 +953,95 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         return true;
     }
 
-    private void putBinValue(HttpChunkedResponseSocket socket) {
+    private void putBinValue(CharSink socket) {
         socket.put('[');
         socket.put(']');
     }
 
-    private void putDoubleValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private void putDoubleValue(CharSink socket, Record rec, int col) {
         socket.put(rec.getDouble(col), doubleScale);
     }
 
-    private void putFloatValue(HttpChunkedResponseSocket socket, Record rec, int col) {
+    private void putFloatValue(CharSink socket, Record rec, int col) {
         socket.put(rec.getFloat(col), floatScale);
     }
 
+    private void putValue(CharSink sink, Record rec, int outputColumnIndex) {
+        int columnIdx = columnSkewList.size() > 0 ? columnSkewList.getQuick(outputColumnIndex) : outputColumnIndex;
+        int columnType = columnTypesAndFlags.getQuick(2 * outputColumnIndex);
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BOOLEAN:
+                putBooleanValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.BYTE:
+                putByteValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.DOUBLE:
+                putDoubleValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.FLOAT:
+                putFloatValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.INT:
+                putIntValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.LONG:
+                putLongValue(sink, rec, columnIdx, quoteLargeNum);
+                break;
+            case ColumnType.DATE:
+                putDateValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.TIMESTAMP:
+                putTimestampValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.SHORT:
+                putShortValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.CHAR:
+                putCharValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.STRING:
+                putStrValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.SYMBOL:
+                putSymValue(sink, rec, columnIdx);
+                break;
+            case ColumnType.BINARY:
+                putBinValue(sink);
+                break;
+            case ColumnType.LONG256:
+                putLong256Value(sink, rec, columnIdx);
+                break;
+            case ColumnType.GEOBYTE:
+                putGeoHashStringByteValue(sink, rec, columnIdx, columnTypesAndFlags.getQuick(2 * outputColumnIndex + 1));
+                break;
+            case ColumnType.GEOSHORT:
+                putGeoHashStringShortValue(sink, rec, columnIdx, columnTypesAndFlags.getQuick(2 * outputColumnIndex + 1));
+                break;
+            case ColumnType.GEOINT:
+                putGeoHashStringIntValue(sink, rec, columnIdx, columnTypesAndFlags.getQuick(2 * outputColumnIndex + 1));
+                break;
+            case ColumnType.GEOLONG:
+                putGeoHashStringLongValue(sink, rec, columnIdx, columnTypesAndFlags.getQuick(2 * outputColumnIndex + 1));
+                break;
+            case ColumnType.RECORD:
+                putRecValue(sink);
+                break;
+            case ColumnType.NULL:
+                sink.put("null");
+                break;
+            default:
+                assert false : "Not supported type in output " + ColumnType.nameOf(columnType);
+                sink.put("null"); // To make JSON valid
+                break;
+        }
+    }
+
     void resume(HttpChunkedResponseSocket socket) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        if (arrow) {
+            arrowWriter.resume(socket);
+            return;
+        }
         resumeActions.getQuick(queryState).onResume(socket, columnCount);
     }
 
@@ -818,6 +1049,174 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.queryCacheable = queryCacheable;
     }
 
+    private class FrameAtom implements StatefulAtom {
+        // first row of every frame and total row count, i.e. frame i has rows frameRowLos[i] .. frameRowLos[i + 1] - 1
+        private final LongList frameRowLos = new LongList();
+        // bytes formatted by reduce jobs and not yet picked up by connection owner
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        private volatile long rowSizeEstimate;
+
+        /**
+         * Formats records of the frame, which fall into (skip, stop] range of the result set.
+         * Every record is prefixed with comma.
+         */
+        void format(PageAddressCacheRecord record, PageFrameReduceTask task) {
+            final int frameIndex = task.getFrameIndex();
+            final long frameRowLo = frameRowLos.getQuick(frameIndex);
+            final long lo = Math.max(skip, frameRowLo) - frameRowLo;
+            final long hi = lo + getFormattedRowCount(frameIndex);
+            final DirectByteCharSink output = task.getOutput();
+            final DirectLongList outputOffsets = task.getOutputOffsets();
+            output.clear();
+            outputOffsets.clear();
+            if (lo < hi) {
+                output.ensureCapacity((hi - lo) * rowSizeEstimate);
+                final FrameSink sink = tlFrameSink.get().of(output);
+                for (long r = lo; r < hi; r++) {
+                    record.setRowIndex(r);
+                    // value boundaries are the same as socket bookmarks of the record by record output
+                    sink.put(',').put('[');
+                    outputOffsets.add(output.size());
+                    for (int i = 0; i < columnCount; i++) {
+                        if (i > 0) {
+                            sink.put(',');
+                        }
+                        putValue(sink, record, i);
+                        outputOffsets.add(output.size());
+                    }
+                    sink.put(']');
+                    outputOffsets.add(output.size());
+                }
+                rowSizeEstimate = output.size() / (hi - lo) + 1;
+            }
+        }
+
+        long getFormattedRowCount(int frameIndex) {
+            final long lo = Math.max(skip, frameRowLos.getQuick(frameIndex));
+            final long hi = Math.min(stop, frameRowLos.getQuick(frameIndex + 1));
+            return Math.max(0, hi - lo);
+        }
+
+        long getFrameRowLo(int frameIndex) {
+            return frameRowLos.getQuick(frameIndex);
+        }
+
+        long getRowCount() {
+            return frameRowLos.getLast();
+        }
+
+        void of(PageFrameSequence<?> frameSequence, int columnCount) {
+            frameRowLos.clear();
+            long rowLo = 0;
+            for (int i = 0, n = frameSequence.getFrameCount(); i < n; i++) {
+                frameRowLos.add(rowLo);
+                rowLo += frameSequence.getFrameRowCount(i);
+            }
+            frameRowLos.add(rowLo);
+            bufferedBytes.set(0);
+            rowSizeEstimate = 8L * columnCount;
+        }
+
+        void reduce(PageAddressCacheRecord record, PageFrameReduceTask task) {
+            // formatting ahead of the socket is capped, frames over the cap are
+            // formatted by connection owner when it gets to them
+            if (bufferedBytes.get() < parallelBufferSize) {
+                format(record, task);
+                bufferedBytes.addAndGet(task.getOutput().size());
+            }
+        }
+
+        void release(long size) {
+            bufferedBytes.addAndGet(-size);
+        }
+    }
+
+    /**
+     * Writes JSON text to native memory of page frame reduce task, values are rendered and
+     * escaped the same way as by chunked response socket.
+     */
+    private static class FrameSink extends AbstractCharSink {
+        private DirectByteCharSink output;
+
+        @Override
+        public CharSink put(CharSequence cs) {
+            output.put(cs);
+            return this;
+        }
+
+        @Override
+        public CharSink put(char c) {
+            output.put(c);
+            return this;
+        }
+
+        @Override
+        public CharSink put(float value, int scale) {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                put("null");
+                return this;
+            }
+            return super.put(value, scale);
+        }
+
+        @Override
+        public CharSink put(double value, int scale) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                put("null");
+                return this;
+            }
+            return super.put(value, scale);
+        }
+
+        @Override
+        public void putUtf8Special(char c) {
+            if (c < 32) {
+                escapeSpace(c);
+            } else {
+                switch (c) {
+                    case '/':
+                    case '\"':
+                    case '\\':
+                        put('\\');
+                        // intentional fall through
+                    default:
+                        put(c);
+                        break;
+                }
+            }
+        }
+
+        private void escapeSpace(char c) {
+            switch (c) {
+                case '\0':
+                    break;
+                case '\b':
+                    put("\\b");
+                    break;
+                case '\f':
+                    put("\\f");
+                    break;
+                case '\n':
+                    put("\\n");
+                    break;
+                case '\r':
+                    put("\\r");
+                    break;
+                case '\t':
+                    put("\\t");
+                    break;
+                default:
+                    put(c);
+                    break;
+            }
+        }
+
+        FrameSink of(DirectByteCharSink output) {
+            this.output = output;
+            return this;
+        }
+    }
+
     @FunctionalInterface
     interface StateResumeAction {
         void onResume(
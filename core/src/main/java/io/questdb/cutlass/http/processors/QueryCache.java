@@ -24,65 +24,59 @@
 
 package io.questdb.cutlass.http.processors;
 
+import io.questdb.cairo.CairoEngine;
 import io.questdb.cairo.sql.RecordCursorFactory;
 import io.questdb.cutlass.http.HttpServerConfiguration;
+import io.questdb.griffin.engine.cache.QueryFactoryCache;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
-import io.questdb.std.AssociativeCache;
-import io.questdb.std.ThreadLocal;
 
-import java.io.Closeable;
-
-public final class QueryCache implements Closeable {
+/**
+ * HTTP view of the server-wide {@link QueryFactoryCache}. Factories polled from
+ * the cache are owned by the caller until they are pushed back.
+ */
+public final class QueryCache {
 
     private static final Log LOG = LogFactory.getLog(QueryCache.class);
-    private static ThreadLocal<QueryCache> TL_QUERY_CACHE;
-    private final AssociativeCache<RecordCursorFactory> cache;
+    private static volatile boolean enabled = true;
+    private final QueryFactoryCache cache;
+    private final int workerCount;
 
-    public QueryCache(int blocks, int rows) {
-        this.cache = new AssociativeCache<>(blocks, rows);
+    public QueryCache(CairoEngine engine, int workerCount) {
+        this.cache = engine.getQueryFactoryCache();
+        this.workerCount = workerCount;
     }
 
     public static void configure(HttpServerConfiguration configuration) {
-        final boolean enableQueryCache = configuration.isQueryCacheEnabled();
-        final int blockCount = enableQueryCache ? configuration.getQueryCacheBlockCount() : 1;
-        final int rowCount = enableQueryCache ? configuration.getQueryCacheRowCount() : 1;
-        TL_QUERY_CACHE = new ThreadLocal<>(() -> new QueryCache(blockCount, rowCount));
-    }
-
-    public static QueryCache getInstance() {
-        return TL_QUERY_CACHE.get();
-    }
-
-    @Override
-    public void close() {
-        cache.close();
-        LOG.info().$("closed").$();
+        enabled = configuration.isQueryCacheEnabled();
     }
 
     public RecordCursorFactory poll(CharSequence sql) {
-        final RecordCursorFactory factory = cache.poll(sql);
+        if (!enabled) {
+            return null;
+        }
+        // HTTP does not support bind variables, factories compiled with them are not eligible
+        final RecordCursorFactory factory = cache.poll(sql, workerCount, null);
         log(factory == null ? "miss" : "hit", sql);
         return factory;
     }
 
     public void push(CharSequence sql, RecordCursorFactory factory) {
         if (factory != null) {
-            cache.put(sql, factory);
-            log("push", sql);
+            if (enabled) {
+                cache.push(sql, workerCount, factory, null);
+                log("push", sql);
+            } else {
+                factory.close();
+            }
         }
     }
 
     public void remove(CharSequence sql) {
-        cache.put(sql, null);
+        cache.remove(sql);
         log("remove", sql);
     }
 
-    public void clear() {
-        cache.clear();
-        LOG.info().$("cleared").$();
-    }
-
     private void log(CharSequence action, CharSequence sql) {
         LOG.info().$(action).$(" [thread=").$(Thread.currentThread().getName()).$(", sql=").utf8(sql).$(']').$();
     }
@@ -27,9 +27,11 @@ package io.questdb.cutlass.http.processors;
 import io.questdb.Metrics;
 import io.questdb.Telemetry;
 import io.questdb.cairo.*;
+import io.questdb.cairo.sql.DataFrameCursorFactory;
 import io.questdb.cairo.sql.NetworkSqlExecutionCircuitBreaker;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
 import io.questdb.cairo.sql.Record;
+import io.questdb.cutlass.arrow.ArrowStreamWriter;
 import io.questdb.cutlass.http.*;
 import io.questdb.cutlass.text.TextUtil;
 import io.questdb.cutlass.text.Utf8Exception;
@@ -60,6 +62,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
     // by the same thread that executes the dispatcher.
     private static final LocalValue<TextQueryProcessorState> LV = new LocalValue<>();
     private static final Log LOG = LogFactory.getLog(TextQueryProcessor.class);
+    static final String ARROW_CONTENT_TYPE = "application/vnd.apache.arrow.stream";
 
     private final SqlCompiler compiler;
     private final JsonQueryProcessorConfiguration configuration;
@@ -69,6 +72,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
     private final int doubleScale;
     private final NetworkSqlExecutionCircuitBreaker circuitBreaker;
     private final Metrics metrics;
+    private final QueryCache queryCache;
 
     @TestOnly
     public TextQueryProcessor(
@@ -94,6 +98,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         this.doubleScale = configuration.getDoubleScale();
         this.circuitBreaker = new NetworkSqlExecutionCircuitBreaker(engine.getConfiguration().getCircuitBreakerConfiguration());
         this.metrics = engine.getMetrics();
+        this.queryCache = new QueryCache(engine, workerCount);
     }
 
     @Override
@@ -121,7 +126,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         try {
             boolean isExpRequest = isExpUrl(context.getRequestHeader().getUrl());
 
-            state.recordCursorFactory = QueryCache.getInstance().poll(state.query);
+            state.recordCursorFactory = queryCache.poll(state.query);
             state.setQueryCacheable(true);
             sqlExecutionContext.with(
                     context.getCairoSecurityContext(),
@@ -155,11 +160,16 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
                     boolean runQuery = true;
                     do {
                         try {
-                            state.cursor = state.recordCursorFactory.getCursor(sqlExecutionContext);
+                            if (state.arrow && state.skip == 0 && state.stop == Long.MAX_VALUE && ArrowStreamWriter.canStreamPageFrames(state.recordCursorFactory)) {
+                                state.pageFrameCursor = state.recordCursorFactory.getPageFrameCursor(sqlExecutionContext, DataFrameCursorFactory.ORDER_ASC);
+                            } else {
+                                state.cursor = state.recordCursorFactory.getCursor(sqlExecutionContext);
+                            }
                             runQuery = false;
                         } catch (ReaderOutOfDateException e) {
                             info(state).$(e.getFlyweightMessage()).$();
                             state.recordCursorFactory = Misc.free(state.recordCursorFactory);
+                            queryCache.remove(state.query);
                             final CompiledQuery cc = compiler.compile(state.query, sqlExecutionContext);
                             if (cc.getType() != CompiledQuery.SELECT && isExpRequest) {
                                 throw SqlException.$(0, "/exp endpoint only accepts SELECT");
@@ -169,6 +179,14 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
                         }
                     } while (runQuery);
                     state.metadata = state.recordCursorFactory.getMetadata();
+                    if (state.arrow) {
+                        final ArrowStreamWriter arrowWriter = state.getArrowWriter(configuration.getArrowBatchRowCount());
+                        if (state.pageFrameCursor != null) {
+                            arrowWriter.of(state.metadata, null, state.pageFrameCursor);
+                        } else {
+                            arrowWriter.of(state.metadata, null, state.cursor, state.skip, state.stop - state.skip);
+                        }
+                    }
                     header(context.getChunkedResponseSocket(), state, 200);
                     resumeSend(context);
                 } catch (CairoException e) {
@@ -197,7 +215,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
     ) throws PeerDisconnectedException, PeerIsSlowToReadException {
         TextQueryProcessorState state = LV.get(context);
         if (state == null) {
-            LV.set(context, state = new TextQueryProcessorState(context));
+            LV.set(context, state = new TextQueryProcessorState(context, queryCache));
         }
         // new request clears random
         state.rnd = null;
@@ -215,7 +233,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
             HttpConnectionContext context
     ) throws PeerDisconnectedException, PeerIsSlowToReadException {
         TextQueryProcessorState state = LV.get(context);
-        if (state == null || state.cursor == null) {
+        if (state == null || (state.cursor == null && state.pageFrameCursor == null)) {
             return;
         }
 
@@ -224,6 +242,11 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         LOG.debug().$("resume [fd=").$(context.getFd()).$(']').$();
 
         final HttpChunkedResponseSocket socket = context.getChunkedResponseSocket();
+        if (state.arrow) {
+            state.getArrowWriter(configuration.getArrowBatchRowCount()).resume(socket);
+            readyForNextRequest(context);
+            return;
+        }
         final int columnCount = state.metadata.getColumnCount();
 
         OUT:
@@ -343,11 +366,14 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
     }
 
     protected void header(HttpChunkedResponseSocket socket, TextQueryProcessorState state, int status_code) throws PeerDisconnectedException, PeerIsSlowToReadException {
-        socket.status(status_code, "text/csv; charset=utf-8");
+        // errors are reported as JSON regardless of the format
+        final boolean arrow = state.arrow && status_code == 200;
+        socket.status(status_code, arrow ? ARROW_CONTENT_TYPE : "text/csv; charset=utf-8");
+        final String extension = arrow ? ".arrow\"" : ".csv\"";
         if (state.fileName != null && state.fileName.length() > 0) {
-            socket.headers().put("Content-Disposition: attachment; filename=\"").put(state.fileName).put(".csv\"").put(Misc.EOL);
+            socket.headers().put("Content-Disposition: attachment; filename=\"").put(state.fileName).put(extension).put(Misc.EOL);
         } else {
-            socket.headers().put("Content-Disposition: attachment; filename=\"questdb-query-").put(clock.getTicks()).put(".csv\"").put(Misc.EOL);
+            socket.headers().put("Content-Disposition: attachment; filename=\"questdb-query-").put(clock.getTicks()).put(extension).put(Misc.EOL);
         }
 
         socket.headers().setKeepAlive(configuration.getKeepAliveHeader());
@@ -438,6 +464,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         state.stop = stop;
         state.noMeta = Chars.equalsNc("true", request.getUrlParam("nm"));
         state.countRows = Chars.equalsNc("true", request.getUrlParam("count"));
+        state.arrow = Chars.equalsNc("arrow", request.getUrlParam("fmt"));
         return true;
     }
 
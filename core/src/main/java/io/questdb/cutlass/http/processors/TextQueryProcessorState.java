@@ -24,10 +24,12 @@
 
 package io.questdb.cutlass.http.processors;
 
+import io.questdb.cairo.sql.PageFrameCursor;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
 import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cutlass.arrow.ArrowStreamWriter;
 import io.questdb.cutlass.http.HttpConnectionContext;
 import io.questdb.std.Misc;
 import io.questdb.std.Mutable;
@@ -39,11 +41,14 @@ import java.io.Closeable;
 public class TextQueryProcessorState implements Mutable, Closeable {
     final StringSink query = new StringSink();
     private final HttpConnectionContext httpConnectionContext;
+    private final QueryCache queryCache;
     boolean countRows = false;
     boolean noMeta = false;
+    boolean arrow = false;
     RecordCursorFactory recordCursorFactory;
     RecordMetadata metadata;
     RecordCursor cursor;
+    PageFrameCursor pageFrameCursor;
     long count;
     long skip;
     long stop;
@@ -53,19 +58,25 @@ public class TextQueryProcessorState implements Mutable, Closeable {
     int columnIndex;
     private boolean queryCacheable = false;
     String fileName;
+    private ArrowStreamWriter arrowWriter;
 
-    public TextQueryProcessorState(HttpConnectionContext httpConnectionContext) {
+    public TextQueryProcessorState(HttpConnectionContext httpConnectionContext, QueryCache queryCache) {
         this.httpConnectionContext = httpConnectionContext;
+        this.queryCache = queryCache;
     }
 
     @Override
     public void clear() {
         metadata = null;
+        if (arrowWriter != null) {
+            arrowWriter.clear();
+        }
         cursor = Misc.free(cursor);
+        pageFrameCursor = Misc.free(pageFrameCursor);
         record = null;
         if (null != recordCursorFactory) {
             if (queryCacheable) {
-                QueryCache.getInstance().push(query, recordCursorFactory);
+                queryCache.push(query, recordCursorFactory);
             } else {
                 recordCursorFactory.close();
             }
@@ -80,10 +91,19 @@ public class TextQueryProcessorState implements Mutable, Closeable {
 
     @Override
     public void close() {
+        arrowWriter = Misc.free(arrowWriter);
         cursor = Misc.free(cursor);
+        pageFrameCursor = Misc.free(pageFrameCursor);
         recordCursorFactory = Misc.free(recordCursorFactory);
     }
 
+    ArrowStreamWriter getArrowWriter(int batchRowCount) {
+        if (arrowWriter == null) {
+            arrowWriter = new ArrowStreamWriter(batchRowCount);
+        }
+        return arrowWriter;
+    }
+
     public long getFd() {
         return httpConnectionContext.getFd();
     }
@@ -143,6 +143,16 @@ public class DefaultLineTcpReceiverConfiguration implements LineTcpReceiverConfi
         return 30_000;
     }
 
+    @Override
+    public long getWriterRebalanceInterval() {
+        return 5_000;
+    }
+
+    @Override
+    public double getMaxLoadRatio() {
+        return 1.9;
+    }
+
     @Override
     public long getSymbolCacheWaitUsBeforeReload() {
         return 500_000;
@@ -496,6 +496,11 @@ class LineTcpMeasurementEvent implements Closeable {
         writerWorkerId = tableUpdateDetails.getWriterThreadId();
     }
 
+    void createReassignTableEvent(TableUpdateDetails tableUpdateDetails) {
+        writerWorkerId = LineTcpMeasurementEventType.ALL_WRITERS_REASSIGN_TABLE;
+        this.tableUpdateDetails = tableUpdateDetails;
+    }
+
     void createWriterReleaseEvent(TableUpdateDetails tableUpdateDetails, boolean commitOnWriterClose) {
         writerWorkerId = LineTcpMeasurementEventType.ALL_WRITERS_RELEASE_WRITER;
         this.tableUpdateDetails = tableUpdateDetails;
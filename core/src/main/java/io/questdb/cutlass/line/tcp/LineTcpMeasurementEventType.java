@@ -30,4 +30,8 @@ class LineTcpMeasurementEventType {
     static final int ALL_WRITERS_INCOMPLETE_EVENT = -2;
 
     static final int ALL_WRITERS_RELEASE_WRITER = -3;
+
+    // Hand-off marker published to the queue of the writer thread that is giving up a table,
+    // it follows all the events for the table that the thread still has to apply
+    static final int ALL_WRITERS_REASSIGN_TABLE = -4;
 }
@@ -56,7 +56,11 @@ class LineTcpMeasurementScheduler implements Closeable {
     private final LowerCaseCharSequenceObjHashMap<TableUpdateDetails> tableUpdateDetailsUtf16;
     private final LowerCaseCharSequenceObjHashMap<TableUpdateDetails> idleTableUpdateDetailsUtf16;
     private final long[] loadByWriterThread;
+    private final long[] windowLoadByWriterThread;
     private final long writerIdleTimeout;
+    private final long rebalanceInterval;
+    private final double maxLoadRatio;
+    private final LineTcpMetrics metrics;
     private final NetworkIOJob[] netIoJobs;
     private final StringSink[] tableNameSinks;
     private final TableStructureAdapter tableStructureAdapter;
@@ -65,6 +69,13 @@ class LineTcpMeasurementScheduler implements Closeable {
     private final LineTcpReceiverConfiguration configuration;
     private final MPSequence[] pubSeq;
     private LineTcpReceiver.SchedulerListener listener;
+    private volatile long nextLoadWindowMillis;
+    // table chosen to be moved to another writer thread, the move is
+    // performed by the network IO thread that owns the table
+    private volatile TableUpdateDetails rebalanceTable;
+    private int rebalanceTargetThreadId;
+    // last moved table, we do not start another move until its hand-off is complete
+    private TableUpdateDetails reassignedTable;
 
     LineTcpMeasurementScheduler(
             LineTcpReceiverConfiguration lineConfiguration,
@@ -95,10 +106,13 @@ class LineTcpMeasurementScheduler implements Closeable {
         tableUpdateDetailsUtf16 = new LowerCaseCharSequenceObjHashMap<>();
         idleTableUpdateDetailsUtf16 = new LowerCaseCharSequenceObjHashMap<>();
         loadByWriterThread = new long[writerWorkerPool.getWorkerCount()];
+        windowLoadByWriterThread = new long[writerWorkerPool.getWorkerCount()];
         int maxMeasurementSize = lineConfiguration.getMaxMeasurementSize();
         int queueSize = lineConfiguration.getWriterQueueCapacity();
         long commitIntervalDefault = configuration.getCommitIntervalDefault();
         int nWriterThreads = writerWorkerPool.getWorkerCount();
+        this.metrics = engine.getMetrics().lineTcp();
+        this.metrics.registerWriterThreads(nWriterThreads);
         pubSeq = new MPSequence[nWriterThreads];
         //noinspection unchecked
         queue = new RingQueue[nWriterThreads];
@@ -138,6 +152,9 @@ class LineTcpMeasurementScheduler implements Closeable {
         }
         this.tableStructureAdapter = new TableStructureAdapter(cairoConfiguration, defaultColumnTypes, configuration.getDefaultPartitionBy());
         writerIdleTimeout = lineConfiguration.getWriterIdleTimeout();
+        rebalanceInterval = lineConfiguration.getWriterRebalanceInterval();
+        maxLoadRatio = lineConfiguration.getMaxLoadRatio();
+        nextLoadWindowMillis = milliClock.getTicks() + rebalanceInterval;
     }
 
     @Override
@@ -201,6 +218,37 @@ class LineTcpMeasurementScheduler implements Closeable {
         return false;
     }
 
+    public boolean rebalance(CharSequenceObjHashMap<TableUpdateDetails> tableUpdateDetailsUtf8, long millis) {
+        if (rebalanceTable == null && millis < nextLoadWindowMillis) {
+            return false;
+        }
+
+        tableUpdateDetailsLock.writeLock().lock();
+        try {
+            if (millis >= nextLoadWindowMillis) {
+                nextLoadWindowMillis = millis + rebalanceInterval;
+                unsafeCloseLoadWindow();
+            }
+
+            final TableUpdateDetails tab = rebalanceTable;
+            if (tab == null || tab.getNetworkIOOwnerCount() != 1) {
+                return false;
+            }
+
+            // Only the network IO thread that owns the table is allowed to move it. This way
+            // the hand-off event is published after all the events this thread has already
+            // published for the table.
+            for (int n = 0, sz = tableUpdateDetailsUtf8.size(); n < sz; n++) {
+                if (tableUpdateDetailsUtf8.get(tableUpdateDetailsUtf8.keys().getQuick(n)) == tab) {
+                    return unsafeReassignTable(tab);
+                }
+            }
+            return false;
+        } finally {
+            tableUpdateDetailsLock.writeLock().unlock();
+        }
+    }
+
     public void processWriterReleaseEvent(LineTcpMeasurementEvent event, int workerId) {
         tableUpdateDetailsLock.readLock().lock();
         try {
@@ -387,6 +435,88 @@ class LineTcpMeasurementScheduler implements Closeable {
         return tableUpdateDetails;
     }
 
+    private void unsafeCloseLoadWindow() {
+        Arrays.fill(windowLoadByWriterThread, 0);
+        rebalanceTable = null;
+
+        ObjList<CharSequence> tableNames = tableUpdateDetailsUtf16.keys();
+        for (int n = 0, sz = tableNames.size(); n < sz; n++) {
+            final TableUpdateDetails tab = tableUpdateDetailsUtf16.get(tableNames.getQuick(n));
+            windowLoadByWriterThread[tab.getWriterThreadId()] += tab.closeLoadWindow();
+        }
+
+        if (reassignedTable != null && reassignedTable.isReassignPending()) {
+            // previous hand-off is still in flight
+            return;
+        }
+        reassignedTable = null;
+
+        int maxLoadThreadId = 0;
+        int minLoadThreadId = 0;
+        for (int i = 1, n = windowLoadByWriterThread.length; i < n; i++) {
+            if (windowLoadByWriterThread[i] > windowLoadByWriterThread[maxLoadThreadId]) {
+                maxLoadThreadId = i;
+            }
+            if (windowLoadByWriterThread[i] < windowLoadByWriterThread[minLoadThreadId]) {
+                minLoadThreadId = i;
+            }
+        }
+
+        final long maxLoad = windowLoadByWriterThread[maxLoadThreadId];
+        final long minLoad = windowLoadByWriterThread[minLoadThreadId];
+        if (maxLoadThreadId == minLoadThreadId || maxLoad <= minLoad * maxLoadRatio) {
+            return;
+        }
+
+        // move the busiest table that does not make the idle thread busier than the busy one
+        TableUpdateDetails candidate = null;
+        long candidateLoad = 0;
+        for (int n = 0, sz = tableNames.size(); n < sz; n++) {
+            final TableUpdateDetails tab = tableUpdateDetailsUtf16.get(tableNames.getQuick(n));
+            final long load = tab.getLastWindowLoad();
+            if (
+                    tab.getWriterThreadId() == maxLoadThreadId
+                            && tab.getNetworkIOOwnerCount() == 1
+                            && !tab.isWriterInError()
+                            && load > candidateLoad
+                            && load < maxLoad - minLoad
+            ) {
+                candidate = tab;
+                candidateLoad = load;
+            }
+        }
+
+        if (candidate != null) {
+            rebalanceTargetThreadId = minLoadThreadId;
+            rebalanceTable = candidate;
+        }
+    }
+
+    private boolean unsafeReassignTable(TableUpdateDetails tab) {
+        final int fromThreadId = tab.getWriterThreadId();
+        final long seq = getNextPublisherEventSequence(fromThreadId);
+        if (seq < 0) {
+            // queue is full, try again on the next maintenance cycle
+            return false;
+        }
+        try {
+            tab.setReassignPending(true);
+            queue[fromThreadId].get(seq).createReassignTableEvent(tab);
+            tab.setWriterThreadId(rebalanceTargetThreadId);
+        } finally {
+            pubSeq[fromThreadId].done(seq);
+        }
+        rebalanceTable = null;
+        reassignedTable = tab;
+        metrics.incrementTableReassignments();
+        LOG.info()
+                .$("reassigning table [tableName=").$(tab.getTableNameUtf16())
+                .$(", fromThreadId=").$(fromThreadId)
+                .$(", toThreadId=").$(rebalanceTargetThreadId)
+                .I$();
+        return true;
+    }
+
     private void unsafeCalcThreadLoad() {
         Arrays.fill(loadByWriterThread, 0);
         ObjList<CharSequence> tableNames = tableUpdateDetailsUtf16.keys();
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.line.tcp;
+
+import io.questdb.metrics.Counter;
+import io.questdb.metrics.CounterWithOneLabel;
+import io.questdb.metrics.MetricsRegistry;
+import org.jetbrains.annotations.TestOnly;
+
+public class LineTcpMetrics {
+
+    private final MetricsRegistry metricsRegistry;
+    private final Counter tableReassignmentCounter;
+    // Number of writer threads is not known until the receiver starts, hence the lazy registration.
+    private CounterWithOneLabel writerEventCounter;
+    private int writerThreadCount;
+
+    public LineTcpMetrics(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        this.tableReassignmentCounter = metricsRegistry.newCounter("line_tcp_table_reassignments");
+    }
+
+    public void addWriterEvents(int writerThreadId, long count) {
+        writerEventCounter.add((short) writerThreadId, count);
+    }
+
+    public void incrementTableReassignments() {
+        tableReassignmentCounter.inc();
+    }
+
+    public synchronized void registerWriterThreads(int writerThreadCount) {
+        if (writerThreadCount > this.writerThreadCount) {
+            final CharSequence[] labels = new CharSequence[writerThreadCount];
+            for (int i = 0; i < writerThreadCount; i++) {
+                labels[i] = Integer.toString(i);
+            }
+            writerEventCounter = metricsRegistry.newCounter("line_tcp_writer_events", "thread", labels);
+            this.writerThreadCount = writerThreadCount;
+        }
+    }
+
+    @TestOnly
+    public long tableReassignments() {
+        return tableReassignmentCounter.get();
+    }
+
+    @TestOnly
+    public long writerEvents(int writerThreadId) {
+        return writerEventCounter.get((short) writerThreadId);
+    }
+}
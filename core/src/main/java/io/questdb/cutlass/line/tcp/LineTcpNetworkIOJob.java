@@ -45,11 +45,13 @@ class LineTcpNetworkIOJob implements NetworkIOJob, Job {
     private final ObjList<SymbolCache> unusedSymbolCaches = new ObjList<>();
     private final MillisecondClock millisecondClock;
     private final long maintenanceInterval;
+    private final boolean rebalanceEnabled;
     private final LineTcpMeasurementScheduler scheduler;
     // Context blocked on LineTcpMeasurementScheduler queue
     private LineTcpConnectionContext busyContext = null;
     private final IORequestProcessor<LineTcpConnectionContext> onRequest = this::onRequest;
     private long maintenanceJobDeadline;
+    private long rebalanceDeadline;
 
     LineTcpNetworkIOJob(
             LineTcpReceiverConfiguration configuration,
@@ -57,8 +59,10 @@ class LineTcpNetworkIOJob implements NetworkIOJob, Job {
             IODispatcher<LineTcpConnectionContext> dispatcher, int workerId) {
         this.millisecondClock = configuration.getMillisecondClock();
         this.maintenanceInterval = configuration.getMaintenanceInterval();
+        this.rebalanceEnabled = configuration.getWriterRebalanceInterval() > 0;
         this.scheduler = scheduler;
         this.maintenanceJobDeadline = millisecondClock.getTicks() + maintenanceInterval;
+        this.rebalanceDeadline = maintenanceJobDeadline;
         this.dispatcher = dispatcher;
         this.workerId = workerId;
     }
@@ -93,6 +97,16 @@ class LineTcpNetworkIOJob implements NetworkIOJob, Job {
     public boolean run(int workerId) {
         assert this.workerId == workerId;
         boolean busy = false;
+        if (rebalanceEnabled) {
+            // writer queue being full is a sign of an overloaded writer thread,
+            // so rebalancing is checked before we bail out on the busy context
+            final long millis = millisecondClock.getTicks();
+            if (millis > rebalanceDeadline) {
+                busy |= scheduler.rebalance(tableUpdateDetailsUtf8, millis);
+                rebalanceDeadline = millis + maintenanceInterval;
+            }
+        }
+
         if (busyContext != null) {
             if (handleIO(busyContext)) {
                 return true;
@@ -108,8 +122,9 @@ class LineTcpNetworkIOJob implements NetworkIOJob, Job {
 
         final long millis = millisecondClock.getTicks();
         if (millis > maintenanceJobDeadline) {
-            busy = scheduler.doMaintenance(tableUpdateDetailsUtf8, workerId, millis);
-            if (!busy) {
+            if (scheduler.doMaintenance(tableUpdateDetailsUtf8, workerId, millis)) {
+                busy = true;
+            } else {
                 maintenanceJobDeadline = millis + maintenanceInterval;
             }
         }
@@ -64,6 +64,17 @@ public interface LineTcpReceiverConfiguration {
 
     long getWriterIdleTimeout();
 
+    /**
+     * Interval in milliseconds between checks of writer thread load. Tables are moved from the
+     * busiest writer thread to the least busy one when the load ratio of the two exceeds
+     * {@link #getMaxLoadRatio()}. Zero or negative value disables rebalancing.
+     *
+     * @return interval in milliseconds
+     */
+    long getWriterRebalanceInterval();
+
+    double getMaxLoadRatio();
+
     IODispatcherConfiguration getDispatcherConfiguration();
 
     int getNetMsgBufferSize();
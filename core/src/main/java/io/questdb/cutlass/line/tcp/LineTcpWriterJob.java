@@ -125,23 +125,38 @@ class LineTcpWriterJob implements Job, Closeable {
 
     private boolean drainQueue() {
         boolean busy = false;
+        long eventCount = 0;
         while (true) {
             long cursor;
             while ((cursor = sequence.next()) < 0) {
                 if (cursor == -1) {
+                    metrics.lineTcp().addWriterEvents(workerId, eventCount);
                     return busy;
                 }
             }
             busy = true;
             final LineTcpMeasurementEvent event = queue.get(cursor);
+            final int eventWriterWorkerId = event.getWriterWorkerId();
+            final TableUpdateDetails tab = event.getTableUpdateDetails();
+
+            if (
+                    (eventWriterWorkerId == workerId || eventWriterWorkerId == LineTcpMeasurementEventType.ALL_WRITERS_RELEASE_WRITER)
+                            && tab.isReassignPending()
+                            && tab.getWriterThreadId() == workerId
+            ) {
+                // the table is being handed over to this thread, and the previous
+                // writer thread has not yet applied all of its events, the event
+                // stays in the queue until the hand-off is complete
+                metrics.lineTcp().addWriterEvents(workerId, eventCount);
+                return true;
+            }
 
             try {
                 // we check the event's writer thread ID to avoid consuming
                 // incomplete events
 
-                final TableUpdateDetails tab = event.getTableUpdateDetails();
                 boolean closeWriter = false;
-                if (event.getWriterWorkerId() == workerId) {
+                if (eventWriterWorkerId == workerId) {
                     try {
                         if (tab.isWriterInError()) {
                             closeWriter = true;
@@ -156,6 +171,7 @@ class LineTcpWriterJob implements Job, Closeable {
                                         .I$();
                             }
                             event.append();
+                            eventCount++;
                         }
                     } catch (Throwable ex) {
                         tab.setWriterInError();
@@ -169,8 +185,15 @@ class LineTcpWriterJob implements Job, Closeable {
                         // This is a critical error, so we treat it as an unhandled one.
                     }
                 } else {
-                    if (event.getWriterWorkerId() == LineTcpMeasurementEventType.ALL_WRITERS_RELEASE_WRITER) {
-                        closeWriter = true;
+                    switch (eventWriterWorkerId) {
+                        case LineTcpMeasurementEventType.ALL_WRITERS_RELEASE_WRITER:
+                            closeWriter = true;
+                            break;
+                        case LineTcpMeasurementEventType.ALL_WRITERS_REASSIGN_TABLE:
+                            releaseReassignedTable(tab);
+                            break;
+                        default:
+                            break;
                     }
                 }
 
@@ -188,6 +211,20 @@ class LineTcpWriterJob implements Job, Closeable {
         }
     }
 
+    private void releaseReassignedTable(TableUpdateDetails tab) {
+        if (tab.isAssignedToJob()) {
+            assignedTables.remove(tab);
+            tab.setAssignedToJob(false);
+            nextCommitTime = millisecondClock.getTicks();
+        }
+        LOG.info()
+                .$("released table to another writer thread [tableName=").$(tab.getTableNameUtf16())
+                .$(", threadId=").$(workerId)
+                .I$();
+        // must be the last write, it publishes the table state to the new writer thread
+        tab.setReassignPending(false);
+    }
+
     private void tickWriters() {
         for (int n = 0, sz = assignedTables.size(); n < sz; n++) {
             assignedTables.getQuick(n).tick();
@@ -51,12 +51,17 @@ public class TableUpdateDetails implements Closeable {
     private final CairoEngine engine;
     private final MillisecondClock millisecondClock;
     private final long writerTickRowsCountMod;
-    private int writerThreadId;
+    private volatile int writerThreadId;
     // Number of rows processed since the last reshuffle, this is an estimate because it is incremented by
     // multiple threads without synchronisation
     private long eventsProcessedSinceReshuffle = 0;
+    // Number of rows processed during the last complete load window
+    private long lastWindowLoad = 0;
     private TableWriter writer;
-    private boolean assignedToJob = false;
+    private volatile boolean assignedToJob = false;
+    // set when the table is being handed over to another writer thread, cleared by the
+    // previous writer thread once it has processed all events published before the hand-off
+    private volatile boolean reassignPending = false;
     private long lastMeasurementMillis = Long.MAX_VALUE;
     private long nextCommitTime;
     private int networkIOOwnerCount = 0;
@@ -142,6 +147,16 @@ public class TableUpdateDetails implements Closeable {
         }
     }
 
+    public long closeLoadWindow() {
+        lastWindowLoad = eventsProcessedSinceReshuffle;
+        eventsProcessedSinceReshuffle = 0;
+        return lastWindowLoad;
+    }
+
+    public long getLastWindowLoad() {
+        return lastWindowLoad;
+    }
+
     public long getEventsProcessedSinceReshuffle() {
         return eventsProcessedSinceReshuffle;
     }
@@ -162,6 +177,10 @@ public class TableUpdateDetails implements Closeable {
         return writerThreadId;
     }
 
+    public void setWriterThreadId(int writerThreadId) {
+        this.writerThreadId = writerThreadId;
+    }
+
     public void incrementEventsProcessedSinceReshuffle() {
         ++eventsProcessedSinceReshuffle;
     }
@@ -174,6 +193,14 @@ public class TableUpdateDetails implements Closeable {
         this.assignedToJob = assignedToJob;
     }
 
+    public boolean isReassignPending() {
+        return reassignPending;
+    }
+
+    public void setReassignPending(boolean reassignPending) {
+        this.reassignPending = reassignPending;
+    }
+
     public void removeReference(int workerId) {
         networkIOOwnerCount--;
         localDetailsArray[workerId].clear();
@@ -33,6 +33,7 @@ import io.questdb.cairo.sql.Record;
 import io.questdb.cutlass.text.TextLoader;
 import io.questdb.cutlass.text.types.TypeManager;
 import io.questdb.griffin.*;
+import io.questdb.griffin.engine.cache.QueryFactoryCache;
 import io.questdb.griffin.engine.functions.bind.BindVariableServiceImpl;
 import io.questdb.griffin.engine.ops.UpdateOperation;
 import io.questdb.log.Log;
@@ -130,7 +131,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private final WeakMutableObjectPool<Portal> namedPortalPool;
     private final WeakSelfReturningObjectPool<TypesAndInsert> typesAndInsertPool;
     private final DateLocale locale;
-    private final CharSequenceObjHashMap<TableWriter> pendingWriters;
+    private final CharSequenceObjHashMap<TableWriterAPI> pendingWriters;
     private final DirectCharSink utf8Sink;
     private final TypeManager typeManager;
     private final AssociativeCache<TypesAndInsert> typesAndInsertCache;
@@ -138,6 +139,10 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private final CharSequenceObjHashMap<Portal> namedPortalMap;
     private final IntList syncActions = new IntList(4);
     private final CairoEngine engine;
+    private final QueryFactoryCache queryFactoryCache;
+    private final boolean selectCacheEnabled;
+    // types of bind variables cached factory was compiled with
+    private final IntList cachedBindVariableTypes = new IntList();
     private final ObjectPool<DirectBinarySequence> binarySequenceParamsPool;
     private final NetworkSqlExecutionCircuitBreaker circuitBreaker;
     private final SCSequence tempSequence = new SCSequence();
@@ -163,8 +168,8 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private RecordCursorFactory currentFactory = null;
     // these references are held by context only for a period of processing single request
     // in PF world this request can span multiple messages, but still, only for one request
-    // the rationale is to be able to return "selectAndTypes" instance to thread-local
-    // cache, which is "typesAndSelectCache". We typically do this after query results are
+    // the rationale is to be able to return factory of "selectAndTypes" instance to server-wide
+    // cache, which is "queryFactoryCache". We typically do this after query results are
     // served to client or query errored out due to network issues
     private TypesAndSelect typesAndSelect = null;
     private TypesAndInsert typesAndInsert = null;
@@ -186,7 +191,6 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private int transactionState = NO_TRANSACTION;
     private final PGResumeProcessor resumeQueryCompleteRef = this::resumeQueryComplete;
     private NamedStatementWrapper wrapper;
-    private AssociativeCache<TypesAndSelect> typesAndSelectCache;
     private WeakSelfReturningObjectPool<TypesAndSelect> typesAndSelectPool;
     // this is a reference to types either from the context or named statement, where it is provided
     private IntList activeBindVariableTypes;
@@ -198,6 +202,8 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
 
     public PGConnectionContext(CairoEngine engine, PGWireConfiguration configuration, SqlExecutionContextImpl sqlExecutionContext) {
         this.engine = engine;
+        this.queryFactoryCache = engine.getQueryFactoryCache();
+        this.selectCacheEnabled = configuration.isSelectCacheEnabled();
         this.utf8Sink = new DirectCharSink(engine.getConfiguration().getTextConfiguration().getUtf8SinkSize());
         this.typeManager = new TypeManager(engine.getConfiguration().getTextConfiguration(), utf8Sink);
         this.nf = configuration.getNetworkFacade();
@@ -219,6 +225,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
         this.locale = configuration.getDefaultDateLocale();
         this.sqlExecutionContext = sqlExecutionContext;
         this.sqlExecutionContext.setRandom(this.rnd = configuration.getRandom());
+        this.sqlExecutionContext.setResultCacheEnabled(engine.getConfiguration().isSqlResultCacheEnabled());
         this.namedStatementWrapperPool = new WeakMutableObjectPool<>(NamedStatementWrapper::new, configuration.getNamesStatementPoolCapacity()); // 32
         this.namedPortalPool = new WeakMutableObjectPool<>(Portal::new, configuration.getNamesStatementPoolCapacity()); // 32
         this.namedStatementMap = new CharSequenceObjHashMap<>(configuration.getNamedStatementCacheCapacity());
@@ -358,7 +365,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     }
 
     @Override
-    public TableWriter getWriter(CairoSecurityContext context, CharSequence name, CharSequence lockReason) {
+    public TableWriterAPI getWriter(CairoSecurityContext context, CharSequence name, CharSequence lockReason) {
         final int index = pendingWriters.keyIndex(name);
         if (index < 0) {
             return pendingWriters.valueAt(index);
@@ -368,14 +375,12 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
 
     public void handleClientOperation(
             @Transient SqlCompiler compiler,
-            @Transient AssociativeCache<TypesAndSelect> selectAndTypesCache,
             @Transient WeakSelfReturningObjectPool<TypesAndSelect> selectAndTypesPool,
             @Transient AssociativeCache<TypesAndUpdate> typesAndUpdateCache,
             @Transient WeakSelfReturningObjectPool<TypesAndUpdate> typesAndUpdatePool,
             int operation
     ) throws PeerDisconnectedException, PeerIsSlowToReadException, PeerIsSlowToWriteException, BadProtocolException {
 
-        this.typesAndSelectCache = selectAndTypesCache;
         this.typesAndSelectPool = selectAndTypesPool;
         this.typesAndUpdateCache = typesAndUpdateCache;
         this.typesAndUpdatePool = typesAndUpdatePool;
@@ -1051,10 +1056,12 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
         // we do not want to overwrite cache entries and potentially
         // leak memory
         if (typesAndSelect != null) {
-            typesAndSelectCache.put(queryText, typesAndSelect);
-            // clear selectAndTypes so that context doesn't accidentally
+            if (selectCacheEnabled) {
+                queryFactoryCache.push(queryText, sqlExecutionContext.getWorkerCount(), typesAndSelect.detachFactory(), typesAndSelect.getTypes());
+            }
+            // return selectAndTypes to the pool, so that context doesn't accidentally
             // free the factory when context finishes abnormally
-            this.typesAndSelect = null;
+            this.typesAndSelect = Misc.free(typesAndSelect);
         }
 
         if (typesAndUpdate != null) {
@@ -1098,10 +1105,12 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
                 return false;
             }
 
-            typesAndSelect = typesAndSelectCache.poll(queryText);
+            final RecordCursorFactory factory = selectCacheEnabled ? queryFactoryCache.poll(queryText, sqlExecutionContext.getWorkerCount(), cachedBindVariableTypes) : null;
 
-            if (typesAndSelect != null) {
+            if (factory != null) {
                 LOG.info().$("query cache used [fd=").$(fd).I$();
+                typesAndSelect = typesAndSelectPool.pop();
+                typesAndSelect.of(factory, cachedBindVariableTypes);
                 // cache hit, define bind variables
                 bindVariableService.clear();
                 typesAndSelect.defineBindVariables(bindVariableService);
@@ -1252,7 +1261,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     }
 
     private void executeInsert() throws SqlException {
-        final TableWriter writer;
+        final TableWriterAPI writer;
         try {
             switch (transactionState) {
                 case IN_TRANSACTION:
@@ -1298,7 +1307,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             case COMMIT_TRANSACTION:
                 try {
                     for (int i = 0, n = pendingWriters.size(); i < n; i++) {
-                        final TableWriter m = pendingWriters.valueQuick(i);
+                        final TableWriterAPI m = pendingWriters.valueQuick(i);
                         m.commit();
                         Misc.free(m);
                     }
@@ -1310,7 +1319,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             case ROLLING_BACK_TRANSACTION:
                 try {
                     for (int i = 0, n = pendingWriters.size(); i < n; i++) {
-                        final TableWriter m = pendingWriters.valueQuick(i);
+                        final TableWriterAPI m = pendingWriters.valueQuick(i);
                         m.rollback();
                         Misc.free(m);
                     }
@@ -1401,6 +1410,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
                 sqlExecutionContext.getRequestFd(),
                 circuitBreaker
         );
+        newSqlExecutionContext.setResultCacheEnabled(sqlExecutionContext.isResultCacheEnabled());
         sqlExecutionContext = newSqlExecutionContext;
 
         // Do not cache, let last closing party free the resources
@@ -2458,6 +2468,8 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
                 } catch (ReaderOutOfDateException e) {
                     LOG.info().$(e.getFlyweightMessage()).$();
                     currentFactory = Misc.free(currentFactory);
+                    // idle instances of the query are as stale as this one
+                    queryFactoryCache.remove(queryText);
                     compileQuery(compiler);
                     buildSelectColumnTypes();
                     applyLatestBindColumnFormats();
@@ -40,7 +40,6 @@ import java.io.Closeable;
 public class PGJobContext implements Closeable {
 
     private final SqlCompiler compiler;
-    private final AssociativeCache<TypesAndSelect> typesAndSelectCache;
     private final WeakSelfReturningObjectPool<TypesAndSelect> typesAndSelectPool;
     private final AssociativeCache<TypesAndUpdate> typesAndUpdateCache;
     private final WeakSelfReturningObjectPool<TypesAndUpdate> typesAndUpdatePool;
@@ -56,7 +55,6 @@ public class PGJobContext implements Closeable {
         final boolean enableSelectCache = configuration.isSelectCacheEnabled();
         final int blockCount = enableSelectCache ? configuration.getSelectCacheBlockCount() : 1;
         final int rowCount = enableSelectCache ? configuration.getSelectCacheRowCount() : 1;
-        typesAndSelectCache = new AssociativeCache<>(blockCount, rowCount);
         typesAndSelectPool = new WeakSelfReturningObjectPool<>(TypesAndSelect::new, blockCount * rowCount);
 
         final boolean enabledUpdateCache = configuration.isUpdateCacheEnabled();
@@ -69,7 +67,6 @@ public class PGJobContext implements Closeable {
     @Override
     public void close() {
         Misc.free(compiler);
-        Misc.free(typesAndSelectCache);
         Misc.free(typesAndUpdateCache);
     }
 
@@ -80,7 +77,6 @@ public class PGJobContext implements Closeable {
             BadProtocolException {
         context.handleClientOperation(
                 compiler,
-                typesAndSelectCache,
                 typesAndSelectPool,
                 typesAndUpdateCache,
                 typesAndUpdatePool,
@@ -89,7 +85,6 @@ public class PGJobContext implements Closeable {
     }
 
     public void flushQueryCache() {
-        typesAndSelectCache.clear();
         typesAndUpdateCache.clear();
     }
 }
@@ -26,6 +26,7 @@ package io.questdb.cutlass.pgwire;
 
 import io.questdb.cairo.sql.BindVariableService;
 import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.std.IntList;
 import io.questdb.std.Misc;
 import io.questdb.std.WeakSelfReturningObjectPool;
 
@@ -42,6 +43,12 @@ public class TypesAndSelect extends AbstractTypeContainer<TypesAndSelect> {
         factory = Misc.free(factory);
     }
 
+    public RecordCursorFactory detachFactory() {
+        final RecordCursorFactory factory = this.factory;
+        this.factory = null;
+        return factory;
+    }
+
     public RecordCursorFactory getFactory() {
         return factory;
     }
@@ -50,4 +57,9 @@ public class TypesAndSelect extends AbstractTypeContainer<TypesAndSelect> {
         this.factory = factory;
         copyTypesFrom(bindVariableService);
     }
+
+    public void of(RecordCursorFactory factory, IntList bindVariableTypes) {
+        this.factory = factory;
+        copyTypesFrom(bindVariableTypes);
+    }
 }
@@ -135,6 +135,20 @@ public class CairoTextWriter implements Closeable, Mutable {
         return tableName;
     }
 
+    /**
+     * @return adapter of designated timestamp field or null when rows are not partitioned by timestamp
+     */
+    TimestampAdapter getTimestampAdapter() {
+        return timestampAdapter;
+    }
+
+    /**
+     * @return index of designated timestamp field in text
+     */
+    int getTimestampIndex() {
+        return timestampIndex;
+    }
+
     public TextLexer.Listener getTextListener() {
         return timestampAdapter != null ? partitionedListener : nonPartitionedListener;
     }
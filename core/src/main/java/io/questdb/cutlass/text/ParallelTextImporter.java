@@ -0,0 +1,606 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.text;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.CairoSecurityContext;
+import io.questdb.cairo.PartitionBy;
+import io.questdb.cutlass.text.types.TimestampAdapter;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.RingQueue;
+import io.questdb.mp.SOUnboundedCountDownLatch;
+import io.questdb.mp.Sequence;
+import io.questdb.std.*;
+import io.questdb.std.str.DirectByteCharSequence;
+import io.questdb.std.str.Path;
+import io.questdb.tasks.TextImportTask;
+
+import java.io.Closeable;
+
+/**
+ * Loads text file into partitioned table using shared worker pool. Rows of unsorted file
+ * would otherwise go through out-of-order path of the table writer one by one.
+ * <p>
+ * Import runs in three phases:
+ * <ol>
+ * <li>File is split into chunks at line boundaries. Workers scan chunks, parse designated
+ * timestamp of every line and append (timestamp, line offset) pairs to temporary
+ * per-chunk, per-partition index files under {@link CairoConfiguration#getSqlCopyWorkRoot()}.</li>
+ * <li>Workers merge and sort index files of each partition.</li>
+ * <li>Importing thread feeds lines to {@link TextLoader} partition by partition, in timestamp
+ * order, so that rows are appended to the table without out-of-order merges.</li>
+ * </ol>
+ * Chunk boundaries are found by looking for line ends only, text must not have line breaks inside
+ * quoted values. When destination table is not partitioned, the file is loaded serially.
+ */
+public class ParallelTextImporter implements Closeable, Mutable {
+    static final int PHASE_INDEX = 0;
+    static final int PHASE_SORT = 1;
+    private static final Log LOG = LogFactory.getLog(ParallelTextImporter.class);
+    private static final int CHUNKS_PER_WORKER = 4;
+    private final CairoConfiguration configuration;
+    private final FilesFacade ff;
+    private final int mkdirMode;
+    private final CharSequence workRoot;
+    private final RingQueue<TextImportTask> queue;
+    private final Sequence pubSeq;
+    private final SOUnboundedCountDownLatch doneLatch = new SOUnboundedCountDownLatch();
+    private final ObjList<TextImportEntry> entryPool = new ObjList<>();
+    private final ObjList<TextImportEntry> activeEntries = new ObjList<>();
+    private final ObjList<IndexChunk> chunks = new ObjList<>();
+    private final LongList chunkBounds = new LongList();
+    private final LongList partitions = new LongList();
+    private final Path path = new Path();
+    private final Path workDir = new Path();
+    private long fileAddress;
+    private long fileSize;
+    private int chunkCount;
+    private int copyBufferSize;
+    private byte columnDelimiter;
+    private int timestampIndex;
+    private TimestampAdapter timestampAdapter;
+    private int partitionBy;
+    private PartitionBy.PartitionFloorMethod partitionFloorMethod;
+    private volatile String error;
+
+    public ParallelTextImporter(CairoConfiguration configuration, MessageBus messageBus) {
+        this.configuration = configuration;
+        this.ff = configuration.getFilesFacade();
+        this.mkdirMode = configuration.getMkDirMode();
+        this.workRoot = configuration.getSqlCopyWorkRoot();
+        this.queue = messageBus.getTextImportQueue();
+        this.pubSeq = messageBus.getTextImportPubSeq();
+    }
+
+    @Override
+    public void clear() {
+        partitions.clear();
+        chunkBounds.clear();
+        activeEntries.clear();
+        chunkCount = 0;
+        fileAddress = 0;
+        fileSize = 0;
+        timestampAdapter = null;
+        partitionFloorMethod = null;
+        error = null;
+        // chunks hold native buffers and paths, they are not kept between imports
+        Misc.freeObjList(chunks);
+        chunks.clear();
+    }
+
+    @Override
+    public void close() {
+        clear();
+        Misc.free(path);
+        Misc.free(workDir);
+    }
+
+    /**
+     * Loads whole text file via text loader, which must be configured with destination table.
+     *
+     * @param textLoader           loader in ANALYZE_STRUCTURE state
+     * @param fd                   file descriptor of text file
+     * @param workerCount          number of workers to split the file for
+     * @param cairoSecurityContext security context to create or open destination table with
+     * @throws TextException when text structure cannot be determined
+     */
+    public void load(
+            TextLoader textLoader,
+            long fd,
+            int workerCount,
+            CairoSecurityContext cairoSecurityContext
+    ) throws TextException {
+        fileSize = ff.length(fd);
+        copyBufferSize = configuration.getSqlCopyBufferSize();
+        if (fileSize < 1) {
+            return;
+        }
+        fileAddress = ff.mmap(fd, fileSize, 0, Files.MAP_RO, MemoryTag.MMAP_DEFAULT);
+        if (fileAddress == -1) {
+            fileAddress = 0;
+            throw CairoException.instance(ff.errno()).put("could not mmap text file [size=").put(fileSize).put(']');
+        }
+        try {
+            final long fileHi = fileAddress + fileSize;
+            textLoader.prepareTable(fileAddress, Math.min(fileHi, fileAddress + copyBufferSize), cairoSecurityContext);
+
+            timestampAdapter = textLoader.getTimestampAdapter();
+            partitionBy = textLoader.getPartitionBy();
+            if (timestampAdapter == null || !PartitionBy.isPartitioned(partitionBy)) {
+                LOG.info().$("table is not partitioned, loading serially [table=").$(textLoader.getTableName()).I$();
+                textLoader.parse(fileAddress, fileHi, cairoSecurityContext);
+                textLoader.wrapUp();
+                return;
+            }
+
+            timestampIndex = textLoader.getTimestampIndex();
+            columnDelimiter = textLoader.getDetectedColumnDelimiter();
+            partitionFloorMethod = PartitionBy.getPartitionFloorMethod(partitionBy);
+
+            final long dataLo;
+            if (textLoader.isHeaderDetected()) {
+                dataLo = Math.min(findLineEnd(fileAddress, fileHi) + 1, fileHi);
+                // lexer skips header line
+                textLoader.parse(fileAddress, dataLo, cairoSecurityContext);
+            } else {
+                dataLo = fileAddress;
+            }
+
+            workDir.of(workRoot).concat(textLoader.getTableName()).slash$();
+            if (ff.exists(workDir)) {
+                ff.rmdir(workDir);
+            }
+            if (ff.mkdirs(workDir, mkdirMode) != 0) {
+                throw CairoException.instance(ff.errno()).put("could not create import work directory [path=").put(workDir).put(']');
+            }
+            try {
+                splitIntoChunks(dataLo, fileHi, workerCount);
+                dispatch(PHASE_INDEX, chunkCount);
+                collectPartitions();
+                dispatch(PHASE_SORT, partitions.size());
+                loadPartitions(textLoader, fileHi, cairoSecurityContext);
+                textLoader.wrapUp();
+            } finally {
+                ff.rmdir(workDir);
+            }
+        } finally {
+            ff.munmap(fileAddress, fileSize, MemoryTag.MMAP_DEFAULT);
+            clear();
+        }
+    }
+
+    private static void setIndexPath(Path path, int partitionBy, long partition, int chunkIndex) {
+        PartitionBy.setSinkForPartition(path.slash(), partitionBy, partition, false);
+        if (chunkIndex > -1) {
+            path.put('.').put(chunkIndex);
+        }
+        path.$();
+    }
+
+    private void checkError() {
+        final String error = this.error;
+        if (error != null) {
+            throw CairoException.instance(0).put("parallel import failed [error=").put(error).put(']');
+        }
+    }
+
+    private void collectPartitions() {
+        checkError();
+        long lineCount = 0;
+        long errorCount = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            final IndexChunk chunk = chunks.getQuick(i);
+            partitions.add(chunk.partitions);
+            lineCount += chunk.lineCount;
+            errorCount += chunk.errorCount;
+        }
+        partitions.sort();
+        // remove duplicates
+        int n = 0;
+        for (int i = 0, size = partitions.size(); i < size; i++) {
+            final long partition = partitions.getQuick(i);
+            if (n == 0 || partitions.getQuick(n - 1) != partition) {
+                partitions.setQuick(n++, partition);
+            }
+        }
+        partitions.setPos(n);
+        LOG.info().$("indexed [lines=").$(lineCount)
+                .$(", errors=").$(errorCount)
+                .$(", chunks=").$(chunkCount)
+                .$(", partitions=").$(n)
+                .I$();
+    }
+
+    private void dispatch(int phase, int taskCount) {
+        doneLatch.reset();
+        activeEntries.clear();
+        int queuedCount = 0;
+        int ownCount = 0;
+        for (int i = 0; i < taskCount; i++) {
+            final long seq = pubSeq.next();
+            if (seq < 0) {
+                runTask(phase, i);
+                ownCount++;
+            } else {
+                final TextImportEntry entry = nextEntry(queuedCount);
+                entry.of(queuedCount++, this, phase, i, doneLatch);
+                activeEntries.add(entry);
+                queue.get(seq).entry = entry;
+                pubSeq.done(seq);
+            }
+        }
+
+        // run what workers have not picked up yet, starting from the back to reduce chance of clashing
+        int reclaimed = 0;
+        for (int i = activeEntries.size() - 1; i > -1 && doneLatch.getCount() > -queuedCount; i--) {
+            if (activeEntries.getQuick(i).run()) {
+                reclaimed++;
+            }
+        }
+        doneLatch.await(queuedCount);
+        LOG.debug().$("done [phase=").$(phase)
+                .$(", total=").$(taskCount)
+                .$(", ownCount=").$(ownCount)
+                .$(", reclaimed=").$(reclaimed)
+                .$(", queuedCount=").$(queuedCount)
+                .I$();
+    }
+
+    /**
+     * Finds end of the line, which starts at lo. Line breaks inside quoted values
+     * do not end the line.
+     *
+     * @return address of line break or hi when the last line is not terminated
+     */
+    private long findLineEnd(long lo, long hi) {
+        long p = lo;
+        long fieldLo = lo;
+        boolean inQuote = false;
+        while (p < hi) {
+            final byte c = Unsafe.getUnsafe().getByte(p);
+            if (inQuote) {
+                if (c == '"') {
+                    if (p + 1 < hi && Unsafe.getUnsafe().getByte(p + 1) == '"') {
+                        p++;
+                    } else {
+                        inQuote = false;
+                    }
+                }
+            } else if (c == '"' && p == fieldLo) {
+                inQuote = true;
+            } else if (c == columnDelimiter) {
+                fieldLo = p + 1;
+            } else if (c == '\n') {
+                break;
+            }
+            p++;
+        }
+        return p;
+    }
+
+    private void loadPartitions(TextLoader textLoader, long fileHi, CairoSecurityContext cairoSecurityContext) throws TextException {
+        checkError();
+        long lastLineBuf = 0;
+        long lastLineBufSize = 0;
+        try {
+            for (int i = 0, n = partitions.size(); i < n; i++) {
+                path.of(workDir);
+                setIndexPath(path, partitionBy, partitions.getQuick(i), -1);
+                final long fd = ff.openRO(path);
+                if (fd == -1) {
+                    throw CairoException.instance(ff.errno()).put("could not open index file [path=").put(path).put(']');
+                }
+                final long size = ff.length(fd);
+                final long address = ff.mmap(fd, size, 0, Files.MAP_RO, MemoryTag.MMAP_DEFAULT);
+                ff.close(fd);
+                if (address == -1) {
+                    throw CairoException.instance(ff.errno()).put("could not mmap index file [path=").put(path).put(']');
+                }
+                try {
+                    for (long p = address, hi = address + size; p < hi; p += 2 * Long.BYTES) {
+                        final long lineLo = fileAddress + Unsafe.getUnsafe().getLong(p + Long.BYTES);
+                        final long lineHi = findLineEnd(lineLo, fileHi);
+                        if (lineHi < fileHi) {
+                            textLoader.parse(lineLo, lineHi + 1, cairoSecurityContext);
+                        } else {
+                            // last line of the file is not terminated, lexer needs line break to emit it
+                            final long len = lineHi - lineLo + 1;
+                            if (len > lastLineBufSize) {
+                                lastLineBuf = Unsafe.realloc(lastLineBuf, lastLineBufSize, len, MemoryTag.NATIVE_DEFAULT);
+                                lastLineBufSize = len;
+                            }
+                            Vect.memcpy(lastLineBuf, lineLo, len - 1);
+                            Unsafe.getUnsafe().putByte(lastLineBuf + len - 1, (byte) '\n');
+                            textLoader.parse(lastLineBuf, lastLineBuf + len, cairoSecurityContext);
+                        }
+                    }
+                } finally {
+                    ff.munmap(address, size, MemoryTag.MMAP_DEFAULT);
+                }
+                ff.remove(path);
+            }
+        } finally {
+            if (lastLineBuf != 0) {
+                Unsafe.free(lastLineBuf, lastLineBufSize, MemoryTag.NATIVE_DEFAULT);
+            }
+        }
+    }
+
+    private TextImportEntry nextEntry(int index) {
+        if (index < entryPool.size()) {
+            return entryPool.getQuick(index);
+        }
+        final TextImportEntry entry = new TextImportEntry();
+        entryPool.add(entry);
+        return entry;
+    }
+
+    private void sortPartition(int index) {
+        try (Path path = new Path().of(workDir)) {
+            sortPartition(path, partitions.getQuick(index));
+        }
+    }
+
+    private void sortPartition(Path path, long partition) {
+        final int rootLen = path.length();
+        long size = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            setIndexPath(path.trimTo(rootLen), partitionBy, partition, i);
+            if (ff.exists(path)) {
+                size += ff.length(path);
+            }
+        }
+
+        final long address = Unsafe.malloc(size, MemoryTag.NATIVE_DEFAULT);
+        try {
+            long offset = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                setIndexPath(path.trimTo(rootLen), partitionBy, partition, i);
+                final long fd = ff.openRO(path);
+                if (fd == -1) {
+                    continue;
+                }
+                try {
+                    final long len = ff.length(fd);
+                    if (ff.read(fd, address + offset, len, 0) != len) {
+                        throw CairoException.instance(ff.errno()).put("could not read index file [path=").put(path).put(']');
+                    }
+                    offset += len;
+                } finally {
+                    ff.close(fd);
+                }
+                ff.remove(path);
+            }
+
+            Vect.sortLongIndexAscInPlace(address, size / (2 * Long.BYTES));
+
+            setIndexPath(path.trimTo(rootLen), partitionBy, partition, -1);
+            writeIndex(path, address, size);
+        } finally {
+            Unsafe.free(address, size, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    private void splitIntoChunks(long lo, long hi, int workerCount) {
+        final long size = hi - lo;
+        final long maxChunkCount = Math.max(1, workerCount) * CHUNKS_PER_WORKER;
+        chunkCount = (int) Math.max(1, Math.min((size + copyBufferSize - 1) / copyBufferSize, maxChunkCount));
+        final long chunkSize = (size + chunkCount - 1) / chunkCount;
+
+        chunkBounds.add(lo);
+        for (int i = 1; i < chunkCount; i++) {
+            long p = Math.max(chunkBounds.getLast(), lo + i * chunkSize);
+            // chunk starts right after line break
+            while (p < hi && Unsafe.getUnsafe().getByte(p - 1) != '\n') {
+                p++;
+            }
+            chunkBounds.add(p);
+        }
+        chunkBounds.add(hi);
+
+        for (int i = chunks.size(); i < chunkCount; i++) {
+            chunks.add(new IndexChunk());
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.getQuick(i).of(chunkBounds.getQuick(i), chunkBounds.getQuick(i + 1));
+        }
+    }
+
+    private void writeIndex(Path path, long address, long size) {
+        final long fd = ff.openRW(path, CairoConfiguration.O_NONE);
+        if (fd == -1) {
+            throw CairoException.instance(ff.errno()).put("could not open index file [path=").put(path).put(']');
+        }
+        try {
+            final long offset = ff.length(fd);
+            if (ff.write(fd, address, size, offset) != size) {
+                throw CairoException.instance(ff.errno()).put("could not write index file [path=").put(path).put(']');
+            }
+        } finally {
+            ff.close(fd);
+        }
+    }
+
+    void runTask(int phase, int index) {
+        try {
+            if (phase == PHASE_INDEX) {
+                chunks.getQuick(index).run(index);
+            } else {
+                sortPartition(index);
+            }
+        } catch (Throwable th) {
+            LOG.error().$("could not import [phase=").$(phase).$(", index=").$(index).$(", ex=").$(th).I$();
+            if (error == null) {
+                error = th instanceof FlyweightMessageContainer
+                        ? Chars.toString(((FlyweightMessageContainer) th).getFlyweightMessage())
+                        : String.valueOf(th.getMessage());
+            }
+        }
+    }
+
+    private class IndexChunk implements Closeable {
+        // (timestamp, line offset) pairs buffered per partition
+        private final LongObjHashMap<DirectLongList> buffers = new LongObjHashMap<>();
+        private final LongList partitions = new LongList();
+        private final DirectByteCharSequence timestamp = new DirectByteCharSequence();
+        private final Path path = new Path();
+        private long lo;
+        private long hi;
+        private long bufferedCount;
+        private long lineCount;
+        private long errorCount;
+
+        @Override
+        public void close() {
+            freeBuffers();
+            Misc.free(path);
+        }
+
+        private void add(long timestamp, long offset, int chunkIndex) {
+            final long partition = partitionFloorMethod.floor(timestamp);
+            final int keyIndex = buffers.keyIndex(partition);
+            final DirectLongList buffer;
+            if (keyIndex < 0) {
+                buffer = buffers.valueAt(keyIndex);
+            } else {
+                buffer = new DirectLongList(64, MemoryTag.NATIVE_DEFAULT);
+                buffers.putAt(keyIndex, partition, buffer);
+                partitions.add(partition);
+            }
+            buffer.add(timestamp);
+            buffer.add(offset);
+            bufferedCount += 2;
+            if (bufferedCount * Long.BYTES >= copyBufferSize) {
+                flush(chunkIndex);
+            }
+        }
+
+        private void flush(int chunkIndex) {
+            final int rootLen = path.of(workDir).length();
+            for (int i = 0, n = partitions.size(); i < n; i++) {
+                final long partition = partitions.getQuick(i);
+                final DirectLongList buffer = buffers.get(partition);
+                if (buffer.size() > 0) {
+                    setIndexPath(path.trimTo(rootLen), partitionBy, partition, chunkIndex);
+                    writeIndex(path, buffer.getAddress(), buffer.size() * Long.BYTES);
+                    buffer.clear();
+                }
+            }
+            bufferedCount = 0;
+        }
+
+        private void freeBuffers() {
+            for (int i = 0, n = partitions.size(); i < n; i++) {
+                Misc.free(buffers.get(partitions.getQuick(i)));
+            }
+            buffers.clear();
+        }
+
+        void of(long lo, long hi) {
+            this.lo = lo;
+            this.hi = hi;
+            this.bufferedCount = 0;
+            this.lineCount = 0;
+            this.errorCount = 0;
+            this.partitions.clear();
+        }
+
+        void run(int chunkIndex) {
+            try {
+                long p = lo;
+                while (p < hi) {
+                    final long lineLo = p;
+                    long fieldLo = p;
+                    long tsLo = -1;
+                    long tsHi = -1;
+                    int fieldIndex = 0;
+                    boolean inQuote = false;
+                    while (p < hi) {
+                        final byte c = Unsafe.getUnsafe().getByte(p);
+                        if (inQuote) {
+                            if (c == '"') {
+                                if (p + 1 < hi && Unsafe.getUnsafe().getByte(p + 1) == '"') {
+                                    p++;
+                                } else {
+                                    inQuote = false;
+                                }
+                            }
+                        } else if (c == '"' && p == fieldLo) {
+                            inQuote = true;
+                        } else if (c == columnDelimiter) {
+                            if (fieldIndex++ == timestampIndex) {
+                                tsLo = fieldLo;
+                                tsHi = p;
+                            }
+                            fieldLo = p + 1;
+                        } else if (c == '\n') {
+                            break;
+                        }
+                        p++;
+                    }
+
+                    long lineHi = p++;
+                    if (lineHi > lineLo && Unsafe.getUnsafe().getByte(lineHi - 1) == '\r') {
+                        lineHi--;
+                    }
+                    if (lineHi == lineLo) {
+                        // empty line
+                        continue;
+                    }
+                    lineCount++;
+
+                    if (fieldIndex == timestampIndex) {
+                        tsLo = fieldLo;
+                        tsHi = lineHi;
+                    }
+                    if (tsHi - tsLo > 1 && Unsafe.getUnsafe().getByte(tsLo) == '"' && Unsafe.getUnsafe().getByte(tsHi - 1) == '"') {
+                        tsLo++;
+                        tsHi--;
+                    }
+                    if (tsLo == tsHi) {
+                        // missing timestamp, writer would reject the row too
+                        errorCount++;
+                        continue;
+                    }
+
+                    final long ts;
+                    try {
+                        ts = timestampAdapter.getTimestamp(timestamp.of(tsLo, tsHi));
+                    } catch (Exception e) {
+                        errorCount++;
+                        continue;
+                    }
+                    add(ts, lineLo - fileAddress, chunkIndex);
+                }
+                flush(chunkIndex);
+            } finally {
+                freeBuffers();
+            }
+        }
+    }
+}
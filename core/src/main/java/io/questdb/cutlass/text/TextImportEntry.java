@@ -0,0 +1,60 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.text;
+
+import io.questdb.mp.CountDownLatchSPI;
+import io.questdb.std.AbstractLockable;
+
+/**
+ * Unit of work of {@link ParallelTextImporter}: either a chunk of text file to index or
+ * a partition to sort. Entry is executed exactly once, by a worker or by the importing thread,
+ * whichever locks it first.
+ */
+public class TextImportEntry extends AbstractLockable {
+    private ParallelTextImporter importer;
+    private int phase;
+    private int index;
+    private CountDownLatchSPI doneLatch;
+
+    public boolean run() {
+        if (tryLock()) {
+            try {
+                importer.runTask(phase, index);
+            } finally {
+                doneLatch.countDown();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    void of(int sequence, ParallelTextImporter importer, int phase, int index, CountDownLatchSPI doneLatch) {
+        of(sequence);
+        this.importer = importer;
+        this.phase = phase;
+        this.index = index;
+        this.doneLatch = doneLatch;
+    }
+}
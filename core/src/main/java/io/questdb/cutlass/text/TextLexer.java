@@ -212,6 +212,10 @@ public class TextLexer implements Closeable, Mutable {
         }
     }
 
+    byte getColumnDelimiter() {
+        return columnDelimiter;
+    }
+
     ObjList<CharSequence> getColumnNames() {
         return metadataDetector.getColumnNames();
     }
@@ -30,6 +30,7 @@ import io.questdb.cairo.PartitionBy;
 import io.questdb.cairo.sql.RecordMetadata;
 import io.questdb.cutlass.json.JsonException;
 import io.questdb.cutlass.json.JsonLexer;
+import io.questdb.cutlass.text.types.TimestampAdapter;
 import io.questdb.cutlass.text.types.TypeManager;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
@@ -175,6 +176,22 @@ public class TextLoader implements Closeable, Mutable {
         return textWriter.getWrittenLineCount();
     }
 
+    byte getDetectedColumnDelimiter() {
+        return textLexer.getColumnDelimiter();
+    }
+
+    TimestampAdapter getTimestampAdapter() {
+        return textWriter.getTimestampAdapter();
+    }
+
+    int getTimestampIndex() {
+        return textWriter.getTimestampIndex();
+    }
+
+    boolean isHeaderDetected() {
+        return textLexer.isHeaderDetected();
+    }
+
     public boolean isForceHeaders() {
         return forceHeaders;
     }
@@ -191,6 +208,29 @@ public class TextLoader implements Closeable, Mutable {
         parseMethods.getQuick(state).parse(lo, hi, cairoSecurityContext);
     }
 
+    /**
+     * Detects structure of text in the buffer and creates or opens destination table without
+     * loading any data. Loader is switched to LOAD_DATA state and expects text from
+     * the start of the buffer, header line, when detected, is skipped by the lexer.
+     */
+    public void prepareTable(long lo, long hi, CairoSecurityContext cairoSecurityContext) throws TextException {
+        if (columnDelimiter > 0) {
+            textLexer.of(columnDelimiter);
+        } else {
+            textLexer.of(textDelimiterScanner.scan(lo, hi));
+        }
+        textLexer.analyseStructure(
+                lo,
+                hi,
+                textAnalysisMaxLines,
+                forceHeaders,
+                textMetadataParser.getColumnNames(),
+                textMetadataParser.getColumnTypes()
+        );
+        textWriter.prepareTable(cairoSecurityContext, textLexer.getColumnNames(), textLexer.getColumnTypes());
+        state = LOAD_DATA;
+    }
+
     public void setState(int state) {
         LOG.debug().$("state change [old=").$(this.state).$(", new=").$(state).$(']').$();
         this.state = state;
@@ -229,22 +269,8 @@ public class TextLoader implements Closeable, Mutable {
     }
 
     private void parseStructure(long lo, long hi, CairoSecurityContext cairoSecurityContext) throws TextException {
-        if (columnDelimiter > 0) {
-            textLexer.of(columnDelimiter);
-        } else {
-            textLexer.of(textDelimiterScanner.scan(lo, hi));
-        }
-        textLexer.analyseStructure(
-                lo,
-                hi,
-                textAnalysisMaxLines,
-                forceHeaders,
-                textMetadataParser.getColumnNames(),
-                textMetadataParser.getColumnTypes()
-        );
-        textWriter.prepareTable(cairoSecurityContext, textLexer.getColumnNames(), textLexer.getColumnTypes());
+        prepareTable(lo, hi, cairoSecurityContext);
         textLexer.parse(lo, hi, Integer.MAX_VALUE, textWriter.getTextListener());
-        state = LOAD_DATA;
     }
 
     @FunctionalInterface
@@ -59,6 +59,7 @@ public interface CompiledQuery {
     short CREATE_TABLE_AS_SELECT = 21;
     short SNAPSHOT_DB_PREPARE = 22;
     short SNAPSHOT_DB_COMPLETE = 23;
+    short REFRESH_MAT_VIEW = 24;
 
     RecordCursorFactory getRecordCursorFactory();
 
@@ -249,4 +249,8 @@ public class CompiledQueryImpl implements CompiledQuery {
     CompiledQuery ofSnapshotComplete() {
         return of(SNAPSHOT_DB_COMPLETE);
     }
+
+    CompiledQuery ofRefreshMatView() {
+        return of(REFRESH_MAT_VIEW);
+    }
 }
@@ -70,6 +70,15 @@ public interface FunctionFactory {
         return false;
     }
 
+    /**
+     * @return true when the factory produces {@link io.questdb.griffin.engine.analytic.AnalyticFunction}. Analytic
+     * factories are only looked up for expressions followed by OVER clause, so that they can share names with
+     * group-by functions, such as sum() or max().
+     */
+    default boolean isAnalytic() {
+        return false;
+    }
+
     default boolean isCursor() {
         return false;
     }
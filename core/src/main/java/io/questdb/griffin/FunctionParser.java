@@ -71,6 +71,7 @@ public class FunctionParser implements PostOrderTreeTraversalAlgo.Visitor, Mutab
     private final IntList undefinedVariables = new IntList();
     private final Long256Impl long256Sink = new Long256Impl();
     private RecordMetadata metadata;
+    private ExpressionNode analyticNode;
     private SqlCodeGenerator sqlCodeGenerator;
     private SqlExecutionContext sqlExecutionContext;
 
@@ -272,6 +273,31 @@ public class FunctionParser implements PostOrderTreeTraversalAlgo.Visitor, Mutab
         }
     }
 
+    /**
+     * Creates analytic function for the expression followed by OVER clause. The top level
+     * function of the expression is resolved among analytic function factories while
+     * its arguments are parsed the usual way.
+     *
+     * @param node             expression tree of the analytic column
+     * @param metadata         metadata of the records analytic function and its arguments will be evaluated over
+     * @param executionContext execution context with configured analytic context
+     * @return analytic function instance
+     * @throws SqlException when function cannot be created
+     */
+    public Function parseAnalyticFunction(
+            ExpressionNode node,
+            RecordMetadata metadata,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final ExpressionNode prevAnalyticNode = analyticNode;
+        analyticNode = node;
+        try {
+            return parseFunction(node, metadata, executionContext);
+        } finally {
+            analyticNode = prevAnalyticNode;
+        }
+    }
+
     public void setSqlCodeGenerator(SqlCodeGenerator sqlCodeGenerator) {
         this.sqlCodeGenerator = sqlCodeGenerator;
     }
@@ -523,7 +549,9 @@ public class FunctionParser implements PostOrderTreeTraversalAlgo.Visitor, Mutab
             @Transient ObjList<Function> args,
             @Transient IntList argPositions
     ) throws SqlException {
-        final ObjList<FunctionFactoryDescriptor> overload = functionFactoryCache.getOverloadList(node.token);
+        final ObjList<FunctionFactoryDescriptor> overload = node == analyticNode
+                ? functionFactoryCache.getAnalyticOverloadList(node.token)
+                : functionFactoryCache.getOverloadList(node.token);
         if (overload == null) {
             throw invalidFunction(node, args);
         }
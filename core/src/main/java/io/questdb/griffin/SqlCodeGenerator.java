@@ -29,7 +29,6 @@ import io.questdb.cairo.map.RecordValueSink;
 import io.questdb.cairo.map.RecordValueSinkFactory;
 import io.questdb.cairo.sql.*;
 import io.questdb.cairo.sql.Record;
-import io.questdb.cairo.sql.async.PageFrameReduceTask;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryCARW;
 import io.questdb.griffin.engine.EmptyTableRecordCursorFactory;
@@ -37,6 +36,7 @@ import io.questdb.griffin.engine.LimitOverflowException;
 import io.questdb.griffin.engine.LimitRecordCursorFactory;
 import io.questdb.griffin.engine.RecordComparator;
 import io.questdb.griffin.engine.analytic.AnalyticFunction;
+import io.questdb.griffin.engine.analytic.AnalyticRecordCursorFactory;
 import io.questdb.griffin.engine.analytic.CachedAnalyticRecordCursorFactory;
 import io.questdb.griffin.engine.functions.GroupByFunction;
 import io.questdb.griffin.engine.functions.SymbolFunction;
@@ -104,6 +104,7 @@ public class SqlCodeGenerator implements Mutable, Closeable {
     private final IntHashSet intHashSet = new IntHashSet();
     private final ArrayColumnTypes keyTypes = new ArrayColumnTypes();
     private final ArrayColumnTypes valueTypes = new ArrayColumnTypes();
+    private final ArrayColumnTypes tempValueTypes = new ArrayColumnTypes();
     private final EntityColumnFilter entityColumnFilter = new EntityColumnFilter();
     private final ObjList<VectorAggregateFunction> tempVaf = new ObjList<>();
     private final GenericRecordMetadata tempMetadata = new GenericRecordMetadata();
@@ -118,9 +119,11 @@ public class SqlCodeGenerator implements Mutable, Closeable {
     private final ObjObjHashMap<IntList, ObjList<AnalyticFunction>> groupedAnalytic = new ObjObjHashMap<>();
     private final IntList recordFunctionPositions = new IntList();
     private final IntList groupByFunctionPositions = new IntList();
+    private final IntList tempGroupByFunctionPositions = new IntList();
     private final LongList prefixes = new LongList();
+    // tables read by generated query, in order of appearance
+    private final ObjList<String> tableNames = new ObjList<>();
     private final ObjectPool<ExpressionNode> expressionNodePool;
-    private final WeakClosableObjectPool<PageFrameReduceTask> reduceTaskPool;
     private boolean enableJitNullChecks = true;
     private boolean fullFatJoins = false;
 
@@ -141,21 +144,24 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         jitIRMem.putByte((byte) 0);
         jitIRMem.truncate();
         this.expressionNodePool = expressionNodePool;
-        this.reduceTaskPool = new WeakClosableObjectPool<>(
-                () -> new PageFrameReduceTask(configuration),
-                configuration.getPageFrameReduceTaskPoolCapacity()
-        );
     }
 
     @Override
     public void clear() {
         whereClauseParser.clear();
+        tableNames.clear();
     }
 
     @Override
     public void close() {
         Misc.free(jitIRMem);
-        Misc.free(reduceTaskPool);
+    }
+
+    /**
+     * @return names of tables read by queries generated since the last {@link #clear()}
+     */
+    public ObjList<String> getTableNames() {
+        return tableNames;
     }
 
     @NotNull
@@ -179,8 +185,9 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                                              RecordSink slaveKeySink,
                                                              int columnSplit,
                                                              RecordValueSink slaveValueSink,
-                                                             IntList columnIndex) {
-        return new AsOfJoinRecordCursorFactory(configuration, metadata, masterFactory, slaveFactory, mapKeyTypes, mapValueTypes, slaveColumnTypes, masterKeySink, slaveKeySink, columnSplit, slaveValueSink, columnIndex);
+                                                             IntList columnIndex,
+                                                             long toleranceInterval) {
+        return new AsOfJoinRecordCursorFactory(configuration, metadata, masterFactory, slaveFactory, mapKeyTypes, mapValueTypes, slaveColumnTypes, masterKeySink, slaveKeySink, columnSplit, slaveValueSink, columnIndex, toleranceInterval);
     }
 
     private static RecordCursorFactory createFullFatLtJoin(CairoConfiguration configuration,
@@ -194,7 +201,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                                            RecordSink slaveKeySink,
                                                            int columnSplit,
                                                            RecordValueSink slaveValueSink,
-                                                           IntList columnIndex) {
+                                                           IntList columnIndex,
+                                                           long toleranceInterval) {
         return new LtJoinRecordCursorFactory(configuration, metadata, masterFactory, slaveFactory, mapKeyTypes, mapValueTypes, slaveColumnTypes, masterKeySink, slaveKeySink, columnSplit, slaveValueSink, columnIndex);
     }
 
@@ -228,6 +236,15 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         return true;
     }
 
+    private static boolean hasLinearFill(ObjList<ExpressionNode> sampleByFill) {
+        for (int i = 0, n = sampleByFill.size(); i < n; i++) {
+            if (isLinearKeyword(sampleByFill.getQuick(i).token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private VectorAggregateFunctionConstructor assembleFunctionReference(RecordMetadata metadata, ExpressionNode ast) {
         int columnIndex;
         if (ast.type == FUNCTION && ast.paramCount == 1 && SqlKeywords.isSumKeyword(ast.token) && ast.rhs.type == LITERAL) {
@@ -349,7 +366,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
             RecordSink masterKeySink,
             RecordCursorFactory slave,
             RecordSink slaveKeySink,
-            int columnSplit
+            int columnSplit,
+            long toleranceInterval
     ) {
         valueTypes.clear();
         valueTypes.add(ColumnType.LONG);
@@ -364,7 +382,43 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 valueTypes,
                 masterKeySink,
                 slaveKeySink,
-                columnSplit
+                columnSplit,
+                toleranceInterval
+        );
+    }
+
+    private RecordCursorFactory createAsyncAsOfJoin(
+            RecordMetadata metadata,
+            RecordCursorFactory master,
+            RecordMetadata masterMetadata,
+            RecordCursorFactory slave,
+            RecordMetadata slaveMetadata,
+            long toleranceInterval,
+            SqlExecutionContext executionContext
+    ) {
+        RecordSink masterKeySink = null;
+        RecordSink slaveKeySink = null;
+        if (listColumnFilterA.size() > 0 && listColumnFilterB.size() > 0) {
+            masterKeySink = RecordSinkFactory.getInstance(asm, masterMetadata, listColumnFilterB, true);
+            slaveKeySink = RecordSinkFactory.getInstance(asm, slaveMetadata, listColumnFilterA, true);
+        }
+
+        valueTypes.clear();
+        valueTypes.add(ColumnType.INT);
+
+        return new AsyncAsOfJoinRecordCursorFactory(
+                configuration,
+                executionContext.getMessageBus(),
+                metadata,
+                master,
+                slave,
+                keyTypes,
+                valueTypes,
+                masterKeySink,
+                slaveKeySink,
+                masterMetadata.getColumnCount(),
+                toleranceInterval,
+                executionContext.getWorkerCount()
         );
     }
 
@@ -377,6 +431,7 @@ public class SqlCodeGenerator implements Mutable, Closeable {
             RecordMetadata slaveMetadata,
             CharSequence slaveAlias,
             int joinPosition,
+            long toleranceInterval,
             FullFatJoinGenerator generator) throws SqlException {
 
         // create hash set of key columns to easily find them
@@ -529,7 +584,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 ),
                 masterMetadata.getColumnCount(),
                 RecordValueSinkFactory.getInstance(asm, slaveMetadata, listColumnFilterB),
-                columnIndex
+                columnIndex,
+                toleranceInterval
         );
     }
 
@@ -537,7 +593,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
             RecordMetadata metadata,
             RecordCursorFactory master,
             RecordCursorFactory slave,
-            int joinType
+            int joinType,
+            SqlExecutionContext executionContext
     ) {
         /*
          * JoinContext provides the following information:
@@ -572,6 +629,22 @@ public class SqlCodeGenerator implements Mutable, Closeable {
 
         if (slave.recordCursorSupportsRandomAccess() && !fullFatJoins) {
             if (joinType == JOIN_INNER) {
+                if (configuration.isSqlParallelHashJoinEnabled() && master.supportPageFrameCursor()) {
+                    return new AsyncHashJoinRecordCursorFactory(
+                            configuration,
+                            executionContext.getMessageBus(),
+                            metadata,
+                            master,
+                            slave,
+                            keyTypes,
+                            valueTypes,
+                            masterKeySink,
+                            slaveKeySink,
+                            null,
+                            masterMetadata.getColumnCount(),
+                            executionContext.getWorkerCount()
+                    );
+                }
                 return new HashJoinLightRecordCursorFactory(
                         configuration,
                         metadata,
@@ -607,6 +680,22 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         );
 
         if (joinType == JOIN_INNER) {
+            if (configuration.isSqlParallelHashJoinEnabled() && master.supportPageFrameCursor()) {
+                return new AsyncHashJoinRecordCursorFactory(
+                        configuration,
+                        executionContext.getMessageBus(),
+                        metadata,
+                        master,
+                        slave,
+                        keyTypes,
+                        valueTypes,
+                        masterKeySink,
+                        slaveKeySink,
+                        slaveSink,
+                        masterMetadata.getColumnCount(),
+                        executionContext.getWorkerCount()
+                );
+            }
             return new HashJoinRecordCursorFactory(
                     configuration,
                     metadata,
@@ -674,6 +763,51 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         return metadata;
     }
 
+    private RecordCursorFactory createLatestByAllSymbols(
+            RecordMetadata metadata,
+            DataFrameCursorFactory dataFrameCursorFactory,
+            int latestByIndex,
+            @Nullable Function filter,
+            @Nullable ExpressionNode filterExpr,
+            IntList columnIndexes,
+            IntList columnSizes,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        if (configuration.isSqlParallelLatestByEnabled() && metadata.isSymbolTableStatic(latestByIndex)) {
+            final ObjList<Function> perWorkerFilters = filter != null
+                    ? preparePerWorkerFilters(metadata, executionContext, filterExpr, filter)
+                    : null;
+            return new AsyncLatestByRecordCursorFactory(
+                    configuration,
+                    executionContext.getMessageBus(),
+                    new DataFrameRecordCursorFactory(
+                            configuration,
+                            metadata,
+                            dataFrameCursorFactory,
+                            new DataFrameRowCursorFactory(),
+                            false,
+                            null,
+                            true,
+                            columnIndexes,
+                            columnSizes,
+                            true
+                    ),
+                    latestByIndex,
+                    filter,
+                    perWorkerFilters
+            );
+        }
+
+        return new LatestByDeferredListValuesFilteredRecordCursorFactory(
+                configuration,
+                metadata,
+                dataFrameCursorFactory,
+                latestByIndex,
+                filter,
+                columnIndexes
+        );
+    }
+
     private RecordCursorFactory createLtJoin(
             RecordMetadata metadata,
             RecordCursorFactory master,
@@ -726,6 +860,113 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         );
     }
 
+    private RecordCursorFactory createWindowJoin(
+            RecordMetadata metadata,
+            RecordCursorFactory master,
+            RecordMetadata masterMetadata,
+            RecordCursorFactory slave,
+            RecordMetadata slaveMetadata,
+            long lo,
+            long hi
+    ) {
+        if (listColumnFilterA.size() > 0 && listColumnFilterB.size() > 0) {
+            valueTypes.clear();
+            valueTypes.add(ColumnType.INT);
+
+            return new WindowJoinRecordCursorFactory(
+                    configuration,
+                    metadata,
+                    master,
+                    slave,
+                    keyTypes,
+                    valueTypes,
+                    RecordSinkFactory.getInstance(asm, masterMetadata, listColumnFilterB, true),
+                    RecordSinkFactory.getInstance(asm, slaveMetadata, listColumnFilterA, true),
+                    masterMetadata.getColumnCount(),
+                    lo,
+                    hi
+            );
+        }
+
+        return new WindowJoinRecordCursorFactory(
+                configuration,
+                metadata,
+                master,
+                slave,
+                null,
+                null,
+                null,
+                null,
+                masterMetadata.getColumnCount(),
+                lo,
+                hi
+        );
+    }
+
+    /**
+     * Aggregates over WINDOW JOIN keyed on master columns are computed for every master
+     * row straight from the sliding window, instead of grouping joined pairs by value.
+     *
+     * @return window join group-by factory or null when base is not a window join
+     * or some of the keys do not come from master table
+     */
+    @Nullable
+    private RecordCursorFactory createWindowJoinGroupBy(
+            QueryModel model,
+            RecordCursorFactory base,
+            GenericRecordMetadata groupByMetadata,
+            ObjList<GroupByFunction> groupByFunctions,
+            ObjList<Function> recordFunctions,
+            int valueCount
+    ) {
+        IntList columnCrossIndex = null;
+        RecordCursorFactory windowJoin = base;
+        if (base instanceof SelectedRecordCursorFactory) {
+            columnCrossIndex = ((SelectedRecordCursorFactory) base).getColumnCrossIndex();
+            windowJoin = base.getBaseFactory();
+        }
+        if (!(windowJoin instanceof WindowJoinRecordCursorFactory)) {
+            return null;
+        }
+
+        final RecordMetadata masterMetadata = ((WindowJoinRecordCursorFactory) windowJoin).getMasterFactory().getMetadata();
+        final RecordMetadata baseMetadata = base.getMetadata();
+        final IntList keyColumnIndexes = new IntList(listColumnFilterA.size());
+        for (int i = 0, n = listColumnFilterA.size(); i < n; i++) {
+            final int index = listColumnFilterA.getColumnIndexFactored(i);
+            final int joinIndex = columnCrossIndex != null ? columnCrossIndex.getQuick(index) : index;
+            if (joinIndex >= masterMetadata.getColumnCount()) {
+                return null;
+            }
+            keyColumnIndexes.add(index);
+        }
+
+        // master row order is preserved, so is master timestamp
+        final ObjList<QueryColumn> columns = model.getColumns();
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final ExpressionNode node = columns.getQuick(i).getAst();
+            if (node.type == LITERAL) {
+                final int index = baseMetadata.getColumnIndexQuiet(node.token);
+                final int joinIndex = columnCrossIndex != null ? columnCrossIndex.getQuick(index) : index;
+                if (joinIndex == masterMetadata.getTimestampIndex()) {
+                    groupByMetadata.setTimestampIndex(i);
+                    break;
+                }
+            }
+        }
+
+        return new WindowJoinGroupByRecordCursorFactory(
+                base,
+                (WindowJoinRecordCursorFactory) windowJoin,
+                columnCrossIndex,
+                groupByMetadata,
+                groupByFunctions,
+                recordFunctions,
+                keyColumnIndexes,
+                valueCount
+        );
+    }
+
     public RecordCursorFactory generate(QueryModel model, SqlExecutionContext executionContext) throws SqlException {
         return generateQuery(model, executionContext, true);
     }
@@ -755,6 +996,13 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         final boolean enableParallelFilter = configuration.isSqlParallelFilterEnabled();
         if (enableParallelFilter && factory.supportPageFrameCursor()) {
             ObjList<Function> perWorkerFilters = preparePerWorkerFilters(factory.getMetadata(), executionContext, filter, f);
+            if (configuration.getZoneMapBlockSize() > 0) {
+                final boolean rawNulls = executionContext.getJitMode() != SqlJitMode.JIT_MODE_DISABLED && !enableJitNullChecks;
+                final ZoneMapFilter zoneMapFilter = compileZoneMapFilter(factory.getMetadata(), executionContext, filter, rawNulls);
+                if (zoneMapFilter != null && !factory.setZoneMapFilter(zoneMapFilter)) {
+                    Misc.free(zoneMapFilter);
+                }
+            }
 
             final boolean useJit = executionContext.getJitMode() != SqlJitMode.JIT_MODE_DISABLED;
             if (useJit) {
@@ -786,7 +1034,6 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                 f,
                                 perWorkerFilters,
                                 jitFilter,
-                                reduceTaskPool,
                                 limitLoFunction,
                                 limitLoPos
                         );
@@ -810,7 +1057,6 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                     executionContext.getMessageBus(),
                     factory,
                     f,
-                    reduceTaskPool,
                     perWorkerFilters,
                     limitLoFunction,
                     limitLoPos
@@ -819,6 +1065,101 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         return new FilteredRecordCursorFactory(factory, f);
     }
 
+    private void compileZoneMapPredicates(
+            RecordMetadata metadata,
+            SqlExecutionContext executionContext,
+            ExpressionNode node,
+            ZoneMapFilter zoneMapFilter
+    ) {
+        if (node.type != ExpressionNode.OPERATION || node.paramCount != 2) {
+            return;
+        }
+        if (isAndKeyword(node.token)) {
+            compileZoneMapPredicates(metadata, executionContext, node.lhs, zoneMapFilter);
+            compileZoneMapPredicates(metadata, executionContext, node.rhs, zoneMapFilter);
+            return;
+        }
+
+        int op;
+        if (Chars.equals(node.token, '=')) {
+            op = ZoneMapFilter.OP_EQ;
+        } else if (Chars.equals(node.token, '<')) {
+            op = ZoneMapFilter.OP_LT;
+        } else if (Chars.equals(node.token, "<=")) {
+            op = ZoneMapFilter.OP_LE;
+        } else if (Chars.equals(node.token, '>')) {
+            op = ZoneMapFilter.OP_GT;
+        } else if (Chars.equals(node.token, ">=")) {
+            op = ZoneMapFilter.OP_GE;
+        } else {
+            return;
+        }
+
+        ExpressionNode column = node.lhs;
+        ExpressionNode constant = node.rhs;
+        if (column.type != LITERAL) {
+            column = node.rhs;
+            constant = node.lhs;
+            if (column.type != LITERAL) {
+                return;
+            }
+            // constant is on the left, mirror the comparison
+            switch (op) {
+                case ZoneMapFilter.OP_LT:
+                    op = ZoneMapFilter.OP_GT;
+                    break;
+                case ZoneMapFilter.OP_LE:
+                    op = ZoneMapFilter.OP_GE;
+                    break;
+                case ZoneMapFilter.OP_GT:
+                    op = ZoneMapFilter.OP_LT;
+                    break;
+                case ZoneMapFilter.OP_GE:
+                    op = ZoneMapFilter.OP_LE;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        final int columnIndex = metadata.getColumnIndexQuiet(column.token);
+        if (columnIndex < 0 || columnIndex == metadata.getTimestampIndex()) {
+            // designated timestamp is filtered by intervals
+            return;
+        }
+        final int columnType = metadata.getColumnType(columnIndex);
+        if (!ZoneMaps.isSupported(columnType)) {
+            return;
+        }
+
+        final Function function;
+        try {
+            function = functionParser.parseFunction(constant, metadata, executionContext);
+        } catch (SqlException e) {
+            return;
+        }
+        if ((function.isConstant() || function.isRuntimeConstant()) && ZoneMapFilter.isSupported(columnType, function.getType())) {
+            zoneMapFilter.add(columnIndex, columnType, op, function);
+        } else {
+            function.close();
+        }
+    }
+
+    private ZoneMapFilter compileZoneMapFilter(
+            RecordMetadata metadata,
+            SqlExecutionContext executionContext,
+            ExpressionNode filter,
+            boolean rawNulls
+    ) {
+        final ZoneMapFilter zoneMapFilter = new ZoneMapFilter(rawNulls);
+        compileZoneMapPredicates(metadata, executionContext, filter, zoneMapFilter);
+        if (zoneMapFilter.size() > 0) {
+            return zoneMapFilter;
+        }
+        zoneMapFilter.close();
+        return null;
+    }
+
     private ObjList<Function> preparePerWorkerFilters(
             RecordMetadata metadata,
             SqlExecutionContext executionContext,
@@ -836,6 +1177,43 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         return null;
     }
 
+    private ObjList<ObjList<GroupByFunction>> preparePerWorkerGroupByFunctions(
+            QueryModel model,
+            RecordMetadata metadata,
+            SqlExecutionContext executionContext,
+            boolean sampleBy
+    ) throws SqlException {
+        final int workerCount = executionContext.getWorkerCount();
+        final ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions = new ObjList<>(workerCount);
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                final ObjList<GroupByFunction> workerGroupByFunctions = new ObjList<>(model.getColumns().size());
+                perWorkerGroupByFunctions.extendAndSet(i, workerGroupByFunctions);
+                // value types have been captured already, worker copies produce an identical layout
+                tempValueTypes.clear();
+                if (sampleBy) {
+                    // sample by reserves the first value for timestamp
+                    tempValueTypes.add(ColumnType.TIMESTAMP);
+                }
+                GroupByUtils.prepareGroupByFunctions(
+                        model,
+                        metadata,
+                        functionParser,
+                        executionContext,
+                        workerGroupByFunctions,
+                        tempGroupByFunctionPositions,
+                        tempValueTypes
+                );
+            }
+        } catch (Throwable e) {
+            for (int i = 0, n = perWorkerGroupByFunctions.size(); i < n; i++) {
+                Misc.freeObjList(perWorkerGroupByFunctions.getQuick(i));
+            }
+            throw e;
+        }
+        return perWorkerGroupByFunctions;
+    }
+
     private RecordCursorFactory generateFunctionQuery(QueryModel model) throws SqlException {
         final Function function = model.getTableNameFunction();
         assert function != null;
@@ -901,8 +1279,23 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                             case JOIN_ASOF:
                                 validateBothTimestamps(slaveModel, masterMetadata, slaveMetadata);
                                 processJoinContext(index == 1, slaveModel.getContext(), masterMetadata, slaveMetadata);
+                                final long asOfJoinTolerance = slaveModel.getAsOfJoinTolerance();
                                 if (slave.recordCursorSupportsRandomAccess() && !fullFatJoins) {
-                                    if (listColumnFilterA.size() > 0 && listColumnFilterB.size() > 0) {
+                                    if (
+                                            asOfJoinTolerance != Long.MAX_VALUE
+                                                    && configuration.isSqlParallelAsOfJoinEnabled()
+                                                    && master.supportPageFrameCursor()
+                                    ) {
+                                        master = createAsyncAsOfJoin(
+                                                createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
+                                                master,
+                                                masterMetadata,
+                                                slave,
+                                                slaveMetadata,
+                                                asOfJoinTolerance,
+                                                executionContext
+                                        );
+                                    } else if (listColumnFilterA.size() > 0 && listColumnFilterB.size() > 0) {
                                         master = createAsOfJoin(
                                                 createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
                                                 master,
@@ -919,14 +1312,16 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                                         listColumnFilterA,
                                                         true
                                                 ),
-                                                masterMetadata.getColumnCount()
+                                                masterMetadata.getColumnCount(),
+                                                asOfJoinTolerance
                                         );
                                     } else {
                                         master = new AsOfJoinNoKeyRecordCursorFactory(
                                                 createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
                                                 master,
                                                 slave,
-                                                masterMetadata.getColumnCount()
+                                                masterMetadata.getColumnCount(),
+                                                asOfJoinTolerance
                                         );
                                     }
                                 } else {
@@ -938,6 +1333,7 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                             slaveMetadata,
                                             slaveModel.getName(),
                                             slaveModel.getJoinKeywordPosition(),
+                                            asOfJoinTolerance,
                                             CREATE_FULL_FAT_AS_OF_JOIN
                                     );
                                 }
@@ -984,6 +1380,7 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                             slaveMetadata,
                                             slaveModel.getName(),
                                             slaveModel.getJoinKeywordPosition(),
+                                            Long.MAX_VALUE,
                                             CREATE_FULL_FAT_LT_JOIN
                                     );
                                 }
@@ -1018,13 +1415,32 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                     assert false;
                                 }
                                 break;
+                            case JOIN_WINDOW:
+                                validateBothTimestamps(slaveModel, masterMetadata, slaveMetadata);
+                                processJoinContext(index == 1, slaveModel.getContext(), masterMetadata, slaveMetadata);
+                                if (!slave.recordCursorSupportsRandomAccess()) {
+                                    throw SqlException.$(slaveModel.getJoinKeywordPosition(), "right side of window join must support random access");
+                                }
+                                master = createWindowJoin(
+                                        createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
+                                        master,
+                                        masterMetadata,
+                                        slave,
+                                        slaveMetadata,
+                                        slaveModel.getWindowJoinLo(),
+                                        slaveModel.getWindowJoinHi()
+                                );
+                                masterAlias = null;
+                                validateBothTimestampOrders(master, slave, slaveModel.getJoinKeywordPosition());
+                                break;
                             default:
                                 processJoinContext(index == 1, slaveModel.getContext(), masterMetadata, slaveMetadata);
                                 master = createHashJoin(
                                         createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
                                         master,
                                         slave,
-                                        joinType
+                                        joinType,
+                                        executionContext
                                 );
                                 masterAlias = null;
                                 break;
@@ -1049,7 +1465,6 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                 executionContext.getMessageBus(),
                                 master,
                                 f,
-                                reduceTaskPool,
                                 perWorkerFilters,
                                 null,
                                 0
@@ -1335,13 +1750,15 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                     prefixes
             );
         } else {
-            return new LatestByDeferredListValuesFilteredRecordCursorFactory(
-                    configuration,
+            return createLatestByAllSymbols(
                     metadata,
                     dataFrameCursorFactory,
                     latestByIndex,
                     filter,
-                    columnIndexes
+                    intrinsicModel.filter,
+                    columnIndexes,
+                    columnSizes,
+                    executionContext
             );
         }
     }
@@ -1472,6 +1889,7 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                 orderedMetadata,
                                 recordCursorFactory,
                                 recordComparatorCompiler.compile(metadata, listColumnFilterA),
+                                listColumnFilterA,
                                 loFunc,
                                 hiFunc
                         );
@@ -1480,7 +1898,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                 configuration,
                                 orderedMetadata,
                                 recordCursorFactory,
-                                recordComparatorCompiler.compile(metadata, listColumnFilterA)
+                                recordComparatorCompiler.compile(metadata, listColumnFilterA),
+                                listColumnFilterA
                         );
                     }
                 }
@@ -1499,7 +1918,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                                 entityColumnFilter,
                                 false
                         ),
-                        recordComparatorCompiler.compile(metadata, listColumnFilterA)
+                        recordComparatorCompiler.compile(metadata, listColumnFilterA),
+                        listColumnFilterA
                 );
             }
 
@@ -1690,6 +2110,58 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                     }
                 }
 
+                if (
+                        configuration.isSqlParallelSampleByEnabled()
+                                && timezoneName == null
+                                && timestampSampler.isFixedBucketSize()
+                                && factory.supportPageFrameCursor()
+                                && GroupByUtils.isParallelismSupported(groupByFunctions)
+                                && !hasLinearFill(sampleByFill)
+                ) {
+                    final ObjList<Function> fillFunctions;
+                    final ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions;
+                    try {
+                        if (isFillNone) {
+                            fillFunctions = null;
+                        } else if (fillCount == 1 && Chars.equalsLowerCaseAscii(sampleByFill.getQuick(0).token, "prev")) {
+                            // group-by functions read aggregates of the previous bucket
+                            fillFunctions = new ObjList<>(recordFunctions);
+                        } else if (fillCount == 1 && isNullKeyword(sampleByFill.getQuick(0).token)) {
+                            fillFunctions = SampleByFillNullRecordCursorFactory.createPlaceholderFunctions(recordFunctions, recordFunctionPositions);
+                        } else {
+                            fillFunctions = SampleByFillValueRecordCursorFactory.createPlaceholderFunctions(
+                                    groupByFunctions,
+                                    recordFunctions,
+                                    recordFunctionPositions,
+                                    sampleByFill,
+                                    false
+                            );
+                        }
+                        perWorkerGroupByFunctions = preparePerWorkerGroupByFunctions(model, metadata, executionContext, true);
+                    } catch (Throwable e) {
+                        Misc.freeObjList(recordFunctions);
+                        throw e;
+                    }
+                    return new AsyncSampleByRecordCursorFactory(
+                            configuration,
+                            executionContext.getMessageBus(),
+                            factory,
+                            timestampSampler,
+                            listColumnFilterA,
+                            asm,
+                            keyTypes,
+                            valueTypes,
+                            groupByMetadata,
+                            groupByFunctions,
+                            perWorkerGroupByFunctions,
+                            recordFunctions,
+                            fillFunctions,
+                            timestampIndex,
+                            offsetFunc,
+                            offsetFuncPos
+                    );
+                }
+
                 if (fillCount == 1 && Chars.equalsLowerCaseAscii(sampleByFill.getQuick(0).token, "prev")) {
                     if (keyTypes.getColumnCount() == 0) {
                         return new SampleByFillPrevNotKeyedRecordCursorFactory(
@@ -1881,6 +2353,14 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         final RecordMetadata baseMetadata = base.getMetadata();
         final ObjList<QueryColumn> columns = model.getColumns();
         final int columnCount = columns.size();
+
+        if (isAnalyticStreamable(columns, base)) {
+            final RecordCursorFactory factory = generateSelectAnalyticStreaming(columns, base, executionContext);
+            if (factory != null) {
+                return factory;
+            }
+        }
+
         groupedAnalytic.clear();
         ObjList<AnalyticFunction> naturalOrderFunctions = null;
 
@@ -1946,59 +2426,11 @@ public class SqlCodeGenerator implements Mutable, Closeable {
             if (qc instanceof AnalyticColumn) {
                 final AnalyticColumn ac = (AnalyticColumn) qc;
                 final ExpressionNode ast = qc.getAst();
-                if (ast.paramCount > 1) {
-                    throw SqlException.$(ast.position, "Too many arguments");
-                }
-
-                ObjList<Function> partitionBy = null;
-                int psz = ac.getPartitionBy().size();
-                if (psz > 0) {
-                    partitionBy = new ObjList<>(psz);
-                    for (int j = 0; j < psz; j++) {
-                        partitionBy.add(
-                                functionParser.parseFunction(ac.getPartitionBy().getQuick(j), chainMetadata, executionContext)
-                        );
-                    }
-                }
-
-                final VirtualRecord partitionByRecord;
-                final RecordSink partitionBySink;
-
-                if (partitionBy != null) {
-                    partitionByRecord = new VirtualRecord(partitionBy);
-                    keyTypes.clear();
-                    final int partitionByCount = partitionBy.size();
-
-                    for (int j = 0; j < partitionByCount; j++) {
-                        keyTypes.add(partitionBy.getQuick(j).getType());
-                    }
-                    entityColumnFilter.of(partitionByCount);
-                    // create sink
-                    partitionBySink = RecordSinkFactory.getInstance(
-                            asm,
-                            keyTypes,
-                            entityColumnFilter,
-                            false
-                    );
-                } else {
-                    partitionByRecord = null;
-                    partitionBySink = null;
-                }
-
-
+                prepareAnalyticContext(ac, chainMetadata, base.recordCursorSupportsRandomAccess(), executionContext);
                 final int osz = ac.getOrderBy().size();
-                executionContext.configureAnalyticContext(
-                        partitionByRecord,
-                        partitionBySink,
-                        keyTypes,
-                        osz > 0,
-                        base.recordCursorSupportsRandomAccess()
-                );
 
-                final Function f = functionParser.parseFunction(ac.getAst(), baseMetadata, executionContext);
-                // todo: throw an error when non-analytic function is called in analytic context
-                assert f instanceof AnalyticFunction;
-                AnalyticFunction analyticFunction = (AnalyticFunction) f;
+                // functions are evaluated over chain records
+                final AnalyticFunction analyticFunction = parseAnalyticFunction(ast, chainMetadata, executionContext);
 
                 // analyze order by clause on the current model and optimise out
                 // order by on analytic function if it matches the one on the model
@@ -2072,18 +2504,80 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 listColumnFilterB
         );
 
+        // symbol columns of chain records are resolved via base cursor
+        final IntList baseColumnIndexes = new IntList(listColumnFilterB.size());
+        baseColumnIndexes.addAll(listColumnFilterB);
+
         return new CachedAnalyticRecordCursorFactory(
                 configuration,
                 base,
                 recordSink,
                 factoryMetadata,
                 chainTypes,
+                baseColumnIndexes,
                 analyticComparators,
                 functionGroups,
                 naturalOrderFunctions
         );
     }
 
+    private RecordCursorFactory generateSelectAnalyticStreaming(
+            ObjList<QueryColumn> columns,
+            RecordCursorFactory base,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final RecordMetadata baseMetadata = base.getMetadata();
+        final GenericRecordMetadata metadata = new GenericRecordMetadata();
+        final ObjList<Function> functions = new ObjList<>(columns.size());
+        final ObjList<AnalyticFunction> analyticFunctions = new ObjList<>();
+        try {
+            for (int i = 0, n = columns.size(); i < n; i++) {
+                final QueryColumn qc = columns.getQuick(i);
+                final ExpressionNode ast = qc.getAst();
+                if (qc instanceof AnalyticColumn) {
+                    prepareAnalyticContext((AnalyticColumn) qc, baseMetadata, base.recordCursorSupportsRandomAccess(), executionContext);
+                    final AnalyticFunction analyticFunction = parseAnalyticFunction(ast, baseMetadata, executionContext);
+                    functions.add(analyticFunction);
+                    if (analyticFunction.getPassCount() != AnalyticFunction.STREAM) {
+                        // function needs to see the whole partition, fall back to the cached factory
+                        Misc.freeObjList(functions);
+                        return null;
+                    }
+                    analyticFunctions.add(analyticFunction);
+                    metadata.add(new TableColumnMetadata(
+                            Chars.toString(qc.getAlias()),
+                            0,
+                            analyticFunction.getType(),
+                            false,
+                            0,
+                            false,
+                            null
+                    ));
+                } else {
+                    final int columnIndex = baseMetadata.getColumnIndexQuiet(ast.token);
+                    functions.add(FunctionParser.createColumn(ast.position, ast.token, baseMetadata, executionContext));
+                    final TableColumnMetadata m = BaseRecordMetadata.copyOf(baseMetadata, columnIndex);
+                    metadata.add(new TableColumnMetadata(
+                            Chars.toString(qc.getAlias()),
+                            m.getHash(),
+                            m.getType(),
+                            m.isIndexed(),
+                            m.getIndexValueBlockCapacity(),
+                            m.isSymbolTableStatic(),
+                            m.getMetadata()
+                    ));
+                    if (columnIndex == baseMetadata.getTimestampIndex()) {
+                        metadata.setTimestampIndex(i);
+                    }
+                }
+            }
+            return new AnalyticRecordCursorFactory(metadata, base, functions, analyticFunctions);
+        } catch (Throwable th) {
+            Misc.freeObjList(functions);
+            throw th;
+        }
+    }
+
     private RecordCursorFactory generateSelectChoose(QueryModel model, SqlExecutionContext executionContext) throws SqlException {
         final RecordCursorFactory factory = generateSubQuery(model, executionContext);
 
@@ -2502,7 +2996,74 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 throw e;
             }
 
+            if (keyTypes.getColumnCount() > 0) {
+                final RecordCursorFactory windowJoinGroupBy = createWindowJoinGroupBy(
+                        model,
+                        factory,
+                        groupByMetadata,
+                        groupByFunctions,
+                        recordFunctions,
+                        valueTypes.getColumnCount()
+                );
+                if (windowJoinGroupBy != null) {
+                    return windowJoinGroupBy;
+                }
+            }
+
             if (keyTypes.getColumnCount() == 0) {
+                if (
+                        configuration.isSqlParallelGroupByEnabled()
+                                && (factory.supportPageFrameCursor() || factory.supportsFilterStealing())
+                                && GroupByUtils.isParallelismSupported(groupByFunctions)
+                ) {
+                    final ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions;
+                    try {
+                        perWorkerGroupByFunctions = preparePerWorkerGroupByFunctions(model, metadata, executionContext, false);
+                    } catch (Throwable e) {
+                        Misc.freeObjList(groupByFunctions);
+                        throw e;
+                    }
+
+                    if (factory.supportsFilterStealing()) {
+                        // aggregate filtered rows in the same page frame pass as the filter
+                        final RecordCursorFactory filterFactory = factory;
+                        factory = filterFactory.getBaseFactory();
+                        final AsyncGroupByNotKeyedRecordCursorFactory groupByFactory = new AsyncGroupByNotKeyedRecordCursorFactory(
+                                configuration,
+                                executionContext.getMessageBus(),
+                                factory,
+                                groupByMetadata,
+                                groupByFunctions,
+                                perWorkerGroupByFunctions,
+                                recordFunctions,
+                                valueTypes.getColumnCount(),
+                                filterFactory.getFilter(),
+                                filterFactory.getPerWorkerFilters(),
+                                filterFactory.getCompiledFilter(),
+                                filterFactory.getBindVarMemory(),
+                                filterFactory.getBindVarFunctions()
+                        );
+                        filterFactory.halfClose();
+                        return groupByFactory;
+                    }
+
+                    return new AsyncGroupByNotKeyedRecordCursorFactory(
+                            configuration,
+                            executionContext.getMessageBus(),
+                            factory,
+                            groupByMetadata,
+                            groupByFunctions,
+                            perWorkerGroupByFunctions,
+                            recordFunctions,
+                            valueTypes.getColumnCount(),
+                            null,
+                            null,
+                            null,
+                            null,
+                            null
+                    );
+                }
+
                 return new GroupByNotKeyedRecordCursorFactory(
                         factory,
                         groupByMetadata,
@@ -2512,6 +3073,33 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 );
             }
 
+            if (
+                    configuration.isSqlParallelGroupByEnabled()
+                            && factory.supportPageFrameCursor()
+                            && GroupByUtils.isParallelismSupported(groupByFunctions)
+            ) {
+                final ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions;
+                try {
+                    perWorkerGroupByFunctions = preparePerWorkerGroupByFunctions(model, metadata, executionContext, false);
+                } catch (Throwable e) {
+                    Misc.freeObjList(recordFunctions);
+                    throw e;
+                }
+                return new AsyncGroupByRecordCursorFactory(
+                        configuration,
+                        executionContext.getMessageBus(),
+                        factory,
+                        listColumnFilterA,
+                        asm,
+                        keyTypes,
+                        valueTypes,
+                        groupByMetadata,
+                        groupByFunctions,
+                        perWorkerGroupByFunctions,
+                        recordFunctions
+                );
+            }
+
             return new io.questdb.griffin.engine.groupby.GroupByRecordCursorFactory(
                     configuration,
                     factory,
@@ -2819,6 +3407,9 @@ public class SqlCodeGenerator implements Mutable, Closeable {
 
             final int latestByColumnCount = prepareLatestByColumnIndexes(latestBy, myMeta);
             final String tableName = reader.getTableName();
+            if (tableNames.indexOf(tableName) < 0) {
+                tableNames.add(tableName);
+            }
 
             final ExpressionNode withinExtracted = whereClauseParser.extractWithin(
                     model,
@@ -3192,13 +3783,15 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 if (ColumnType.isSymbol(myMeta.getColumnType(latestByColumnIndex))
                         && myMeta.isSymbolTableStatic(latestByColumnIndex)) {
                     // we have "latest by" symbol column values, but no index
-                    return new LatestByDeferredListValuesFilteredRecordCursorFactory(
-                            configuration,
+                    return createLatestByAllSymbols(
                             myMeta,
                             new FullBwdDataFrameCursorFactory(engine, tableName, model.getTableId(), model.getTableVersion()),
                             latestByColumnIndex,
                             null,
-                            columnIndexes
+                            null,
+                            columnIndexes,
+                            columnSizes,
+                            executionContext
                     );
                 }
             }
@@ -3310,6 +3903,31 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         return metadata.getTimestampIndex();
     }
 
+    private boolean isAnalyticStreamable(ObjList<QueryColumn> columns, RecordCursorFactory base) {
+        // analytic functions can be computed in a single pass over the base cursor when
+        // their ORDER BY is either absent or matches ascending designated timestamp order of the base
+        final RecordMetadata baseMetadata = base.getMetadata();
+        final int timestampIndex = baseMetadata.getTimestampIndex();
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final QueryColumn qc = columns.getQuick(i);
+            if (qc instanceof AnalyticColumn) {
+                final AnalyticColumn ac = (AnalyticColumn) qc;
+                final int orderByCount = ac.getOrderBy().size();
+                if (orderByCount == 0) {
+                    continue;
+                }
+                if (orderByCount > 1
+                        || timestampIndex == -1
+                        || base.hasDescendingOrder()
+                        || ac.getOrderByDirection().getQuick(0) != ORDER_DIRECTION_ASCENDING
+                        || baseMetadata.getColumnIndexQuiet(ac.getOrderBy().getQuick(0).token) != timestampIndex) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private boolean isOrderDescendingByDesignatedTimestampOnly(QueryModel model) {
         return model.getOrderByAdvice().size() == 1 && model.getTimestamp() != null &&
                 Chars.equalsIgnoreCase(model.getOrderByAdvice().getQuick(0).token, model.getTimestamp().token) &&
@@ -3356,6 +3974,75 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         }
     }
 
+    private AnalyticFunction parseAnalyticFunction(
+            ExpressionNode ast,
+            RecordMetadata metadata,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final Function f = functionParser.parseAnalyticFunction(ast, metadata, executionContext);
+        if (f instanceof AnalyticFunction) {
+            return (AnalyticFunction) f;
+        }
+        Misc.free(f);
+        throw SqlException.$(ast.position, "non-analytic function called in analytic context");
+    }
+
+    private void prepareAnalyticContext(
+            AnalyticColumn ac,
+            RecordMetadata metadata,
+            boolean baseSupportsRandomAccess,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final int frameTimestampIndex = validateAnalyticFrame(ac, metadata);
+
+        ObjList<Function> partitionBy = null;
+        int psz = ac.getPartitionBy().size();
+        if (psz > 0) {
+            partitionBy = new ObjList<>(psz);
+            for (int j = 0; j < psz; j++) {
+                partitionBy.add(
+                        functionParser.parseFunction(ac.getPartitionBy().getQuick(j), metadata, executionContext)
+                );
+            }
+        }
+
+        final VirtualRecord partitionByRecord;
+        final RecordSink partitionBySink;
+
+        if (partitionBy != null) {
+            partitionByRecord = new VirtualRecord(partitionBy);
+            keyTypes.clear();
+            final int partitionByCount = partitionBy.size();
+
+            for (int j = 0; j < partitionByCount; j++) {
+                keyTypes.add(partitionBy.getQuick(j).getType());
+            }
+            entityColumnFilter.of(partitionByCount);
+            // create sink
+            partitionBySink = RecordSinkFactory.getInstance(
+                    asm,
+                    keyTypes,
+                    entityColumnFilter,
+                    false
+            );
+        } else {
+            partitionByRecord = null;
+            partitionBySink = null;
+        }
+
+        executionContext.configureAnalyticContext(
+                partitionByRecord,
+                partitionBySink,
+                keyTypes,
+                ac.getOrderBy().size() > 0,
+                baseSupportsRandomAccess,
+                ac.getFramingMode(),
+                ac.getRowsLo(),
+                ac.getRowsHi(),
+                frameTimestampIndex
+        );
+    }
+
     private int prepareLatestByColumnIndexes(ObjList<ExpressionNode> latestBy, RecordMetadata myMeta) throws SqlException {
         keyTypes.clear();
         listColumnFilterA.clear();
@@ -3490,6 +4177,33 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         return indices;
     }
 
+    private int validateAnalyticFrame(AnalyticColumn ac, RecordMetadata metadata) throws SqlException {
+        final long lo = ac.getRowsLo();
+        final long hi = ac.getRowsHi();
+        if (hi != AnalyticColumn.FRAME_CURRENT_ROW
+                && !(hi == AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING && lo == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING)) {
+            throw SqlException.$(ac.getFramingPosition(), "frame end must be CURRENT ROW or UNBOUNDED FOLLOWING with UNBOUNDED PRECEDING start");
+        }
+
+        if (ac.getFramingMode() == AnalyticColumn.FRAMING_RANGE && lo != AnalyticColumn.FRAME_UNBOUNDED_PRECEDING) {
+            // range offsets are measured in time, the frame is keyed on the single ORDER BY column
+            final ObjList<ExpressionNode> orderBy = ac.getOrderBy();
+            if (orderBy.size() != 1 || ac.getOrderByDirection().getQuick(0) != ORDER_DIRECTION_ASCENDING) {
+                throw SqlException.$(ac.getFramingPosition(), "RANGE with offset requires single ascending ORDER BY column");
+            }
+            final ExpressionNode node = orderBy.getQuick(0);
+            final int index = metadata.getColumnIndexQuiet(node.token);
+            if (index == -1) {
+                throw SqlException.invalidColumn(node.position, node.token);
+            }
+            if (ColumnType.tagOf(metadata.getColumnType(index)) != ColumnType.TIMESTAMP) {
+                throw SqlException.$(node.position, "RANGE with offset requires TIMESTAMP ORDER BY column");
+            }
+            return index;
+        }
+        return -1;
+    }
+
     private void validateBothTimestamps(QueryModel slaveModel, RecordMetadata masterMetadata, RecordMetadata slaveMetadata) throws SqlException {
         if (masterMetadata.getTimestampIndex() == -1) {
             throw SqlException.$(slaveModel.getJoinKeywordPosition(), "left side of time series join has no timestamp");
@@ -3557,7 +4271,8 @@ public class SqlCodeGenerator implements Mutable, Closeable {
                 RecordSink slaveKeySink,
                 int columnSplit,
                 RecordValueSink slaveValueSink,
-                IntList columnIndex
+                IntList columnIndex,
+                long toleranceInterval
         );
     }
 
@@ -3568,6 +4283,7 @@ public class SqlCodeGenerator implements Mutable, Closeable {
         joinsRequiringTimestamp[JOIN_ASOF] = true;
         joinsRequiringTimestamp[JOIN_SPLICE] = true;
         joinsRequiringTimestamp[JOIN_LT] = true;
+        joinsRequiringTimestamp[JOIN_WINDOW] = true;
     }
 
     static {
@@ -27,14 +27,20 @@ package io.questdb.griffin;
 import io.questdb.MessageBus;
 import io.questdb.PropServerConfiguration;
 import io.questdb.cairo.*;
+import io.questdb.cairo.mv.MatViewDefinition;
+import io.questdb.cairo.mv.MatViewRefresher;
+import io.questdb.cairo.mv.MatViewState;
 import io.questdb.cairo.pool.WriterPool;
 import io.questdb.cairo.sql.*;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryMARW;
 import io.questdb.cutlass.text.Atomicity;
+import io.questdb.cutlass.text.ParallelTextImporter;
 import io.questdb.cutlass.text.TextException;
 import io.questdb.cutlass.text.TextLoader;
+import io.questdb.griffin.engine.cache.CachedQueryResult;
+import io.questdb.griffin.engine.cache.QueryResultCacheRecordCursorFactory;
 import io.questdb.griffin.engine.functions.cast.CastCharToStrFunctionFactory;
 import io.questdb.griffin.engine.functions.cast.CastStrToGeoHashFunctionFactory;
 import io.questdb.griffin.engine.functions.catalogue.*;
@@ -66,6 +72,8 @@ public class SqlCompiler implements Closeable {
     private final static Log LOG = LogFactory.getLog(SqlCompiler.class);
     private static final IntList castGroups = new IntList();
     private static final CastCharToStrFunctionFactory CHAR_TO_STR_FUNCTION_FACTORY = new CastCharToStrFunctionFactory();
+    // functions that make query results unfit for result cache, in addition to random and runtime constant functions
+    private static final LowerCaseCharSequenceHashSet nonDeterministicFunctions = new LowerCaseCharSequenceHashSet();
     //null object used to skip null checks in batch method
     private static final BatchCallback EMPTY_CALLBACK = new BatchCallback() {
         @Override
@@ -104,16 +112,22 @@ public class SqlCompiler implements Closeable {
     private final FunctionParser functionParser;
     private final ExecutableMethod insertAsSelectMethod = this::insertAsSelect;
     private final TextLoader textLoader;
+    private final ParallelTextImporter parallelTextImporter;
     private final FilesFacade ff;
     private final TimestampValueRecord partitionFunctionRec = new TimestampValueRecord();
     private final IndexBuilder rebuildIndex = new IndexBuilder();
     private final VacuumColumnVersions vacuumColumnVersions;
+    private final MatViewState matViewState = new MatViewState();
+    private final GenericLexer resultCacheLexer;
+    private final StringSink resultCacheKey = new StringSink();
     //determines how compiler parses query text
     //true - compiler treats whole input as single query and doesn't stop on ';'. Default mode.
     //false - compiler treats input as list of statements and stops processing statement on ';'. Used in batch processing.
     private boolean isSingleQueryMode = true;
     // Helper var used to pass back count in cases it can't be done via method result.
     private long insertCount;
+    // materialized view being created, it is written alongside the view table
+    private MatViewDefinition matView;
     private final ExecutableMethod createTableMethod = this::createTable;
 
     // Exposed for embedded API users.
@@ -134,6 +148,7 @@ public class SqlCompiler implements Closeable {
                 configuration.getSqlCharacterStoreCapacity(),
                 configuration.getSqlCharacterStoreSequencePoolCapacity());
         this.lexer = new GenericLexer(configuration.getSqlLexerPoolCapacity());
+        this.resultCacheLexer = new GenericLexer(configuration.getSqlLexerPoolCapacity());
         this.functionParser = new FunctionParser(
                 configuration,
                 functionFactoryCache != null
@@ -165,6 +180,7 @@ public class SqlCompiler implements Closeable {
         final KeywordBasedExecutor sqlShow = this::sqlShow;
         final KeywordBasedExecutor vacuumTable = this::vacuum;
         final KeywordBasedExecutor snapshotDatabase = this::snapshotDatabase;
+        final KeywordBasedExecutor refreshMatView = this::refreshMatView;
 
         keywordBasedExecutors.put("truncate", truncateTables);
         keywordBasedExecutors.put("TRUNCATE", truncateTables);
@@ -200,8 +216,11 @@ public class SqlCompiler implements Closeable {
         keywordBasedExecutors.put("VACUUM", vacuumTable);
         keywordBasedExecutors.put("snapshot", snapshotDatabase);
         keywordBasedExecutors.put("SNAPSHOT", snapshotDatabase);
+        keywordBasedExecutors.put("refresh", refreshMatView);
+        keywordBasedExecutors.put("REFRESH", refreshMatView);
 
         configureLexer(lexer);
+        configureLexer(resultCacheLexer);
 
         final PostOrderTreeTraversalAlgo postOrderTreeTraversalAlgo = new PostOrderTreeTraversalAlgo();
         optimiser = new SqlOptimiser(
@@ -226,6 +245,7 @@ public class SqlCompiler implements Closeable {
                 postOrderTreeTraversalAlgo
         );
         this.textLoader = new TextLoader(engine);
+        this.parallelTextImporter = new ParallelTextImporter(configuration, messageBus);
         alterOperationBuilder = new AlterOperationBuilder();
     }
 
@@ -912,6 +932,7 @@ public class SqlCompiler implements Closeable {
         Misc.free(path);
         Misc.free(renamePath);
         Misc.free(textLoader);
+        Misc.free(parallelTextImporter);
         Misc.free(rebuildIndex);
     }
 
@@ -1148,6 +1169,17 @@ public class SqlCompiler implements Closeable {
                     } else {
                         throw SqlException.$(lexer.lastTokenPosition(), "'partition' expected");
                     }
+                } else if (SqlKeywords.isConvertKeyword(tok)) {
+                    expectKeyword(lexer, "partition");
+                    expectKeyword(lexer, "to");
+                    tok = expectToken(lexer, "'parquet' or 'native'");
+                    if (SqlKeywords.isParquetKeyword(tok)) {
+                        return alterTableDropOrAttachPartition(reader, PartitionAction.CONVERT_TO_PARQUET, executionContext);
+                    } else if (SqlKeywords.isNativeKeyword(tok)) {
+                        return alterTableDropOrAttachPartition(reader, PartitionAction.CONVERT_TO_NATIVE, executionContext);
+                    } else {
+                        throw SqlException.$(lexer.lastTokenPosition(), "'parquet' or 'native' expected");
+                    }
                 } else if (SqlKeywords.isRenameKeyword(tok)) {
                     tok = expectToken(lexer, "'column'");
                     if (SqlKeywords.isColumnKeyword(tok)) {
@@ -1189,6 +1221,10 @@ public class SqlCompiler implements Closeable {
                                 return alterTableColumnCacheFlag(tableNamePosition, tableName, columnName, reader, true);
                             } else if (SqlKeywords.isNoCacheKeyword(tok)) {
                                 return alterTableColumnCacheFlag(tableNamePosition, tableName, columnName, reader, false);
+                            } else if (SqlKeywords.isSetKeyword(tok)) {
+                                expectKeyword(lexer, "codec");
+                                tok = expectToken(lexer, "'none', 'delta' or 'xor'");
+                                return alterTableColumnSetCodec(tableNamePosition, tableName, columnNameNamePosition, columnName, tableMetadata, tok);
                             } else {
                                 throw SqlException.$(lexer.lastTokenPosition(), "'cache' or 'nocache' expected");
                             }
@@ -1469,6 +1505,35 @@ public class SqlCompiler implements Closeable {
         );
     }
 
+    private CompiledQuery alterTableColumnSetCodec(
+            int tableNamePosition,
+            String tableName,
+            int columnNamePosition,
+            CharSequence columnName,
+            TableReaderMetadata metadata,
+            CharSequence codecName
+    ) throws SqlException {
+        final int columnIndex = metadata.getColumnIndexQuiet(columnName);
+        if (columnIndex == -1) {
+            throw SqlException.invalidColumn(columnNamePosition, columnName);
+        }
+        final int codec = ColumnCodecs.codecOf(codecName);
+        if (codec == -1) {
+            throw SqlException.$(lexer.lastTokenPosition(), "'none', 'delta' or 'xor' expected");
+        }
+        if (columnIndex == metadata.getTimestampIndex()) {
+            throw SqlException.$(columnNamePosition, "codec is not supported on designated timestamp");
+        }
+        final int columnType = metadata.getColumnType(columnIndex);
+        if (!ColumnCodecs.isSupported(codec, columnType)) {
+            throw SqlException.$(lexer.lastTokenPosition(), "codec ").put(ColumnCodecs.nameOf(codec))
+                    .put(" is not supported for ").put(ColumnType.nameOf(columnType)).put(" column");
+        }
+        return compiledQuery.ofAlter(
+                alterOperationBuilder.ofSetColumnCodec(tableNamePosition, tableName, metadata.getId(), columnName, codec).build()
+        );
+    }
+
     private CompiledQuery alterTableDropColumn(int tableNamePosition, String tableName, TableReaderMetadata metadata) throws SqlException {
         AlterOperationBuilder dropColumnStatement = alterOperationBuilder.ofDropColumn(tableNamePosition, tableName, metadata.getId());
         int semicolonPos = -1;
@@ -1515,10 +1580,10 @@ public class SqlCompiler implements Closeable {
         if (SqlKeywords.isListKeyword(tok)) {
             return alterTableDropOrAttachPartitionByList(reader, pos, action);
         } else if (SqlKeywords.isWhereKeyword(tok)) {
-            if (action != PartitionAction.DROP) {
-                throw SqlException.$(pos, "WHERE clause can only be used with DROP PARTITION command");
+            if (action == PartitionAction.ATTACH) {
+                throw SqlException.$(pos, "WHERE clause can only be used with DROP or CONVERT PARTITION command");
             }
-            AlterOperationBuilder alterPartitionStatement = alterOperationBuilder.ofDropPartition(pos, tableName, reader.getMetadata().getId());
+            AlterOperationBuilder alterPartitionStatement = ofPartitionAction(action, pos, tableName, reader.getMetadata().getId());
             ExpressionNode expr = parser.expr(lexer, (QueryModel) null);
             String designatedTimestampColumnName = null;
             int tsIndex = readerMetadata.getTimestampIndex();
@@ -1546,13 +1611,7 @@ public class SqlCompiler implements Closeable {
 
     private CompiledQuery alterTableDropOrAttachPartitionByList(TableReader reader, int pos, int action) throws SqlException {
         String tableName = reader.getTableName();
-        AlterOperationBuilder partitions;
-        if (action == PartitionAction.DROP) {
-            partitions = alterOperationBuilder.ofDropPartition(pos, tableName, reader.getMetadata().getId());
-        } else {
-            partitions = alterOperationBuilder.ofAttachPartition(pos, tableName, reader.getMetadata().getId());
-        }
-        assert action == PartitionAction.DROP || action == PartitionAction.ATTACH;
+        AlterOperationBuilder partitions = ofPartitionAction(action, pos, tableName, reader.getMetadata().getId());
         int semicolonPos = -1;
         do {
             CharSequence tok = maybeExpectToken(lexer, "partition name", semicolonPos < 0);
@@ -1743,6 +1802,7 @@ public class SqlCompiler implements Closeable {
         // instance of compiler for safekeeping
 
         // lexer would have parsed first token to determine direction of execution flow
+        final int queryLo = lexer.lastTokenPosition();
         lexer.unparseLast();
         codeGenerator.clear();
 
@@ -1750,7 +1810,11 @@ public class SqlCompiler implements Closeable {
         switch (executionModel.getModelType()) {
             case ExecutionModel.QUERY:
                 LOG.info().$("plan [q=`").$((QueryModel) executionModel).$("`, fd=").$(executionContext.getRequestFd()).$(']').$();
-                return compiledQuery.of(generate((QueryModel) executionModel, executionContext));
+                final RecordCursorFactory factory = generate((QueryModel) executionModel, executionContext);
+                if (executionContext.isResultCacheEnabled()) {
+                    return compiledQuery.of(wrapInResultCache(factory, queryLo, lexer.getPosition()));
+                }
+                return compiledQuery.of(factory);
             case ExecutionModel.CREATE_TABLE:
                 return createTableWithRetries(executionModel, executionContext);
             case ExecutionModel.COPY:
@@ -1904,6 +1968,10 @@ public class SqlCompiler implements Closeable {
     }
 
     private void copyTable(SqlExecutionContext executionContext, CopyModel model) throws SqlException {
+        if (model.isParallel()) {
+            copyTableParallel(executionContext, model);
+            return;
+        }
         try {
             int len = configuration.getSqlCopyBufferSize();
             long buf = Unsafe.malloc(len, MemoryTag.NATIVE_DEFAULT);
@@ -1947,6 +2015,29 @@ public class SqlCompiler implements Closeable {
         }
     }
 
+    private void copyTableParallel(SqlExecutionContext executionContext, CopyModel model) throws SqlException {
+        try {
+            final CharSequence name = GenericLexer.assertNoDots(GenericLexer.unquote(model.getFileName().token), model.getFileName().position);
+            path.of(configuration.getInputRoot()).concat(name).$();
+            long fd = ff.openRO(path);
+            if (fd == -1) {
+                throw SqlException.$(model.getFileName().position, "could not open file [errno=").put(Os.errno()).put(", path=").put(path).put(']');
+            }
+            try {
+                textLoader.setForceHeaders(model.isHeader());
+                textLoader.setSkipRowsWithExtraValues(false);
+                parallelTextImporter.load(textLoader, fd, executionContext.getWorkerCount(), executionContext.getCairoSecurityContext());
+            } finally {
+                ff.close(fd);
+                textLoader.clear();
+            }
+        } catch (TextException e) {
+            // we do not expect JSON exception here
+        } finally {
+            LOG.info().$("copied").$();
+        }
+    }
+
     //sets insertCount to number of copied rows
     private TableWriter copyTableData(CharSequence tableName, RecordCursor cursor, RecordMetadata cursorMetadata) {
         TableWriter writer = new TableWriter(configuration, tableName, messageBus, false, DefaultLifecycleManager.INSTANCE, engine.getMetrics());
@@ -2002,6 +2093,7 @@ public class SqlCompiler implements Closeable {
         }
 
         this.insertCount = -1;
+        this.matView = createTableModel.isMatView() ? prepareMatView(createTableModel, executionContext) : null;
 
         // Slow path with lock attempt
         CharSequence lockedReason = engine.lock(executionContext.getCairoSecurityContext(), name.token, "createTable");
@@ -2034,6 +2126,11 @@ public class SqlCompiler implements Closeable {
             throw SqlException.$(name.position, "cannot acquire table lock [lockedReason=").put(lockedReason).put(']');
         }
 
+        if (matView != null) {
+            engine.getMatViewRegistry().addView(matView);
+            matView = null;
+        }
+
         if (createTableModel.getQueryModel() == null) {
             return compiledQuery.ofCreateTable();
         } else {
@@ -2049,6 +2146,9 @@ public class SqlCompiler implements Closeable {
         ) {
             typeCast.clear();
             final RecordMetadata metadata = factory.getMetadata();
+            if (matView != null && metadata.getTimestampIndex() == -1) {
+                throw SqlException.$(model.getName().position, "materialized view query must select the sampled timestamp");
+            }
             validateTableModelAndCreateTypeCast(model, metadata, typeCast);
             engine.createTableUnsafe(
                     executionContext.getCairoSecurityContext(),
@@ -2058,6 +2158,11 @@ public class SqlCompiler implements Closeable {
             );
 
             try {
+                if (matView != null) {
+                    path.of(configuration.getRoot()).concat(model.getName().token);
+                    matView.save(ff, path, mem);
+                    matViewState.save(ff, path, renamePath, mem);
+                }
                 return copyTableData(model.getName().token, cursor, metadata);
             } catch (CairoException e) {
                 LOG.error().$(e.getFlyweightMessage()).$(" [errno=").$(e.getErrno()).$(']').$();
@@ -2167,6 +2272,39 @@ public class SqlCompiler implements Closeable {
         return codeGenerator.generate(queryModel, executionContext);
     }
 
+    /**
+     * Builds result cache key out of query tokens, so that queries which differ only in
+     * whitespace or comments share results.
+     *
+     * @return false when query results may change without tables being changed, e.g. when
+     * query calls random functions or uses named bind variables
+     */
+    private boolean normaliseQuery(int lo, int hi) {
+        final FunctionFactoryCache functionFactoryCache = functionParser.getFunctionFactoryCache();
+        resultCacheKey.clear();
+        resultCacheLexer.of(lexer.getContent(), lo, hi);
+        CharSequence tok;
+        while ((tok = SqlUtil.fetchNext(resultCacheLexer)) != null && !Chars.equals(tok, ';')) {
+            if (Chars.startsWith(tok, ':')
+                    || (tok.length() > 4 && Chars.equalsLowerCaseAscii(tok, 0, 4, "rnd_", 0, 4))
+                    || nonDeterministicFunctions.contains(tok)
+                    || functionFactoryCache.isRuntimeConstant(tok)
+                    || functionFactoryCache.isCursor(tok)) {
+                return false;
+            }
+            resultCacheKey.put(tok).put(' ');
+        }
+        return true;
+    }
+
+    private RecordCursorFactory wrapInResultCache(RecordCursorFactory factory, int queryLo, int queryHi) {
+        final ObjList<String> tableNames = codeGenerator.getTableNames();
+        if (tableNames.size() == 0 || !CachedQueryResult.isSupported(factory.getMetadata()) || !normaliseQuery(queryLo, queryHi)) {
+            return factory;
+        }
+        return new QueryResultCacheRecordCursorFactory(engine, factory, resultCacheKey.toString(), new ObjList<>(tableNames));
+    }
+
     UpdateOperation generateUpdate(QueryModel updateQueryModel, SqlExecutionContext executionContext) throws SqlException {
         // Update QueryModel structure is
         // QueryModel with SET column expressions
@@ -2479,6 +2617,18 @@ public class SqlCompiler implements Closeable {
         return model;
     }
 
+    private AlterOperationBuilder ofPartitionAction(int action, int pos, String tableName, int tableId) {
+        switch (action) {
+            case PartitionAction.DROP:
+                return alterOperationBuilder.ofDropPartition(pos, tableName, tableId);
+            case PartitionAction.ATTACH:
+                return alterOperationBuilder.ofAttachPartition(pos, tableName, tableId);
+            default:
+                assert action == PartitionAction.CONVERT_TO_PARQUET || action == PartitionAction.CONVERT_TO_NATIVE;
+                return alterOperationBuilder.ofConvertPartition(pos, tableName, tableId, action == PartitionAction.CONVERT_TO_PARQUET);
+        }
+    }
+
     private RecordCursorFactory prepareForUpdate(
             String tableName,
             QueryModel selectQueryModel,
@@ -2519,6 +2669,63 @@ public class SqlCompiler implements Closeable {
         }
     }
 
+    private MatViewDefinition prepareMatView(CreateTableModel model, SqlExecutionContext executionContext) throws SqlException {
+        final String query = model.getMatViewQuery();
+        final String baseTableToken = query.substring(model.getMatViewBaseTableLo(), model.getMatViewBaseTableHi());
+        final String baseTableName = Chars.toString(GenericLexer.unquote(baseTableToken));
+        try (TableReader reader = engine.getReader(executionContext.getCairoSecurityContext(), baseTableName)) {
+            final TableReaderMetadata metadata = reader.getMetadata();
+            if (!PartitionBy.isPartitioned(metadata.getPartitionBy())) {
+                throw SqlException.$(model.getName().position, "base table of materialized view must be partitioned [table=").put(baseTableName).put(']');
+            }
+            // view is built from the snapshot of base table partitions, rows committed
+            // while the view query runs are re-applied by the first refresh
+            matViewState.of(reader.getTxFile());
+
+            // refresh query reads base table rows from timestamp passed as the first bind variable
+            final StringSink sink = Misc.getThreadLocalBuilder();
+            sink.put(query, 0, model.getMatViewBaseTableLo());
+            sink.put('(').put(baseTableToken).put(" where \"").put(metadata.getColumnName(metadata.getTimestampIndex())).put("\" >= $1)");
+            if (!model.isMatViewBaseTableAliased()) {
+                sink.put(" \"").put(baseTableName).put('"');
+            }
+            sink.put(query, model.getMatViewBaseTableHi(), query.length());
+            final String refreshQuery = sink.toString();
+            return new MatViewDefinition(
+                    Chars.toString(model.getName().token),
+                    baseTableName,
+                    metadata.getPartitionBy(),
+                    query,
+                    refreshQuery
+            );
+        }
+    }
+
+    private CompiledQuery refreshMatView(SqlExecutionContext executionContext) throws SqlException {
+        // expected syntax: REFRESH MATERIALIZED VIEW name [;]
+        executionContext.getCairoSecurityContext().checkWritePermission();
+        expectKeyword(lexer, "materialized");
+        expectKeyword(lexer, "view");
+        final CharSequence viewName = GenericLexer.unquote(expectToken(lexer, "view name"));
+        final int viewNamePosition = lexer.lastTokenPosition();
+        final CharSequence eol = SqlUtil.fetchNext(lexer);
+        if (eol != null && !Chars.equals(eol, ';')) {
+            throw SqlException.$(lexer.lastTokenPosition(), "end of line or ';' expected");
+        }
+
+        final MatViewDefinition view = engine.getMatViewRegistry().getView(viewName);
+        if (view == null) {
+            throw SqlException.$(viewNamePosition, "materialized view does not exist [view=").put(viewName).put(']');
+        }
+        // refresher owns a compiler of its own, it is not kept around between statements
+        try (MatViewRefresher refresher = new MatViewRefresher(engine, getFunctionFactoryCache())) {
+            refresher.refresh(view);
+        } catch (CairoException e) {
+            throw SqlException.$(viewNamePosition, e.getFlyweightMessage());
+        }
+        return compiledQuery.ofRefreshMatView();
+    }
+
     private CompiledQuery reindexTable(SqlExecutionContext executionContext) throws SqlException {
         CharSequence tok;
         tok = SqlUtil.fetchNext(lexer);
@@ -2633,7 +2840,14 @@ public class SqlCompiler implements Closeable {
         // todo: configure the following
         //   - what happens when data row errors out, max errors may be?
         //   - we should be able to skip X rows from top, dodgy headers etc.
-        textLoader.configureDestination(model.getTableName().token, false, false, Atomicity.SKIP_ROW, PartitionBy.NONE, null);
+        textLoader.configureDestination(
+                model.getTableName().token,
+                false,
+                false,
+                Atomicity.SKIP_ROW,
+                model.getPartitionBy(),
+                model.getTimestampColumnName()
+        );
     }
 
     private CompiledQuery snapshotDatabase(SqlExecutionContext executionContext) throws SqlException {
@@ -3013,6 +3227,8 @@ public class SqlCompiler implements Closeable {
     public final static class PartitionAction {
         public static final int DROP = 1;
         public static final int ATTACH = 2;
+        public static final int CONVERT_TO_PARQUET = 3;
+        public static final int CONVERT_TO_NATIVE = 4;
     }
 
     private static class TableStructureAdapter implements TableStructure {
@@ -3410,6 +3626,10 @@ public class SqlCompiler implements Closeable {
         castGroups.extendAndSet(ColumnType.SYMBOL, 3);
         castGroups.extendAndSet(ColumnType.BINARY, 4);
 
+        nonDeterministicFunctions.add("now");
+        nonDeterministicFunctions.add("systimestamp");
+        nonDeterministicFunctions.add("sysdate");
+
         sqlControlSymbols.add("(");
         sqlControlSymbols.add(";");
         sqlControlSymbols.add(")");
@@ -84,7 +84,11 @@ public interface SqlExecutionContext extends Closeable {
             @Nullable RecordSink partitionBySink,
             @Transient @Nullable ColumnTypes keyTypes,
             boolean isOrdered,
-            boolean baseSupportsRandomAccess
+            boolean baseSupportsRandomAccess,
+            int framingMode,
+            long rowsLo,
+            long rowsHi,
+            int timestampIndex
     );
 
     void initNow();
@@ -102,4 +106,8 @@ public interface SqlExecutionContext extends Closeable {
     void setCloneSymbolTables(boolean cloneSymbolTables);
 
     boolean getCloneSymbolTables();
+
+    void setResultCacheEnabled(boolean resultCacheEnabled);
+
+    boolean isResultCacheEnabled();
 }
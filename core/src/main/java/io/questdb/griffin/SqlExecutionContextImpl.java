@@ -61,6 +61,7 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
     private long now;
     private int jitMode;
     private boolean cloneSymbolTables = false;
+    private boolean resultCacheEnabled = false;
 
     public SqlExecutionContextImpl(CairoEngine cairoEngine, int workerCount) {
         this.cairoConfiguration = cairoEngine.getConfiguration();
@@ -155,14 +156,22 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
             @Nullable RecordSink partitionBySink,
             @Transient @Nullable ColumnTypes partitionByKeyTypes,
             boolean ordered,
-            boolean baseSupportsRandomAccess
+            boolean baseSupportsRandomAccess,
+            int framingMode,
+            long rowsLo,
+            long rowsHi,
+            int timestampIndex
     ) {
         analyticContext.of(
                 partitionByRecord,
                 partitionBySink,
                 partitionByKeyTypes,
                 ordered,
-                baseSupportsRandomAccess
+                baseSupportsRandomAccess,
+                framingMode,
+                rowsLo,
+                rowsHi,
+                timestampIndex
         );
     }
 
@@ -235,4 +244,14 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
     public boolean getCloneSymbolTables() {
         return cloneSymbolTables;
     }
+
+    @Override
+    public void setResultCacheEnabled(boolean resultCacheEnabled) {
+        this.resultCacheEnabled = resultCacheEnabled;
+    }
+
+    @Override
+    public boolean isResultCacheEnabled() {
+        return resultCacheEnabled;
+    }
 }
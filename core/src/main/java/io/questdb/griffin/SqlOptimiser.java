@@ -44,7 +44,7 @@ import static io.questdb.griffin.model.ExpressionNode.LITERAL;
 class SqlOptimiser {
 
     private static final CharSequenceIntHashMap notOps = new CharSequenceIntHashMap();
-    private static final boolean[] joinsRequiringTimestamp = {false, false, false, false, true, true, true};
+    private static final boolean[] joinsRequiringTimestamp = {false, false, false, false, true, true, true, true};
     private static final int NOT_OP_NOT = 1;
     private static final int NOT_OP_AND = 2;
     private static final int NOT_OP_OR = 3;
@@ -2562,7 +2562,10 @@ class SqlOptimiser {
         for (int j = 0, n = list.size(); j < n; j++) {
             final ExpressionNode node = list.getQuick(j);
             emitLiterals(node, translatingModel, innerVirtualModel, baseModel, true);
-            list.setQuick(j, replaceLiteral(node, translatingModel, innerVirtualModel, baseModel, true));
+            final ExpressionNode replaced = replaceLiteral(node, translatingModel, innerVirtualModel, baseModel, true);
+            // keep position of the original node for error reporting
+            replaced.position = node.position;
+            list.setQuick(j, replaced);
         }
     }
 
@@ -25,11 +25,13 @@
 package io.questdb.griffin;
 
 import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnCodecs;
 import io.questdb.cairo.ColumnType;
 import io.questdb.cairo.PartitionBy;
 import io.questdb.cairo.TableUtils;
 import io.questdb.griffin.model.*;
 import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.Timestamps;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -447,6 +449,22 @@ public final class SqlParser {
                     if (isHeaderKeyword(tok)) {
                         model.setHeader(isTrueKeyword(tok(lexer, "'true' or 'false'")));
                         tok = optTok(lexer);
+                    } else if (isParallelKeyword(tok)) {
+                        model.setParallel(isTrueKeyword(tok(lexer, "'true' or 'false'")));
+                        tok = optTok(lexer);
+                    } else if (isTimestampKeyword(tok)) {
+                        tok = tok(lexer, "timestamp column name");
+                        model.setTimestampColumnName(Chars.toString(GenericLexer.unquote(tok)));
+                        tok = optTok(lexer);
+                    } else if (isPartitionKeyword(tok)) {
+                        expectTok(lexer, "by");
+                        tok = tok(lexer, "'NONE', 'HOUR', 'DAY', 'MONTH' or 'YEAR'");
+                        final int partitionBy = PartitionBy.fromString(tok);
+                        if (partitionBy == -1) {
+                            throw SqlException.$(lexer.lastTokenPosition(), "'NONE', 'HOUR', 'DAY', 'MONTH' or 'YEAR' expected");
+                        }
+                        model.setPartitionBy(partitionBy);
+                        tok = optTok(lexer);
                     } else {
                         throw SqlException.$(lexer.lastTokenPosition(), "unexpected option");
                     }
@@ -457,7 +475,105 @@ public final class SqlParser {
         throw SqlException.$(lexer.lastTokenPosition(), "'from' expected");
     }
 
+    private ExecutionModel parseCreateMatView(GenericLexer lexer, SqlExecutionContext executionContext) throws SqlException {
+        final CreateTableModel model = createTableModelPool.next();
+        final CharSequence viewName = tok(lexer, "view name");
+        model.setName(nextLiteral(GenericLexer.assertNoDotsAndSlashes(GenericLexer.unquote(viewName), lexer.lastTokenPosition()), lexer.lastTokenPosition()));
+
+        expectTok(lexer, "as");
+        expectTok(lexer, '(');
+        final int queryLo = lexer.getPosition();
+        final QueryModel queryModel = parseDml(lexer, null);
+        expectTok(lexer, ')');
+        final int queryHi = lexer.lastTokenPosition();
+
+        // view is refreshed by re-running the query over the tail of the base table,
+        // which gives the same result only for calendar aligned SAMPLE BY over a single table
+        if (queryModel.getUnionModel() != null) {
+            throw SqlException.$(queryLo, "union is not supported in materialized view");
+        }
+        QueryModel baseModel = queryModel;
+        while (baseModel.getSampleBy() == null && baseModel.getTableName() == null && baseModel.getNestedModel() != null) {
+            baseModel = baseModel.getNestedModel();
+        }
+        if (baseModel.getSampleBy() == null) {
+            throw SqlException.$(queryLo, "materialized view query must use SAMPLE BY");
+        }
+        final ExpressionNode baseTableName = baseModel.getTableName();
+        if (baseTableName == null || baseTableName.type != ExpressionNode.LITERAL) {
+            throw SqlException.$(baseModel.getSampleBy().position, "materialized view query must select from a table");
+        }
+        if (baseModel.getJoinModels().size() > 1) {
+            throw SqlException.$(baseTableName.position, "joins are not supported in materialized view");
+        }
+        if (baseModel.getLatestBy().size() > 0) {
+            throw SqlException.$(baseTableName.position, "latest by is not supported in materialized view");
+        }
+        if (baseModel.getSampleByFill().size() > 0) {
+            throw SqlException.$(baseModel.getSampleByFill().getQuick(0).position, "fill is not supported in materialized view");
+        }
+        if (baseModel.getSampleByOffset() == null && baseModel.getSampleByTimezoneName() == null) {
+            throw SqlException.$(baseModel.getSampleBy().position, "materialized view query must align to calendar");
+        }
+
+        final CharSequence content = lexer.getContent();
+        final int baseTableLo = baseTableName.position;
+        int baseTableHi = baseTableLo;
+        final char quote = content.charAt(baseTableLo);
+        if (quote == '"' || quote == '\'') {
+            baseTableHi = Chars.indexOf(content, baseTableLo + 1, queryHi, quote) + 1;
+        } else {
+            while (baseTableHi < queryHi && !Character.isWhitespace(content.charAt(baseTableHi)) && content.charAt(baseTableHi) != ')') {
+                baseTableHi++;
+            }
+        }
+        model.setMatView(
+                Chars.toString(content, queryLo, queryHi),
+                baseTableLo - queryLo,
+                baseTableHi - queryLo,
+                baseModel.getAlias() != null
+        );
+
+        final QueryModel optimisedModel = optimiser.optimise(queryModel, executionContext);
+        final ObjList<QueryColumn> columns = optimisedModel.getBottomUpColumns();
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            model.addColumn(columns.getQuick(i).getName(), -1, configuration.getDefaultSymbolCapacity(), configuration.getRandom().nextLong());
+        }
+        model.setQueryModel(optimisedModel);
+
+        CharSequence tok = optTok(lexer);
+        ExpressionNode partitionBy = parseCreateTablePartition(lexer, tok);
+        if (partitionBy != null) {
+            final int partitionByValue = PartitionBy.fromString(partitionBy.token);
+            if (partitionByValue == -1) {
+                throw SqlException.$(partitionBy.position, "'DAY', 'MONTH' or 'YEAR' expected");
+            }
+            if (!PartitionBy.isPartitioned(partitionByValue)) {
+                throw SqlException.$(partitionBy.position, "materialized view must be partitioned");
+            }
+            tok = optTok(lexer);
+        } else {
+            partitionBy = nextLiteral("DAY", queryHi);
+        }
+        model.setPartitionBy(partitionBy);
+        model.setMaxUncommittedRows(configuration.getMaxUncommittedRows());
+        model.setCommitLag(configuration.getCommitLag());
+
+        if (tok == null || Chars.equals(tok, ';')) {
+            return model;
+        }
+        throw errUnexpected(lexer, tok);
+    }
+
     private ExecutionModel parseCreateStatement(GenericLexer lexer, SqlExecutionContext executionContext) throws SqlException {
+        final CharSequence tok = optTok(lexer);
+        if (tok != null && isMaterializedKeyword(tok)) {
+            expectTok(lexer, "view");
+            return parseCreateMatView(lexer, executionContext);
+        }
+        if (tok != null) {
+            lexer.unparseLast();
+        }
         expectTok(lexer, "table");
         return parseCreateTable(lexer, executionContext);
     }
@@ -509,6 +625,9 @@ public final class SqlParser {
             if (timestampType != ColumnType.TIMESTAMP && timestampType != -1) { //type can be -1 for create table as select because types aren't known yet
                 throw SqlException.position(timestamp.position).put("TIMESTAMP column expected [actual=").put(ColumnType.nameOf(timestampType)).put(']');
             }
+            if (model.getColumnCodec(timestampIdx) != ColumnCodecs.NONE) {
+                throw SqlException.position(timestamp.position).put("codec is not supported on designated timestamp");
+            }
             model.setTimestamp(timestamp);
             tok = optTok(lexer);
         }
@@ -678,7 +797,7 @@ public final class SqlParser {
                 }
                 tok = parseCreateTableInlineIndexDef(lexer, model);
             } else {
-                tok = null;
+                tok = parseCreateTableCodecDef(lexer, model, type);
             }
 
             if (tok == null) {
@@ -709,6 +828,24 @@ public final class SqlParser {
         }
     }
 
+    private CharSequence parseCreateTableCodecDef(GenericLexer lexer, CreateTableModel model, int columnType) throws SqlException {
+        CharSequence tok = optTok(lexer);
+        if (tok != null && isCodecKeyword(tok)) {
+            tok = tok(lexer, "'none', 'delta' or 'xor'");
+            final int codec = ColumnCodecs.codecOf(tok);
+            if (codec == -1) {
+                throw SqlException.$(lexer.lastTokenPosition(), "'none', 'delta' or 'xor' expected");
+            }
+            if (!ColumnCodecs.isSupported(codec, columnType)) {
+                throw SqlException.$(lexer.lastTokenPosition(), "codec ").put(ColumnCodecs.nameOf(codec))
+                        .put(" is not supported for ").put(ColumnType.nameOf(columnType)).put(" column");
+            }
+            model.codec(codec);
+            return null;
+        }
+        return tok;
+    }
+
     private void parseCreateTableIndexDef(GenericLexer lexer, CreateTableModel model) throws SqlException {
         expectTok(lexer, '(');
         final int columnIndex = getCreateTableColumnIndex(model, expectLiteral(lexer).token, lexer.lastTokenPosition());
@@ -1125,13 +1262,14 @@ public final class SqlParser {
                 if (isCalendarKeyword(tok)) {
                     tok = optTok(lexer);
 
-                    if (tok != null && !isSemicolon(tok)) {
+                    // closing brace ends sub-query, e.g. in 'create table as'
+                    if (tok != null && !isSemicolon(tok) && !Chars.equals(tok, ')')) {
                         if (isTimeKeyword(tok)) {
                             expectZone(lexer);
                             model.setSampleByTimezoneName(expectExpr(lexer));
                             tok = optTok(lexer);
 
-                            if (tok != null) {
+                            if (tok != null && !Chars.equals(tok, ')')) {
                                 if (isWithKeyword(tok)) {
                                     tok = parseWithOffset(lexer, model);
                                 } else {
@@ -1357,6 +1495,7 @@ public final class SqlParser {
             case QueryModel.JOIN_ASOF:
             case QueryModel.JOIN_LT:
             case QueryModel.JOIN_SPLICE:
+            case QueryModel.JOIN_WINDOW:
                 if (tok == null || !isOnKeyword(tok)) {
                     lexer.unparseLast();
                     break;
@@ -1401,6 +1540,23 @@ public final class SqlParser {
                 break;
         }
 
+        if (joinType == QueryModel.JOIN_ASOF) {
+            tok = optTok(lexer);
+            if (tok != null && isToleranceKeyword(tok)) {
+                tok = tok(lexer, "tolerance interval");
+                final int pos = lexer.lastTokenPosition();
+                final long tolerance = SqlUtil.expectMicros(tok, pos);
+                if (tolerance < 1) {
+                    throw SqlException.$(pos, "tolerance must be positive");
+                }
+                joinModel.setAsOfJoinTolerance(tolerance);
+            } else {
+                lexer.unparseLast();
+            }
+        } else if (joinType == QueryModel.JOIN_WINDOW) {
+            parseWindowJoinRange(lexer, joinModel);
+        }
+
         return joinModel;
     }
 
@@ -1565,6 +1721,18 @@ public final class SqlParser {
                         }
                     } while (Chars.equals(tok, ','));
                 }
+
+                if (isRowsKeyword(tok) || isRangeKeyword(tok)) {
+                    tok = parseAnalyticFrame(lexer, (AnalyticColumn) col, tok);
+                } else if (((AnalyticColumn) col).getOrderBy().size() > 0) {
+                    // ordered analytic without frame clause aggregates all rows up to the current one
+                    ((AnalyticColumn) col).setFrame(
+                            AnalyticColumn.FRAMING_RANGE,
+                            AnalyticColumn.FRAME_UNBOUNDED_PRECEDING,
+                            AnalyticColumn.FRAME_CURRENT_ROW,
+                            lexer.lastTokenPosition()
+                    );
+                }
                 expectTok(tok, lexer.lastTokenPosition(), ')');
                 tok = optTok(lexer);
 
@@ -1670,6 +1838,26 @@ public final class SqlParser {
     }
 
     @NotNull
+    private void parseWindowJoinRange(GenericLexer lexer, QueryModel joinModel) throws SqlException {
+        CharSequence tok = tok(lexer, "'range'");
+        if (!isRangeKeyword(tok)) {
+            throw SqlException.$(lexer.lastTokenPosition(), "'range' expected");
+        }
+        final int rangePosition = lexer.lastTokenPosition();
+        expectTok(lexer, "between");
+        final long lo = parseAnalyticFrameBound(lexer, AnalyticColumn.FRAMING_RANGE);
+        expectTok(lexer, "and");
+        final long hi = parseAnalyticFrameBound(lexer, AnalyticColumn.FRAMING_RANGE);
+        if (lo == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING || lo == AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING
+                || hi == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING || hi == AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING) {
+            throw SqlException.$(rangePosition, "window join range must be bounded");
+        }
+        if (lo > hi) {
+            throw SqlException.$(rangePosition, "range start cannot be after range end");
+        }
+        joinModel.setWindowJoinRange(lo, hi);
+    }
+
     private ExecutionModel parseWith(GenericLexer lexer) throws SqlException {
         parseWithClauses(lexer, topLevelWithModel);
         CharSequence tok = tok(lexer, "'select', 'update' or name expected");
@@ -1916,6 +2104,113 @@ public final class SqlParser {
         return tok;
     }
 
+    private CharSequence parseAnalyticFrame(GenericLexer lexer, AnalyticColumn col, CharSequence tok) throws SqlException {
+        final int framingMode = isRowsKeyword(tok) ? AnalyticColumn.FRAMING_ROWS : AnalyticColumn.FRAMING_RANGE;
+        final int framingPosition = lexer.lastTokenPosition();
+        final long lo;
+        final long hi;
+
+        tok = tok(lexer, "'between', 'unbounded', 'current' or integer");
+        if (isBetweenKeyword(tok)) {
+            lo = parseAnalyticFrameBound(lexer, framingMode);
+            expectTok(lexer, "and");
+            hi = parseAnalyticFrameBound(lexer, framingMode);
+        } else {
+            // short form, "ROWS 10 PRECEDING" is the same as "ROWS BETWEEN 10 PRECEDING AND CURRENT ROW"
+            lexer.unparseLast();
+            lo = parseAnalyticFrameBound(lexer, framingMode);
+            hi = AnalyticColumn.FRAME_CURRENT_ROW;
+        }
+
+        if (lo == AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING) {
+            throw SqlException.$(framingPosition, "frame start cannot be UNBOUNDED FOLLOWING");
+        }
+        if (hi == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING) {
+            throw SqlException.$(framingPosition, "frame end cannot be UNBOUNDED PRECEDING");
+        }
+        if (lo > hi) {
+            throw SqlException.$(framingPosition, "frame start cannot be after frame end");
+        }
+        col.setFrame(framingMode, lo, hi, framingPosition);
+        return tokIncludingLocalBrace(lexer, "')'");
+    }
+
+    private long parseAnalyticFrameBound(GenericLexer lexer, int framingMode) throws SqlException {
+        CharSequence tok = tok(lexer, "'unbounded', 'current' or integer");
+        if (isUnboundedKeyword(tok)) {
+            tok = tok(lexer, "'preceding' or 'following'");
+            if (isPrecedingKeyword(tok)) {
+                return AnalyticColumn.FRAME_UNBOUNDED_PRECEDING;
+            }
+            if (isFollowingKeyword(tok)) {
+                return AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING;
+            }
+            throw SqlException.$(lexer.lastTokenPosition(), "'preceding' or 'following' expected");
+        }
+
+        if (isCurrentKeyword(tok)) {
+            tok = tok(lexer, "'row'");
+            if (isRowKeyword(tok)) {
+                return AnalyticColumn.FRAME_CURRENT_ROW;
+            }
+            throw SqlException.$(lexer.lastTokenPosition(), "'row' expected");
+        }
+
+        final int offsetPosition = lexer.lastTokenPosition();
+        long offset;
+        try {
+            offset = Numbers.parseLong(tok);
+        } catch (NumericException e) {
+            throw SqlException.$(offsetPosition, "non-negative integer expected");
+        }
+
+        tok = tok(lexer, "'preceding' or 'following'");
+        if (framingMode == AnalyticColumn.FRAMING_RANGE) {
+            // range offsets are in designated timestamp units unless time unit is given
+            final long unitMicros = rangeUnitMicros(tok);
+            if (unitMicros > 0) {
+                if (offset > Long.MAX_VALUE / unitMicros) {
+                    throw SqlException.$(offsetPosition, "frame offset is too large");
+                }
+                offset *= unitMicros;
+                tok = tok(lexer, "'preceding' or 'following'");
+            }
+        }
+
+        if (isPrecedingKeyword(tok)) {
+            return -offset;
+        }
+        if (isFollowingKeyword(tok)) {
+            return offset;
+        }
+        throw SqlException.$(lexer.lastTokenPosition(), "'preceding' or 'following' expected");
+    }
+
+    private static long rangeUnitMicros(CharSequence tok) {
+        if (isMicrosecondsKeyword(tok)) {
+            return 1;
+        }
+        if (isMillisecondsKeyword(tok)) {
+            return Timestamps.MILLI_MICROS;
+        }
+        if (isSecondKeyword(tok)) {
+            return Timestamps.SECOND_MICROS;
+        }
+        if (isMinuteKeyword(tok)) {
+            return Timestamps.MINUTE_MICROS;
+        }
+        if (isHourKeyword(tok)) {
+            return Timestamps.HOUR_MICROS;
+        }
+        if (isDayKeyword(tok)) {
+            return Timestamps.DAY_MICROS;
+        }
+        if (isWeekKeyword(tok)) {
+            return Timestamps.WEEK_MICROS;
+        }
+        return 0;
+    }
+
     private CharSequence setModelAliasAndTimestamp(GenericLexer lexer, QueryModel model) throws SqlException {
         CharSequence tok;
         tok = setModelAliasAndGetOptTok(lexer, model);
@@ -1997,6 +2292,9 @@ public final class SqlParser {
         tableAliasStop.add("except");
         tableAliasStop.add("intersect");
         tableAliasStop.add("from");
+        tableAliasStop.add("tolerance");
+        tableAliasStop.add("window");
+        tableAliasStop.add("range");
         //
         columnAliasStop.add("from");
         columnAliasStop.add(",");
@@ -2017,6 +2315,7 @@ public final class SqlParser {
         joinStartSet.put("asof", QueryModel.JOIN_ASOF);
         joinStartSet.put("splice", QueryModel.JOIN_SPLICE);
         joinStartSet.put("lt", QueryModel.JOIN_LT);
+        joinStartSet.put("window", QueryModel.JOIN_WINDOW);
         joinStartSet.put(",", QueryModel.JOIN_CROSS);
         //
         setOperations.add("union");
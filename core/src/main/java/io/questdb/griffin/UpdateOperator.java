@@ -28,6 +28,7 @@ import io.questdb.MessageBus;
 import io.questdb.cairo.*;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.*;
+import io.questdb.cairo.vm.MemoryCMRCodecImpl;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryCM;
 import io.questdb.cairo.vm.api.MemoryCMARW;
@@ -45,6 +46,7 @@ import java.io.Closeable;
 import static io.questdb.cairo.ColumnType.isVariableLength;
 import static io.questdb.cairo.TableUtils.dFile;
 import static io.questdb.cairo.TableUtils.iFile;
+import static io.questdb.cairo.TableUtils.zFile;
 
 public class UpdateOperator implements Closeable {
     private static final Log LOG = LogFactory.getLog(UpdateOperator.class);
@@ -591,7 +593,11 @@ public class UpdateOperator implements Closeable {
     private void openColumns(ObjList<? extends MemoryCM> columns, int partitionIndex, boolean forWrite) {
         long partitionTimestamp = tableWriter.getPartitionTimestamp(partitionIndex);
         long partitionNameTxn = tableWriter.getPartitionNameTxn(partitionIndex);
-        RecordMetadata metadata = tableWriter.getMetadata();
+        TableWriterMetadata metadata = tableWriter.getMetadata();
+        if (!forWrite) {
+            // Parquet partition is read from native files, it is converted back after commit
+            tableWriter.ensureNativePartition(partitionTimestamp);
+        }
         try {
             path.concat(tableWriter.getTableName());
             TableUtils.setPathForPartition(path, tableWriter.getPartitionBy(), partitionTimestamp, false);
@@ -645,7 +651,23 @@ public class UpdateOperator implements Closeable {
                     colMem.close();
                     assert !colMem.isOpen();
 
-                    if (forWrite || columnTop != -1) {
+                    if (
+                            !forWrite
+                                    && columnTop != -1
+                                    && metadata.getColumnCodec(columnIndex) != ColumnCodecs.NONE
+                                    && ff.exists(zFile(path.trimTo(pathTrimToLen), name, columnNameTxn))
+                    ) {
+                        // column of historic partition is compressed, source values are decoded into memory
+                        if (!(colMem instanceof MemoryCMRCodecImpl)) {
+                            colMem = new MemoryCMRCodecImpl();
+                            srcColumns.setQuick(2 * i, colMem);
+                        }
+                        colMem.of(ff, path, dataAppendPageSize, -1, MemoryTag.MMAP_UPDATE, fileOpenOpts);
+                    } else if (forWrite || columnTop != -1) {
+                        if (colMem instanceof MemoryCMRCodecImpl) {
+                            colMem = Vm.getCMRInstance();
+                            srcColumns.setQuick(2 * i, colMem);
+                        }
                         colMem.of(
                                 ff,
                                 dFile(path.trimTo(pathTrimToLen), name, columnNameTxn),
@@ -727,9 +749,17 @@ public class UpdateOperator implements Closeable {
                         TableUtils.txnPartitionConditionally(path, partitionNameTxn);
                         int pathPartitionLen = path.length();
                         TableUtils.dFile(path, columnName, columnVersion);
-                        if (!ff.remove(path.$())) {
+                        if (!ff.remove(path.$()) && ff.exists(path)) {
                             columnPurged = false;
                         }
+                        if (columnPurged && !ColumnType.isVariableLength(columnType)) {
+                            // codec compressed column version is stored in ".z" file instead of ".d"
+                            path.trimTo(pathPartitionLen);
+                            TableUtils.zFile(path, columnName, columnVersion);
+                            if (!ff.remove(path.$()) && ff.exists(path)) {
+                                columnPurged = false;
+                            }
+                        }
                         if (columnPurged && ColumnType.isVariableLength(columnType)) {
                             path.trimTo(pathPartitionLen);
                             TableUtils.iFile(path, columnName, columnVersion);
@@ -738,6 +768,13 @@ public class UpdateOperator implements Closeable {
                                 columnPurged = false;
                             }
                         }
+                        if (columnPurged && ZoneMaps.isSupported(columnType)) {
+                            path.trimTo(pathPartitionLen);
+                            TableUtils.zmFile(path, columnName, columnVersion);
+                            if (!ff.remove(path.$()) && ff.exists(path)) {
+                                columnPurged = false;
+                            }
+                        }
                         if (columnPurged && writerMetadata.isColumnIndexed(columnIndex)) {
                             path.trimTo(pathPartitionLen);
                             BitmapIndexUtils.valueFileName(path, columnName, columnVersion);
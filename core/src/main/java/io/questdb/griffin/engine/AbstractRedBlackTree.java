@@ -24,6 +24,8 @@
 
 package io.questdb.griffin.engine;
 
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.vm.Vm;
 import io.questdb.std.MemoryPages;
 import io.questdb.std.Misc;
 import io.questdb.std.Mutable;
@@ -52,6 +54,11 @@ public abstract class AbstractRedBlackTree implements Mutable, Closeable {
         this.mem = new MemoryPages(keyPageSize, keyMaxPages);
     }
 
+    public AbstractRedBlackTree(CairoConfiguration configuration, long keyPageSize, int keyMaxPages) {
+        assert keyPageSize >= getBlockSize();
+        this.mem = new MemoryPages(keyPageSize, keyMaxPages, Vm.getSpillFile(configuration, keyPageSize, keyMaxPages));
+    }
+
     @Override
     public void clear() {
         root = -1;
@@ -37,5 +37,27 @@ public interface AnalyticContext {
 
     boolean isOrdered();
 
+    /**
+     * @return either {@link io.questdb.griffin.model.AnalyticColumn#FRAMING_ROWS} or
+     * {@link io.questdb.griffin.model.AnalyticColumn#FRAMING_RANGE}
+     */
+    int getFramingMode();
+
+    /**
+     * @return frame start relative to the current row, in rows or in timestamp units depending on framing mode
+     */
+    long getRowsLo();
+
+    /**
+     * @return frame end relative to the current row, in rows or in timestamp units depending on framing mode
+     */
+    long getRowsHi();
+
+    /**
+     * @return index of the timestamp column analytic is ordered by, in records the function is evaluated over,
+     * or -1 when the order is not by timestamp
+     */
+    int getTimestampIndex();
+
     boolean baseSupportsRandomAccess();
 }
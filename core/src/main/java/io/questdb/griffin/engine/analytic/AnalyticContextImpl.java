@@ -36,6 +36,10 @@ public class AnalyticContextImpl implements AnalyticContext {
     private ColumnTypes partitionByKeyTypes;
     private boolean ordered;
     private boolean baseSupportsRandomAccess;
+    private int framingMode;
+    private long rowsLo;
+    private long rowsHi;
+    private int timestampIndex;
 
     @Override
     public VirtualRecord getPartitionByRecord() {
@@ -57,6 +61,26 @@ public class AnalyticContextImpl implements AnalyticContext {
         return ordered;
     }
 
+    @Override
+    public int getFramingMode() {
+        return framingMode;
+    }
+
+    @Override
+    public long getRowsLo() {
+        return rowsLo;
+    }
+
+    @Override
+    public long getRowsHi() {
+        return rowsHi;
+    }
+
+    @Override
+    public int getTimestampIndex() {
+        return timestampIndex;
+    }
+
     @Override
     public boolean baseSupportsRandomAccess() {
         return baseSupportsRandomAccess;
@@ -67,12 +91,20 @@ public class AnalyticContextImpl implements AnalyticContext {
             @Nullable RecordSink partitionBySink,
             @Transient @Nullable ColumnTypes partitionByKeyTypes,
             boolean ordered,
-            boolean baseSupportsRandomAccess
+            boolean baseSupportsRandomAccess,
+            int framingMode,
+            long rowsLo,
+            long rowsHi,
+            int timestampIndex
     ) {
         this.partitionByRecord = partitionByRecord;
         this.partitionBySink = partitionBySink;
         this.partitionByKeyTypes = partitionByKeyTypes;
         this.ordered = ordered;
         this.baseSupportsRandomAccess = baseSupportsRandomAccess;
+        this.framingMode = framingMode;
+        this.rowsLo = rowsLo;
+        this.rowsHi = rowsHi;
+        this.timestampIndex = timestampIndex;
     }
 }
@@ -34,11 +34,26 @@ public interface AnalyticFunction extends Function {
     int TWO_PASS = 2;
     int THREE_PASS = 3;
 
+    /**
+     * Computes function value for the next record of the partition when records arrive in the order
+     * analytic is defined over. The value is then returned by the function getters until the next call.
+     * Only called for functions, which report {@link #STREAM} pass count.
+     *
+     * @param record next record
+     */
+    void computeNext(Record record);
+
+    /**
+     * @return {@link #STREAM} when function value depends only on the current and preceding records,
+     * so that the function can be computed in a single pass, {@link #TWO_PASS} otherwise
+     */
+    int getPassCount();
+
     void pass1(Record record, long recordOffset, AnalyticSPI spi);
 
     void preparePass2(RecordCursor cursor);
 
-    void pass2(Record record);
+    void pass2(Record record, long recordOffset, AnalyticSPI spi);
 
     void reset();
 
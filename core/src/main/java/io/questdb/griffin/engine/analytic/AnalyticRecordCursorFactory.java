@@ -0,0 +1,143 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.analytic;
+
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.AbstractVirtualFunctionRecordCursor;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+
+/**
+ * Computes analytic functions in a single pass over the base cursor. This is only possible when
+ * base cursor already delivers records in the order all the functions are defined over and each of
+ * the functions can be computed from the current and preceding records. Memory use is then
+ * bound by the function frames rather than by the size of the base result.
+ */
+public class AnalyticRecordCursorFactory extends AbstractRecordCursorFactory {
+    private final RecordCursorFactory base;
+    private final ObjList<Function> functions;
+    private final AnalyticRecordCursor cursor;
+
+    /**
+     * @param metadata           metadata of the factory
+     * @param base               base factory
+     * @param functions          function for each column of the factory, analytic functions as well
+     *                           as base column references
+     * @param analyticFunctions  analytic subset of the functions in the order they have to be computed
+     */
+    public AnalyticRecordCursorFactory(
+            RecordMetadata metadata,
+            RecordCursorFactory base,
+            ObjList<Function> functions,
+            ObjList<AnalyticFunction> analyticFunctions
+    ) {
+        super(metadata);
+        this.base = base;
+        this.functions = functions;
+        this.cursor = new AnalyticRecordCursor(functions, analyticFunctions);
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(functions);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final RecordCursor baseCursor = base.getCursor(executionContext);
+        try {
+            Function.init(functions, baseCursor, executionContext);
+            cursor.of(baseCursor);
+            return cursor;
+        } catch (Throwable th) {
+            baseCursor.close();
+            throw th;
+        }
+    }
+
+    @Override
+    public boolean hasDescendingOrder() {
+        return base.hasDescendingOrder();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public boolean usesCompiledFilter() {
+        return base.usesCompiledFilter();
+    }
+
+    private static class AnalyticRecordCursor extends AbstractVirtualFunctionRecordCursor {
+        private final ObjList<AnalyticFunction> analyticFunctions;
+        private Record baseRecord;
+
+        public AnalyticRecordCursor(ObjList<Function> functions, ObjList<AnalyticFunction> analyticFunctions) {
+            super(functions, false);
+            this.analyticFunctions = analyticFunctions;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (baseCursor.hasNext()) {
+                for (int i = 0, n = analyticFunctions.size(); i < n; i++) {
+                    analyticFunctions.getQuick(i).computeNext(baseRecord);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void of(RecordCursor cursor) {
+            super.of(cursor);
+            baseRecord = cursor.getRecord();
+            resetFunctions();
+        }
+
+        @Override
+        public void toTop() {
+            super.toTop();
+            resetFunctions();
+        }
+
+        private void resetFunctions() {
+            for (int i = 0, n = analyticFunctions.size(); i < n; i++) {
+                analyticFunctions.getQuick(i).reset();
+            }
+        }
+    }
+}
@@ -30,10 +30,12 @@ import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
 import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.sql.SymbolTable;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.griffin.engine.RecordComparator;
 import io.questdb.griffin.engine.orderby.LongTreeChain;
+import io.questdb.std.IntList;
 import io.questdb.std.Misc;
 import io.questdb.std.ObjList;
 import io.questdb.std.Transient;
@@ -42,14 +44,17 @@ import org.jetbrains.annotations.Nullable;
 public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
     private final RecordChain recordChain;
     private final RecordCursorFactory base;
+    private final IntList baseColumnIndexes;
     private final ObjList<LongTreeChain> orderedSources;
     private final int orderedGroupCount;
     private final ObjList<ObjList<AnalyticFunction>> orderedFunctions;
     @Nullable private final ObjList<AnalyticFunction> unorderedFunctions;
     private final ObjList<AnalyticFunction> allFunctions;
+    private final ObjList<AnalyticFunction> twoPassFunctions;
     private final ObjList<RecordComparator> comparators;
     private final GenericRecordMetadata metadata;
     private final Record recordChainRecord;
+    private final CachedAnalyticRecordCursor cursor = new CachedAnalyticRecordCursor();
     private boolean closed = false;
 
     public CachedAnalyticRecordCursorFactory(
@@ -58,17 +63,20 @@ public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
             RecordSink recordSink,
             GenericRecordMetadata metadata,
             @Transient ColumnTypes chainMetadata,
+            IntList baseColumnIndexes,
             ObjList<RecordComparator> comparators,
             ObjList<ObjList<AnalyticFunction>> orderedFunctions,
             @Nullable ObjList<AnalyticFunction> unorderedFunctions
     ) {
         this.base = base;
+        this.baseColumnIndexes = baseColumnIndexes;
         this.orderedGroupCount = comparators.size();
         assert orderedGroupCount == orderedFunctions.size();
         this.orderedSources = new ObjList<>(orderedGroupCount);
         this.orderedFunctions = orderedFunctions;
         this.comparators = comparators;
         this.recordChain = new RecordChain(
+                configuration,
                 chainMetadata,
                 recordSink,
                 configuration.getSqlAnalyticStorePageSize(),
@@ -79,6 +87,7 @@ public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
         for (int i = 0; i < orderedGroupCount; i++) {
             orderedSources.add(
                     new LongTreeChain(
+                            configuration,
                             configuration.getSqlAnalyticTreeKeyPageSize(),
                             configuration.getSqlAnalyticTreeKeyMaxPages(),
                             configuration.getSqlAnalyticRowIdPageSize(),
@@ -95,6 +104,14 @@ public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
             allFunctions.addAll(unorderedFunctions);
         }
 
+        this.twoPassFunctions = new ObjList<>();
+        for (int i = 0, n = allFunctions.size(); i < n; i++) {
+            final AnalyticFunction f = allFunctions.getQuick(i);
+            if (f.getPassCount() > AnalyticFunction.STREAM) {
+                twoPassFunctions.add(f);
+            }
+        }
+
         // create our metadata and also flatten functions for our record representation
         this.metadata = metadata;
         this.recordChainRecord = recordChain.getRecord();
@@ -120,6 +137,18 @@ public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
         resetFunctions();
 
         final RecordCursor baseCursor = base.getCursor(executionContext);
+        try {
+            cursor.of(baseCursor);
+            recordChain.setSymbolTableResolver(cursor);
+            populate(baseCursor);
+        } catch (Throwable th) {
+            cursor.close();
+            throw th;
+        }
+        return cursor;
+    }
+
+    private void populate(RecordCursor baseCursor) {
 
         // step #1: store source cursor in record list
         // - add record list' row ids to all trees, which will put these row ids in necessary order
@@ -170,8 +199,22 @@ public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
             }
         }
 
+        // run pass2 for functions, which have to see all records of partition before
+        // values for any of them can be written
+        final int twoPassFunctionCount = twoPassFunctions.size();
+        if (twoPassFunctionCount > 0) {
+            for (int j = 0; j < twoPassFunctionCount; j++) {
+                twoPassFunctions.getQuick(j).preparePass2(recordChain);
+            }
+            recordChain.toTop();
+            while (recordChain.hasNext()) {
+                for (int j = 0; j < twoPassFunctionCount; j++) {
+                    twoPassFunctions.getQuick(j).pass2(recordChainRecord, recordChainRecord.getRowId(), recordChain);
+                }
+            }
+        }
+
         recordChain.toTop();
-        return recordChain;
     }
 
     private void resetFunctions() {
@@ -200,4 +243,58 @@ public class CachedAnalyticRecordCursorFactory implements RecordCursorFactory {
     public boolean usesCompiledFilter() {
         return base.usesCompiledFilter();
     }
+
+    private class CachedAnalyticRecordCursor implements RecordCursor {
+        private RecordCursor baseCursor;
+
+        @Override
+        public void close() {
+            baseCursor = Misc.free(baseCursor);
+            recordChain.clear();
+        }
+
+        @Override
+        public Record getRecord() {
+            return recordChain.getRecord();
+        }
+
+        @Override
+        public Record getRecordB() {
+            return recordChain.getRecordB();
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            return baseCursor.getSymbolTable(baseColumnIndexes.getQuick(columnIndex));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return recordChain.hasNext();
+        }
+
+        @Override
+        public SymbolTable newSymbolTable(int columnIndex) {
+            return baseCursor.newSymbolTable(baseColumnIndexes.getQuick(columnIndex));
+        }
+
+        @Override
+        public void recordAt(Record record, long atRowId) {
+            recordChain.recordAt(record, atRowId);
+        }
+
+        @Override
+        public long size() {
+            return recordChain.size();
+        }
+
+        @Override
+        public void toTop() {
+            recordChain.toTop();
+        }
+
+        void of(RecordCursor baseCursor) {
+            this.baseCursor = baseCursor;
+        }
+    }
 }
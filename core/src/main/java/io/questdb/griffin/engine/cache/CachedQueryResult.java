@@ -0,0 +1,383 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.cache;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.cairo.vm.api.MemoryCR;
+import io.questdb.std.*;
+import io.questdb.std.str.CharSink;
+
+import java.io.Closeable;
+
+/**
+ * Materialised query result. Rows are kept in fixed-size slots, one slot per row, and values of
+ * variable length columns live in separate memory, slots hold their offsets. Symbols are stored
+ * as strings.
+ * <p>
+ * Result is written once, by the cursor that executes the query, and is read-only once published
+ * to {@link QueryResultCache}. Published result can be read concurrently by any number of
+ * {@link ResultRecord} instances because all record state, including string and binary
+ * flyweights, belongs to the record.
+ */
+public class CachedQueryResult implements Closeable, Mutable {
+    private static final long PAGE_SIZE = 16 * 1024;
+    private final int[] columnTypes;
+    private final long[] columnOffsets;
+    private final long rowSize;
+    private final long maxSize;
+    private final MemoryCARW rows;
+    private final MemoryCARW vars;
+    private final LongList tableVersions = new LongList();
+    private long rowCount;
+    // state below is guarded by the cache
+    private long lastUsed;
+    private int refCount;
+
+    public CachedQueryResult(RecordMetadata metadata, long maxSize) {
+        final int columnCount = metadata.getColumnCount();
+        this.columnTypes = new int[columnCount];
+        this.columnOffsets = new long[columnCount];
+        long offset = 0;
+        for (int i = 0; i < columnCount; i++) {
+            final int type = metadata.getColumnType(i);
+            columnTypes[i] = type;
+            columnOffsets[i] = offset;
+            offset += slotSize(type);
+        }
+        this.rowSize = offset;
+        this.maxSize = maxSize;
+        this.rows = Vm.getCARWInstance(PAGE_SIZE, Integer.MAX_VALUE, MemoryTag.NATIVE_QUERY_RESULT_CACHE);
+        this.vars = Vm.getCARWInstance(PAGE_SIZE, Integer.MAX_VALUE, MemoryTag.NATIVE_QUERY_RESULT_CACHE);
+    }
+
+    public static boolean isSupported(RecordMetadata metadata) {
+        for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+            if (slotSize(metadata.getColumnType(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies record values to the end of the result.
+     *
+     * @return false when result outgrew max size, it must not be cached
+     */
+    public boolean append(Record record) {
+        for (int i = 0, n = columnTypes.length; i < n; i++) {
+            final int type = columnTypes[i];
+            switch (ColumnType.tagOf(type)) {
+                case ColumnType.BOOLEAN:
+                    rows.putBool(record.getBool(i));
+                    break;
+                case ColumnType.BYTE:
+                    rows.putByte(record.getByte(i));
+                    break;
+                case ColumnType.GEOBYTE:
+                    rows.putByte(record.getGeoByte(i));
+                    break;
+                case ColumnType.SHORT:
+                    rows.putShort(record.getShort(i));
+                    break;
+                case ColumnType.GEOSHORT:
+                    rows.putShort(record.getGeoShort(i));
+                    break;
+                case ColumnType.CHAR:
+                    rows.putChar(record.getChar(i));
+                    break;
+                case ColumnType.INT:
+                    rows.putInt(record.getInt(i));
+                    break;
+                case ColumnType.GEOINT:
+                    rows.putInt(record.getGeoInt(i));
+                    break;
+                case ColumnType.LONG:
+                    rows.putLong(record.getLong(i));
+                    break;
+                case ColumnType.GEOLONG:
+                    rows.putLong(record.getGeoLong(i));
+                    break;
+                case ColumnType.DATE:
+                    rows.putLong(record.getDate(i));
+                    break;
+                case ColumnType.TIMESTAMP:
+                    rows.putLong(record.getTimestamp(i));
+                    break;
+                case ColumnType.FLOAT:
+                    rows.putFloat(record.getFloat(i));
+                    break;
+                case ColumnType.DOUBLE:
+                    rows.putDouble(record.getDouble(i));
+                    break;
+                case ColumnType.LONG256:
+                    final Long256 long256 = record.getLong256A(i);
+                    rows.putLong256(long256.getLong0(), long256.getLong1(), long256.getLong2(), long256.getLong3());
+                    break;
+                case ColumnType.STRING:
+                    rows.putLong(vars.getAppendOffset());
+                    vars.putStr(record.getStr(i));
+                    break;
+                case ColumnType.SYMBOL:
+                    rows.putLong(vars.getAppendOffset());
+                    vars.putStr(record.getSym(i));
+                    break;
+                default:
+                    assert ColumnType.tagOf(type) == ColumnType.BINARY;
+                    rows.putLong(vars.getAppendOffset());
+                    vars.putBin(record.getBin(i));
+                    break;
+            }
+        }
+        rowCount++;
+        return getSize() <= maxSize;
+    }
+
+    @Override
+    public void clear() {
+        // memory is released, it is re-allocated on first append
+        rows.close();
+        vars.close();
+        rowCount = 0;
+        tableVersions.clear();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getSize() {
+        return rows.size() + vars.size();
+    }
+
+    public LongList getTableVersions() {
+        return tableVersions;
+    }
+
+    int acquire(long tick) {
+        lastUsed = tick;
+        return ++refCount;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    int release() {
+        return --refCount;
+    }
+
+    private static int slotSize(int type) {
+        switch (ColumnType.tagOf(type)) {
+            case ColumnType.BOOLEAN:
+            case ColumnType.BYTE:
+            case ColumnType.GEOBYTE:
+                return Byte.BYTES;
+            case ColumnType.SHORT:
+            case ColumnType.GEOSHORT:
+            case ColumnType.CHAR:
+                return Short.BYTES;
+            case ColumnType.INT:
+            case ColumnType.GEOINT:
+            case ColumnType.FLOAT:
+                return Integer.BYTES;
+            case ColumnType.LONG:
+            case ColumnType.GEOLONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.DOUBLE:
+                return Long.BYTES;
+            case ColumnType.LONG256:
+                return Long256.BYTES;
+            case ColumnType.STRING:
+            case ColumnType.SYMBOL:
+            case ColumnType.BINARY:
+                // offset of the value in var memory
+                return Long.BYTES;
+            default:
+                return -1;
+        }
+    }
+
+    public class ResultRecord implements Record {
+        private final MemoryCR.CharSequenceView csviewA = new MemoryCR.CharSequenceView();
+        private final MemoryCR.CharSequenceView csviewB = new MemoryCR.CharSequenceView();
+        private final MemoryCR.ByteSequenceView bsview = new MemoryCR.ByteSequenceView();
+        private final Long256Impl long256A = new Long256Impl();
+        private final Long256Impl long256B = new Long256Impl();
+        private long row;
+        private long rowOffset;
+
+        @Override
+        public BinarySequence getBin(int col) {
+            return vars.getBin(varOffset(col), bsview);
+        }
+
+        @Override
+        public long getBinLen(int col) {
+            return vars.getBinLen(varOffset(col));
+        }
+
+        @Override
+        public boolean getBool(int col) {
+            return rows.getBool(fixOffset(col));
+        }
+
+        @Override
+        public byte getByte(int col) {
+            return rows.getByte(fixOffset(col));
+        }
+
+        @Override
+        public char getChar(int col) {
+            return rows.getChar(fixOffset(col));
+        }
+
+        @Override
+        public long getDate(int col) {
+            return rows.getLong(fixOffset(col));
+        }
+
+        @Override
+        public double getDouble(int col) {
+            return rows.getDouble(fixOffset(col));
+        }
+
+        @Override
+        public float getFloat(int col) {
+            return rows.getFloat(fixOffset(col));
+        }
+
+        @Override
+        public byte getGeoByte(int col) {
+            return rows.getByte(fixOffset(col));
+        }
+
+        @Override
+        public int getGeoInt(int col) {
+            return rows.getInt(fixOffset(col));
+        }
+
+        @Override
+        public long getGeoLong(int col) {
+            return rows.getLong(fixOffset(col));
+        }
+
+        @Override
+        public short getGeoShort(int col) {
+            return rows.getShort(fixOffset(col));
+        }
+
+        @Override
+        public int getInt(int col) {
+            return rows.getInt(fixOffset(col));
+        }
+
+        @Override
+        public long getLong(int col) {
+            return rows.getLong(fixOffset(col));
+        }
+
+        @Override
+        public void getLong256(int col, CharSink sink) {
+            rows.getLong256(fixOffset(col), sink);
+        }
+
+        @Override
+        public Long256 getLong256A(int col) {
+            rows.getLong256(fixOffset(col), long256A);
+            return long256A;
+        }
+
+        @Override
+        public Long256 getLong256B(int col) {
+            rows.getLong256(fixOffset(col), long256B);
+            return long256B;
+        }
+
+        @Override
+        public long getRowId() {
+            return row;
+        }
+
+        @Override
+        public short getShort(int col) {
+            return rows.getShort(fixOffset(col));
+        }
+
+        @Override
+        public CharSequence getStr(int col) {
+            return vars.getStr(varOffset(col), csviewA);
+        }
+
+        @Override
+        public CharSequence getStrB(int col) {
+            return vars.getStr(varOffset(col), csviewB);
+        }
+
+        @Override
+        public int getStrLen(int col) {
+            return vars.getStrLen(varOffset(col));
+        }
+
+        @Override
+        public CharSequence getSym(int col) {
+            return getStr(col);
+        }
+
+        @Override
+        public CharSequence getSymB(int col) {
+            return getStrB(col);
+        }
+
+        @Override
+        public long getTimestamp(int col) {
+            return rows.getLong(fixOffset(col));
+        }
+
+        void of(long row) {
+            this.row = row;
+            this.rowOffset = row * rowSize;
+        }
+
+        private long fixOffset(int col) {
+            return rowOffset + columnOffsets[col];
+        }
+
+        private long varOffset(int col) {
+            return rows.getLong(fixOffset(col));
+        }
+    }
+}
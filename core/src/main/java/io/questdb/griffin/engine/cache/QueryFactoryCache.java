@@ -0,0 +1,232 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.cache;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Server-wide cache of compiled SELECT factories, shared by HTTP and PostgreSQL wire
+ * protocol connections. Factories are stateful, so the cache keeps idle instances only:
+ * {@link #poll(CharSequence, int, IntList)} checks instance out and the caller owns it until
+ * it is checked back in via {@link #push(CharSequence, int, RecordCursorFactory, IntList)}.
+ * Concurrent executions of the same query check out separate instances.
+ * <p>
+ * Every instance remembers types of bind variables and number of workers it was compiled
+ * with, the latter sizes per-worker state of parallel factories. Instances are
+ * not re-validated on check out, factory compiled against old table metadata throws
+ * {@link io.questdb.cairo.sql.ReaderOutOfDateException} from getCursor(). The caller then
+ * recompiles and should {@link #remove(CharSequence)} idle siblings of the stale instance.
+ * <p>
+ * Least recently checked in instances are freed once cache holds more than configured
+ * number of instances.
+ */
+public class QueryFactoryCache implements Closeable, Mutable {
+    private static final Log LOG = LogFactory.getLog(QueryFactoryCache.class);
+    private final CharSequenceObjHashMap<ObjList<Entry>> entries = new CharSequenceObjHashMap<>();
+    private final ObjList<Entry> spareEntries = new ObjList<>();
+    private final ObjList<ObjList<Entry>> spareLists = new ObjList<>();
+    private final int capacity;
+    private int size;
+    private long tick;
+
+    public QueryFactoryCache(CairoConfiguration configuration) {
+        this.capacity = configuration.getSqlFactoryCacheCapacity();
+    }
+
+    @Override
+    public synchronized void clear() {
+        final ObjList<CharSequence> keys = entries.keys();
+        for (int i = 0, n = keys.size(); i < n; i++) {
+            freeAll(entries.get(keys.getQuick(i)));
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Checks out idle factory of the query.
+     *
+     * @param sql               query text
+     * @param workerCount       worker count of the caller's execution context
+     * @param bindVariableTypes receives types of bind variables the factory was compiled with;
+     *                          when null, only factories without bind variables are returned
+     * @return factory owned by the caller or null when there is no idle instance
+     */
+    public synchronized RecordCursorFactory poll(CharSequence sql, int workerCount, @Nullable IntList bindVariableTypes) {
+        final int index = entries.keyIndex(sql);
+        if (index > -1) {
+            return null;
+        }
+        final ObjList<Entry> list = entries.valueAt(index);
+        // most recently used instances are at the end of the list
+        for (int i = list.size() - 1; i > -1; i--) {
+            final Entry entry = list.getQuick(i);
+            if (entry.workerCount != workerCount || (bindVariableTypes == null && entry.bindVariableTypes.size() > 0)) {
+                continue;
+            }
+            if (bindVariableTypes != null) {
+                bindVariableTypes.clear();
+                bindVariableTypes.addAll(entry.bindVariableTypes);
+            }
+            list.remove(i);
+            size--;
+            if (list.size() == 0) {
+                entries.removeAt(index);
+                spareLists.add(list);
+            }
+            final RecordCursorFactory factory = entry.factory;
+            recycle(entry);
+            return factory;
+        }
+        return null;
+    }
+
+    /**
+     * Checks in factory, the cache takes ownership of it. When cache is full, least recently
+     * checked in factory is freed, which may be this factory.
+     *
+     * @param sql               query text the factory was compiled from
+     * @param workerCount       worker count of execution context the factory was compiled with
+     * @param factory           factory, which is not used by the caller anymore
+     * @param bindVariableTypes types of bind variables the factory was compiled with, can be null
+     */
+    public synchronized void push(CharSequence sql, int workerCount, RecordCursorFactory factory, @Nullable IntList bindVariableTypes) {
+        if (capacity < 1) {
+            Misc.free(factory);
+            return;
+        }
+
+        if (size == capacity) {
+            evictLeastRecentlyUsed();
+        }
+
+        final int index = entries.keyIndex(sql);
+        final ObjList<Entry> list;
+        if (index < 0) {
+            list = entries.valueAt(index);
+        } else {
+            list = spareLists.size() > 0 ? pop(spareLists) : new ObjList<>();
+            entries.putAt(index, Chars.toString(sql), list);
+        }
+
+        final Entry entry = spareEntries.size() > 0 ? pop(spareEntries) : new Entry();
+        entry.factory = factory;
+        entry.workerCount = workerCount;
+        entry.lastUsed = ++tick;
+        if (bindVariableTypes != null) {
+            entry.bindVariableTypes.addAll(bindVariableTypes);
+        }
+        list.add(entry);
+        size++;
+    }
+
+    /**
+     * Frees all idle factories of the query. This is used when checked out instance turns out
+     * to be compiled against old table metadata, its idle siblings are out of date too.
+     */
+    public synchronized void remove(CharSequence sql) {
+        final int index = entries.keyIndex(sql);
+        if (index < 0) {
+            final ObjList<Entry> list = entries.valueAt(index);
+            LOG.info().$("removing [count=").$(list.size()).$(", sql=").utf8(sql).I$();
+            size -= list.size();
+            freeAll(list);
+            entries.removeAt(index);
+            spareLists.add(list);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        final ObjList<CharSequence> keys = entries.keys();
+        CharSequence lruKey = null;
+        long lruTick = Long.MAX_VALUE;
+        for (int i = 0, n = keys.size(); i < n; i++) {
+            final CharSequence key = keys.getQuick(i);
+            final ObjList<Entry> list = entries.get(key);
+            // lists are never empty and entries are appended on check in, so the first entry is the oldest
+            if (list.getQuick(0).lastUsed < lruTick) {
+                lruTick = list.getQuick(0).lastUsed;
+                lruKey = key;
+            }
+        }
+        assert lruKey != null;
+        final ObjList<Entry> list = entries.get(lruKey);
+        final Entry entry = list.getQuick(0);
+        LOG.debug().$("evicting [sql=").utf8(lruKey).I$();
+        Misc.free(entry.factory);
+        recycle(entry);
+        list.remove(0);
+        size--;
+        if (list.size() == 0) {
+            entries.remove(lruKey);
+            spareLists.add(list);
+        }
+    }
+
+    private static <T> T pop(ObjList<T> list) {
+        final int last = list.size() - 1;
+        final T value = list.getQuick(last);
+        list.remove(last);
+        return value;
+    }
+
+    private void freeAll(ObjList<Entry> list) {
+        for (int i = 0, n = list.size(); i < n; i++) {
+            final Entry entry = list.getQuick(i);
+            Misc.free(entry.factory);
+            recycle(entry);
+        }
+        list.clear();
+    }
+
+    private void recycle(Entry entry) {
+        entry.factory = null;
+        entry.bindVariableTypes.clear();
+        spareEntries.add(entry);
+    }
+
+    private static class Entry {
+        private final IntList bindVariableTypes = new IntList();
+        private RecordCursorFactory factory;
+        private long lastUsed;
+        private int workerCount;
+    }
+}
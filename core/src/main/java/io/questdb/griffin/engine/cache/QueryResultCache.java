@@ -0,0 +1,156 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.cache;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+
+import java.io.Closeable;
+
+/**
+ * Server-wide cache of SELECT results. Results are keyed on normalised query text and bind
+ * variable values, and each result remembers (table id, txn) of every table the query read.
+ * Result is served only while all of those tables are still at the same txn, so a commit to
+ * any of them invalidates it.
+ * <p>
+ * The cache holds a reference to every result it keeps, and so does every cursor that reads
+ * a result. Result that is evicted or replaced while being read is freed once the last cursor
+ * releases it. Least recently used results are evicted once total size of cached results
+ * exceeds the configured budget.
+ */
+public class QueryResultCache implements Closeable, Mutable {
+    private static final Log LOG = LogFactory.getLog(QueryResultCache.class);
+    private final CharSequenceObjHashMap<CachedQueryResult> results = new CharSequenceObjHashMap<>();
+    private final long maxSize;
+    private final long maxEntrySize;
+    private long size;
+    private long tick;
+
+    public QueryResultCache(CairoConfiguration configuration) {
+        this.maxSize = configuration.getSqlResultCacheSize();
+        this.maxEntrySize = configuration.getSqlResultCacheEntrySize();
+    }
+
+    /**
+     * Looks up result of the query.
+     *
+     * @param key           normalised query text and bind variable values
+     * @param tableVersions current (table id, txn) pairs of tables read by the query
+     * @return result to be released via {@link #release(CachedQueryResult)} or null when there is no
+     * result or cached result is out of date
+     */
+    public synchronized CachedQueryResult acquire(CharSequence key, LongList tableVersions) {
+        final CachedQueryResult result = results.get(key);
+        if (result != null && sameVersions(result.getTableVersions(), tableVersions)) {
+            result.acquire(++tick);
+            return result;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        final ObjList<CharSequence> keys = results.keys();
+        for (int i = 0, n = keys.size(); i < n; i++) {
+            release(results.get(keys.getQuick(i)));
+        }
+        results.clear();
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Publishes result. Result ownership is transferred to the cache, whatever was cached under the
+     * same key is replaced.
+     */
+    public synchronized void put(CharSequence key, CachedQueryResult result) {
+        final int index = results.keyIndex(key);
+        if (index < 0) {
+            final CachedQueryResult prev = results.valueAt(index);
+            size -= prev.getSize();
+            results.removeAt(index);
+            release(prev);
+        }
+        results.put(Chars.toString(key), result);
+        result.acquire(++tick);
+        size += result.getSize();
+
+        while (size > maxSize) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    static boolean sameVersions(LongList a, LongList b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0, n = a.size(); i < n; i++) {
+            if (a.getQuick(i) != b.getQuick(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void release(CachedQueryResult result) {
+        if (result.release() == 0) {
+            result.close();
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        final ObjList<CharSequence> keys = results.keys();
+        int lru = -1;
+        long lruTick = Long.MAX_VALUE;
+        for (int i = 0, n = keys.size(); i < n; i++) {
+            final long lastUsed = results.get(keys.getQuick(i)).getLastUsed();
+            if (lastUsed < lruTick) {
+                lruTick = lastUsed;
+                lru = i;
+            }
+        }
+        final CharSequence key = keys.getQuick(lru);
+        final CachedQueryResult result = results.get(key);
+        LOG.debug().$("evicting [size=").$(result.getSize()).$(", rows=").$(result.getRowCount()).I$();
+        size -= result.getSize();
+        results.remove(key);
+        release(result);
+    }
+}
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.cache;
+
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.LongList;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.str.StringSink;
+
+/**
+ * Serves query results from {@link QueryResultCache}. When there is no up-to-date result in
+ * the cache, base cursor rows are copied to a new result as they are read by the client. The
+ * result is published once the cursor is exhausted, providing none of the tables changed while
+ * the query was running. Results of cursors that are closed early or outgrow max result size
+ * are discarded.
+ */
+public class QueryResultCacheRecordCursorFactory extends AbstractRecordCursorFactory {
+    private static final char SEPARATOR = (char) 0;
+    private final RecordCursorFactory base;
+    private final CairoEngine engine;
+    private final QueryResultCache cache;
+    private final String query;
+    private final ObjList<String> tableNames;
+    private final StringSink key = new StringSink();
+    private final LongList tableVersions = new LongList();
+    private final LongList tableVersionsAfter = new LongList();
+    private final CachedRecordCursor cachedCursor = new CachedRecordCursor();
+    private final CachingRecordCursor cachingCursor = new CachingRecordCursor();
+    private CachedQueryResult result;
+
+    public QueryResultCacheRecordCursorFactory(
+            CairoEngine engine,
+            RecordCursorFactory base,
+            String query,
+            ObjList<String> tableNames
+    ) {
+        super(base.getMetadata());
+        this.base = base;
+        this.engine = engine;
+        this.cache = engine.getQueryResultCache();
+        this.query = query;
+        this.tableNames = tableNames;
+    }
+
+    @Override
+    public void close() {
+        result = Misc.free(result);
+        base.close();
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        if (!buildKey(executionContext.getBindVariableService())) {
+            return base.getCursor(executionContext);
+        }
+        readTableVersions(executionContext, tableVersions);
+        final CachedQueryResult cached = cache.acquire(key, tableVersions);
+        if (cached != null) {
+            cachedCursor.of(cached);
+            return cachedCursor;
+        }
+        cachingCursor.of(base.getCursor(executionContext), executionContext);
+        return cachingCursor;
+    }
+
+    @Override
+    public boolean hasDescendingOrder() {
+        return base.hasDescendingOrder();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return base.recordCursorSupportsRandomAccess();
+    }
+
+    @Override
+    public boolean usesCompiledFilter() {
+        return base.usesCompiledFilter();
+    }
+
+    private static boolean appendBindVariable(StringSink sink, Function function) {
+        final int type = function.getType();
+        sink.put(SEPARATOR).put(type).put(':');
+        switch (ColumnType.tagOf(type)) {
+            case ColumnType.BOOLEAN:
+                sink.put(function.getBool(null));
+                return true;
+            case ColumnType.BYTE:
+                sink.put(function.getByte(null));
+                return true;
+            case ColumnType.SHORT:
+                sink.put(function.getShort(null));
+                return true;
+            case ColumnType.CHAR:
+                sink.put(function.getChar(null));
+                return true;
+            case ColumnType.INT:
+                sink.put(function.getInt(null));
+                return true;
+            case ColumnType.LONG:
+                sink.put(function.getLong(null));
+                return true;
+            case ColumnType.DATE:
+                sink.put(function.getDate(null));
+                return true;
+            case ColumnType.TIMESTAMP:
+                sink.put(function.getTimestamp(null));
+                return true;
+            case ColumnType.FLOAT:
+                sink.put(Float.floatToRawIntBits(function.getFloat(null)));
+                return true;
+            case ColumnType.DOUBLE:
+                sink.put(Double.doubleToRawLongBits(function.getDouble(null)));
+                return true;
+            case ColumnType.STRING:
+                final CharSequence value = function.getStr(null);
+                if (value == null) {
+                    sink.put(-1);
+                } else {
+                    sink.put(value.length()).put(':').put(value);
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean buildKey(BindVariableService bindVariableService) {
+        key.clear();
+        key.put(query);
+        if (bindVariableService != null) {
+            for (int i = 0, n = bindVariableService.getIndexedVariableCount(); i < n; i++) {
+                final Function function = bindVariableService.getFunction(i);
+                if (function == null || !appendBindVariable(key, function)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void readTableVersions(SqlExecutionContext executionContext, LongList versions) {
+        versions.clear();
+        for (int i = 0, n = tableNames.size(); i < n; i++) {
+            try (TableReader reader = engine.getReader(executionContext.getCairoSecurityContext(), tableNames.getQuick(i))) {
+                versions.add(reader.getMetadata().getId());
+                versions.add(reader.getTxn());
+            }
+        }
+    }
+
+    private class CachedRecordCursor implements RecordCursor {
+        private CachedQueryResult result;
+        private CachedQueryResult.ResultRecord recordA;
+        private CachedQueryResult.ResultRecord recordB;
+        private long row;
+
+        @Override
+        public void close() {
+            if (result != null) {
+                cache.release(result);
+                result = null;
+            }
+        }
+
+        @Override
+        public Record getRecord() {
+            return recordA;
+        }
+
+        @Override
+        public Record getRecordB() {
+            return recordB;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (row < result.getRowCount()) {
+                recordA.of(row++);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void recordAt(Record record, long atRowId) {
+            ((CachedQueryResult.ResultRecord) record).of(atRowId);
+        }
+
+        @Override
+        public long size() {
+            return result.getRowCount();
+        }
+
+        @Override
+        public void toTop() {
+            row = 0;
+        }
+
+        void of(CachedQueryResult result) {
+            this.result = result;
+            // records are bound to the result, flyweights are per cursor
+            this.recordA = result.new ResultRecord();
+            this.recordB = result.new ResultRecord();
+            this.row = 0;
+        }
+    }
+
+    private class CachingRecordCursor implements RecordCursor {
+        private RecordCursor baseCursor;
+        private Record baseRecord;
+        private SqlExecutionContext executionContext;
+        private boolean caching;
+
+        @Override
+        public void close() {
+            baseCursor = Misc.free(baseCursor);
+            if (result != null) {
+                result.clear();
+            }
+        }
+
+        @Override
+        public Record getRecord() {
+            return baseRecord;
+        }
+
+        @Override
+        public Record getRecordB() {
+            return baseCursor.getRecordB();
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            return baseCursor.getSymbolTable(columnIndex);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (baseCursor.hasNext()) {
+                if (caching && !result.append(baseRecord)) {
+                    // too large to be cached
+                    caching = false;
+                    result.clear();
+                }
+                return true;
+            }
+            if (caching) {
+                caching = false;
+                publish();
+            }
+            return false;
+        }
+
+        @Override
+        public SymbolTable newSymbolTable(int columnIndex) {
+            return baseCursor.newSymbolTable(columnIndex);
+        }
+
+        @Override
+        public void recordAt(Record record, long atRowId) {
+            baseCursor.recordAt(record, atRowId);
+        }
+
+        @Override
+        public long size() {
+            return baseCursor.size();
+        }
+
+        @Override
+        public void toTop() {
+            baseCursor.toTop();
+            result.clear();
+            caching = true;
+        }
+
+        void of(RecordCursor baseCursor, SqlExecutionContext executionContext) {
+            this.baseCursor = baseCursor;
+            this.baseRecord = baseCursor.getRecord();
+            this.executionContext = executionContext;
+            if (result == null) {
+                result = new CachedQueryResult(getMetadata(), cache.getMaxEntrySize());
+            } else {
+                result.clear();
+            }
+            this.caching = true;
+        }
+
+        private void publish() {
+            try {
+                readTableVersions(executionContext, tableVersionsAfter);
+            } catch (CairoException e) {
+                // table has gone, result is of no use
+                result.clear();
+                return;
+            }
+            if (!QueryResultCache.sameVersions(tableVersionsAfter, tableVersions)) {
+                // the query may have read data of different transactions
+                result.clear();
+                return;
+            }
+            result.getTableVersions().add(tableVersions);
+            cache.put(key, result);
+            result = null;
+        }
+    }
+}
@@ -49,10 +49,58 @@ public interface GroupByFunction extends Function {
 
     void computeNext(MapValue mapValue, Record record);
 
+    /**
+     * Parallel group-by flavour of {@link #computeFirst(MapValue, Record)}. Row ids grow in
+     * the table scan order, functions that depend on row order keep them to be able to merge
+     * partial aggregates computed by different workers.
+     *
+     * @param mapValue map value to aggregate into
+     * @param record   record being aggregated
+     * @param rowId    row id of the record
+     */
+    default void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+    }
+
+    /**
+     * Parallel group-by flavour of {@link #computeNext(MapValue, Record)}.
+     *
+     * @param mapValue map value to aggregate into
+     * @param record   record being aggregated
+     * @param rowId    row id of the record
+     * @see #computeFirst(MapValue, Record, long)
+     */
+    default void computeNext(MapValue mapValue, Record record, long rowId) {
+        computeNext(mapValue, record);
+    }
+
     default boolean isScalar() {
         return true;
     }
 
+    /**
+     * Parallel group-by reduces page frames into per-worker maps, each with its own
+     * copy of this function, and then merges partial maps into a single one. Functions
+     * that return true here must implement {@link #merge(MapValue, MapValue, GroupByFunction)}.
+     *
+     * @return true when partial aggregates produced by this function can be merged
+     */
+    default boolean isParallelismSupported() {
+        return false;
+    }
+
+    /**
+     * Merges partial aggregate from source map value into the destination map value.
+     * Destination value can be new, in which case it has to be initialised from the source value.
+     *
+     * @param destValue   map value the partial aggregate is merged into
+     * @param srcValue    map value that holds partial aggregate
+     * @param srcFunction per-worker copy of this function that computed srcValue
+     */
+    default void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        throw new UnsupportedOperationException();
+    }
+
     void pushValueTypes(ArrayColumnTypes columnTypes);
 
     default void setByte(MapValue mapValue, byte value) {
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.SingleColumnType;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapFactory;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.griffin.engine.analytic.AnalyticFunction;
+import io.questdb.griffin.engine.functions.DoubleFunction;
+import io.questdb.griffin.model.AnalyticColumn;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Misc;
+import io.questdb.std.Unsafe;
+import io.questdb.std.Vect;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Base for analytic functions over double values and ROWS/RANGE frames ending at the current row.
+ * <p>
+ * Function state of each partition is a fixed size block in native memory, partition map
+ * only holds offset of the block. Frames with bounded start keep their rows in a ring buffer
+ * of (key, value) entries allocated from the same memory, where key is either row number
+ * within partition or timestamp, depending on framing mode. Rows are evicted from the ring
+ * once their key falls behind the frame start, so memory is proportional to the frame size
+ * rather than to the number of rows in the partition.
+ * <p>
+ * Frame that spans the whole partition cannot be computed in a single pass. Such functions
+ * aggregate all rows in pass 1 and write the result in pass 2.
+ */
+abstract class AbstractDoubleAnalyticFunction extends DoubleFunction implements AnalyticFunction, Closeable {
+    // ring buffer header, which is at the beginning of each state block
+    protected static final int STATE_RING_OFFSET = 0;
+    protected static final int STATE_RING_CAPACITY = 8;
+    protected static final int STATE_RING_HEAD = 16;
+    protected static final int STATE_RING_SIZE = 24;
+    protected static final int STATE_ROW_COUNT = 32;
+    // subclasses add their state slots starting at this offset
+    protected static final int STATE_HEADER_SIZE = 40;
+    private static final SingleColumnType LONG_COLUMN_TYPE = new SingleColumnType(ColumnType.LONG);
+    private static final int RING_ENTRY_SIZE = 16;
+    private static final long RING_INITIAL_CAPACITY = 16;
+    protected final Function arg;
+    protected final boolean frameBounded;
+    protected final boolean wholePartition;
+    private final int stateSize;
+    private final int framingMode;
+    private final long rowsLo;
+    private final int timestampIndex;
+    private final MemoryCARW memory;
+    @Nullable
+    private final Map map;
+    @Nullable
+    private final VirtualRecord partitionByRecord;
+    @Nullable
+    private final RecordSink partitionBySink;
+    private int columnIndex;
+    private long singleState = -1;
+    private double value;
+
+    /**
+     * @param stateSize  size of the partition state block including the header
+     * @param frameAware false for functions, such as lag(), which ignore the frame and address rows
+     *                   by offset from the current one
+     */
+    protected AbstractDoubleAnalyticFunction(
+            CairoConfiguration configuration,
+            AnalyticContext analyticContext,
+            Function arg,
+            int stateSize,
+            boolean frameAware
+    ) {
+        this.arg = arg;
+        this.stateSize = stateSize;
+        this.framingMode = analyticContext.getFramingMode();
+        this.rowsLo = analyticContext.getRowsLo();
+        this.timestampIndex = analyticContext.getTimestampIndex();
+        this.frameBounded = frameAware && rowsLo != AnalyticColumn.FRAME_UNBOUNDED_PRECEDING;
+        this.wholePartition = frameAware && analyticContext.getRowsHi() == AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING;
+        this.memory = Vm.getCARWInstance(
+                configuration.getSqlAnalyticStorePageSize(),
+                configuration.getSqlAnalyticStoreMaxPages(),
+                MemoryTag.NATIVE_ANALYTIC
+        );
+        this.partitionByRecord = analyticContext.getPartitionByRecord();
+        this.partitionBySink = analyticContext.getPartitionBySink();
+        if (partitionByRecord != null) {
+            this.map = MapFactory.createMap(
+                    configuration,
+                    analyticContext.getPartitionByKeyTypes(),
+                    LONG_COLUMN_TYPE
+            );
+        } else {
+            this.map = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        Misc.free(arg);
+        Misc.free(map);
+        Misc.free(memory);
+        if (partitionByRecord != null) {
+            Misc.freeObjList(partitionByRecord.getFunctions());
+        }
+    }
+
+    @Override
+    public void computeNext(Record record) {
+        final long state = stateOf(record);
+        final long key = frameKey(record, state);
+        if (frameBounded) {
+            evict(state, key);
+        }
+        add(state, key, arg.getDouble(record));
+        value = getResult(state);
+    }
+
+    @Override
+    public double getDouble(Record rec) {
+        return value;
+    }
+
+    @Override
+    public int getPassCount() {
+        return wholePartition ? TWO_PASS : STREAM;
+    }
+
+    @Override
+    public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+        arg.init(symbolTableSource, executionContext);
+        if (partitionByRecord != null) {
+            Function.init(partitionByRecord.getFunctions(), symbolTableSource, executionContext);
+        }
+    }
+
+    @Override
+    public boolean isReadThreadSafe() {
+        return false;
+    }
+
+    @Override
+    public void pass1(Record record, long recordOffset, AnalyticSPI spi) {
+        if (wholePartition) {
+            final long state = stateOf(record);
+            add(state, frameKey(record, state), arg.getDouble(record));
+        } else {
+            computeNext(record);
+            Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), value);
+        }
+    }
+
+    @Override
+    public void pass2(Record record, long recordOffset, AnalyticSPI spi) {
+        if (wholePartition) {
+            Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), getResult(stateOf(record)));
+        }
+    }
+
+    @Override
+    public void preparePass2(RecordCursor cursor) {
+    }
+
+    @Override
+    public void reset() {
+        if (map != null) {
+            map.clear();
+        }
+        memory.jumpTo(0);
+        singleState = -1;
+    }
+
+    @Override
+    public void setColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    /**
+     * Adds value of the current row to the partition state.
+     *
+     * @param state offset of the partition state block
+     * @param key   row number within partition for ROWS frames, timestamp for RANGE frames
+     * @param value value of the function argument
+     */
+    protected abstract void add(long state, long key, double value);
+
+    protected int getColumnIndex() {
+        return columnIndex;
+    }
+
+    protected MemoryCARW getMemory() {
+        return memory;
+    }
+
+    protected abstract double getResult(long state);
+
+    protected abstract void initState(long state);
+
+    protected void onEvict(long state, double value) {
+    }
+
+    protected void ringAddLast(long state, long key, double value) {
+        long capacity = memory.getLong(state + STATE_RING_CAPACITY);
+        final long size = memory.getLong(state + STATE_RING_SIZE);
+        if (size == capacity) {
+            capacity = growRing(state, size);
+        }
+        final long head = memory.getLong(state + STATE_RING_HEAD);
+        final long entry = memory.getLong(state + STATE_RING_OFFSET) + ((head + size) % capacity) * RING_ENTRY_SIZE;
+        memory.putLong(entry, key);
+        memory.putDouble(entry + Long.BYTES, value);
+        memory.putLong(state + STATE_RING_SIZE, size + 1);
+    }
+
+    protected long ringFirstKey(long state) {
+        return memory.getLong(ringEntry(state, 0));
+    }
+
+    protected double ringFirstValue(long state) {
+        return memory.getDouble(ringEntry(state, 0) + Long.BYTES);
+    }
+
+    protected double ringLastValue(long state) {
+        return memory.getDouble(ringEntry(state, ringSize(state) - 1) + Long.BYTES);
+    }
+
+    protected void ringRemoveFirst(long state) {
+        final long capacity = memory.getLong(state + STATE_RING_CAPACITY);
+        memory.putLong(state + STATE_RING_HEAD, (memory.getLong(state + STATE_RING_HEAD) + 1) % capacity);
+        memory.putLong(state + STATE_RING_SIZE, memory.getLong(state + STATE_RING_SIZE) - 1);
+    }
+
+    protected void ringRemoveLast(long state) {
+        memory.putLong(state + STATE_RING_SIZE, memory.getLong(state + STATE_RING_SIZE) - 1);
+    }
+
+    protected long ringSize(long state) {
+        return memory.getLong(state + STATE_RING_SIZE);
+    }
+
+    /**
+     * Evicts ring entries that fell behind start of the frame ending at the given key.
+     * {@link #onEvict(long, double)} is called for each of the evicted entries.
+     */
+    private void evict(long state, long key) {
+        final long frameStart = key + rowsLo;
+        long size = memory.getLong(state + STATE_RING_SIZE);
+        while (size > 0 && ringFirstKey(state) < frameStart) {
+            onEvict(state, ringFirstValue(state));
+            ringRemoveFirst(state);
+            size--;
+        }
+    }
+
+    private long frameKey(Record record, long state) {
+        if (framingMode == AnalyticColumn.FRAMING_RANGE && frameBounded) {
+            return record.getTimestamp(timestampIndex);
+        }
+        final long rowNumber = memory.getLong(state + STATE_ROW_COUNT);
+        memory.putLong(state + STATE_ROW_COUNT, rowNumber + 1);
+        return rowNumber;
+    }
+
+    private long growRing(long state, long size) {
+        final long capacity = memory.getLong(state + STATE_RING_CAPACITY);
+        final long newCapacity = capacity == 0 ? initialRingCapacity() : capacity * 2;
+        final long newRing = memory.getAppendOffset();
+        memory.skip(newCapacity * RING_ENTRY_SIZE);
+        if (size > 0) {
+            // copy entries in ring order, the new ring starts at its first slot
+            final long ring = memory.getLong(state + STATE_RING_OFFSET);
+            final long head = memory.getLong(state + STATE_RING_HEAD);
+            final long tail = Math.min(size, capacity - head);
+            Vect.memcpy(
+                    memory.addressOf(newRing),
+                    memory.addressOf(ring + head * RING_ENTRY_SIZE),
+                    tail * RING_ENTRY_SIZE
+            );
+            if (tail < size) {
+                Vect.memcpy(
+                        memory.addressOf(newRing + tail * RING_ENTRY_SIZE),
+                        memory.addressOf(ring),
+                        (size - tail) * RING_ENTRY_SIZE
+                );
+            }
+        }
+        memory.putLong(state + STATE_RING_OFFSET, newRing);
+        memory.putLong(state + STATE_RING_CAPACITY, newCapacity);
+        memory.putLong(state + STATE_RING_HEAD, 0);
+        return newCapacity;
+    }
+
+    private long initialRingCapacity() {
+        if (framingMode == AnalyticColumn.FRAMING_ROWS) {
+            // rows frame cannot hold more than its length
+            return Math.min(RING_INITIAL_CAPACITY, -rowsLo + 1);
+        }
+        return RING_INITIAL_CAPACITY;
+    }
+
+    private long newState() {
+        final long state = memory.getAppendOffset();
+        memory.skip(stateSize);
+        memory.putLong(state + STATE_RING_OFFSET, 0);
+        memory.putLong(state + STATE_RING_CAPACITY, 0);
+        memory.putLong(state + STATE_RING_HEAD, 0);
+        memory.putLong(state + STATE_RING_SIZE, 0);
+        memory.putLong(state + STATE_ROW_COUNT, 0);
+        initState(state);
+        return state;
+    }
+
+    private long ringEntry(long state, long index) {
+        final long capacity = memory.getLong(state + STATE_RING_CAPACITY);
+        final long head = memory.getLong(state + STATE_RING_HEAD);
+        return memory.getLong(state + STATE_RING_OFFSET) + ((head + index) % capacity) * RING_ENTRY_SIZE;
+    }
+
+    protected long stateOf(Record record) {
+        if (map == null) {
+            if (singleState == -1) {
+                singleState = newState();
+            }
+            return singleState;
+        }
+        partitionByRecord.of(record);
+        final MapKey key = map.withKey();
+        key.put(partitionByRecord, partitionBySink);
+        final MapValue mapValue = key.createValue();
+        if (mapValue.isNew()) {
+            final long state = newState();
+            mapValue.putLong(0, state);
+            return state;
+        }
+        return mapValue.getLong(0);
+    }
+}
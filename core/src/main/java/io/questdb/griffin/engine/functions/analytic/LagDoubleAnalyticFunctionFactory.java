@@ -0,0 +1,140 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.sql.Function;
+import io.questdb.griffin.FunctionFactory;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.std.IntList;
+import io.questdb.std.ObjList;
+
+/**
+ * lag(value [, offset [, default]]) returns value of the row, which is offset rows before the current
+ * one within the partition, or default when there is no such row. Offset is 1 and default is null
+ * unless specified. Frame clause is ignored.
+ */
+public class LagDoubleAnalyticFunctionFactory implements FunctionFactory {
+
+    @Override
+    public String getSignature() {
+        return "lag(DV)";
+    }
+
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
+    @Override
+    public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) throws SqlException {
+        return new LagFunction(
+                configuration,
+                sqlExecutionContext.getAnalyticContext(),
+                args.getQuick(0),
+                getOffset(args, argPositions),
+                getDefaultValue(args, argPositions)
+        );
+    }
+
+    static double getDefaultValue(ObjList<Function> args, IntList argPositions) throws SqlException {
+        if (args.size() < 3) {
+            return Double.NaN;
+        }
+        final Function defaultValue = args.getQuick(2);
+        if (!defaultValue.isConstant()) {
+            throw SqlException.$(argPositions.getQuick(2), "default value must be a constant");
+        }
+        return defaultValue.getDouble(null);
+    }
+
+    static long getOffset(ObjList<Function> args, IntList argPositions) throws SqlException {
+        if (args.size() > 3) {
+            throw SqlException.$(argPositions.getQuick(3), "too many arguments");
+        }
+        if (args.size() < 2) {
+            return 1;
+        }
+        final Function offset = args.getQuick(1);
+        switch (ColumnType.tagOf(offset.getType())) {
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.INT:
+            case ColumnType.LONG:
+                if (offset.isConstant()) {
+                    final long value = offset.getLong(null);
+                    if (value >= 0) {
+                        return value;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        throw SqlException.$(argPositions.getQuick(1), "offset must be a non-negative integer constant");
+    }
+
+    private static class LagFunction extends AbstractDoubleAnalyticFunction {
+        private static final int STATE_SIZE = STATE_HEADER_SIZE;
+        private final long offset;
+        private final double defaultValue;
+        private double lagValue;
+
+        public LagFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg, long offset, double defaultValue) {
+            super(configuration, analyticContext, arg, STATE_SIZE, false);
+            this.offset = offset;
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        protected void add(long state, long key, double value) {
+            if (offset == 0) {
+                lagValue = value;
+                return;
+            }
+            // ring holds up to offset preceding values of the partition
+            if (ringSize(state) == offset) {
+                lagValue = ringFirstValue(state);
+                ringRemoveFirst(state);
+            } else {
+                lagValue = defaultValue;
+            }
+            ringAddLast(state, key, value);
+        }
+
+        @Override
+        protected double getResult(long state) {
+            return lagValue;
+        }
+
+        @Override
+        protected void initState(long state) {
+        }
+    }
+}
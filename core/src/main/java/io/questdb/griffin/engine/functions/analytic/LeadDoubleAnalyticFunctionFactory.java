@@ -0,0 +1,123 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.AnalyticSPI;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.Record;
+import io.questdb.griffin.FunctionFactory;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.std.IntList;
+import io.questdb.std.ObjList;
+import io.questdb.std.Unsafe;
+
+/**
+ * lead(value [, offset [, default]]) returns value of the row, which is offset rows after the current
+ * one within the partition, or default when there is no such row. Offset is 1 and default is null
+ * unless specified. Frame clause is ignored.
+ * <p>
+ * Value of the current row is not known until the row offset rows later arrives. The function
+ * writes default value for each row in pass 1 and keeps offsets of the last rows of the partition
+ * in the ring, to overwrite their values once the following rows arrive.
+ */
+public class LeadDoubleAnalyticFunctionFactory implements FunctionFactory {
+
+    @Override
+    public String getSignature() {
+        return "lead(DV)";
+    }
+
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
+    @Override
+    public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) throws SqlException {
+        return new LeadFunction(
+                configuration,
+                sqlExecutionContext.getAnalyticContext(),
+                args.getQuick(0),
+                LagDoubleAnalyticFunctionFactory.getOffset(args, argPositions),
+                LagDoubleAnalyticFunctionFactory.getDefaultValue(args, argPositions)
+        );
+    }
+
+    private static class LeadFunction extends AbstractDoubleAnalyticFunction {
+        private static final int STATE_SIZE = STATE_HEADER_SIZE;
+        private final long offset;
+        private final double defaultValue;
+
+        public LeadFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg, long offset, double defaultValue) {
+            super(configuration, analyticContext, arg, STATE_SIZE, false);
+            this.offset = offset;
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        public void computeNext(Record record) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getPassCount() {
+            return TWO_PASS;
+        }
+
+        @Override
+        public void pass1(Record record, long recordOffset, AnalyticSPI spi) {
+            final long state = stateOf(record);
+            final double value = arg.getDouble(record);
+            final int columnIndex = getColumnIndex();
+            if (offset == 0) {
+                Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), value);
+                return;
+            }
+            Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), defaultValue);
+            if (ringSize(state) == offset) {
+                Unsafe.getUnsafe().putDouble(spi.getAddress(ringFirstKey(state), columnIndex), value);
+                ringRemoveFirst(state);
+            }
+            ringAddLast(state, recordOffset, value);
+        }
+
+        @Override
+        protected void add(long state, long key, double value) {
+        }
+
+        @Override
+        protected double getResult(long state) {
+            return Double.NaN;
+        }
+
+        @Override
+        protected void initState(long state) {
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.Function;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+
+/**
+ * Minimum or maximum of non-null values in the frame. Bounded frames keep monotonic
+ * queue of candidates in the ring: values that can no longer become the frame extreme,
+ * because newer value is at least as good, are dropped from the tail. Head of the
+ * queue is then the extreme of the frame.
+ */
+class MinMaxDoubleAnalyticFunction extends AbstractDoubleAnalyticFunction {
+    private static final int STATE_VALUE = STATE_HEADER_SIZE;
+    private static final int STATE_SIZE = STATE_VALUE + Double.BYTES;
+    private final boolean max;
+
+    MinMaxDoubleAnalyticFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg, boolean max) {
+        super(configuration, analyticContext, arg, STATE_SIZE, true);
+        this.max = max;
+    }
+
+    @Override
+    protected void add(long state, long key, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        if (frameBounded) {
+            while (ringSize(state) > 0 && !isBetter(ringLastValue(state), value)) {
+                ringRemoveLast(state);
+            }
+            ringAddLast(state, key, value);
+            return;
+        }
+
+        final double current = getMemory().getDouble(state + STATE_VALUE);
+        if (Double.isNaN(current) || isBetter(value, current)) {
+            getMemory().putDouble(state + STATE_VALUE, value);
+        }
+    }
+
+    @Override
+    protected double getResult(long state) {
+        if (frameBounded) {
+            return ringSize(state) > 0 ? ringFirstValue(state) : Double.NaN;
+        }
+        return getMemory().getDouble(state + STATE_VALUE);
+    }
+
+    @Override
+    protected void initState(long state) {
+        getMemory().putDouble(state + STATE_VALUE, Double.NaN);
+    }
+
+    private boolean isBetter(double value, double than) {
+        return max ? value > than : value < than;
+    }
+}
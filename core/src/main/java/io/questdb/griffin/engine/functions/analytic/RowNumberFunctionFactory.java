@@ -55,6 +55,11 @@ public class RowNumberFunctionFactory implements FunctionFactory {
         return "row_number()";
     }
 
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
     @Override
     public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) {
         final AnalyticContext analyticContext = sqlExecutionContext.getAnalyticContext();
@@ -71,7 +76,7 @@ public class RowNumberFunctionFactory implements FunctionFactory {
                     analyticContext.getPartitionBySink()
             );
         }
-        return null;
+        return new RowNumberFunction(null, null, null);
     }
 
     private static class RowNumberFunction extends LongFunction implements ScalarFunction, AnalyticFunction, Closeable {
@@ -79,6 +84,8 @@ public class RowNumberFunctionFactory implements FunctionFactory {
         private final VirtualRecord partitionByRecord;
         private final RecordSink partitionBySink;
         private int columnIndex;
+        private long count;
+        private long value;
 
         public RowNumberFunction(Map map, VirtualRecord partitionByRecord, RecordSink partitionBySink) {
             this.map = map;
@@ -89,29 +96,45 @@ public class RowNumberFunctionFactory implements FunctionFactory {
         @Override
         public void close() {
             Misc.free(map);
-            Misc.free(partitionByRecord.getFunctions());
-        }
-
-        @Override
-        public long getLong(Record rec) {
-            // not called
-            throw new UnsupportedOperationException();
+            if (partitionByRecord != null) {
+                Misc.free(partitionByRecord.getFunctions());
+            }
         }
 
         @Override
-        public void pass1(Record record, long recordOffset, AnalyticSPI spi) {
+        public void computeNext(Record record) {
+            if (map == null) {
+                value = count++;
+                return;
+            }
             partitionByRecord.of(record);
             MapKey key = map.withKey();
             key.put(partitionByRecord, partitionBySink);
-            MapValue value = key.createValue();
+            MapValue mapValue = key.createValue();
             long x;
-            if (value.isNew()) {
+            if (mapValue.isNew()) {
                 x = 0;
             } else {
-                x = value.getLong(0);
+                x = mapValue.getLong(0);
             }
-            value.putLong(0, x + 1);
-            Unsafe.getUnsafe().putLong(spi.getAddress(recordOffset, columnIndex), x);
+            mapValue.putLong(0, x + 1);
+            value = x;
+        }
+
+        @Override
+        public long getLong(Record rec) {
+            return value;
+        }
+
+        @Override
+        public int getPassCount() {
+            return STREAM;
+        }
+
+        @Override
+        public void pass1(Record record, long recordOffset, AnalyticSPI spi) {
+            computeNext(record);
+            Unsafe.getUnsafe().putLong(spi.getAddress(recordOffset, columnIndex), value);
         }
 
         @Override
@@ -119,12 +142,15 @@ public class RowNumberFunctionFactory implements FunctionFactory {
         }
 
         @Override
-        public void pass2(Record record) {
+        public void pass2(Record record, long recordOffset, AnalyticSPI spi) {
         }
 
         @Override
         public void reset() {
-            map.clear();
+            if (map != null) {
+                map.clear();
+            }
+            count = 0;
         }
 
         @Override
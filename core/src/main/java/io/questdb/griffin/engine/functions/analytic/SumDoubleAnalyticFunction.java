@@ -0,0 +1,82 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.Function;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+
+/**
+ * Sum or average of non-null values in the frame. Bounded frames keep values in the ring
+ * and subtract them from the running sum as they leave the frame.
+ */
+class SumDoubleAnalyticFunction extends AbstractDoubleAnalyticFunction {
+    private static final int STATE_SUM = STATE_HEADER_SIZE;
+    private static final int STATE_COUNT = STATE_SUM + Double.BYTES;
+    private static final int STATE_SIZE = STATE_COUNT + Long.BYTES;
+    private final boolean avg;
+
+    SumDoubleAnalyticFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg, boolean avg) {
+        super(configuration, analyticContext, arg, STATE_SIZE, true);
+        this.avg = avg;
+    }
+
+    @Override
+    protected void add(long state, long key, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        getMemory().putDouble(state + STATE_SUM, getMemory().getDouble(state + STATE_SUM) + value);
+        getMemory().putLong(state + STATE_COUNT, getMemory().getLong(state + STATE_COUNT) + 1);
+        if (frameBounded) {
+            ringAddLast(state, key, value);
+        }
+    }
+
+    @Override
+    protected double getResult(long state) {
+        final long count = getMemory().getLong(state + STATE_COUNT);
+        if (count == 0) {
+            return Double.NaN;
+        }
+        final double sum = getMemory().getDouble(state + STATE_SUM);
+        return avg ? sum / count : sum;
+    }
+
+    @Override
+    protected void initState(long state) {
+        getMemory().putDouble(state + STATE_SUM, 0);
+        getMemory().putLong(state + STATE_COUNT, 0);
+    }
+
+    @Override
+    protected void onEvict(long state, double value) {
+        final long count = getMemory().getLong(state + STATE_COUNT) - 1;
+        getMemory().putLong(state + STATE_COUNT, count);
+        // start over from exact zero when frame becomes empty to stop rounding errors from accumulating
+        getMemory().putDouble(state + STATE_SUM, count == 0 ? 0 : getMemory().getDouble(state + STATE_SUM) - value);
+    }
+}
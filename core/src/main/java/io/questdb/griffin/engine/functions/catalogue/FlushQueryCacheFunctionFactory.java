@@ -30,6 +30,7 @@ import io.questdb.cairo.sql.Function;
 import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.FunctionFactory;
 import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.cache.QueryFactoryCache;
 import io.questdb.griffin.engine.functions.BooleanFunction;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
@@ -52,20 +53,27 @@ public class FlushQueryCacheFunctionFactory implements FunctionFactory {
                                 CairoConfiguration configuration,
                                 SqlExecutionContext sqlExecutionContext
     ) {
-        return new FlushQueryCacheFunction(sqlExecutionContext.getMessageBus());
+        return new FlushQueryCacheFunction(
+                sqlExecutionContext.getMessageBus(),
+                sqlExecutionContext.getCairoEngine().getQueryFactoryCache()
+        );
     }
 
     private static class FlushQueryCacheFunction extends BooleanFunction {
 
         private final MessageBus messageBus;
+        private final QueryFactoryCache queryFactoryCache;
 
-        public FlushQueryCacheFunction(MessageBus messageBus) {
+        public FlushQueryCacheFunction(MessageBus messageBus, QueryFactoryCache queryFactoryCache) {
             this.messageBus = messageBus;
+            this.queryFactoryCache = queryFactoryCache;
         }
 
         @Override
         public boolean getBool(Record rec) {
             LOG.info().$("flushing query caches").$();
+            // server-wide cache is flushed right away, workers flush their own caches on event
+            queryFactoryCache.clear();
 
             while (true) {
                 final long pubCursor = messageBus.getQueryCacheEventPubSeq().next();
@@ -64,6 +64,24 @@ public class AvgDoubleGroupByFunction extends DoubleFunction implements GroupByF
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final double sum = srcValue.getDouble(valueIndex);
+        final long count = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew()) {
+            destValue.putDouble(valueIndex, sum);
+            destValue.putLong(valueIndex + 1, count);
+        } else {
+            destValue.addDouble(valueIndex, sum);
+            destValue.addLong(valueIndex + 1, count);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -79,6 +97,7 @@ public class AvgDoubleGroupByFunction extends DoubleFunction implements GroupByF
 
     @Override
     public void setNull(MapValue mapValue) {
+        mapValue.putDouble(valueIndex, Double.NaN);
         mapValue.putLong(valueIndex + 1, 0);
     }
 
@@ -45,6 +45,21 @@ public class CountGroupByFunction extends LongFunction implements GroupByFunctio
         mapValue.addLong(valueIndex, 1);
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long count = srcValue.getLong(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putLong(valueIndex, count);
+        } else {
+            destValue.addLong(valueIndex, count);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
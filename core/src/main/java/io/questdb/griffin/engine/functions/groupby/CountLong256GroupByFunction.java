@@ -45,14 +45,7 @@ public class CountLong256GroupByFunction extends LongFunction implements GroupBy
 
     @Override
     public void computeFirst(MapValue mapValue, Record record) {
-        final Long256HashSet set;
-        if (sets.size() <= setIndex) {
-            sets.extendAndSet(setIndex, set = new Long256HashSet());
-        } else {
-            set = sets.getQuick(setIndex);
-        }
-
-        set.clear();
+        final Long256HashSet set = nextSet();
         Long256 val = arg.getLong256A(record);
         if (isNotNull(val)) {
             set.add(val.getLong0(), val.getLong1(), val.getLong2(), val.getLong3());
@@ -77,6 +70,25 @@ public class CountLong256GroupByFunction extends LongFunction implements GroupBy
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final Long256HashSet srcSet = ((CountLong256GroupByFunction) srcFunction).sets.getQuick(srcValue.getInt(valueIndex + 1));
+        final Long256HashSet destSet;
+        if (destValue.isNew()) {
+            destSet = nextSet();
+            destValue.putInt(valueIndex + 1, setIndex++);
+        } else {
+            destSet = sets.getQuick(destValue.getInt(valueIndex + 1));
+        }
+        destSet.addAll(srcSet);
+        destValue.putLong(valueIndex, destSet.size());
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -119,6 +131,17 @@ public class CountLong256GroupByFunction extends LongFunction implements GroupBy
         setIndex = 0;
     }
 
+    private Long256HashSet nextSet() {
+        final Long256HashSet set;
+        if (sets.size() <= setIndex) {
+            sets.extendAndSet(setIndex, set = new Long256HashSet());
+        } else {
+            set = sets.getQuick(setIndex);
+        }
+        set.clear();
+        return set;
+    }
+
     private static boolean isNotNull(Long256 value) {
         return value != null &&
                 value != Long256Impl.NULL_LONG256 && (value.getLong0() != Numbers.LONG_NaN ||
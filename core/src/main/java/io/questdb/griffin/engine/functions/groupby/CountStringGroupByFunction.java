@@ -48,13 +48,7 @@ public class CountStringGroupByFunction extends LongFunction implements GroupByF
 
     @Override
     public void computeFirst(MapValue mapValue, Record record) {
-        final CharSequenceHashSet set;
-        if (sets.size() <= setIndex) {
-            sets.extendAndSet(setIndex, set = new CharSequenceHashSet());
-        } else {
-            set = sets.getQuick(setIndex);
-        }
-        set.clear();
+        final CharSequenceHashSet set = nextSet();
         set.add(Chars.toString(arg.getStr(record)));
         mapValue.putLong(valueIndex, 1L);
         mapValue.putInt(valueIndex + 1, setIndex++);
@@ -72,6 +66,25 @@ public class CountStringGroupByFunction extends LongFunction implements GroupByF
         mapValue.addLong(valueIndex, 1);
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final CharSequenceHashSet srcSet = ((CountStringGroupByFunction) srcFunction).sets.getQuick(srcValue.getInt(valueIndex + 1));
+        final CharSequenceHashSet destSet;
+        if (destValue.isNew()) {
+            destSet = nextSet();
+            destValue.putInt(valueIndex + 1, setIndex++);
+        } else {
+            destSet = sets.getQuick(destValue.getInt(valueIndex + 1));
+        }
+        destSet.addAll(srcSet);
+        destValue.putLong(valueIndex, destSet.size());
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -113,4 +126,15 @@ public class CountStringGroupByFunction extends LongFunction implements GroupByF
     public void toTop() {
         setIndex = 0;
     }
+
+    private CharSequenceHashSet nextSet() {
+        final CharSequenceHashSet set;
+        if (sets.size() <= setIndex) {
+            sets.extendAndSet(setIndex, set = new CharSequenceHashSet());
+        } else {
+            set = sets.getQuick(setIndex);
+        }
+        set.clear();
+        return set;
+    }
 }
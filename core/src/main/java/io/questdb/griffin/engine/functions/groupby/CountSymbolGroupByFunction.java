@@ -31,6 +31,7 @@ import io.questdb.cairo.sql.Function;
 import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.engine.functions.GroupByFunction;
 import io.questdb.griffin.engine.functions.LongFunction;
+import io.questdb.griffin.engine.functions.SymbolFunction;
 import io.questdb.std.IntList;
 import io.questdb.std.Numbers;
 import io.questdb.std.ObjList;
@@ -49,13 +50,7 @@ public class CountSymbolGroupByFunction extends LongFunction implements GroupByF
 
     @Override
     public void computeFirst(MapValue mapValue, Record record) {
-        final IntList list;
-        if (lists.size() <= setIndex) {
-            lists.extendAndSet(setIndex, list = new IntList());
-        } else {
-            list = lists.getQuick(setIndex);
-        }
-        list.clear(0);
+        final IntList list = nextList();
         mapValue.putInt(valueIndex + 1, setIndex);
         setIndex++;
 
@@ -85,6 +80,41 @@ public class CountSymbolGroupByFunction extends LongFunction implements GroupByF
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        // symbol keys are comparable across workers only when they come from the same static table
+        return arg instanceof SymbolFunction && ((SymbolFunction) arg).isSymbolTableStatic();
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final IntList srcList = ((CountSymbolGroupByFunction) srcFunction).lists.getQuick(srcValue.getInt(valueIndex + 1));
+        final IntList destList;
+        long count;
+        if (destValue.isNew()) {
+            destList = nextList();
+            destValue.putInt(valueIndex + 1, setIndex++);
+            count = 0;
+        } else {
+            destList = lists.getQuick(destValue.getInt(valueIndex + 1));
+            count = destValue.getLong(valueIndex);
+        }
+        for (int i = 0, n = srcList.size(); i < n; i++) {
+            if (srcList.getQuick(i) == 1) {
+                if (i < destList.size()) {
+                    if (destList.getQuick(i) == 1) {
+                        continue;
+                    }
+                    destList.setQuick(i, 1);
+                } else {
+                    destList.extendAndSet(i, 1);
+                }
+                count++;
+            }
+        }
+        destValue.putLong(valueIndex, count);
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -126,4 +156,15 @@ public class CountSymbolGroupByFunction extends LongFunction implements GroupByF
     public void toTop() {
         setIndex = 0;
     }
+
+    private IntList nextList() {
+        final IntList list;
+        if (lists.size() <= setIndex) {
+            lists.extendAndSet(setIndex, list = new IntList());
+        } else {
+            list = lists.getQuick(setIndex);
+        }
+        list.clear(0);
+        return list;
+    }
 }
@@ -36,7 +36,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class FirstByteGroupByFunction extends ByteFunction implements GroupByFunction, UnaryFunction {
     private final Function arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstByteGroupByFunction(@NotNull Function arg) {
         this.arg = arg;
@@ -47,15 +47,37 @@ public class FirstByteGroupByFunction extends ByteFunction implements GroupByFun
         mapValue.putByte(this.valueIndex, this.arg.getByte(record));
     }
 
+    @Override
+    public void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+        mapValue.putLong(valueIndex + 1, rowId);
+    }
+
     @Override
     public void computeNext(MapValue mapValue, Record record) {
         // empty
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId < destValue.getLong(valueIndex + 1)) {
+            destValue.putByte(valueIndex, srcValue.getByte(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
         columnTypes.add(ColumnType.BYTE);
+        // row id of the value, it orders partial values of parallel group-by
+        columnTypes.add(ColumnType.LONG);
     }
 
     @Override
@@ -36,7 +36,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class FirstCharGroupByFunction extends CharFunction implements GroupByFunction, UnaryFunction {
     private final Function arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstCharGroupByFunction(@NotNull Function arg) {
         this.arg = arg;
@@ -47,15 +47,37 @@ public class FirstCharGroupByFunction extends CharFunction implements GroupByFun
         mapValue.putChar(this.valueIndex, this.arg.getChar(record));
     }
 
+    @Override
+    public void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+        mapValue.putLong(valueIndex + 1, rowId);
+    }
+
     @Override
     public void computeNext(MapValue mapValue, Record record) {
         // empty
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId < destValue.getLong(valueIndex + 1)) {
+            destValue.putChar(valueIndex, srcValue.getChar(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
         columnTypes.add(ColumnType.SHORT);
+        // row id of the value, it orders partial values of parallel group-by
+        columnTypes.add(ColumnType.LONG);
     }
 
     @Override
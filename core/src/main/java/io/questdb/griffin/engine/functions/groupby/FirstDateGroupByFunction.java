@@ -37,7 +37,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class FirstDateGroupByFunction extends DateFunction implements GroupByFunction, UnaryFunction {
     private final Function arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstDateGroupByFunction(@NotNull Function arg) {
         this.arg = arg;
@@ -48,11 +48,31 @@ public class FirstDateGroupByFunction extends DateFunction implements GroupByFun
         mapValue.putLong(this.valueIndex, this.arg.getDate(record));
     }
 
+    @Override
+    public void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+        mapValue.putLong(valueIndex + 1, rowId);
+    }
+
     @Override
     public void computeNext(MapValue mapValue, Record record) {
         // empty
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId < destValue.getLong(valueIndex + 1)) {
+            destValue.putLong(valueIndex, srcValue.getLong(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
+    }
+
     @Override
     public Function getArg() {
         return this.arg;
@@ -67,6 +87,8 @@ public class FirstDateGroupByFunction extends DateFunction implements GroupByFun
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
         columnTypes.add(ColumnType.DATE);
+        // row id of the value, it orders partial values of parallel group-by
+        columnTypes.add(ColumnType.LONG);
     }
 
     @Override
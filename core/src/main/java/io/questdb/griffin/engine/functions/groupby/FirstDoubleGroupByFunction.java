@@ -36,7 +36,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class FirstDoubleGroupByFunction extends DoubleFunction implements GroupByFunction, UnaryFunction {
     private final Function arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstDoubleGroupByFunction(@NotNull Function arg) {
         this.arg = arg;
@@ -47,15 +47,37 @@ public class FirstDoubleGroupByFunction extends DoubleFunction implements GroupB
         mapValue.putDouble(this.valueIndex, this.arg.getDouble(record));
     }
 
+    @Override
+    public void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+        mapValue.putLong(valueIndex + 1, rowId);
+    }
+
     @Override
     public void computeNext(MapValue mapValue, Record record) {
         // empty
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId < destValue.getLong(valueIndex + 1)) {
+            destValue.putDouble(valueIndex, srcValue.getDouble(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
         columnTypes.add(ColumnType.DOUBLE);
+        // row id of the value, it orders partial values of parallel group-by
+        columnTypes.add(ColumnType.LONG);
     }
 
     @Override
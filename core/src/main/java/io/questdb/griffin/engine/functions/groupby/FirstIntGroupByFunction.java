@@ -37,7 +37,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class FirstIntGroupByFunction extends IntFunction implements GroupByFunction, UnaryFunction {
     private final Function arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstIntGroupByFunction(@NotNull Function arg) {
         super();
@@ -49,6 +49,12 @@ public class FirstIntGroupByFunction extends IntFunction implements GroupByFunct
         mapValue.putInt(valueIndex, arg.getInt(record));
     }
 
+    @Override
+    public void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+        mapValue.putLong(valueIndex + 1, rowId);
+    }
+
     @Override
     public void computeNext(MapValue mapValue, Record record) {
     }
@@ -58,6 +64,20 @@ public class FirstIntGroupByFunction extends IntFunction implements GroupByFunct
         return this.arg;
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId < destValue.getLong(valueIndex + 1)) {
+            destValue.putInt(valueIndex, srcValue.getInt(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
+    }
+
     @Override
     public int getInt(Record rec) {
         return rec.getInt(valueIndex);
@@ -67,6 +87,8 @@ public class FirstIntGroupByFunction extends IntFunction implements GroupByFunct
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
         columnTypes.add(ColumnType.INT);
+        // row id of the value, it orders partial values of parallel group-by
+        columnTypes.add(ColumnType.LONG);
     }
 
     @Override
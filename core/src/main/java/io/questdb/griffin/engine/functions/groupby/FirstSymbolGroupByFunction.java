@@ -38,7 +38,7 @@ import org.jetbrains.annotations.Nullable;
 
 public class FirstSymbolGroupByFunction extends SymbolFunction implements GroupByFunction, UnaryFunction {
     private final SymbolFunction arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstSymbolGroupByFunction(@NotNull SymbolFunction arg) {
         this.arg = arg;
@@ -49,6 +49,12 @@ public class FirstSymbolGroupByFunction extends SymbolFunction implements GroupB
         mapValue.putInt(this.valueIndex, this.arg.getInt(record));
     }
 
+    @Override
+    public void computeFirst(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record);
+        mapValue.putLong(valueIndex + 1, rowId);
+    }
+
     @Override
     public void computeNext(MapValue mapValue, Record record) {
     }
@@ -57,6 +63,23 @@ public class FirstSymbolGroupByFunction extends SymbolFunction implements GroupB
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
         columnTypes.add(ColumnType.INT);
+        // row id of the value, it orders partial values of parallel group-by
+        columnTypes.add(ColumnType.LONG);
+    }
+
+    @Override
+    public boolean isParallelismSupported() {
+        // symbol keys are comparable across workers only when they come from the same static table
+        return arg.isSymbolTableStatic();
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId < destValue.getLong(valueIndex + 1)) {
+            destValue.putInt(valueIndex, srcValue.getInt(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
     }
 
     @Override
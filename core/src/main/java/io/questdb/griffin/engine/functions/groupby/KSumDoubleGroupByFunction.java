@@ -70,6 +70,31 @@ public class KSumDoubleGroupByFunction extends DoubleFunction implements GroupBy
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final double srcSum = srcValue.getDouble(valueIndex);
+        final double srcC = srcValue.getDouble(valueIndex + 1);
+        final long srcCount = srcValue.getLong(valueIndex + 2);
+        if (destValue.isNew()) {
+            destValue.putDouble(valueIndex, srcSum);
+            destValue.putDouble(valueIndex + 1, srcC);
+            destValue.putLong(valueIndex + 2, srcCount);
+        } else {
+            final double sum = destValue.getDouble(valueIndex);
+            // compensated source sum is added as a single Kahan step
+            final double y = (srcSum - srcC) - destValue.getDouble(valueIndex + 1);
+            final double t = sum + y;
+            destValue.putDouble(valueIndex, t);
+            destValue.putDouble(valueIndex + 1, t - sum - y);
+            destValue.addLong(valueIndex + 2, srcCount);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
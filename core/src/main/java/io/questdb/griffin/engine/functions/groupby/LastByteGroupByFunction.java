@@ -27,6 +27,7 @@ package io.questdb.griffin.engine.functions.groupby;
 import io.questdb.cairo.map.MapValue;
 import io.questdb.cairo.sql.Function;
 import io.questdb.cairo.sql.Record;
+import io.questdb.griffin.engine.functions.GroupByFunction;
 import org.jetbrains.annotations.NotNull;
 
 public class LastByteGroupByFunction extends FirstByteGroupByFunction {
@@ -39,4 +40,18 @@ public class LastByteGroupByFunction extends FirstByteGroupByFunction {
     public void computeNext(MapValue mapValue, Record record) {
         super.computeFirst(mapValue, record);
     }
+
+    @Override
+    public void computeNext(MapValue mapValue, Record record, long rowId) {
+        computeFirst(mapValue, record, rowId);
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long srcRowId = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew() || srcRowId > destValue.getLong(valueIndex + 1)) {
+            destValue.putByte(valueIndex, srcValue.getByte(valueIndex));
+            destValue.putLong(valueIndex + 1, srcRowId);
+        }
+    }
 }
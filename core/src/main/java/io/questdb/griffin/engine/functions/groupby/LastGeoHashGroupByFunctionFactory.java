@@ -31,6 +31,7 @@ import io.questdb.cairo.sql.Function;
 import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.FunctionFactory;
 import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
 import io.questdb.std.IntList;
 import io.questdb.std.ObjList;
 
@@ -58,6 +59,20 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putByte(this.valueIndex, this.function.getGeoByte(record));
                     }
+
+                    @Override
+                    public void computeNext(MapValue mapValue, Record record, long rowId) {
+                        computeFirst(mapValue, record, rowId);
+                    }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+                        final long srcRowId = srcValue.getLong(valueIndex + 1);
+                        if (destValue.isNew() || srcRowId > destValue.getLong(valueIndex + 1)) {
+                            destValue.putByte(valueIndex, srcValue.getByte(valueIndex));
+                            destValue.putLong(valueIndex + 1, srcRowId);
+                        }
+                    }
                 };
             case ColumnType.GEOSHORT:
                 return new FirstGeoHashGroupByFunctionShort(type, function) {
@@ -65,6 +80,20 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putShort(this.valueIndex, this.function.getGeoShort(record));
                     }
+
+                    @Override
+                    public void computeNext(MapValue mapValue, Record record, long rowId) {
+                        computeFirst(mapValue, record, rowId);
+                    }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+                        final long srcRowId = srcValue.getLong(valueIndex + 1);
+                        if (destValue.isNew() || srcRowId > destValue.getLong(valueIndex + 1)) {
+                            destValue.putShort(valueIndex, srcValue.getShort(valueIndex));
+                            destValue.putLong(valueIndex + 1, srcRowId);
+                        }
+                    }
                 };
             case ColumnType.GEOINT:
                 return new FirstGeoHashGroupByFunctionInt(type, function) {
@@ -72,6 +101,20 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putInt(this.valueIndex, this.function.getGeoInt(record));
                     }
+
+                    @Override
+                    public void computeNext(MapValue mapValue, Record record, long rowId) {
+                        computeFirst(mapValue, record, rowId);
+                    }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+                        final long srcRowId = srcValue.getLong(valueIndex + 1);
+                        if (destValue.isNew() || srcRowId > destValue.getLong(valueIndex + 1)) {
+                            destValue.putInt(valueIndex, srcValue.getInt(valueIndex));
+                            destValue.putLong(valueIndex + 1, srcRowId);
+                        }
+                    }
                 };
             default:
                 return new FirstGeoHashGroupByFunctionLong(type, function) {
@@ -79,6 +122,20 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putLong(this.valueIndex, this.function.getGeoLong(record));
                     }
+
+                    @Override
+                    public void computeNext(MapValue mapValue, Record record, long rowId) {
+                        computeFirst(mapValue, record, rowId);
+                    }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+                        final long srcRowId = srcValue.getLong(valueIndex + 1);
+                        if (destValue.isNew() || srcRowId > destValue.getLong(valueIndex + 1)) {
+                            destValue.putLong(valueIndex, srcValue.getLong(valueIndex));
+                            destValue.putLong(valueIndex + 1, srcRowId);
+                        }
+                    }
                 };
         }
     }
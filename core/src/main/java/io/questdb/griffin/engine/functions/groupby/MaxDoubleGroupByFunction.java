@@ -56,6 +56,24 @@ public class MaxDoubleGroupByFunction extends DoubleFunction implements GroupByF
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final double src = srcValue.getDouble(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putDouble(valueIndex, src);
+        } else {
+            final double dest = destValue.getDouble(valueIndex);
+            if (src > dest || Double.isNaN(dest)) {
+                destValue.putDouble(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -56,6 +56,24 @@ public class MaxFloatGroupByFunction extends FloatFunction implements GroupByFun
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final float src = srcValue.getFloat(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putFloat(valueIndex, src);
+        } else {
+            final float dest = destValue.getFloat(valueIndex);
+            if (src > dest) {
+                destValue.putFloat(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
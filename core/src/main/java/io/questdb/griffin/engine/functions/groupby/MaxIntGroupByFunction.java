@@ -58,6 +58,24 @@ public class MaxIntGroupByFunction extends IntFunction implements GroupByFunctio
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final int src = srcValue.getInt(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putInt(valueIndex, src);
+        } else {
+            final int dest = destValue.getInt(valueIndex);
+            if (src > dest) {
+                destValue.putInt(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
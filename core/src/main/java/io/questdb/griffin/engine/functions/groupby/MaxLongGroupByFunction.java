@@ -57,6 +57,24 @@ public class MaxLongGroupByFunction extends LongFunction implements GroupByFunct
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long src = srcValue.getLong(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putLong(valueIndex, src);
+        } else {
+            final long dest = destValue.getLong(valueIndex);
+            if (src > dest) {
+                destValue.putLong(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
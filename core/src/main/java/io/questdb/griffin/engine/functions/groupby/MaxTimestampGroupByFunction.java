@@ -57,6 +57,24 @@ public class MaxTimestampGroupByFunction extends TimestampFunction implements Gr
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long src = srcValue.getTimestamp(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putTimestamp(valueIndex, src);
+        } else {
+            final long dest = destValue.getTimestamp(valueIndex);
+            if (src > dest) {
+                destValue.putTimestamp(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
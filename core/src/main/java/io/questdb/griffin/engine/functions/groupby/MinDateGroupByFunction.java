@@ -57,6 +57,24 @@ public class MinDateGroupByFunction extends DateFunction implements GroupByFunct
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long src = srcValue.getDate(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putDate(valueIndex, src);
+        } else {
+            final long dest = destValue.getDate(valueIndex);
+            if (src != Numbers.LONG_NaN && src < dest || dest == Numbers.LONG_NaN) {
+                destValue.putDate(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -58,6 +58,24 @@ public class MinIntGroupByFunction extends IntFunction implements GroupByFunctio
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final int src = srcValue.getInt(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putInt(valueIndex, src);
+        } else {
+            final int dest = destValue.getInt(valueIndex);
+            if (src != Numbers.INT_NaN && src < dest || dest == Numbers.INT_NaN) {
+                destValue.putInt(valueIndex, src);
+            }
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -65,6 +65,26 @@ public class NSumDoubleGroupByFunction extends DoubleFunction implements GroupBy
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final double srcSum = srcValue.getDouble(valueIndex);
+        final double srcC = srcValue.getDouble(valueIndex + 1);
+        final long srcCount = srcValue.getLong(valueIndex + 2);
+        if (destValue.isNew()) {
+            destValue.putDouble(valueIndex, srcSum);
+            destValue.putDouble(valueIndex + 1, srcC);
+            destValue.putLong(valueIndex + 2, srcCount);
+        } else {
+            sum(destValue, srcSum, destValue.getDouble(valueIndex), destValue.getDouble(valueIndex + 1) + srcC);
+            destValue.addLong(valueIndex + 2, srcCount);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -60,6 +60,21 @@ public class SumFloatGroupByFunction extends FloatFunction implements GroupByFun
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final float sum = srcValue.getFloat(valueIndex);
+        if (destValue.isNew()) {
+            destValue.putFloat(valueIndex, sum);
+        } else {
+            destValue.addFloat(valueIndex, sum);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
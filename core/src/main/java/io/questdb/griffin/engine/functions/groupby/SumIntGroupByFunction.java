@@ -64,6 +64,24 @@ public class SumIntGroupByFunction extends LongFunction implements GroupByFuncti
         }
     }
 
+    @Override
+    public boolean isParallelismSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue, GroupByFunction srcFunction) {
+        final long sum = srcValue.getLong(valueIndex);
+        final long count = srcValue.getLong(valueIndex + 1);
+        if (destValue.isNew()) {
+            destValue.putLong(valueIndex, sum);
+            destValue.putLong(valueIndex + 1, count);
+        } else {
+            destValue.addLong(valueIndex, sum);
+            destValue.addLong(valueIndex + 1, count);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -251,6 +251,15 @@ public class GroupByUtils {
         validateGroupByColumns(model, inferredKeyColumnCount);
     }
 
+    public static boolean isParallelismSupported(ObjList<GroupByFunction> functions) {
+        for (int i = 0, n = functions.size(); i < n; i++) {
+            if (!functions.getQuick(i).isParallelismSupported()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static void toTop(ObjList<? extends Function> args) {
         for (int i = 0, n = args.size(); i < n; i++) {
             args.getQuick(i).toTop();
@@ -263,12 +272,24 @@ public class GroupByUtils {
         }
     }
 
+    public static void updateExisting(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value, Record record, long rowId) {
+        for (int i = 0; i < n; i++) {
+            groupByFunctions.getQuick(i).computeNext(value, record, rowId);
+        }
+    }
+
     public static void updateNew(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value, Record record) {
         for (int i = 0; i < n; i++) {
             groupByFunctions.getQuick(i).computeFirst(value, record);
         }
     }
 
+    public static void updateNew(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value, Record record, long rowId) {
+        for (int i = 0; i < n; i++) {
+            groupByFunctions.getQuick(i).computeFirst(value, record, rowId);
+        }
+    }
+
     public static void updateEmpty(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value) {
         for (int i = 0; i < n; i++) {
             groupByFunctions.getQuick(i).setEmpty(value);
@@ -362,11 +383,19 @@ public class GroupByUtils {
         }
     }
 
-    static void updateFunctions(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value, Record record) {
+    public static void updateFunctions(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value, Record record) {
         if (value.isNew()) {
             updateNew(groupByFunctions, n, value, record);
         } else {
             updateExisting(groupByFunctions, n, value, record);
         }
     }
+
+    public static void updateFunctions(ObjList<GroupByFunction> groupByFunctions, int n, MapValue value, Record record, long rowId) {
+        if (value.isNew()) {
+            updateNew(groupByFunctions, n, value, record, rowId);
+        } else {
+            updateExisting(groupByFunctions, n, value, record, rowId);
+        }
+    }
 }
@@ -52,6 +52,11 @@ class MicroTimestampSampler implements TimestampSampler {
         return this.bucket;
     }
 
+    @Override
+    public boolean isFixedBucketSize() {
+        return true;
+    }
+
     @Override
     public void setStart(long timestamp) {
         this.start = timestamp;
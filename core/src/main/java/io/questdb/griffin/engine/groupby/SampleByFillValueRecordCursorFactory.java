@@ -103,7 +103,7 @@ public class SampleByFillValueRecordCursorFactory extends AbstractSampleByFillRe
     }
 
     @NotNull
-    static ObjList<Function> createPlaceholderFunctions(
+    public static ObjList<Function> createPlaceholderFunctions(
             ObjList<GroupByFunction> groupByFunctions,
             ObjList<Function> recordFunctions,
             @Transient IntList recordFunctionPositions,
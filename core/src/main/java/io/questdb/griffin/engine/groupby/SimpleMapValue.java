@@ -32,6 +32,7 @@ import io.questdb.std.Long256Util;
 public class SimpleMapValue implements MapValue {
     private final Long256Impl long256 = new Long256Impl();
     private final long[] values;
+    private boolean isNew;
 
     public SimpleMapValue(int columnCount) {
         this.values = new long[4 * columnCount];
@@ -99,7 +100,11 @@ public class SimpleMapValue implements MapValue {
 
     @Override
     public boolean isNew() {
-        return false;
+        return isNew;
+    }
+
+    public void setNew(boolean isNew) {
+        this.isNew = isNew;
     }
 
     @Override
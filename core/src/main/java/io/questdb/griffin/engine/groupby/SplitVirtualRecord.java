@@ -28,6 +28,7 @@ import io.questdb.cairo.sql.Function;
 import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.engine.functions.groupby.InterpolationGroupByFunction;
 import io.questdb.std.BinarySequence;
+import io.questdb.std.Long256;
 import io.questdb.std.ObjList;
 import io.questdb.std.str.CharSink;
 
@@ -105,6 +106,21 @@ public class SplitVirtualRecord implements Record {
         return getFunction(col).getLong(base);
     }
 
+    @Override
+    public void getLong256(int col, CharSink sink) {
+        getFunction(col).getLong256(base, sink);
+    }
+
+    @Override
+    public Long256 getLong256A(int col) {
+        return getFunction(col).getLong256A(base);
+    }
+
+    @Override
+    public Long256 getLong256B(int col) {
+        return getFunction(col).getLong256B(base);
+    }
+
     @Override
     public long getRowId() {
         throw new UnsupportedOperationException();
@@ -175,7 +191,7 @@ public class SplitVirtualRecord implements Record {
         return getFunction(col).getGeoLong(base);
     }
 
-    void of(Record record) {
+    public void of(Record record) {
         this.base = record;
     }
 
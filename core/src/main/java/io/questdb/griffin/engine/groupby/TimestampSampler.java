@@ -30,6 +30,10 @@ public interface TimestampSampler {
         throw new UnsupportedOperationException();
     }
 
+    default boolean isFixedBucketSize() {
+        return false;
+    }
+
     long nextTimestamp(long timestamp);
 
     long previousTimestamp(long timestamp);
@@ -56,11 +56,11 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
             RecordCursorFactory masterFactory,
             RecordCursorFactory slaveFactory,
             @Transient ColumnTypes joinColumnTypes,
-            @Transient ColumnTypes valueTypes, // this expected to be just LONG, we store chain references in map
+            @Transient ColumnTypes valueTypes, // this expected to be LONG, LONG: slave row id and slave timestamp
             RecordSink masterKeySink,
             RecordSink slaveKeySink,
-            int columnSplit
-
+            int columnSplit,
+            long toleranceInterval
     ) {
         super(metadata);
         this.masterFactory = masterFactory;
@@ -73,7 +73,8 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
                 joinKeyMap,
                 NullRecordFactory.getInstance(slaveFactory.getMetadata()),
                 masterFactory.getMetadata().getTimestampIndex(),
-                slaveFactory.getMetadata().getTimestampIndex()
+                slaveFactory.getMetadata().getTimestampIndex(),
+                toleranceInterval
         );
     }
 
@@ -115,6 +116,7 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
         private final Map joinKeyMap;
         private final int masterTimestampIndex;
         private final int slaveTimestampIndex;
+        private final long toleranceInterval;
         private Record slaveRecord;
         private Record masterRecord;
         private long slaveTimestamp = Long.MIN_VALUE;
@@ -125,13 +127,15 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
                 Map joinKeyMap,
                 Record nullRecord,
                 int masterTimestampIndex,
-                int slaveTimestampIndex
+                int slaveTimestampIndex,
+                long toleranceInterval
         ) {
             super(columnSplit);
             this.record = new OuterJoinRecord(columnSplit, nullRecord);
             this.joinKeyMap = joinKeyMap;
             this.masterTimestampIndex = masterTimestampIndex;
             this.slaveTimestampIndex = slaveTimestampIndex;
+            this.toleranceInterval = toleranceInterval;
         }
 
         @Override
@@ -155,6 +159,7 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
                         key.put(slaveRecord, slaveKeySink);
                         value = key.createValue();
                         value.putLong(0, lastSlaveRowID);
+                        value.putLong(1, slaveTimestamp);
                     }
 
                     final Record rec = slaveCursor.getRecord();
@@ -165,6 +170,7 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
                             key.put(rec, slaveKeySink);
                             value = key.createValue();
                             value.putLong(0, rec.getRowId());
+                            value.putLong(1, slaveTimestamp);
                         } else {
                             break;
                         }
@@ -177,7 +183,8 @@ public class AsOfJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
                 key = joinKeyMap.withKey();
                 key.put(masterRecord, masterKeySink);
                 value = key.findValue();
-                if (value != null) {
+                // latest slave row for the key is not a match when it is further back than tolerance allows
+                if (value != null && masterTimestamp - value.getLong(1) <= toleranceInterval) {
                     slaveCursor.recordAt(slaveRecord, value.getLong(0));
                     record.hasSlave(true);
                 } else {
@@ -42,8 +42,8 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
             RecordMetadata metadata,
             RecordCursorFactory masterFactory,
             RecordCursorFactory slaveFactory,
-            int columnSplit
-
+            int columnSplit,
+            long toleranceInterval
     ) {
         super(metadata);
         this.masterFactory = masterFactory;
@@ -52,7 +52,8 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
                 columnSplit,
                 NullRecordFactory.getInstance(slaveFactory.getMetadata()),
                 masterFactory.getMetadata().getTimestampIndex(),
-                slaveFactory.getMetadata().getTimestampIndex()
+                slaveFactory.getMetadata().getTimestampIndex(),
+                toleranceInterval
         );
     }
 
@@ -92,22 +93,26 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
         private final OuterJoinRecord record;
         private final int masterTimestampIndex;
         private final int slaveTimestampIndex;
+        private final long toleranceInterval;
         private Record masterRecord;
         private Record slaveRecB;
         private Record slaveRecA;
         private long slaveTimestamp = Long.MIN_VALUE;
         private long latestSlaveRowID = Long.MIN_VALUE;
+        private boolean hasSlave;
 
         public AsOfLightJoinRecordCursor(
                 int columnSplit,
                 Record nullRecord,
                 int masterTimestampIndex,
-                int slaveTimestampIndex
+                int slaveTimestampIndex,
+                long toleranceInterval
         ) {
             super(columnSplit);
             this.record = new OuterJoinRecord(columnSplit, nullRecord);
             this.masterTimestampIndex = masterTimestampIndex;
             this.slaveTimestampIndex = slaveTimestampIndex;
+            this.toleranceInterval = toleranceInterval;
         }
 
         @Override
@@ -120,10 +125,14 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
             if (masterCursor.hasNext()) {
                 // great, we have a record no matter what
                 final long masterTimestamp = masterRecord.getTimestamp(masterTimestampIndex);
-                if (masterTimestamp < slaveTimestamp) {
-                    return true;
+                if (masterTimestamp >= slaveTimestamp) {
+                    nextSlave(masterTimestamp);
                 }
-                nextSlave(masterTimestamp);
+                // slave record B stays on the latest match, which may be too old for this master row
+                record.hasSlave(
+                        hasSlave && (toleranceInterval == Long.MAX_VALUE
+                                || masterTimestamp - slaveRecB.getTimestamp(slaveTimestampIndex) <= toleranceInterval)
+                );
                 return true;
             }
             return false;
@@ -147,7 +156,7 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
 
         private void positionSlaveRecB() {
             if (this.latestSlaveRowID != Long.MIN_VALUE) {
-                record.hasSlave(true);
+                hasSlave = true;
                 slaveCursor.recordAt(slaveRecB, latestSlaveRowID);
             }
         }
@@ -166,7 +175,7 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
                 if (slaveCursor.hasNext()) {
                     slaveTimestamp = slaveRecA.getTimestamp(slaveTimestampIndex);
                     if (slaveTimestamp > masterTimestamp) {
-                        record.hasSlave(true);
+                        hasSlave = true;
                         slaveCursor.recordAt(slaveRecB, latestSlaveRowID);
                         latestSlaveRowID = slaveRecA.getRowId();
                         this.slaveTimestamp = slaveTimestamp;
@@ -176,7 +185,7 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
                         this.slaveTimestamp = slaveTimestamp;
                     }
                 } else {
-                    record.hasSlave(true);
+                    hasSlave = true;
                     slaveCursor.recordAt(slaveRecB, latestSlaveRowID);
                     this.slaveTimestamp = Long.MAX_VALUE;
                     break;
@@ -188,6 +197,7 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
         public void toTop() {
             slaveTimestamp = Long.MIN_VALUE;
             latestSlaveRowID = Long.MIN_VALUE;
+            hasSlave = false;
             record.hasSlave(false);
             masterCursor.toTop();
             slaveCursor.toTop();
@@ -207,6 +217,7 @@ public class AsOfJoinNoKeyRecordCursorFactory extends AbstractRecordCursorFactor
             this.slaveRecA = slaveCursor.getRecord();
             this.slaveRecB = slaveCursor.getRecordB();
             record.of(masterRecord, slaveRecB);
+            hasSlave = false;
             record.hasSlave(false);
         }
     }
@@ -60,7 +60,8 @@ public class AsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
             RecordSink slaveKeySink,
             int columnSplit,
             RecordValueSink slaveValueSink,
-            IntList columnIndex // this column index will be used to retrieve symbol tables from underlying slave
+            IntList columnIndex, // this column index will be used to retrieve symbol tables from underlying slave
+            long toleranceInterval
     ) {
         super(metadata);
         this.masterFactory = masterFactory;
@@ -74,7 +75,9 @@ public class AsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
                 NullRecordFactory.getInstance(slaveColumnTypes),
                 masterFactory.getMetadata().getTimestampIndex(),
                 slaveFactory.getMetadata().getTimestampIndex(),
-                slaveValueSink
+                columnIndex.indexOf(slaveFactory.getMetadata().getTimestampIndex(), 0, columnIndex.size()),
+                slaveValueSink,
+                toleranceInterval
         );
         this.columnIndex = columnIndex;
     }
@@ -117,9 +120,12 @@ public class AsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
         private final Map joinKeyMap;
         private final int masterTimestampIndex;
         private final int slaveTimestampIndex;
+        private final int mapTimestampIndex;
         private final RecordValueSink valueSink;
+        private final long toleranceInterval;
         private Record masterRecord;
         private Record slaveRecord;
+        private MapRecord mapRecord;
         private long slaveTimestamp = Long.MIN_VALUE;
         private boolean danglingSlaveRecord = false;
 
@@ -129,14 +135,18 @@ public class AsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
                 Record nullRecord,
                 int masterTimestampIndex,
                 int slaveTimestampIndex,
-                RecordValueSink valueSink
+                int mapTimestampIndex,
+                RecordValueSink valueSink,
+                long toleranceInterval
         ) {
             super(columnSplit);
             this.record = new OuterJoinRecord(columnSplit, nullRecord);
             this.joinKeyMap = joinKeyMap;
             this.masterTimestampIndex = masterTimestampIndex;
             this.slaveTimestampIndex = slaveTimestampIndex;
+            this.mapTimestampIndex = mapTimestampIndex;
             this.valueSink = valueSink;
+            this.toleranceInterval = toleranceInterval;
         }
 
         @Override
@@ -187,7 +197,10 @@ public class AsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
                 value = key.findValue();
                 if (value != null) {
                     value.setMapRecordHere();
-                    record.hasSlave(true);
+                    record.hasSlave(
+                            toleranceInterval == Long.MAX_VALUE
+                                    || masterTimestamp - mapRecord.getTimestamp(mapTimestampIndex) <= toleranceInterval
+                    );
                 } else {
                     record.hasSlave(false);
                 }
@@ -214,7 +227,7 @@ public class AsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
             this.slaveCursor = slaveCursor;
             this.masterRecord = masterCursor.getRecord();
             this.slaveRecord = slaveCursor.getRecord();
-            MapRecord mapRecord = joinKeyMap.getRecord();
+            this.mapRecord = joinKeyMap.getRecord();
             mapRecord.setSymbolTableResolver(slaveCursor, columnIndex);
             record.of(masterRecord, mapRecord);
         }
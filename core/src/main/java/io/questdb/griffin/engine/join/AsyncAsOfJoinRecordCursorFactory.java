@@ -0,0 +1,373 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.BinarySearch;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.map.MapFactory;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameReducer;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.mp.SCSequence;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.questdb.cairo.sql.DataFrameCursorFactory.ORDER_ANY;
+
+/**
+ * ASOF join with tolerance that matches master page frames in parallel. The query thread
+ * lays out slave timestamps, row ids and dense key ids in arrays, after which master frames
+ * are dispatched to the reduce workers. Tolerance bounds how far back a match may be, so each
+ * worker binary searches the slave timestamps for the first candidate of its frame and
+ * streams both sides from there, independently of the frames before it.
+ */
+public class AsyncAsOfJoinRecordCursorFactory extends AbstractRecordCursorFactory {
+
+    private static final PageFrameReducer REDUCER = AsyncAsOfJoinRecordCursorFactory::join;
+
+    private final RecordCursorFactory masterFactory;
+    private final RecordCursorFactory slaveFactory;
+    private final RecordSink slaveKeySink;
+    private final int slaveTimestampIndex;
+    // maps slave join key to its dense id, null when join has no keys
+    private final FastMap joinKeyMap;
+    private final DirectLongList slaveTimestamps;
+    private final DirectLongList slaveRows;
+    private final DirectLongList slaveKeys;
+    private final AsOfJoinAtom atom;
+    private final PageFrameSequence<AsOfJoinAtom> frameSequence;
+    private final SCSequence collectSubSeq = new SCSequence();
+    private final AsyncAsOfJoinRecordCursor cursor;
+
+    public AsyncAsOfJoinRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull MessageBus messageBus,
+            @NotNull RecordMetadata metadata,
+            @NotNull RecordCursorFactory masterFactory,
+            @NotNull RecordCursorFactory slaveFactory,
+            @Transient @Nullable ColumnTypes joinColumnTypes,
+            @Transient @Nullable ColumnTypes valueTypes, // this expected to be just INT, we store dense key ids in map
+            @Nullable RecordSink masterKeySink, // null when join has no keys
+            @Nullable RecordSink slaveKeySink,
+            int columnSplit,
+            long toleranceInterval,
+            int workerCount
+    ) {
+        super(metadata);
+        assert masterFactory.supportPageFrameCursor();
+        assert toleranceInterval > 0 && toleranceInterval < Long.MAX_VALUE;
+        this.masterFactory = masterFactory;
+        this.slaveFactory = slaveFactory;
+        this.slaveKeySink = slaveKeySink;
+        this.slaveTimestampIndex = slaveFactory.getMetadata().getTimestampIndex();
+        final long initialCapacity = configuration.getSqlHashJoinLightValuePageSize() / Long.BYTES;
+        if (masterKeySink != null) {
+            this.joinKeyMap = new FastMap(
+                    configuration.getSqlMapPageSize(),
+                    joinColumnTypes,
+                    valueTypes,
+                    configuration.getSqlMapKeyCapacity(),
+                    configuration.getSqlFastMapLoadFactor(),
+                    configuration.getSqlMapMaxResizes(),
+                    MapFactory.createSpillFile(configuration)
+            );
+            this.slaveKeys = new DirectLongList(initialCapacity, MemoryTag.NATIVE_LONG_LIST);
+        } else {
+            this.joinKeyMap = null;
+            this.slaveKeys = null;
+        }
+        this.slaveTimestamps = new DirectLongList(initialCapacity, MemoryTag.NATIVE_LONG_LIST);
+        this.slaveRows = new DirectLongList(initialCapacity, MemoryTag.NATIVE_LONG_LIST);
+        this.atom = new AsOfJoinAtom(
+                joinKeyMap,
+                masterKeySink,
+                slaveTimestamps,
+                slaveRows,
+                slaveKeys,
+                masterFactory.getMetadata().getTimestampIndex(),
+                toleranceInterval,
+                workerCount
+        );
+        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
+        this.cursor = new AsyncAsOfJoinRecordCursor(
+                columnSplit,
+                NullRecordFactory.getInstance(slaveFactory.getMetadata())
+        );
+    }
+
+    @Override
+    public void close() {
+        Misc.free(frameSequence);
+        Misc.free(atom);
+        Misc.free(joinKeyMap);
+        Misc.free(slaveTimestamps);
+        Misc.free(slaveRows);
+        Misc.free(slaveKeys);
+        cursor.freeRecords();
+        ((JoinRecordMetadata) getMetadata()).close();
+        Misc.free(masterFactory);
+        Misc.free(slaveFactory);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final RecordCursor slaveCursor = slaveFactory.getCursor(executionContext);
+        try {
+            buildSlaveIndex(slaveCursor, executionContext.getCircuitBreaker());
+            cursor.of(frameSequence.of(masterFactory, executionContext, collectSubSeq, atom, ORDER_ANY), slaveCursor);
+            return cursor;
+        } catch (Throwable e) {
+            Misc.free(slaveCursor);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasDescendingOrder() {
+        return masterFactory.hasDescendingOrder();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsUpdateRowId(CharSequence tableName) {
+        return masterFactory.supportsUpdateRowId(tableName);
+    }
+
+    private static void join(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        final DirectLongList rows = task.getRows();
+        final long frameRowCount = task.getFrameRowCount();
+        final AsOfJoinAtom atom = task.getFrameSequence(AsOfJoinAtom.class).getAtom();
+        final DirectLongList slaveTimestamps = atom.slaveTimestamps;
+        final DirectLongList slaveRows = atom.slaveRows;
+        final long slaveCount = slaveTimestamps.size();
+        final int masterTimestampIndex = atom.masterTimestampIndex;
+        final long toleranceInterval = atom.toleranceInterval;
+
+        rows.clear();
+        if (frameRowCount == 0) {
+            return;
+        }
+
+        // slave rows older than the first master row minus tolerance cannot match any row of this frame
+        record.setRowIndex(0);
+        long slaveIndex = atom.findFirstSlave(record.getTimestamp(masterTimestampIndex));
+
+        if (atom.masterKeySink == null) {
+            long latest = -1;
+            for (long r = 0; r < frameRowCount; r++) {
+                record.setRowIndex(r);
+                final long masterTimestamp = record.getTimestamp(masterTimestampIndex);
+                while (slaveIndex < slaveCount && slaveTimestamps.get(slaveIndex) <= masterTimestamp) {
+                    latest = slaveIndex++;
+                }
+                if (latest != -1 && masterTimestamp - slaveTimestamps.get(latest) <= toleranceInterval) {
+                    rows.add(slaveRows.get(latest));
+                } else {
+                    rows.add(Numbers.LONG_NaN);
+                }
+            }
+            return;
+        }
+
+        final DirectLongList slaveKeys = atom.slaveKeys;
+        final RecordSink masterKeySink = atom.masterKeySink;
+        final int slot = atom.acquire(workerId);
+        try {
+            final FastMap.LookupKey key = atom.getKey(slot);
+            // key id to index of the latest slave row seen in this frame
+            final IntLongHashMap latestByKey = atom.getLatestByKey(slot);
+            latestByKey.clear();
+            for (long r = 0; r < frameRowCount; r++) {
+                record.setRowIndex(r);
+                final long masterTimestamp = record.getTimestamp(masterTimestampIndex);
+                while (slaveIndex < slaveCount && slaveTimestamps.get(slaveIndex) <= masterTimestamp) {
+                    latestByKey.put((int) slaveKeys.get(slaveIndex), slaveIndex);
+                    slaveIndex++;
+                }
+                key.init();
+                masterKeySink.copy(record, key);
+                final MapValue value = key.findValue();
+                final long latest = value != null ? latestByKey.get(value.getInt(0)) : -1;
+                if (latest != -1 && masterTimestamp - slaveTimestamps.get(latest) <= toleranceInterval) {
+                    rows.add(slaveRows.get(latest));
+                } else {
+                    rows.add(Numbers.LONG_NaN);
+                }
+            }
+        } finally {
+            atom.release(slot);
+        }
+    }
+
+    private void buildSlaveIndex(RecordCursor slaveCursor, SqlExecutionCircuitBreaker circuitBreaker) {
+        slaveTimestamps.clear();
+        slaveRows.clear();
+        if (joinKeyMap != null) {
+            joinKeyMap.clear();
+            slaveKeys.clear();
+        }
+
+        final Record record = slaveCursor.getRecord();
+        while (slaveCursor.hasNext()) {
+            circuitBreaker.statefulThrowExceptionIfTripped();
+            slaveTimestamps.add(record.getTimestamp(slaveTimestampIndex));
+            slaveRows.add(record.getRowId());
+            if (joinKeyMap != null) {
+                final MapKey key = joinKeyMap.withKey();
+                key.put(record, slaveKeySink);
+                final MapValue value = key.createValue();
+                if (value.isNew()) {
+                    value.putInt(0, (int) joinKeyMap.size() - 1);
+                }
+                slaveKeys.add(value.getInt(0));
+            }
+        }
+    }
+
+    private static class AsOfJoinAtom implements StatefulAtom, Closeable {
+        private final FastMap joinKeyMap;
+        private final RecordSink masterKeySink;
+        private final DirectLongList slaveTimestamps;
+        private final DirectLongList slaveRows;
+        private final DirectLongList slaveKeys;
+        private final int masterTimestampIndex;
+        private final long toleranceInterval;
+        private final ObjList<FastMap.LookupKey> perWorkerKeys;
+        private final ObjList<IntLongHashMap> perWorkerLatestByKey;
+        private final AtomicBoolean ownerLock = new AtomicBoolean();
+        private FastMap.LookupKey ownerKey;
+        private IntLongHashMap ownerLatestByKey;
+
+        public AsOfJoinAtom(
+                FastMap joinKeyMap,
+                RecordSink masterKeySink,
+                DirectLongList slaveTimestamps,
+                DirectLongList slaveRows,
+                DirectLongList slaveKeys,
+                int masterTimestampIndex,
+                long toleranceInterval,
+                int workerCount
+        ) {
+            this.joinKeyMap = joinKeyMap;
+            this.masterKeySink = masterKeySink;
+            this.slaveTimestamps = slaveTimestamps;
+            this.slaveRows = slaveRows;
+            this.slaveKeys = slaveKeys;
+            this.masterTimestampIndex = masterTimestampIndex;
+            this.toleranceInterval = toleranceInterval;
+            this.perWorkerKeys = new ObjList<>(workerCount);
+            this.perWorkerKeys.setPos(workerCount);
+            this.perWorkerLatestByKey = new ObjList<>(workerCount);
+            this.perWorkerLatestByKey.setPos(workerCount);
+        }
+
+        /**
+         * Acquires the slot for the given worker, see AsyncGroupByAtom#acquire(int).
+         *
+         * @param workerId id of the worker thread or -1
+         * @return slot to be used for {@link #getKey(int)} and {@link #getLatestByKey(int)}
+         */
+        public int acquire(int workerId) {
+            if (workerId == -1) {
+                while (!ownerLock.compareAndSet(false, true)) {
+                    Os.pause();
+                }
+            }
+            return workerId;
+        }
+
+        @Override
+        public void close() {
+            ownerKey = Misc.free(ownerKey);
+            Misc.freeObjList(perWorkerKeys);
+        }
+
+        /**
+         * @param masterTimestamp timestamp of the first master row in the frame
+         * @return index of the first slave row, which is within tolerance from the given timestamp
+         */
+        public long findFirstSlave(long masterTimestamp) {
+            final long lo = masterTimestamp > Long.MIN_VALUE + toleranceInterval ? masterTimestamp - toleranceInterval : Long.MIN_VALUE;
+            final long index = slaveTimestamps.binarySearch(lo, BinarySearch.SCAN_UP);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        // the map is not modified while frames are being reduced, lookup keys are safe to use
+        public FastMap.LookupKey getKey(int slot) {
+            if (slot == -1) {
+                if (ownerKey == null) {
+                    ownerKey = joinKeyMap.newLookupKey();
+                }
+                return ownerKey;
+            }
+            FastMap.LookupKey key = perWorkerKeys.getQuick(slot);
+            if (key == null) {
+                key = joinKeyMap.newLookupKey();
+                perWorkerKeys.setQuick(slot, key);
+            }
+            return key;
+        }
+
+        public IntLongHashMap getLatestByKey(int slot) {
+            if (slot == -1) {
+                if (ownerLatestByKey == null) {
+                    ownerLatestByKey = new IntLongHashMap();
+                }
+                return ownerLatestByKey;
+            }
+            IntLongHashMap latestByKey = perWorkerLatestByKey.getQuick(slot);
+            if (latestByKey == null) {
+                latestByKey = new IntLongHashMap();
+                perWorkerLatestByKey.setQuick(slot, latestByKey);
+            }
+            return latestByKey;
+        }
+
+        public void release(int slot) {
+            if (slot == -1) {
+                ownerLock.set(false);
+            }
+        }
+    }
+}
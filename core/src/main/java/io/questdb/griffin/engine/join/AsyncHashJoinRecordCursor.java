@@ -0,0 +1,270 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.RecordChain;
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.DirectLongList;
+import io.questdb.std.Misc;
+import io.questdb.std.Os;
+
+/**
+ * Walks hash join matches produced by the reduce workers. Each collected frame carries
+ * pairs of (master row index, slave chain head), master rows are positioned on the frame
+ * and slave rows are read from the chain the query thread has built.
+ */
+class AsyncHashJoinRecordCursor implements NoRandomAccessRecordCursor {
+
+    private static final Log LOG = LogFactory.getLog(AsyncHashJoinRecordCursor.class);
+
+    private final int columnSplit;
+    private final boolean hasDescendingOrder;
+    private final PageAddressCacheRecord masterRecord;
+    private final JoinRecord record;
+    private final FastMap joinKeyMap;
+    // exactly one of the chains is set, light join keeps slave row ids,
+    // full fat join keeps copies of slave records
+    private final LongChain slaveRowChain;
+    private final RecordChain slaveRecordChain;
+    private LongChain.TreeCursor slaveChainCursor;
+    private RecordCursor slaveCursor;
+    private Record slaveRecord;
+    private boolean useSlaveChain;
+    private DirectLongList rows;
+    private long cursor = -1;
+    private long frameRowIndex;
+    private long frameRowCount;
+    private int frameIndex;
+    private int frameLimit;
+    private PageFrameSequence<?> frameSequence;
+
+    public AsyncHashJoinRecordCursor(
+            int columnSplit,
+            boolean hasDescendingOrder,
+            FastMap joinKeyMap,
+            LongChain slaveRowChain,
+            RecordChain slaveRecordChain
+    ) {
+        this.columnSplit = columnSplit;
+        this.hasDescendingOrder = hasDescendingOrder;
+        this.masterRecord = new PageAddressCacheRecord();
+        this.record = new JoinRecord(columnSplit);
+        this.joinKeyMap = joinKeyMap;
+        this.slaveRowChain = slaveRowChain;
+        this.slaveRecordChain = slaveRecordChain;
+    }
+
+    @Override
+    public void close() {
+        LOG.debug()
+                .$("closing [shard=").$(frameSequence.getShard())
+                .$(", frameIndex=").$(frameIndex)
+                .$(", frameCount=").$(frameLimit)
+                .$(", cursor=").$(cursor)
+                .I$();
+
+        collectCursor(true);
+        if (frameLimit > -1) {
+            frameSequence.await();
+        }
+        frameSequence.clear();
+        slaveCursor = Misc.free(slaveCursor);
+        // slave side is rebuilt by the next query, memory spilled to disk is released now
+        joinKeyMap.clear();
+        if (slaveRowChain != null) {
+            slaveRowChain.clear();
+        } else {
+            slaveRecordChain.clear();
+        }
+    }
+
+    public void freeRecords() {
+        Misc.free(masterRecord);
+    }
+
+    @Override
+    public Record getRecord() {
+        return record;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable(int columnIndex) {
+        if (columnIndex < columnSplit) {
+            return frameSequence.getSymbolTableSource().getSymbolTable(columnIndex);
+        }
+        return slaveCursor.getSymbolTable(columnIndex - columnSplit);
+    }
+
+    @Override
+    public SymbolTable newSymbolTable(int columnIndex) {
+        if (columnIndex < columnSplit) {
+            return frameSequence.getSymbolTableSource().newSymbolTable(columnIndex);
+        }
+        return slaveCursor.newSymbolTable(columnIndex - columnSplit);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (useSlaveChain && nextSlaveRecord()) {
+            return true;
+        }
+
+        // we have matched rows in the current frame we still need to dispatch
+        if (frameRowIndex < frameRowCount) {
+            nextMasterRecord();
+            return true;
+        }
+
+        // Release previous queue item.
+        // There is no identity check here because this check
+        // had been done when 'cursor' was assigned
+        collectCursor(false);
+
+        // do we have more frames?
+        if (frameIndex < frameLimit) {
+            fetchNextFrame();
+            if (frameRowCount > 0) {
+                nextMasterRecord();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void toTop() {
+        useSlaveChain = false;
+        // check if we at the top already and there is nothing to do
+        if (frameIndex == 0 && frameRowIndex == 0) {
+            return;
+        }
+        frameSequence.toTop();
+        if (frameLimit > -1) {
+            frameIndex = -1;
+            fetchNextFrame();
+        }
+    }
+
+    @Override
+    public long size() {
+        return -1;
+    }
+
+    private void collectCursor(boolean forceCollect) {
+        if (cursor > -1) {
+            frameSequence.collect(cursor, forceCollect);
+            // It is necessary to clear 'cursor' value
+            // because we updated frameIndex and loop can exit due to lack of frames.
+            // Non-update of 'cursor' could cause double-free.
+            cursor = -1;
+        }
+    }
+
+    private void fetchNextFrame() {
+        do {
+            this.cursor = frameSequence.next();
+            if (cursor > -1) {
+                PageFrameReduceTask task = frameSequence.getTask(cursor);
+                LOG.debug()
+                        .$("collected [shard=").$(frameSequence.getShard())
+                        .$(", frameIndex=").$(task.getFrameIndex())
+                        .$(", frameCount=").$(frameSequence.getFrameCount())
+                        .$(", active=").$(frameSequence.isActive())
+                        .$(", cursor=").$(cursor)
+                        .I$();
+
+                this.rows = task.getRows();
+                // rows are pairs of master row index and slave chain head
+                this.frameRowCount = rows.size() >>> 1;
+                this.frameIndex = task.getFrameIndex();
+                if (this.frameRowCount > 0 && frameSequence.isActive()) {
+                    this.frameRowIndex = 0;
+                    masterRecord.setFrameIndex(task.getFrameIndex());
+                    break;
+                } else {
+                    collectCursor(false);
+                }
+            } else {
+                Os.pause();
+            }
+        } while (this.frameIndex < frameLimit);
+    }
+
+    private void nextMasterRecord() {
+        final long pairIndex = hasDescendingOrder ? (frameRowCount - frameRowIndex - 1) : frameRowIndex;
+        frameRowIndex++;
+        masterRecord.setRowIndex(rows.get(pairIndex << 1));
+        final long chainHead = rows.get((pairIndex << 1) + 1);
+        if (slaveRowChain != null) {
+            slaveChainCursor = slaveRowChain.getCursor(chainHead);
+        } else {
+            slaveRecordChain.of(chainHead);
+        }
+        useSlaveChain = true;
+        // chain always has at least one value
+        nextSlaveRecord();
+    }
+
+    private boolean nextSlaveRecord() {
+        if (slaveRowChain != null) {
+            if (slaveChainCursor.hasNext()) {
+                slaveCursor.recordAt(slaveRecord, slaveChainCursor.next());
+                return true;
+            }
+            return false;
+        }
+        return slaveRecordChain.hasNext();
+    }
+
+    void of(PageFrameSequence<?> frameSequence, RecordCursor slaveCursor) {
+        this.frameSequence = frameSequence;
+        this.slaveCursor = slaveCursor;
+        this.frameIndex = -1;
+        this.frameLimit = frameSequence.getFrameCount() - 1;
+        this.frameRowIndex = 0;
+        this.frameRowCount = 0;
+        this.useSlaveChain = false;
+        masterRecord.of(frameSequence.getSymbolTableSource(), frameSequence.getPageAddressCache());
+        if (slaveRowChain != null) {
+            slaveRecord = slaveCursor.getRecordB();
+        } else {
+            slaveRecordChain.setSymbolTableResolver(slaveCursor);
+            slaveRecord = slaveRecordChain.getRecord();
+        }
+        record.of(masterRecord, slaveRecord);
+        // when frameCount is 0 our collect sequence is not subscribed
+        // we should not be attempting to fetch queue using it
+        if (frameLimit > -1) {
+            fetchNextFrame();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordChain;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.map.MapFactory;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameReducer;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.mp.SCSequence;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.questdb.cairo.sql.DataFrameCursorFactory.ORDER_ANY;
+
+/**
+ * Inner hash join that probes the join key map in parallel. The map of slave records
+ * is built on the query thread, after which master page frames are dispatched to the
+ * reduce workers. Each worker looks up the keys of its frame with a lookup key of its own
+ * and publishes matched master rows along with heads of their slave chains.
+ */
+public class AsyncHashJoinRecordCursorFactory extends AbstractRecordCursorFactory {
+
+    private static final PageFrameReducer REDUCER = AsyncHashJoinRecordCursorFactory::probe;
+
+    private final RecordCursorFactory masterFactory;
+    private final RecordCursorFactory slaveFactory;
+    private final RecordSink slaveKeySink;
+    private final FastMap joinKeyMap;
+    private final LongChain slaveRowChain;
+    private final RecordChain slaveRecordChain;
+    private final ProbeAtom probeAtom;
+    private final PageFrameSequence<ProbeAtom> frameSequence;
+    private final SCSequence collectSubSeq = new SCSequence();
+    private final AsyncHashJoinRecordCursor cursor;
+
+    public AsyncHashJoinRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull MessageBus messageBus,
+            @NotNull RecordMetadata metadata,
+            @NotNull RecordCursorFactory masterFactory,
+            @NotNull RecordCursorFactory slaveFactory,
+            @Transient @NotNull ColumnTypes joinColumnTypes,
+            @Transient @NotNull ColumnTypes valueTypes, // this expected to be just LONG, we store chain references in map
+            @NotNull RecordSink masterKeySink,
+            @NotNull RecordSink slaveKeySink,
+            @Nullable RecordSink slaveChainSink, // null when slave rows are to be accessed by row id
+            int columnSplit,
+            int workerCount
+    ) {
+        super(metadata);
+        assert masterFactory.supportPageFrameCursor();
+        this.masterFactory = masterFactory;
+        this.slaveFactory = slaveFactory;
+        this.slaveKeySink = slaveKeySink;
+        this.joinKeyMap = new FastMap(
+                configuration.getSqlMapPageSize(),
+                joinColumnTypes,
+                valueTypes,
+                configuration.getSqlMapKeyCapacity(),
+                configuration.getSqlFastMapLoadFactor(),
+                configuration.getSqlMapMaxResizes(),
+                MapFactory.createSpillFile(configuration)
+        );
+        if (slaveChainSink == null) {
+            this.slaveRowChain = new LongChain(configuration, configuration.getSqlHashJoinLightValuePageSize(), configuration.getSqlHashJoinLightValueMaxPages());
+            this.slaveRecordChain = null;
+        } else {
+            this.slaveRowChain = null;
+            this.slaveRecordChain = new RecordChain(configuration, slaveFactory.getMetadata(), slaveChainSink, configuration.getSqlHashJoinValuePageSize(), configuration.getSqlHashJoinValueMaxPages());
+        }
+        this.probeAtom = new ProbeAtom(joinKeyMap, masterKeySink, workerCount);
+        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
+        this.cursor = new AsyncHashJoinRecordCursor(columnSplit, masterFactory.hasDescendingOrder(), joinKeyMap, slaveRowChain, slaveRecordChain);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(frameSequence);
+        Misc.free(probeAtom);
+        Misc.free(joinKeyMap);
+        Misc.free(slaveRowChain);
+        Misc.free(slaveRecordChain);
+        cursor.freeRecords();
+        ((JoinRecordMetadata) getMetadata()).close();
+        Misc.free(masterFactory);
+        Misc.free(slaveFactory);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final RecordCursor slaveCursor = slaveFactory.getCursor(executionContext);
+        try {
+            buildMapOfSlaveRecords(slaveCursor, executionContext.getCircuitBreaker());
+            cursor.of(frameSequence.of(masterFactory, executionContext, collectSubSeq, probeAtom, ORDER_ANY), slaveCursor);
+            return cursor;
+        } catch (Throwable e) {
+            Misc.free(slaveCursor);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasDescendingOrder() {
+        return masterFactory.hasDescendingOrder();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsUpdateRowId(CharSequence tableName) {
+        return masterFactory.supportsUpdateRowId(tableName);
+    }
+
+    private static void probe(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        final DirectLongList rows = task.getRows();
+        final long frameRowCount = task.getFrameRowCount();
+        final ProbeAtom atom = task.getFrameSequence(ProbeAtom.class).getAtom();
+        final RecordSink masterKeySink = atom.masterKeySink;
+
+        rows.clear();
+        final int slot = atom.acquire(workerId);
+        try {
+            final FastMap.LookupKey key = atom.getKey(slot);
+            for (long r = 0; r < frameRowCount; r++) {
+                record.setRowIndex(r);
+                key.init();
+                masterKeySink.copy(record, key);
+                final MapValue value = key.findValue();
+                if (value != null) {
+                    rows.add(r);
+                    rows.add(value.getLong(0));
+                }
+            }
+        } finally {
+            atom.release(slot);
+        }
+    }
+
+    private void buildMapOfSlaveRecords(RecordCursor slaveCursor, SqlExecutionCircuitBreaker circuitBreaker) {
+        if (slaveRecordChain != null) {
+            HashOuterJoinRecordCursorFactory.buildMap(slaveCursor, slaveCursor.getRecord(), joinKeyMap, slaveKeySink, slaveRecordChain, circuitBreaker);
+            return;
+        }
+
+        slaveRowChain.clear();
+        joinKeyMap.clear();
+        final Record record = slaveCursor.getRecord();
+        while (slaveCursor.hasNext()) {
+            circuitBreaker.statefulThrowExceptionIfTripped();
+            MapKey key = joinKeyMap.withKey();
+            key.put(record, slaveKeySink);
+            MapValue value = key.createValue();
+            if (value.isNew()) {
+                final long offset = slaveRowChain.put(record.getRowId(), -1);
+                value.putLong(0, offset);
+                value.putLong(1, offset);
+            } else {
+                value.putLong(1, slaveRowChain.put(record.getRowId(), value.getLong(1)));
+            }
+        }
+    }
+
+    private static class ProbeAtom implements StatefulAtom, Closeable {
+        private final FastMap joinKeyMap;
+        private final RecordSink masterKeySink;
+        private final ObjList<FastMap.LookupKey> perWorkerKeys;
+        private final AtomicBoolean ownerLock = new AtomicBoolean();
+        private FastMap.LookupKey ownerKey;
+
+        public ProbeAtom(FastMap joinKeyMap, RecordSink masterKeySink, int workerCount) {
+            this.joinKeyMap = joinKeyMap;
+            this.masterKeySink = masterKeySink;
+            this.perWorkerKeys = new ObjList<>(workerCount);
+            this.perWorkerKeys.setPos(workerCount);
+        }
+
+        /**
+         * Acquires the slot for the given worker, see AsyncGroupByAtom#acquire(int).
+         *
+         * @param workerId id of the worker thread or -1
+         * @return slot to be used for {@link #getKey(int)}
+         */
+        public int acquire(int workerId) {
+            if (workerId == -1) {
+                while (!ownerLock.compareAndSet(false, true)) {
+                    Os.pause();
+                }
+            }
+            return workerId;
+        }
+
+        @Override
+        public void close() {
+            ownerKey = Misc.free(ownerKey);
+            Misc.freeObjList(perWorkerKeys);
+        }
+
+        // the map is not modified while frames are being reduced, lookup keys are safe to use
+        public FastMap.LookupKey getKey(int slot) {
+            if (slot == -1) {
+                if (ownerKey == null) {
+                    ownerKey = joinKeyMap.newLookupKey();
+                }
+                return ownerKey;
+            }
+            FastMap.LookupKey key = perWorkerKeys.getQuick(slot);
+            if (key == null) {
+                key = joinKeyMap.newLookupKey();
+                perWorkerKeys.setQuick(slot, key);
+            }
+            return key;
+        }
+
+        public void release(int slot) {
+            if (slot == -1) {
+                ownerLock.set(false);
+            }
+        }
+    }
+}
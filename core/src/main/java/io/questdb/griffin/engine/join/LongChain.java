@@ -24,26 +24,50 @@
 
 package io.questdb.griffin.engine.join;
 
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.vm.MemoryCARWImpl;
+import io.questdb.cairo.vm.SpillFile;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryARW;
 import io.questdb.std.MemoryTag;
 import io.questdb.std.Mutable;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 
 public class LongChain implements Closeable, Mutable {
 
     private final MemoryARW valueChain;
+    // null unless values can spill to disk
+    private final SpillFile spillFile;
     private final TreeCursor cursor;
 
     public LongChain(long valuePageSize, int valueMaxPages) {
-        this.valueChain = Vm.getARWInstance(valuePageSize, valueMaxPages, MemoryTag.NATIVE_DEFAULT);
+        this(Vm.getARWInstance(valuePageSize, valueMaxPages, MemoryTag.NATIVE_DEFAULT), null);
+    }
+
+    public LongChain(CairoConfiguration configuration, long valuePageSize, int valueMaxPages) {
+        this(valuePageSize, valueMaxPages, Vm.getSpillFile(configuration, valuePageSize, valueMaxPages));
+    }
+
+    private LongChain(long valuePageSize, int valueMaxPages, @Nullable SpillFile spillFile) {
+        this(new MemoryCARWImpl(valuePageSize, valueMaxPages, MemoryTag.NATIVE_DEFAULT, spillFile), spillFile);
+    }
+
+    private LongChain(MemoryARW valueChain, @Nullable SpillFile spillFile) {
+        this.valueChain = valueChain;
+        this.spillFile = spillFile;
         this.cursor = new TreeCursor();
     }
 
     @Override
     public void clear() {
-        valueChain.jumpTo(0);
+        if (spillFile != null && spillFile.isSpilled()) {
+            // memory is allocated again on next put, spill file does not outlive the query
+            valueChain.close();
+        } else {
+            valueChain.jumpTo(0);
+        }
     }
 
     @Override
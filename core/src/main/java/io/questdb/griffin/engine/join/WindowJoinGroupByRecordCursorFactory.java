@@ -0,0 +1,235 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.functions.SymbolFunction;
+import io.questdb.griffin.engine.groupby.GroupByUtils;
+import io.questdb.griffin.engine.groupby.SimpleMapValue;
+import io.questdb.griffin.engine.table.SelectedRecord;
+import io.questdb.std.IntList;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Aggregates WINDOW JOIN slave rows for every master row. Window contents are folded
+ * into group-by functions straight from the sliding window, without producing the
+ * joined pairs. Master rows with empty window produce empty aggregates, e.g. count()
+ * of 0 and null avg(). The output keeps master row order.
+ * <p>
+ * Group-by functions and keys are compiled against the base factory metadata, which
+ * is either window join metadata or selection of its columns, hence the optional
+ * column cross index. Keys must be master columns and are read from the master record.
+ */
+public class WindowJoinGroupByRecordCursorFactory extends AbstractRecordCursorFactory {
+    private final RecordCursorFactory base;
+    private final WindowJoinRecordCursorFactory windowJoinFactory;
+    private final IntList columnCrossIndex;
+    private final ObjList<GroupByFunction> groupByFunctions;
+    private final ObjList<Function> recordFunctions;
+    private final WindowJoinGroupByRecordCursor cursor;
+
+    public WindowJoinGroupByRecordCursorFactory(
+            RecordCursorFactory base,
+            WindowJoinRecordCursorFactory windowJoinFactory,
+            @Nullable IntList columnCrossIndex,
+            RecordMetadata groupByMetadata,
+            ObjList<GroupByFunction> groupByFunctions,
+            ObjList<Function> recordFunctions,
+            IntList keyColumnIndexes,
+            int valueCount
+    ) {
+        super(groupByMetadata);
+        this.base = base;
+        this.windowJoinFactory = windowJoinFactory;
+        this.columnCrossIndex = columnCrossIndex;
+        this.groupByFunctions = groupByFunctions;
+        this.recordFunctions = recordFunctions;
+        this.cursor = new WindowJoinGroupByRecordCursor(
+                windowJoinFactory.getMasterFactory().getMetadata().getColumnCount(),
+                keyColumnIndexes,
+                valueCount
+        );
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(recordFunctions);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final RecordCursor master = windowJoinFactory.getMasterFactory().getCursor(executionContext);
+        RecordCursor slave = null;
+        try {
+            slave = windowJoinFactory.getSlaveFactory().getCursor(executionContext);
+            cursor.of(master, slave, executionContext);
+        } catch (Throwable ex) {
+            Misc.free(master);
+            Misc.free(slave);
+            throw ex;
+        }
+        return cursor;
+    }
+
+    @Override
+    public boolean hasDescendingOrder() {
+        return base.hasDescendingOrder();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    private class WindowJoinGroupByRecordCursor extends AbstractJoinCursor {
+        private final WindowJoinSlaveWindow window;
+        private final JoinRecord joinRecord;
+        private final Record baseRecord;
+        private final JoinRecord keyRecord;
+        private final SimpleMapValue value;
+        private final VirtualRecord record;
+        private final SymbolTableSource baseSymbolTableSource = new SymbolTableSource() {
+            @Override
+            public SymbolTable getSymbolTable(int columnIndex) {
+                return WindowJoinGroupByRecordCursor.super.getSymbolTable(toJoinColumnIndex(columnIndex));
+            }
+
+            @Override
+            public SymbolTable newSymbolTable(int columnIndex) {
+                return WindowJoinGroupByRecordCursor.super.newSymbolTable(toJoinColumnIndex(columnIndex));
+            }
+        };
+        private SqlExecutionCircuitBreaker circuitBreaker;
+        private Record masterRecord;
+        private Record slaveRecord;
+
+        public WindowJoinGroupByRecordCursor(int columnSplit, IntList keyColumnIndexes, int valueCount) {
+            super(columnSplit);
+            this.window = windowJoinFactory.getWindow();
+            this.joinRecord = new JoinRecord(columnSplit);
+            if (columnCrossIndex != null) {
+                final SelectedRecord selectedRecord = new SelectedRecord(columnCrossIndex);
+                selectedRecord.of(joinRecord);
+                this.baseRecord = selectedRecord;
+            } else {
+                this.baseRecord = joinRecord;
+            }
+            // record functions read values first and then keys, see GroupByUtils.prepareGroupByRecordFunctions()
+            final IntList keyCrossIndex = new IntList(keyColumnIndexes.size());
+            for (int i = 0, n = keyColumnIndexes.size(); i < n; i++) {
+                keyCrossIndex.add(toJoinColumnIndex(keyColumnIndexes.getQuick(i)));
+            }
+            final SelectedRecord keys = new SelectedRecord(keyCrossIndex);
+            keys.of(joinRecord);
+            this.keyRecord = new JoinRecord(valueCount);
+            this.value = new SimpleMapValue(valueCount);
+            keyRecord.of(value, keys);
+            this.record = new VirtualRecordNoRowid(recordFunctions);
+            record.of(keyRecord);
+        }
+
+        @Override
+        public Record getRecord() {
+            return record;
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            return (SymbolTable) recordFunctions.getQuick(columnIndex);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!masterCursor.hasNext()) {
+                return false;
+            }
+            circuitBreaker.statefulThrowExceptionIfTripped();
+
+            final int keyId = window.move(masterRecord);
+            final int n = groupByFunctions.size();
+            boolean empty = true;
+            if (keyId > -1) {
+                for (long i = window.getHead(), tail = window.getTail(); i < tail; i++) {
+                    if (window.getKeyId(i) == keyId) {
+                        slaveCursor.recordAt(slaveRecord, window.getRowId(i));
+                        if (empty) {
+                            GroupByUtils.updateNew(groupByFunctions, n, value, baseRecord);
+                            empty = false;
+                        } else {
+                            GroupByUtils.updateExisting(groupByFunctions, n, value, baseRecord);
+                        }
+                    }
+                }
+            }
+            if (empty) {
+                // join record still points at slave row of the previous master,
+                // it is not read by empty aggregates
+                GroupByUtils.updateEmpty(groupByFunctions, n, value);
+            }
+            return true;
+        }
+
+        @Override
+        public SymbolTable newSymbolTable(int columnIndex) {
+            return ((SymbolFunction) recordFunctions.getQuick(columnIndex)).newSymbolTable();
+        }
+
+        @Override
+        public long size() {
+            return masterCursor.size();
+        }
+
+        @Override
+        public void toTop() {
+            window.toTop();
+            masterCursor.toTop();
+            slaveCursor.toTop();
+            GroupByUtils.toTop(recordFunctions);
+        }
+
+        void of(RecordCursor masterCursor, RecordCursor slaveCursor, SqlExecutionContext executionContext) throws SqlException {
+            this.masterCursor = masterCursor;
+            this.slaveCursor = slaveCursor;
+            this.masterRecord = masterCursor.getRecord();
+            this.slaveRecord = slaveCursor.getRecordB();
+            this.circuitBreaker = executionContext.getCircuitBreaker();
+            window.of(slaveCursor);
+            joinRecord.of(masterRecord, slaveRecord);
+            Function.init(recordFunctions, baseSymbolTableSource, executionContext);
+        }
+
+        private int toJoinColumnIndex(int columnIndex) {
+            return columnCrossIndex != null ? columnCrossIndex.getQuick(columnIndex) : columnIndex;
+        }
+    }
+}
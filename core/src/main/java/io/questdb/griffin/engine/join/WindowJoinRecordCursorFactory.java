@@ -0,0 +1,195 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.MapFactory;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.Misc;
+import io.questdb.std.Transient;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * WINDOW JOIN pairs every master row with all slave rows whose timestamp falls into
+ * [master timestamp + lo, master timestamp + hi] and, when join keys are present,
+ * have the same key. The result is the same as CROSS JOIN filtered on timestamp range,
+ * but both cursors are read once, in timestamp order.
+ */
+public class WindowJoinRecordCursorFactory extends AbstractRecordCursorFactory {
+    private final RecordCursorFactory masterFactory;
+    private final RecordCursorFactory slaveFactory;
+    private final WindowJoinSlaveWindow window;
+    private final WindowJoinRecordCursor cursor;
+
+    public WindowJoinRecordCursorFactory(
+            CairoConfiguration configuration,
+            RecordMetadata metadata,
+            RecordCursorFactory masterFactory,
+            RecordCursorFactory slaveFactory,
+            @Transient @Nullable ColumnTypes joinColumnTypes,
+            @Transient @Nullable ColumnTypes valueTypes, // this expected to be INT: dense key id
+            @Nullable RecordSink masterKeySink,
+            @Nullable RecordSink slaveKeySink,
+            int columnSplit,
+            long lo,
+            long hi
+    ) {
+        super(metadata);
+        this.masterFactory = masterFactory;
+        this.slaveFactory = slaveFactory;
+        this.window = new WindowJoinSlaveWindow(
+                joinColumnTypes != null ? MapFactory.createMap(configuration, joinColumnTypes, valueTypes) : null,
+                masterKeySink,
+                slaveKeySink,
+                masterFactory.getMetadata().getTimestampIndex(),
+                slaveFactory.getMetadata().getTimestampIndex(),
+                lo,
+                hi,
+                configuration.getSqlJoinMetadataPageSize() / Long.BYTES
+        );
+        this.cursor = new WindowJoinRecordCursor(columnSplit);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(window);
+        ((JoinRecordMetadata) getMetadata()).close();
+        masterFactory.close();
+        slaveFactory.close();
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        RecordCursor master = masterFactory.getCursor(executionContext);
+        RecordCursor slave = null;
+        try {
+            slave = slaveFactory.getCursor(executionContext);
+            cursor.of(master, slave);
+        } catch (Throwable ex) {
+            Misc.free(master);
+            Misc.free(slave);
+            throw ex;
+        }
+        return cursor;
+    }
+
+    @Override
+    public boolean hasDescendingOrder() {
+        return masterFactory.hasDescendingOrder();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    public RecordCursorFactory getMasterFactory() {
+        return masterFactory;
+    }
+
+    RecordCursorFactory getSlaveFactory() {
+        return slaveFactory;
+    }
+
+    WindowJoinSlaveWindow getWindow() {
+        return window;
+    }
+
+    private class WindowJoinRecordCursor extends AbstractJoinCursor {
+        private final JoinRecord record;
+        private Record masterRecord;
+        private Record slaveRecord;
+        private long index;
+        private long tail;
+        private int keyId;
+
+        public WindowJoinRecordCursor(int columnSplit) {
+            super(columnSplit);
+            this.record = new JoinRecord(columnSplit);
+        }
+
+        @Override
+        public Record getRecord() {
+            return record;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                while (index < tail) {
+                    final long i = index++;
+                    if (window.getKeyId(i) == keyId) {
+                        slaveCursor.recordAt(slaveRecord, window.getRowId(i));
+                        return true;
+                    }
+                }
+
+                if (!masterCursor.hasNext()) {
+                    return false;
+                }
+
+                keyId = window.move(masterRecord);
+                if (keyId > -1) {
+                    index = window.getHead();
+                    tail = window.getTail();
+                } else {
+                    // there are no slave rows with master key, yet
+                    index = tail = 0;
+                }
+            }
+        }
+
+        @Override
+        public long size() {
+            return -1;
+        }
+
+        @Override
+        public void toTop() {
+            index = tail = 0;
+            window.toTop();
+            masterCursor.toTop();
+            slaveCursor.toTop();
+        }
+
+        void of(RecordCursor masterCursor, RecordCursor slaveCursor) {
+            this.masterCursor = masterCursor;
+            this.slaveCursor = slaveCursor;
+            this.masterRecord = masterCursor.getRecord();
+            this.slaveRecord = slaveCursor.getRecordB();
+            this.index = this.tail = 0;
+            window.of(slaveCursor);
+            record.of(masterRecord, slaveRecord);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.std.DirectLongList;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Misc;
+import io.questdb.std.Vect;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Sliding window over slave rows ordered by designated timestamp. Master rows
+ * are expected to arrive in ascending timestamp order, so both window edges only
+ * move forward and every slave row enters and leaves the window exactly once.
+ * <p>
+ * The window keeps (timestamp, rowId, keyId) triplets, where keyId is dense id
+ * of the slave join key. Rows that belong to master key are found by comparing
+ * key ids, which avoids re-reading slave key columns for every master row.
+ */
+class WindowJoinSlaveWindow implements Closeable {
+    private static final int ENTRY_SIZE = 3;
+    // window is compacted once head moves this many entries away from buffer start
+    private static final long COMPACT_THRESHOLD = 4096;
+
+    private final DirectLongList rows;
+    private final Map joinKeyMap;
+    private final RecordSink masterKeySink;
+    private final RecordSink slaveKeySink;
+    private final int masterTimestampIndex;
+    private final int slaveTimestampIndex;
+    private final long lo;
+    private final long hi;
+    private RecordCursor slaveCursor;
+    private Record slaveRecord;
+    private long head;
+    private boolean pending;
+    private boolean slaveExhausted;
+
+    WindowJoinSlaveWindow(
+            @Nullable Map joinKeyMap,
+            @Nullable RecordSink masterKeySink,
+            @Nullable RecordSink slaveKeySink,
+            int masterTimestampIndex,
+            int slaveTimestampIndex,
+            long lo,
+            long hi,
+            long initialCapacity
+    ) {
+        this.rows = new DirectLongList(initialCapacity * ENTRY_SIZE, MemoryTag.NATIVE_DEFAULT);
+        this.joinKeyMap = joinKeyMap;
+        this.masterKeySink = masterKeySink;
+        this.slaveKeySink = slaveKeySink;
+        this.masterTimestampIndex = masterTimestampIndex;
+        this.slaveTimestampIndex = slaveTimestampIndex;
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(rows);
+        Misc.free(joinKeyMap);
+    }
+
+    long getHead() {
+        return head;
+    }
+
+    int getKeyId(long index) {
+        return (int) rows.get(index * ENTRY_SIZE + 2);
+    }
+
+    long getRowId(long index) {
+        return rows.get(index * ENTRY_SIZE + 1);
+    }
+
+    long getTail() {
+        return rows.size() / ENTRY_SIZE;
+    }
+
+    /**
+     * Moves the window to cover [ts + lo, ts + hi] of master record timestamp and
+     * resolves master join key.
+     *
+     * @return key id to be matched against {@link #getKeyId(long)}, or -1 when
+     * no slave row with master key has been seen yet
+     */
+    int move(Record masterRecord) {
+        final long masterTimestamp = masterRecord.getTimestamp(masterTimestampIndex);
+        final long windowLo = masterTimestamp + lo;
+        final long windowHi = masterTimestamp + hi;
+
+        long tail = getTail();
+        while (head < tail && rows.get(head * ENTRY_SIZE) < windowLo) {
+            head++;
+        }
+        if (head == tail) {
+            rows.clear();
+            head = 0;
+        } else if (head > COMPACT_THRESHOLD && head > tail - head) {
+            final long entries = tail - head;
+            Vect.memmove(rows.getAddress(), rows.getAddress() + head * ENTRY_SIZE * Long.BYTES, entries * ENTRY_SIZE * Long.BYTES);
+            rows.setPos(entries * ENTRY_SIZE);
+            head = 0;
+        }
+
+        while (!slaveExhausted) {
+            if (!pending) {
+                if (!slaveCursor.hasNext()) {
+                    slaveExhausted = true;
+                    break;
+                }
+                pending = true;
+            }
+            final long slaveTimestamp = slaveRecord.getTimestamp(slaveTimestampIndex);
+            if (slaveTimestamp > windowHi) {
+                // hold on to the slave row, it belongs to one of the next master rows
+                break;
+            }
+            pending = false;
+            if (slaveTimestamp >= windowLo) {
+                rows.add(slaveTimestamp);
+                rows.add(slaveRecord.getRowId());
+                rows.add(slaveKeyId());
+            }
+        }
+
+        if (joinKeyMap == null) {
+            return 0;
+        }
+        final MapKey key = joinKeyMap.withKey();
+        key.put(masterRecord, masterKeySink);
+        final MapValue value = key.findValue();
+        return value != null ? value.getInt(0) : -1;
+    }
+
+    void of(RecordCursor slaveCursor) {
+        this.slaveCursor = slaveCursor;
+        this.slaveRecord = slaveCursor.getRecord();
+        toTop();
+    }
+
+    void toTop() {
+        rows.clear();
+        head = 0;
+        pending = false;
+        slaveExhausted = false;
+        if (joinKeyMap != null) {
+            joinKeyMap.clear();
+        }
+    }
+
+    private int slaveKeyId() {
+        if (joinKeyMap == null) {
+            return 0;
+        }
+        final MapKey key = joinKeyMap.withKey();
+        key.put(slaveRecord, slaveKeySink);
+        final MapValue value = key.createValue();
+        if (value.isNew()) {
+            value.putInt(0, (int) joinKeyMap.size() - 1);
+        }
+        return value.getInt(0);
+    }
+}
@@ -47,6 +47,9 @@ public class AlterOperation extends AbstractOperation implements Mutable, QuietC
     public final static short RENAME_COLUMN = 10;
     public final static short SET_PARAM_MAX_UNCOMMITTED_ROWS = 11;
     public final static short SET_PARAM_COMMIT_LAG = 12;
+    public final static short SET_COLUMN_CODEC = 13;
+    public final static short CONVERT_PARTITION_TO_PARQUET = 14;
+    public final static short CONVERT_PARTITION_TO_NATIVE = 15;
 
     private final static Log LOG = LogFactory.getLog(AlterOperation.class);
 
@@ -108,6 +111,15 @@ public class AlterOperation extends AbstractOperation implements Mutable, QuietC
                 case SET_PARAM_COMMIT_LAG:
                     applyParamCommitLag(tableWriter);
                     break;
+                case SET_COLUMN_CODEC:
+                    applySetColumnCodec(tableWriter);
+                    break;
+                case CONVERT_PARTITION_TO_PARQUET:
+                    applyConvertPartition(tableWriter, true);
+                    break;
+                case CONVERT_PARTITION_TO_NATIVE:
+                    applyConvertPartition(tableWriter, false);
+                    break;
                 default:
                     LOG.error().$("Invalid alter table command [code=").$(command).$(" ,table=").$(tableName).I$();
                     throw SqlException.$(tableNamePosition, "Invalid alter table command [code=").put(command).put(']');
@@ -290,6 +302,30 @@ public class AlterOperation extends AbstractOperation implements Mutable, QuietC
         }
     }
 
+    private void applyConvertPartition(TableWriter tableWriter, boolean toParquet) throws SqlException {
+        for (int i = 0, n = longList.size(); i < n; i++) {
+            long partitionTimestamp = longList.getQuick(i);
+            try {
+                if (toParquet) {
+                    tableWriter.convertPartitionToParquet(partitionTimestamp);
+                } else {
+                    tableWriter.convertPartitionToNative(partitionTimestamp);
+                }
+            } catch (CairoException e) {
+                LOG.error().$("failed to convert partition [table=").$(tableName)
+                        .$(",ts=").$ts(partitionTimestamp)
+                        .$(",errno=").$(e.getErrno())
+                        .$(",error=").$(e.getFlyweightMessage())
+                        .I$();
+
+                throw putPartitionName(SqlException.$(tableNamePosition, "could not convert partition '"),
+                        tableWriter.getPartitionBy(),
+                        partitionTimestamp).put("'. ")
+                        .put(e.getFlyweightMessage());
+            }
+        }
+    }
+
     private void applyDropColumn(TableWriter writer) throws SqlException {
         for (int i = 0, n = charSequenceList.size(); i < n; i++) {
             CharSequence columnName = charSequenceList.getStrA(i);
@@ -356,6 +392,16 @@ public class AlterOperation extends AbstractOperation implements Mutable, QuietC
         }
     }
 
+    private void applySetColumnCodec(TableWriter tableWriter) throws SqlException {
+        CharSequence columnName = charSequenceList.getStrA(0);
+        try {
+            tableWriter.setColumnCodec(columnName, (int) longList.get(0));
+        } catch (CairoException e) {
+            throw SqlException.position(tableNamePosition).put(e.getFlyweightMessage())
+                    .put("[errno=").put(e.getErrno()).put(']');
+        }
+    }
+
     private void applySetSymbolCache(TableWriter tableWriter, boolean isCacheOn) throws SqlException {
         CharSequence columnName = charSequenceList.getStrA(0);
         int columnIndex = tableWriter.getMetadata().getColumnIndexQuiet(columnName);
@@ -100,6 +100,14 @@ public class AlterOperationBuilder {
         return this;
     }
 
+    public AlterOperationBuilder ofConvertPartition(int tableNamePosition, String tableName, int tableId, boolean toParquet) {
+        this.command = toParquet ? CONVERT_PARTITION_TO_PARQUET : CONVERT_PARTITION_TO_NATIVE;
+        this.tableNamePosition = tableNamePosition;
+        this.tableName = tableName;
+        this.tableId = tableId;
+        return this;
+    }
+
     public AlterOperationBuilder ofDropColumn(CharSequence columnName) {
         assert columnName != null && columnName.length() > 0;
         this.objCharList.add(columnName);
@@ -130,6 +138,16 @@ public class AlterOperationBuilder {
         return this;
     }
 
+    public AlterOperationBuilder ofSetColumnCodec(int tableNamePosition, String tableName, int tableId, CharSequence columnName, int codec) {
+        this.command = SET_COLUMN_CODEC;
+        this.tableNamePosition = tableNamePosition;
+        this.tableName = tableName;
+        this.tableId = tableId;
+        this.objCharList.add(columnName);
+        this.longList.add(codec);
+        return this;
+    }
+
     public AlterOperationBuilder ofSetParamCommitLag(String tableName, int tableId, long commitLag) {
         this.command = SET_PARAM_COMMIT_LAG;
         this.tableName = tableName;
@@ -25,7 +25,8 @@
 package io.questdb.griffin.engine.ops;
 
 import io.questdb.cairo.CairoEngine;
-import io.questdb.cairo.TableWriter;
+import io.questdb.cairo.EntryUnavailableException;
+import io.questdb.cairo.TableWriterAPI;
 import io.questdb.cairo.pool.WriterSource;
 import io.questdb.cairo.sql.InsertMethod;
 import io.questdb.cairo.sql.InsertOperation;
@@ -64,7 +65,16 @@ public class InsertOperationImpl implements InsertOperation {
     public InsertMethod createMethod(SqlExecutionContext executionContext, WriterSource writerSource) throws SqlException {
         initContext(executionContext);
         if (insertMethod.writer == null) {
-            final TableWriter writer = writerSource.getWriter(executionContext.getCairoSecurityContext(), tableName, "insert");
+            TableWriterAPI writer;
+            try {
+                writer = writerSource.getWriter(executionContext.getCairoSecurityContext(), tableName, "insert");
+            } catch (EntryUnavailableException e) {
+                if (!engine.getConfiguration().isWalEnabled()) {
+                    throw e;
+                }
+                // table writer is busy, append rows to the write-ahead log instead
+                writer = engine.getWalWriter(executionContext.getCairoSecurityContext(), tableName);
+            }
             if (writer.getStructureVersion() != structureVersion) {
                 writer.close();
                 throw WriterOutOfDateException.INSTANCE;
@@ -101,7 +111,7 @@ public class InsertOperationImpl implements InsertOperation {
     }
 
     private class InsertMethodImpl implements InsertMethod {
-        private TableWriter writer = null;
+        private TableWriterAPI writer = null;
 
         @Override
         public long execute() {
@@ -118,8 +128,8 @@ public class InsertOperationImpl implements InsertOperation {
         }
 
         @Override
-        public TableWriter popWriter() {
-            TableWriter w = writer;
+        public TableWriterAPI popWriter() {
+            TableWriterAPI w = writer;
             this.writer = null;
             return w;
         }
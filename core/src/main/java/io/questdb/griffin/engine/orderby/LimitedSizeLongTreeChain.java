@@ -24,6 +24,7 @@
 
 package io.questdb.griffin.engine.orderby;
 
+import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.vm.Vm;
@@ -99,6 +100,23 @@ public class LimitedSizeLongTreeChain extends AbstractRedBlackTree {
         this.maxValues = maxValues;
     }
 
+    public LimitedSizeLongTreeChain(
+            CairoConfiguration configuration,
+            long keyPageSize,
+            int keyMaxPages,
+            long valuePageSize,
+            int valueMaxPages,
+            boolean isfirstN,
+            long maxValues
+    ) {
+        super(configuration, keyPageSize, keyMaxPages);
+        this.valueChain = Vm.getSpillableCARWInstance(configuration, valuePageSize, valueMaxPages, MemoryTag.NATIVE_TREE_CHAIN);
+        this.freeList = new LongList();
+        this.chainFreeList = new LongList();
+        this.isFirstN = isfirstN;
+        this.maxValues = maxValues;
+    }
+
     @Override
     public void clear() {
         super.clear();
@@ -29,8 +29,12 @@ import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.sql.*;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
-import io.questdb.griffin.engine.AbstractRedBlackTree;
 import io.questdb.griffin.engine.RecordComparator;
+import io.questdb.std.IntList;
+import io.questdb.std.Misc;
+import io.questdb.std.Transient;
+
+import java.io.Closeable;
 
 /**
  * Same as SortedLightRecordCursorFactory but using LimitedSizeLongTreeChain instead.
@@ -44,9 +48,10 @@ public class LimitedSizeSortedLightRecordCursorFactory extends AbstractRecordCur
     private final RecordComparator comparator;
     private final Function loFunction;
     private final Function hiFunction;
+    private final IntList sortColumnFilter;
 
     //initialization delayed to getCursor() because lo/hi need to be evaluated
-    private AbstractRedBlackTree chain; //LimitedSizeLongTreeChain or LongTreeChain
+    private Closeable chain; //LimitedSizeLongTreeChain or RecordSorter
     private DelegatingRecordCursor cursor;//LimitedSizeSortedLightRecordCursor or SortedLightRecordCursor
 
     public LimitedSizeSortedLightRecordCursorFactory(
@@ -54,6 +59,7 @@ public class LimitedSizeSortedLightRecordCursorFactory extends AbstractRecordCur
             RecordMetadata metadata,
             RecordCursorFactory base,
             RecordComparator comparator,
+            @Transient IntList sortColumnFilter,
             Function loFunc,
             Function hiFunc
     ) {
@@ -63,14 +69,14 @@ public class LimitedSizeSortedLightRecordCursorFactory extends AbstractRecordCur
         this.hiFunction = hiFunc;
         this.configuration = configuration;
         this.comparator = comparator;
+        this.sortColumnFilter = new IntList(sortColumnFilter.size());
+        this.sortColumnFilter.addAll(sortColumnFilter);
     }
 
     @Override
     public void close() {
         base.close();
-        if (chain != null) {
-            chain.close();
-        }
+        Misc.free(chain);
     }
 
     @Override
@@ -100,13 +106,19 @@ public class LimitedSizeSortedLightRecordCursorFactory extends AbstractRecordCur
     }
 
     private void initializeUnlimitedSizeCursor() {
-        this.chain = new LongTreeChain(
+        final RecordSorter sorter = new RecordSorter(
+                configuration,
+                base.getMetadata(),
+                sortColumnFilter,
+                comparator,
+                true,
                 configuration.getSqlSortKeyPageSize(),
                 configuration.getSqlSortKeyMaxPages(),
-                configuration
-                        .getSqlSortLightValuePageSize(),
-                configuration.getSqlSortLightValueMaxPages());
-        this.cursor = new SortedLightRecordCursor((LongTreeChain) chain, comparator);
+                configuration.getSqlSortLightValuePageSize(),
+                configuration.getSqlSortLightValueMaxPages()
+        );
+        this.chain = sorter;
+        this.cursor = new SortedLightRecordCursor(sorter);
     }
 
     /*
@@ -182,6 +194,7 @@ public class LimitedSizeSortedLightRecordCursorFactory extends AbstractRecordCur
         }
 
         this.chain = new LimitedSizeLongTreeChain(
+                configuration,
                 configuration.getSqlSortKeyPageSize(),
                 configuration.getSqlSortKeyMaxPages(),
                 configuration.getSqlSortLightValuePageSize(),
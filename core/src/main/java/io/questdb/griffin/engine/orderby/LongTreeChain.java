@@ -24,6 +24,7 @@
 
 package io.questdb.griffin.engine.orderby;
 
+import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.vm.Vm;
@@ -42,6 +43,11 @@ public class LongTreeChain extends AbstractRedBlackTree {
         this.valueChain = Vm.getARWInstance(valuePageSize, valueMaxPages, MemoryTag.NATIVE_TREE_CHAIN);
     }
 
+    public LongTreeChain(CairoConfiguration configuration, long keyPageSize, int keyMaxPages, long valuePageSize, int valueMaxPages) {
+        super(configuration, keyPageSize, keyMaxPages);
+        this.valueChain = Vm.getSpillableCARWInstance(configuration, valuePageSize, valueMaxPages, MemoryTag.NATIVE_TREE_CHAIN);
+    }
+
     @Override
     public void clear() {
         super.clear();
@@ -70,9 +76,19 @@ public class LongTreeChain extends AbstractRedBlackTree {
             RecordCursor sourceCursor,
             Record rightRecord,
             RecordComparator comparator
+    ) {
+        put(leftRecord, leftRecord.getRowId(), sourceCursor, rightRecord, comparator);
+    }
+
+    public void put(
+            Record leftRecord,
+            long leftRowId,
+            RecordCursor sourceCursor,
+            Record rightRecord,
+            RecordComparator comparator
     ) {
         if (root == -1) {
-            putParent(leftRecord.getRowId());
+            putParent(leftRowId);
             return;
         }
 
@@ -91,7 +107,7 @@ public class LongTreeChain extends AbstractRedBlackTree {
             } else if (cmp > 0) {
                 p = rightOf(p);
             } else {
-                setRef(p, appendValue(leftRecord.getRowId(), r));
+                setRef(p, appendValue(leftRowId, r));
                 return;
             }
         } while (p > -1);
@@ -99,7 +115,7 @@ public class LongTreeChain extends AbstractRedBlackTree {
         p = allocateBlock();
         setParent(p, parent);
 
-        setRef(p, appendValue(leftRecord.getRowId(), -1L));
+        setRef(p, appendValue(leftRowId, -1L));
 
         if (cmp < 0) {
             setLeft(parent, p);
@@ -0,0 +1,468 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.orderby;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.SqlExecutionCircuitBreaker;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.griffin.engine.RecordComparator;
+import io.questdb.std.*;
+import io.questdb.std.str.StringSink;
+
+import java.io.Closeable;
+
+/**
+ * Sorts rows by ORDER BY keys. Row ids are accumulated in a contiguous buffer along with sort keys of
+ * fixed-width types, which are encoded into unsigned 64-bit words that order the same way as the compiled
+ * record comparator. Narrow keys share words. Words are radix sorted natively, least significant word
+ * first, which works because radix sort is stable. When any of the keys is a string, a symbol or another
+ * type without fixed-width encoding, row ids are put into LongTreeChain using the record comparator instead.
+ * Tree memory is sized by the number of distinct keys, which is what sort key page limits are set for.
+ * <p>
+ * Rows with equal keys are returned in the order of arrival or, when requested, in the reverse order of
+ * arrival to match what LongTreeChain used to return. Tree chains kept NaN values of the last double key
+ * in the order of arrival, so these are encoded as their arrival ordinals, which sort before any other value.
+ */
+public class RecordSorter implements Mutable, Closeable {
+    private static final int FLAG_DESC = 1;
+    // parts of the sort key, in order of significance; LONG256 key has 4 parts
+    private final IntList partColumns = new IntList();
+    private final IntList partTypes = new IntList();
+    private final IntList partFlags = new IntList();
+    private final IntList partWords = new IntList();
+    private final IntList partShifts = new IntList();
+    private final IntList partSubIndexes = new IntList();
+    private final LongList partMasks = new LongList();
+    private final RecordComparator comparator;
+    private final LeftRecord leftRecord = new LeftRecord();
+    // row ids, followed by sorted row ids when keys are not encoded
+    private final MemoryCARW rowMem;
+    // sorts rows when keys are not encoded
+    private final LongTreeChain chain;
+    // encoded key words, row after row, followed by radix sort buffers
+    private final MemoryCARW keyMem;
+    private final int wordCount;
+    private final boolean reverseTies;
+    private long rowCount;
+    // address of sorted row ids
+    private long sortedAddr;
+
+    /**
+     * @param configuration provides spill settings of sort buffers
+     * @param columnTypes   column types of the records being sorted
+     * @param sortKeys      1-based column indexes, negative for descending order, see ListColumnFilter
+     * @param comparator    comparator compiled for the same sort keys
+     * @param reverseTies   true to return rows with equal keys in the reverse order of arrival
+     */
+    public RecordSorter(
+            CairoConfiguration configuration,
+            ColumnTypes columnTypes,
+            @Transient IntList sortKeys,
+            RecordComparator comparator,
+            boolean reverseTies,
+            long keyPageSize,
+            int keyMaxPages,
+            long valuePageSize,
+            int valueMaxPages
+    ) {
+        this.comparator = comparator;
+        this.reverseTies = reverseTies;
+        this.rowMem = Vm.getSpillableCARWInstance(configuration, valuePageSize, valueMaxPages, MemoryTag.NATIVE_SORT);
+        this.keyMem = Vm.getSpillableCARWInstance(configuration, keyPageSize, keyMaxPages, MemoryTag.NATIVE_SORT);
+        this.wordCount = layoutParts(columnTypes, sortKeys);
+        this.chain = wordCount > 0 ? null : new LongTreeChain(configuration, keyPageSize, keyMaxPages, valuePageSize, valueMaxPages);
+    }
+
+    @Override
+    public void clear() {
+        rowMem.jumpTo(0);
+        keyMem.jumpTo(0);
+        if (chain != null) {
+            chain.clear();
+        }
+        rowCount = 0;
+        sortedAddr = 0;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(rowMem);
+        Misc.free(keyMem);
+        Misc.free(chain);
+        leftRecord.of(null);
+        rowCount = 0;
+        sortedAddr = 0;
+    }
+
+    public long getRowId(long index) {
+        return Unsafe.getUnsafe().getLong(sortedAddr + index * Long.BYTES);
+    }
+
+    /**
+     * Adds row to the sort. Record must be positioned at the row.
+     *
+     * @param record record to read sort keys from
+     * @param rowId  id to position record at the row once rows are sorted
+     */
+    public void put(Record record, long rowId) {
+        rowMem.putLong(rowId);
+        if (wordCount > 0) {
+            final long addr = keyMem.appendAddressFor((long) wordCount * Long.BYTES);
+            for (int w = 0; w < wordCount; w++) {
+                Unsafe.getUnsafe().putLong(addr + (long) w * Long.BYTES, 0);
+            }
+            for (int i = 0, n = partColumns.size(); i < n; i++) {
+                final long wordAddr = addr + (long) partWords.getQuick(i) * Long.BYTES;
+                long value = encode(record, i, n);
+                if ((partFlags.getQuick(i) & FLAG_DESC) != 0) {
+                    value = ~value & partMasks.getQuick(i);
+                }
+                Unsafe.getUnsafe().putLong(wordAddr, Unsafe.getUnsafe().getLong(wordAddr) | (value << partShifts.getQuick(i)));
+            }
+        }
+        rowCount++;
+    }
+
+    public long size() {
+        return rowCount;
+    }
+
+    /**
+     * Sorts rows added so far.
+     *
+     * @param cursor cursor to position records at row ids, it is used only when keys cannot be encoded
+     * @param left   record for the left side of comparison
+     * @param right  record for the right side of comparison
+     */
+    public void sort(RecordCursor cursor, Record left, Record right, SqlExecutionCircuitBreaker circuitBreaker) {
+        if (rowCount == 0) {
+            sortedAddr = rowMem.getAddress();
+            return;
+        }
+        if (wordCount > 0) {
+            radixSort(circuitBreaker);
+        } else {
+            treeSort(cursor, left, right, circuitBreaker);
+        }
+    }
+
+    private static long encodeDouble(double value) {
+        if (value != value) {
+            // NaN is the smallest value
+            return 0;
+        }
+        final long bits = Double.doubleToLongBits(value);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    private static long encodeFloat(float value) {
+        if (value != value) {
+            return 0;
+        }
+        final int bits = Float.floatToIntBits(value);
+        return (bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xffffffffL;
+    }
+
+    private static int getEncodedWidth(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BOOLEAN:
+                return 1;
+            case ColumnType.BYTE:
+                return 8;
+            case ColumnType.SHORT:
+            case ColumnType.CHAR:
+                return 16;
+            case ColumnType.INT:
+            case ColumnType.FLOAT:
+                return 32;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.DOUBLE:
+                return 64;
+            case ColumnType.LONG256:
+                return 256;
+            default:
+                return -1;
+        }
+    }
+
+    private long encode(Record record, int part, int partCount) {
+        final int col = partColumns.getQuick(part);
+        switch (partTypes.getQuick(part)) {
+            case ColumnType.BOOLEAN:
+                return record.getBool(col) ? 1 : 0;
+            case ColumnType.BYTE:
+                return (record.getByte(col) ^ Byte.MIN_VALUE) & 0xffL;
+            case ColumnType.SHORT:
+                return (record.getShort(col) ^ Short.MIN_VALUE) & 0xffffL;
+            case ColumnType.CHAR:
+                return record.getChar(col);
+            case ColumnType.INT:
+                return (record.getInt(col) ^ Integer.MIN_VALUE) & 0xffffffffL;
+            case ColumnType.LONG:
+                return record.getLong(col) ^ Long.MIN_VALUE;
+            case ColumnType.DATE:
+                return record.getDate(col) ^ Long.MIN_VALUE;
+            case ColumnType.TIMESTAMP:
+                return record.getTimestamp(col) ^ Long.MIN_VALUE;
+            case ColumnType.FLOAT:
+                return encodeFloat(record.getFloat(col));
+            case ColumnType.DOUBLE:
+                final double d = record.getDouble(col);
+                if (d != d && part == partCount - 1) {
+                    // encoded finite values start well above any possible ordinal
+                    return rowCount;
+                }
+                return encodeDouble(d);
+            default:
+                // LONG256, most significant long first
+                final Long256 value = record.getLong256A(col);
+                switch (partSubIndexes.getQuick(part)) {
+                    case 3:
+                        return value.getLong3() ^ Long.MIN_VALUE;
+                    case 2:
+                        return value.getLong2() ^ Long.MIN_VALUE;
+                    case 1:
+                        return value.getLong1() ^ Long.MIN_VALUE;
+                    default:
+                        return value.getLong0() ^ Long.MIN_VALUE;
+                }
+        }
+    }
+
+    private int layoutParts(ColumnTypes columnTypes, IntList sortKeys) {
+        final IntList partWidths = new IntList();
+        for (int i = 0, n = sortKeys.size(); i < n; i++) {
+            final int key = sortKeys.getQuick(i);
+            final int columnIndex = (key > 0 ? key : -key) - 1;
+            final int columnType = columnTypes.getColumnType(columnIndex);
+            final int width = getEncodedWidth(columnType);
+            if (width < 0) {
+                partColumns.clear();
+                partTypes.clear();
+                partFlags.clear();
+                partSubIndexes.clear();
+                return 0;
+            }
+            final int parts = width > 64 ? width / 64 : 1;
+            for (int p = parts - 1; p > -1; p--) {
+                partColumns.add(columnIndex);
+                partTypes.add(ColumnType.tagOf(columnType));
+                partFlags.add(key < 0 ? FLAG_DESC : 0);
+                partSubIndexes.add(p);
+                partWidths.add(Math.min(width, 64));
+            }
+        }
+
+        // pack parts into words, more significant parts go to higher bits of earlier words
+        int word = 0;
+        int wordBits = 0;
+        int wordStart = 0;
+        for (int i = 0, n = partColumns.size(); i <= n; i++) {
+            final int width = i < n ? partWidths.getQuick(i) : 0;
+            if (i == n || wordBits + width > 64) {
+                // finalise current word
+                int bits = wordBits;
+                for (int j = wordStart; j < i; j++) {
+                    bits -= partWidths.getQuick(j);
+                    partShifts.add(bits);
+                }
+                if (i == n) {
+                    break;
+                }
+                word++;
+                wordBits = 0;
+                wordStart = i;
+            }
+            partWords.add(word);
+            partMasks.add(width == 64 ? -1L : (1L << width) - 1);
+            wordBits += width;
+        }
+        return word + 1;
+    }
+
+    private void radixSort(SqlExecutionCircuitBreaker circuitBreaker) {
+        final long keysSize = rowCount * wordCount * Long.BYTES;
+        final long entriesSize = rowCount * 2 * Long.BYTES;
+        keyMem.jumpTo(keysSize);
+        keyMem.skip(2 * entriesSize);
+        final long wordsAddr = keyMem.getAddress();
+        final long entriesAddr = wordsAddr + keysSize;
+        final long cpyAddr = entriesAddr + entriesSize;
+
+        // (key, ordinal) entries; radix sort is stable, so the order of ordinals is the order of ties
+        for (long i = 0; i < rowCount; i++) {
+            final long ordinal = reverseTies ? rowCount - i - 1 : i;
+            final long entryAddr = entriesAddr + i * 2 * Long.BYTES;
+            Unsafe.getUnsafe().putLong(entryAddr, Unsafe.getUnsafe().getLong(wordsAddr + (ordinal * wordCount + wordCount - 1) * Long.BYTES));
+            Unsafe.getUnsafe().putLong(entryAddr + Long.BYTES, ordinal);
+        }
+        Vect.radixSortLongIndexAscInPlace(entriesAddr, rowCount, cpyAddr);
+
+        for (int w = wordCount - 2; w > -1; w--) {
+            circuitBreaker.statefulThrowExceptionIfTripped();
+            for (long i = 0; i < rowCount; i++) {
+                final long entryAddr = entriesAddr + i * 2 * Long.BYTES;
+                final long ordinal = Unsafe.getUnsafe().getLong(entryAddr + Long.BYTES);
+                Unsafe.getUnsafe().putLong(entryAddr, Unsafe.getUnsafe().getLong(wordsAddr + (ordinal * wordCount + w) * Long.BYTES));
+            }
+            Vect.radixSortLongIndexAscInPlace(entriesAddr, rowCount, cpyAddr);
+        }
+
+        // replace ordinals with row ids in place, row ids stay in the key slots of entries
+        final long rowsAddr = rowMem.getAddress();
+        for (long i = 0; i < rowCount; i++) {
+            final long ordinal = Unsafe.getUnsafe().getLong(entriesAddr + i * 2 * Long.BYTES + Long.BYTES);
+            Unsafe.getUnsafe().putLong(cpyAddr + i * Long.BYTES, Unsafe.getUnsafe().getLong(rowsAddr + ordinal * Long.BYTES));
+        }
+        sortedAddr = cpyAddr;
+    }
+
+    private void treeSort(RecordCursor cursor, Record left, Record right, SqlExecutionCircuitBreaker circuitBreaker) {
+        chain.clear();
+        final long size = rowCount * Long.BYTES;
+        rowMem.jumpTo(size);
+        rowMem.skip(size);
+        final long rowsAddr = rowMem.getAddress();
+        // tree chain returns rows with equal keys in the reverse order of insertion
+        for (long i = 0; i < rowCount; i++) {
+            circuitBreaker.statefulThrowExceptionIfTripped();
+            final long rowId = Unsafe.getUnsafe().getLong(rowsAddr + (reverseTies ? i : rowCount - i - 1) * Long.BYTES);
+            cursor.recordAt(left, rowId);
+            chain.put(leftRecord.of(left), rowId, cursor, right, comparator);
+        }
+
+        final long sortedRowsAddr = rowsAddr + size;
+        final LongTreeChain.TreeCursor chainCursor = chain.getCursor();
+        long i = 0;
+        while (chainCursor.hasNext()) {
+            Unsafe.getUnsafe().putLong(sortedRowsAddr + i++ * Long.BYTES, chainCursor.next());
+        }
+        sortedAddr = sortedRowsAddr;
+    }
+
+    /**
+     * Comparator keeps left side values until the next setLeft() call. Records of RecordChain share
+     * string and long256 views between columns, so these values are copied before the comparator
+     * keeps them, otherwise all string keys of the left side would read the value of the last one.
+     */
+    private static class LeftRecord implements Record {
+        private final ObjList<StringSink> strings = new ObjList<>();
+        private final ObjList<Long256Impl> longs256 = new ObjList<>();
+        private Record base;
+
+        @Override
+        public boolean getBool(int col) {
+            return base.getBool(col);
+        }
+
+        @Override
+        public byte getByte(int col) {
+            return base.getByte(col);
+        }
+
+        @Override
+        public char getChar(int col) {
+            return base.getChar(col);
+        }
+
+        @Override
+        public long getDate(int col) {
+            return base.getDate(col);
+        }
+
+        @Override
+        public double getDouble(int col) {
+            return base.getDouble(col);
+        }
+
+        @Override
+        public float getFloat(int col) {
+            return base.getFloat(col);
+        }
+
+        @Override
+        public int getInt(int col) {
+            return base.getInt(col);
+        }
+
+        @Override
+        public long getLong(int col) {
+            return base.getLong(col);
+        }
+
+        @Override
+        public Long256 getLong256B(int col) {
+            final Long256 value = base.getLong256B(col);
+            Long256Impl copy = longs256.getQuiet(col);
+            if (copy == null) {
+                longs256.extendAndSet(col, copy = new Long256Impl());
+            }
+            copy.copyFrom(value);
+            return copy;
+        }
+
+        @Override
+        public short getShort(int col) {
+            return base.getShort(col);
+        }
+
+        @Override
+        public CharSequence getStrB(int col) {
+            final CharSequence value = base.getStrB(col);
+            if (value == null) {
+                return null;
+            }
+            StringSink copy = strings.getQuiet(col);
+            if (copy == null) {
+                strings.extendAndSet(col, copy = new StringSink());
+            }
+            copy.clear();
+            copy.put(value);
+            return copy;
+        }
+
+        @Override
+        public CharSequence getSymB(int col) {
+            return base.getSymB(col);
+        }
+
+        @Override
+        public long getTimestamp(int col) {
+            return base.getTimestamp(col);
+        }
+
+        private Record of(Record base) {
+            this.base = base;
+            return this;
+        }
+    }
+}
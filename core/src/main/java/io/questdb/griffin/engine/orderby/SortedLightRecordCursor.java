@@ -27,25 +27,20 @@ package io.questdb.griffin.engine.orderby;
 import io.questdb.cairo.sql.*;
 import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.SqlExecutionContext;
-import io.questdb.griffin.engine.RecordComparator;
 
 class SortedLightRecordCursor implements DelegatingRecordCursor {
-    private final LongTreeChain chain;
-    private final RecordComparator comparator;
-    private final LongTreeChain.TreeCursor chainCursor;
+    private final RecordSorter sorter;
     private RecordCursor base;
     private Record baseRecord;
+    private long index;
 
-    public SortedLightRecordCursor(LongTreeChain chain, RecordComparator comparator) {
-        this.chain = chain;
-        this.comparator = comparator;
-        // assign it once, it's the same instance anyway
-        this.chainCursor = chain.getCursor();
+    public SortedLightRecordCursor(RecordSorter sorter) {
+        this.sorter = sorter;
     }
 
     @Override
     public void close() {
-        chain.clear();
+        sorter.clear();
         base.close();
     }
 
@@ -71,8 +66,8 @@ class SortedLightRecordCursor implements DelegatingRecordCursor {
 
     @Override
     public boolean hasNext() {
-        if (chainCursor.hasNext()) {
-            base.recordAt(baseRecord, chainCursor.next());
+        if (index < sorter.size()) {
+            base.recordAt(baseRecord, sorter.getRowId(index++));
             return true;
         }
         return false;
@@ -90,30 +85,22 @@ class SortedLightRecordCursor implements DelegatingRecordCursor {
 
     @Override
     public void toTop() {
-        chainCursor.toTop();
+        index = 0;
     }
 
     @Override
     public void of(RecordCursor base, SqlExecutionContext executionContext) {
         this.base = base;
         this.baseRecord = base.getRecord();
-        final Record placeHolderRecord = base.getRecordB();
         final SqlExecutionCircuitBreaker circuitBreaker = executionContext.getCircuitBreaker();
 
-        chain.clear();
+        sorter.clear();
         while (base.hasNext()) {
             circuitBreaker.statefulThrowExceptionIfTripped();
-            // Tree chain is liable to re-position record to
-            // other rows to do record comparison. We must use our
-            // own record instance in case base cursor keeps
-            // state in the record it returns.
-            chain.put(
-                    baseRecord,
-                    base,
-                    placeHolderRecord,
-                    comparator
-            );
+            sorter.put(baseRecord, baseRecord.getRowId());
         }
-        chainCursor.toTop();
+        // sorter may re-position both records to compare keys
+        sorter.sort(base, baseRecord, base.getRecordB(), circuitBreaker);
+        toTop();
     }
 }
@@ -32,33 +32,41 @@ import io.questdb.cairo.sql.RecordMetadata;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.griffin.engine.RecordComparator;
+import io.questdb.std.IntList;
+import io.questdb.std.Transient;
 
 public class SortedLightRecordCursorFactory extends AbstractRecordCursorFactory {
     private final RecordCursorFactory base;
-    private final LongTreeChain chain;
+    private final RecordSorter sorter;
     private final SortedLightRecordCursor cursor;
 
     public SortedLightRecordCursorFactory(
             CairoConfiguration configuration,
             RecordMetadata metadata,
             RecordCursorFactory base,
-            RecordComparator comparator
+            RecordComparator comparator,
+            @Transient IntList sortColumnFilter
     ) {
         super(metadata);
-        this.chain = new LongTreeChain(
+        this.sorter = new RecordSorter(
+                configuration,
+                base.getMetadata(),
+                sortColumnFilter,
+                comparator,
+                true,
                 configuration.getSqlSortKeyPageSize(),
                 configuration.getSqlSortKeyMaxPages(),
-                configuration
-                        .getSqlSortLightValuePageSize(),
-                configuration.getSqlSortLightValueMaxPages());
+                configuration.getSqlSortLightValuePageSize(),
+                configuration.getSqlSortLightValueMaxPages()
+        );
         this.base = base;
-        this.cursor = new SortedLightRecordCursor(chain, comparator);
+        this.cursor = new SortedLightRecordCursor(sorter);
     }
 
     @Override
     public void close() {
         base.close();
-        chain.close();
+        sorter.close();
     }
 
     @Override
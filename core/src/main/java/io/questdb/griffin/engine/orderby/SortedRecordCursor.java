@@ -24,81 +24,92 @@
 
 package io.questdb.griffin.engine.orderby;
 
+import io.questdb.cairo.RecordChain;
 import io.questdb.cairo.sql.*;
 import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.SqlExecutionContext;
 
 class SortedRecordCursor implements DelegatingRecordCursor {
-    private final RecordTreeChain chain;
-    private RecordTreeChain.TreeCursor chainCursor;
+    private final RecordChain chain;
+    private final RecordSorter sorter;
+    private final Record record;
+    private RecordCursor base;
+    private long index;
 
-    public SortedRecordCursor(RecordTreeChain chain) {
+    public SortedRecordCursor(RecordChain chain, RecordSorter sorter) {
         this.chain = chain;
+        this.sorter = sorter;
+        this.record = chain.getRecord();
     }
 
     @Override
     public void close() {
-        chainCursor.close();
+        base.close();
         chain.clear();
+        sorter.clear();
     }
 
     @Override
     public Record getRecord() {
-        return chainCursor.getRecord();
+        return record;
     }
 
     @Override
     public SymbolTable getSymbolTable(int columnIndex) {
-        return chainCursor.getSymbolTable(columnIndex);
+        return base.getSymbolTable(columnIndex);
     }
 
     @Override
     public SymbolTable newSymbolTable(int columnIndex) {
-        return chainCursor.newSymbolTable(columnIndex);
+        return base.newSymbolTable(columnIndex);
     }
 
     @Override
     public boolean hasNext() {
-        return chainCursor.hasNext();
+        if (index < sorter.size()) {
+            chain.recordAt(record, sorter.getRowId(index++));
+            return true;
+        }
+        return false;
     }
 
     @Override
     public Record getRecordB() {
-        return chainCursor.getRecordB();
+        return chain.getRecordB();
     }
 
     @Override
     public void recordAt(Record record, long atRowId) {
-        chainCursor.recordAt(record, atRowId);
+        chain.recordAt(record, atRowId);
     }
 
     @Override
     public void toTop() {
-        chainCursor.toTop();
+        index = 0;
     }
 
     @Override
     public long size() {
-        return chainCursor.size();
+        return base.size();
     }
 
     @Override
     public void of(RecordCursor base, SqlExecutionContext executionContext) {
         try {
-            this.chainCursor = chain.getCursor(base);
-            final Record record = base.getRecord();
+            this.base = base;
+            chain.clear();
+            sorter.clear();
+            chain.setSymbolTableResolver(base);
+            final Record baseRecord = base.getRecord();
             final SqlExecutionCircuitBreaker circuitBreaker = executionContext.getCircuitBreaker();
 
-            chain.clear();
             while (base.hasNext()) {
                 circuitBreaker.statefulThrowExceptionIfTripped();
-                // Tree chain is liable to re-position record to
-                // other rows to do record comparison. We must use our
-                // own record instance in case base cursor keeps
-                // state in the record it returns.
-                chain.put(record);
+                // rows are copied into the chain, sorter keeps offsets of the copies
+                sorter.put(baseRecord, chain.put(baseRecord, -1));
             }
-            chainCursor.toTop();
+            sorter.sort(chain, record, chain.getRecordB(), circuitBreaker);
+            toTop();
         } catch (Throwable ex) {
             base.close();
             throw ex;
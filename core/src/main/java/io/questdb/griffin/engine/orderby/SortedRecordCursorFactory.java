@@ -26,6 +26,7 @@ package io.questdb.griffin.engine.orderby;
 
 import io.questdb.cairo.AbstractRecordCursorFactory;
 import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.RecordChain;
 import io.questdb.cairo.RecordSink;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
@@ -33,10 +34,14 @@ import io.questdb.cairo.sql.RecordMetadata;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.griffin.engine.RecordComparator;
+import io.questdb.std.IntList;
+import io.questdb.std.Misc;
+import io.questdb.std.Transient;
 
 public class SortedRecordCursorFactory extends AbstractRecordCursorFactory {
     private final RecordCursorFactory base;
-    private final RecordTreeChain chain;
+    private final RecordChain chain;
+    private final RecordSorter sorter;
     private final SortedRecordCursor cursor;
 
     public SortedRecordCursorFactory(
@@ -44,26 +49,38 @@ public class SortedRecordCursorFactory extends AbstractRecordCursorFactory {
             RecordMetadata metadata,
             RecordCursorFactory base,
             RecordSink recordSink,
-            RecordComparator comparator
+            RecordComparator comparator,
+            @Transient IntList sortColumnFilter
     ) {
         super(metadata);
-        this.chain = new RecordTreeChain(
+        this.chain = new RecordChain(
+                configuration,
                 metadata,
                 recordSink,
+                configuration.getSqlSortValuePageSize(),
+                configuration.getSqlSortValueMaxPages()
+        );
+        // row ids are chain offsets, they are kept along with the keys
+        this.sorter = new RecordSorter(
+                configuration,
+                metadata,
+                sortColumnFilter,
                 comparator,
+                false,
                 configuration.getSqlSortKeyPageSize(),
                 configuration.getSqlSortKeyMaxPages(),
-                configuration.getSqlSortValuePageSize(),
-                configuration.getSqlSortValueMaxPages()
+                configuration.getSqlSortKeyPageSize(),
+                configuration.getSqlSortKeyMaxPages()
         );
         this.base = base;
-        this.cursor = new SortedRecordCursor(chain);
+        this.cursor = new SortedRecordCursor(chain, sorter);
     }
 
     @Override
     public void close() {
         base.close();
-        chain.close();
+        Misc.free(chain);
+        Misc.free(sorter);
     }
 
     @Override
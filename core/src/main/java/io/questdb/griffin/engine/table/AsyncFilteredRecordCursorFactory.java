@@ -62,7 +62,6 @@ public class AsyncFilteredRecordCursorFactory implements RecordCursorFactory {
             @NotNull MessageBus messageBus,
             @NotNull RecordCursorFactory base,
             @NotNull Function filter,
-            @NotNull @Transient WeakClosableObjectPool<PageFrameReduceTask> localTaskPool,
             @Nullable ObjList<Function> perWorkerFilters,
             @Nullable Function limitLoFunction,
             int limitLoPos
@@ -72,7 +71,7 @@ public class AsyncFilteredRecordCursorFactory implements RecordCursorFactory {
         this.cursor = new AsyncFilteredRecordCursor(filter, base.hasDescendingOrder());
         this.negativeLimitCursor = new AsyncFilteredNegativeLimitRecordCursor();
         this.filterAtom = new FilterAtom(filter, perWorkerFilters);
-        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER, localTaskPool);
+        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
         this.limitLoFunction = limitLoFunction;
         this.limitLoPos = limitLoPos;
         this.maxNegativeLimit = configuration.getSqlMaxNegativeLimit();
@@ -88,6 +87,34 @@ public class AsyncFilteredRecordCursorFactory implements RecordCursorFactory {
         negativeLimitCursor.freeRecords();
     }
 
+    @Override
+    public void halfClose() {
+        Misc.free(frameSequence);
+        Misc.free(negativeLimitRows);
+        cursor.freeRecords();
+        negativeLimitCursor.freeRecords();
+    }
+
+    @Override
+    public boolean supportsFilterStealing() {
+        return limitLoFunction == null;
+    }
+
+    @Override
+    public RecordCursorFactory getBaseFactory() {
+        return base;
+    }
+
+    @Override
+    public Function getFilter() {
+        return filterAtom.filter;
+    }
+
+    @Override
+    public ObjList<Function> getPerWorkerFilters() {
+        return filterAtom.perWorkerFilters;
+    }
+
     @Override
     public boolean followedLimitAdvice() {
         return limitLoFunction != null;
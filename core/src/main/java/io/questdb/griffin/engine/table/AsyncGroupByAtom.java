@@ -0,0 +1,205 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.ArrayColumnTypes;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.*;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.StatefulAtom;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.groupby.GroupByUtils;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.Os;
+import io.questdb.std.Transient;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds per-worker state of parallel keyed group-by. Each worker reduces page frames
+ * into its own map using its own copy of group-by functions. The query owner thread,
+ * which has worker id -1, uses the owner map and the owner functions. Since any thread
+ * stealing work from the reduce queue runs as -1, the owner slot is guarded by a lock.
+ */
+class AsyncGroupByAtom implements StatefulAtom, Closeable {
+
+    private final CairoConfiguration configuration;
+    private final ArrayColumnTypes keyTypes = new ArrayColumnTypes();
+    private final ArrayColumnTypes valueTypes = new ArrayColumnTypes();
+    private final Map ownerMap;
+    private final ObjList<GroupByFunction> ownerFunctions;
+    // Worker maps are created lazily by the worker threads, each thread writes to its own slot only.
+    private final ObjList<Map> perWorkerMaps;
+    private final ObjList<ObjList<GroupByFunction>> perWorkerFunctions;
+    private final RecordSink mapSink;
+    private final RecordSink mergeSink;
+    private final AtomicBoolean ownerLock = new AtomicBoolean();
+
+    public AsyncGroupByAtom(
+            @NotNull CairoConfiguration configuration,
+            @Transient @NotNull ColumnTypes keyTypes,
+            @Transient @NotNull ColumnTypes valueTypes,
+            @NotNull RecordSink mapSink,
+            @NotNull RecordSink mergeSink,
+            @NotNull ObjList<GroupByFunction> ownerFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> perWorkerFunctions
+    ) {
+        this.configuration = configuration;
+        for (int i = 0, n = keyTypes.getColumnCount(); i < n; i++) {
+            this.keyTypes.add(keyTypes.getColumnType(i));
+        }
+        for (int i = 0, n = valueTypes.getColumnCount(); i < n; i++) {
+            this.valueTypes.add(valueTypes.getColumnType(i));
+        }
+        this.mapSink = mapSink;
+        this.mergeSink = mergeSink;
+        this.ownerFunctions = ownerFunctions;
+        this.perWorkerFunctions = perWorkerFunctions;
+        final int workerCount = perWorkerFunctions.size();
+        this.perWorkerMaps = new ObjList<>(workerCount);
+        this.perWorkerMaps.setPos(workerCount);
+        this.ownerMap = MapFactory.createMap(configuration, keyTypes, valueTypes);
+    }
+
+    /**
+     * Acquires the slot for the given worker. Worker slots are owned by their threads,
+     * while the owner slot can be contended by the query owner and by any thread that
+     * steals work from the reduce queue.
+     *
+     * @param workerId id of the worker thread or -1
+     * @return slot to be used for {@link #getMap(int)} and {@link #getFunctions(int)}
+     */
+    public int acquire(int workerId) {
+        if (workerId == -1) {
+            while (!ownerLock.compareAndSet(false, true)) {
+                Os.pause();
+            }
+        }
+        return workerId;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(ownerMap);
+        Misc.freeObjList(perWorkerMaps);
+        for (int i = 0, n = perWorkerFunctions.size(); i < n; i++) {
+            Misc.freeObjList(perWorkerFunctions.getQuick(i));
+        }
+    }
+
+    public ObjList<GroupByFunction> getFunctions(int slot) {
+        if (slot == -1) {
+            return ownerFunctions;
+        }
+        return perWorkerFunctions.getQuick(slot);
+    }
+
+    public Map getMap(int slot) {
+        if (slot == -1) {
+            return ownerMap;
+        }
+        Map map = perWorkerMaps.getQuick(slot);
+        if (map == null) {
+            map = MapFactory.createMap(configuration, keyTypes, valueTypes);
+            perWorkerMaps.setQuick(slot, map);
+        }
+        return map;
+    }
+
+    public RecordSink getMapSink() {
+        return mapSink;
+    }
+
+    @Override
+    public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+        ownerMap.clear();
+        GroupByUtils.toTop(ownerFunctions);
+        Function.init(ownerFunctions, symbolTableSource, executionContext);
+
+        final boolean current = executionContext.getCloneSymbolTables();
+        executionContext.setCloneSymbolTables(true);
+        try {
+            for (int i = 0, n = perWorkerFunctions.size(); i < n; i++) {
+                final Map map = perWorkerMaps.getQuick(i);
+                if (map != null) {
+                    map.clear();
+                }
+                final ObjList<GroupByFunction> functions = perWorkerFunctions.getQuick(i);
+                GroupByUtils.toTop(functions);
+                Function.init(functions, symbolTableSource, executionContext);
+            }
+        } finally {
+            executionContext.setCloneSymbolTables(current);
+        }
+    }
+
+    /**
+     * Merges partial maps produced by the workers into the owner map. Must be called
+     * by the query owner thread once all page frames are reduced.
+     *
+     * @return the owner map that holds the final aggregates
+     */
+    public Map mergeWorkerMaps() {
+        final int functionCount = ownerFunctions.size();
+        for (int i = 0, n = perWorkerMaps.size(); i < n; i++) {
+            final Map srcMap = perWorkerMaps.getQuick(i);
+            if (srcMap == null || srcMap.size() == 0) {
+                continue;
+            }
+
+            final ObjList<GroupByFunction> srcFunctions = perWorkerFunctions.getQuick(i);
+            final RecordCursor srcCursor = srcMap.getCursor();
+            final MapRecord srcRecord = srcMap.getRecord();
+            while (srcCursor.hasNext()) {
+                final MapKey destKey = ownerMap.withKey();
+                mergeSink.copy(srcRecord, destKey);
+                final MapValue destValue = destKey.createValue();
+                final MapValue srcValue = srcRecord.getValue();
+                for (int j = 0; j < functionCount; j++) {
+                    ownerFunctions.getQuick(j).merge(destValue, srcValue, srcFunctions.getQuick(j));
+                }
+            }
+            srcMap.clear();
+            srcMap.restoreInitialCapacity();
+        }
+        return ownerMap;
+    }
+
+    public void release(int slot) {
+        if (slot == -1) {
+            ownerLock.set(false);
+        }
+    }
+}
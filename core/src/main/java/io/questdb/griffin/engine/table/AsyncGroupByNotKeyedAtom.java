@@ -0,0 +1,220 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.StatefulAtom;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.groupby.GroupByUtils;
+import io.questdb.griffin.engine.groupby.SimpleMapValue;
+import io.questdb.jit.CompiledFilter;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.Os;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds per-worker state of parallel non-keyed group-by. Each worker aggregates page frames
+ * into its own value using its own copy of group-by functions and, optionally, its own copy
+ * of the filter. Filter and aggregation run in a single pass over the frame, so filtered rows
+ * are never handed over to a cursor. The query owner thread, which has worker id -1, uses the
+ * owner value and the owner functions. The owner slot is guarded by a lock for the same reason
+ * as in {@link AsyncGroupByAtom}.
+ */
+class AsyncGroupByNotKeyedAtom implements StatefulAtom, Closeable {
+
+    private final SimpleMapValue ownerValue;
+    private final ObjList<GroupByFunction> ownerFunctions;
+    private final ObjList<SimpleMapValue> perWorkerValues;
+    private final ObjList<ObjList<GroupByFunction>> perWorkerFunctions;
+    private final Function filter;
+    private final ObjList<Function> perWorkerFilters;
+    private final CompiledFilter compiledFilter;
+    private final MemoryCARW bindVarMemory;
+    private final ObjList<Function> bindVarFunctions;
+    private final AtomicBoolean ownerLock = new AtomicBoolean();
+
+    public AsyncGroupByNotKeyedAtom(
+            int valueCount,
+            @NotNull ObjList<GroupByFunction> ownerFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> perWorkerFunctions,
+            @Nullable Function filter,
+            @Nullable ObjList<Function> perWorkerFilters,
+            @Nullable CompiledFilter compiledFilter,
+            @Nullable MemoryCARW bindVarMemory,
+            @Nullable ObjList<Function> bindVarFunctions
+    ) {
+        assert compiledFilter == null || (filter != null && bindVarMemory != null && bindVarFunctions != null);
+        this.ownerFunctions = ownerFunctions;
+        this.perWorkerFunctions = perWorkerFunctions;
+        this.filter = filter;
+        this.perWorkerFilters = perWorkerFilters;
+        this.compiledFilter = compiledFilter;
+        this.bindVarMemory = bindVarMemory;
+        this.bindVarFunctions = bindVarFunctions;
+        this.ownerValue = new SimpleMapValue(valueCount);
+        final int workerCount = perWorkerFunctions.size();
+        this.perWorkerValues = new ObjList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            perWorkerValues.add(new SimpleMapValue(valueCount));
+        }
+    }
+
+    /**
+     * Acquires the slot for the given worker, see {@link AsyncGroupByAtom#acquire(int)}.
+     *
+     * @param workerId id of the worker thread or -1
+     * @return slot to be used for the getters of this atom
+     */
+    public int acquire(int workerId) {
+        if (workerId == -1) {
+            while (!ownerLock.compareAndSet(false, true)) {
+                Os.pause();
+            }
+        }
+        return workerId;
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0, n = perWorkerFunctions.size(); i < n; i++) {
+            Misc.freeObjList(perWorkerFunctions.getQuick(i));
+        }
+        Misc.free(filter);
+        Misc.freeObjList(perWorkerFilters);
+        Misc.free(compiledFilter);
+        Misc.free(bindVarMemory);
+        Misc.freeObjList(bindVarFunctions);
+    }
+
+    public ObjList<Function> getBindVarFunctions() {
+        return bindVarFunctions;
+    }
+
+    public MemoryCARW getBindVarMemory() {
+        return bindVarMemory;
+    }
+
+    public CompiledFilter getCompiledFilter() {
+        return compiledFilter;
+    }
+
+    public Function getFilter(int slot) {
+        if (slot == -1 || perWorkerFilters == null) {
+            return filter;
+        }
+        return perWorkerFilters.getQuick(slot);
+    }
+
+    public ObjList<GroupByFunction> getFunctions(int slot) {
+        if (slot == -1) {
+            return ownerFunctions;
+        }
+        return perWorkerFunctions.getQuick(slot);
+    }
+
+    public SimpleMapValue getValue(int slot) {
+        if (slot == -1) {
+            return ownerValue;
+        }
+        return perWorkerValues.getQuick(slot);
+    }
+
+    public boolean hasFilter() {
+        return filter != null;
+    }
+
+    @Override
+    public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+        ownerValue.setNew(true);
+        GroupByUtils.toTop(ownerFunctions);
+        Function.init(ownerFunctions, symbolTableSource, executionContext);
+        if (filter != null) {
+            filter.init(symbolTableSource, executionContext);
+        }
+
+        final boolean current = executionContext.getCloneSymbolTables();
+        executionContext.setCloneSymbolTables(true);
+        try {
+            for (int i = 0, n = perWorkerFunctions.size(); i < n; i++) {
+                perWorkerValues.getQuick(i).setNew(true);
+                final ObjList<GroupByFunction> functions = perWorkerFunctions.getQuick(i);
+                GroupByUtils.toTop(functions);
+                Function.init(functions, symbolTableSource, executionContext);
+            }
+            if (perWorkerFilters != null) {
+                Function.init(perWorkerFilters, symbolTableSource, executionContext);
+            }
+        } finally {
+            executionContext.setCloneSymbolTables(current);
+        }
+
+        if (compiledFilter != null) {
+            Function.init(bindVarFunctions, symbolTableSource, executionContext);
+            AsyncJitFilteredRecordCursorFactory.prepareBindVarMemory(bindVarMemory, bindVarFunctions, symbolTableSource, executionContext);
+        }
+    }
+
+    /**
+     * Merges partial aggregates produced by the workers into the owner value. Must be called
+     * by the query owner thread once all page frames are reduced.
+     *
+     * @return the owner value that holds the final aggregates
+     */
+    public SimpleMapValue mergeWorkerValues() {
+        final int functionCount = ownerFunctions.size();
+        for (int i = 0, n = perWorkerValues.size(); i < n; i++) {
+            final SimpleMapValue srcValue = perWorkerValues.getQuick(i);
+            if (srcValue.isNew()) {
+                // worker did not see any rows
+                continue;
+            }
+            final ObjList<GroupByFunction> srcFunctions = perWorkerFunctions.getQuick(i);
+            for (int j = 0; j < functionCount; j++) {
+                ownerFunctions.getQuick(j).merge(ownerValue, srcValue, srcFunctions.getQuick(j));
+            }
+            ownerValue.setNew(false);
+        }
+        if (ownerValue.isNew()) {
+            GroupByUtils.updateEmpty(ownerFunctions, functionCount, ownerValue);
+            ownerValue.setNew(false);
+        }
+        return ownerValue;
+    }
+
+    public void release(int slot) {
+        if (slot == -1) {
+            ownerLock.set(false);
+        }
+    }
+}
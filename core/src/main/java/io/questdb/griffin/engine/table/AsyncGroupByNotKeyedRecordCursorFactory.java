@@ -0,0 +1,246 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameReducer;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.functions.SymbolFunction;
+import io.questdb.griffin.engine.groupby.GroupByUtils;
+import io.questdb.griffin.engine.groupby.SimpleMapValue;
+import io.questdb.jit.CompiledFilter;
+import io.questdb.mp.SCSequence;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static io.questdb.cairo.sql.DataFrameCursorFactory.ORDER_ANY;
+
+/**
+ * Non-keyed group-by that aggregates page frames into per-worker values on the shared worker pool
+ * and merges partial values on the query owner thread. When the base factory was a filter, its
+ * filter is evaluated by the same reduce step, so that filtering and aggregation of a page frame
+ * happen in one pass on one thread.
+ */
+public class AsyncGroupByNotKeyedRecordCursorFactory implements RecordCursorFactory {
+
+    private static final PageFrameReducer REDUCER = AsyncGroupByNotKeyedRecordCursorFactory::aggregate;
+
+    private final RecordCursorFactory base;
+    private final RecordMetadata metadata;
+    private final ObjList<GroupByFunction> groupByFunctions;
+    private final AsyncGroupByNotKeyedAtom atom;
+    private final PageFrameSequence<AsyncGroupByNotKeyedAtom> frameSequence;
+    private final SCSequence collectSubSeq = new SCSequence();
+    private final AsyncGroupByNotKeyedRecordCursor cursor;
+    private final VirtualRecord virtualRecordA;
+
+    public AsyncGroupByNotKeyedRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull MessageBus messageBus,
+            @NotNull RecordCursorFactory base,
+            @NotNull RecordMetadata groupByMetadata,
+            @NotNull ObjList<GroupByFunction> groupByFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions,
+            @NotNull ObjList<Function> recordFunctions,
+            int valueCount,
+            @Nullable Function filter,
+            @Nullable ObjList<Function> perWorkerFilters,
+            @Nullable CompiledFilter compiledFilter,
+            @Nullable MemoryCARW bindVarMemory,
+            @Nullable ObjList<Function> bindVarFunctions
+    ) {
+        this.base = base;
+        this.metadata = groupByMetadata;
+        this.groupByFunctions = groupByFunctions;
+        this.atom = new AsyncGroupByNotKeyedAtom(
+                valueCount,
+                groupByFunctions,
+                perWorkerGroupByFunctions,
+                filter,
+                perWorkerFilters,
+                compiledFilter,
+                bindVarMemory,
+                bindVarFunctions
+        );
+        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
+        this.virtualRecordA = new VirtualRecordNoRowid(recordFunctions);
+        this.cursor = new AsyncGroupByNotKeyedRecordCursor();
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(groupByFunctions);
+        Misc.free(atom);
+        Misc.free(frameSequence);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final PageFrameSequence<AsyncGroupByNotKeyedAtom> frameSequence = this.frameSequence.of(base, executionContext, collectSubSeq, atom, ORDER_ANY);
+        try {
+            return cursor.of(frameSequence, executionContext);
+        } catch (Throwable e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public boolean usesCompiledFilter() {
+        return atom.getCompiledFilter() != null;
+    }
+
+    private static void aggregate(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        final long frameRowCount = task.getFrameRowCount();
+        final AsyncGroupByNotKeyedAtom atom = task.getFrameSequence(AsyncGroupByNotKeyedAtom.class).getAtom();
+
+        final int slot = atom.acquire(workerId);
+        try {
+            final SimpleMapValue value = atom.getValue(slot);
+            final ObjList<GroupByFunction> functions = atom.getFunctions(slot);
+            final int n = functions.size();
+
+            if (!atom.hasFilter()) {
+                for (long r = 0; r < frameRowCount; r++) {
+                    record.setRowIndex(r);
+                    aggregateRecord(functions, n, value, record);
+                }
+                return;
+            }
+
+            final CompiledFilter compiledFilter = atom.getCompiledFilter();
+            if (compiledFilter == null || task.getPageAddressCache().hasColumnTops(task.getFrameIndex())) {
+                // Use Java-based filter when there is no compiled filter or the page frame has column tops.
+                final Function filter = atom.getFilter(slot);
+                for (long r = 0; r < frameRowCount; r++) {
+                    record.setRowIndex(r);
+                    if (filter.getBool(record)) {
+                        aggregateRecord(functions, n, value, record);
+                    }
+                }
+                return;
+            }
+
+            // Compiled filter writes matching rows to the task's buffer, which stays local to this frame.
+            AsyncJitFilteredRecordCursorFactory.applyCompiledFilter(
+                    compiledFilter,
+                    atom.getBindVarMemory(),
+                    atom.getBindVarFunctions(),
+                    task
+            );
+            final DirectLongList rows = task.getRows();
+            for (long i = 0, k = rows.size(); i < k; i++) {
+                record.setRowIndex(rows.get(i));
+                aggregateRecord(functions, n, value, record);
+            }
+            rows.clear();
+        } finally {
+            atom.release(slot);
+        }
+    }
+
+    private static void aggregateRecord(ObjList<GroupByFunction> functions, int n, SimpleMapValue value, Record record) {
+        if (value.isNew()) {
+            GroupByUtils.updateNew(functions, n, value, record, record.getRowId());
+            value.setNew(false);
+        } else {
+            GroupByUtils.updateExisting(functions, n, value, record, record.getRowId());
+        }
+    }
+
+    private class AsyncGroupByNotKeyedRecordCursor implements NoRandomAccessRecordCursor {
+
+        private PageFrameSequence<AsyncGroupByNotKeyedAtom> frameSequence;
+        private int recordsRemaining = 1;
+        private boolean isOpen;
+
+        @Override
+        public void close() {
+            if (isOpen) {
+                isOpen = false;
+                AsyncGroupByRecordCursor.closeFrameSequence(frameSequence);
+            }
+        }
+
+        @Override
+        public Record getRecord() {
+            return virtualRecordA;
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            return (SymbolTable) groupByFunctions.getQuick(columnIndex);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return recordsRemaining-- > 0;
+        }
+
+        @Override
+        public SymbolTable newSymbolTable(int columnIndex) {
+            return ((SymbolFunction) groupByFunctions.getQuick(columnIndex)).newSymbolTable();
+        }
+
+        @Override
+        public long size() {
+            return 1;
+        }
+
+        @Override
+        public void toTop() {
+            recordsRemaining = 1;
+        }
+
+        RecordCursor of(PageFrameSequence<AsyncGroupByNotKeyedAtom> frameSequence, SqlExecutionContext executionContext) throws SqlException {
+            this.frameSequence = frameSequence;
+            this.isOpen = true;
+            AsyncGroupByRecordCursor.collectAllFrames(frameSequence, executionContext);
+            virtualRecordA.of(frameSequence.getAtom().mergeWorkerValues());
+            toTop();
+            return this;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.AbstractVirtualFunctionRecordCursor;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.ObjList;
+import io.questdb.std.Os;
+
+class AsyncGroupByRecordCursor extends AbstractVirtualFunctionRecordCursor {
+
+    private static final Log LOG = LogFactory.getLog(AsyncGroupByRecordCursor.class);
+
+    private final ObjList<Function> recordFunctions;
+    private PageFrameSequence<AsyncGroupByAtom> frameSequence;
+    private boolean isOpen;
+
+    public AsyncGroupByRecordCursor(ObjList<Function> recordFunctions) {
+        super(recordFunctions, true);
+        this.recordFunctions = recordFunctions;
+    }
+
+    @Override
+    public void close() {
+        if (isOpen) {
+            isOpen = false;
+            super.close();
+            closeFrameSequence(frameSequence);
+        }
+    }
+
+    /**
+     * Collects all frames of the sequence. Reduction happens on the shared worker pool
+     * as well as on the calling thread when the reduce queue is full.
+     */
+    static void collectAllFrames(PageFrameSequence<?> frameSequence, SqlExecutionContext executionContext) throws SqlException {
+        final int frameLimit = frameSequence.getFrameCount() - 1;
+        int frameIndex = -1;
+        while (frameIndex < frameLimit) {
+            final long cursor = frameSequence.next();
+            if (cursor > -1) {
+                final PageFrameReduceTask task = frameSequence.getTask(cursor);
+                LOG.debug()
+                        .$("collected [shard=").$(frameSequence.getShard())
+                        .$(", frameIndex=").$(task.getFrameIndex())
+                        .$(", frameCount=").$(frameSequence.getFrameCount())
+                        .$(", active=").$(frameSequence.isActive())
+                        .$(", cursor=").$(cursor)
+                        .I$();
+                frameIndex = task.getFrameIndex();
+                frameSequence.collect(cursor, false);
+                executionContext.getCircuitBreaker().statefulThrowExceptionIfTripped();
+            } else {
+                Os.pause();
+            }
+        }
+
+        if (!frameSequence.isActive()) {
+            executionContext.getCircuitBreaker().statefulThrowExceptionIfTripped();
+            throw CairoException.instance(0).put("group by page frame reduction failed [id=").put(frameSequence.getId()).put(']');
+        }
+    }
+
+    static void closeFrameSequence(PageFrameSequence<?> frameSequence) {
+        LOG.debug()
+                .$("closing [shard=").$(frameSequence.getShard())
+                .$(", frameCount=").$(frameSequence.getFrameCount())
+                .I$();
+        if (frameSequence.getFrameCount() > 0) {
+            frameSequence.await();
+        }
+        frameSequence.clear();
+    }
+
+    void of(PageFrameSequence<AsyncGroupByAtom> frameSequence, SqlExecutionContext executionContext) throws SqlException {
+        this.frameSequence = frameSequence;
+        this.isOpen = true;
+        collectAllFrames(frameSequence, executionContext);
+        of(frameSequence.getAtom().mergeWorkerMaps().getCursor());
+        Function.init(recordFunctions, frameSequence.getSymbolTableSource(), executionContext);
+    }
+}
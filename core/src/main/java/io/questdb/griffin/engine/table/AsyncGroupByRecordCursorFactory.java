@@ -0,0 +1,170 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.*;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameReducer;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.groupby.GroupByUtils;
+import io.questdb.mp.SCSequence;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+
+import static io.questdb.cairo.sql.DataFrameCursorFactory.ORDER_ANY;
+
+/**
+ * Keyed group-by that reduces page frames into per-worker maps on the shared worker pool
+ * and merges partial maps on the query owner thread.
+ */
+public class AsyncGroupByRecordCursorFactory implements RecordCursorFactory {
+
+    private static final PageFrameReducer REDUCER = AsyncGroupByRecordCursorFactory::aggregate;
+
+    private final RecordCursorFactory base;
+    private final RecordMetadata metadata;
+    private final ObjList<Function> recordFunctions;
+    private final AsyncGroupByAtom atom;
+    private final PageFrameSequence<AsyncGroupByAtom> frameSequence;
+    private final SCSequence collectSubSeq = new SCSequence();
+    private final AsyncGroupByRecordCursor cursor;
+
+    public AsyncGroupByRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull MessageBus messageBus,
+            @NotNull RecordCursorFactory base,
+            @Transient @NotNull ListColumnFilter listColumnFilter,
+            @Transient @NotNull BytecodeAssembler asm,
+            @Transient @NotNull ArrayColumnTypes keyTypes,
+            @Transient @NotNull ArrayColumnTypes valueTypes,
+            @NotNull RecordMetadata groupByMetadata,
+            @NotNull ObjList<GroupByFunction> groupByFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions,
+            @NotNull ObjList<Function> recordFunctions
+    ) {
+        try {
+            // sink copies base record columns to map key
+            final RecordSink mapSink = RecordSinkFactory.getInstance(asm, base.getMetadata(), listColumnFilter, false);
+            // sink copies key columns of a worker map record to the owner map key;
+            // map records expose value columns first, followed by key columns
+            final ArrayColumnTypes mapColumnTypes = new ArrayColumnTypes();
+            final ListColumnFilter mapKeyFilter = new ListColumnFilter();
+            final int valueCount = valueTypes.getColumnCount();
+            for (int i = 0; i < valueCount; i++) {
+                mapColumnTypes.add(valueTypes.getColumnType(i));
+            }
+            for (int i = 0, n = keyTypes.getColumnCount(); i < n; i++) {
+                mapColumnTypes.add(keyTypes.getColumnType(i));
+                mapKeyFilter.add(valueCount + i + 1);
+            }
+            final RecordSink mergeSink = RecordSinkFactory.getInstance(asm, mapColumnTypes, mapKeyFilter, false);
+
+            this.base = base;
+            this.metadata = groupByMetadata;
+            this.recordFunctions = recordFunctions;
+            this.atom = new AsyncGroupByAtom(
+                    configuration,
+                    keyTypes,
+                    valueTypes,
+                    mapSink,
+                    mergeSink,
+                    groupByFunctions,
+                    perWorkerGroupByFunctions
+            );
+            this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
+            this.cursor = new AsyncGroupByRecordCursor(recordFunctions);
+        } catch (Throwable e) {
+            Misc.freeObjList(recordFunctions);
+            for (int i = 0, n = perWorkerGroupByFunctions.size(); i < n; i++) {
+                Misc.freeObjList(perWorkerGroupByFunctions.getQuick(i));
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(recordFunctions);
+        Misc.free(atom);
+        Misc.free(frameSequence);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final PageFrameSequence<AsyncGroupByAtom> frameSequence = this.frameSequence.of(base, executionContext, collectSubSeq, atom, ORDER_ANY);
+        try {
+            cursor.of(frameSequence, executionContext);
+            return cursor;
+        } catch (Throwable e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public boolean usesCompiledFilter() {
+        return base.usesCompiledFilter();
+    }
+
+    private static void aggregate(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        final long frameRowCount = task.getFrameRowCount();
+        final AsyncGroupByAtom atom = task.getFrameSequence(AsyncGroupByAtom.class).getAtom();
+
+        final int slot = atom.acquire(workerId);
+        try {
+            final Map map = atom.getMap(slot);
+            final RecordSink mapSink = atom.getMapSink();
+            final ObjList<GroupByFunction> functions = atom.getFunctions(slot);
+            final int n = functions.size();
+            for (long r = 0; r < frameRowCount; r++) {
+                record.setRowIndex(r);
+                final MapKey key = map.withKey();
+                mapSink.copy(record, key);
+                GroupByUtils.updateFunctions(functions, n, key.createValue(), record, record.getRowId());
+            }
+        } finally {
+            atom.release(slot);
+        }
+    }
+}
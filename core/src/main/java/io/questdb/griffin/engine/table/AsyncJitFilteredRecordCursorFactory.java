@@ -70,7 +70,6 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
             @NotNull Function filter,
             @Nullable ObjList<Function> perWorkerFilters,
             @NotNull CompiledFilter compiledFilter,
-            @NotNull @Transient WeakClosableObjectPool<PageFrameReduceTask> localTaskPool,
             @Nullable Function limitLoFunction,
             int limitLoPos
     ) {
@@ -82,7 +81,7 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
         MemoryCARW bindVarMemory = Vm.getCARWInstance(configuration.getSqlJitBindVarsMemoryPageSize(),
                 configuration.getSqlJitBindVarsMemoryMaxPages(), MemoryTag.NATIVE_JIT);
         this.filterAtom = new FilterAtom(filter, perWorkerFilters, compiledFilter, bindVarMemory, bindVarFunctions);
-        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER, localTaskPool);
+        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
         this.limitLoFunction = limitLoFunction;
         this.limitLoPos = limitLoPos;
         this.maxNegativeLimit = configuration.getSqlMaxNegativeLimit();
@@ -98,6 +97,49 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
         negativeLimitCursor.freeRecords();
     }
 
+    @Override
+    public void halfClose() {
+        Misc.free(frameSequence);
+        Misc.free(negativeLimitRows);
+        cursor.freeRecords();
+        negativeLimitCursor.freeRecords();
+    }
+
+    @Override
+    public boolean supportsFilterStealing() {
+        return limitLoFunction == null;
+    }
+
+    @Override
+    public RecordCursorFactory getBaseFactory() {
+        return base;
+    }
+
+    @Override
+    public Function getFilter() {
+        return filterAtom.filter;
+    }
+
+    @Override
+    public ObjList<Function> getPerWorkerFilters() {
+        return filterAtom.perWorkerFilters;
+    }
+
+    @Override
+    public CompiledFilter getCompiledFilter() {
+        return filterAtom.compiledFilter;
+    }
+
+    @Override
+    public MemoryCARW getBindVarMemory() {
+        return filterAtom.bindVarMemory;
+    }
+
+    @Override
+    public ObjList<Function> getBindVarFunctions() {
+        return filterAtom.bindVarFunctions;
+    }
+
     @Override
     public boolean followedLimitAdvice() {
         return limitLoFunction != null;
@@ -169,7 +211,6 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
 
     private static void filter(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
         final DirectLongList rows = task.getRows();
-        final DirectLongList columns = task.getColumns();
         final long frameRowCount = task.getFrameRowCount();
         final FilterAtom atom = task.getFrameSequence(FilterAtom.class).getAtom();
         final PageAddressCache pageAddressCache = task.getPageAddressCache();
@@ -189,6 +230,22 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
         }
 
         // Use JIT-compiled filter.
+        applyCompiledFilter(atom.compiledFilter, atom.bindVarMemory, atom.bindVarFunctions, task);
+    }
+
+    /**
+     * Runs compiled filter over the task's page frame and writes matching row indexes to the task's rows.
+     * The caller has to check that the frame has no column tops.
+     */
+    static void applyCompiledFilter(
+            CompiledFilter compiledFilter,
+            MemoryCARW bindVarMemory,
+            ObjList<Function> bindVarFunctions,
+            PageFrameReduceTask task
+    ) {
+        final DirectLongList rows = task.getRows();
+        final DirectLongList columns = task.getColumns();
+        final PageAddressCache pageAddressCache = task.getPageAddressCache();
 
         final long columnCount = pageAddressCache.getColumnCount();
         if (columns.getCapacity() < columnCount) {
@@ -204,11 +261,11 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
             rows.setCapacity(rowCount);
         }
 
-        long hi = atom.compiledFilter.call(
+        long hi = compiledFilter.call(
                 columns.getAddress(),
                 columns.size(),
-                atom.bindVarMemory.getAddress(),
-                atom.bindVarFunctions.size(),
+                bindVarMemory.getAddress(),
+                bindVarFunctions.size(),
                 rows.getAddress(),
                 rowCount,
                 0
@@ -216,6 +273,82 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
         rows.setPos(hi);
     }
 
+    static void prepareBindVarMemory(
+            MemoryCARW bindVarMemory,
+            ObjList<Function> bindVarFunctions,
+            SymbolTableSource symbolTableSource,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        bindVarMemory.truncate();
+        for (int i = 0, n = bindVarFunctions.size(); i < n; i++) {
+            Function function = bindVarFunctions.getQuick(i);
+            writeBindVarFunction(bindVarMemory, function, symbolTableSource, executionContext);
+        }
+    }
+
+    private static void writeBindVarFunction(
+            MemoryCARW bindVarMemory,
+            Function function,
+            SymbolTableSource symbolTableSource,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final int columnType = function.getType();
+        final int columnTypeTag = ColumnType.tagOf(columnType);
+        switch (columnTypeTag) {
+            case ColumnType.BOOLEAN:
+                bindVarMemory.putLong(function.getBool(null) ? 1 : 0);
+                return;
+            case ColumnType.BYTE:
+                bindVarMemory.putLong(function.getByte(null));
+                return;
+            case ColumnType.GEOBYTE:
+                bindVarMemory.putLong(function.getGeoByte(null));
+                return;
+            case ColumnType.SHORT:
+                bindVarMemory.putLong(function.getShort(null));
+                return;
+            case ColumnType.GEOSHORT:
+                bindVarMemory.putLong(function.getGeoShort(null));
+                return;
+            case ColumnType.CHAR:
+                bindVarMemory.putLong(function.getChar(null));
+                return;
+            case ColumnType.INT:
+                bindVarMemory.putLong(function.getInt(null));
+                return;
+            case ColumnType.GEOINT:
+                bindVarMemory.putLong(function.getGeoInt(null));
+                return;
+            case ColumnType.SYMBOL:
+                assert function instanceof CompiledFilterSymbolBindVariable;
+                function.init(symbolTableSource, executionContext);
+                bindVarMemory.putLong(function.getInt(null));
+                return;
+            case ColumnType.FLOAT:
+                // compiled filter function will read only the first word
+                bindVarMemory.putFloat(function.getFloat(null));
+                bindVarMemory.putFloat(Float.NaN);
+                return;
+            case ColumnType.LONG:
+                bindVarMemory.putLong(function.getLong(null));
+                return;
+            case ColumnType.GEOLONG:
+                bindVarMemory.putLong(function.getGeoLong(null));
+                return;
+            case ColumnType.DATE:
+                bindVarMemory.putLong(function.getDate(null));
+                return;
+            case ColumnType.TIMESTAMP:
+                bindVarMemory.putLong(function.getTimestamp(null));
+                return;
+            case ColumnType.DOUBLE:
+                bindVarMemory.putDouble(function.getDouble(null));
+                return;
+            default:
+                throw SqlException.position(0).put("unsupported bind variable type: ").put(ColumnType.nameOf(columnTypeTag));
+        }
+    }
+
     private static class FilterAtom implements StatefulAtom, Closeable {
 
         private final Function filter;
@@ -253,7 +386,7 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
                 }
             }
             Function.init(bindVarFunctions, symbolTableSource, executionContext);
-            prepareBindVarMemory(symbolTableSource, executionContext);
+            prepareBindVarMemory(bindVarMemory, bindVarFunctions, symbolTableSource, executionContext);
         }
 
         @Override
@@ -271,75 +404,5 @@ public class AsyncJitFilteredRecordCursorFactory implements RecordCursorFactory
             }
             return perWorkerFilters.getQuick(workerId);
         }
-
-        private void prepareBindVarMemory(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
-            bindVarMemory.truncate();
-            for (int i = 0, n = bindVarFunctions.size(); i < n; i++) {
-                Function function = bindVarFunctions.getQuick(i);
-                writeBindVarFunction(function, symbolTableSource, executionContext);
-            }
-        }
-
-        private void writeBindVarFunction(
-                Function function,
-                SymbolTableSource symbolTableSource,
-                SqlExecutionContext executionContext
-        ) throws SqlException {
-            final int columnType = function.getType();
-            final int columnTypeTag = ColumnType.tagOf(columnType);
-            switch (columnTypeTag) {
-                case ColumnType.BOOLEAN:
-                    bindVarMemory.putLong(function.getBool(null) ? 1 : 0);
-                    return;
-                case ColumnType.BYTE:
-                    bindVarMemory.putLong(function.getByte(null));
-                    return;
-                case ColumnType.GEOBYTE:
-                    bindVarMemory.putLong(function.getGeoByte(null));
-                    return;
-                case ColumnType.SHORT:
-                    bindVarMemory.putLong(function.getShort(null));
-                    return;
-                case ColumnType.GEOSHORT:
-                    bindVarMemory.putLong(function.getGeoShort(null));
-                    return;
-                case ColumnType.CHAR:
-                    bindVarMemory.putLong(function.getChar(null));
-                    return;
-                case ColumnType.INT:
-                    bindVarMemory.putLong(function.getInt(null));
-                    return;
-                case ColumnType.GEOINT:
-                    bindVarMemory.putLong(function.getGeoInt(null));
-                    return;
-                case ColumnType.SYMBOL:
-                    assert function instanceof CompiledFilterSymbolBindVariable;
-                    function.init(symbolTableSource, executionContext);
-                    bindVarMemory.putLong(function.getInt(null));
-                    return;
-                case ColumnType.FLOAT:
-                    // compiled filter function will read only the first word
-                    bindVarMemory.putFloat(function.getFloat(null));
-                    bindVarMemory.putFloat(Float.NaN);
-                    return;
-                case ColumnType.LONG:
-                    bindVarMemory.putLong(function.getLong(null));
-                    return;
-                case ColumnType.GEOLONG:
-                    bindVarMemory.putLong(function.getGeoLong(null));
-                    return;
-                case ColumnType.DATE:
-                    bindVarMemory.putLong(function.getDate(null));
-                    return;
-                case ColumnType.TIMESTAMP:
-                    bindVarMemory.putLong(function.getTimestamp(null));
-                    return;
-                case ColumnType.DOUBLE:
-                    bindVarMemory.putDouble(function.getDouble(null));
-                    return;
-                default:
-                    throw SqlException.position(0).put("unsupported bind variable type: ").put(ColumnType.nameOf(columnTypeTag));
-            }
-        }
     }
 }
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.sql.PageAddressCacheRecord;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.Misc;
+import io.questdb.std.Os;
+import io.questdb.std.Rows;
+
+/**
+ * Collects frames reduced by {@link AsyncLatestByRecordCursorFactory} and returns the latest
+ * rows in ascending timestamp order. Row ids found by the workers number frames backwards, they
+ * are translated back to the frame indexes of the sequence on the way out.
+ */
+class AsyncLatestByRecordCursor implements RecordCursor {
+
+    private static final Log LOG = LogFactory.getLog(AsyncLatestByRecordCursor.class);
+
+    private final AsyncLatestByRecordCursorFactory.LatestByAtom atom;
+    private final PageAddressCacheRecord record;
+    private PageAddressCacheRecord recordB;
+    private long rowIndex;
+    private long rowCount;
+    private int frameLimit;
+    private PageFrameSequence<?> frameSequence;
+
+    public AsyncLatestByRecordCursor(AsyncLatestByRecordCursorFactory.LatestByAtom atom) {
+        this.atom = atom;
+        this.record = new PageAddressCacheRecord();
+    }
+
+    @Override
+    public void close() {
+        LOG.debug()
+                .$("closing [shard=").$(frameSequence.getShard())
+                .$(", frameCount=").$(frameLimit)
+                .I$();
+
+        if (frameLimit > -1) {
+            frameSequence.await();
+        }
+        frameSequence.clear();
+    }
+
+    public void freeRecords() {
+        Misc.free(record);
+        Misc.free(recordB);
+    }
+
+    @Override
+    public Record getRecord() {
+        return record;
+    }
+
+    @Override
+    public Record getRecordB() {
+        if (recordB != null) {
+            return recordB;
+        }
+        recordB = new PageAddressCacheRecord(record);
+        return recordB;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable(int columnIndex) {
+        return frameSequence.getSymbolTableSource().getSymbolTable(columnIndex);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (rowIndex < rowCount) {
+            recordAt(record, toFrameRowId(atom.getFoundRow(rowIndex++)));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public SymbolTable newSymbolTable(int columnIndex) {
+        return frameSequence.getSymbolTableSource().newSymbolTable(columnIndex);
+    }
+
+    @Override
+    public void recordAt(Record record, long atRowId) {
+        ((PageAddressCacheRecord) record).setFrameIndex(Rows.toPartitionIndex(atRowId));
+        ((PageAddressCacheRecord) record).setRowIndex(Rows.toLocalRowID(atRowId));
+    }
+
+    @Override
+    public long size() {
+        return rowCount;
+    }
+
+    @Override
+    public void toTop() {
+        rowIndex = 0;
+    }
+
+    private void fetchAllFrames() {
+        int frameIndex = -1;
+        while (true) {
+            long cursor = frameSequence.next();
+            if (cursor > -1) {
+                PageFrameReduceTask task = frameSequence.getTask(cursor);
+                LOG.debug()
+                        .$("collected [shard=").$(frameSequence.getShard())
+                        .$(", frameIndex=").$(task.getFrameIndex())
+                        .$(", frameCount=").$(frameSequence.getFrameCount())
+                        .$(", active=").$(frameSequence.isActive())
+                        .$(", cursor=").$(cursor)
+                        .I$();
+
+                frameIndex = task.getFrameIndex();
+                // frames are collected in order, so that all the newer frames have been reduced by now
+                if (frameSequence.isActive() && atom.isComplete(frameIndex)) {
+                    frameSequence.cancel();
+                }
+
+                frameSequence.collect(cursor, false);
+                if (frameIndex == frameLimit) {
+                    // older partition is set up only when the scan has to go on
+                    if (!frameSequence.nextPartition()) {
+                        break;
+                    }
+                    frameLimit = frameSequence.getFrameCount() - 1;
+                }
+            } else {
+                Os.pause();
+            }
+        }
+    }
+
+    private long toFrameRowId(long rowId) {
+        return Rows.toRowID(AsyncLatestByRecordCursorFactory.toFrameId(Rows.toPartitionIndex(rowId)), Rows.toLocalRowID(rowId));
+    }
+
+    void of(PageFrameSequence<?> frameSequence) {
+        this.frameSequence = frameSequence;
+        this.frameLimit = frameSequence.getFrameCount() - 1;
+        this.rowIndex = 0;
+        this.rowCount = 0;
+        record.of(frameSequence.getSymbolTableSource(), frameSequence.getPageAddressCache());
+        if (recordB != null) {
+            recordB.of(frameSequence.getSymbolTableSource(), frameSequence.getPageAddressCache());
+        }
+        // when frameCount is 0 our collect sequence is not subscribed
+        // we should not be attempting to fetch queue using it
+        if (frameLimit > -1) {
+            fetchAllFrames();
+            rowCount = atom.sortFoundRows();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameReducer;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.mp.SCSequence;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.questdb.cairo.sql.DataFrameCursorFactory.ORDER_DESC;
+
+/**
+ * Finds latest rows for all values of a non-indexed symbol column. Page frames are dispatched
+ * from the newest to the oldest and each worker scans its frame backwards, keeping the latest
+ * row found for every symbol key in a shared slot. Since the symbol count is known upfront, the
+ * scan stops as soon as the frames collected so far hold a row for every symbol. Frames are set up
+ * a partition at a time, so that older partitions are not opened once the scan stops.
+ */
+public class AsyncLatestByRecordCursorFactory implements RecordCursorFactory {
+
+    private static final PageFrameReducer REDUCER = AsyncLatestByRecordCursorFactory::findLatest;
+    private static final int MAX_FRAME_ID = (1 << 19) - 1;
+
+    private final RecordCursorFactory base;
+    private final AsyncLatestByRecordCursor cursor;
+    private final LatestByAtom atom;
+    private final PageFrameSequence<LatestByAtom> frameSequence;
+    private final SCSequence collectSubSeq = new SCSequence();
+
+    public AsyncLatestByRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull MessageBus messageBus,
+            @NotNull RecordCursorFactory base,
+            int columnIndex,
+            @Nullable Function filter,
+            @Nullable ObjList<Function> perWorkerFilters
+    ) {
+        assert base.supportPageFrameCursor();
+        this.base = base;
+        this.atom = new LatestByAtom(columnIndex, filter, perWorkerFilters, configuration.getDefaultSymbolCapacity());
+        this.cursor = new AsyncLatestByRecordCursor(atom);
+        this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(base);
+        Misc.free(atom);
+        Misc.free(frameSequence);
+        cursor.freeRecords();
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        cursor.of(frameSequence.of(base, executionContext, collectSubSeq, atom, ORDER_DESC, true));
+        return cursor;
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return base.getMetadata();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return true;
+    }
+
+    /**
+     * Frames are in descending timestamp order, row ids of newer frames have to compare greater.
+     * The frame count is not known upfront, so frame ids count down from the largest partition
+     * index that keeps row ids positive.
+     */
+    static int toFrameId(int frameIndex) {
+        assert frameIndex <= MAX_FRAME_ID;
+        return MAX_FRAME_ID - frameIndex;
+    }
+
+    private static void findLatest(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        final PageFrameSequence<LatestByAtom> frameSequence = task.getFrameSequence(LatestByAtom.class);
+        final LatestByAtom atom = frameSequence.getAtom();
+        final Function filter = atom.getFilter(workerId);
+        final int columnIndex = atom.columnIndex;
+        final int frameId = toFrameId(task.getFrameIndex());
+
+        for (long r = task.getFrameRowCount() - 1; r > -1; r--) {
+            record.setRowIndex(r);
+            if (filter == null || filter.getBool(record)) {
+                atom.offer(record.getInt(columnIndex), Rows.toRowID(frameId, r));
+            }
+        }
+    }
+
+    static class LatestByAtom implements StatefulAtom, Closeable {
+        private static final long EMPTY = -1;
+        private final int columnIndex;
+        private final Function filter;
+        private final ObjList<Function> perWorkerFilters;
+        // latest row id per symbol key, null symbol is in the first slot and key k is in slot k + 1
+        private final DirectLongList slots;
+        // number of non-null keys found so far
+        private final AtomicInteger foundCount = new AtomicInteger();
+        private int symbolCount;
+        private boolean containsNullValue;
+        // lower bound of found row ids, it is valid once all keys are found because row ids in slots only grow
+        private long minFoundRowId;
+
+        public LatestByAtom(int columnIndex, @Nullable Function filter, @Nullable ObjList<Function> perWorkerFilters, int symbolCapacity) {
+            this.columnIndex = columnIndex;
+            this.filter = filter;
+            this.perWorkerFilters = perWorkerFilters;
+            this.slots = new DirectLongList(symbolCapacity + 1, MemoryTag.NATIVE_LONG_LIST);
+        }
+
+        @Override
+        public void close() {
+            Misc.free(filter);
+            Misc.freeObjList(perWorkerFilters);
+            Misc.free(slots);
+        }
+
+        public Function getFilter(int workerId) {
+            if (workerId == -1 || perWorkerFilters == null) {
+                return filter;
+            }
+            return perWorkerFilters.getQuick(workerId);
+        }
+
+        @Override
+        public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+            if (filter != null) {
+                filter.init(symbolTableSource, executionContext);
+                if (perWorkerFilters != null) {
+                    final boolean current = executionContext.getCloneSymbolTables();
+                    executionContext.setCloneSymbolTables(true);
+                    try {
+                        for (int i = 0, n = perWorkerFilters.size(); i < n; i++) {
+                            perWorkerFilters.getQuick(i).init(symbolTableSource, executionContext);
+                        }
+                    } finally {
+                        executionContext.setCloneSymbolTables(current);
+                    }
+                }
+            }
+
+            final StaticSymbolTable symbolTable = (StaticSymbolTable) symbolTableSource.getSymbolTable(columnIndex);
+            symbolCount = symbolTable.getSymbolCount();
+            containsNullValue = symbolTable.containsNullValue();
+            slots.setCapacity(symbolCount + 1);
+            slots.setPos(symbolCount + 1);
+            Vect.setMemoryLong(slots.getAddress(), EMPTY, symbolCount + 1);
+            foundCount.set(0);
+            minFoundRowId = EMPTY;
+        }
+
+        /**
+         * Checks whether the older frames can be skipped. That is the case when every symbol key
+         * has a row in the frames up to and including the given one, all of them are collected.
+         */
+        boolean isComplete(int frameIndex) {
+            if (foundCount.get() < symbolCount || (containsNullValue && slots.get(0) == EMPTY)) {
+                return false;
+            }
+            if (minFoundRowId == EMPTY) {
+                minFoundRowId = Long.MAX_VALUE;
+                for (long i = 0, n = slots.size(); i < n; i++) {
+                    final long rowId = slots.get(i);
+                    if (rowId != EMPTY && rowId < minFoundRowId) {
+                        minFoundRowId = rowId;
+                    }
+                }
+            }
+            return minFoundRowId >= Rows.toRowID(toFrameId(frameIndex), 0);
+        }
+
+        void offer(int key, long rowId) {
+            final long slot = key == SymbolTable.VALUE_IS_NULL ? 0 : key + 1;
+            assert slot < slots.size();
+            final long address = slots.getAddress() + (slot << 3);
+            long current = Unsafe.getUnsafe().getLongVolatile(null, address);
+            while (rowId > current) {
+                if (Unsafe.cas(null, address, current, rowId)) {
+                    if (current == EMPTY && slot > 0) {
+                        foundCount.incrementAndGet();
+                    }
+                    return;
+                }
+                current = Unsafe.getUnsafe().getLongVolatile(null, address);
+            }
+        }
+
+        /**
+         * Moves found row ids to the head of the slot list and sorts them in ascending order.
+         *
+         * @return number of found rows
+         */
+        long sortFoundRows() {
+            final long address = slots.getAddress();
+            long count = 0;
+            for (long i = 0, n = slots.size(); i < n; i++) {
+                final long rowId = Unsafe.getUnsafe().getLong(address + (i << 3));
+                if (rowId != EMPTY) {
+                    Unsafe.getUnsafe().putLong(address + (count++ << 3), rowId);
+                }
+            }
+            Vect.sortULongAscInPlace(address, count);
+            return count;
+        }
+
+        long getFoundRow(long index) {
+            return slots.get(index);
+        }
+    }
+}
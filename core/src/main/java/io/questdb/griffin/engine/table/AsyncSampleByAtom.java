@@ -0,0 +1,70 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.groupby.TimestampSampler;
+import io.questdb.std.ObjList;
+import io.questdb.std.Transient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Per-worker state of parallel SAMPLE BY. Maps are keyed by the group-by keys followed
+ * by the sample bucket timestamp. The sampler start is set by the query owner before
+ * frames are dispatched and is read-only during reduction.
+ */
+class AsyncSampleByAtom extends AsyncGroupByAtom {
+
+    private final TimestampSampler timestampSampler;
+    private final int timestampIndex;
+
+    public AsyncSampleByAtom(
+            @NotNull CairoConfiguration configuration,
+            @Transient @NotNull ColumnTypes keyTypes,
+            @Transient @NotNull ColumnTypes valueTypes,
+            @NotNull RecordSink mapSink,
+            @NotNull RecordSink mergeSink,
+            @NotNull ObjList<GroupByFunction> ownerFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> perWorkerFunctions,
+            @NotNull TimestampSampler timestampSampler,
+            int timestampIndex
+    ) {
+        super(configuration, keyTypes, valueTypes, mapSink, mergeSink, ownerFunctions, perWorkerFunctions);
+        this.timestampSampler = timestampSampler;
+        this.timestampIndex = timestampIndex;
+    }
+
+    public int getTimestampIndex() {
+        return timestampIndex;
+    }
+
+    public TimestampSampler getTimestampSampler() {
+        return timestampSampler;
+    }
+}
@@ -0,0 +1,382 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.BinarySearch;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.functions.SymbolFunction;
+import io.questdb.griffin.engine.functions.TimestampFunction;
+import io.questdb.griffin.engine.groupby.SimpleMapValue;
+import io.questdb.griffin.engine.groupby.SplitVirtualRecord;
+import io.questdb.griffin.engine.groupby.TimestampSampler;
+import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.Timestamps;
+import org.jetbrains.annotations.Nullable;
+
+import static io.questdb.std.datetime.microtime.Timestamps.MINUTE_MICROS;
+
+/**
+ * Streams merged SAMPLE BY aggregates in bucket order. Map rows are indexed by bucket
+ * with a stable counting sort, so that rows of the same bucket keep map order. When
+ * gaps are filled, every bucket between the first and the last one produces a row for
+ * each distinct key; missing rows use the fill functions, which read previous values
+ * of the key where "prev" is requested.
+ */
+class AsyncSampleByRecordCursor implements NoRandomAccessRecordCursor {
+
+    private final ObjList<Function> recordFunctions;
+    private final ObjList<GroupByFunction> groupByFunctions;
+    private final SplitVirtualRecord record;
+    private final boolean fill;
+    // key map is used when keyed sample by fills gaps, it assigns ordinals to
+    // distinct keys and holds "null" aggregate values for keys without previous values
+    private final Map keyMap;
+    private final RecordSink keySink;
+    // null aggregate values of not keyed sample by
+    private final SimpleMapValue nullValue;
+    private final Function offsetFunc;
+    private final int offsetFuncPos;
+    private final TimestampSampler timestampSampler;
+    private final int timestampIndex;
+    private final int bucketColumnIndex;
+    // row ids, buckets and key ordinals of merged map rows in map order
+    private final LongList rowIds = new LongList();
+    private final LongList rowBuckets = new LongList();
+    private final IntList rowKeys = new IntList();
+    // distinct buckets in ascending order and offsets of their rows in sortedRows
+    private final LongList buckets = new LongList();
+    private final IntList bucketRowLo = new IntList();
+    private final IntList sortedRows = new IntList();
+    private final LongList keyRowIds = new LongList();
+    private final LongList slotRowIds = new LongList();
+    private final LongList prevRowIds = new LongList();
+    private PageFrameSequence<AsyncSampleByAtom> frameSequence;
+    private RecordCursor mapCursor;
+    private Record mapRecord;
+    private RecordCursor keyMapCursor;
+    private Record keyMapRecord;
+    private SqlExecutionCircuitBreaker circuitBreaker;
+    private boolean isOpen;
+    private int keyCount;
+    private int rowIndex;
+    private int bucketIndex;
+    private int keyIndex;
+    private boolean dataBucket;
+    private long bucketTimestamp;
+
+    public AsyncSampleByRecordCursor(
+            ObjList<Function> recordFunctions,
+            ObjList<GroupByFunction> groupByFunctions,
+            @Nullable ObjList<Function> fillFunctions,
+            @Nullable Map keyMap,
+            @Nullable RecordSink keySink,
+            int valueCount,
+            int keyColumnCount,
+            Function offsetFunc,
+            int offsetFuncPos,
+            TimestampSampler timestampSampler,
+            int timestampIndex
+    ) {
+        this.recordFunctions = recordFunctions;
+        this.groupByFunctions = groupByFunctions;
+        this.fill = fillFunctions != null;
+        this.keyMap = keyMap;
+        this.keySink = keySink;
+        this.nullValue = fill && keyMap == null ? new SimpleMapValue(valueCount) : null;
+        this.offsetFunc = offsetFunc;
+        this.offsetFuncPos = offsetFuncPos;
+        this.timestampSampler = timestampSampler;
+        this.timestampIndex = timestampIndex;
+        this.bucketColumnIndex = valueCount + keyColumnCount;
+
+        final ObjList<Function> functionsB = fill ? fillFunctions : recordFunctions;
+        final TimestampFunc timestampFunc = new TimestampFunc();
+        for (int i = 0, n = recordFunctions.size(); i < n; i++) {
+            if (recordFunctions.getQuick(i) == null) {
+                recordFunctions.setQuick(i, timestampFunc);
+                functionsB.setQuick(i, timestampFunc);
+            }
+        }
+        this.record = new SplitVirtualRecord(recordFunctions, functionsB);
+    }
+
+    @Override
+    public void close() {
+        if (isOpen) {
+            isOpen = false;
+            AsyncGroupByRecordCursor.closeFrameSequence(frameSequence);
+            // maps are released once reducers are done with them
+            mapCursor = Misc.free(mapCursor);
+            keyMapCursor = Misc.free(keyMapCursor);
+        }
+    }
+
+    @Override
+    public Record getRecord() {
+        return record;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable(int columnIndex) {
+        return (SymbolTable) recordFunctions.getQuick(columnIndex);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return fill ? hasNextFilled() : hasNextSorted();
+    }
+
+    @Override
+    public SymbolTable newSymbolTable(int columnIndex) {
+        return ((SymbolFunction) recordFunctions.getQuick(columnIndex)).newSymbolTable();
+    }
+
+    @Override
+    public long size() {
+        return -1;
+    }
+
+    @Override
+    public void toTop() {
+        rowIndex = 0;
+        bucketIndex = 0;
+        keyIndex = keyCount;
+        dataBucket = false;
+        bucketTimestamp = Numbers.LONG_NaN;
+        if (fill) {
+            slotRowIds.setAll(keyCount, -1);
+            prevRowIds.setAll(keyCount, -1);
+        }
+    }
+
+    private void buildIndex(Map map) {
+        rowIds.clear();
+        rowBuckets.clear();
+        rowKeys.clear();
+        buckets.clear();
+        keyRowIds.clear();
+        keyCount = keyMap != null ? 0 : 1;
+        if (keyMap != null) {
+            keyMap.clear();
+        }
+
+        mapCursor = map.getCursor();
+        mapRecord = mapCursor.getRecord();
+        final int functionCount = groupByFunctions.size();
+        while (mapCursor.hasNext()) {
+            circuitBreaker.statefulThrowExceptionIfTripped();
+            rowIds.add(mapRecord.getRowId());
+            rowBuckets.add(mapRecord.getTimestamp(bucketColumnIndex));
+            if (keyMap != null) {
+                final MapKey key = keyMap.withKey();
+                keySink.copy(mapRecord, key);
+                final MapValue value = key.createValue();
+                if (value.isNew()) {
+                    // the first value slot is reserved by sample by, we use it for key ordinal
+                    value.putLong(0, keyCount++);
+                    for (int i = 0; i < functionCount; i++) {
+                        groupByFunctions.getQuick(i).setNull(value);
+                    }
+                }
+                rowKeys.add((int) value.getLong(0));
+            }
+        }
+
+        if (keyMap != null) {
+            keyMapCursor = keyMap.getCursor();
+            keyMapRecord = keyMapCursor.getRecord();
+            while (keyMapCursor.hasNext()) {
+                keyRowIds.add(keyMapRecord.getRowId());
+            }
+        } else if (nullValue != null) {
+            for (int i = 0; i < functionCount; i++) {
+                groupByFunctions.getQuick(i).setNull(nullValue);
+            }
+        }
+
+        // distinct buckets in ascending order
+        final int rowCount = rowIds.size();
+        buckets.add(rowBuckets);
+        buckets.sort();
+        int distinct = 0;
+        for (int i = 0; i < rowCount; i++) {
+            final long bucket = buckets.getQuick(i);
+            if (distinct == 0 || buckets.getQuick(distinct - 1) != bucket) {
+                buckets.setQuick(distinct++, bucket);
+            }
+        }
+        buckets.setPos(distinct);
+
+        // stable counting sort of rows by bucket
+        bucketRowLo.setAll(distinct + 1, 0);
+        for (int i = 0; i < rowCount; i++) {
+            final int b = buckets.binarySearch(rowBuckets.getQuick(i), BinarySearch.SCAN_UP);
+            bucketRowLo.increment(b + 1);
+        }
+        for (int i = 1; i <= distinct; i++) {
+            bucketRowLo.setQuick(i, bucketRowLo.getQuick(i) + bucketRowLo.getQuick(i - 1));
+        }
+        sortedRows.setAll(rowCount, 0);
+        for (int i = 0; i < rowCount; i++) {
+            final int b = buckets.binarySearch(rowBuckets.getQuick(i), BinarySearch.SCAN_UP);
+            // high watermark of the bucket is used as insertion point, it is restored below
+            final int p = bucketRowLo.getQuick(b);
+            sortedRows.setQuick(p, i);
+            bucketRowLo.setQuick(b, p + 1);
+        }
+        for (int i = distinct; i > 0; i--) {
+            bucketRowLo.setQuick(i, bucketRowLo.getQuick(i - 1));
+        }
+        bucketRowLo.setQuick(0, 0);
+    }
+
+    private boolean hasNextFilled() {
+        while (true) {
+            if (keyIndex < keyCount) {
+                final int k = keyIndex++;
+                final long rowId = slotRowIds.getQuick(k);
+                if (rowId != -1) {
+                    mapCursor.recordAt(mapRecord, rowId);
+                    record.of(mapRecord);
+                    record.setActiveA();
+                    prevRowIds.setQuick(k, rowId);
+                } else {
+                    final long prevRowId = prevRowIds.getQuick(k);
+                    if (prevRowId != -1) {
+                        mapCursor.recordAt(mapRecord, prevRowId);
+                        record.of(mapRecord);
+                    } else if (keyMap != null) {
+                        keyMapCursor.recordAt(keyMapRecord, keyRowIds.getQuick(k));
+                        record.of(keyMapRecord);
+                    } else {
+                        record.of(nullValue);
+                    }
+                    record.setActiveB();
+                }
+                return true;
+            }
+
+            // current bucket is exhausted
+            if (dataBucket) {
+                for (int i = bucketRowLo.getQuick(bucketIndex), n = bucketRowLo.getQuick(bucketIndex + 1); i < n; i++) {
+                    slotRowIds.setQuick(rowKeys.size() > 0 ? rowKeys.getQuick(sortedRows.getQuick(i)) : 0, -1);
+                }
+                bucketIndex++;
+            }
+
+            if (bucketIndex == buckets.size()) {
+                return false;
+            }
+
+            final long dataBucketTimestamp = buckets.getQuick(bucketIndex);
+            if (bucketTimestamp == Numbers.LONG_NaN) {
+                bucketTimestamp = dataBucketTimestamp;
+            } else {
+                bucketTimestamp = timestampSampler.nextTimestamp(bucketTimestamp);
+            }
+
+            dataBucket = bucketTimestamp >= dataBucketTimestamp;
+            if (dataBucket) {
+                bucketTimestamp = dataBucketTimestamp;
+                for (int i = bucketRowLo.getQuick(bucketIndex), n = bucketRowLo.getQuick(bucketIndex + 1); i < n; i++) {
+                    final int row = sortedRows.getQuick(i);
+                    slotRowIds.setQuick(rowKeys.size() > 0 ? rowKeys.getQuick(row) : 0, rowIds.getQuick(row));
+                }
+            }
+            keyIndex = 0;
+        }
+    }
+
+    private boolean hasNextSorted() {
+        if (rowIndex < sortedRows.size()) {
+            final int row = sortedRows.getQuick(rowIndex++);
+            mapCursor.recordAt(mapRecord, rowIds.getQuick(row));
+            bucketTimestamp = rowBuckets.getQuick(row);
+            return true;
+        }
+        return false;
+    }
+
+    private void initTimestampSampler(SqlExecutionContext executionContext) throws SqlException {
+        offsetFunc.init(frameSequence.getSymbolTableSource(), executionContext);
+        final CharSequence offset = offsetFunc.getStr(null);
+        long fixedOffset = Long.MIN_VALUE;
+        if (offset != null) {
+            final long val = Timestamps.parseOffset(offset);
+            if (val == Numbers.LONG_NaN) {
+                // bad value for offset
+                throw SqlException.$(offsetFuncPos, "invalid offset: ").put(offset);
+            }
+            fixedOffset = Numbers.decodeLowInt(val) * MINUTE_MICROS;
+        }
+
+        if (frameSequence.getFrameCount() > 0) {
+            if (fixedOffset != Long.MIN_VALUE) {
+                timestampSampler.setStart(fixedOffset);
+            } else {
+                // align buckets to the first observation, frames are in ascending timestamp order
+                final long address = frameSequence.getPageAddressCache().getPageAddress(0, timestampIndex);
+                timestampSampler.setStart(Unsafe.getUnsafe().getLong(address));
+            }
+        }
+    }
+
+    void of(PageFrameSequence<AsyncSampleByAtom> frameSequence, SqlExecutionContext executionContext) throws SqlException {
+        this.frameSequence = frameSequence;
+        this.isOpen = true;
+        this.circuitBreaker = executionContext.getCircuitBreaker();
+        // sampler must be ready before the first frame is dispatched
+        initTimestampSampler(executionContext);
+        AsyncGroupByRecordCursor.collectAllFrames(frameSequence, executionContext);
+        buildIndex(frameSequence.getAtom().mergeWorkerMaps());
+        Function.init(recordFunctions, frameSequence.getSymbolTableSource(), executionContext);
+        record.of(mapRecord);
+        record.setActiveA();
+        toTop();
+    }
+
+    private class TimestampFunc extends TimestampFunction implements Function {
+
+        @Override
+        public long getTimestamp(Record rec) {
+            return bucketTimestamp;
+        }
+
+        @Override
+        public boolean isReadThreadSafe() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.*;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapFactory;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.sql.async.PageFrameReduceTask;
+import io.questdb.cairo.sql.async.PageFrameReducer;
+import io.questdb.cairo.sql.async.PageFrameSequence;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.groupby.GroupByUtils;
+import io.questdb.griffin.engine.groupby.TimestampSampler;
+import io.questdb.mp.SCSequence;
+import io.questdb.std.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static io.questdb.cairo.sql.DataFrameCursorFactory.ORDER_ASC;
+
+/**
+ * SAMPLE BY that reduces page frames into per-worker maps keyed by the group-by keys
+ * and the sample bucket. Partial maps are merged on the query owner thread and rows
+ * are streamed in bucket order, filling gaps when the query asks for it.
+ */
+public class AsyncSampleByRecordCursorFactory implements RecordCursorFactory {
+
+    private static final PageFrameReducer REDUCER = AsyncSampleByRecordCursorFactory::aggregate;
+
+    private final RecordCursorFactory base;
+    private final RecordMetadata metadata;
+    private final ObjList<Function> recordFunctions;
+    private final Function offsetFunc;
+    private final Map keyMap;
+    private final AsyncSampleByAtom atom;
+    private final PageFrameSequence<AsyncSampleByAtom> frameSequence;
+    private final SCSequence collectSubSeq = new SCSequence();
+    private final AsyncSampleByRecordCursor cursor;
+
+    public AsyncSampleByRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull MessageBus messageBus,
+            @NotNull RecordCursorFactory base,
+            @NotNull TimestampSampler timestampSampler,
+            @Transient @NotNull ListColumnFilter listColumnFilter,
+            @Transient @NotNull BytecodeAssembler asm,
+            @Transient @NotNull ArrayColumnTypes keyTypes,
+            @Transient @NotNull ArrayColumnTypes valueTypes,
+            @NotNull RecordMetadata groupByMetadata,
+            @NotNull ObjList<GroupByFunction> groupByFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> perWorkerGroupByFunctions,
+            @NotNull ObjList<Function> recordFunctions,
+            @Nullable ObjList<Function> fillFunctions,
+            int timestampIndex,
+            @NotNull Function offsetFunc,
+            int offsetFuncPos
+    ) {
+        Map keyMap = null;
+        try {
+            // map key is the group-by key followed by the sample bucket;
+            // map records expose value columns first, followed by key columns
+            final int valueCount = valueTypes.getColumnCount();
+            final int keyCount = keyTypes.getColumnCount();
+            final ArrayColumnTypes mapKeyTypes = new ArrayColumnTypes();
+            final ArrayColumnTypes mapColumnTypes = new ArrayColumnTypes();
+            final ListColumnFilter mapKeyFilter = new ListColumnFilter();
+            final ListColumnFilter groupKeyFilter = new ListColumnFilter();
+            for (int i = 0; i < valueCount; i++) {
+                mapColumnTypes.add(valueTypes.getColumnType(i));
+            }
+            for (int i = 0; i < keyCount; i++) {
+                mapKeyTypes.add(keyTypes.getColumnType(i));
+                mapColumnTypes.add(keyTypes.getColumnType(i));
+                mapKeyFilter.add(valueCount + i + 1);
+                groupKeyFilter.add(valueCount + i + 1);
+            }
+            mapKeyTypes.add(ColumnType.TIMESTAMP);
+            mapColumnTypes.add(ColumnType.TIMESTAMP);
+            mapKeyFilter.add(valueCount + keyCount + 1);
+
+            // sink copies base record columns to map key, bucket is added by the reducer
+            final RecordSink mapSink = RecordSinkFactory.getInstance(asm, base.getMetadata(), listColumnFilter, false);
+            // sink copies key columns of a worker map record to the owner map key
+            final RecordSink mergeSink = RecordSinkFactory.getInstance(asm, mapColumnTypes, mapKeyFilter, false);
+
+            RecordSink keySink = null;
+            if (fillFunctions != null && keyCount > 0) {
+                keySink = RecordSinkFactory.getInstance(asm, mapColumnTypes, groupKeyFilter, false);
+                keyMap = MapFactory.createMap(configuration, keyTypes, valueTypes);
+            }
+
+            this.base = base;
+            this.metadata = groupByMetadata;
+            this.recordFunctions = recordFunctions;
+            this.offsetFunc = offsetFunc;
+            this.keyMap = keyMap;
+            this.atom = new AsyncSampleByAtom(
+                    configuration,
+                    mapKeyTypes,
+                    valueTypes,
+                    mapSink,
+                    mergeSink,
+                    groupByFunctions,
+                    perWorkerGroupByFunctions,
+                    timestampSampler,
+                    timestampIndex
+            );
+            this.frameSequence = new PageFrameSequence<>(configuration, messageBus, REDUCER);
+            this.cursor = new AsyncSampleByRecordCursor(
+                    recordFunctions,
+                    groupByFunctions,
+                    fillFunctions,
+                    keyMap,
+                    keySink,
+                    valueCount,
+                    keyCount,
+                    offsetFunc,
+                    offsetFuncPos,
+                    timestampSampler,
+                    timestampIndex
+            );
+        } catch (Throwable e) {
+            Misc.freeObjList(recordFunctions);
+            for (int i = 0, n = perWorkerGroupByFunctions.size(); i < n; i++) {
+                Misc.freeObjList(perWorkerGroupByFunctions.getQuick(i));
+            }
+            Misc.free(keyMap);
+            Misc.free(offsetFunc);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(recordFunctions);
+        Misc.free(offsetFunc);
+        Misc.free(keyMap);
+        Misc.free(atom);
+        Misc.free(frameSequence);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final PageFrameSequence<AsyncSampleByAtom> frameSequence = this.frameSequence.of(base, executionContext, collectSubSeq, atom, ORDER_ASC);
+        try {
+            cursor.of(frameSequence, executionContext);
+            return cursor;
+        } catch (Throwable e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public boolean usesCompiledFilter() {
+        return base.usesCompiledFilter();
+    }
+
+    private static void aggregate(int workerId, PageAddressCacheRecord record, PageFrameReduceTask task) {
+        final long frameRowCount = task.getFrameRowCount();
+        final AsyncSampleByAtom atom = task.getFrameSequence(AsyncSampleByAtom.class).getAtom();
+        final TimestampSampler timestampSampler = atom.getTimestampSampler();
+        final int timestampIndex = atom.getTimestampIndex();
+
+        final int slot = atom.acquire(workerId);
+        try {
+            final Map map = atom.getMap(slot);
+            final RecordSink mapSink = atom.getMapSink();
+            final ObjList<GroupByFunction> functions = atom.getFunctions(slot);
+            final int n = functions.size();
+            for (long r = 0; r < frameRowCount; r++) {
+                record.setRowIndex(r);
+                final MapKey key = map.withKey();
+                mapSink.copy(record, key);
+                key.putTimestamp(timestampSampler.round(record.getTimestamp(timestampIndex)));
+                GroupByUtils.updateFunctions(functions, n, key.createValue(), record, record.getRowId());
+            }
+        } finally {
+            atom.release(slot);
+        }
+    }
+}
@@ -53,6 +53,10 @@ public class BwdTableReaderPageFrameCursor implements PageFrameCursor {
     private final int pageFrameMinRows;
     private final int pageFrameMaxRows;
     private final IntList columnSizes;
+    private ZoneMapFilter zoneMapFilter;
+    // candidate rows of current data frame, which are yet to be framed
+    private long dataFrameLo;
+    private long dataFrameHi;
 
     public BwdTableReaderPageFrameCursor(
             IntList columnIndexes,
@@ -71,6 +75,9 @@ public class BwdTableReaderPageFrameCursor implements PageFrameCursor {
 
     @Override
     public void close() {
+        if (zoneMapFilter != null) {
+            zoneMapFilter.clear();
+        }
         dataFrameCursor = Misc.free(dataFrameCursor);
     }
 
@@ -84,8 +91,21 @@ public class BwdTableReaderPageFrameCursor implements PageFrameCursor {
         if (this.reenterDataFrame) {
             return computeFrame(reenterPartitionLo, reenterPartitionHi);
         }
-        DataFrame dataFrame = dataFrameCursor.next();
-        if (dataFrame != null) {
+        while (true) {
+            if (dataFrameLo < dataFrameHi) {
+                // frame the next run of blocks, which zone maps cannot rule out
+                final long hi = zoneMapFilter.skipHi(dataFrameLo, dataFrameHi);
+                if (hi > dataFrameLo) {
+                    final long lo = zoneMapFilter.candidateLo(dataFrameLo, hi);
+                    dataFrameHi = lo;
+                    return computeFrame(lo, hi);
+                }
+                dataFrameHi = dataFrameLo;
+            }
+            DataFrame dataFrame = dataFrameCursor.next();
+            if (dataFrame == null) {
+                return null;
+            }
             this.reenterPartitionIndex = dataFrame.getPartitionIndex();
             final long lo = dataFrame.getRowLo();
             final long hi = dataFrame.getRowHi();
@@ -95,9 +115,13 @@ public class BwdTableReaderPageFrameCursor implements PageFrameCursor {
                             pageFrameMinRows, (hi - lo) / workerCount
                     )
             );
+            if (zoneMapFilter != null && zoneMapFilter.ofPartition(reader, reenterPartitionIndex, columnIndexes)) {
+                dataFrameLo = lo;
+                dataFrameHi = hi;
+                continue;
+            }
             return computeFrame(lo, hi);
         }
-        return null;
     }
 
     @Override
@@ -110,6 +134,8 @@ public class BwdTableReaderPageFrameCursor implements PageFrameCursor {
         pageRowsRemaining.setAll(columnCount, -1L);
         pageSizes.setAll(columnCount * 2, -1L);
         reenterDataFrame = false;
+        dataFrameLo = 0;
+        dataFrameHi = 0;
     }
 
     @Override
@@ -127,9 +153,10 @@ public class BwdTableReaderPageFrameCursor implements PageFrameCursor {
         return reader.newSymbolTable(columnIndexes.getQuick(columnIndex));
     }
 
-    public BwdTableReaderPageFrameCursor of(DataFrameCursor dataFrameCursor) {
+    public BwdTableReaderPageFrameCursor of(DataFrameCursor dataFrameCursor, @Nullable ZoneMapFilter zoneMapFilter) {
         this.reader = dataFrameCursor.getTableReader();
         this.dataFrameCursor = dataFrameCursor;
+        this.zoneMapFilter = zoneMapFilter != null && zoneMapFilter.size() > 0 ? zoneMapFilter : null;
         toTop();
         return this;
     }
@@ -49,6 +49,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
     protected FwdTableReaderPageFrameCursor fwdPageFrameCursor;
     protected BwdTableReaderPageFrameCursor bwdPageFrameCursor;
     private final boolean supportsRandomAccess;
+    private ZoneMapFilter zoneMapFilter;
 
     public DataFrameRecordCursorFactory(
             @NotNull CairoConfiguration configuration,
@@ -80,6 +81,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
     public void close() {
         Misc.free(filter);
         Misc.free(dataFrameCursorFactory);
+        zoneMapFilter = Misc.free(zoneMapFilter);
     }
 
     @Override
@@ -91,6 +93,14 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
     public PageFrameCursor getPageFrameCursor(SqlExecutionContext executionContext, int order) throws SqlException {
         DataFrameCursor dataFrameCursor = dataFrameCursorFactory.getCursor(executionContext, order);
         if (framingSupported) {
+            if (zoneMapFilter != null) {
+                try {
+                    zoneMapFilter.init(dataFrameCursor, executionContext);
+                } catch (Throwable e) {
+                    Misc.free(dataFrameCursor);
+                    throw e;
+                }
+            }
             if (order == ORDER_ASC || order == ORDER_ANY) {
                 return initFwdPageFrameCursor(executionContext, dataFrameCursor);
             }
@@ -109,6 +119,15 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
         return framingSupported;
     }
 
+    @Override
+    public boolean setZoneMapFilter(ZoneMapFilter filter) {
+        if (framingSupported && zoneMapFilter == null) {
+            zoneMapFilter = filter;
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public boolean supportsUpdateRowId(CharSequence tableName) {
         return dataFrameCursorFactory.supportTableRowId(tableName);
@@ -138,7 +157,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
                     pageFrameMaxRows
             );
         }
-        return fwdPageFrameCursor.of(dataFrameCursor);
+        return fwdPageFrameCursor.of(dataFrameCursor, zoneMapFilter);
     }
 
     protected PageFrameCursor initBwdPageFrameCursor(
@@ -154,7 +173,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
                     pageFrameMaxRows
             );
         }
-        return bwdPageFrameCursor.of(dataFrameCursor);
+        return bwdPageFrameCursor.of(dataFrameCursor, zoneMapFilter);
     }
 
     @Override
@@ -53,6 +53,10 @@ public class FwdTableReaderPageFrameCursor implements PageFrameCursor {
     private final int pageFrameMinRows;
     private final int pageFrameMaxRows;
     private final IntList columnSizes;
+    private ZoneMapFilter zoneMapFilter;
+    // candidate rows of current data frame, which are yet to be framed
+    private long dataFrameLo;
+    private long dataFrameHi;
 
     public FwdTableReaderPageFrameCursor(
             IntList columnIndexes,
@@ -71,6 +75,9 @@ public class FwdTableReaderPageFrameCursor implements PageFrameCursor {
 
     @Override
     public void close() {
+        if (zoneMapFilter != null) {
+            zoneMapFilter.clear();
+        }
         dataFrameCursor = Misc.free(dataFrameCursor);
     }
 
@@ -84,8 +91,21 @@ public class FwdTableReaderPageFrameCursor implements PageFrameCursor {
         if (this.reenterDataFrame) {
             return computeFrame(reenterPartitionLo, reenterPartitionHi);
         }
-        DataFrame dataFrame = dataFrameCursor.next();
-        if (dataFrame != null) {
+        while (true) {
+            if (dataFrameLo < dataFrameHi) {
+                // frame the next run of blocks, which zone maps cannot rule out
+                final long lo = zoneMapFilter.skipLo(dataFrameLo, dataFrameHi);
+                if (lo < dataFrameHi) {
+                    final long hi = zoneMapFilter.candidateHi(lo, dataFrameHi);
+                    dataFrameLo = hi;
+                    return computeFrame(lo, hi);
+                }
+                dataFrameLo = dataFrameHi;
+            }
+            DataFrame dataFrame = dataFrameCursor.next();
+            if (dataFrame == null) {
+                return null;
+            }
             this.reenterPartitionIndex = dataFrame.getPartitionIndex();
             final long lo = dataFrame.getRowLo();
             final long hi = dataFrame.getRowHi();
@@ -95,9 +115,13 @@ public class FwdTableReaderPageFrameCursor implements PageFrameCursor {
                             pageFrameMinRows, (hi - lo) / workerCount
                     )
             );
+            if (zoneMapFilter != null && zoneMapFilter.ofPartition(reader, reenterPartitionIndex, columnIndexes)) {
+                dataFrameLo = lo;
+                dataFrameHi = hi;
+                continue;
+            }
             return computeFrame(lo, hi);
         }
-        return null;
     }
 
     @Override
@@ -110,6 +134,8 @@ public class FwdTableReaderPageFrameCursor implements PageFrameCursor {
         pageRowsRemaining.setAll(columnCount, -1L);
         pageSizes.setAll(columnCount * 2, -1L);
         reenterDataFrame = false;
+        dataFrameLo = 0;
+        dataFrameHi = 0;
     }
 
     @Override
@@ -127,9 +153,10 @@ public class FwdTableReaderPageFrameCursor implements PageFrameCursor {
         return reader.newSymbolTable(columnIndexes.getQuick(columnIndex));
     }
 
-    public FwdTableReaderPageFrameCursor of(DataFrameCursor dataFrameCursor) {
+    public FwdTableReaderPageFrameCursor of(DataFrameCursor dataFrameCursor, @Nullable ZoneMapFilter zoneMapFilter) {
         this.reader = dataFrameCursor.getTableReader();
         this.dataFrameCursor = dataFrameCursor;
+        this.zoneMapFilter = zoneMapFilter != null && zoneMapFilter.size() > 0 ? zoneMapFilter : null;
         toTop();
         return this;
     }
@@ -35,11 +35,13 @@ import io.questdb.std.IntList;
 public class SelectedRecordCursorFactory extends AbstractRecordCursorFactory {
 
     private final RecordCursorFactory base;
+    private final IntList columnCrossIndex;
     private final SelectedRecordCursor cursor;
 
     public SelectedRecordCursorFactory(RecordMetadata metadata, IntList columnCrossIndex, RecordCursorFactory base) {
         super(metadata);
         this.base = base;
+        this.columnCrossIndex = columnCrossIndex;
         this.cursor = new SelectedRecordCursor(columnCrossIndex, base.recordCursorSupportsRandomAccess());
     }
 
@@ -53,6 +55,15 @@ public class SelectedRecordCursorFactory extends AbstractRecordCursorFactory {
         base.close();
     }
 
+    @Override
+    public RecordCursorFactory getBaseFactory() {
+        return base;
+    }
+
+    public IntList getColumnCrossIndex() {
+        return columnCrossIndex;
+    }
+
     @Override
     public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
         this.cursor.of(base.getCursor(executionContext));
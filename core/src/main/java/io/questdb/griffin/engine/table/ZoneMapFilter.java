@@ -0,0 +1,413 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.ZoneMaps;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.*;
+
+import java.io.Closeable;
+
+/**
+ * Conjunction of "column op constant" predicates evaluated against partition zone maps. Page frame
+ * cursors use it to skip blocks of rows, which cannot satisfy the filter. The filter itself is still
+ * applied to the remaining rows, so skipping is conservative: block is skipped only when none of its
+ * values, nulls included, can match.
+ */
+public class ZoneMapFilter implements Closeable {
+    public static final int OP_EQ = 0;
+    public static final int OP_LT = 1;
+    public static final int OP_LE = 2;
+    public static final int OP_GT = 3;
+    public static final int OP_GE = 4;
+    // same tolerance as double equality function
+    private static final double EQ_TOLERANCE = 0.0000000001;
+    private static final int FLAG_NULL_VALUE = 1;
+    private static final int FLAG_NULLS_MATCH = 2;
+    // factory metadata column indexes
+    private final IntList columnIndexes = new IntList();
+    private final IntList columnTypes = new IntList();
+    private final IntList ops = new IntList();
+    private final ObjList<Function> functions = new ObjList<>();
+    private final ObjList<MemoryCMR> zoneMaps = new ObjList<>();
+    // per predicate state of current query and partition
+    private final LongList values = new LongList();
+    // double bits
+    private final LongList tolerances = new LongList();
+    private final IntList valueFlags = new IntList();
+    private final LongList addresses = new LongList();
+    private final IntList blockRows = new IntList();
+    // compiled filter without null checks compares null sentinels as regular values
+    private final boolean rawNulls;
+    private TableReader reader;
+    private int partitionIndex = -1;
+    private long partitionRowCount;
+    private boolean active;
+
+    public ZoneMapFilter(boolean rawNulls) {
+        this.rawNulls = rawNulls;
+    }
+
+    /**
+     * @return true when constant of the given type can be compared with zone map of the column type
+     */
+    public static boolean isSupported(int columnType, int constantType) {
+        if (!ZoneMaps.isSupported(columnType)) {
+            return false;
+        }
+        final short constantTag = ColumnType.tagOf(constantType);
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.TIMESTAMP:
+                return constantTag == ColumnType.INT
+                        || constantTag == ColumnType.LONG
+                        || constantTag == ColumnType.TIMESTAMP
+                        || constantTag == ColumnType.DATE
+                        || constantTag == ColumnType.NULL;
+            case ColumnType.FLOAT:
+            case ColumnType.DOUBLE:
+                return constantTag == ColumnType.BYTE
+                        || constantTag == ColumnType.SHORT
+                        || constantTag == ColumnType.INT
+                        || constantTag == ColumnType.LONG
+                        || constantTag == ColumnType.FLOAT
+                        || constantTag == ColumnType.DOUBLE
+                        || constantTag == ColumnType.NULL;
+            default:
+                return constantTag == ColumnType.BYTE
+                        || constantTag == ColumnType.SHORT
+                        || constantTag == ColumnType.INT
+                        || constantTag == ColumnType.LONG
+                        || constantTag == ColumnType.NULL;
+        }
+    }
+
+    /**
+     * Adds predicate to the conjunction. Filter takes ownership of the function.
+     *
+     * @param columnIndex column index in metadata of the factory this filter is attached to
+     * @param columnType  column type, must be supported by zone maps
+     * @param op          one of OP_* constants, column is on the left side of the comparison
+     * @param function    constant or runtime constant function
+     */
+    public void add(int columnIndex, int columnType, int op, Function function) {
+        columnIndexes.add(columnIndex);
+        columnTypes.add(columnType);
+        ops.add(op);
+        functions.add(function);
+        zoneMaps.add(Vm.getCMRInstance());
+        values.add(0);
+        tolerances.add(0);
+        valueFlags.add(0);
+        addresses.add(0);
+        blockRows.add(0);
+    }
+
+    /**
+     * @return exclusive end of candidate run starting at lo, row lo must not be skippable
+     */
+    public long candidateHi(long lo, long hi) {
+        long limit = hi;
+        for (int i = 0, n = ops.size(); i < n; i++) {
+            final long address = addresses.getQuick(i);
+            if (address != 0) {
+                final int rows = blockRows.getQuick(i);
+                long end = (lo / rows + 1) * rows;
+                while (end < limit && !isSkippable(i, address, end / rows)) {
+                    end += rows;
+                }
+                limit = Math.min(limit, end);
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * @return inclusive start of candidate run ending at hi, row hi - 1 must not be skippable
+     */
+    public long candidateLo(long lo, long hi) {
+        long limit = lo;
+        for (int i = 0, n = ops.size(); i < n; i++) {
+            final long address = addresses.getQuick(i);
+            if (address != 0) {
+                final int rows = blockRows.getQuick(i);
+                long start = ((hi - 1) / rows) * rows;
+                while (start > limit && !isSkippable(i, address, start / rows - 1)) {
+                    start -= rows;
+                }
+                limit = Math.max(limit, start);
+            }
+        }
+        return limit;
+    }
+
+    public void clear() {
+        for (int i = 0, n = zoneMaps.size(); i < n; i++) {
+            zoneMaps.getQuick(i).close();
+            addresses.setQuick(i, 0);
+        }
+        reader = null;
+        partitionIndex = -1;
+        active = false;
+    }
+
+    @Override
+    public void close() {
+        clear();
+        Misc.freeObjList(functions);
+        functions.clear();
+        zoneMaps.clear();
+    }
+
+    public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+        clear();
+        for (int i = 0, n = functions.size(); i < n; i++) {
+            final Function function = functions.getQuick(i);
+            function.init(symbolTableSource, executionContext);
+            final int columnType = columnTypes.getQuick(i);
+            final short functionTag = ColumnType.tagOf(function.getType());
+            final int op = ops.getQuick(i);
+            int flags = 0;
+            long value;
+            double tolerance = 0;
+            switch (ColumnType.tagOf(columnType)) {
+                case ColumnType.FLOAT:
+                case ColumnType.DOUBLE: {
+                    final double d = function.getDouble(null);
+                    if (d != d || functionTag == ColumnType.NULL) {
+                        flags |= FLAG_NULL_VALUE;
+                    }
+                    if (ColumnType.tagOf(columnType) == ColumnType.FLOAT) {
+                        // float column may be compared to the constant narrowed to float
+                        tolerance = Math.max(EQ_TOLERANCE, Math.ulp((float) d));
+                    } else if (op == OP_EQ) {
+                        tolerance = EQ_TOLERANCE;
+                    }
+                    value = Double.doubleToRawLongBits(d);
+                    break;
+                }
+                case ColumnType.TIMESTAMP:
+                    value = function.getTimestamp(null);
+                    if (value == Numbers.LONG_NaN || functionTag == ColumnType.NULL) {
+                        flags |= FLAG_NULL_VALUE;
+                    } else if (rawNulls && matches(op, Numbers.LONG_NaN, value)) {
+                        flags |= FLAG_NULLS_MATCH;
+                    }
+                    break;
+                default:
+                    value = function.getLong(null);
+                    if (
+                            value == Numbers.LONG_NaN
+                                    || functionTag == ColumnType.NULL
+                                    || (functionTag == ColumnType.INT && value == Numbers.INT_NaN)
+                    ) {
+                        flags |= FLAG_NULL_VALUE;
+                    } else if (nullsCompareAsValues(columnType) && matches(op, nullSentinel(columnType), value)) {
+                        flags |= FLAG_NULLS_MATCH;
+                    }
+                    break;
+            }
+            values.setQuick(i, value);
+            tolerances.setQuick(i, Double.doubleToRawLongBits(tolerance));
+            valueFlags.setQuick(i, flags);
+        }
+    }
+
+    /**
+     * Maps zone maps of the partition. Partition must be open in the reader.
+     *
+     * @param readerColumnIndexes reader column indexes of the factory metadata columns
+     * @return true when at least one predicate has zone map in this partition
+     */
+    public boolean ofPartition(TableReader reader, int partitionIndex, IntList readerColumnIndexes) {
+        if (this.reader == reader && this.partitionIndex == partitionIndex) {
+            return active;
+        }
+        this.reader = reader;
+        this.partitionIndex = partitionIndex;
+        this.partitionRowCount = reader.openPartition(partitionIndex);
+        this.active = false;
+        for (int i = 0, n = ops.size(); i < n; i++) {
+            final MemoryCMR mem = zoneMaps.getQuick(i);
+            final int readerColumnIndex = readerColumnIndexes.getQuick(columnIndexes.getQuick(i));
+            if (reader.openZoneMap(partitionIndex, readerColumnIndex, mem)) {
+                final long address = mem.getPageAddress(0);
+                addresses.setQuick(i, address);
+                blockRows.setQuick(i, ZoneMaps.getBlockRows(address));
+                active = true;
+            } else {
+                addresses.setQuick(i, 0);
+            }
+        }
+        return active;
+    }
+
+    public int size() {
+        return ops.size();
+    }
+
+    /**
+     * @return exclusive end of candidate rows in [lo, hi), all rows from the returned value to hi can be skipped
+     */
+    public long skipHi(long lo, long hi) {
+        long pos = hi;
+        boolean moved;
+        do {
+            moved = false;
+            for (int i = 0, n = ops.size(); i < n && pos > lo; i++) {
+                final long address = addresses.getQuick(i);
+                if (address != 0) {
+                    final int rows = blockRows.getQuick(i);
+                    final long block = (pos - 1) / rows;
+                    if (isSkippable(i, address, block)) {
+                        pos = block * rows;
+                        moved = true;
+                    }
+                }
+            }
+        } while (moved && pos > lo);
+        return Math.max(pos, lo);
+    }
+
+    /**
+     * @return first candidate row in [lo, hi), hi when all rows can be skipped
+     */
+    public long skipLo(long lo, long hi) {
+        long pos = lo;
+        boolean moved;
+        do {
+            moved = false;
+            for (int i = 0, n = ops.size(); i < n && pos < hi; i++) {
+                final long address = addresses.getQuick(i);
+                if (address != 0) {
+                    final int rows = blockRows.getQuick(i);
+                    final long block = pos / rows;
+                    if (isSkippable(i, address, block)) {
+                        pos = (block + 1) * rows;
+                        moved = true;
+                    }
+                }
+            }
+        } while (moved && pos < hi);
+        return Math.min(pos, hi);
+    }
+
+    private static boolean matches(int op, long v, long value) {
+        switch (op) {
+            case OP_EQ:
+                return v == value;
+            case OP_LT:
+                return v < value;
+            case OP_LE:
+                return v <= value;
+            case OP_GT:
+                return v > value;
+            default:
+                return v >= value;
+        }
+    }
+
+    private boolean nullsCompareAsValues(int columnType) {
+        final short tag = ColumnType.tagOf(columnType);
+        return rawNulls || tag == ColumnType.BYTE || tag == ColumnType.SHORT;
+    }
+
+    private static long nullSentinel(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+                // these types have no null, rows above column top read as zero
+                return 0;
+            case ColumnType.INT:
+                return Numbers.INT_NaN;
+            default:
+                return Numbers.LONG_NaN;
+        }
+    }
+
+    private boolean isSkippable(int i, long address, long block) {
+        final int rows = blockRows.getQuick(i);
+        final long blockRowCount = Math.min(rows, partitionRowCount - block * rows);
+        final long nullCount = ZoneMaps.getNullCount(address, block);
+        final int op = ops.getQuick(i);
+        final int flags = valueFlags.getQuick(i);
+        final int columnType = columnTypes.getQuick(i);
+
+        if ((flags & FLAG_NULL_VALUE) != 0) {
+            // "column = null" cannot match block without nulls; byte and short nulls are zeroes
+            return op == OP_EQ
+                    && nullCount == 0
+                    && ColumnType.tagOf(columnType) != ColumnType.BYTE
+                    && ColumnType.tagOf(columnType) != ColumnType.SHORT;
+        }
+        if (nullCount > 0 && (flags & FLAG_NULLS_MATCH) != 0) {
+            return false;
+        }
+        if (nullCount >= blockRowCount) {
+            return true;
+        }
+
+        final long value = values.getQuick(i);
+        if (ZoneMaps.isFloatingPoint(columnType)) {
+            final double v = Double.longBitsToDouble(value);
+            final double tolerance = Double.longBitsToDouble(tolerances.getQuick(i));
+            final double min = Double.longBitsToDouble(ZoneMaps.getMin(address, block));
+            final double max = Double.longBitsToDouble(ZoneMaps.getMax(address, block));
+            switch (op) {
+                case OP_EQ:
+                    return v < min - tolerance || v > max + tolerance;
+                case OP_LT:
+                    return min >= v + tolerance;
+                case OP_LE:
+                    return min > v + tolerance;
+                case OP_GT:
+                    return max <= v - tolerance;
+                default:
+                    return max < v - tolerance;
+            }
+        }
+
+        final long min = ZoneMaps.getMin(address, block);
+        final long max = ZoneMaps.getMax(address, block);
+        switch (op) {
+            case OP_EQ:
+                return value < min || value > max;
+            case OP_LT:
+                return min >= value;
+            case OP_LE:
+                return min > value;
+            case OP_GT:
+                return max <= value;
+            default:
+                return max < value;
+        }
+    }
+}
@@ -27,6 +27,7 @@ package io.questdb.griffin.engine.union;
 import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.ColumnTypes;
 import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.SymbolAsStrTypes;
 import io.questdb.cairo.map.Map;
 import io.questdb.cairo.map.MapFactory;
 import io.questdb.cairo.sql.RecordCursor;
@@ -54,7 +55,8 @@ public class ExceptRecordCursorFactory implements RecordCursorFactory {
         this.metadata = masterFactory.getMetadata();
         this.masterFactory = masterFactory;
         this.slaveFactory = slaveFactory;
-        this.map = MapFactory.createMap(configuration, metadata, valueTypes);
+        // record sink writes symbols as strings, map key types have to reflect that
+        this.map = MapFactory.createMap(configuration, new SymbolAsStrTypes(metadata), valueTypes);
         this.cursor = new ExceptRecordCursor(map, recordSink);
     }
 
@@ -30,9 +30,19 @@ import io.questdb.std.ObjectFactory;
 
 public final class AnalyticColumn extends QueryColumn {
     public final static ObjectFactory<AnalyticColumn> FACTORY = AnalyticColumn::new;
+    public static final int FRAMING_ROWS = 1;
+    public static final int FRAMING_RANGE = 2;
+    // frame bounds are offsets relative to the current row, preceding rows are negative
+    public static final long FRAME_UNBOUNDED_PRECEDING = Long.MIN_VALUE;
+    public static final long FRAME_CURRENT_ROW = 0;
+    public static final long FRAME_UNBOUNDED_FOLLOWING = Long.MAX_VALUE;
     private final ObjList<ExpressionNode> partitionBy = new ObjList<>(2);
     private final ObjList<ExpressionNode> orderBy = new ObjList<>(2);
     private final IntList orderByDirection = new IntList(2);
+    private int framingMode = FRAMING_RANGE;
+    private long rowsLo = FRAME_UNBOUNDED_PRECEDING;
+    private long rowsHi = FRAME_UNBOUNDED_FOLLOWING;
+    private int framingPosition;
 
     private AnalyticColumn() {
     }
@@ -48,6 +58,43 @@ public final class AnalyticColumn extends QueryColumn {
         partitionBy.clear();
         orderBy.clear();
         orderByDirection.clear();
+        framingMode = FRAMING_RANGE;
+        rowsLo = FRAME_UNBOUNDED_PRECEDING;
+        rowsHi = FRAME_UNBOUNDED_FOLLOWING;
+        framingPosition = 0;
+    }
+
+    public int getFramingMode() {
+        return framingMode;
+    }
+
+    public int getFramingPosition() {
+        return framingPosition;
+    }
+
+    public long getRowsHi() {
+        return rowsHi;
+    }
+
+    public long getRowsLo() {
+        return rowsLo;
+    }
+
+    /**
+     * Frame is the default one when it matches what SQL implies in absence of the frame clause,
+     * that is the whole partition for unordered analytic and all rows up to the current one otherwise.
+     */
+    public boolean isDefaultFrame() {
+        return framingMode == FRAMING_RANGE
+                && rowsLo == FRAME_UNBOUNDED_PRECEDING
+                && rowsHi == (orderBy.size() > 0 ? FRAME_CURRENT_ROW : FRAME_UNBOUNDED_FOLLOWING);
+    }
+
+    public void setFrame(int framingMode, long rowsLo, long rowsHi, int framingPosition) {
+        this.framingMode = framingMode;
+        this.rowsLo = rowsLo;
+        this.rowsHi = rowsHi;
+        this.framingPosition = framingPosition;
     }
 
     public ObjList<ExpressionNode> getPartitionBy() {
@@ -24,6 +24,7 @@
 
 package io.questdb.griffin.model;
 
+import io.questdb.cairo.PartitionBy;
 import io.questdb.std.Mutable;
 import io.questdb.std.ObjectFactory;
 import io.questdb.std.Sinkable;
@@ -34,9 +35,16 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
     private ExpressionNode tableName;
     private ExpressionNode fileName;
     private boolean header;
+    private boolean parallel;
+    private CharSequence timestampColumnName;
+    private int partitionBy = PartitionBy.NONE;
 
     @Override
     public void clear() {
+        header = false;
+        parallel = false;
+        timestampColumnName = null;
+        partitionBy = PartitionBy.NONE;
     }
 
     public ExpressionNode getFileName() {
@@ -52,6 +60,14 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
         return ExecutionModel.COPY;
     }
 
+    public int getPartitionBy() {
+        return partitionBy;
+    }
+
+    public void setPartitionBy(int partitionBy) {
+        this.partitionBy = partitionBy;
+    }
+
     public ExpressionNode getTableName() {
         return tableName;
     }
@@ -60,6 +76,14 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
         this.tableName = tableName;
     }
 
+    public CharSequence getTimestampColumnName() {
+        return timestampColumnName;
+    }
+
+    public void setTimestampColumnName(CharSequence timestampColumnName) {
+        this.timestampColumnName = timestampColumnName;
+    }
+
     public boolean isHeader() {
         return header;
     }
@@ -68,6 +92,14 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
         this.header = header;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public void toSink(CharSink sink) {
 
@@ -24,6 +24,7 @@
 
 package io.questdb.griffin.model;
 
+import io.questdb.cairo.ColumnCodecs;
 import io.questdb.cairo.ColumnType;
 import io.questdb.cairo.PartitionBy;
 import io.questdb.cairo.TableStructure;
@@ -34,6 +35,9 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
     public static final ObjectFactory<CreateTableModel> FACTORY = CreateTableModel::new;
     private static final int COLUMN_FLAG_CACHED = 1;
     private static final int COLUMN_FLAG_INDEXED = 2;
+    // codec id is kept in the second byte of column flags
+    private static final int COLUMN_FLAG_CODEC_SHIFT = 8;
+    private static final int COLUMN_FLAG_CODEC_MASK = 0xff << COLUMN_FLAG_CODEC_SHIFT;
     private final CharSequenceObjHashMap<ColumnCastModel> columnCastModels = new CharSequenceObjHashMap<>();
     private final LongList columnBits = new LongList();
     private final LongList columnHashes = new LongList();
@@ -46,6 +50,11 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
     private int maxUncommittedRows;
     private long commitLag;
     private boolean ignoreIfExists = false;
+    // materialized view query text and position of its base table name within the text
+    private String matViewQuery;
+    private int matViewBaseTableLo;
+    private int matViewBaseTableHi;
+    private boolean matViewBaseTableAliased;
 
     private CreateTableModel() {
     }
@@ -79,6 +88,18 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         return this;
     }
 
+    public CreateTableModel codec(int codec) {
+        int last = columnBits.size() - 1;
+        assert last > 0;
+        columnBits.setQuick(last, Numbers.encodeLowHighInts((getLowAt(last) & ~COLUMN_FLAG_CODEC_MASK) | (codec << COLUMN_FLAG_CODEC_SHIFT), getHighAt(last)));
+        return this;
+    }
+
+    @Override
+    public int getColumnCodec(int columnIndex) {
+        return (getLowAt(columnIndex * 2 + 1) & COLUMN_FLAG_CODEC_MASK) >>> COLUMN_FLAG_CODEC_SHIFT;
+    }
+
     @Override
     public long getColumnHash(int columnIndex) {
         return columnHashes.get(columnIndex);
@@ -96,6 +117,10 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         columnHashes.clear();
         columnNameIndexMap.clear();
         ignoreIfExists = false;
+        matViewQuery = null;
+        matViewBaseTableLo = 0;
+        matViewBaseTableHi = 0;
+        matViewBaseTableAliased = false;
     }
 
     public CharSequenceObjHashMap<ColumnCastModel> getColumnCastModels() {
@@ -173,6 +198,18 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         return CREATE_TABLE;
     }
 
+    public int getMatViewBaseTableHi() {
+        return matViewBaseTableHi;
+    }
+
+    public int getMatViewBaseTableLo() {
+        return matViewBaseTableLo;
+    }
+
+    public String getMatViewQuery() {
+        return matViewQuery;
+    }
+
     public ExpressionNode getName() {
         return name;
     }
@@ -197,6 +234,14 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         this.timestamp = timestamp;
     }
 
+    public boolean isMatView() {
+        return matViewQuery != null;
+    }
+
+    public boolean isMatViewBaseTableAliased() {
+        return matViewBaseTableAliased;
+    }
+
     public boolean isIgnoreIfExists() {
         return ignoreIfExists;
     }
@@ -205,6 +250,13 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         this.ignoreIfExists = flag;
     }
 
+    public void setMatView(String query, int baseTableLo, int baseTableHi, boolean baseTableAliased) {
+        this.matViewQuery = query;
+        this.matViewBaseTableLo = baseTableLo;
+        this.matViewBaseTableHi = baseTableHi;
+        this.matViewBaseTableAliased = baseTableAliased;
+    }
+
     public void setIndexFlags(boolean indexFlag, int indexValueBlockSize) {
         setIndexFlags0(columnBits.size() - 1, indexFlag, indexValueBlockSize);
     }
@@ -223,7 +275,7 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
 
     @Override
     public void toSink(CharSink sink) {
-        sink.put("create table ");
+        sink.put(isMatView() ? "create materialized view " : "create table ");
         sink.put(getName().token);
         if (getQueryModel() != null) {
             sink.put(" as (");
@@ -290,6 +342,11 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
                     sink.put(" index capacity ");
                     sink.put(getIndexBlockCapacity(i));
                 }
+
+                if (getColumnCodec(i) != ColumnCodecs.NONE) {
+                    sink.put(" codec ");
+                    sink.put(ColumnCodecs.nameOf(getColumnCodec(i)));
+                }
             }
             sink.put(')');
         }
@@ -44,7 +44,8 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
     public static final int JOIN_ASOF = 4;
     public static final int JOIN_SPLICE = 5;
     public static final int JOIN_LT = 6;
-    public static final int JOIN_MAX = JOIN_LT;
+    public static final int JOIN_WINDOW = 7;
+    public static final int JOIN_MAX = JOIN_WINDOW;
 
     public static final String SUB_QUERY_ALIAS_PREFIX = "_xQdbA";
 
@@ -123,6 +124,9 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
     private ExpressionNode joinCriteria;
     private int joinType;
     private int joinKeywordPosition;
+    private long asOfJoinTolerance = Long.MAX_VALUE;
+    private long windowJoinLo;
+    private long windowJoinHi;
     private IntList orderedJoinModels = orderedJoinModels2;
     private ExpressionNode limitLo;
     private ExpressionNode limitHi;
@@ -259,6 +263,9 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
         joinCriteria = null;
         joinType = JOIN_INNER;
         joinKeywordPosition = 0;
+        asOfJoinTolerance = Long.MAX_VALUE;
+        windowJoinLo = 0;
+        windowJoinHi = 0;
         orderedJoinModels1.clear();
         orderedJoinModels2.clear();
         parsedWhereConsts.clear();
@@ -473,6 +480,39 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
         this.joinKeywordPosition = position;
     }
 
+    /**
+     * @return maximum distance in microseconds between master and slave timestamps
+     * for ASOF JOIN to consider a match, Long.MAX_VALUE when unbounded
+     */
+    public long getAsOfJoinTolerance() {
+        return asOfJoinTolerance;
+    }
+
+    public void setAsOfJoinTolerance(long asOfJoinTolerance) {
+        this.asOfJoinTolerance = asOfJoinTolerance;
+    }
+
+    /**
+     * @return lower bound of WINDOW JOIN range as signed offset in microseconds
+     * from master timestamp, negative offsets point to the past
+     */
+    public long getWindowJoinLo() {
+        return windowJoinLo;
+    }
+
+    /**
+     * @return upper bound of WINDOW JOIN range as signed offset in microseconds
+     * from master timestamp, inclusive
+     */
+    public long getWindowJoinHi() {
+        return windowJoinHi;
+    }
+
+    public void setWindowJoinRange(long lo, long hi) {
+        this.windowJoinLo = lo;
+        this.windowJoinHi = hi;
+    }
+
     public ObjList<QueryModel> getJoinModels() {
         return joinModels;
     }
@@ -936,6 +976,20 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
         return aliasToColumnNameMap.get(column);
     }
 
+    private static void frameBoundToSink(CharSink sink, long bound) {
+        if (bound == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING) {
+            sink.put("unbounded preceding");
+        } else if (bound == AnalyticColumn.FRAME_UNBOUNDED_FOLLOWING) {
+            sink.put("unbounded following");
+        } else if (bound == AnalyticColumn.FRAME_CURRENT_ROW) {
+            sink.put("current row");
+        } else if (bound < 0) {
+            sink.put(-bound).put(" preceding");
+        } else {
+            sink.put(bound).put(" following");
+        }
+    }
+
     private static void aliasToSink(CharSequence alias, CharSink sink) {
         sink.put(' ');
         boolean quote = Chars.indexOf(alias, ' ') != -1;
@@ -997,6 +1051,17 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
                             }
                         }
                     }
+
+                    if (!ac.isDefaultFrame()) {
+                        if (partitionBy.size() > 0 || orderBy.size() > 0) {
+                            sink.put(' ');
+                        }
+                        sink.put(ac.getFramingMode() == AnalyticColumn.FRAMING_ROWS ? "rows" : "range");
+                        sink.put(" between ");
+                        frameBoundToSink(sink, ac.getRowsLo());
+                        sink.put(" and ");
+                        frameBoundToSink(sink, ac.getRowsHi());
+                    }
                     sink.put(')');
                 }
             } else {
@@ -1073,6 +1138,9 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
                         case JOIN_LT:
                             sink.put(" lt join ");
                             break;
+                        case JOIN_WINDOW:
+                            sink.put(" window join ");
+                            break;
                         default:
                             sink.put(" join ");
                             break;
@@ -1105,6 +1173,17 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
                         }
                     }
 
+                    if (model.getAsOfJoinTolerance() != Long.MAX_VALUE) {
+                        sink.put(" tolerance ").put(model.getAsOfJoinTolerance()).put("us");
+                    }
+
+                    if (model.getJoinType() == JOIN_WINDOW) {
+                        sink.put(" range between ");
+                        frameBoundToSink(sink, model.getWindowJoinLo());
+                        sink.put(" and ");
+                        frameBoundToSink(sink, model.getWindowJoinHi());
+                    }
+
                     if (model.getPostJoinWhereClause() != null) {
                         sink.put(" post-join-where ");
                         model.getPostJoinWhereClause().toSink(sink);
@@ -193,6 +193,12 @@ public class CompiledFilterIRSerializer implements PostOrderTreeTraversalAlgo.Vi
             }
         }
 
+        // Expand "column in (a, b, ...)" into "column = a or column = b or ..."
+        if (isInOperation(node)) {
+            serializeIn(node);
+            return false;
+        }
+
         return true;
     }
 
@@ -220,24 +226,24 @@ public class CompiledFilterIRSerializer implements PostOrderTreeTraversalAlgo.Vi
             serializeOperator(node.position, node.token, argCount);
         }
 
-        boolean predicateLeft = predicateContext.onNodeVisited(node);
-
-        if (predicateLeft) {
-            // We're out of a predicate
+        if (predicateContext.onNodeVisited(node)) {
+            onPredicateLeft();
+        }
+    }
 
-            // Force scalar mode if the predicate had byte or short arithmetic operations.
-            // That's because SIMD mode uses byte/short-sized overflows for arithmetic
-            // calculations instead of implicit upcast to int done by *.sql.Function classes.
-            forceScalarMode |=
-                    predicateContext.hasArithmeticOperations && predicateContext.localTypesObserver.maxSize() <= 2;
+    private void onPredicateLeft() throws SqlException {
+        // Force scalar mode if the predicate had byte or short arithmetic operations.
+        // That's because SIMD mode uses byte/short-sized overflows for arithmetic
+        // calculations instead of implicit upcast to int done by *.sql.Function classes.
+        forceScalarMode |=
+                predicateContext.hasArithmeticOperations && predicateContext.localTypesObserver.maxSize() <= 2;
 
-            // Then backfill constants and symbol bind variables and clean up
-            try {
-                backfillNodes.forEach(backfillNodeConsumer);
-                backfillNodes.clear();
-            } catch (SqlWrapperException e) {
-                throw e.wrappedException;
-            }
+        // Then backfill constants and symbol bind variables and clean up
+        try {
+            backfillNodes.forEach(backfillNodeConsumer);
+            backfillNodes.clear();
+        } catch (SqlWrapperException e) {
+            throw e.wrappedException;
         }
     }
 
@@ -684,6 +690,63 @@ public class CompiledFilterIRSerializer implements PostOrderTreeTraversalAlgo.Vi
         throw SqlException.position(position).put("unexpected non-numeric constant: ").put(token);
     }
 
+    private void serializeIn(final ExpressionNode node) throws SqlException {
+        final ExpressionNode columnNode = node.paramCount < 3 ? node.lhs : node.args.getLast();
+        if (columnNode == null || columnNode.type != ExpressionNode.LITERAL) {
+            throw SqlException.position(node.position)
+                    .put("unsupported 'in' operand");
+        }
+
+        final int index = metadata.getColumnIndexQuiet(columnNode.token);
+        if (index == -1) {
+            throw SqlException.invalidColumn(columnNode.position, columnNode.token);
+        }
+        final int columnTypeTag = ColumnType.tagOf(metadata.getColumnType(index));
+        if (columnTypeTag != ColumnType.SYMBOL && columnTypeTag != ColumnType.CHAR) {
+            throw SqlException.position(columnNode.position)
+                    .put("unsupported 'in' column type: ")
+                    .put(ColumnType.nameOf(columnTypeTag));
+        }
+
+        final int valueCount = node.paramCount - 1;
+        for (int i = 0; i < valueCount; i++) {
+            // args are stored in reverse order
+            final ExpressionNode valueNode = node.paramCount < 3 ? node.rhs : node.args.getQuick(valueCount - 1 - i);
+            serializeInValue(node.position, valueNode);
+            predicateContext.onNodeVisited(valueNode);
+
+            serializeColumn(columnNode.position, columnNode.token);
+            predicateContext.onNodeVisited(columnNode);
+
+            putOperator(EQ);
+            if (i > 0) {
+                putOperator(OR);
+            }
+        }
+
+        if (predicateContext.onNodeVisited(node)) {
+            onPredicateLeft();
+        }
+    }
+
+    private void serializeInValue(int position, final ExpressionNode node) throws SqlException {
+        if (node == null) {
+            throw SqlException.position(position).put("'in' value expected");
+        }
+        switch (node.type) {
+            case ExpressionNode.CONSTANT:
+                serializeConstantStub(node);
+                return;
+            case ExpressionNode.BIND_VARIABLE:
+                serializeBindVariable(node);
+                return;
+            default:
+                throw SqlException.position(node.position)
+                        .put("unsupported 'in' value: ")
+                        .put(node.token);
+        }
+    }
+
     private void serializeOperator(int position, final CharSequence token, int argCount) throws SqlException {
         if (SqlKeywords.isNotKeyword(token)) {
             putOperator(NOT);
@@ -774,6 +837,8 @@ public class CompiledFilterIRSerializer implements PostOrderTreeTraversalAlgo.Vi
             case ColumnType.DOUBLE:
                 return F8_TYPE;
             default:
+                // STRING, BINARY and LONG256 columns need var-size or 256-bit column access,
+                // which the native backend does not have; filters on them use Java filter
                 return UNDEFINED_CODE;
         }
     }
@@ -806,6 +871,10 @@ public class CompiledFilterIRSerializer implements PostOrderTreeTraversalAlgo.Vi
         }
     }
 
+    private static boolean isInOperation(ExpressionNode node) {
+        return node.paramCount > 1 && SqlKeywords.isInKeyword(node.token);
+    }
+
     private static boolean isTopLevelOperation(ExpressionNode node) {
         final CharSequence token = node.token;
         if (SqlKeywords.isNotKeyword(token)) {
@@ -817,6 +886,9 @@ public class CompiledFilterIRSerializer implements PostOrderTreeTraversalAlgo.Vi
         if (Chars.equals(token, "=")) {
             return true;
         }
+        if (SqlKeywords.isInKeyword(token)) {
+            return true;
+        }
         if (Chars.equals(token, "<>") || Chars.equals(token, "!=")) {
             return true;
         }
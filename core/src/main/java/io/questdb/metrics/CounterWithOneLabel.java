@@ -24,7 +24,14 @@
 
 package io.questdb.metrics;
 
+import org.jetbrains.annotations.TestOnly;
+
 public interface CounterWithOneLabel extends Scrapable {
 
     void inc(short label0);
+
+    void add(short label0, long value);
+
+    @TestOnly
+    long get(short label0);
 }
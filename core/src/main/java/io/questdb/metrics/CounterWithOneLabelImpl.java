@@ -49,6 +49,16 @@ public class CounterWithOneLabelImpl implements CounterWithOneLabel {
         counters[label0].increment();
     }
 
+    @Override
+    public void add(short label0, long value) {
+        counters[label0].add(value);
+    }
+
+    @Override
+    public long get(short label0) {
+        return counters[label0].sum();
+    }
+
     @Override
     public void scrapeIntoPrometheus(CharSink sink) {
         PrometheusFormatUtils.appendCounterType(name, sink);
@@ -49,6 +49,15 @@ class NullCounter implements Counter, CounterWithOneLabel, CounterWithTwoLabels
     public void inc(short label0) {
     }
 
+    @Override
+    public void add(short label0, long value) {
+    }
+
+    @Override
+    public long get(short label0) {
+        return 0;
+    }
+
     @Override
     public void inc(short label0, short label1) {
     }
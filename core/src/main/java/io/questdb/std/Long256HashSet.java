@@ -91,6 +91,24 @@ public class Long256HashSet implements Mutable {
         }
     }
 
+    /**
+     * Adds all keys of the other set to this set.
+     *
+     * @param that set to copy keys from
+     */
+    public void addAll(Long256HashSet that) {
+        final long[] thatKeys = that.keys;
+        for (int i = 0, n = thatKeys.length; i < n; i += 4) {
+            final long k0 = thatKeys[i];
+            final long k1 = thatKeys[i + 1];
+            final long k2 = thatKeys[i + 2];
+            final long k3 = thatKeys[i + 3];
+            if (k0 != noEntryKey || k1 != noEntryKey || k2 != noEntryKey || k3 != noEntryKey) {
+                add(k0, k1, k2, k3);
+            }
+        }
+    }
+
     @Override
     public final void clear() {
         free = capacity;
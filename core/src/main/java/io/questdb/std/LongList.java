@@ -267,7 +267,9 @@ public class LongList implements Mutable, LongVec {
 
     @Override
     public LongVec newInstance() {
-        return new LongList(size());
+        LongList newList = new LongList(size());
+        newList.setPos(pos);
+        return newList;
     }
 
     /**
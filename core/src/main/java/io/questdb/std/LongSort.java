@@ -134,7 +134,7 @@ public class LongSort {
             for (int k = (last = 0) + 2; k <= count; k += 2) {
                 int hi = run[k], mi = run[k - 1];
                 for (int i = run[k - 2], p = i, q = mi; i < hi; ++i) {
-                    if (q >= hi || p < mi && vec.getQuick(p) <= vec.getQuick(q)) {
+                    if (q >= hi || p < mi && a.getQuick(p) <= a.getQuick(q)) {
                         b.setQuick(i, a.getQuick(p++));
                     } else {
                         b.setQuick(i, a.getQuick(q++));
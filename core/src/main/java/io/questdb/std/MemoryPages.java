@@ -24,9 +24,11 @@
 
 package io.questdb.std;
 
+import io.questdb.cairo.vm.SpillFile;
 import io.questdb.griffin.engine.LimitOverflowException;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 
@@ -42,12 +44,22 @@ public class MemoryPages implements Closeable, Mutable {
     private long cachePageHi;
     private long cachePageLo;
     private final int maxPages;
+    private final SpillFile spillFile;
 
     public MemoryPages(long pageSize, int maxPages) {
+        this(pageSize, maxPages, null);
+    }
+
+    /**
+     * @param spillFile when not null, pages over the spill file budget are allocated on disk
+     *                  and max pages is not enforced
+     */
+    public MemoryPages(long pageSize, int maxPages, @Nullable SpillFile spillFile) {
         this.pageSize = Numbers.ceilPow2(pageSize);
         this.bits = Numbers.msb(this.pageSize);
         this.mask = this.pageSize - 1;
         this.maxPages = maxPages;
+        this.spillFile = spillFile;
         allocate0(0);
     }
 
@@ -68,12 +80,24 @@ public class MemoryPages implements Closeable, Mutable {
 
     @Override
     public void clear() {
+        if (spillFile != null && spillFile.isSpilled()) {
+            // pages are allocated again, spill file does not outlive the query
+            spillFile.freePages(pages, pageSize, MemoryTag.NATIVE_TREE_CHAIN);
+            pages.clear();
+            allocate0(0);
+        }
         cachePageLo = 0;
         cachePageHi = cachePageLo + pageSize;
     }
 
     @Override
     public void close() {
+        if (spillFile != null) {
+            spillFile.freePages(pages, pageSize, MemoryTag.NATIVE_TREE_CHAIN);
+            spillFile.close();
+            pages.clear();
+            return;
+        }
         for (int i = 0; i < pages.size(); i++) {
             long address = pages.getQuick(i);
             if (address != 0) {
@@ -92,12 +116,15 @@ public class MemoryPages implements Closeable, Mutable {
             throw new OutOfMemoryError();
         }
 
-        if (index > maxPages) {
+        if (index > maxPages && spillFile == null) {
             throw LimitOverflowException.instance().put("Maximum number of pages (").put(maxPages).put(") breached in MemoryPages");
         }
 
         if (index >= pages.size()) {
-            pages.extendAndSet((int) index, Unsafe.malloc(pageSize, MemoryTag.NATIVE_TREE_CHAIN));
+            final long address = spillFile != null
+                    ? spillFile.allocatePage(pageSize, MemoryTag.NATIVE_TREE_CHAIN)
+                    : Unsafe.malloc(pageSize, MemoryTag.NATIVE_TREE_CHAIN);
+            pages.extendAndSet((int) index, address);
             LOG.debug().$("new page [size=").$(pageSize).$(']').$();
         }
 
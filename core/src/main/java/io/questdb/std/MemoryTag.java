@@ -53,7 +53,11 @@ public final class MemoryTag {
     public static final int NATIVE_TABLE_READER = 25;
     public static final int NATIVE_TABLE_WRITER = 26;
     public static final int MMAP_UPDATE = 27;
-    public static final int SIZE = MMAP_UPDATE + 1;
+    public static final int NATIVE_SORT = 28;
+    public static final int MMAP_SQL_SPILL = 29;
+    public static final int NATIVE_ANALYTIC = 30;
+    public static final int NATIVE_QUERY_RESULT_CACHE = 31;
+    public static final int SIZE = NATIVE_QUERY_RESULT_CACHE + 1;
     private static final ObjList<String> tagNameMap = new ObjList<>(SIZE);
 
     public static String nameOf(int tag) {
@@ -89,5 +93,9 @@ public final class MemoryTag {
         tagNameMap.extendAndSet(NATIVE_PATH, "NATIVE_PATH");
         tagNameMap.extendAndSet(NATIVE_TABLE_READER, "NATIVE_TABLE_READER");
         tagNameMap.extendAndSet(NATIVE_TABLE_WRITER, "NATIVE_TABLE_WRITER");
+        tagNameMap.extendAndSet(NATIVE_SORT, "NATIVE_SORT");
+        tagNameMap.extendAndSet(MMAP_SQL_SPILL, "MMAP_SQL_SPILL");
+        tagNameMap.extendAndSet(NATIVE_ANALYTIC, "NATIVE_ANALYTIC");
+        tagNameMap.extendAndSet(NATIVE_QUERY_RESULT_CACHE, "NATIVE_QUERY_RESULT_CACHE");
     }
 }
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.std.str;
+
+import io.questdb.std.Misc;
+import io.questdb.std.Mutable;
+import io.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Growable sink in native memory, which stores every char as a single byte. Text is expected
+ * to be ASCII or UTF-8 encoded by the caller, e.g. via {@link #encodeUtf8(CharSequence)}.
+ * Memory of initial capacity is allocated on first write.
+ */
+public class DirectByteCharSink extends AbstractCharSink implements Mutable, Closeable {
+    private final long initialCapacity;
+    private final int memoryTag;
+    private long ptr;
+    private long capacity;
+    private long lo;
+    private long hi;
+
+    public DirectByteCharSink(long initialCapacity, int memoryTag) {
+        this.initialCapacity = initialCapacity;
+        this.memoryTag = memoryTag;
+    }
+
+    @Override
+    public void clear() {
+        lo = ptr;
+    }
+
+    @Override
+    public void close() {
+        if (ptr != 0) {
+            Unsafe.free(ptr, capacity, memoryTag);
+            ptr = lo = hi = capacity = 0;
+        }
+    }
+
+    public void ensureCapacity(long capacity) {
+        if (capacity > this.capacity) {
+            resize(capacity);
+        }
+    }
+
+    public long getAddress() {
+        return ptr;
+    }
+
+    @Override
+    public CharSink put(CharSequence cs) {
+        if (cs != null) {
+            final int len = cs.length();
+            if (lo + len > hi) {
+                resize(Math.max(capacity * 2, size() + len));
+            }
+            for (int i = 0; i < len; i++) {
+                Unsafe.getUnsafe().putByte(lo + i, (byte) cs.charAt(i));
+            }
+            lo += len;
+        }
+        return this;
+    }
+
+    @Override
+    public CharSink put(char c) {
+        if (lo == hi) {
+            resize(Math.max(capacity * 2, initialCapacity));
+        }
+        Unsafe.getUnsafe().putByte(lo++, (byte) c);
+        return this;
+    }
+
+    /**
+     * Clears the sink and frees its memory, which is allocated again on next write.
+     */
+    public void resetCapacity() {
+        close();
+    }
+
+    public long size() {
+        return lo - ptr;
+    }
+
+    @Override
+    public String toString() {
+        final CharSink b = Misc.getThreadLocalBuilder();
+        for (long p = ptr; p < lo; p++) {
+            b.put((char) Unsafe.getUnsafe().getByte(p));
+        }
+        return b.toString();
+    }
+
+    private void resize(long cap) {
+        cap = Math.max(cap, 16);
+        final long size = size();
+        if (ptr == 0) {
+            ptr = Unsafe.malloc(cap, memoryTag);
+        } else {
+            ptr = Unsafe.realloc(ptr, capacity, cap, memoryTag);
+        }
+        capacity = cap;
+        lo = ptr + size;
+        hi = ptr + cap;
+    }
+}
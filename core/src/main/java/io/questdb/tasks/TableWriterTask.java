@@ -36,6 +36,7 @@ public class TableWriterTask implements Closeable {
     public static final int CMD_SLAVE_SYNC = 1;
     public static final int CMD_ALTER_TABLE = 2;
     public static final int CMD_UPDATE_TABLE = 3;
+    public static final int CMD_APPLY_WAL = 4;
 
     public static final int TSK_BEGIN = 64;
     public static final int TSK_COMPLETE = 65;
@@ -599,6 +599,14 @@ open module io.questdb {
 
             // analytic functions
             io.questdb.griffin.engine.functions.analytic.RowNumberFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.SumDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.AvgDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.MinDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.MaxDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.FirstValueDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.LastValueDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.LagDoubleAnalyticFunctionFactory,
+            io.questdb.griffin.engine.functions.analytic.LeadDoubleAnalyticFunctionFactory,
 
             // metadata functions
             io.questdb.griffin.engine.functions.metadata.BuildFunctionFactory,
@@ -183,6 +183,7 @@ public class PropServerConfigurationTest {
         Assert.assertEquals(Integer.MAX_VALUE, configuration.getCairoConfiguration().getSqlSortValueMaxPages());
         Assert.assertEquals(10000, configuration.getCairoConfiguration().getWorkStealTimeoutNanos());
         Assert.assertTrue(configuration.getCairoConfiguration().isParallelIndexingEnabled());
+        Assert.assertTrue(configuration.getCairoConfiguration().isReaderSharedMmapEnabled());
         Assert.assertEquals(16 * 1024, configuration.getCairoConfiguration().getSqlJoinMetadataPageSize());
         Assert.assertEquals(Integer.MAX_VALUE, configuration.getCairoConfiguration().getSqlJoinMetadataMaxResizes());
         Assert.assertEquals(64, configuration.getCairoConfiguration().getAnalyticColumnPoolCapacity());
@@ -208,6 +209,13 @@ public class PropServerConfigurationTest {
         Assert.assertFalse(configuration.getLineUdpReceiverConfiguration().ownThread());
 
         Assert.assertTrue(configuration.getCairoConfiguration().isSqlParallelFilterEnabled());
+        Assert.assertTrue(configuration.getCairoConfiguration().isSqlParallelGroupByEnabled());
+        Assert.assertTrue(configuration.getCairoConfiguration().isSqlParallelHashJoinEnabled());
+        Assert.assertTrue(configuration.getCairoConfiguration().isSqlParallelAsOfJoinEnabled());
+        Assert.assertTrue(configuration.getCairoConfiguration().isSqlParallelLatestByEnabled());
+        Assert.assertTrue(configuration.getCairoConfiguration().isSqlParallelSampleByEnabled());
+        Assert.assertFalse(configuration.getCairoConfiguration().isSqlSpillEnabled());
+        Assert.assertEquals(256 * 1024 * 1024, configuration.getCairoConfiguration().getSqlSpillMemoryBudget());
         Assert.assertEquals(1_000_000, configuration.getCairoConfiguration().getSqlPageFrameMaxRows());
         Assert.assertEquals(1000, configuration.getCairoConfiguration().getSqlPageFrameMinRows());
         Assert.assertEquals(4, configuration.getCairoConfiguration().getPageFrameReduceShardCount());
@@ -224,6 +232,16 @@ public class PropServerConfigurationTest {
         Assert.assertEquals(1024 * 1024, configuration.getCairoConfiguration().getSqlJitRowsThreshold());
         Assert.assertEquals(1024 * 1024, configuration.getCairoConfiguration().getSqlJitPageAddressCacheThreshold());
         Assert.assertFalse(configuration.getCairoConfiguration().isSqlJitDebugEnabled());
+        Assert.assertFalse(configuration.getCairoConfiguration().isWalEnabled());
+        Assert.assertEquals(200_000, configuration.getCairoConfiguration().getWalSegmentRolloverRowCount());
+        Assert.assertTrue(configuration.getCairoConfiguration().isMatViewEnabled());
+        Assert.assertEquals(100_000, configuration.getCairoConfiguration().getMatViewRefreshInterval());
+        Assert.assertFalse(configuration.getCairoConfiguration().isSqlResultCacheEnabled());
+        Assert.assertEquals(64 * 1024 * 1024, configuration.getCairoConfiguration().getSqlResultCacheSize());
+        Assert.assertEquals(1024 * 1024, configuration.getCairoConfiguration().getSqlResultCacheEntrySize());
+        Assert.assertEquals(256, configuration.getCairoConfiguration().getSqlFactoryCacheCapacity());
+        Assert.assertEquals(100_000, configuration.getCairoConfiguration().getParquetRowGroupSize());
+        Assert.assertEquals(100_000, configuration.getCairoConfiguration().getZoneMapBlockSize());
 
         Assert.assertEquals(8192, configuration.getCairoConfiguration().getRndFunctionMemoryPageSize());
         Assert.assertEquals(128, configuration.getCairoConfiguration().getRndFunctionMemoryMaxPages());
@@ -244,6 +262,8 @@ public class PropServerConfigurationTest {
         TestUtils.assertEquals(new File(root, "db").getAbsolutePath(), configuration.getCairoConfiguration().getRoot());
         TestUtils.assertEquals(new File(root, "conf").getAbsolutePath(), configuration.getCairoConfiguration().getConfRoot());
         TestUtils.assertEquals(new File(root, "snapshot").getAbsolutePath(), configuration.getCairoConfiguration().getSnapshotRoot());
+        // spill files share scratch directory with COPY
+        TestUtils.assertEquals(new File(root, "import").getAbsolutePath(), configuration.getCairoConfiguration().getSqlSpillRoot());
 
         Assert.assertEquals("", configuration.getCairoConfiguration().getSnapshotInstanceId());
         Assert.assertTrue(configuration.getCairoConfiguration().isSnapshotRecoveryEnabled());
@@ -283,6 +303,8 @@ public class PropServerConfigurationTest {
         Assert.assertEquals(PropServerConfiguration.COMMIT_INTERVAL_DEFAULT, configuration.getLineTcpReceiverConfiguration().getCommitIntervalDefault());
         Assert.assertEquals(PartitionBy.DAY, configuration.getLineTcpReceiverConfiguration().getDefaultPartitionBy());
         Assert.assertEquals(10_000, configuration.getLineTcpReceiverConfiguration().getWriterIdleTimeout());
+        Assert.assertEquals(5_000, configuration.getLineTcpReceiverConfiguration().getWriterRebalanceInterval());
+        Assert.assertEquals(1.9, configuration.getLineTcpReceiverConfiguration().getMaxLoadRatio(), 0.001);
         Assert.assertEquals(0, configuration.getCairoConfiguration().getSampleByIndexSearchPageSize());
         Assert.assertEquals(32, configuration.getCairoConfiguration().getWriterCommandQueueCapacity());
         Assert.assertEquals(2048, configuration.getCairoConfiguration().getWriterCommandQueueSlotSize());
@@ -752,6 +774,14 @@ public class PropServerConfigurationTest {
             Assert.assertTrue(configuration.getLineUdpReceiverConfiguration().ownThread());
 
             Assert.assertFalse(configuration.getCairoConfiguration().isSqlParallelFilterEnabled());
+            Assert.assertFalse(configuration.getCairoConfiguration().isSqlParallelGroupByEnabled());
+            Assert.assertFalse(configuration.getCairoConfiguration().isSqlParallelHashJoinEnabled());
+            Assert.assertFalse(configuration.getCairoConfiguration().isSqlParallelAsOfJoinEnabled());
+            Assert.assertFalse(configuration.getCairoConfiguration().isSqlParallelLatestByEnabled());
+            Assert.assertFalse(configuration.getCairoConfiguration().isSqlParallelSampleByEnabled());
+            Assert.assertTrue(configuration.getCairoConfiguration().isSqlSpillEnabled());
+            TestUtils.assertEquals("/tmp/spill", configuration.getCairoConfiguration().getSqlSpillRoot());
+            Assert.assertEquals(64 * 1024 * 1024, configuration.getCairoConfiguration().getSqlSpillMemoryBudget());
             Assert.assertEquals(1000, configuration.getCairoConfiguration().getSqlPageFrameMaxRows());
             Assert.assertEquals(100, configuration.getCairoConfiguration().getSqlPageFrameMinRows());
             Assert.assertEquals(128, configuration.getCairoConfiguration().getPageFrameReduceShardCount());
@@ -768,6 +798,16 @@ public class PropServerConfigurationTest {
             Assert.assertEquals(1024, configuration.getCairoConfiguration().getSqlJitRowsThreshold());
             Assert.assertEquals(1024, configuration.getCairoConfiguration().getSqlJitPageAddressCacheThreshold());
             Assert.assertTrue(configuration.getCairoConfiguration().isSqlJitDebugEnabled());
+            Assert.assertTrue(configuration.getCairoConfiguration().isWalEnabled());
+            Assert.assertEquals(1_000, configuration.getCairoConfiguration().getWalSegmentRolloverRowCount());
+            Assert.assertFalse(configuration.getCairoConfiguration().isMatViewEnabled());
+            Assert.assertEquals(2_000_000, configuration.getCairoConfiguration().getMatViewRefreshInterval());
+            Assert.assertTrue(configuration.getCairoConfiguration().isSqlResultCacheEnabled());
+            Assert.assertEquals(16 * 1024 * 1024, configuration.getCairoConfiguration().getSqlResultCacheSize());
+            Assert.assertEquals(256 * 1024, configuration.getCairoConfiguration().getSqlResultCacheEntrySize());
+            Assert.assertEquals(64, configuration.getCairoConfiguration().getSqlFactoryCacheCapacity());
+            Assert.assertEquals(5_000, configuration.getCairoConfiguration().getParquetRowGroupSize());
+            Assert.assertEquals(4096, configuration.getCairoConfiguration().getZoneMapBlockSize());
 
             Assert.assertEquals(16384, configuration.getCairoConfiguration().getRndFunctionMemoryPageSize());
             Assert.assertEquals(32, configuration.getCairoConfiguration().getRndFunctionMemoryMaxPages());
@@ -802,6 +842,8 @@ public class PropServerConfigurationTest {
             Assert.assertEquals(1000, configuration.getLineTcpReceiverConfiguration().getMaintenanceInterval());
             Assert.assertEquals(PartitionBy.MONTH, configuration.getLineTcpReceiverConfiguration().getDefaultPartitionBy());
             Assert.assertEquals(5_000, configuration.getLineTcpReceiverConfiguration().getWriterIdleTimeout());
+            Assert.assertEquals(1_000, configuration.getLineTcpReceiverConfiguration().getWriterRebalanceInterval());
+            Assert.assertEquals(2.5, configuration.getLineTcpReceiverConfiguration().getMaxLoadRatio(), 0.001);
             Assert.assertEquals(16, configuration.getCairoConfiguration().getPartitionPurgeListCapacity());
             Assert.assertEquals(ColumnType.FLOAT, configuration.getLineTcpReceiverConfiguration().getDefaultColumnTypeForFloat());
             Assert.assertEquals(ColumnType.INT, configuration.getLineTcpReceiverConfiguration().getDefaultColumnTypeForInteger());
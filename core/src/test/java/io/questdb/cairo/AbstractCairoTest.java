@@ -75,6 +75,9 @@ public class AbstractCairoTest {
     protected static DateFormat backupDirTimestampFormat;
     protected static long configOverrideCommitLagMicros = -1;
     protected static int configOverrideMaxUncommittedRows = -1;
+    protected static int configOverrideParquetRowGroupSize = -1;
+    protected static int configOverrideZoneMapBlockSize = -1;
+    protected static int configOverrideSqlCopyBufferSize = -1;
     protected static Metrics metrics = Metrics.enabled();
     protected static int capacity = -1;
     protected static int sampleByIndexSearchPageSize;
@@ -87,6 +90,13 @@ public class AbstractCairoTest {
     protected static String snapshotInstanceId = null;
     protected static Boolean snapshotRecoveryEnabled = null;
     protected static Boolean enableParallelFilter = null;
+    protected static Boolean enableParallelGroupBy = null;
+    protected static Boolean enableParallelHashJoin = null;
+    protected static Boolean enableParallelAsOfJoin = null;
+    protected static Boolean enableParallelLatestBy = null;
+    protected static Boolean enableParallelSampleBy = null;
+    protected static Boolean enableWal = null;
+    protected static long walSegmentRolloverRowCount = -1;
     protected static int queryCacheEventQueueCapacity = -1;
     protected static int pageFrameReduceShardCount = -1;
     protected static int pageFrameReduceQueueCapacity = -1;
@@ -197,6 +207,21 @@ public class AbstractCairoTest {
                 return super.getMaxUncommittedRows();
             }
 
+            @Override
+            public int getSqlCopyBufferSize() {
+                return configOverrideSqlCopyBufferSize > 0 ? configOverrideSqlCopyBufferSize : super.getSqlCopyBufferSize();
+            }
+
+            @Override
+            public int getParquetRowGroupSize() {
+                return configOverrideParquetRowGroupSize > 0 ? configOverrideParquetRowGroupSize : super.getParquetRowGroupSize();
+            }
+
+            @Override
+            public int getZoneMapBlockSize() {
+                return configOverrideZoneMapBlockSize > -1 ? configOverrideZoneMapBlockSize : super.getZoneMapBlockSize();
+            }
+
             @Override
             public MicrosecondClock getMicrosecondClock() {
                 return testMicrosClock;
@@ -307,6 +332,41 @@ public class AbstractCairoTest {
                 return enableParallelFilter != null ? enableParallelFilter : super.isSqlParallelFilterEnabled();
             }
 
+            @Override
+            public boolean isSqlParallelGroupByEnabled() {
+                return enableParallelGroupBy != null ? enableParallelGroupBy : super.isSqlParallelGroupByEnabled();
+            }
+
+            @Override
+            public boolean isSqlParallelHashJoinEnabled() {
+                return enableParallelHashJoin != null ? enableParallelHashJoin : super.isSqlParallelHashJoinEnabled();
+            }
+
+            @Override
+            public boolean isSqlParallelLatestByEnabled() {
+                return enableParallelLatestBy != null ? enableParallelLatestBy : super.isSqlParallelLatestByEnabled();
+            }
+
+            @Override
+            public boolean isSqlParallelAsOfJoinEnabled() {
+                return enableParallelAsOfJoin != null ? enableParallelAsOfJoin : super.isSqlParallelAsOfJoinEnabled();
+            }
+
+            @Override
+            public boolean isSqlParallelSampleByEnabled() {
+                return enableParallelSampleBy != null ? enableParallelSampleBy : super.isSqlParallelSampleByEnabled();
+            }
+
+            @Override
+            public boolean isWalEnabled() {
+                return enableWal != null ? enableWal : super.isWalEnabled();
+            }
+
+            @Override
+            public long getWalSegmentRolloverRowCount() {
+                return walSegmentRolloverRowCount < 0 ? super.getWalSegmentRolloverRowCount() : walSegmentRolloverRowCount;
+            }
+
             @Override
             public int getColumnPurgeTaskPoolCapacity() {
                 return columnVersionTaskPoolCapacity >= 0 ? columnVersionTaskPoolCapacity : super.getColumnPurgeTaskPoolCapacity();
@@ -344,6 +404,9 @@ public class AbstractCairoTest {
         TestUtils.removeTestPath(root);
         configOverrideMaxUncommittedRows = -1;
         configOverrideCommitLagMicros = -1;
+        configOverrideParquetRowGroupSize = -1;
+        configOverrideZoneMapBlockSize = -1;
+        configOverrideSqlCopyBufferSize = -1;
         currentMicros = -1;
         sampleByIndexSearchPageSize = -1;
         defaultMapType = null;
@@ -357,6 +420,13 @@ public class AbstractCairoTest {
         snapshotInstanceId = null;
         snapshotRecoveryEnabled = null;
         enableParallelFilter = null;
+        enableParallelGroupBy = null;
+        enableParallelHashJoin = null;
+        enableParallelAsOfJoin = null;
+        enableParallelLatestBy = null;
+        enableParallelSampleBy = null;
+        enableWal = null;
+        walSegmentRolloverRowCount = -1;
         hideTelemetryTable = false;
         writerCommandQueueCapacity = 4;
         queryCacheEventQueueCapacity = -1;
@@ -109,7 +109,11 @@ public final class AllowAllSqlSecurityContext {
                 @Nullable RecordSink partitionBySink,
                 @Nullable ColumnTypes keyTypes,
                 boolean isOrdered,
-                boolean baseSupportsRandomAccess
+                boolean baseSupportsRandomAccess,
+                int framingMode,
+                long rowsLo,
+                long rowsHi,
+                int timestampIndex
         ) {
         }
 
@@ -140,5 +144,14 @@ public final class AllowAllSqlSecurityContext {
         public boolean getCloneSymbolTables() {
             return false;
         }
+
+        @Override
+        public boolean isResultCacheEnabled() {
+            return false;
+        }
+
+        @Override
+        public void setResultCacheEnabled(boolean resultCacheEnabled) {
+        }
     };
 }
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.map;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.griffin.engine.LimitOverflowException;
+import io.questdb.std.*;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FixedSizeKeyMapTest extends AbstractCairoTest {
+
+    @Test
+    public void testCompositeKey() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            ArrayColumnTypes keyTypes = new ArrayColumnTypes()
+                    .add(ColumnType.LONG)
+                    .add(ColumnType.INT)
+                    .add(ColumnType.SHORT)
+                    .add(ColumnType.BYTE);
+            ArrayColumnTypes valueTypes = new ArrayColumnTypes()
+                    .add(ColumnType.LONG)
+                    .add(ColumnType.DOUBLE);
+
+            final int N = 100_000;
+            final Rnd rnd = new Rnd();
+            try (FixedSizeKeyMap map = new FixedSizeKeyMap(1024, keyTypes, valueTypes, 16, 0.5, Integer.MAX_VALUE)) {
+                // every key is inserted twice, second time it must be found
+                for (int j = 0; j < 2; j++) {
+                    rnd.reset();
+                    for (int i = 0; i < N; i++) {
+                        MapKey key = map.withKey();
+                        key.putLong(rnd.nextLong());
+                        key.putInt(rnd.nextInt());
+                        key.putShort(rnd.nextShort());
+                        key.putByte(rnd.nextByte());
+                        MapValue value = key.createValue();
+                        Assert.assertEquals(j == 0, value.isNew());
+                        if (value.isNew()) {
+                            value.putLong(0, i);
+                            value.putDouble(1, i / 2.0);
+                        } else {
+                            value.addLong(0, i);
+                        }
+                    }
+                    Assert.assertEquals(N, map.size());
+                }
+
+                // cursor preserves insertion order
+                rnd.reset();
+                RecordCursor cursor = map.getCursor();
+                MapRecord record = map.getRecord();
+                int i = 0;
+                while (cursor.hasNext()) {
+                    Assert.assertEquals(2L * i, record.getLong(0));
+                    Assert.assertEquals(i / 2.0, record.getDouble(1), 0.0000001);
+                    Assert.assertEquals(rnd.nextLong(), record.getLong(2));
+                    Assert.assertEquals(rnd.nextInt(), record.getInt(3));
+                    Assert.assertEquals(rnd.nextShort(), record.getShort(4));
+                    Assert.assertEquals(rnd.nextByte(), record.getByte(5));
+                    i++;
+                }
+                Assert.assertEquals(N, i);
+            }
+        });
+    }
+
+    @Test
+    public void testFactoryPicksFixedSizeKeyMap() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final ColumnTypes valueTypes = new SingleColumnType(ColumnType.LONG);
+            try (Map map = MapFactory.createMap(configuration, new SingleColumnType(ColumnType.LONG), valueTypes)) {
+                Assert.assertTrue(map instanceof FixedSizeKeyMap);
+            }
+            try (Map map = MapFactory.createMap(configuration, new ArrayColumnTypes().add(ColumnType.SYMBOL).add(ColumnType.getGeoHashTypeWithBits(20)), valueTypes)) {
+                Assert.assertTrue(map instanceof FixedSizeKeyMap);
+            }
+            try (Map map = MapFactory.createMap(configuration, new ArrayColumnTypes().add(ColumnType.SYMBOL).add(ColumnType.STRING), valueTypes)) {
+                Assert.assertTrue(map instanceof FastMap);
+            }
+            try (Map map = MapFactory.createMap(configuration, new SingleColumnType(ColumnType.LONG256), valueTypes)) {
+                Assert.assertTrue(map instanceof FastMap);
+            }
+            try (Map map = MapFactory.createMap(configuration, new SingleColumnType(ColumnType.LONG))) {
+                Assert.assertTrue(map instanceof FastMap);
+            }
+            ArrayColumnTypes tooManyKeys = new ArrayColumnTypes();
+            for (int i = 0; i <= FixedSizeKeyMap.MAX_KEY_COLUMNS; i++) {
+                tooManyKeys.add(ColumnType.INT);
+            }
+            try (Map map = MapFactory.createMap(configuration, tooManyKeys, valueTypes)) {
+                Assert.assertTrue(map instanceof FastMap);
+            }
+        });
+    }
+
+    @Test
+    public void testGeoHashAndSmallKeys() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            ArrayColumnTypes keyTypes = new ArrayColumnTypes()
+                    .add(ColumnType.getGeoHashTypeWithBits(5))
+                    .add(ColumnType.BOOLEAN)
+                    .add(ColumnType.CHAR);
+            try (FixedSizeKeyMap map = new FixedSizeKeyMap(1024, keyTypes, new SingleColumnType(ColumnType.INT), 16, 0.5, Integer.MAX_VALUE)) {
+                for (int i = 0; i < 10_000; i++) {
+                    MapKey key = map.withKey();
+                    key.putByte((byte) (i % 32));
+                    key.putBool(i % 3 == 0);
+                    key.putChar((char) ('a' + i % 7));
+                    MapValue value = key.createValue();
+                    if (value.isNew()) {
+                        value.putInt(0, 1);
+                    } else {
+                        value.addInt(0, 1);
+                    }
+                }
+                // 32 geohashes x 7 chars, booleans follow i % 3, which is co-prime with both
+                Assert.assertEquals(32 * 7 * 2, map.size());
+
+                long total = 0;
+                RecordCursor cursor = map.getCursor();
+                MapRecord record = map.getRecord();
+                while (cursor.hasNext()) {
+                    total += record.getInt(0);
+                    Assert.assertTrue(record.getGeoByte(1) < 32);
+                    Assert.assertTrue(record.getChar(3) >= 'a' && record.getChar(3) < 'a' + 7);
+                }
+                Assert.assertEquals(10_000, total);
+            }
+        });
+    }
+
+    @Test(expected = LimitOverflowException.class)
+    public void testMaxResizes() {
+        try (FixedSizeKeyMap map = new FixedSizeKeyMap(64, new SingleColumnType(ColumnType.LONG), new SingleColumnType(ColumnType.LONG), 16, 0.5, 1)) {
+            for (int i = 0; i < 1000; i++) {
+                MapKey key = map.withKey();
+                key.putLong(i);
+                key.createValue().putLong(0, i);
+            }
+        }
+    }
+
+    @Test
+    public void testNoValueColumns() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final Rnd rnd = new Rnd();
+            final int N = 1000;
+            try (FixedSizeKeyMap map = new FixedSizeKeyMap(Numbers.SIZE_1MB, new SingleColumnType(ColumnType.INT), 128, 0.7f, 1)) {
+                for (int i = 0; i < N; i++) {
+                    MapKey key = map.withKey();
+                    key.putInt(rnd.nextInt());
+                    Assert.assertTrue(key.create());
+                }
+                Assert.assertEquals(N, map.size());
+
+                rnd.reset();
+                for (int i = 0; i < N; i++) {
+                    MapKey key = map.withKey();
+                    key.putInt(rnd.nextInt());
+                    Assert.assertFalse(key.notFound());
+                }
+
+                MapKey key = map.withKey();
+                key.putInt(rnd.nextInt());
+                Assert.assertTrue(key.notFound());
+                Assert.assertEquals(N, map.size());
+            }
+        });
+    }
+
+    @Test
+    public void testRestoreInitialCapacity() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            try (FixedSizeKeyMap map = new FixedSizeKeyMap(1024, new SingleColumnType(ColumnType.LONG), new SingleColumnType(ColumnType.LONG), 16, 0.5, Integer.MAX_VALUE)) {
+                for (int i = 0; i < 100_000; i++) {
+                    MapKey key = map.withKey();
+                    key.putLong(i);
+                    key.createValue().putLong(0, i);
+                }
+
+                final long keyCapacityBefore = map.getKeyCapacity();
+                final long areaSizeBefore = map.getAreaSize();
+                map.restoreInitialCapacity();
+                Assert.assertTrue(keyCapacityBefore > map.getKeyCapacity());
+                Assert.assertTrue(areaSizeBefore > map.getAreaSize());
+                Assert.assertEquals(0, map.size());
+
+                // map is usable after capacity is restored
+                MapKey key = map.withKey();
+                key.putLong(42);
+                Assert.assertTrue(key.createValue().isNew());
+                Assert.assertEquals(1, map.size());
+            }
+        });
+    }
+
+    @Test
+    public void testRowIdAccess() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            ColumnTypes types = new SingleColumnType(ColumnType.INT);
+
+            final int N = 10000;
+            final Rnd rnd = new Rnd();
+            try (FixedSizeKeyMap map = new FixedSizeKeyMap(Numbers.SIZE_1MB, types, types, 64, 0.5, 1)) {
+
+                for (int i = 0; i < N; i++) {
+                    MapKey key = map.withKey();
+                    key.putInt(rnd.nextInt());
+                    MapValue values = key.createValue();
+                    Assert.assertTrue(values.isNew());
+                    values.putInt(0, i + 1);
+                }
+
+                // reset random generator and iterate map to double the value
+                rnd.reset();
+                LongList list = new LongList();
+                try (RecordCursor cursor = map.getCursor()) {
+                    final MapRecord record = (MapRecord) cursor.getRecord();
+                    while (cursor.hasNext()) {
+                        list.add(record.getRowId());
+                        Assert.assertEquals(rnd.nextInt(), record.getInt(1));
+                        MapValue value = record.getValue();
+                        value.putInt(0, value.getInt(0) * 2);
+                    }
+
+                    MapRecord rec = (MapRecord) cursor.getRecordB();
+                    Assert.assertNotSame(rec, record);
+
+                    rnd.reset();
+                    for (int i = 0, n = list.size(); i < n; i++) {
+                        cursor.recordAt(rec, list.getQuick(i));
+                        Assert.assertEquals((i + 1) * 2, rec.getInt(0));
+                        Assert.assertEquals(rnd.nextInt(), rec.getInt(1));
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testSetMapRecordHere() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            try (FixedSizeKeyMap map = new FixedSizeKeyMap(1024, new SingleColumnType(ColumnType.LONG), new SingleColumnType(ColumnType.INT), 16, 0.5, Integer.MAX_VALUE)) {
+                for (int i = 0; i < 100; i++) {
+                    MapKey key = map.withKey();
+                    key.putLong(i * 10L);
+                    key.createValue().putInt(0, i);
+                }
+
+                MapKey key = map.withKey();
+                key.putLong(370);
+                MapValue value = key.findValue();
+                Assert.assertNotNull(value);
+                value.setMapRecordHere();
+                MapRecord record = map.getRecord();
+                Assert.assertEquals(37, record.getInt(0));
+                Assert.assertEquals(370, record.getLong(1));
+            }
+        });
+    }
+
+    @Test
+    public void testUnsupportedKeyType() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            try {
+                new FixedSizeKeyMap(1024, new SingleColumnType(ColumnType.STRING), new SingleColumnType(ColumnType.LONG), 16, 0.5, 1);
+                Assert.fail();
+            } catch (CairoException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "key type is not supported: STRING");
+            }
+        });
+    }
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.TableReader;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlException;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatViewTest extends AbstractGriffinTest {
+
+    private static final String BASE_DDL = "create table b as (" +
+            "select rnd_symbol('a','b','c') k, rnd_double() p, timestamp_sequence('2022-01-01', 1000000000L) ts from long_sequence(300)" +
+            ") timestamp(ts) partition by day";
+    private static final String VIEW_QUERY = "select ts, k, avg(p) ap, count() c from b where p > 0.1 sample by 1h align to calendar";
+
+    @Test
+    public void testCreate() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+            assertView("v", VIEW_QUERY, "ts, k");
+
+            final MatViewDefinition view = engine.getMatViewRegistry().getView("v");
+            Assert.assertNotNull(view);
+            Assert.assertEquals("b", view.getBaseTableName());
+        });
+    }
+
+    @Test
+    public void testCreateBaseTableNotPartitioned() throws Exception {
+        assertFailure(
+                "create materialized view v as (select ts, avg(p) from b sample by 1h align to calendar)",
+                "create table b as (select rnd_double() p, timestamp_sequence(0, 1000000000L) ts from long_sequence(10)) timestamp(ts)",
+                25,
+                "base table of materialized view must be partitioned [table=b]"
+        );
+    }
+
+    @Test
+    public void testCreateFill() throws Exception {
+        assertFailure(
+                "create materialized view v as (select ts, avg(p) from b sample by 1h fill(prev) align to calendar)",
+                BASE_DDL,
+                74,
+                "fill is not supported in materialized view"
+        );
+    }
+
+    @Test
+    public void testCreateJoin() throws Exception {
+        assertFailure(
+                "create materialized view v as (select b.ts, avg(c.p) from b join b c on (k) sample by 1h align to calendar)",
+                BASE_DDL,
+                58,
+                "joins are not supported in materialized view"
+        );
+    }
+
+    @Test
+    public void testCreateNoSampleBy() throws Exception {
+        assertFailure(
+                "create materialized view v as (select ts, k, p from b)",
+                BASE_DDL,
+                31,
+                "materialized view query must use SAMPLE BY"
+        );
+    }
+
+    @Test
+    public void testCreateNotAlignedToCalendar() throws Exception {
+        assertFailure(
+                "create materialized view v as (select ts, avg(p) from b sample by 1h)",
+                BASE_DDL,
+                66,
+                "materialized view query must align to calendar"
+        );
+    }
+
+    @Test
+    public void testCreatePartitionByNone() throws Exception {
+        assertFailure(
+                "create materialized view v as (select ts, avg(p) from b sample by 1h align to calendar) partition by none",
+                BASE_DDL,
+                101,
+                "materialized view must be partitioned"
+        );
+    }
+
+    @Test
+    public void testCreateTimestampNotSelected() throws Exception {
+        assertFailure(
+                "create materialized view v as (select k, avg(p) from b sample by 1h align to calendar)",
+                BASE_DDL,
+                25,
+                "materialized view query must select the sampled timestamp"
+        );
+    }
+
+    @Test
+    public void testCreateUnion() throws Exception {
+        assertFailure(
+                "create materialized view v as (select ts, p from b union all select ts, p from b)",
+                BASE_DDL,
+                31,
+                "union is not supported in materialized view"
+        );
+    }
+
+    @Test
+    public void testRefreshAppend() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+
+            // rows land in the last bucket of the view and in new partitions
+            compile("insert into b select rnd_symbol('a','b','c','d') k, rnd_double() p, timestamp_sequence('2022-01-04T11:15', 60000000L) ts from long_sequence(2000)");
+            compile("refresh materialized view v");
+            assertView("v", VIEW_QUERY, "ts, k");
+        });
+    }
+
+    @Test
+    public void testRefreshBeforeFirstRow() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+
+            compile("insert into b select rnd_symbol('a','b','c','d') k, rnd_double() p, timestamp_sequence('2021-12-31T20:00', 10000000L) ts from long_sequence(50)");
+            compile("refresh materialized view v");
+            assertView("v", VIEW_QUERY, "ts, k");
+        });
+    }
+
+    @Test
+    public void testRefreshBaseTableDropped() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+            compile("drop table b");
+            try {
+                compile("refresh materialized view v");
+                Assert.fail();
+            } catch (SqlException e) {
+                Assert.assertEquals(26, e.getPosition());
+                TestUtils.assertContains(e.getFlyweightMessage(), "base table of materialized view does not exist [view=v, table=b]");
+            }
+        });
+    }
+
+    @Test
+    public void testRefreshOutOfOrder() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ") partition by day");
+
+            // new symbol value in the middle of the table, view partitions are rewritten from the stale bucket onwards
+            compile("insert into b select rnd_symbol('a','b','c','d') k, rnd_double() p, timestamp_sequence('2022-01-02T13:40', 10000000L) ts from long_sequence(50)");
+            compile("refresh materialized view v");
+            assertView("v", VIEW_QUERY, "ts, k");
+
+            compile("insert into b select rnd_symbol('d','e') k, rnd_double() p, timestamp_sequence('2022-01-03T00:00', 10000000L) ts from long_sequence(50)");
+            compile("refresh materialized view v");
+            assertView("v", VIEW_QUERY, "ts, k");
+        });
+    }
+
+    @Test
+    public void testRefreshTimeZone() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            final String query = "select ts, avg(p) ap from b x sample by 1d align to calendar time zone 'Europe/London'";
+            compile("create materialized view w as (" + query + ") partition by month");
+
+            compile("insert into b select rnd_symbol('a') k, rnd_double() p, timestamp_sequence('2022-01-03T13:40', 10000000L) ts from long_sequence(50)");
+            compile("refresh materialized view w");
+            assertView("w", query, "ts");
+        });
+    }
+
+    @Test
+    public void testRefreshUpToDate() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+            final long version = getVersion("v");
+
+            compile("refresh materialized view v");
+            Assert.assertEquals(version, getVersion("v"));
+            assertView("v", VIEW_QUERY, "ts, k");
+        });
+    }
+
+    @Test
+    public void testRenameAndDrop() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+            compile("rename table v to v2");
+
+            compile("insert into b select rnd_symbol('a','b','c','d') k, rnd_double() p, timestamp_sequence('2022-01-03T13:40', 10000000L) ts from long_sequence(50)");
+            compile("refresh materialized view v2");
+            assertView("v2", VIEW_QUERY, "ts, k");
+
+            compile("drop table v2");
+            Assert.assertNull(engine.getMatViewRegistry().getView("v2"));
+            try {
+                compile("refresh materialized view v2");
+                Assert.fail();
+            } catch (SqlException e) {
+                Assert.assertEquals(26, e.getPosition());
+                TestUtils.assertContains(e.getFlyweightMessage(), "materialized view does not exist [view=v2]");
+            }
+        });
+    }
+
+    @Test
+    public void testViewsDiscoveredOnStartup() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(BASE_DDL);
+            compile("create materialized view v as (" + VIEW_QUERY + ")");
+            engine.clear();
+
+            compile("insert into b select rnd_symbol('a','b','c','d') k, rnd_double() p, timestamp_sequence('2022-01-04T11:15', 60000000L) ts from long_sequence(100)");
+            compile("refresh materialized view v");
+            assertView("v", VIEW_QUERY, "ts, k");
+        });
+    }
+
+    private static long getVersion(String tableName) {
+        try (TableReader reader = engine.getReader(sqlExecutionContext.getCairoSecurityContext(), tableName)) {
+            return reader.getVersion();
+        }
+    }
+
+    private static void assertView(String viewName, String query, String orderBy) throws SqlException {
+        TestUtils.assertSqlCursors(
+                compiler,
+                sqlExecutionContext,
+                "select * from (" + query + ") order by " + orderBy,
+                "select * from " + viewName + " order by " + orderBy,
+                LOG
+        );
+    }
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.vm.api.MemoryMA;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.str.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MmapCacheTest extends AbstractCairoTest {
+
+    @Test
+    public void testMappingSharedBetweenMemories() throws Exception {
+        assertMemoryLeak(() -> {
+            final FilesFacade ff = configuration.getFilesFacade();
+            try (Path path = new Path()) {
+                path.of(root).concat("x.d").$();
+                try (MemoryMA mem = Vm.getSmallCMARWInstance(ff, path, MemoryTag.MMAP_DEFAULT, configuration.getWriterFileOpenOpts())) {
+                    for (int i = 0; i < 1024; i++) {
+                        mem.putLong(i);
+                    }
+                }
+
+                final MmapCache cache = new MmapCache();
+                try (
+                        MemoryCMRSharedImpl mem1 = new MemoryCMRSharedImpl(cache);
+                        MemoryCMRSharedImpl mem2 = new MemoryCMRSharedImpl(cache);
+                        MemoryCMRSharedImpl mem3 = new MemoryCMRSharedImpl(cache)
+                ) {
+                    mem1.of(ff, path, 4096, MemoryTag.MMAP_DEFAULT, 1, 0);
+                    mem2.of(ff, path, 2048, MemoryTag.MMAP_DEFAULT, 1, 0);
+                    Assert.assertEquals(1, cache.getMappingCount());
+                    Assert.assertEquals(mem1.getPageAddress(0), mem2.getPageAddress(0));
+                    Assert.assertEquals(2048, mem2.size());
+
+                    // growing beyond shared mapping maps file again, mem1 keeps the old mapping
+                    mem2.extend(8192);
+                    Assert.assertNotEquals(mem1.getPageAddress(0), mem2.getPageAddress(0));
+                    Assert.assertEquals(511, mem1.getLong(511 * 8));
+                    Assert.assertEquals(1023, mem2.getLong(1023 * 8));
+
+                    mem1.extend(8192);
+                    Assert.assertEquals(mem2.getPageAddress(0), mem1.getPageAddress(0));
+                    Assert.assertEquals(1, cache.getMappingCount());
+
+                    // file of another truncate version is not shared
+                    mem3.of(ff, path, 8192, MemoryTag.MMAP_DEFAULT, 1, 1);
+                    Assert.assertNotEquals(mem1.getPageAddress(0), mem3.getPageAddress(0));
+
+                    mem1.close();
+                    mem2.close();
+                    Assert.assertEquals(1023, mem3.getLong(1023 * 8));
+                }
+                Assert.assertEquals(0, cache.getMappingCount());
+            }
+        });
+    }
+
+    @Test
+    public void testReadersShareColumnMappings() throws Exception {
+        assertMemoryLeak(() -> {
+            try (TableModel model = new TableModel(configuration, "x", PartitionBy.DAY)
+                    .col("i", ColumnType.INT)
+                    .col("s", ColumnType.STRING)
+                    .timestamp()) {
+                CairoTestUtils.create(model);
+            }
+
+            try (TableWriter writer = new TableWriter(configuration, "x", metrics)) {
+                appendRows(writer, 0, 100);
+
+                try (
+                        TableReader reader1 = new TableReader(configuration, "x");
+                        TableReader reader2 = new TableReader(configuration, "x")
+                ) {
+                    assertSameColumnAddresses(reader1, reader2);
+
+                    appendRows(writer, 100, 10);
+                    reader1.reload();
+                    reader2.reload();
+                    assertSameColumnAddresses(reader1, reader2);
+                }
+            }
+            Assert.assertEquals(0, MmapCache.INSTANCE.getMappingCount());
+        });
+    }
+
+    private static void appendRows(TableWriter writer, int lo, int count) {
+        for (int i = lo; i < lo + count; i++) {
+            TableWriter.Row row = writer.newRow(i * 3_600_000_000L);
+            row.putInt(0, i);
+            row.putStr(1, "s" + i);
+            row.append();
+        }
+        writer.commit();
+    }
+
+    private static void assertSameColumnAddresses(TableReader reader1, TableReader reader2) {
+        Assert.assertEquals(reader1.getPartitionCount(), reader2.getPartitionCount());
+        for (int partitionIndex = 0, n = reader1.getPartitionCount(); partitionIndex < n; partitionIndex++) {
+            reader1.openPartition(partitionIndex);
+            reader2.openPartition(partitionIndex);
+            final int base1 = reader1.getColumnBase(partitionIndex);
+            final int base2 = reader2.getColumnBase(partitionIndex);
+            for (int columnIndex = 0, m = reader1.getMetadata().getColumnCount(); columnIndex < m; columnIndex++) {
+                final int primary1 = TableReader.getPrimaryColumnIndex(base1, columnIndex);
+                final int primary2 = TableReader.getPrimaryColumnIndex(base2, columnIndex);
+                Assert.assertNotEquals(0, reader1.getColumn(primary1).getPageAddress(0));
+                Assert.assertEquals(reader1.getColumn(primary1).getPageAddress(0), reader2.getColumn(primary2).getPageAddress(0));
+                if (ColumnType.isVariableLength(reader1.getMetadata().getColumnType(columnIndex))) {
+                    Assert.assertEquals(reader1.getColumn(primary1 + 1).getPageAddress(0), reader2.getColumn(primary2 + 1).getPageAddress(0));
+                }
+            }
+        }
+    }
+}
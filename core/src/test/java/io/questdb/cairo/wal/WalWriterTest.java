@@ -0,0 +1,333 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.TableWriter;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.model.IntervalUtils;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.ObjList;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WalWriterTest extends AbstractGriffinTest {
+
+    @Test
+    public void testCommittedRowsAreApplied() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, sym symbol, str string, ts timestamp) timestamp(ts) partition by DAY");
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                for (int i = 0; i < 3; i++) {
+                    TableWriter.Row row = walWriter.newRow((i + 1) * 3_600_000_000L);
+                    row.putInt(0, i);
+                    row.putSym(1, i % 2 == 0 ? "a" : "b");
+                    if (i != 1) {
+                        row.putStr(2, "s" + i);
+                    }
+                    row.append();
+                }
+                walWriter.commit();
+
+                TableWriter.Row row = walWriter.newRow(0);
+                row.putInt(0, 42);
+                row.append();
+                walWriter.rollback();
+
+                // out-of-order row
+                row = walWriter.newRow(1_800_000_000L);
+                row.putInt(0, 3);
+                row.putSym(1, "c");
+                row.append();
+                walWriter.commit();
+            }
+
+            assertSql("x", "i\tsym\tstr\tts\n");
+            drainWalQueue();
+            assertSql("x", "i\tsym\tstr\tts\n" +
+                    "3\tc\t\t1970-01-01T00:30:00.000000Z\n" +
+                    "0\ta\ts0\t1970-01-01T01:00:00.000000Z\n" +
+                    "1\tb\t\t1970-01-01T02:00:00.000000Z\n" +
+                    "2\ta\ts2\t1970-01-01T03:00:00.000000Z\n");
+        });
+    }
+
+    @Test
+    public void testConcurrentWalWriters() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (
+                    WalWriter w1 = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x");
+                    WalWriter w2 = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")
+            ) {
+                Assert.assertNotEquals(w1.getWalId(), w2.getWalId());
+                for (int i = 0; i < 4; i++) {
+                    final WalWriter w = i % 2 == 0 ? w1 : w2;
+                    TableWriter.Row row = w.newRow(i * 1_000_000L);
+                    row.putInt(0, i);
+                    row.append();
+                    w.commit();
+                }
+                Assert.assertEquals(4, engine.getWalWriterPool().getSequencer("x").getLastTxn());
+            }
+            drainWalQueue();
+            assertSql("x", "i\tts\n" +
+                    "0\t1970-01-01T00:00:00.000000Z\n" +
+                    "1\t1970-01-01T00:00:01.000000Z\n" +
+                    "2\t1970-01-01T00:00:02.000000Z\n" +
+                    "3\t1970-01-01T00:00:03.000000Z\n");
+        });
+    }
+
+    @Test
+    public void testInsertFallsBackToWalWhenWriterIsBusy() throws Exception {
+        enableWal = true;
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (TableWriter writer = engine.getWriter(sqlExecutionContext.getCairoSecurityContext(), "x", "testing")) {
+                executeInsert("insert into x values (1, '2022-06-01T00:00:00.000000Z')");
+                executeInsert("insert into x values (2, '2022-06-01T00:00:01.000000Z')");
+
+                // rows cannot be applied while the writer is held
+                drainWalQueue();
+                Assert.assertEquals(0, writer.size());
+            }
+            drainWalQueue();
+            assertSql("x", "i\tts\n" +
+                    "1\t2022-06-01T00:00:00.000000Z\n" +
+                    "2\t2022-06-01T00:00:01.000000Z\n");
+
+            // writer remembers the last applied transaction
+            drainWalQueue();
+            assertSql("select count() from x", "count\n2\n");
+        });
+    }
+
+    @Test
+    public void testAppliedSegmentsArePurged() throws Exception {
+        walSegmentRolloverRowCount = 2;
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                for (int i = 0; i < 5; i++) {
+                    TableWriter.Row row = walWriter.newRow(i * 1_000_000L);
+                    row.putInt(0, i);
+                    row.append();
+                    walWriter.commit();
+                }
+            }
+            drainWalQueue();
+            // idle writer in the pool still appends to the last segment
+            Assert.assertFalse(walExists("x", 0, 0));
+            Assert.assertFalse(walExists("x", 0, 1));
+            Assert.assertTrue(walExists("x", 0, 2));
+
+            engine.clear();
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                Assert.assertEquals(1, walWriter.getWalId());
+                TableWriter.Row row = walWriter.newRow(5_000_000L);
+                row.putInt(0, 5);
+                row.append();
+                walWriter.commit();
+            }
+            drainWalQueue();
+            // writer of the first WAL has been closed
+            Assert.assertFalse(walExists("x", 0, -1));
+            Assert.assertTrue(walExists("x", 1, 0));
+            assertSql("select count() from x", "count\n6\n");
+        });
+    }
+
+    @Test
+    public void testBusyWriterOwnerAppliesWal() throws Exception {
+        enableWal = true;
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (TableWriter writer = engine.getWriter(sqlExecutionContext.getCairoSecurityContext(), "x", "testing")) {
+                TableWriter.Row row = writer.newRow(IntervalUtils.parseFloorPartialDate("2022-06-01T00:00:02.000000Z"));
+                row.putInt(0, 3);
+                row.append();
+
+                executeInsert("insert into x values (1, '2022-06-01T00:00:00.000000Z')");
+                executeInsert("insert into x values (2, '2022-06-01T00:00:01.000000Z')");
+
+                // the job cannot take the writer, it queues the command for the owner
+                drainWalQueue();
+                Assert.assertEquals(1, writer.size());
+                Assert.assertEquals(0, writer.getSeqTxn());
+
+                // owner commits its own row, then applies WAL
+                writer.tick();
+                Assert.assertEquals(3, writer.size());
+                Assert.assertEquals(2, writer.getSeqTxn());
+            }
+            assertSql("x", "i\tts\n" +
+                    "1\t2022-06-01T00:00:00.000000Z\n" +
+                    "2\t2022-06-01T00:00:01.000000Z\n" +
+                    "3\t2022-06-01T00:00:02.000000Z\n");
+        });
+    }
+
+    @Test
+    public void testDirectWriterAppliesPendingWalFirst() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                TableWriter.Row row = walWriter.newRow(1_000_000L);
+                row.putInt(0, 1);
+                row.append();
+                walWriter.commit();
+            }
+
+            try (TableWriter writer = engine.getWriter(sqlExecutionContext.getCairoSecurityContext(), "x", "testing")) {
+                // WAL transaction is in the table before the writer is used directly
+                Assert.assertEquals(1, writer.size());
+                Assert.assertEquals(1, writer.getSeqTxn());
+                TableWriter.Row row = writer.newRow(0);
+                row.putInt(0, 2);
+                row.append();
+                writer.commit();
+            }
+            assertSql("x", "i\tts\n" +
+                    "2\t1970-01-01T00:00:00.000000Z\n" +
+                    "1\t1970-01-01T00:00:01.000000Z\n");
+        });
+    }
+
+    @Test
+    public void testInsertFailsWhenWalIsDisabled() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (TableWriter ignored = engine.getWriter(sqlExecutionContext.getCairoSecurityContext(), "x", "testing")) {
+                executeInsert("insert into x values (1, '2022-06-01T00:00:00.000000Z')");
+                Assert.fail();
+            } catch (CairoException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "table busy");
+            }
+        });
+    }
+
+    @Test
+    public void testPendingTransactionsAreAppliedAfterRestart() throws Exception {
+        enableWal = true;
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                TableWriter.Row row = walWriter.newRow(0);
+                row.putInt(0, 1);
+                row.append();
+                walWriter.commit();
+            }
+            engine.clear();
+
+            // new engine finds the table without WAL writes to it
+            try (CairoEngine restartedEngine = new CairoEngine(configuration)) {
+                final ObjList<TableSequencer> sequencers = new ObjList<>();
+                restartedEngine.getWalWriterPool().getSequencers(sequencers);
+                Assert.assertEquals(1, sequencers.size());
+                Assert.assertEquals(1, sequencers.getQuick(0).getLastTxn());
+                try (ApplyWal2TableJob job = new ApplyWal2TableJob(restartedEngine)) {
+                    //noinspection StatementWithEmptyBody
+                    while (job.run(0)) {
+                    }
+                }
+            }
+            engine.clear();
+            assertSql("x", "i\tts\n" +
+                    "1\t1970-01-01T00:00:00.000000Z\n");
+        });
+    }
+
+    @Test
+    public void testSegmentRollover() throws Exception {
+        walSegmentRolloverRowCount = 2;
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, s string, ts timestamp) timestamp(ts) partition by DAY");
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                for (int i = 0; i < 5; i++) {
+                    TableWriter.Row row = walWriter.newRow(i * 1_000_000L);
+                    row.putInt(0, i);
+                    row.putStr(1, "v" + i);
+                    row.append();
+                    walWriter.commit();
+                }
+            }
+            TableSequencer sequencer = engine.getWalWriterPool().getSequencer("x");
+            Assert.assertEquals(5, sequencer.getLastTxn());
+            Assert.assertEquals(2, sequencer.getTxnField(5, TableSequencer.TXN_FIELD_SEGMENT_ID));
+            drainWalQueue();
+            assertSql("x", "i\ts\tts\n" +
+                    "0\tv0\t1970-01-01T00:00:00.000000Z\n" +
+                    "1\tv1\t1970-01-01T00:00:01.000000Z\n" +
+                    "2\tv2\t1970-01-01T00:00:02.000000Z\n" +
+                    "3\tv3\t1970-01-01T00:00:03.000000Z\n" +
+                    "4\tv4\t1970-01-01T00:00:04.000000Z\n");
+        });
+    }
+
+    @Test
+    public void testSequencerIsReopened() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x (i int, ts timestamp) timestamp(ts) partition by DAY");
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                TableWriter.Row row = walWriter.newRow(0);
+                row.putInt(0, 1);
+                row.append();
+                walWriter.commit();
+            }
+            engine.clear();
+
+            try (WalWriter walWriter = engine.getWalWriter(sqlExecutionContext.getCairoSecurityContext(), "x")) {
+                Assert.assertEquals(1, walWriter.getWalId());
+                Assert.assertEquals(1, engine.getWalWriterPool().getSequencer("x").getLastTxn());
+            }
+            drainWalQueue();
+            assertSql("x", "i\tts\n" +
+                    "1\t1970-01-01T00:00:00.000000Z\n");
+        });
+    }
+
+    private static boolean walExists(String tableName, int walId, int segmentId) {
+        try (Path path = new Path()) {
+            path.of(configuration.getRoot()).concat(tableName).concat(TableUtils.WAL_NAME_BASE).put(walId);
+            if (segmentId > -1) {
+                path.slash().put(segmentId);
+            }
+            return FilesFacadeImpl.INSTANCE.exists(path.$());
+        }
+    }
+
+    private static void drainWalQueue() {
+        try (ApplyWal2TableJob job = new ApplyWal2TableJob(engine)) {
+            //noinspection StatementWithEmptyBody
+            while (job.run(0)) {
+            }
+        }
+    }
+}
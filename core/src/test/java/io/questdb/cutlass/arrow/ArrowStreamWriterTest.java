@@ -0,0 +1,304 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.arrow;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.sql.DataFrameCursorFactory;
+import io.questdb.cairo.sql.PageFrameCursor;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cutlass.http.HttpChunkedResponseSocket;
+import io.questdb.cutlass.http.HttpResponseHeader;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.network.PeerIsSlowToReadException;
+import io.questdb.std.IntList;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.AbstractCharSink;
+import io.questdb.std.str.CharSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class ArrowStreamWriterTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table x as (" +
+            "select" +
+            " rnd_boolean() b," +
+            " rnd_byte() bt," +
+            " rnd_short() sh," +
+            " rnd_int(0, 5, 2) i," +
+            " rnd_long(0, 5, 2) l," +
+            " rnd_float(2) f," +
+            " rnd_double(2) d," +
+            " rnd_date(0, 100000, 2) dt," +
+            " rnd_char() c," +
+            " rnd_str('a', 'bc', 'déf', null) s," +
+            " rnd_symbol('x', 'y', null) sym," +
+            " rnd_bin(1, 8, 2) bin," +
+            " rnd_long256() l256," +
+            " rnd_geohash(15) g," +
+            " timestamp_sequence(0, 3600000000) ts" +
+            " from long_sequence(30)" +
+            ") timestamp(ts) partition by DAY";
+
+    @Test
+    public void testColumnSubset() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            final IntList columnIndexes = new IntList();
+            columnIndexes.add(10);
+            columnIndexes.add(0);
+            Assert.assertArrayEquals(
+                    streamRecords("select sym, b from x", null, 0, Long.MAX_VALUE, 7, Integer.MAX_VALUE),
+                    streamRecords("x", columnIndexes, 0, Long.MAX_VALUE, 7, Integer.MAX_VALUE)
+            );
+        });
+    }
+
+    @Test
+    public void testColumnTop() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table y as (select x, timestamp_sequence(0, 3600000000) ts from long_sequence(24)) timestamp(ts) partition by DAY");
+            compile("alter table y add column i int");
+            compile("alter table y add column s string");
+            compile("alter table y add column g geohash(2c)");
+            compile("insert into y select x + 24, timestamp_sequence(86400000000, 3600000000), rnd_int(), rnd_str('a', null), rnd_geohash(10) from long_sequence(24)");
+            // frames are cut at column top, batch of records covers the same rows
+            assertFramesSameAsRecords("y", 24);
+        });
+    }
+
+    @Test
+    public void testEmptyResult() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            final byte[] stream = streamRecords("x where i = 100", null, 0, Long.MAX_VALUE, 16, Integer.MAX_VALUE);
+            final ByteBuffer buf = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+            // schema message
+            Assert.assertEquals(-1, buf.getInt(0));
+            final int metadataLength = buf.getInt(4);
+            Assert.assertEquals(0, metadataLength % 8);
+            // followed by end of stream
+            Assert.assertEquals(8 + metadataLength + 8, stream.length);
+            Assert.assertEquals(-1, buf.getInt(8 + metadataLength));
+            Assert.assertEquals(0, buf.getInt(12 + metadataLength));
+        });
+    }
+
+    @Test
+    public void testFramesSameAsRecords() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            assertFramesSameAsRecords("x", 8);
+        });
+    }
+
+    @Test
+    public void testMessageAlignment() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            final ByteBuffer buf = ByteBuffer.wrap(streamFrames("x", 7, Integer.MAX_VALUE)).order(ByteOrder.LITTLE_ENDIAN);
+            int messageCount = 0;
+            int position = 0;
+            while (true) {
+                Assert.assertEquals(-1, buf.getInt(position));
+                final int metadataLength = buf.getInt(position + 4);
+                Assert.assertEquals(0, metadataLength % 8);
+                if (metadataLength == 0) {
+                    break;
+                }
+                position += 8 + metadataLength;
+                // body of the message starts at 8-byte boundary and is padded to it
+                if (messageCount > 0) {
+                    position += bodyLength(buf, position - metadataLength);
+                }
+                Assert.assertEquals(0, position % 8);
+                messageCount++;
+            }
+            Assert.assertEquals(buf.capacity(), position + 8);
+            // schema and 5 record batches: 24 rows of the first day in 4 batches and remaining 6 rows
+            Assert.assertEquals(6, messageCount);
+        });
+    }
+
+    @Test
+    public void testSkipAndLimit() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            Assert.assertArrayEquals(
+                    streamRecords("x limit 3, 12", null, 0, Long.MAX_VALUE, 4, Integer.MAX_VALUE),
+                    streamRecords("x", null, 3, 9, 4, Integer.MAX_VALUE)
+            );
+        });
+    }
+
+    @Test
+    public void testSlowPeer() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            final byte[] expected = streamFrames("x", 8, Integer.MAX_VALUE);
+            Assert.assertArrayEquals(expected, streamFrames("x", 8, 13));
+            Assert.assertArrayEquals(expected, streamRecords("x", null, 0, Long.MAX_VALUE, 8, 5));
+        });
+    }
+
+    @Test
+    public void testUnsupportedType() throws Exception {
+        assertMemoryLeak(() -> {
+            try {
+                streamRecords("select pg_catalog.pg_class() x from long_sequence(1)", null, 0, Long.MAX_VALUE, 8, Integer.MAX_VALUE);
+                Assert.fail();
+            } catch (CairoException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "unsupported column type [column=x1, type=RECORD]");
+            }
+        });
+    }
+
+    private static void assertFramesSameAsRecords(String query, int batchRowCount) throws Exception {
+        try (RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory()) {
+            Assert.assertTrue(ArrowStreamWriter.canStreamPageFrames(factory));
+        }
+        Assert.assertArrayEquals(
+                streamRecords(query, null, 0, Long.MAX_VALUE, batchRowCount, Integer.MAX_VALUE),
+                streamFrames(query, batchRowCount, Integer.MAX_VALUE)
+        );
+    }
+
+    private static int bodyLength(ByteBuffer buf, int metadata) {
+        // Message table: root offset, vtable and bodyLength field, which is the 4th field
+        final int message = metadata + buf.getInt(metadata);
+        final int vtable = message - buf.getInt(message);
+        return (int) buf.getLong(message + buf.getShort(vtable + 4 + 2 * 3));
+    }
+
+    private static void resume(ArrowStreamWriter writer, TestSocket socket) throws Exception {
+        while (!socket.done) {
+            try {
+                writer.resume(socket);
+            } catch (PeerIsSlowToReadException ignore) {
+            }
+        }
+    }
+
+    private static byte[] streamFrames(String query, int batchRowCount, int socketBufferSize) throws Exception {
+        final TestSocket socket = new TestSocket(socketBufferSize);
+        try (
+                RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory();
+                PageFrameCursor cursor = factory.getPageFrameCursor(sqlExecutionContext, DataFrameCursorFactory.ORDER_ASC);
+                ArrowStreamWriter writer = new ArrowStreamWriter(batchRowCount)
+        ) {
+            writer.of(factory.getMetadata(), null, cursor);
+            resume(writer, socket);
+        }
+        return socket.bytes.toByteArray();
+    }
+
+    private static byte[] streamRecords(String query, IntList columnIndexes, long skip, long limit, int batchRowCount, int socketBufferSize) throws Exception {
+        final TestSocket socket = new TestSocket(socketBufferSize);
+        try (
+                RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory();
+                RecordCursor cursor = factory.getCursor(sqlExecutionContext);
+                ArrowStreamWriter writer = new ArrowStreamWriter(batchRowCount)
+        ) {
+            writer.of(factory.getMetadata(), columnIndexes, cursor, skip, limit);
+            resume(writer, socket);
+        }
+        return socket.bytes.toByteArray();
+    }
+
+    private static class TestSocket extends AbstractCharSink implements HttpChunkedResponseSocket {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final int bufferSize;
+        private int available;
+        private boolean done;
+        private boolean slow;
+
+        private TestSocket(int bufferSize) {
+            this.bufferSize = bufferSize;
+            this.available = bufferSize;
+        }
+
+        @Override
+        public void bookmark() {
+        }
+
+        @Override
+        public void done() {
+            done = true;
+        }
+
+        @Override
+        public HttpResponseHeader headers() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CharSink put(char c) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean resetToBookmark() {
+            return false;
+        }
+
+        @Override
+        public void sendChunk(boolean done) throws PeerIsSlowToReadException {
+            available = bufferSize;
+            if (done) {
+                this.done = true;
+            } else if (slow = !slow) {
+                // buffered bytes are accepted, the writer is resumed later
+                throw PeerIsSlowToReadException.INSTANCE;
+            }
+        }
+
+        @Override
+        public void sendHeader() {
+        }
+
+        @Override
+        public void shutdownWrite() {
+        }
+
+        @Override
+        public void status(int status, CharSequence contentType) {
+        }
+
+        @Override
+        public long writeBytes(long lo, long hi) {
+            final long len = Math.min(hi - lo, available);
+            for (long p = lo, limit = lo + len; p < limit; p++) {
+                bytes.write(Unsafe.getUnsafe().getByte(p));
+            }
+            available -= len;
+            return lo + len;
+        }
+    }
+}
@@ -46,6 +46,8 @@ public class HttpServerConfigurationBuilder {
     private boolean serverKeepAlive = true;
     private String httpProtocolVersion = "HTTP/1.1 ";
     private long configuredMaxQueryResponseRowLimit = Long.MAX_VALUE;
+    private int arrowBatchRowCount = 65536;
+    private long jsonQueryParallelBufferSize = 16 * 1024 * 1024;
     private int rerunProcessingQueueSize = 4096;
     private int receiveBufferSize = 1024 * 1024;
     private long multipartIdleSpinCount = -1;
@@ -90,6 +92,11 @@ public class HttpServerConfigurationBuilder {
             private final JsonQueryProcessorConfiguration jsonQueryProcessorConfiguration = new JsonQueryProcessorConfiguration() {
                 private final DefaultSqlExecutionCircuitBreakerConfiguration circuitBreakerConfiguration = new DefaultSqlExecutionCircuitBreakerConfiguration();
 
+                @Override
+                public int getArrowBatchRowCount() {
+                    return arrowBatchRowCount;
+                }
+
                 @Override
                 public MillisecondClock getClock() {
                     return () -> 0;
@@ -124,6 +131,11 @@ public class HttpServerConfigurationBuilder {
                 public long getMaxQueryResponseRowLimit() {
                     return configuredMaxQueryResponseRowLimit;
                 }
+
+                @Override
+                public long getParallelBufferSize() {
+                    return jsonQueryParallelBufferSize;
+                }
             };
 
             @Override
@@ -234,6 +246,16 @@ public class HttpServerConfigurationBuilder {
         return this;
     }
 
+    public HttpServerConfigurationBuilder withArrowBatchRowCount(int arrowBatchRowCount) {
+        this.arrowBatchRowCount = arrowBatchRowCount;
+        return this;
+    }
+
+    public HttpServerConfigurationBuilder withJsonQueryParallelBufferSize(long jsonQueryParallelBufferSize) {
+        this.jsonQueryParallelBufferSize = jsonQueryParallelBufferSize;
+        return this;
+    }
+
     public HttpServerConfigurationBuilder withBaseDir(String baseDir) {
         this.baseDir = baseDir;
         return this;
@@ -3478,6 +3478,17 @@ public class IODispatcherTest {
         );
     }
 
+    @Test
+    public void testJsonQueryParallelFormatting() throws Exception {
+        testJsonQueryParallelFormatting(16 * 1024 * 1024);
+    }
+
+    @Test
+    public void testJsonQueryParallelFormattingBufferExhausted() throws Exception {
+        // frames past the buffer budget are formatted by the query owner
+        testJsonQueryParallelFormatting(1);
+    }
+
     @Test
     public void testJsonQueryPseudoRandomStability() throws Exception {
         testJsonQuery(
@@ -6957,6 +6968,51 @@ public class IODispatcherTest {
                 });
     }
 
+    private void testJsonQueryParallelFormatting(long parallelBufferSize) throws Exception {
+        new HttpQueryTestBuilder()
+                .withWorkerCount(2)
+                .withTempFolder(temp)
+                .withHttpServerConfigBuilder(new HttpServerConfigurationBuilder()
+                        .withSendBufferSize(16 * 1024)
+                        .withJsonQueryParallelBufferSize(parallelBufferSize)
+                )
+                .run(engine -> {
+                    SqlExecutionContextImpl executionContext = new SqlExecutionContextImpl(engine, 1);
+                    try (SqlCompiler compiler = new SqlCompiler(engine)) {
+                        // every partition is a page frame, limit starts and ends in the middle of frames
+                        compiler.compile("create table x as (select x, case when x % 4 = 1 then null else x / 16.0 end d," +
+                                " case when x % 3 = 0 then 'a\"b' when x % 3 = 1 then 'c' end s," +
+                                " timestamp_sequence(0, 43200000000) ts from long_sequence(10)) timestamp(ts) partition by DAY", executionContext);
+
+                        new SendAndReceiveRequestBuilder().execute(
+                                "GET /query?query=x&limit=3,8&count=true HTTP/1.1\r\n" +
+                                        "Host: localhost:9000\r\n" +
+                                        "Connection: keep-alive\r\n" +
+                                        "Accept: */*\r\n" +
+                                        "\r\n",
+                                "HTTP/1.1 200 OK\r\n" +
+                                        "Server: questDB/1.0\r\n" +
+                                        "Date: Thu, 1 Jan 1970 00:00:00 GMT\r\n" +
+                                        "Transfer-Encoding: chunked\r\n" +
+                                        "Content-Type: application/json; charset=utf-8\r\n" +
+                                        "Keep-Alive: timeout=5, max=10000\r\n" +
+                                        "\r\n" +
+                                        "01b4\r\n" +
+                                        "{\"query\":\"x\",\"columns\":[{\"name\":\"x\",\"type\":\"LONG\"},{\"name\":\"d\",\"type\":\"DOUBLE\"},{\"name\":\"s\",\"type\":\"STRING\"},{\"name\":\"ts\",\"type\":\"TIMESTAMP\"}],\"dataset\":[" +
+                                        "[3,0.1875,\"a\\\"b\",\"1970-01-02T00:00:00.000000Z\"]," +
+                                        "[4,0.25,\"c\",\"1970-01-02T12:00:00.000000Z\"]," +
+                                        "[5,null,null,\"1970-01-03T00:00:00.000000Z\"]," +
+                                        "[6,0.375,\"a\\\"b\",\"1970-01-03T12:00:00.000000Z\"]," +
+                                        "[7,0.4375,\"c\",\"1970-01-04T00:00:00.000000Z\"]," +
+                                        "[8,0.5,null,\"1970-01-04T12:00:00.000000Z\"]" +
+                                        "],\"count\":10}\r\n" +
+                                        "00\r\n" +
+                                        "\r\n"
+                        );
+                    }
+                });
+    }
+
     private void testJsonQuery(int recordCount, String request, String expectedResponse, int requestCount, boolean telemetry) throws Exception {
         testJsonQuery0(2, engine -> {
             // create table with all column types
@@ -73,6 +73,7 @@ class AbstractLineTcpReceiverTest extends AbstractCairoTest {
     protected int msgBufferSize = 256 * 1024;
     protected long minIdleMsBeforeWriterRelease = 30000;
     protected long maintenanceInterval = 25;
+    protected long writerRebalanceInterval = 5000;
     protected double commitIntervalFraction = 0.5;
     protected long commitIntervalDefault = 2000;
     protected boolean disconnectOnError = false;
@@ -138,6 +139,11 @@ class AbstractLineTcpReceiverTest extends AbstractCairoTest {
             return minIdleMsBeforeWriterRelease;
         }
 
+        @Override
+        public long getWriterRebalanceInterval() {
+            return writerRebalanceInterval;
+        }
+
         @Override
         public boolean isSymbolAsFieldSupported() {
             return symbolAsFieldSupported;
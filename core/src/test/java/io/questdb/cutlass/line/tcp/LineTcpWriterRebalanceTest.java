@@ -0,0 +1,105 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.line.tcp;
+
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.std.Os;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineTcpWriterRebalanceTest extends AbstractLineTcpReceiverTest {
+
+    @Test
+    public void testBusyTablesSharingWriterThreadAreRebalanced() throws Exception {
+        writerRebalanceInterval = 50;
+        try {
+            runInContext((receiver) -> {
+                final LineTcpMetrics lineTcpMetrics = metrics.lineTcp();
+                final long reassignmentsBefore = lineTcpMetrics.tableReassignments();
+
+                // least loaded thread is chosen when the table is created, so 'a' goes to
+                // thread 0, 'b' goes to thread 1 and 'c' joins 'a' on thread 0
+                long rowsA = 1;
+                long rowsC = 1;
+                try (Socket socket = getSocket()) {
+                    sendToSocket(socket, "a x=1i\nb x=1i\nc x=1i\n");
+
+                    final StringBuilder batch = new StringBuilder();
+                    for (int i = 0; i < 10; i++) {
+                        batch.append("a x=").append(i).append("i\n");
+                        batch.append("c x=").append(i).append("i\n");
+                    }
+                    final String batchStr = batch.toString();
+
+                    final long deadline = System.currentTimeMillis() + 30_000;
+                    while (lineTcpMetrics.tableReassignments() == reassignmentsBefore && System.currentTimeMillis() < deadline) {
+                        sendToSocket(socket, batchStr);
+                        rowsA += 10;
+                        rowsC += 10;
+                        Os.sleep(1);
+                    }
+                    Assert.assertTrue(lineTcpMetrics.tableReassignments() > reassignmentsBefore);
+
+                    // keep writing after the hand-off
+                    for (int i = 0; i < 10; i++) {
+                        sendToSocket(socket, batchStr);
+                        rowsA += 10;
+                        rowsC += 10;
+                    }
+                }
+
+                assertRowCount("a", rowsA);
+                assertRowCount("b", 1);
+                assertRowCount("c", rowsC);
+                Assert.assertTrue(lineTcpMetrics.writerEvents(0) > 0);
+                Assert.assertTrue(lineTcpMetrics.writerEvents(1) > 0);
+            });
+        } finally {
+            writerRebalanceInterval = 5000;
+        }
+    }
+
+    @Override
+    protected int getWorkerCount() {
+        return 2;
+    }
+
+    private void assertRowCount(String tableName, long expectedRowCount) {
+        final long deadline = System.currentTimeMillis() + 30_000;
+        long rowCount;
+        do {
+            try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName)) {
+                rowCount = reader.size();
+            }
+            if (rowCount == expectedRowCount) {
+                return;
+            }
+            Os.sleep(10);
+        } while (System.currentTimeMillis() < deadline);
+        Assert.assertEquals(expectedRowCount, rowCount);
+    }
+}
@@ -32,8 +32,11 @@ import io.questdb.cairo.sql.Record;
 import io.questdb.griffin.engine.functions.bind.BindVariableServiceImpl;
 import io.questdb.mp.SOCountDownLatch;
 import io.questdb.griffin.engine.ops.UpdateOperation;
+import io.questdb.mp.TestWorkerPool;
+import io.questdb.mp.WorkerPool;
 import io.questdb.std.*;
 import io.questdb.std.datetime.microtime.TimestampFormatUtils;
+import io.questdb.std.str.Path;
 import io.questdb.std.str.StringSink;
 import io.questdb.test.tools.TestUtils;
 import org.jetbrains.annotations.NotNull;
@@ -1059,6 +1062,24 @@ public class AbstractGriffinTest extends AbstractCairoTest {
         }
     }
 
+    /**
+     * Prints cursors of the same factory twice and compares both outputs to expected.
+     * Parallel factories reuse per-worker state between cursors, the second run verifies it is reset.
+     */
+    protected static void assertFactoryCursorTwice(
+            CharSequence expected,
+            RecordCursorFactory factory,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        for (int i = 0; i < 2; i++) {
+            sink.clear();
+            try (RecordCursor cursor = factory.getCursor(executionContext)) {
+                TestUtils.printCursor(cursor, factory.getMetadata(), true, sink, TestUtils.printer);
+            }
+            TestUtils.assertEquals(expected, sink);
+        }
+    }
+
     protected static void assertCompile(CharSequence query) throws Exception {
         assertMemoryLeak(() -> compile(query));
     }
@@ -1085,6 +1106,34 @@ public class AbstractGriffinTest extends AbstractCairoTest {
         return cc;
     }
 
+    /**
+     * Runs code against a started worker pool. Page frames are capped at pageFrameMaxRows
+     * so that test tables are split into many reduce tasks.
+     */
+    protected static void withWorkerPool(int workerCount, int pageFrameMaxRows, WorkerPoolRunnable runnable) throws Exception {
+        AbstractCairoTest.pageFrameMaxRows = pageFrameMaxRows;
+        assertMemoryLeak(() -> {
+            final WorkerPool pool = new TestWorkerPool(workerCount);
+            pool.assignCleaner(Path.CLEANER);
+            O3Utils.setupWorkerPool(pool, engine, null, null);
+            pool.start(null);
+
+            try (
+                    SqlExecutionContext executionContext = new SqlExecutionContextImpl(engine, workerCount).with(
+                            AllowAllCairoSecurityContext.INSTANCE,
+                            bindVariableService,
+                            null,
+                            -1,
+                            null
+                    )
+            ) {
+                runnable.run(executionContext);
+            } finally {
+                pool.halt();
+            }
+        });
+    }
+
     void assertFactoryCursor(
             String expected,
             String expectedTimestamp,
@@ -1394,4 +1443,9 @@ public class AbstractGriffinTest extends AbstractCairoTest {
             int partitionCount) throws NumericException, SqlException {
         TestUtils.createPopulateTable(compiler, sqlExecutionContext, tableModel, totalRows, startDate, partitionCount);
     }
+
+    @FunctionalInterface
+    protected interface WorkerPoolRunnable {
+        void run(SqlExecutionContext executionContext) throws Exception;
+    }
 }
@@ -192,6 +192,61 @@ public class AsOfJoinTest extends AbstractGriffinTest {
         );
     }
 
+    @Test
+    public void testAsOfJoinTolerance() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table m as (select x, x % 2 k, timestamp_sequence(1000000, 1000000) ts from long_sequence(8)) timestamp(ts)");
+            compile("create table q as (select x qx, x % 2 k, timestamp_sequence(0, 2500000) ts from long_sequence(4)) timestamp(ts)");
+
+            final String expected = "x\tqx\n" +
+                    "1\t1\n" +
+                    "2\tNaN\n" +
+                    "3\tNaN\n" +
+                    "4\t2\n" +
+                    "5\t3\n" +
+                    "6\tNaN\n" +
+                    "7\t3\n" +
+                    "8\t4\n";
+            final String query = "select m.x, q.qx from m asof join q on k tolerance 2s";
+
+            assertSql(query, expected);
+
+            enableParallelAsOfJoin = false;
+            assertSql(query, expected);
+
+            compiler.setFullFatJoins(true);
+            try {
+                assertSql(query, expected);
+            } finally {
+                compiler.setFullFatJoins(false);
+            }
+        });
+    }
+
+    @Test
+    public void testAsOfJoinToleranceNoKey() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table m as (select x, timestamp_sequence(1000000, 1000000) ts from long_sequence(8)) timestamp(ts)");
+            compile("create table q as (select x qx, timestamp_sequence(0, 2500000) ts from long_sequence(4)) timestamp(ts)");
+
+            final String expected = "x\tqx\n" +
+                    "1\t1\n" +
+                    "2\tNaN\n" +
+                    "3\t2\n" +
+                    "4\tNaN\n" +
+                    "5\t3\n" +
+                    "6\t3\n" +
+                    "7\tNaN\n" +
+                    "8\t4\n";
+            final String query = "select m.x, q.qx from m asof join q tolerance 1s";
+
+            assertSql(query, expected);
+
+            enableParallelAsOfJoin = false;
+            assertSql(query, expected);
+        });
+    }
+
     @Test
     public void testLtJoin() throws Exception {
         final String expected = "tag\thi\tlo\tts\tts1\n" +
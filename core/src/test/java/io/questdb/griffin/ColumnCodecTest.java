@@ -0,0 +1,339 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.ColumnCodecs;
+import io.questdb.cairo.ColumnPurgeJob;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.griffin.model.IntervalUtils;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnCodecTest extends AbstractGriffinTest {
+
+    @Test
+    public void testAlterColumnSetCodec() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables("");
+            assertCompressed("x", "2022-01-01", "l", false);
+
+            compile("alter table x alter column l set codec delta", sqlExecutionContext);
+            compile("alter table x alter column v set codec xor", sqlExecutionContext);
+            assertCompressed("x", "2022-01-01", "l", true);
+            assertCompressed("x", "2022-01-02", "v", true);
+            assertCompressed("x", "2022-01-03", "l", false);
+            assertTablesEqual();
+
+            compile("alter table x alter column l set codec none", sqlExecutionContext);
+            assertCompressed("x", "2022-01-01", "l", false);
+            assertCompressed("x", "2022-01-01", "v", true);
+            assertTablesEqual();
+        });
+    }
+
+    @Test
+    public void testAlterColumnSetCodecDesignatedTimestamp() throws Exception {
+        assertFailure(
+                "alter table x alter column ts set codec delta",
+                "create table x (l long, ts timestamp) timestamp(ts) partition by DAY",
+                27,
+                "codec is not supported on designated timestamp"
+        );
+    }
+
+    @Test
+    public void testAlterColumnSetCodecUnsupportedType() throws Exception {
+        assertFailure(
+                "alter table x alter column s set codec xor",
+                "create table x (s string, ts timestamp) timestamp(ts) partition by DAY",
+                39,
+                "codec XOR is not supported for STRING column"
+        );
+    }
+
+    @Test
+    public void testCodecRoundTrip() {
+        final int count = 10_000;
+        final long srcAddr = Unsafe.malloc(count * Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+        final long dstMax = ColumnCodecs.HEADER_SIZE + ColumnCodecs.maxEncodedSize(ColumnCodecs.DELTA, count);
+        final long encodedAddr = Unsafe.malloc(dstMax, MemoryTag.NATIVE_DEFAULT);
+        final long decodedAddr = Unsafe.malloc(count * Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+        try {
+            final Rnd rnd = TestUtils.generateRandom();
+            long ts = rnd.nextPositiveLong();
+            for (int i = 0; i < count; i++) {
+                final long value;
+                switch (i % 5) {
+                    case 0:
+                        value = Long.MIN_VALUE;
+                        break;
+                    case 1:
+                        value = rnd.nextLong();
+                        break;
+                    case 2:
+                        value = Double.doubleToLongBits(rnd.nextDouble());
+                        break;
+                    default:
+                        value = ts += rnd.nextInt(1000);
+                        break;
+                }
+                Unsafe.getUnsafe().putLong(srcAddr + (long) i * Long.BYTES, value);
+            }
+
+            for (int codec = ColumnCodecs.DELTA; codec <= ColumnCodecs.XOR; codec++) {
+                final long size = ColumnCodecs.HEADER_SIZE + ColumnCodecs.encode(codec, srcAddr, count, encodedAddr);
+                Assert.assertTrue(size <= dstMax);
+                Assert.assertEquals(count * Long.BYTES, ColumnCodecs.getDecodedSize(encodedAddr));
+                ColumnCodecs.decode(encodedAddr, size, decodedAddr);
+                for (int i = 0; i < count; i++) {
+                    Assert.assertEquals(
+                            Unsafe.getUnsafe().getLong(srcAddr + (long) i * Long.BYTES),
+                            Unsafe.getUnsafe().getLong(decodedAddr + (long) i * Long.BYTES)
+                    );
+                }
+            }
+        } finally {
+            Unsafe.free(srcAddr, count * Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+            Unsafe.free(encodedAddr, dstMax, MemoryTag.NATIVE_DEFAULT);
+            Unsafe.free(decodedAddr, count * Long.BYTES, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    @Test
+    public void testCreateTableCodecDesignatedTimestamp() throws Exception {
+        assertFailure(
+                "create table x (l long, ts timestamp codec delta) timestamp(ts) partition by DAY",
+                null,
+                60,
+                "codec is not supported on designated timestamp"
+        );
+    }
+
+    @Test
+    public void testCreateTableCodecUnknown() throws Exception {
+        assertFailure(
+                "create table x (l long codec lz4, ts timestamp) timestamp(ts) partition by DAY",
+                null,
+                29,
+                "'none', 'delta' or 'xor' expected"
+        );
+    }
+
+    @Test
+    public void testCreateTableCodecUnsupportedType() throws Exception {
+        assertFailure(
+                "create table x (l int codec delta, ts timestamp) timestamp(ts) partition by DAY",
+                null,
+                28,
+                "codec DELTA is not supported for INT column"
+        );
+    }
+
+    @Test
+    public void testDropAndRenameCompressedColumn() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables("codec delta");
+            assertCompressed("x", "2022-01-01", "l", true);
+
+            compile("alter table x rename column l to l2", sqlExecutionContext);
+            assertCompressed("x", "2022-01-01", "l2", true);
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "select v, l l2, s, ts from y", "select v, l2, s, ts from x", LOG);
+
+            final long columnNameTxn = getColumnNameTxn("x", "2022-01-01", "l2");
+            compile("alter table x drop column l2", sqlExecutionContext);
+            try (Path path = new Path()) {
+                path.of(root).concat("x").concat("2022-01-01");
+                Assert.assertFalse(FilesFacadeImpl.INSTANCE.exists(TableUtils.zFile(path, "l2", columnNameTxn)));
+            }
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "select v, s, ts from y", "x", LOG);
+        });
+    }
+
+    @Test
+    public void testO3IntoCompressedPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables("codec delta");
+            assertCompressed("x", "2022-01-01", "l", true);
+
+            // merge into the middle of compressed partition
+            final String o3 = "select x / 4.0, x * 7, 'o3', timestamp_sequence('2022-01-01T00:30', 3600000000) from long_sequence(10)";
+            compile("insert into x " + o3, sqlExecutionContext);
+            compile("insert into y " + o3, sqlExecutionContext);
+            assertCompressed("x", "2022-01-01", "l", true);
+            assertTablesEqual();
+
+            // append to the end of compressed partition
+            final String append = "select x / 4.0, x * 9, 'o3', timestamp_sequence('2022-01-02T23:59', 1000000) from long_sequence(5)";
+            compile("insert into x " + append, sqlExecutionContext);
+            compile("insert into y " + append, sqlExecutionContext);
+            assertCompressed("x", "2022-01-02", "l", true);
+            assertTablesEqual();
+        });
+    }
+
+    @Test
+    public void testPartitionCompressedOnceNoLongerLast() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables("codec delta");
+
+            assertCompressed("x", "2022-01-01", "l", true);
+            assertCompressed("x", "2022-01-02", "l", true);
+            assertCompressed("x", "2022-01-03", "l", false);
+            assertCompressed("x", "2022-01-01", "v", true);
+            assertCompressed("x", "2022-01-03", "v", false);
+            assertTablesEqual();
+
+            // vectorised aggregates run over page frames of decoded columns
+            TestUtils.assertSqlCursors(
+                    compiler,
+                    sqlExecutionContext,
+                    "select sum(v), sum(l), min(l), max(l), count() from y",
+                    "select sum(v), sum(l), min(l), max(l), count() from x",
+                    LOG
+            );
+            TestUtils.assertSqlCursors(
+                    compiler,
+                    sqlExecutionContext,
+                    "select ts, avg(v), sum(l) from y sample by 1d",
+                    "select ts, avg(v), sum(l) from x sample by 1d",
+                    LOG
+            );
+        });
+    }
+
+    @Test
+    public void testReaderOpenAcrossCompression() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x (v double codec xor, l long codec delta, s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+            compile("create table y (v double, l long, s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+            final String day1 = "select x / 4.0, x * 1000, 'a', timestamp_sequence('2022-01-01', 3600000000) from long_sequence(24)";
+            compile("insert into x " + day1, sqlExecutionContext);
+            compile("insert into y " + day1, sqlExecutionContext);
+
+            currentMicros = 0;
+            columnPurgeRetryDelay = 1;
+            try (ColumnPurgeJob purgeJob = new ColumnPurgeJob(engine, null)) {
+                final long columnNameTxn = getColumnNameTxn("x", "2022-01-01", "l");
+                try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                    Assert.assertEquals(24, reader.size());
+
+                    final String day2 = "select x / 4.0, x * 1000, 'b', timestamp_sequence('2022-01-02', 3600000000) from long_sequence(24)";
+                    compile("insert into x " + day2, sqlExecutionContext);
+                    compile("insert into y " + day2, sqlExecutionContext);
+                    assertCompressed("x", "2022-01-01", "l", true);
+                    Assert.assertNotEquals(columnNameTxn, getColumnNameTxn("x", "2022-01-01", "l"));
+
+                    // compressed file is the new column version, the one reader has mapped stays intact
+                    runPurgeJob(purgeJob);
+                    assertDataFile("x", "2022-01-01", "l", columnNameTxn, true);
+                    Assert.assertTrue(reader.reload());
+                    Assert.assertEquals(48, reader.size());
+                }
+                assertTablesEqual();
+
+                runPurgeJob(purgeJob);
+                assertDataFile("x", "2022-01-01", "l", columnNameTxn, false);
+            }
+        });
+    }
+
+    @Test
+    public void testUpdateCompressedPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables("codec delta");
+            assertCompressed("x", "2022-01-01", "l", true);
+
+            compile("update x set l = l + 1, v = v * 2 where ts < '2022-01-02T12:00'", sqlExecutionContext);
+            compile("update y set l = l + 1, v = v * 2 where ts < '2022-01-02T12:00'", sqlExecutionContext);
+            assertCompressed("x", "2022-01-01", "l", true);
+            assertCompressed("x", "2022-01-02", "v", true);
+            assertTablesEqual();
+        });
+    }
+
+    private static void runPurgeJob(ColumnPurgeJob purgeJob) {
+        currentMicros += 10;
+        purgeJob.run(0);
+        currentMicros += 10;
+        purgeJob.run(0);
+    }
+
+    private void assertCompressed(String tableName, String partition, String columnName, boolean compressed) throws NumericException {
+        try (
+                TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName);
+                Path path = new Path()
+        ) {
+            final long partitionTimestamp = IntervalUtils.parseFloorPartialDate(partition);
+            final long partitionNameTxn = reader.getTxFile().getPartitionNameTxnByPartitionTimestamp(partitionTimestamp);
+            final int writerIndex = reader.getMetadata().getWriterIndex(reader.getMetadata().getColumnIndex(columnName));
+            final long columnNameTxn = reader.getColumnVersionReader().getColumnNameTxn(partitionTimestamp, writerIndex);
+
+            path.of(root).concat(tableName).concat(partition);
+            TableUtils.txnPartitionConditionally(path, partitionNameTxn);
+            final int plen = path.length();
+            Assert.assertEquals(compressed, FilesFacadeImpl.INSTANCE.exists(TableUtils.zFile(path, columnName, columnNameTxn)));
+            Assert.assertEquals(!compressed, FilesFacadeImpl.INSTANCE.exists(TableUtils.dFile(path.trimTo(plen), columnName, columnNameTxn)));
+        }
+    }
+
+    private void assertDataFile(String tableName, String partition, String columnName, long columnNameTxn, boolean exists) throws NumericException {
+        try (
+                TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName);
+                Path path = new Path()
+        ) {
+            final long partitionTimestamp = IntervalUtils.parseFloorPartialDate(partition);
+            path.of(root).concat(tableName).concat(partition);
+            TableUtils.txnPartitionConditionally(path, reader.getTxFile().getPartitionNameTxnByPartitionTimestamp(partitionTimestamp));
+            Assert.assertEquals(exists, FilesFacadeImpl.INSTANCE.exists(TableUtils.dFile(path, columnName, columnNameTxn)));
+        }
+    }
+
+    private void assertTablesEqual() throws SqlException {
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x", LOG);
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y where l > 30000", "x where l > 30000", LOG);
+    }
+
+    private void createTables(String longCodec) throws SqlException {
+        final String doubleCodec = longCodec.isEmpty() ? "" : "codec xor";
+        compile("create table x (v double " + doubleCodec + ", l long " + longCodec + ", s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+        compile("create table y (v double, l long, s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+        final String data = "select x / 4.0, x * 1000, cast(x % 3 as string), timestamp_sequence('2022-01-01', 3600000000) from long_sequence(72)";
+        compile("insert into x " + data, sqlExecutionContext);
+        compile("insert into y " + data, sqlExecutionContext);
+    }
+
+    private long getColumnNameTxn(String tableName, String partition, String columnName) throws NumericException {
+        try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName)) {
+            final int writerIndex = reader.getMetadata().getWriterIndex(reader.getMetadata().getColumnIndex(columnName));
+            return reader.getColumnVersionReader().getColumnNameTxn(IntervalUtils.parseFloorPartialDate(partition), writerIndex);
+        }
+    }
+}
@@ -366,6 +366,38 @@ public class CompiledFilterRegressionTest extends AbstractGriffinTest {
         assertQueryNotNull(query, ddl);
     }
 
+    @Test
+    public void testSymbolInList() throws Exception {
+        final String query = "select price, sym from x where sym in ('HBC', 'DXR', 'XYZ', null)";
+        final String ddl = "create table x as " +
+                "(select rnd_symbol(10,1,3,5) sym, \n" +
+                " rnd_double() price, \n" +
+                " timestamp_sequence(172800000000, 360000000) ts \n" +
+                "from long_sequence(" + N_SIMD_WITH_SCALAR_TAIL + ")) timestamp (ts)";
+        assertQueryNullable(query, ddl);
+    }
+
+    @Test
+    public void testSymbolNotInList() throws Exception {
+        final String query = "select * from x where sym not in ('HBC', 'DXR') and price > 0.5";
+        final String ddl = "create table x as " +
+                "(select rnd_symbol('ABB','HBC','DXR') sym, \n" +
+                " rnd_double() price, \n" +
+                " timestamp_sequence(172800000000, 360000000) ts \n" +
+                "from long_sequence(" + N_SIMD_WITH_SCALAR_TAIL + ")) timestamp (ts)";
+        assertQueryNotNull(query, ddl);
+    }
+
+    @Test
+    public void testCharInList() throws Exception {
+        final String query = "select * from x where ch in ('A', 'C', 'E')";
+        final String ddl = "create table x as " +
+                "(select timestamp_sequence(400000000000, 500000000) as k," +
+                " rnd_char() ch" +
+                " from long_sequence(" + N_SIMD_WITH_SCALAR_TAIL + ")) timestamp(k)";
+        assertQueryNotNull(query, ddl);
+    }
+
     @Test
     public void testSymbolNull() throws Exception {
         final String query = "select * from x where sym <> null";
@@ -466,6 +466,44 @@ public class CompiledFilterTest extends AbstractGriffinTest {
         });
     }
 
+    @Test
+    public void testStringAndLong256FiltersFallBackToJavaFilter() throws Exception {
+        assertMemoryLeak(() -> {
+            // the native backend has no kernels for var-size and 256-bit columns,
+            // such filters have to be served by the Java filter
+            compiler.compile("create table x as (select" +
+                    " rnd_str('a','b',null) s," +
+                    " rnd_long256() l," +
+                    " timestamp_sequence(400000000000, 500000000) ts" +
+                    " from long_sequence(5)) timestamp(ts)", sqlExecutionContext);
+
+            assertJavaFilter(
+                    "select * from x where s = 'a'",
+                    "s\tl\tts\n" +
+                            "a\t0x72a215ba0462ad159f9b2131d49fcd1d6b8139815c50d3410010cde812ce60ee\t1970-01-05T15:06:40.000000Z\n" +
+                            "a\t0x4b0f595f143e5d722f1a8266e7921e3b716de3d25dcc2d919fa2397a5d8c84c4\t1970-01-05T15:31:40.000000Z\n"
+            );
+            assertJavaFilter(
+                    "select * from x where s is null",
+                    "s\tl\tts\n" +
+                            "\t0xe8beef38cd7bb3d8db2d34586f6275fab5b2159a23565217965d4c984f0ffa8a\t1970-01-05T15:15:00.000000Z\n"
+            );
+            assertJavaFilter(
+                    "select * from x where l = 0x4b0f595f143e5d722f1a8266e7921e3b716de3d25dcc2d919fa2397a5d8c84c4",
+                    "s\tl\tts\n" +
+                            "a\t0x4b0f595f143e5d722f1a8266e7921e3b716de3d25dcc2d919fa2397a5d8c84c4\t1970-01-05T15:31:40.000000Z\n"
+            );
+        });
+    }
+
+    private void assertJavaFilter(String query, String expected) throws SqlException {
+        sqlExecutionContext.setJitMode(SqlJitMode.JIT_MODE_ENABLED);
+        try (RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory()) {
+            Assert.assertFalse("JIT was enabled for query: " + query, factory.usesCompiledFilter());
+            assertCursor(expected, factory, true, true, false);
+        }
+    }
+
     private void indexBindVariableReplacedContext(boolean jit) throws SqlException {
 
         bindVariableService.clear();
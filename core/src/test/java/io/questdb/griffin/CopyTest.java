@@ -25,6 +25,7 @@
 package io.questdb.griffin;
 
 import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.test.tools.TestUtils;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -67,6 +68,59 @@ public class CopyTest extends AbstractGriffinTest {
         ));
     }
 
+    @Test
+    public void testCopyParallel() throws Exception {
+        // small buffer splits the file into several chunks
+        configOverrideSqlCopyBufferSize = 4096;
+        assertMemoryLeak(() -> {
+            compiler.compile("copy x from '/src/test/resources/csv/test-import-unsorted.csv' with header true timestamp 'ts' partition by day", sqlExecutionContext);
+            compiler.compile("copy y from '/src/test/resources/csv/test-import-unsorted.csv' with header true timestamp 'ts' partition by day parallel true", sqlExecutionContext);
+
+            assertSql(
+                    "select sym, count() from y order by sym",
+                    "sym\tcount\n" +
+                            "AAPL\t250\n" +
+                            "BRK,B\t262\n" +
+                            "GOOG \"A\"\t235\n" +
+                            "MSFT\t253\n"
+            );
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "x", "y", LOG);
+        });
+    }
+
+    @Test
+    public void testCopyParallelIntoExistingTable() throws Exception {
+        configOverrideSqlCopyBufferSize = 4096;
+        assertMemoryLeak(() -> {
+            compiler.compile("copy x from '/src/test/resources/csv/test-import-unsorted.csv' with header true timestamp 'ts' partition by day", sqlExecutionContext);
+            compiler.compile("create table y (ts timestamp, sym symbol, id int, price double) timestamp(ts) partition by month", sqlExecutionContext);
+            compiler.compile("copy y from '/src/test/resources/csv/test-import-unsorted.csv' with header true parallel true", sqlExecutionContext);
+
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "x", "select cast(sym as string) sym, id, price, ts from y", LOG);
+        });
+    }
+
+    @Test
+    public void testCopyParallelNotPartitioned() throws Exception {
+        assertMemoryLeak(() -> {
+            // falls back to serial load
+            compiler.compile("copy x from '/src/test/resources/csv/test-import-unsorted.csv' with header true", sqlExecutionContext);
+            compiler.compile("copy y from '/src/test/resources/csv/test-import-unsorted.csv' with header true parallel true", sqlExecutionContext);
+
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "x", "y", LOG);
+        });
+    }
+
+    @Test
+    public void testCopyPartitionByInvalid() throws Exception {
+        assertMemoryLeak(() -> assertFailure(
+                "copy x from 'a.csv' with partition by week",
+                null,
+                38,
+                "'NONE', 'HOUR', 'DAY', 'MONTH' or 'YEAR' expected"
+        ));
+    }
+
     @Test
     public void testSimpleCopy() throws Exception {
         assertMemoryLeak(() -> {
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.parquet.ParquetFormat;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.griffin.model.IntervalUtils;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.NumericException;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParquetPartitionTest extends AbstractGriffinTest {
+
+    @Test
+    public void testAddAndRenameColumnAfterConversion() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            compile("alter table x convert partition to parquet list '2022-01-01', '2022-01-02'", sqlExecutionContext);
+
+            compile("alter table x add column n int", sqlExecutionContext);
+            compile("alter table y add column n int", sqlExecutionContext);
+            // columns are matched to Parquet fields by writer index rather than by name
+            compile("alter table x rename column l to l2", sqlExecutionContext);
+            compile("alter table y rename column l to l2", sqlExecutionContext);
+            final String data = "select rnd_boolean(), rnd_int(), x * 3, rnd_double(), rnd_symbol('a','b','c',null), rnd_str(3,5,2), rnd_bin(1,5,2), rnd_long256(), rnd_geohash(30), timestamp_sequence('2022-01-03T12:00', 3600000000), cast(x as int) from long_sequence(5)";
+            // both tables get the same random values
+            sqlExecutionContext.getRandom().reset();
+            compile("insert into x " + data, sqlExecutionContext);
+            sqlExecutionContext.getRandom().reset();
+            compile("insert into y " + data, sqlExecutionContext);
+
+            assertParquet("x", "2022-01-01", true);
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x", LOG);
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y where n = null and l2 > 0", "x where n = null and l2 > 0", LOG);
+        });
+    }
+
+    @Test
+    public void testConvertLastPartition() throws Exception {
+        assertFailure(
+                "alter table x convert partition to parquet list '2022-01-01'",
+                "create table x as (select x l, timestamp_sequence('2022-01-01', 3600000000) ts from long_sequence(10)) timestamp(ts) partition by DAY",
+                35,
+                "cannot convert last partition"
+        );
+    }
+
+    @Test
+    public void testConvertNotPartitioned() throws Exception {
+        assertFailure(
+                "alter table x convert partition to parquet list '2022-01-01'",
+                "create table x (l long, ts timestamp) timestamp(ts)",
+                35,
+                "table is not partitioned"
+        );
+    }
+
+    @Test
+    public void testConvertToParquetAndBack() throws Exception {
+        assertMemoryLeak(() -> {
+            configOverrideParquetRowGroupSize = 7;
+            createTables();
+            assertParquet("x", "2022-01-01", false);
+
+            compile("alter table x convert partition to parquet list '2022-01-01', '2022-01-02'", sqlExecutionContext);
+            assertParquet("x", "2022-01-01", true);
+            assertParquet("x", "2022-01-02", true);
+            assertParquet("x", "2022-01-03", false);
+            assertTablesEqual();
+
+            compile("alter table x convert partition to native list '2022-01-02'", sqlExecutionContext);
+            assertParquet("x", "2022-01-01", true);
+            assertParquet("x", "2022-01-02", false);
+            assertTablesEqual();
+        });
+    }
+
+    @Test
+    public void testConvertWhere() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            compile("alter table x convert partition to parquet where ts < '2022-01-03'", sqlExecutionContext);
+            assertParquet("x", "2022-01-01", true);
+            assertParquet("x", "2022-01-02", true);
+            assertParquet("x", "2022-01-03", false);
+            assertTablesEqual();
+        });
+    }
+
+    @Test
+    public void testConvertWrongFormat() throws Exception {
+        assertFailure(
+                "alter table x convert partition to orc list '2022-01-01'",
+                "create table x (l long, ts timestamp) timestamp(ts) partition by DAY",
+                35,
+                "'parquet' or 'native' expected"
+        );
+    }
+
+    @Test
+    public void testO3IntoParquetPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            configOverrideParquetRowGroupSize = 10;
+            createTables();
+            compile("alter table x convert partition to parquet list '2022-01-01', '2022-01-02'", sqlExecutionContext);
+
+            // new symbol value is added by the same transaction that rewrites Parquet file
+            final String o3 = "select rnd_boolean(), rnd_int(), x * 7, x / 4.0, 'o3', 'o3', rnd_bin(1,5,2), rnd_long256(), rnd_geohash(30), timestamp_sequence('2022-01-01T00:30', 3600000000) from long_sequence(10)";
+            // both tables get the same random values
+            sqlExecutionContext.getRandom().reset();
+            compile("insert into x " + o3, sqlExecutionContext);
+            sqlExecutionContext.getRandom().reset();
+            compile("insert into y " + o3, sqlExecutionContext);
+            assertParquet("x", "2022-01-01", true);
+            assertTablesEqual();
+        });
+    }
+
+    @Test
+    public void testReaderOpenAcrossConversion() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                Assert.assertEquals(72, reader.size());
+                compile("alter table x convert partition to parquet list '2022-01-01'", sqlExecutionContext);
+                assertParquet("x", "2022-01-01", true);
+
+                // open reader keeps column files it mapped before conversion
+                TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x", LOG);
+                reader.reload();
+                Assert.assertEquals(72, reader.size());
+            }
+            assertTablesEqual();
+        });
+    }
+
+    @Test
+    public void testUpdateParquetPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            compile("alter table x convert partition to parquet list '2022-01-01', '2022-01-02'", sqlExecutionContext);
+
+            compile("update x set l = l + 1, s = 'upd' where ts < '2022-01-02T12:00'", sqlExecutionContext);
+            compile("update y set l = l + 1, s = 'upd' where ts < '2022-01-02T12:00'", sqlExecutionContext);
+            assertParquet("x", "2022-01-01", true);
+            assertParquet("x", "2022-01-02", true);
+            assertTablesEqual();
+        });
+    }
+
+    private void assertParquet(String tableName, String partition, boolean parquet) throws NumericException {
+        try (
+                TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName);
+                Path path = new Path()
+        ) {
+            final long partitionTimestamp = IntervalUtils.parseFloorPartialDate(partition);
+            final long partitionNameTxn = reader.getTxFile().getPartitionNameTxnByPartitionTimestamp(partitionTimestamp);
+            final int writerIndex = reader.getMetadata().getWriterIndex(reader.getMetadata().getColumnIndex("v"));
+            final long columnNameTxn = reader.getColumnVersionReader().getColumnNameTxn(partitionTimestamp, writerIndex);
+
+            path.of(root).concat(tableName).concat(partition);
+            TableUtils.txnPartitionConditionally(path, partitionNameTxn);
+            final int plen = path.length();
+            Assert.assertEquals(parquet, FilesFacadeImpl.INSTANCE.exists(path.concat(ParquetFormat.FILE_NAME).$()));
+            Assert.assertEquals(!parquet, FilesFacadeImpl.INSTANCE.exists(TableUtils.dFile(path.trimTo(plen), "v", columnNameTxn)));
+            // designated timestamp stays in native format
+            Assert.assertTrue(FilesFacadeImpl.INSTANCE.exists(TableUtils.dFile(path.trimTo(plen), "ts", -1)));
+        }
+    }
+
+    private void assertTablesEqual() throws SqlException {
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x", LOG);
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y where l > 0 and sym = 'a'", "x where l > 0 and sym = 'a'", LOG);
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y where ts in '2022-01-02'", "x where ts in '2022-01-02'", LOG);
+        TestUtils.assertSqlCursors(
+                compiler,
+                sqlExecutionContext,
+                "select sum(v), sum(l), min(i), max(i), count() from y",
+                "select sum(v), sum(l), min(i), max(i), count() from x",
+                LOG
+        );
+    }
+
+    private void createTables() throws SqlException {
+        compile(
+                "create table y as (" +
+                        "select rnd_boolean() b, rnd_int(0, 100, 2) i, rnd_long(-100, 100, 2) l, rnd_double(2) v, rnd_symbol('a','b',null) sym, " +
+                        "rnd_str(3,5,2) s, rnd_bin(1,5,2) bin, rnd_long256() l256, rnd_geohash(30) g, timestamp_sequence('2022-01-01', 3600000000) ts " +
+                        "from long_sequence(72)" +
+                        ") timestamp(ts) partition by DAY",
+                sqlExecutionContext
+        );
+        compile("create table x as (select * from y) timestamp(ts) partition by DAY", sqlExecutionContext);
+    }
+}
@@ -114,6 +114,24 @@ public class SampleBySqlParserTest  extends AbstractSqlParserTest {
         );
     }
 
+    @Test
+    public void testCalendarInSubQuery() throws SqlException {
+        assertQuery(
+                "select-choose b, sum from (select-group-by [b, sum(a) sum] b, sum(a) sum from (select [b, a] from x timestamp (timestamp)) sample by 3h align to calendar with offset '00:00') order by b",
+                "select * from (select b, sum(a) from x sample by 3h align to calendar) order by b",
+                model()
+        );
+    }
+
+    @Test
+    public void testCalendarTimeZoneInSubQuery() throws SqlException {
+        assertQuery(
+                "select-choose b, sum from (select-group-by [b, sum(a) sum] b, sum(a) sum from (select [b, a] from x timestamp (timestamp)) sample by 3h align to calendar time zone 'CET' with offset '00:00') order by b",
+                "select * from (select b, sum(a) from x sample by 3h align to calendar time zone 'CET') order by b",
+                model()
+        );
+    }
+
     @Test
     public void testCalendarTimeZoneWithOffsetPositive() throws SqlException {
         assertQuery(
@@ -216,7 +216,7 @@ public class SecurityTest extends AbstractGriffinTest {
                     " rnd_symbol(3,3,3,20000) sym1," +
                     " rnd_double(2) d1," +
                     " timestamp_sequence(0, 1000000000) ts1" +
-                    " from long_sequence(10000)) timestamp(ts1)", sqlExecutionContext);
+                    " from long_sequence(10000)) timestamp(ts1) partition by month", sqlExecutionContext);
             assertQuery(
                     memoryRestrictedCompiler,
                     "sum\n" +
@@ -810,6 +810,53 @@ public class SecurityTest extends AbstractGriffinTest {
         });
     }
 
+    @Test
+    public void testSortKeyPagesBreachedWithSymbolAndStringKeys() throws Exception {
+        SqlExecutionContext readOnlyExecutionContext = new SqlExecutionContextImpl(engine, 1)
+                .with(new CairoSecurityContextImpl(false),
+                        bindVariableService,
+                        null,
+                        -1,
+                        null);
+        assertMemoryLeak(() -> {
+            sqlExecutionContext.getRandom().reset();
+            compiler.compile("create table tb1 as (select" +
+                    " rnd_symbol(4,4,4,20000) sym1," +
+                    " rnd_str(4,4,0) s," +
+                    " timestamp_sequence(0, 1000000000) ts" +
+                    " from long_sequence(20)) timestamp(ts)", sqlExecutionContext);
+            // union is not random access, rows are sorted by record chain offsets kept in sort key pages
+            assertQuery(
+                    memoryRestrictedCompiler,
+                    "sym1\ts\nCPSW\tZSXU\nCPSW\tZSXU\nPEHN\tBTGP\nPEHN\tBTGP\n",
+                    "select sym1, s from (select sym1, s from tb1 where ts < '1970-01-01T00:20' union all select sym1, s from tb1 where ts < '1970-01-01T00:20') order by sym1",
+                    null,
+                    true, readOnlyExecutionContext, true);
+            try {
+                assertQuery(
+                        memoryRestrictedCompiler,
+                        "",
+                        "select sym1, s from (tb1 union all tb1) order by sym1",
+                        null,
+                        true, readOnlyExecutionContext);
+                Assert.fail();
+            } catch (Exception ex) {
+                Assert.assertTrue(ex.toString().contains("Maximum number of pages (2) breached"));
+            }
+            try {
+                assertQuery(
+                        memoryRestrictedCompiler,
+                        "",
+                        "select sym1, s from (tb1 union all tb1) order by s",
+                        null,
+                        true, readOnlyExecutionContext);
+                Assert.fail();
+            } catch (Exception ex) {
+                Assert.assertTrue(ex.toString().contains("Maximum number of pages (2) breached"));
+            }
+        });
+    }
+
     @Test
     public void testTreeResizesWithImplicitGroupBy() throws Exception {
         SqlExecutionContext readOnlyExecutionContext = new SqlExecutionContextImpl(engine, 1)
@@ -296,6 +296,56 @@ public class SqlParserTest extends AbstractSqlParserTest {
         );
     }
 
+    @Test
+    public void testAnalyticFrameRange() throws Exception {
+        assertQuery(
+                "select-analytic a, b, f(c) f over (partition by b order by ts range between 3600000000 preceding and current row) from (select [a, b, c, ts] from xyz timestamp (ts))",
+                "select a,b, f(c) over (partition by b order by ts range between 1 hour preceding and current row) from xyz",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("b", ColumnType.INT)
+                        .col("c", ColumnType.INT)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameRows() throws Exception {
+        assertQuery(
+                "select-analytic a, b, f(c) f over (partition by b order by ts rows between 3 preceding and current row) from (select [a, b, c, ts] from xyz timestamp (ts))",
+                "select a,b, f(c) over (partition by b order by ts rows between 3 preceding and current row) from xyz",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("b", ColumnType.INT)
+                        .col("c", ColumnType.INT)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameShortForm() throws Exception {
+        assertQuery(
+                "select-analytic a, f(c) f over (order by ts rows between unbounded preceding and current row), g(c) g over (order by ts range between unbounded preceding and unbounded following) from (select [a, c, ts] from xyz timestamp (ts))",
+                "select a, f(c) over (order by ts rows unbounded preceding), g(c) over (order by ts range between unbounded preceding and unbounded following) from xyz",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("c", ColumnType.INT)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameSyntaxErrors() throws Exception {
+        assertSyntaxError("select f(c) over (order by ts rows between 1 preceding) from xyz", 54, "'and' expected", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts rows 1 precedin) from xyz", 37, "'preceding' or 'following' expected", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts rows x preceding) from xyz", 35, "non-negative integer expected", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts rows between current row and 1 preceding) from xyz", 30, "frame start cannot be after frame end", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts rows between unbounded following and current row) from xyz", 30, "frame start cannot be UNBOUNDED FOLLOWING", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts rows between current row and unbounded preceding) from xyz", 30, "frame end cannot be UNBOUNDED PRECEDING", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts rows between current rows and current row) from xyz", 51, "'row' expected", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+        assertSyntaxError("select f(c) over (order by ts range 99999999999 week preceding) from xyz", 36, "frame offset is too large", modelOf("xyz").col("c", ColumnType.INT).timestamp("ts"));
+    }
+
     @Test
     public void testAnalyticFunctionReferencesSameColumnAsVirtual() throws Exception {
         assertQuery(
@@ -495,6 +545,48 @@ public class SqlParserTest extends AbstractSqlParserTest {
         );
     }
 
+    @Test
+    public void testAsOfJoinTolerance() throws Exception {
+        assertQuery(
+                "select-choose t.timestamp timestamp, t.tag tag, q.timestamp timestamp1, q.tag tag1 from (select [timestamp, tag] from trades t timestamp (timestamp) asof join select [timestamp, tag] from quotes q timestamp (timestamp) on q.tag = t.tag tolerance 3600000000us) t",
+                "trades t asof join quotes q on (tag) tolerance 1h",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+    }
+
+    @Test
+    public void testAsOfJoinToleranceInvalid() throws Exception {
+        assertSyntaxError(
+                "trades t asof join quotes q on (tag) tolerance 0s",
+                47,
+                "tolerance must be positive",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+        assertSyntaxError(
+                "trades t asof join quotes q tolerance",
+                37,
+                "tolerance interval expected",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+        assertSyntaxError(
+                "trades t asof join quotes q tolerance 5",
+                39,
+                "expected interval qualifier",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+        assertSyntaxError(
+                "trades t lt join quotes q tolerance 5s",
+                26,
+                "unexpected token: tolerance",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+    }
+
     @Test
     public void testBadTableExpression() throws Exception {
         assertSyntaxError(")", 0, "table name expected");
@@ -6982,6 +7074,58 @@ public class SqlParserTest extends AbstractSqlParserTest {
         );
     }
 
+    @Test
+    public void testWindowJoin() throws Exception {
+        assertQuery(
+                "select-choose t.timestamp timestamp, t.tag tag, q.timestamp timestamp1, q.tag tag1, q.price price from (select [timestamp, tag] from trades t timestamp (timestamp) window join select [timestamp, tag, price] from quotes q timestamp (timestamp) on q.tag = t.tag range between 1000000 preceding and current row) t",
+                "trades t window join quotes q on (tag) range between 1 second preceding and current row",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL).col("price", ColumnType.DOUBLE)
+        );
+    }
+
+    @Test
+    public void testWindowJoinAggregate() throws Exception {
+        assertQuery(
+                "select-group-by timestamp, avg(price) avg from (select-choose [t.timestamp timestamp, q.price price] t.timestamp timestamp, q.price price from (select [timestamp] from trades t timestamp (timestamp) window join select [price] from quotes q timestamp (timestamp) range between 10 preceding and 60000000 following) t) t",
+                "select t.timestamp, avg(q.price) from trades t window join quotes q range between 10 preceding and 1 minute following",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL).col("price", ColumnType.DOUBLE)
+        );
+    }
+
+    @Test
+    public void testWindowJoinInvalidRange() throws Exception {
+        assertSyntaxError(
+                "trades t window join quotes q on (tag)",
+                38,
+                "'range' expected",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+        assertSyntaxError(
+                "trades t window join quotes q on (tag) range 1 second preceding",
+                45,
+                "'between' expected",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+        assertSyntaxError(
+                "trades t window join quotes q range between 1 second following and current row",
+                30,
+                "range start cannot be after range end",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+        assertSyntaxError(
+                "trades t window join quotes q range between unbounded preceding and current row",
+                30,
+                "window join range must be bounded",
+                modelOf("trades").timestamp().col("tag", ColumnType.SYMBOL),
+                modelOf("quotes").timestamp().col("tag", ColumnType.SYMBOL)
+        );
+    }
+
     @Test
     public void testWithDuplicateName() throws Exception {
         assertSyntaxError(
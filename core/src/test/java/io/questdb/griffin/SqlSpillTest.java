@@ -0,0 +1,227 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.std.Files;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Misc;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+
+public class SqlSpillTest extends AbstractGriffinTest {
+    private static final StringSink expectedSink = new StringSink();
+    private static CairoEngine spillEngine;
+    private static SqlCompiler spillCompiler;
+    private static SqlExecutionContext spillExecutionContext;
+
+    @BeforeClass
+    public static void setUpSpillExecutionContext() {
+        // same limits as in SecurityTest, all of which are exceeded by the queries below
+        CairoConfiguration spillConfiguration = new DefaultCairoConfiguration(root) {
+            @Override
+            public int getSqlHashJoinValueMaxPages() {
+                return 2;
+            }
+
+            @Override
+            public int getSqlHashJoinValuePageSize() {
+                return 1024;
+            }
+
+            @Override
+            public int getSqlMapMaxResizes() {
+                return 2;
+            }
+
+            @Override
+            public int getSqlMapPageSize() {
+                return 64;
+            }
+
+            @Override
+            public long getSqlSpillMemoryBudget() {
+                return 4096;
+            }
+
+            @Override
+            public int getSqlSortKeyMaxPages() {
+                return 2;
+            }
+
+            @Override
+            public long getSqlSortKeyPageSize() {
+                return 64;
+            }
+
+            @Override
+            public int getSqlSortLightValueMaxPages() {
+                return 11;
+            }
+
+            @Override
+            public long getSqlSortLightValuePageSize() {
+                return 1024;
+            }
+
+            @Override
+            public int getSqlSortValueMaxPages() {
+                return 2;
+            }
+
+            @Override
+            public int getSqlSortValuePageSize() {
+                return 1024;
+            }
+
+            @Override
+            public boolean isSqlSpillEnabled() {
+                return true;
+            }
+        };
+        spillEngine = new CairoEngine(spillConfiguration);
+        spillCompiler = new SqlCompiler(spillEngine);
+        spillExecutionContext = new SqlExecutionContextImpl(spillEngine, 1)
+                .with(
+                        AllowAllCairoSecurityContext.INSTANCE,
+                        bindVariableService,
+                        null,
+                        -1,
+                        null
+                );
+    }
+
+    @AfterClass
+    public static void tearDownSpillExecutionContext() {
+        spillCompiler = Misc.free(spillCompiler);
+        spillEngine = Misc.free(spillEngine);
+    }
+
+    @Test
+    public void testAnalyticSpills() throws Exception {
+        assertSpilled("select x, row_number() over (partition by s order by d) from tab order by x limit 20");
+    }
+
+    @Test
+    public void testDistinctSpills() throws Exception {
+        assertSpilled("select count() from (select distinct st from tab)");
+    }
+
+    @Test
+    public void testFullFatOrderBySpills() throws Exception {
+        assertSpilled("select * from (select st, sum(d) s from tab) order by s desc limit 20");
+    }
+
+    @Test
+    public void testGroupBySpills() throws Exception {
+        assertSpilled("select st, sum(d), min(x) from tab order by st limit 20");
+    }
+
+    @Test
+    public void testInnerJoinSpills() throws Exception {
+        assertSpilled("select count(), sum(tab.x), sum(r.k) from tab join r on tab.x = r.k");
+    }
+
+    @Test
+    public void testInnerJoinSpillIsReleasedOnCursorClose() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            final String query = "select tab.x, r.v from tab join r on tab.x = r.k";
+            try (RecordCursorFactory factory = spillCompiler.compile(query, spillExecutionContext).getRecordCursorFactory()) {
+                for (int i = 0; i < 2; i++) {
+                    try (RecordCursor cursor = factory.getCursor(spillExecutionContext)) {
+                        // join key map is over the budget
+                        Assert.assertTrue(Unsafe.getMemUsedByTag(MemoryTag.MMAP_SQL_SPILL) > 0);
+                        long count = 0;
+                        while (cursor.hasNext()) {
+                            count++;
+                        }
+                        Assert.assertEquals(5998, count);
+                    }
+                    // factory is still open, but spill file is not
+                    Assert.assertEquals(0, Unsafe.getMemUsedByTag(MemoryTag.MMAP_SQL_SPILL));
+                }
+            }
+            spillEngine.releaseAllReaders();
+        });
+    }
+
+    @Test
+    public void testOrderBySpills() throws Exception {
+        assertSpilled("select * from tab order by st limit 20");
+    }
+
+    @Test
+    public void testOuterJoinSpills() throws Exception {
+        assertSpilled("select count(), sum(r.k), max(length(r.v)) from tab left join r on tab.x = r.k");
+    }
+
+    private static void createTables() throws SqlException {
+        sqlExecutionContext.getRandom().reset();
+        compiler.compile("create table tab as (select" +
+                " x," +
+                " rnd_symbol(100,4,8,0) s," +
+                " rnd_double() d," +
+                " rnd_str(5,10,0) st," +
+                " timestamp_sequence(0, 1000000) ts" +
+                " from long_sequence(10000)) timestamp(ts)", sqlExecutionContext);
+        compiler.compile("create table r as (select" +
+                " x % 3000 k," +
+                " rnd_str(3,6,0) v" +
+                " from long_sequence(6000))", sqlExecutionContext);
+    }
+
+    private void assertSpilled(String query) throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+
+            TestUtils.printSql(compiler, sqlExecutionContext, query, expectedSink);
+            final long fileCount = Files.getOpenFileCount();
+            TestUtils.printSql(spillCompiler, spillExecutionContext, query, sink);
+            TestUtils.assertEquals(expectedSink, sink);
+
+            // spilled memory is released when factory is closed, table readers are the only files left open
+            spillEngine.releaseAllReaders();
+            Assert.assertEquals(fileCount, Files.getOpenFileCount());
+            Assert.assertEquals(0, Unsafe.getMemUsedByTag(MemoryTag.MMAP_SQL_SPILL));
+
+            // spill files are unlinked as soon as they are mapped
+            final String[] spillFiles = new File(spillEngine.getConfiguration().getSqlSpillRoot().toString()).list();
+            Assert.assertTrue(spillFiles == null || spillFiles.length == 0);
+        });
+    }
+}
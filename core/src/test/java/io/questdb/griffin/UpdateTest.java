@@ -40,6 +40,7 @@ import io.questdb.std.Rnd;
 import io.questdb.std.datetime.microtime.Timestamps;
 import io.questdb.std.str.LPSZ;
 import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
 import io.questdb.test.tools.TestUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -1009,6 +1010,65 @@ public class UpdateTest extends AbstractGriffinTest {
         });
     }
 
+    @Test
+    public void testUpdateReaderReloadReopensUpdatedColumnOnly() throws Exception {
+        assertMemoryLeak(() -> {
+            final StringSink openedFiles = new StringSink();
+            ff = new FilesFacadeImpl() {
+                @Override
+                public long openRO(LPSZ name) {
+                    if (Chars.contains(name, "1970-01-0")) {
+                        openedFiles.put(name).put('\n');
+                    }
+                    return super.openRO(name);
+                }
+            };
+            compiler.compile(
+                    "create table up as" +
+                            " (select timestamp_sequence(0, 12 * 60 * 60 * 1000000L) ts," +
+                            " cast(x as int) x," +
+                            " cast(x as int) y," +
+                            " cast(x as string) s" +
+                            " from long_sequence(5))" +
+                            " timestamp(ts) partition by DAY", sqlExecutionContext);
+
+            try (TableReader reader = engine.getReader(sqlExecutionContext.getCairoSecurityContext(), "up")) {
+                // map all partitions
+                TestUtils.assertReader(
+                        "ts\tx\ty\ts\n" +
+                                "1970-01-01T00:00:00.000000Z\t1\t1\t1\n" +
+                                "1970-01-01T12:00:00.000000Z\t2\t2\t2\n" +
+                                "1970-01-02T00:00:00.000000Z\t3\t3\t3\n" +
+                                "1970-01-02T12:00:00.000000Z\t4\t4\t4\n" +
+                                "1970-01-03T00:00:00.000000Z\t5\t5\t5\n",
+                        reader,
+                        sink
+                );
+
+                executeUpdate("UPDATE up SET x = 42 WHERE ts = '1970-01-02T00:00:00.000000Z'");
+
+                openedFiles.clear();
+                Assert.assertTrue(reader.reload());
+                // files of other columns and partitions keep their mappings
+                TestUtils.assertEquals(
+                        root.toString() + Files.SEPARATOR + "up" + Files.SEPARATOR + "1970-01-02" + Files.SEPARATOR + "x.d.1\n",
+                        openedFiles
+                );
+
+                TestUtils.assertReader(
+                        "ts\tx\ty\ts\n" +
+                                "1970-01-01T00:00:00.000000Z\t1\t1\t1\n" +
+                                "1970-01-01T12:00:00.000000Z\t2\t2\t2\n" +
+                                "1970-01-02T00:00:00.000000Z\t42\t3\t3\n" +
+                                "1970-01-02T12:00:00.000000Z\t4\t4\t4\n" +
+                                "1970-01-03T00:00:00.000000Z\t5\t5\t5\n",
+                        reader,
+                        sink
+                );
+            }
+        });
+    }
+
     @Test
     public void testUpdateReadonlyFails() throws Exception {
         assertMemoryLeak(() -> {
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.join.WindowJoinGroupByRecordCursorFactory;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WindowJoinTest extends AbstractGriffinTest {
+
+    private static final String MASTER_DDL = "create table m as (" +
+            "select x, x % 2 k, timestamp_sequence(1000000, 1000000) ts from long_sequence(5)" +
+            ") timestamp(ts)";
+    private static final String SLAVE_DDL = "create table q as (" +
+            "select x qx, x % 2 k, x * 1.5 p, timestamp_sequence(0, 700000) ts from long_sequence(8)" +
+            ") timestamp(ts)";
+
+    @Test
+    public void testWindowJoin() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(MASTER_DDL);
+            compile(SLAVE_DDL);
+            assertSql(
+                    "select m.x, q.qx from m window join q on k range between 1 second preceding and current row",
+                    "x\tqx\n" +
+                            "1\t1\n" +
+                            "3\t5\n" +
+                            "4\t6\n" +
+                            "5\t7\n"
+            );
+        });
+    }
+
+    @Test
+    public void testWindowJoinAggregate() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(MASTER_DDL);
+            compile(SLAVE_DDL);
+            final String query = "select m.ts, m.k, avg(q.p) a, count() c, max(q.qx) mx" +
+                    " from m window join q on k range between 1 second preceding and current row";
+            assertSql(
+                    query,
+                    "ts\tk\ta\tc\tmx\n" +
+                            "1970-01-01T00:00:01.000000Z\t1\t1.5\t1\t1\n" +
+                            "1970-01-01T00:00:02.000000Z\t0\tNaN\t0\tNaN\n" +
+                            "1970-01-01T00:00:03.000000Z\t1\t7.5\t1\t5\n" +
+                            "1970-01-01T00:00:04.000000Z\t0\t9.0\t1\t6\n" +
+                            "1970-01-01T00:00:05.000000Z\t1\t10.5\t1\t7\n"
+            );
+
+            try (RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof WindowJoinGroupByRecordCursorFactory);
+                // master order is preserved
+                Assert.assertEquals(0, factory.getMetadata().getTimestampIndex());
+            }
+        });
+    }
+
+    @Test
+    public void testWindowJoinFollowing() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(MASTER_DDL);
+            compile(SLAVE_DDL);
+            assertSql(
+                    "select m.x, q.qx from m window join q range between 500 milliseconds following and 1 second following",
+                    "x\tqx\n" +
+                            "2\t5\n" +
+                            "3\t6\n" +
+                            "4\t8\n"
+            );
+        });
+    }
+
+    @Test
+    public void testWindowJoinMatchesCrossJoin() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table m as (" +
+                    "select x, rnd_symbol('a','b','c','d') s, timestamp_sequence(0, rnd_long(1, 2000000, 0)) ts" +
+                    " from long_sequence(1000)" +
+                    ") timestamp(ts)");
+            compile("create table q as (" +
+                    "select x qx, rnd_symbol('a','b','c','d') s, rnd_double() p, timestamp_sequence(0, rnd_long(1, 200000, 0)) ts" +
+                    " from long_sequence(10000)" +
+                    ") timestamp(ts) partition by hour");
+
+            TestUtils.assertSqlCursors(
+                    compiler,
+                    sqlExecutionContext,
+                    "select m.x, q.qx from m cross join q where q.ts between dateadd('s', -3, m.ts) and dateadd('s', 1, m.ts) and m.s = q.s",
+                    "select m.x, q.qx from m window join q on s range between 3 second preceding and 1 second following",
+                    LOG
+            );
+
+            TestUtils.assertSqlCursors(
+                    compiler,
+                    sqlExecutionContext,
+                    "select m.x, sum(q.p) a, count() c from m cross join q where q.ts between dateadd('s', -2, m.ts) and m.ts order by x",
+                    "select * from (select m.x, sum(q.p) a, count() c from m window join q range between 2 second preceding and current row) where c > 0",
+                    LOG
+            );
+        });
+    }
+
+    @Test
+    public void testWindowJoinNoKey() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(MASTER_DDL);
+            compile(SLAVE_DDL);
+            assertSql(
+                    "select m.x, q.qx from m window join q range between 1 second preceding and current row",
+                    "x\tqx\n" +
+                            "1\t1\n" +
+                            "1\t2\n" +
+                            "2\t3\n" +
+                            "3\t4\n" +
+                            "3\t5\n" +
+                            "4\t6\n" +
+                            "5\t7\n" +
+                            "5\t8\n"
+            );
+        });
+    }
+
+    @Test
+    public void testWindowJoinSlaveWithoutRandomAccess() throws Exception {
+        assertFailure(
+                "select m.x from m window join (" +
+                        "select k, ts, count() from (select x % 2 k, timestamp_sequence(0, 700000) ts from long_sequence(8)) timestamp(ts) sample by 1s" +
+                        ") q range between 1 second preceding and current row",
+                MASTER_DDL,
+                18,
+                "right side of window join must support random access"
+        );
+    }
+}
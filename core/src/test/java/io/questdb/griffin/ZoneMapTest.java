@@ -0,0 +1,209 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.SqlJitMode;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.griffin.model.IntervalUtils;
+import io.questdb.jit.JitUtil;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.NumericException;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ZoneMapTest extends AbstractGriffinTest {
+
+    @Test
+    public void testBindVariables() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            bindVariableService.setLong(0, 20_000);
+            bindVariableService.setDouble(1, 3.5);
+            assertQueriesEqual("y where l + 0 > $1 and v + 0 < $2", "x where l > $1 and v < $2");
+
+            // same factory, different values
+            bindVariableService.setLong(0, 60_000);
+            bindVariableService.setDouble(1, 100.0);
+            assertQueriesEqual("y where l + 0 > $1 and v + 0 < $2", "x where l > $1 and v < $2");
+        });
+    }
+
+    @Test
+    public void testColumnTopsAndNulls() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            final String data = "select x / 4.0, x * 1000, cast(x % 3 as string), timestamp_sequence('2022-01-04', 3600000000), " +
+                    "case when x % 5 = 0 then null else cast(x as int) end, cast(x as short) " +
+                    "from long_sequence(48)";
+            for (String table : new String[]{"x", "y"}) {
+                compile("alter table " + table + " add column i int", sqlExecutionContext);
+                compile("alter table " + table + " add column sh short", sqlExecutionContext);
+                compile("insert into " + table + " " + data, sqlExecutionContext);
+            }
+            assertZoneMap("x", "2022-01-04", "i", true);
+            assertZoneMap("x", "2022-01-04", "sh", true);
+
+            assertQueriesEqual("y where i + 0 < 10", "x where i < 10");
+            assertQueriesEqual("y where i + 0 >= 20", "x where i >= 20");
+            assertQueriesEqual("y where i + 0 = null", "x where i = null");
+            // rows above column top read as zero for short column
+            assertQueriesEqual("y where sh + 0 = 0", "x where sh = 0");
+            assertQueriesEqual("y where sh + 0 < 2", "x where sh < 2");
+
+            if (JitUtil.isJitSupported()) {
+                compiler.setEnableJitNullChecks(false);
+                try {
+                    assertQueriesEqual("y where i + 0 < 10", "x where i < 10");
+                } finally {
+                    compiler.setEnableJitNullChecks(true);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testDropAndRenameColumn() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            assertZoneMap("x", "2022-01-01", "l", true);
+
+            compile("alter table x rename column l to l2", sqlExecutionContext);
+            assertZoneMap("x", "2022-01-01", "l2", true);
+            assertQueriesEqual("select v, l l2, s, ts from y where l + 0 < 30000", "x where l2 < 30000");
+
+            compile("alter table x drop column l2", sqlExecutionContext);
+            try (Path path = new Path()) {
+                path.of(root).concat("x").concat("2022-01-01");
+                Assert.assertFalse(FilesFacadeImpl.INSTANCE.exists(TableUtils.zmFile(path, "l2", -1)));
+            }
+        });
+    }
+
+    @Test
+    public void testFilterSkipsBlocks() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            assertQueriesEqual("y where l + 0 < 30000", "x where l < 30000");
+            assertQueriesEqual("y where l + 0 = 50000", "x where l = 50000");
+            assertQueriesEqual("y where 40000 <= l + 0", "x where 40000 <= l");
+            assertQueriesEqual("y where l + 0 > 20000 and v + 0 < 10", "x where l > 20000 and v < 10");
+            assertQueriesEqual("y where v + 0 = 12.25", "x where v = 12.25");
+            assertQueriesEqual("y where v + 0 > 100", "x where v > 100");
+            assertQueriesEqual("select count() from y where l + 0 < 30000", "select count() from x where l < 30000");
+            // backward page frames
+            assertQueriesEqual("y where l + 0 < 30000 limit -3", "x where l < 30000 limit -3");
+
+            sqlExecutionContext.setJitMode(SqlJitMode.JIT_MODE_DISABLED);
+            try {
+                assertQueriesEqual("y where l + 0 < 30000", "x where l < 30000");
+                assertQueriesEqual("y where l + 0 >= 60000 limit -5", "x where l >= 60000 limit -5");
+            } finally {
+                sqlExecutionContext.setJitMode(SqlJitMode.JIT_MODE_ENABLED);
+            }
+        });
+    }
+
+    @Test
+    public void testO3RebuildsZoneMap() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            final String o3 = "select x / 4.0, x * 7, 'o3', timestamp_sequence('2022-01-01T00:30', 3600000000) from long_sequence(10)";
+            compile("insert into x " + o3, sqlExecutionContext);
+            compile("insert into y " + o3, sqlExecutionContext);
+            assertZoneMap("x", "2022-01-01", "l", true);
+            assertQueriesEqual("y where l + 0 < 100", "x where l < 100");
+            assertQueriesEqual("y where l + 0 > 20000", "x where l > 20000");
+        });
+    }
+
+    @Test
+    public void testUpdateRebuildsZoneMap() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            compile("update x set l = l + 100000 where ts < '2022-01-01T12:00'", sqlExecutionContext);
+            compile("update y set l = l + 100000 where ts < '2022-01-01T12:00'", sqlExecutionContext);
+            assertZoneMap("x", "2022-01-01", "l", true);
+            assertQueriesEqual("y where l + 0 > 100000", "x where l > 100000");
+            assertQueriesEqual("y where l + 0 < 20000", "x where l < 20000");
+        });
+    }
+
+    @Test
+    public void testZoneMapBuiltOnceNoLongerLast() throws Exception {
+        assertMemoryLeak(() -> {
+            createTables();
+            assertZoneMap("x", "2022-01-01", "l", true);
+            assertZoneMap("x", "2022-01-02", "v", true);
+            assertZoneMap("x", "2022-01-03", "l", false);
+            // designated timestamp and string columns are not covered
+            assertZoneMap("x", "2022-01-01", "ts", false);
+            assertZoneMap("x", "2022-01-01", "s", false);
+        });
+    }
+
+    @Test
+    public void testZoneMapsDisabled() throws Exception {
+        assertMemoryLeak(() -> {
+            configOverrideZoneMapBlockSize = 0;
+            compile("create table x (l long, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+            compile("insert into x select x, timestamp_sequence('2022-01-01', 3600000000) from long_sequence(72)", sqlExecutionContext);
+            assertZoneMap("x", "2022-01-01", "l", false);
+        });
+    }
+
+    private void assertQueriesEqual(String expected, String actual) throws SqlException {
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, expected, actual, LOG);
+    }
+
+    private void assertZoneMap(String tableName, String partition, String columnName, boolean exists) throws NumericException {
+        try (
+                TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName);
+                Path path = new Path()
+        ) {
+            final long partitionTimestamp = IntervalUtils.parseFloorPartialDate(partition);
+            final long partitionNameTxn = reader.getTxFile().getPartitionNameTxnByPartitionTimestamp(partitionTimestamp);
+            final int writerIndex = reader.getMetadata().getWriterIndex(reader.getMetadata().getColumnIndex(columnName));
+            final long columnNameTxn = reader.getColumnVersionReader().getColumnNameTxn(partitionTimestamp, writerIndex);
+
+            path.of(root).concat(tableName).concat(partition);
+            TableUtils.txnPartitionConditionally(path, partitionNameTxn);
+            Assert.assertEquals(exists, FilesFacadeImpl.INSTANCE.exists(TableUtils.zmFile(path, columnName, columnNameTxn)));
+        }
+    }
+
+    private void createTables() throws SqlException {
+        // small blocks to have many of them in each partition
+        configOverrideZoneMapBlockSize = 4;
+        compile("create table x (v double, l long, s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+        compile("create table y (v double, l long, s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+        final String data = "select x / 4.0, x * 1000, cast(x % 3 as string), timestamp_sequence('2022-01-01', 3600000000) from long_sequence(72)";
+        compile("insert into x " + data, sqlExecutionContext);
+        compile("insert into y " + data, sqlExecutionContext);
+    }
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.cache;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.sql.ReaderOutOfDateException;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlCompiler;
+import io.questdb.griffin.SqlException;
+import io.questdb.std.IntList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class QueryFactoryCacheTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table t as (select x, timestamp_sequence(0, 1000000) ts from long_sequence(5)) timestamp(ts)";
+
+    @Test
+    public void testBindVariableTypes() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (QueryFactoryCache cache = newCache(4)) {
+                final String query = "select x from t where x > $1";
+                bindVariableService.clear();
+                bindVariableService.setLong(0, 3);
+                final IntList types = new IntList();
+                types.add(ColumnType.LONG);
+                cache.push(query, 1, compileFactory(query), types);
+
+                // factory with bind variables is not eligible when caller cannot define them
+                Assert.assertNull(cache.poll(query, 1, null));
+
+                final IntList polledTypes = new IntList();
+                polledTypes.add(ColumnType.INT);
+                try (RecordCursorFactory factory = cache.poll(query, 1, polledTypes)) {
+                    Assert.assertNotNull(factory);
+                    Assert.assertEquals(1, polledTypes.size());
+                    Assert.assertEquals(ColumnType.LONG, polledTypes.getQuick(0));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testCheckOutCheckIn() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (QueryFactoryCache cache = newCache(4)) {
+                final String query = "select x from t";
+                Assert.assertNull(cache.poll(query, 1, null));
+
+                final RecordCursorFactory f1 = compileFactory(query);
+                final RecordCursorFactory f2 = compileFactory(query);
+                cache.push(query, 1, f1, null);
+                cache.push(query, 1, f2, null);
+                Assert.assertEquals(2, cache.getSize());
+
+                // checked out instances are not shared, most recently checked in comes first
+                Assert.assertSame(f2, cache.poll(query, 1, null));
+                Assert.assertSame(f1, cache.poll(query, 1, null));
+                Assert.assertNull(cache.poll(query, 1, null));
+                Assert.assertEquals(0, cache.getSize());
+
+                cache.push(query, 1, f1, null);
+                cache.push(query, 1, f2, null);
+            }
+        });
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (QueryFactoryCache cache = newCache(2)) {
+                cache.push("select x from t", 1, compileFactory("select x from t"), null);
+                cache.push("select ts from t", 1, compileFactory("select ts from t"), null);
+                cache.push("select * from t", 1, compileFactory("select * from t"), null);
+                Assert.assertEquals(2, cache.getSize());
+
+                // least recently checked in factory is freed
+                Assert.assertNull(cache.poll("select x from t", 1, null));
+                try (RecordCursorFactory factory = cache.poll("select ts from t", 1, null)) {
+                    Assert.assertNotNull(factory);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testFactoryOutlivesCompiler() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (QueryFactoryCache cache = newCache(4)) {
+                final String query = "select x from t where x > 2";
+                try (SqlCompiler otherCompiler = new SqlCompiler(engine)) {
+                    cache.push(query, 1, otherCompiler.compile(query, sqlExecutionContext).getRecordCursorFactory(), null);
+                }
+
+                // parallel factory is executed by a different thread after its compiler is gone
+                final AtomicLong rowCount = new AtomicLong();
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                final Thread thread = new Thread(() -> {
+                    try (RecordCursorFactory factory = cache.poll(query, 1, null)) {
+                        Assert.assertNotNull(factory);
+                        try (RecordCursor cursor = factory.getCursor(sqlExecutionContext)) {
+                            while (cursor.hasNext()) {
+                                rowCount.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                });
+                thread.start();
+                thread.join();
+                Assert.assertNull(error.get());
+                Assert.assertEquals(3, rowCount.get());
+            }
+        });
+    }
+
+    @Test
+    public void testStaleFactory() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (QueryFactoryCache cache = newCache(4)) {
+                final String query = "select x from t";
+                cache.push(query, 1, compileFactory(query), null);
+                cache.push(query, 1, compileFactory(query), null);
+
+                // re-created table has new id
+                compile("drop table t");
+                compile(DDL);
+
+                try (RecordCursorFactory factory = cache.poll(query, 1, null)) {
+                    Assert.assertNotNull(factory);
+                    try (RecordCursor ignore = factory.getCursor(sqlExecutionContext)) {
+                        Assert.fail();
+                    } catch (ReaderOutOfDateException ignore) {
+                    }
+                }
+                cache.remove(query);
+                Assert.assertEquals(0, cache.getSize());
+                Assert.assertNull(cache.poll(query, 1, null));
+            }
+        });
+    }
+
+    @Test
+    public void testWorkerCount() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (QueryFactoryCache cache = newCache(4)) {
+                final String query = "select x from t";
+                cache.push(query, 2, compileFactory(query), null);
+                Assert.assertNull(cache.poll(query, 1, null));
+                try (RecordCursorFactory factory = cache.poll(query, 2, null)) {
+                    Assert.assertNotNull(factory);
+                }
+            }
+        });
+    }
+
+    private static RecordCursorFactory compileFactory(String query) throws SqlException {
+        return compiler.compile(query, sqlExecutionContext).getRecordCursorFactory();
+    }
+
+    private static QueryFactoryCache newCache(int capacity) {
+        return new QueryFactoryCache(new DefaultCairoConfiguration(root) {
+            @Override
+            public int getSqlFactoryCacheCapacity() {
+                return capacity;
+            }
+        });
+    }
+}
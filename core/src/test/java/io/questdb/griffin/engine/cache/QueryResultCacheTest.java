@@ -0,0 +1,157 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.cache;
+
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlException;
+import io.questdb.test.tools.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryResultCacheTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table t as (" +
+            "select cast(case when x < 3 then 'a' else 'b' end as symbol) s, case when x % 2 = 0 then null else 'v' || x end str, x, timestamp_sequence(0, 1000000) ts" +
+            " from long_sequence(5)" +
+            ") timestamp(ts) partition by day";
+
+    @Override
+    @Before
+    public void setUp() {
+        super.setUp();
+        sqlExecutionContext.setResultCacheEnabled(true);
+    }
+
+    @Override
+    @After
+    public void tearDown() {
+        sqlExecutionContext.setResultCacheEnabled(false);
+        super.tearDown();
+    }
+
+    @Test
+    public void testBindVariables() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            bindVariableService.setLong(0, 3);
+            Assert.assertFalse(assertQueryResult("select x from t where x > $1", "x\n4\n5\n"));
+            Assert.assertTrue(assertQueryResult("select x from t where x > $1", "x\n4\n5\n"));
+
+            bindVariableService.setLong(0, 4);
+            Assert.assertFalse(assertQueryResult("select x from t where x > $1", "x\n5\n"));
+            Assert.assertTrue(assertQueryResult("select x from t where x > $1", "x\n5\n"));
+        });
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            final String expected = "s\tstr\tx\tts\n" +
+                    "a\tv1\t1\t1970-01-01T00:00:00.000000Z\n" +
+                    "a\t\t2\t1970-01-01T00:00:01.000000Z\n" +
+                    "b\tv3\t3\t1970-01-01T00:00:02.000000Z\n" +
+                    "b\t\t4\t1970-01-01T00:00:03.000000Z\n" +
+                    "b\tv5\t5\t1970-01-01T00:00:04.000000Z\n";
+            Assert.assertFalse(assertQueryResult("select * from t", expected));
+            Assert.assertTrue(engine.getQueryResultCache().getSize() > 0);
+            Assert.assertTrue(assertQueryResult("select * from t", expected));
+            // whitespace and comments do not matter
+            Assert.assertTrue(assertQueryResult("select *\n  from t /* all rows */", expected));
+        });
+    }
+
+    @Test
+    public void testInvalidatedByCommit() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            Assert.assertFalse(assertQueryResult("select count() from t", "count\n5\n"));
+            Assert.assertTrue(assertQueryResult("select count() from t", "count\n5\n"));
+
+            executeInsert("insert into t values ('c', 'z', 10, '1970-01-01T00:00:05')");
+            Assert.assertFalse(assertQueryResult("select count() from t", "count\n6\n"));
+            Assert.assertTrue(assertQueryResult("select count() from t", "count\n6\n"));
+
+            compile("drop table t");
+            compile(DDL);
+            Assert.assertFalse(assertQueryResult("select count() from t", "count\n5\n"));
+        });
+    }
+
+    @Test
+    public void testNonDeterministicQueryNotCached() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            assertNotCached("select x, rnd_int() from t");
+            assertNotCached("select x, now() from t");
+            assertNotCached("select x from t where ts < systimestamp()");
+            assertNotCached("select x from long_sequence(3)");
+        });
+    }
+
+    @Test
+    public void testResultTooLarge() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table big as (select x, x * 2 y from long_sequence(200000))");
+            try (
+                    RecordCursorFactory factory = compiler.compile("select * from big", sqlExecutionContext).getRecordCursorFactory();
+                    RecordCursor cursor = factory.getCursor(sqlExecutionContext)
+            ) {
+                long count = 0;
+                while (cursor.hasNext()) {
+                    count++;
+                }
+                Assert.assertEquals(200000, count);
+            }
+            Assert.assertEquals(0, engine.getQueryResultCache().getSize());
+        });
+    }
+
+    private static void assertNotCached(String query) throws SqlException {
+        try (RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory()) {
+            Assert.assertFalse(factory instanceof QueryResultCacheRecordCursorFactory);
+        }
+    }
+
+    /**
+     * @return true when result came from the cache
+     */
+    private static boolean assertQueryResult(String query, String expected) throws SqlException {
+        try (
+                RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory();
+                RecordCursor cursor = factory.getCursor(sqlExecutionContext)
+        ) {
+            Assert.assertTrue(factory instanceof QueryResultCacheRecordCursorFactory);
+            final boolean hit = cursor.getRecord() instanceof CachedQueryResult.ResultRecord;
+            TestUtils.assertCursor(expected, cursor, factory.getMetadata(), true, sink);
+            return hit;
+        }
+    }
+}
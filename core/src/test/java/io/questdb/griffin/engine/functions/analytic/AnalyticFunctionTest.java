@@ -0,0 +1,257 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.engine.analytic.AnalyticRecordCursorFactory;
+import io.questdb.griffin.engine.analytic.CachedAnalyticRecordCursorFactory;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AnalyticFunctionTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table t as (" +
+            "select" +
+            " x," +
+            " x % 3 k," +
+            " case when x = 4 then cast(null as double) else x * 1.0 end p," +
+            " timestamp_sequence(0, 1800000000) ts" +
+            " from long_sequence(8)" +
+            ") timestamp(ts)";
+
+    @Test
+    public void testFirstLastValueAndRowNumberPartitioned() throws Exception {
+        assertQuery(
+                "x\tk\ts\tfv\tlv\trn\n" +
+                        "1\t1\t1.0\t1.0\t1.0\t0\n" +
+                        "2\t2\t2.0\t2.0\t2.0\t0\n" +
+                        "3\t0\t3.0\t3.0\t3.0\t0\n" +
+                        "4\t1\t1.0\t1.0\tNaN\t1\n" +
+                        "5\t2\t7.0\t2.0\t5.0\t1\n" +
+                        "6\t0\t9.0\t3.0\t6.0\t1\n" +
+                        "7\t1\t7.0\t1.0\t7.0\t2\n" +
+                        "8\t2\t13.0\t2.0\t8.0\t2\n",
+                "select x, k," +
+                        " sum(p) over (partition by k order by ts rows 1 preceding) s," +
+                        " first_value(p) over (partition by k order by ts) fv," +
+                        " last_value(p) over (partition by k order by ts rows 1 preceding) lv," +
+                        " row_number() over (partition by k order by ts) rn" +
+                        " from t",
+                DDL,
+                null,
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testFrameErrors() throws Exception {
+        assertFailure(
+                "select x, sum(p) over (order by ts rows between 1 preceding and 1 following) from t",
+                DDL,
+                35,
+                "frame end must be CURRENT ROW or UNBOUNDED FOLLOWING"
+        );
+        assertFailure(
+                "select x, sum(p) over (order by x range 1 preceding) from t",
+                null,
+                32,
+                "RANGE with offset requires TIMESTAMP ORDER BY column"
+        );
+        assertFailure(
+                "select x, sum(p) over (order by ts desc range 1 preceding) from t",
+                null,
+                40,
+                "RANGE with offset requires single ascending ORDER BY column"
+        );
+        assertFailure(
+                "select x, lag(p, -1) over (order by ts) from t",
+                null,
+                17,
+                "offset must be a non-negative integer constant"
+        );
+        assertFailure(
+                "select x, lag(p, 1, 2.0, 3) over (order by ts) from t",
+                null,
+                25,
+                "too many arguments"
+        );
+    }
+
+    @Test
+    public void testLagLead() throws Exception {
+        assertQuery(
+                "x\tlg\tlg2\tld\tld2\n" +
+                        "1\tNaN\t-1.0\t2.0\t7.0\n" +
+                        "2\t1.0\t-1.0\t3.0\t8.0\n" +
+                        "3\t2.0\t-1.0\tNaN\t-1.0\n" +
+                        "4\t3.0\t-1.0\t5.0\t-1.0\n" +
+                        "5\tNaN\t-1.0\t6.0\t-1.0\n" +
+                        "6\t5.0\t-1.0\t7.0\t-1.0\n" +
+                        "7\t6.0\t1.0\t8.0\t-1.0\n" +
+                        "8\t7.0\t2.0\tNaN\t-1.0\n",
+                "select x," +
+                        " lag(p) over (order by ts) lg," +
+                        " lag(p, 2, -1.0) over (partition by k order by ts) lg2," +
+                        " lead(p) over (order by ts) ld," +
+                        " lead(p, 2, -1.0) over (partition by k order by ts) ld2" +
+                        " from t",
+                DDL,
+                null,
+                true,
+                true,
+                false
+        );
+    }
+
+    @Test
+    public void testMovingAverageRows() throws Exception {
+        assertQuery(
+                "x\tp\ts\ta\n" +
+                        "1\t1.0\t1.0\t1.0\n" +
+                        "2\t2.0\t3.0\t1.5\n" +
+                        "3\t3.0\t6.0\t2.0\n" +
+                        "4\tNaN\t5.0\t2.5\n" +
+                        "5\t5.0\t8.0\t4.0\n" +
+                        "6\t6.0\t11.0\t5.5\n" +
+                        "7\t7.0\t18.0\t6.0\n" +
+                        "8\t8.0\t21.0\t7.0\n",
+                "select x, p," +
+                        " sum(p) over (order by ts rows between 2 preceding and current row) s," +
+                        " avg(p) over (order by ts rows 2 preceding) a" +
+                        " from t",
+                DDL,
+                null,
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testOrderedByDesignatedTimestampStreams() throws Exception {
+        assertMemoryLeak(() -> {
+            compile(DDL);
+            try (RecordCursorFactory factory = compiler.compile(
+                    "select ts, sum(p) over (order by ts rows 1 preceding) s from t",
+                    sqlExecutionContext
+            ).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof AnalyticRecordCursorFactory);
+                Assert.assertEquals(0, factory.getMetadata().getTimestampIndex());
+            }
+
+            // whole partition aggregate has to see all rows before producing the first value
+            try (RecordCursorFactory factory = compiler.compile(
+                    "select ts, sum(p) over (partition by k) s from t",
+                    sqlExecutionContext
+            ).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof CachedAnalyticRecordCursorFactory);
+            }
+        });
+    }
+
+    @Test
+    public void testRangeFrame() throws Exception {
+        assertQuery(
+                "x\ts\tmn\tmx\n" +
+                        "1\t1.0\t1.0\t1.0\n" +
+                        "2\t3.0\t1.0\t2.0\n" +
+                        "3\t6.0\t1.0\t3.0\n" +
+                        "4\t5.0\t2.0\t3.0\n" +
+                        "5\t8.0\t3.0\t5.0\n" +
+                        "6\t11.0\t5.0\t6.0\n" +
+                        "7\t18.0\t5.0\t7.0\n" +
+                        "8\t21.0\t6.0\t8.0\n",
+                "select x," +
+                        " sum(p) over (order by ts range between 1 hour preceding and current row) s," +
+                        " min(p) over (order by ts range 1 hour preceding) mn," +
+                        " max(p) over (order by ts range 1 hour preceding) mx" +
+                        " from t",
+                DDL,
+                null,
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testStreamingMatchesCached() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table t as (" +
+                    "select" +
+                    " x," +
+                    " rnd_int(0, 5, 0) k," +
+                    " rnd_double(2) p," +
+                    " timestamp_sequence(0, rnd_long(1, 120, 0) * 1000000L) ts" +
+                    " from long_sequence(10000)" +
+                    ") timestamp(ts)");
+
+            final String columns = "x," +
+                    " sum(p) over (partition by k order by ts rows between 5 preceding and current row) a," +
+                    " avg(p) over (order by ts range between 10 minute preceding and current row) b," +
+                    " min(p) over (partition by k order by ts range 30 minute preceding) c," +
+                    " max(p) over (order by ts rows 7 preceding) d," +
+                    " first_value(p) over (partition by k order by ts rows 3 preceding) e," +
+                    " lag(p, 3) over (partition by k order by ts) f";
+
+            // sorted and limited base loses timestamp order, which forces the cached factory
+            TestUtils.assertSqlCursors(
+                    compiler,
+                    sqlExecutionContext,
+                    "select * from (select " + columns + " from (t order by p limit 1000000)) order by x",
+                    "select " + columns + " from t",
+                    LOG
+            );
+        });
+    }
+
+    @Test
+    public void testWholePartition() throws Exception {
+        assertQuery(
+                "x\tk\ts\tmx\n" +
+                        "1\t1\t8.0\t2.0\n" +
+                        "2\t2\t15.0\t3.0\n" +
+                        "3\t0\t9.0\t3.0\n" +
+                        "4\t1\t8.0\t5.0\n" +
+                        "5\t2\t15.0\t6.0\n" +
+                        "6\t0\t9.0\t7.0\n" +
+                        "7\t1\t8.0\t8.0\n" +
+                        "8\t2\t15.0\t8.0\n",
+                "select x, k," +
+                        " sum(p) over (partition by k) s," +
+                        " max(p) over (order by ts desc rows 1 preceding) mx" +
+                        " from t",
+                DDL,
+                null,
+                true,
+                true,
+                false
+        );
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.AbstractCairoTest;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncHashJoinRecordCursorFactoryTest extends AbstractGriffinTest {
+
+    private static final String DDL_MASTER = "create table t as (" +
+            "select rnd_symbol(50,4,4,2) sym," +
+            " rnd_str(20,3,5,2) s," +
+            " rnd_int(0, 100, 2) i," +
+            " rnd_long(0, 500, 2) l," +
+            " timestamp_sequence(0, 5000000) ts" +
+            " from long_sequence(20000)" +
+            ") timestamp(ts) partition by hour";
+
+    private static final String DDL_SLAVE = "create table r as (" +
+            "select rnd_symbol(50,4,4,2) sym," +
+            " rnd_str(20,3,5,2) s," +
+            " rnd_int(0, 100, 2) i," +
+            " rnd_long(0, 500, 2) l," +
+            " rnd_double(2) d" +
+            " from long_sequence(300)" +
+            ")";
+
+    @Test
+    public void testJoinOnSymbol() throws Exception {
+        assertParallelMatchesSerial("select t.ts, t.sym, r.d, r.s from t join r on sym");
+    }
+
+    @Test
+    public void testJoinOnString() throws Exception {
+        assertParallelMatchesSerial("select t.ts, t.s, r.sym, r.l from t join r on s");
+    }
+
+    @Test
+    public void testJoinOnMultipleKeys() throws Exception {
+        assertParallelMatchesSerial("select t.ts, t.i, r.i, r.d from t join r on (i, sym)");
+    }
+
+    @Test
+    public void testJoinDescendingMaster() throws Exception {
+        assertParallelMatchesSerial("select a.ts, a.l, r.sym from (t order by ts desc) a join r on l");
+    }
+
+    @Test
+    public void testJoinWithIntervalAndPostJoinFilter() throws Exception {
+        assertParallelMatchesSerial("select t.ts, r.s from t join r on sym where t.ts in '1970-01-01T05' and r.i > t.i");
+    }
+
+    @Test
+    public void testEmptyMaster() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile("create table t (sym symbol, ts timestamp) timestamp(ts) partition by day", executionContext);
+            compiler.compile(DDL_SLAVE, executionContext);
+            try (RecordCursorFactory factory = compiler.compile("select t.ts, r.s from t join r on sym", executionContext).getRecordCursorFactory()) {
+                try (RecordCursor cursor = factory.getCursor(executionContext)) {
+                    Assert.assertFalse(cursor.hasNext());
+                }
+            }
+        });
+    }
+
+    private void assertParallelMatchesSerial(String query) throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL_MASTER, executionContext);
+            compiler.compile(DDL_SLAVE, executionContext);
+
+            final StringSink expected = new StringSink();
+            AbstractCairoTest.enableParallelHashJoin = false;
+            TestUtils.printSql(compiler, executionContext, query, expected);
+
+            AbstractCairoTest.enableParallelHashJoin = true;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                assertFactoryCursorTwice(expected, factory, executionContext);
+            }
+        });
+    }
+
+    private void withPool(WorkerPoolRunnable runnable) throws Exception {
+        withWorkerPool(4, 1000, runnable);
+    }
+}
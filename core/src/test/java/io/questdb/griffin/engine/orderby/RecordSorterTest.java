@@ -0,0 +1,146 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.orderby;
+
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Test;
+
+public class RecordSorterTest extends AbstractGriffinTest {
+
+    @Test
+    public void testEncodedKeysMatchComparator() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x as (" +
+                    "select" +
+                    " rnd_int(-5, 5, 2) i," +
+                    " rnd_long(-10, 10, 2) l," +
+                    " rnd_double(2) d," +
+                    " rnd_float(2) f," +
+                    " rnd_short(1, 5) sh," +
+                    " rnd_byte(1, 4) b," +
+                    " rnd_char() c," +
+                    " rnd_boolean() bo," +
+                    " rnd_long256() l256," +
+                    " rnd_timestamp(0, 100000000, 2) ts," +
+                    " rnd_date(0, 100000, 2) dt," +
+                    " rnd_str(2, 4, 2) s," +
+                    " x" +
+                    " from long_sequence(5000)" +
+                    ")", sqlExecutionContext);
+
+            // trailing string key makes rows go through the comparator-based merge sort,
+            // x is unique, so the string key never affects the order
+            assertSortedByComparator("i, l desc, x");
+            assertSortedByComparator("d desc, x");
+            assertSortedByComparator("f, x desc");
+            assertSortedByComparator("sh desc, b, bo desc, c, x");
+            assertSortedByComparator("l256, x");
+            assertSortedByComparator("ts, dt desc, x");
+        });
+    }
+
+    @Test
+    public void testEqualKeys() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x as (" +
+                    "select * from (" +
+                    "select 1 k, 'a' v union all " +
+                    "select 2, 'b' union all " +
+                    "select 1, 'c' union all " +
+                    "select 0, 'd' union all " +
+                    "select 2, 'e'" +
+                    "))", sqlExecutionContext);
+
+            // random access cursor keeps row ids, rows with equal keys come out in reverse order
+            assertSql(
+                    "x order by k",
+                    "k\tv\n" +
+                            "0\td\n" +
+                            "1\tc\n" +
+                            "1\ta\n" +
+                            "2\te\n" +
+                            "2\tb\n"
+            );
+
+            // rows copied from non-random access cursor keep their order
+            assertSql(
+                    "select x.k, x.v from x cross join long_sequence(1) z order by x.k desc",
+                    "k\tv\n" +
+                            "2\tb\n" +
+                            "2\te\n" +
+                            "1\ta\n" +
+                            "1\tc\n" +
+                            "0\td\n"
+            );
+        });
+    }
+
+    @Test
+    public void testNaNFirst() throws Exception {
+        assertMemoryLeak(() -> {
+            compile("create table x as (" +
+                    "select cast(case when x % 3 = 0 then null else x % 2 end as double) d, x" +
+                    " from long_sequence(8)" +
+                    ")", sqlExecutionContext);
+
+            assertSql(
+                    "x order by d",
+                    "d\tx\n" +
+                            "NaN\t3\n" +
+                            "NaN\t6\n" +
+                            "0.0\t8\n" +
+                            "0.0\t4\n" +
+                            "0.0\t2\n" +
+                            "1.0\t7\n" +
+                            "1.0\t5\n" +
+                            "1.0\t1\n"
+            );
+
+            assertSql(
+                    "x order by d desc, x",
+                    "d\tx\n" +
+                            "1.0\t1\n" +
+                            "1.0\t5\n" +
+                            "1.0\t7\n" +
+                            "0.0\t2\n" +
+                            "0.0\t4\n" +
+                            "0.0\t8\n" +
+                            "NaN\t3\n" +
+                            "NaN\t6\n"
+            );
+        });
+    }
+
+    private void assertSortedByComparator(String orderBy) throws Exception {
+        TestUtils.assertSqlCursors(
+                compiler,
+                sqlExecutionContext,
+                "x order by " + orderBy + ", s",
+                "x order by " + orderBy,
+                LOG
+        );
+    }
+}
@@ -680,9 +680,13 @@ public class AsyncFilteredRecordCursorFactoryTest extends AbstractGriffinTest {
                 @Nullable RecordSink partitionBySink,
                 @Nullable ColumnTypes keyTypes,
                 boolean isOrdered,
-                boolean baseSupportsRandomAccess
+                boolean baseSupportsRandomAccess,
+                int framingMode,
+                long rowsLo,
+                long rowsHi,
+                int timestampIndex
         ) {
-            sqlExecutionContext.configureAnalyticContext(partitionByRecord, partitionBySink, keyTypes, isOrdered, baseSupportsRandomAccess);
+            sqlExecutionContext.configureAnalyticContext(partitionByRecord, partitionBySink, keyTypes, isOrdered, baseSupportsRandomAccess, framingMode, rowsLo, rowsHi, timestampIndex);
         }
 
         @Override
@@ -714,6 +718,16 @@ public class AsyncFilteredRecordCursorFactoryTest extends AbstractGriffinTest {
         public boolean getCloneSymbolTables() {
             return sqlExecutionContext.getCloneSymbolTables();
         }
+
+        @Override
+        public void setResultCacheEnabled(boolean resultCacheEnabled) {
+            sqlExecutionContext.setResultCacheEnabled(resultCacheEnabled);
+        }
+
+        @Override
+        public boolean isResultCacheEnabled() {
+            return sqlExecutionContext.isResultCacheEnabled();
+        }
     }
 
     @Test
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.AbstractCairoTest;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.engine.groupby.GroupByNotKeyedRecordCursorFactory;
+import io.questdb.jit.JitUtil;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncGroupByNotKeyedRecordCursorFactoryTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table x as (" +
+            "select rnd_symbol('AAA','BBB','CCC','DDD') sym," +
+            " rnd_str('a','b','c','d','e') s," +
+            " rnd_int(0, 1000, 2) i," +
+            " rnd_long(0, 100000, 2) l," +
+            " rnd_double(2) d," +
+            " timestamp_sequence(0, 100000) ts" +
+            " from long_sequence(200000)" +
+            ") timestamp(ts) partition by hour";
+
+    @Test
+    public void testNoFilter() throws Exception {
+        assertParallelMatchesSerial(
+                "select count(), sum(l * i), min(d * 2), max(l - i), avg(i), max(ts), count_distinct(s) from x",
+                false
+        );
+    }
+
+    @Test
+    public void testJavaFilter() throws Exception {
+        assertParallelMatchesSerial(
+                "select count(), sum(i * 2), min(d), max(l), count_distinct(sym) from x where s = 'a'",
+                false
+        );
+    }
+
+    @Test
+    public void testCompiledFilter() throws Exception {
+        assertParallelMatchesSerial(
+                "select count(), sum(l * i), min(d), max(d), avg(l) from x where sym in ('AAA', 'CCC') and i > 100",
+                JitUtil.isJitSupported()
+        );
+    }
+
+    @Test
+    public void testCompiledFilterWithBindVariable() throws Exception {
+        bindVariableService.clear();
+        bindVariableService.setLong("lim", 5000);
+        assertParallelMatchesSerial(
+                "select count(), sum(i), max(ts) from x where l < :lim",
+                JitUtil.isJitSupported()
+        );
+    }
+
+    @Test
+    public void testFilterMatchesNothing() throws Exception {
+        assertParallelMatchesSerial(
+                "select count(), sum(i), min(d), max(ts), count_distinct(s) from x where i > 2000",
+                JitUtil.isJitSupported()
+        );
+    }
+
+    @Test
+    public void testFirstLast() throws Exception {
+        assertParallelMatchesSerial(
+                "select first(d), last(d), first(sym), last(sym), first(ts), last(ts) from x where s = 'a'",
+                false
+        );
+    }
+
+    @Test
+    public void testFallbackToSerialWhenFunctionCannotBeMerged() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            try (RecordCursorFactory factory = compiler.compile("select stddev_samp(d), sum(i) from x where s = 'a'", executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(GroupByNotKeyedRecordCursorFactory.class, factory.getClass());
+            }
+        });
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile("create table x (s string, i int, ts timestamp) timestamp(ts) partition by day", executionContext);
+            try (RecordCursorFactory factory = compiler.compile("select count(), sum(i * 2) from x", executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(AsyncGroupByNotKeyedRecordCursorFactory.class, factory.getClass());
+                sink.clear();
+                try (RecordCursor cursor = factory.getCursor(executionContext)) {
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, sink, TestUtils.printer);
+                }
+                TestUtils.assertEquals("count\tsum\n0\tNaN\n", sink);
+            }
+        });
+    }
+
+    private void assertParallelMatchesSerial(String query, boolean expectCompiledFilter) throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+
+            final StringSink expected = new StringSink();
+            AbstractCairoTest.enableParallelGroupBy = false;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(GroupByNotKeyedRecordCursorFactory.class, factory.getClass());
+            }
+            TestUtils.printSql(compiler, executionContext, query, expected);
+
+            AbstractCairoTest.enableParallelGroupBy = true;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(AsyncGroupByNotKeyedRecordCursorFactory.class, factory.getClass());
+                Assert.assertEquals(expectCompiledFilter, factory.usesCompiledFilter());
+                assertFactoryCursorTwice(expected, factory, executionContext);
+            }
+        });
+    }
+
+    private void withPool(WorkerPoolRunnable runnable) throws Exception {
+        withWorkerPool(4, 1000, runnable);
+    }
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.AbstractCairoTest;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncGroupByRecordCursorFactoryTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table x as (" +
+            "select rnd_symbol(100,4,4,2) sym," +
+            " rnd_str('a','b','c','d','e') s," +
+            " rnd_int(0, 1000, 2) i," +
+            " rnd_long(0, 100000, 2) l," +
+            " rnd_double(2) d," +
+            " timestamp_sequence(0, 100000) ts" +
+            " from long_sequence(200000)" +
+            ") timestamp(ts) partition by hour";
+
+    @Test
+    public void testKeyedBySymbol() throws Exception {
+        assertParallelMatchesSerial(
+                "select sym, count(), sum(l), min(d), max(d), avg(i), count_distinct(s) from x",
+                "sym"
+        );
+    }
+
+    @Test
+    public void testKeyedBySymbolAndString() throws Exception {
+        assertParallelMatchesSerial(
+                "select sym, s, count(), sum(i), max(l), min(ts), count_distinct(sym) from x",
+                "sym, s"
+        );
+    }
+
+    @Test
+    public void testKeyedByExpressionArgument() throws Exception {
+        assertParallelMatchesSerial(
+                "select s, sum(i * 2), min(l - i), max(ts) from x",
+                "s"
+        );
+    }
+
+    @Test
+    public void testFirstLast() throws Exception {
+        // per-worker values are merged by row id, the result must not depend on which worker saw the row
+        assertParallelMatchesSerial(
+                "select sym, first(d), last(d), first(i), last(l), first(ts), last(ts), count() from x",
+                "sym"
+        );
+    }
+
+    @Test
+    public void testFirstLastSymbol() throws Exception {
+        assertParallelMatchesSerial(
+                "select s, first(sym), last(sym), last(i) from x",
+                "s"
+        );
+    }
+
+    @Test
+    public void testFallbackToSerialWhenFunctionCannotBeMerged() throws Exception {
+        final String[] queries = {
+                "select sym, stddev_samp(d) from x",
+                "select sym, count(), sum(l), stddev_samp(d) from x"
+        };
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            for (String query : queries) {
+                try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                    Assert.assertEquals(query, io.questdb.griffin.engine.groupby.GroupByRecordCursorFactory.class, factory.getClass());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile("create table x (sym symbol, s string, ts timestamp) timestamp(ts) partition by day", executionContext);
+            final String sql = "select sym, count_distinct(s) from x";
+            try (RecordCursorFactory factory = compiler.compile(sql, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(AsyncGroupByRecordCursorFactory.class, factory.getClass());
+                try (RecordCursor cursor = factory.getCursor(executionContext)) {
+                    Assert.assertFalse(cursor.hasNext());
+                }
+            }
+        });
+    }
+
+    private void assertParallelMatchesSerial(String query, String keys) throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            final String sql = "select * from (" + query + ") order by " + keys;
+
+            final StringSink expected = new StringSink();
+            AbstractCairoTest.enableParallelGroupBy = false;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(io.questdb.griffin.engine.groupby.GroupByRecordCursorFactory.class, factory.getClass());
+            }
+            TestUtils.printSql(compiler, executionContext, sql, expected);
+
+            AbstractCairoTest.enableParallelGroupBy = true;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(AsyncGroupByRecordCursorFactory.class, factory.getClass());
+            }
+            try (RecordCursorFactory factory = compiler.compile(sql, executionContext).getRecordCursorFactory()) {
+                assertFactoryCursorTwice(expected, factory, executionContext);
+            }
+        });
+    }
+
+    private void withPool(WorkerPoolRunnable runnable) throws Exception {
+        withWorkerPool(4, 1000, runnable);
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.AbstractCairoTest;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncLatestByRecordCursorFactoryTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table x as (" +
+            "select x," +
+            " rnd_symbol(300, 4, 8, 2) sym," +
+            " rnd_symbol('a','b','c','d','e') sym2," +
+            " rnd_double(2) d," +
+            " timestamp_sequence(0, 10000000) ts" +
+            " from long_sequence(20000)" +
+            ") timestamp(ts) partition by day";
+
+    @Test
+    public void testLatestBy() throws Exception {
+        assertParallelMatchesSerial("select * from x latest by sym", "sym");
+    }
+
+    @Test
+    public void testLatestByAllKeysInLastFrames() throws Exception {
+        // few distinct keys are all found near the end of the table, so the scan stops early
+        assertParallelMatchesSerial("select * from x latest by sym2", "sym2");
+    }
+
+    @Test
+    public void testLatestByFilter() throws Exception {
+        assertParallelMatchesSerial("select * from x latest by sym where d > 0.5", "sym");
+    }
+
+    @Test
+    public void testLatestByFilterNoMatches() throws Exception {
+        assertParallelMatchesSerial("select * from x latest by sym where d > 2", "sym");
+    }
+
+    @Test
+    public void testLatestBySymbolFilter() throws Exception {
+        assertParallelMatchesSerial("select * from x latest by sym where sym2 = 'c'", "sym");
+    }
+
+    @Test
+    public void testLatestByInterval() throws Exception {
+        assertParallelMatchesSerial("select * from x latest by sym where ts < '1970-01-02'", "sym");
+    }
+
+    @Test
+    public void testLatestByIntervalAndFilter() throws Exception {
+        assertParallelMatchesSerial("select * from x latest by sym where ts > '1970-01-02' and d < 0.2", "sym");
+    }
+
+    @Test
+    public void testLatestByNegativeLimit() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            final String query = "select * from x latest by sym limit -5";
+
+            final StringSink expected = new StringSink();
+            AbstractCairoTest.enableParallelLatestBy = false;
+            TestUtils.printSql(compiler, executionContext, query, expected);
+
+            AbstractCairoTest.enableParallelLatestBy = true;
+            assertSql(query, expected);
+        });
+    }
+
+    private void assertParallelMatchesSerial(String query, String orderBy) throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            final String sql = "select * from (" + query + ") order by " + orderBy;
+
+            final StringSink expected = new StringSink();
+            AbstractCairoTest.enableParallelLatestBy = false;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertNotEquals(AsyncLatestByRecordCursorFactory.class, factory.getClass());
+            }
+            TestUtils.printSql(compiler, executionContext, sql, expected);
+
+            AbstractCairoTest.enableParallelLatestBy = true;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(AsyncLatestByRecordCursorFactory.class, factory.getClass());
+            }
+            try (RecordCursorFactory factory = compiler.compile(sql, executionContext).getRecordCursorFactory()) {
+                assertFactoryCursorTwice(expected, factory, executionContext);
+            }
+        });
+    }
+
+    private void withPool(WorkerPoolRunnable runnable) throws Exception {
+        withWorkerPool(4, 1000, runnable);
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2022 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.AbstractCairoTest;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncSampleByRecordCursorFactoryTest extends AbstractGriffinTest {
+
+    // data has gaps, so that fill modes have something to fill
+    private static final String DDL = "create table x as (" +
+            "select rnd_symbol('a','b','c','d') sym," +
+            " rnd_int(0, 1000, 2) i," +
+            " rnd_long(0, 100000, 2) l," +
+            " rnd_double(2) d," +
+            " timestamp_sequence(0, rnd_long(1, 3, 0) * 1000000) ts" +
+            " from long_sequence(20000)" +
+            ") timestamp(ts) partition by hour";
+
+    @Test
+    public void testKeyedFillNone() throws Exception {
+        assertParallelMatchesSerial("select sym, count(), sum(l), min(d), max(d), avg(i), ts from x sample by 1m", "ts, sym");
+    }
+
+    @Test
+    public void testKeyedFillNull() throws Exception {
+        assertParallelMatchesSerial("select sym, count(), sum(l), max(d), ts from x sample by 1s fill(null)", "ts, sym");
+    }
+
+    @Test
+    public void testKeyedFillPrev() throws Exception {
+        assertParallelMatchesSerial("select sym, count(), sum(l), max(d), ts from x sample by 1s fill(prev)", "ts, sym");
+    }
+
+    @Test
+    public void testKeyedFillValue() throws Exception {
+        assertParallelMatchesSerial("select sym, count(), sum(l), max(d), ts from x sample by 1s fill(0, null, prev)", "ts, sym");
+    }
+
+    @Test
+    public void testKeyedFirstLast() throws Exception {
+        assertParallelMatchesSerial("select sym, first(d), last(d), first(i), last(l), ts from x sample by 1m", "ts, sym");
+    }
+
+    @Test
+    public void testKeyedFirstLastFillPrev() throws Exception {
+        assertParallelMatchesSerial("select sym, first(d), last(l), ts from x sample by 1s fill(prev)", "ts, sym");
+    }
+
+    @Test
+    public void testNotKeyedAlignToCalendar() throws Exception {
+        assertParallelMatchesSerial("select ts, count(), max(l) from x sample by 7m align to calendar with offset '00:03'", "ts");
+    }
+
+    @Test
+    public void testNotKeyedFillNone() throws Exception {
+        assertParallelMatchesSerial("select ts, count(), sum(i), min(l) from x sample by 5m", "ts");
+    }
+
+    @Test
+    public void testNotKeyedFillPrev() throws Exception {
+        assertParallelMatchesSerial("select ts, count(), sum(i), min(l) from x sample by 1s fill(prev)", "ts");
+    }
+
+    @Test
+    public void testNotKeyedFillValue() throws Exception {
+        assertParallelMatchesSerial("select ts, count(), sum(i), min(l) from x sample by 1s fill(99, null, prev)", "ts");
+    }
+
+    @Test
+    public void testFallbackToSerialForCalendarSampler() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            try (RecordCursorFactory factory = compiler.compile("select ts, count() from x sample by 1M", executionContext).getRecordCursorFactory()) {
+                Assert.assertNotEquals(AsyncSampleByRecordCursorFactory.class, factory.getClass());
+            }
+        });
+    }
+
+    @Test
+    public void testFallbackToSerialForLinearFill() throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            try (RecordCursorFactory factory = compiler.compile("select ts, sum(l) from x sample by 1s fill(linear)", executionContext).getRecordCursorFactory()) {
+                Assert.assertNotEquals(AsyncSampleByRecordCursorFactory.class, factory.getClass());
+            }
+        });
+    }
+
+    private void assertParallelMatchesSerial(String query, String orderBy) throws Exception {
+        withPool(executionContext -> {
+            compiler.compile(DDL, executionContext);
+            final String sql = "select * from (" + query + ") order by " + orderBy;
+
+            final StringSink expected = new StringSink();
+            AbstractCairoTest.enableParallelSampleBy = false;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertNotEquals(AsyncSampleByRecordCursorFactory.class, factory.getClass());
+            }
+            TestUtils.printSql(compiler, executionContext, sql, expected);
+
+            AbstractCairoTest.enableParallelSampleBy = true;
+            try (RecordCursorFactory factory = compiler.compile(query, executionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(AsyncSampleByRecordCursorFactory.class, factory.getClass());
+            }
+            try (RecordCursorFactory factory = compiler.compile(sql, executionContext).getRecordCursorFactory()) {
+                assertFactoryCursorTwice(expected, factory, executionContext);
+            }
+        });
+    }
+
+    private void withPool(WorkerPoolRunnable runnable) throws Exception {
+        withWorkerPool(4, 500, runnable);
+    }
+}
@@ -294,6 +294,33 @@ public class CompiledFilterIRSerializerTest extends BaseFunctionFactoryTest {
         Assert.assertEquals(UNKNOWN_SYMBOL, bindVarFunctions.get(0).getStr(null));
     }
 
+    @Test
+    public void testSymbolInList() throws Exception {
+        serialize("asymbol in ('" + KNOWN_SYMBOL_1 + "', '" + UNKNOWN_SYMBOL + "', null)");
+        assertIR("(i32 0L)(i32 asymbol)(=)(i32 :0)(i32 asymbol)(=)(||)(i32 " + Numbers.INT_NaN + "L)(i32 asymbol)(=)(||)(ret)");
+
+        Assert.assertEquals(1, bindVarFunctions.size());
+        Assert.assertEquals(UNKNOWN_SYMBOL, bindVarFunctions.get(0).getStr(null));
+    }
+
+    @Test
+    public void testSymbolInSingleValue() throws Exception {
+        serialize("asymbol in ('" + KNOWN_SYMBOL_1 + "') and anint > 0");
+        assertIR("(i32 0L)(i32 anint)(>)(i32 0L)(i32 asymbol)(=)(&&)(ret)");
+    }
+
+    @Test
+    public void testSymbolNotInList() throws Exception {
+        serialize("not asymbol in ('" + KNOWN_SYMBOL_1 + "', '" + UNKNOWN_SYMBOL + "')");
+        assertIR("(i32 0L)(i32 asymbol)(=)(i32 :0)(i32 asymbol)(=)(||)(!)(ret)");
+    }
+
+    @Test
+    public void testCharInList() throws Exception {
+        serialize("achar in ('a', 'b')");
+        assertIR("(i16 97L)(i16 achar)(=)(i16 98L)(i16 achar)(=)(||)(ret)");
+    }
+
     @Test
     public void testNegatedColumn() throws Exception {
         serialize("-ashort > 0");
@@ -516,6 +543,11 @@ public class CompiledFilterIRSerializerTest extends BaseFunctionFactoryTest {
         serialize("asymbol in (select rnd_symbol('A','B','C') from long_sequence(10))");
     }
 
+    @Test(expected = SqlException.class)
+    public void testUnsupportedInColumnType() throws Exception {
+        serialize("atimestamp in ('2020-01-01')");
+    }
+
     @Test(expected = SqlException.class)
     public void testUnsupportedStringConstant() throws Exception {
         serialize("achar = 'abc'");
@@ -67,6 +67,26 @@ public class LongListTest {
         testBinarySearchFuzz0(1, 0, 1, 1024);
     }
 
+    @Test
+    public void testSortPartiallyOrdered() {
+        // a handful of ascending runs makes sort take the merge path
+        final Rnd rnd = new Rnd();
+        final LongList list = new LongList();
+        for (int r = 0; r < 8; r++) {
+            long v = rnd.nextPositiveInt() % 1000;
+            for (int i = 0, n = 100 + rnd.nextInt(100); i < n; i++) {
+                list.add(v);
+                v += rnd.nextInt(10);
+            }
+        }
+        final int size = list.size();
+        list.sort();
+        Assert.assertEquals(size, list.size());
+        for (int i = 1; i < size; i++) {
+            Assert.assertTrue(list.getQuick(i - 1) <= list.getQuick(i));
+        }
+    }
+
     private void testBinarySearchBlockFuzz0(int N, int skipRate, int dupeRate, int dupeCountBound) {
         final Rnd rnd = new Rnd();
         final LongList list = new LongList();